@@ -19,6 +19,11 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public class BaseLoadBalancer extends AbstractLoadBalancer {
     private final static IPing DEFAULT_PING = new NoOpPing();
 
+    /**
+     * 选中慢启动节点时的最大重选次数，超过后直接接入该节点，避免只剩慢启动节点时选不到节点
+     */
+    private final static int MAX_WARMUP_RETRY = 3;
+
     /**
      * 自定义的负载均衡策略
      */
@@ -146,7 +151,12 @@ public class BaseLoadBalancer extends AbstractLoadBalancer {
             return null;
         }
 
-        return rule.choosePeer(key);
+        Peer peer = rule.choosePeer(key);
+        // 慢启动中的节点按预热权重概率接入，未接入时重新选择
+        for (int i = 0; i < MAX_WARMUP_RETRY && peer != null && !isPeerWarmedUp(peer); i++) {
+            peer = rule.choosePeer(key);
+        }
+        return peer;
     }
 
     @Override
@@ -159,14 +169,40 @@ public class BaseLoadBalancer extends AbstractLoadBalancer {
         return upPeerList;
     }
 
+    /**
+     * 标记后端节点为不可用并从可用节点列表中移除，直到{@link #markPeerUp(Peer)}或者下一次自动PING检测恢复
+     */
     @Override
-    public void markPeerDown(Peer peer) {
-        if (peer == null || !peer.isAlive()) {
+    public synchronized void markPeerDown(Peer peer) {
+        if (peer == null) {
             return;
         }
 
+        boolean alive = peer.isAlive();
         peer.setAlive(false);
-        firePeerChanged(peer);
+        if (upPeerList.remove(peer) || alive) {
+            firePeerChanged(peer);
+        }
+    }
+
+    /**
+     * 标记后端节点恢复可用并重新加入可用节点列表，节点配置了慢启动时从当前时间开始预热
+     */
+    @Override
+    public synchronized void markPeerUp(Peer peer) {
+        if (peer == null || !allPeerList.contains(peer)) {
+            return;
+        }
+
+        boolean alive = peer.isAlive();
+        peer.setAlive(true);
+        if (!upPeerList.contains(peer)) {
+            peer.setRecoverTime(System.currentTimeMillis());
+            upPeerList.add(peer);
+            firePeerChanged(peer);
+        } else if (!alive) {
+            firePeerChanged(peer);
+        }
     }
 
     /**
@@ -203,6 +239,14 @@ public class BaseLoadBalancer extends AbstractLoadBalancer {
         return stats;
     }
 
+    /**
+     * 判断节点是否已经预热完毕，慢启动中的节点按预热权重概率返回true
+     */
+    private boolean isPeerWarmedUp(Peer peer) {
+        double weight = peer.getWarmupWeight(System.currentTimeMillis());
+        return weight >= 1 || Math.random() < weight;
+    }
+
     private void doAddPeer(Peer peer) {
         if (!allPeerList.contains(peer)) {
             allPeerList.add(peer);
@@ -37,6 +37,11 @@ public interface ILoadBalancer {
 	 * 标记后端服务为不可用
 	 */
 	void markPeerDown(Peer peer);
+
+	/**
+	 * 标记后端服务恢复可用
+	 */
+	void markPeerUp(Peer peer);
 	
 	/**
 	 * 检查后端服务是否可用
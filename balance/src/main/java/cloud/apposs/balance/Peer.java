@@ -35,6 +35,16 @@ public final class Peer {
      */
     private volatile boolean ready = true;
 
+    /**
+     * 服务从不可用恢复为可用的时间，用于慢启动，0为没有经历过恢复
+     */
+    private volatile long recoverTime = 0;
+
+    /**
+     * 慢启动时间，单位毫秒，服务恢复后在该时间内接入的流量从0线性增长到正常水平，0为不开启慢启动
+     */
+    private volatile long slowStart = 0;
+
     /**
      * 节点信息元数据，
      * 一般用于节点数据信息扩展，例如是否为主/从节点，节点离线状态等
@@ -84,6 +94,40 @@ public final class Peer {
         this.ready = ready;
     }
 
+    public long getRecoverTime() {
+        return recoverTime;
+    }
+
+    public void setRecoverTime(long recoverTime) {
+        this.recoverTime = recoverTime;
+    }
+
+    public long getSlowStart() {
+        return slowStart;
+    }
+
+    public void setSlowStart(long slowStart) {
+        this.slowStart = slowStart;
+    }
+
+    /**
+     * 获取服务慢启动预热权重，取值0~1，1为已预热完毕可正常接入流量
+     *
+     * @param now 当前时间
+     */
+    public double getWarmupWeight(long now) {
+        long slowStart = this.slowStart;
+        long recoverTime = this.recoverTime;
+        if (slowStart <= 0 || recoverTime <= 0) {
+            return 1;
+        }
+        long passTime = now - recoverTime;
+        if (passTime >= slowStart) {
+            return 1;
+        }
+        return passTime <= 0 ? 0 : (double) passTime / slowStart;
+    }
+
     public Param getMetadata() {
         return metadata;
     }
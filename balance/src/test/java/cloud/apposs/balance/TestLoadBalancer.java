@@ -39,6 +39,44 @@ public class TestLoadBalancer {
         }
     }
 
+    @Test
+    public void testMarkPeerDownAndUp() {
+        ILoadBalancer balancer = new BaseLoadBalancer();
+        Peer peer1 = new Peer("192.168.1.1", 1001);
+        Peer peer2 = new Peer("192.168.1.2", 1002);
+        peer2.setSlowStart(60000);
+        balancer.addPeers(peer1, peer2);
+
+        balancer.markPeerDown(peer2);
+        Assert.assertEquals(1, balancer.getReachablePeer().size());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(peer1, balancer.choosePeer(null));
+        }
+
+        // 刚恢复的节点处于慢启动，只接入很少的流量
+        balancer.markPeerUp(peer2);
+        Assert.assertTrue(peer2.isAlive());
+        Assert.assertEquals(2, balancer.getReachablePeer().size());
+        int peer2Count = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (peer2.equals(balancer.choosePeer(null))) {
+                peer2Count++;
+            }
+        }
+        Assert.assertTrue(peer2Count < 100);
+
+        // 预热完毕后正常轮询
+        peer2.setRecoverTime(System.currentTimeMillis() - 60000);
+        Assert.assertEquals(1.0, peer2.getWarmupWeight(System.currentTimeMillis()), 0);
+        peer2Count = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (peer2.equals(balancer.choosePeer(null))) {
+                peer2Count++;
+            }
+        }
+        Assert.assertEquals(500, peer2Count);
+    }
+
     @Test
     public void testRandomLB() {
         int aid = 100;
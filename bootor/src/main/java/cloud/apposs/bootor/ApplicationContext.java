@@ -6,7 +6,9 @@ import cloud.apposs.bootor.BootorConfig.GuardRule;
 import cloud.apposs.bootor.BootorConfig.RegistryConfig;
 import cloud.apposs.bootor.banner.Banner;
 import cloud.apposs.bootor.banner.BootorBanner;
+import cloud.apposs.bootor.optional.monitor.MetricsExporter;
 import cloud.apposs.bootor.optional.monitor.MonitorAction;
+import cloud.apposs.bootor.optional.monitor.MonitorHandlerListener;
 import cloud.apposs.discovery.DiscoveryFactory;
 import cloud.apposs.discovery.IDiscovery;
 import cloud.apposs.guard.GuardRuleConfig;
@@ -28,6 +30,7 @@ import cloud.apposs.rest.IGuardProcess;
 import cloud.apposs.rest.IHandlerProcess;
 import cloud.apposs.rest.RestConfig;
 import cloud.apposs.rest.Restful;
+import cloud.apposs.util.HttpStatus;
 import cloud.apposs.util.NetUtil;
 import cloud.apposs.util.NetUtil.NetInterface;
 import cloud.apposs.util.ReflectUtil;
@@ -35,6 +38,7 @@ import cloud.apposs.util.StrUtil;
 import cloud.apposs.util.SystemInfo;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.List;
 import java.util.Map;
@@ -108,6 +112,8 @@ public final class ApplicationContext {
         // 初始化MVC框架，从框架配置扫描包路径中扫描所有Bean实例
         RestConfig rconfig = initRestConfig(config);
         restful.initialize(rconfig);
+        // 创建HTTP服务，框架内部监听服务需要获取网络层的运行指标
+        bootstrap = new HttpServer(config);
         // 初始化框架内部监听服务
         if (config.isMonitorActive()) {
             doActiveMonitor();
@@ -118,7 +124,6 @@ public final class ApplicationContext {
         initGuardRuleConfig(config);
 
         // 开始启动HTTP服务
-        bootstrap = new HttpServer(config);
         application = new ApplicationHandler();
         bootstrap.setHandler(application).start();
 
@@ -300,9 +305,12 @@ public final class ApplicationContext {
      */
     private void doActiveMonitor() {
         BeanFactory beanFactory = restful.getBeanFactory();
-        // 添加应用程序启动监听
+        // 添加请求指标监听，统计每个Handler的请求数和耗时分布
+        MonitorHandlerListener listener = new MonitorHandlerListener();
+        restful.addHandlerListener(listener);
         // 添加Action进行监听逻辑处理
-        MonitorAction action = new MonitorAction();
+        MetricsExporter exporter = new MetricsExporter(listener, bootstrap);
+        MonitorAction action = new MonitorAction(exporter, config.getCharset());
         beanFactory.addBean(action, true);
         restful.addHandler(MonitorAction.class);
     }
@@ -339,6 +347,16 @@ public final class ApplicationContext {
         public void markAsync(HttpRequest request, HttpResponse response) {
             // do nothing
         }
+
+        @Override
+        public void asyncError(HttpRequest request, HttpResponse response, Throwable cause) {
+            try {
+                response.setStatus(HttpStatus.HTTP_STATUS_500);
+                response.flush();
+            } catch (IOException e) {
+                response.close(true);
+            }
+        }
     }
 
     /**
@@ -14,6 +14,7 @@ import cloud.apposs.util.MediaType;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 public final class WebUtil {
     /**
@@ -82,6 +83,15 @@ public final class WebUtil {
         response.write(buffer, flush);
     }
 
+    /**
+     * 多段字节码响应输出，Content-Length为所有字节码可读数据之和
+     */
+    public static void response(HttpResponse response, MediaType contentType,
+                                String charset, List<IoBuffer> buffers, boolean flush) throws IOException {
+        response.setContentType(contentType.getType() + "; charset=" + charset);
+        response.write(buffers, flush);
+    }
+
     /**
      * 流媒体文件响应输出，采用数据零拷贝输出到网络
      */
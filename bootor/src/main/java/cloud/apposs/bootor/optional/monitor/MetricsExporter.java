@@ -0,0 +1,210 @@
+package cloud.apposs.bootor.optional.monitor;
+
+import cloud.apposs.netkit.EventLoop;
+import cloud.apposs.netkit.EventLoopGroup;
+import cloud.apposs.netkit.server.IoServer;
+import cloud.apposs.rest.Handler;
+import cloud.apposs.rest.annotation.Request;
+import cloud.apposs.rest.listener.statistics.HandlerMetrics;
+import cloud.apposs.rest.listener.statistics.LatencyHistogram;
+
+import java.util.List;
+
+/**
+ * 运行指标输出，按Prometheus文本格式输出，包括：
+ * <pre>
+ * 1、每个Handler的请求数、异常数、正在处理的请求数和耗时分位线，
+ *    分位线为最近一个统计周期的数据，耗时总和及请求数为累计数据
+ * 2、网络层的连接数、读写字节数、连接异常数
+ * 3、每个EventLoop的累计工作耗时和待处理队列长度
+ * </pre>
+ */
+public final class MetricsExporter {
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final MonitorHandlerListener listener;
+
+    private final IoServer server;
+
+    public MetricsExporter(MonitorHandlerListener listener, IoServer server) {
+        this.listener = listener;
+        this.server = server;
+    }
+
+    public String export() {
+        StringBuilder info = new StringBuilder(4096);
+        doExportHandlerMetrics(info);
+        doExportServerMetrics(info);
+        return info.toString();
+    }
+
+    private void doExportHandlerMetrics(StringBuilder info) {
+        List<HandlerMetrics> metricsList = listener.getMetrics();
+        int size = metricsList.size();
+        String[] labels = new String[size];
+        LatencyHistogram.Snapshot[] intervals = new LatencyHistogram.Snapshot[size];
+        LatencyHistogram.Snapshot[] totals = new LatencyHistogram.Snapshot[size];
+        for (int i = 0; i < size; i++) {
+            HandlerMetrics metrics = metricsList.get(i);
+            labels[i] = doBuildHandlerLabels(metrics.getHandler());
+            intervals[i] = metrics.getIntervalSnapshot();
+            totals[i] = metrics.getSnapshot();
+        }
+
+        doAppendHeader(info, "bootor_handler_requests_total", "counter", "Total requests handled by each handler.");
+        for (int i = 0; i < size; i++) {
+            doAppendSample(info, "bootor_handler_requests_total", labels[i], metricsList.get(i).getRequestCount());
+        }
+        doAppendHeader(info, "bootor_handler_errors_total", "counter", "Total requests completed with an exception.");
+        for (int i = 0; i < size; i++) {
+            doAppendSample(info, "bootor_handler_errors_total", labels[i], metricsList.get(i).getErrorCount());
+        }
+        doAppendHeader(info, "bootor_handler_inflight", "gauge", "Requests currently being handled.");
+        for (int i = 0; i < size; i++) {
+            doAppendSample(info, "bootor_handler_inflight", labels[i], metricsList.get(i).getInflight());
+        }
+        doAppendHeader(info, "bootor_handler_latency_seconds", "summary",
+                "Handler latency, quantiles cover the latest statistics interval.");
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < QUANTILES.length; j++) {
+                double quantile = QUANTILES[j];
+                String label = labels[i] + ",quantile=\"" + quantile + "\"";
+                double value = intervals[i].getValueAtPercentile(quantile * 100) / NANOS_PER_SECOND;
+                doAppendSample(info, "bootor_handler_latency_seconds", label, value);
+            }
+            doAppendSample(info, "bootor_handler_latency_seconds_sum", labels[i], totals[i].getSum() / NANOS_PER_SECOND);
+            doAppendSample(info, "bootor_handler_latency_seconds_count", labels[i], totals[i].getCount());
+        }
+        doAppendHeader(info, "bootor_handler_latency_max_seconds", "gauge",
+                "Max handler latency of the latest statistics interval.");
+        for (int i = 0; i < size; i++) {
+            doAppendSample(info, "bootor_handler_latency_max_seconds", labels[i], intervals[i].getMax() / NANOS_PER_SECOND);
+        }
+    }
+
+    private void doExportServerMetrics(StringBuilder info) {
+        if (server == null) {
+            return;
+        }
+        IoServer.ServerListener serverListener = server.getServerListener();
+        doAppendHeader(info, "netkit_connections_accepted_total", "counter", "Total accepted connections.");
+        doAppendSample(info, "netkit_connections_accepted_total", null, serverListener.getAcceptedClients());
+        doAppendHeader(info, "netkit_connections_active", "gauge", "Currently open connections.");
+        doAppendSample(info, "netkit_connections_active", null, serverListener.getActiveClients());
+        doAppendHeader(info, "netkit_read_bytes_total", "counter", "Total bytes read from clients.");
+        doAppendSample(info, "netkit_read_bytes_total", null, serverListener.getReadBytes());
+        doAppendHeader(info, "netkit_send_bytes_total", "counter", "Total bytes sent to clients.");
+        doAppendSample(info, "netkit_send_bytes_total", null, serverListener.getSendBytes());
+        doAppendHeader(info, "netkit_channel_errors_total", "counter", "Total channel errors.");
+        doAppendSample(info, "netkit_channel_errors_total", null, serverListener.getErrorCount());
+
+        EventLoopGroup group = server.getEventLoopGroup();
+        if (group == null) {
+            return;
+        }
+        int size = group.size();
+        doAppendHeader(info, "netkit_eventloop_busy_seconds_total", "counter",
+                "Time each event loop spent handling events and tasks, excluding select waiting.");
+        for (int i = 0; i < size; i++) {
+            EventLoop loop = group.getLoop(i);
+            if (loop != null) {
+                doAppendSample(info, "netkit_eventloop_busy_seconds_total",
+                        doBuildLoopLabel(loop), loop.getBusyTime() / NANOS_PER_SECOND);
+            }
+        }
+        doAppendHeader(info, "netkit_eventloop_pending_tasks", "gauge", "Scheduled tasks waiting in each event loop.");
+        for (int i = 0; i < size; i++) {
+            EventLoop loop = group.getLoop(i);
+            if (loop != null) {
+                doAppendSample(info, "netkit_eventloop_pending_tasks", doBuildLoopLabel(loop), loop.getPendingTaskCount());
+            }
+        }
+        doAppendHeader(info, "netkit_eventloop_pending_processors", "gauge",
+                "Connections waiting to be registered in each event loop.");
+        for (int i = 0; i < size; i++) {
+            EventLoop loop = group.getLoop(i);
+            if (loop != null) {
+                doAppendSample(info, "netkit_eventloop_pending_processors",
+                        doBuildLoopLabel(loop), loop.getPendingProcessorCount());
+            }
+        }
+    }
+
+    private static String doBuildHandlerLabels(Handler handler) {
+        StringBuilder methods = new StringBuilder(16);
+        Request.Method[] methodList = handler.getMethods();
+        if (methodList != null) {
+            for (int i = 0; i < methodList.length; i++) {
+                if (i > 0) {
+                    methods.append('|');
+                }
+                methods.append(methodList[i].name());
+            }
+        }
+        String host = handler.getHost() == null ? "" : handler.getHost();
+        return "method=\"" + methods + "\",host=\"" + doEscapeLabel(host)
+                + "\",path=\"" + doEscapeLabel(handler.getPath()) + "\"";
+    }
+
+    private static String doBuildLoopLabel(EventLoop loop) {
+        return "loop=\"" + doEscapeLabel(loop.getName()) + "\"";
+    }
+
+    private static void doAppendHeader(StringBuilder info, String name, String type, String help) {
+        info.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        info.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void doAppendSample(StringBuilder info, String name, String labels, long value) {
+        doAppendName(info, name, labels);
+        info.append(value).append('\n');
+    }
+
+    private static void doAppendSample(StringBuilder info, String name, String labels, double value) {
+        doAppendName(info, name, labels);
+        info.append(value).append('\n');
+    }
+
+    private static void doAppendName(StringBuilder info, String name, String labels) {
+        info.append(name);
+        if (labels != null) {
+            info.append('{').append(labels).append('}');
+        }
+        info.append(' ');
+    }
+
+    /**
+     * 标签值转义，Prometheus文本格式中反斜杠、双引号和换行需要转义
+     */
+    private static String doEscapeLabel(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder builder = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escape = null;
+            if (c == '\\') {
+                escape = "\\\\";
+            } else if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\n') {
+                escape = "\\n";
+            }
+            if (escape != null && builder == null) {
+                builder = new StringBuilder(value.length() + 8);
+                builder.append(value, 0, i);
+            }
+            if (builder != null) {
+                if (escape != null) {
+                    builder.append(escape);
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+        return builder == null ? value : builder.toString();
+    }
+}
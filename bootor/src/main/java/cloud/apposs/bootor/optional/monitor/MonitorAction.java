@@ -1,11 +1,24 @@
 package cloud.apposs.bootor.optional.monitor;
 
+import cloud.apposs.bootor.WebUtil;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
 import cloud.apposs.netkit.rxio.IoEmitter;
 import cloud.apposs.netkit.rxio.RxIo;
+import cloud.apposs.rest.annotation.Async;
 import cloud.apposs.rest.annotation.Request;
+import cloud.apposs.util.MediaType;
 import cloud.apposs.util.StandardResult;
 
 public class MonitorAction {
+    private final MetricsExporter exporter;
+
+    private final String charset;
+
+    public MonitorAction(MetricsExporter exporter, String charset) {
+        this.exporter = exporter;
+        this.charset = charset;
+    }
+
     @Request.Read(value = "/monitor/hello")
     public RxIo<StandardResult> hello() {
         return RxIo.emitter(new IoEmitter<StandardResult>() {
@@ -15,4 +28,13 @@ public class MonitorAction {
             }
         });
     }
+
+    /**
+     * 按Prometheus文本格式输出运行指标
+     */
+    @Async
+    @Request.Read(value = "/monitor/metrics")
+    public void metrics(HttpResponse response) throws Exception {
+        WebUtil.response(response, MediaType.TEXT_PLAIN, charset, exporter.export(), true);
+    }
 }
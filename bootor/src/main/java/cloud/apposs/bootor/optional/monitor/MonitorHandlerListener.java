@@ -0,0 +1,21 @@
+package cloud.apposs.bootor.optional.monitor;
+
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+import cloud.apposs.rest.Handler;
+import cloud.apposs.rest.listener.statistics.HandlerMetricsListener;
+
+/**
+ * 请求指标监听，开启请求监控时由框架注册，请求开始时间存储在{@link HttpRequest#getStartTime()}中
+ */
+public class MonitorHandlerListener extends HandlerMetricsListener<HttpRequest, HttpResponse> {
+    @Override
+    public void setStartTime(HttpRequest request, HttpResponse response, Handler handler, long startTime) {
+        request.setStartTime(startTime);
+    }
+
+    @Override
+    public long getStartTime(HttpRequest request, HttpResponse response, Handler handler) {
+        return request.getStartTime();
+    }
+}
@@ -6,6 +6,7 @@ import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
 import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
 import cloud.apposs.rest.FileStream;
 import cloud.apposs.rest.view.AbstractViewResolver;
+import cloud.apposs.rest.view.TypedViewResolver;
 import cloud.apposs.util.CachedFileStream;
 import cloud.apposs.util.MediaType;
 
@@ -18,7 +19,13 @@ import java.util.Map;
  * HTTP协议实现中HEADER返回contetype-type为stream，BODY为文件二进制流
  */
 @Component
-public class FileViewResolver extends AbstractViewResolver<HttpRequest, HttpResponse> {
+public class FileViewResolver extends AbstractViewResolver<HttpRequest, HttpResponse>
+        implements TypedViewResolver<HttpRequest, HttpResponse> {
+    @Override
+    public boolean supportsType(Class<?> resultType) {
+        return (resultType != null && FileStream.class.isAssignableFrom(resultType));
+    }
+
     @Override
     public boolean supports(HttpRequest request, HttpResponse response, Object result) {
         return (result instanceof FileStream);
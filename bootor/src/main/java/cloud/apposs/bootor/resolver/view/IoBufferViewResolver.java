@@ -6,6 +6,7 @@ import cloud.apposs.netkit.IoBuffer;
 import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
 import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
 import cloud.apposs.rest.view.AbstractViewResolver;
+import cloud.apposs.rest.view.TypedViewResolver;
 import cloud.apposs.util.MediaType;
 
 /**
@@ -15,7 +16,13 @@ import cloud.apposs.util.MediaType;
  * HTTP协议实现中HEADER返回contetype-type为stream，BODY为文件二进制流
  */
 @Component
-public class IoBufferViewResolver extends AbstractViewResolver<HttpRequest, HttpResponse> {
+public class IoBufferViewResolver extends AbstractViewResolver<HttpRequest, HttpResponse>
+        implements TypedViewResolver<HttpRequest, HttpResponse> {
+    @Override
+    public boolean supportsType(Class<?> resultType) {
+        return (resultType != null && IoBuffer.class.isAssignableFrom(resultType));
+    }
+
     @Override
     public boolean supports(HttpRequest request, HttpResponse response, Object result) {
         return (result instanceof IoBuffer);
@@ -0,0 +1,609 @@
+package cloud.apposs.bootor.resolver.view;
+
+import cloud.apposs.netkit.IoBuffer;
+import cloud.apposs.netkit.buffer.IoAllocator;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+import cloud.apposs.util.Param;
+import cloud.apposs.util.StandardResult;
+import cloud.apposs.util.Table;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Json字节输出器，将{@link Param}、{@link Table}、{@link StandardResult}直接以UTF-8编码序列化到{@link IoBuffer}中，
+ * 不再先生成完整的Json字符串再整体编码成字节，输出内容与toJson()/toHtmlJson()完全一致，实现如下：
+ * <pre>
+ * 1、每个线程复用一块固定大小的编码缓存，写满后拷贝到通过{@link IoAllocator}分配的内存中，形成多段IoBuffer，
+ *    响应的Content-Length即为所有IoBuffer可读字节之和，大响应不会产生一整块的大字符串和大字节数组
+ * 2、Param的Key在业务中大量重复，其"key":的UTF-8编码结果缓存复用，缓存数量有上限，避免Key无限增长
+ * 3、直接输出到响应时，内容不超过一段按Content-Length输出，超过一段且请求为HTTP/1.1时改为分块传输，
+ *    每写满一段即作为一个分块输出，不再等待整个Json生成完毕
+ * </pre>
+ * 注意只支持UTF-8编码输出，其他字符集仍然使用toJson()字符串输出
+ */
+public final class JsonBufferWriter {
+    /**
+     * 每段IoBuffer的最大字节数
+     */
+    public static final int CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * Key编码缓存的最大数量
+     */
+    public static final int MAX_CACHED_KEYS = 4096;
+
+    /**
+     * 单个字符编码后的最大字节数，即\\uXXXX或者&nbsp;
+     */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private static final String HTTP_PROTOCOL_1_0 = "HTTP/1.0";
+
+    private static final byte[] NULL_BYTES = {'n', 'u', 'l', 'l'};
+
+    private static final byte[] EMPTY_OBJECT_BYTES = {'{', '}'};
+
+    private static final byte[] HEX_DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+
+    private static final byte[] SUCCESS_BYTES = toUtf8("{\"success\":");
+
+    private static final byte[] CODE_BYTES = toUtf8(",\"code\":");
+
+    private static final byte[] MESSAGE_BYTES = toUtf8(",\"message\":\"");
+
+    private static final byte[] TIMESTAMP_BYTES = toUtf8("\",\"timestamp\":");
+
+    private static final byte[] RESULT_BYTES = toUtf8(",\"result\":");
+
+    private static final Map<String, byte[]> keyCache = new ConcurrentHashMap<String, byte[]>();
+
+    private static final ThreadLocal<byte[]> scratchCache = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[CHUNK_SIZE];
+        }
+    };
+
+    private final List<IoBuffer> buffers = new ArrayList<IoBuffer>(2);
+
+    private final byte[] scratch;
+
+    private int position = 0;
+
+    /**
+     * 分块输出的响应，为空时所有分段保存在buffers中
+     */
+    private final HttpResponse response;
+
+    private final boolean flush;
+
+    /**
+     * 是否已经输出分块传输的头部
+     */
+    private boolean streaming = false;
+
+    private JsonBufferWriter() {
+        this(null, false);
+    }
+
+    private JsonBufferWriter(HttpResponse response, boolean flush) {
+        this.scratch = scratchCache.get();
+        this.response = response;
+        this.flush = flush;
+    }
+
+    /**
+     * 判断响应字符集是否支持字节输出，只支持UTF-8
+     */
+    public static boolean isSupported(String charset) {
+        return "UTF-8".equalsIgnoreCase(charset) || "UTF8".equalsIgnoreCase(charset);
+    }
+
+    /**
+     * 判断请求是否支持分块传输，HTTP/1.0不支持
+     */
+    public static boolean isChunkSupported(HttpRequest request) {
+        String protocol = request.getProtocol();
+        return protocol != null && !HTTP_PROTOCOL_1_0.equalsIgnoreCase(protocol);
+    }
+
+    /**
+     * 直接输出Json到响应，响应的Content-Type需要提前设置
+     *
+     * @param result Json数据，只支持{@link Param}、{@link Table}、{@link StandardResult}
+     * @param encode 是否HTML JSON内容
+     * @param flush  是否立即触发写事件
+     */
+    public static void write(HttpRequest request, HttpResponse response,
+                             Object result, boolean encode, boolean flush) throws IOException {
+        if (!isChunkSupported(request)) {
+            response.write(doWrite(new JsonBufferWriter(), result, encode), flush);
+            return;
+        }
+        JsonBufferWriter writer = new JsonBufferWriter(response, flush);
+        try {
+            writer.doWriteResult(result, encode);
+            writer.finishResponse();
+        } catch (IOException e) {
+            writer.abort();
+            throw e;
+        } catch (RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * 输出Param Json，等同于{@link Param#toJson(boolean, int, String, boolean)}非格式化输出
+     *
+     * @param encode 是否HTML JSON内容
+     */
+    public static List<IoBuffer> write(Param param, boolean encode) throws IOException {
+        return doWrite(new JsonBufferWriter(), param, encode);
+    }
+
+    /**
+     * 输出Table Json，等同于{@link Table#toJson(boolean, int, String, boolean)}非格式化输出
+     *
+     * @param encode 是否HTML JSON内容
+     */
+    public static List<IoBuffer> write(Table<?> table, boolean encode) throws IOException {
+        return doWrite(new JsonBufferWriter(), table, encode);
+    }
+
+    /**
+     * 输出标准Json，等同于{@link StandardResult#toJson(boolean)}
+     *
+     * @param htmlEncode 是否进行HTML编码避免XSS攻击
+     */
+    public static List<IoBuffer> write(StandardResult result, boolean htmlEncode) throws IOException {
+        return doWrite(new JsonBufferWriter(), result, htmlEncode);
+    }
+
+    private static List<IoBuffer> doWrite(JsonBufferWriter writer, Object result, boolean encode) throws IOException {
+        try {
+            writer.doWriteResult(result, encode);
+            return writer.finish();
+        } catch (IOException e) {
+            writer.release();
+            throw e;
+        } catch (RuntimeException e) {
+            writer.release();
+            throw e;
+        }
+    }
+
+    private void doWriteResult(Object result, boolean encode) throws IOException {
+        if (result instanceof Param) {
+            writeParam((Param) result, encode);
+        } else if (result instanceof Table) {
+            writeTable((Table<?>) result, encode);
+        } else if (result instanceof StandardResult) {
+            writeStandardResult((StandardResult) result, encode);
+        } else {
+            throw new IllegalArgumentException("unsupported json result " + result);
+        }
+    }
+
+    private void writeStandardResult(StandardResult result, boolean htmlEncode) throws IOException {
+        writeBytes(SUCCESS_BYTES);
+        writeAscii(String.valueOf(result.getSuccess()));
+        writeBytes(CODE_BYTES);
+        writeLong(result.getErrno().value());
+        writeBytes(MESSAGE_BYTES);
+        writeRaw(result.getErrno().description());
+        writeBytes(TIMESTAMP_BYTES);
+        writeLong(result.getTimestamp());
+        writeBytes(RESULT_BYTES);
+        Object value = result.getResult();
+        // 响应的数据进行转码，避免被利用来XSS攻击
+        if (value instanceof Param) {
+            writeParam((Param) value, htmlEncode);
+        } else if (value instanceof Table<?>) {
+            writeTable((Table<?>) value, htmlEncode);
+        } else if (value == null) {
+            writeBytes(EMPTY_OBJECT_BYTES);
+        } else {
+            writeByte('"');
+            writeRaw(value.toString());
+            writeByte('"');
+        }
+        writeByte('}');
+    }
+
+    private void writeParam(Param param, boolean encode) throws IOException {
+        writeByte('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : param.entrySet()) {
+            if (!first) {
+                writeByte(',');
+            }
+            first = false;
+            writeBytes(getKeyBytes(entry.getKey()));
+            writeValue(entry.getValue(), encode);
+        }
+        writeByte('}');
+    }
+
+    private void writeTable(Table<?> table, boolean encode) throws IOException {
+        writeByte('[');
+        int total = table.size();
+        for (int i = 0; i < total; i++) {
+            if (i > 0) {
+                writeByte(',');
+            }
+            writeValue(table.get(i), encode);
+        }
+        writeByte(']');
+    }
+
+    /**
+     * 输出Json值，与JsonUtil.toJson的类型判断保持一致
+     */
+    private void writeValue(Object value, boolean encode) throws IOException {
+        if (value == null) {
+            writeBytes(NULL_BYTES);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof Float || value instanceof Double || value instanceof Boolean) {
+            writeAscii(value.toString());
+        } else if (value instanceof Param) {
+            writeParam((Param) value, encode);
+        } else if (value instanceof Table<?>) {
+            writeTable((Table<?>) value, encode);
+        } else {
+            writeByte('"');
+            if (encode) {
+                writeHtmlEncoded(value.toString());
+            } else {
+                writeJsonEncoded(value.toString());
+            }
+            writeByte('"');
+        }
+    }
+
+    /**
+     * 输出Json转义字符串，与JsonUtil.encodeJson保持一致
+     */
+    private void writeJsonEncoded(String str) throws IOException {
+        int length = str.length();
+        boolean inBracket = false;
+        for (int i = 0; i < length; ++i) {
+            char c = str.charAt(i);
+            ensureCapacity(MAX_CHAR_BYTES);
+            byte[] scratch = this.scratch;
+            switch (c) {
+                case '"':
+                    scratch[position++] = '\\';
+                    scratch[position++] = '"';
+                    break;
+                case '\\':
+                    scratch[position++] = '\\';
+                    scratch[position++] = '\\';
+                    break;
+                case '/':
+                    if (inBracket) {
+                        scratch[position++] = '\\';
+                    }
+                    scratch[position++] = '/';
+                    break;
+                case '!':
+                    if (inBracket) {
+                        writeUnicodeEscape(c);
+                    } else {
+                        scratch[position++] = '!';
+                    }
+                    break;
+                case '\n':
+                    scratch[position++] = '\\';
+                    scratch[position++] = 'n';
+                    break;
+                case '\r':
+                    scratch[position++] = '\\';
+                    scratch[position++] = 'r';
+                    break;
+                case '\t':
+                    scratch[position++] = '\\';
+                    scratch[position++] = 't';
+                    break;
+                case '\b':
+                    scratch[position++] = '\\';
+                    scratch[position++] = 'b';
+                    break;
+                case '\f':
+                    scratch[position++] = '\\';
+                    scratch[position++] = 'f';
+                    break;
+                default:
+                    if (c <= 0x1F || (c >= 0x7F && c <= 0x9F) || (c >= 0x2000 && c <= 0x20FF)) {
+                        writeUnicodeEscape(c);
+                    } else {
+                        i = writeChar(str, i, c);
+                    }
+            }
+            inBracket = c == '<';
+        }
+    }
+
+    /**
+     * 输出HTML转义字符串，与Encoder.encodeHtml保持一致，空白字符串原样输出
+     */
+    private void writeHtmlEncoded(String html) throws IOException {
+        if (isBlank(html)) {
+            writeRaw(html);
+            return;
+        }
+        int spaceCount = 0;
+        int length = html.length();
+        for (int i = 0; i < length; ++i) {
+            char c = html.charAt(i);
+            if (c == ' ') {
+                spaceCount++;
+            } else {
+                spaceCount = 0;
+            }
+            switch (c) {
+                case '&':
+                    writeAscii("&amp;");
+                    break;
+                case ' ':
+                    if (spaceCount < 2) {
+                        writeByte(' ');
+                    } else {
+                        writeAscii("&nbsp;");
+                    }
+                    break;
+                case '<':
+                    writeAscii("&lt;");
+                    break;
+                case '>':
+                    writeAscii("&gt;");
+                    break;
+                case '\'':
+                    writeAscii("&#39;");
+                    break;
+                case '\\':
+                    writeAscii("&#92;");
+                    break;
+                case '"':
+                    writeAscii("&quot;");
+                    break;
+                case '\n':
+                    writeAscii("<br/>");
+                    break;
+                case '\r':
+                case '\t':
+                    break;
+                default:
+                    ensureCapacity(MAX_CHAR_BYTES);
+                    i = writeChar(html, i, c);
+            }
+        }
+    }
+
+    /**
+     * 原样输出字符串的UTF-8编码，null输出为null
+     */
+    private void writeRaw(String str) throws IOException {
+        if (str == null) {
+            writeBytes(NULL_BYTES);
+            return;
+        }
+        int length = str.length();
+        for (int i = 0; i < length; ++i) {
+            ensureCapacity(MAX_CHAR_BYTES);
+            i = writeChar(str, i, str.charAt(i));
+        }
+    }
+
+    /**
+     * 输出单个字符的UTF-8编码，调用前需保证缓存有{@link #MAX_CHAR_BYTES}空间，
+     * 代理对一起输出并返回最后消费的字符下标，不成对的代理字符和String.getBytes一样输出为?
+     */
+    private int writeChar(String str, int index, char c) {
+        byte[] scratch = this.scratch;
+        if (c < 0x80) {
+            scratch[position++] = (byte) c;
+        } else if (c < 0x800) {
+            scratch[position++] = (byte) (0xC0 | (c >> 6));
+            scratch[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && index + 1 < str.length()
+                    && Character.isLowSurrogate(str.charAt(index + 1))) {
+                int codePoint = Character.toCodePoint(c, str.charAt(++index));
+                scratch[position++] = (byte) (0xF0 | (codePoint >> 18));
+                scratch[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                scratch[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                scratch[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                scratch[position++] = '?';
+            }
+        } else {
+            scratch[position++] = (byte) (0xE0 | (c >> 12));
+            scratch[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            scratch[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return index;
+    }
+
+    private void writeUnicodeEscape(char c) {
+        byte[] scratch = this.scratch;
+        scratch[position++] = '\\';
+        scratch[position++] = 'u';
+        scratch[position++] = HEX_DIGITS[(c >> 12) & 0xF];
+        scratch[position++] = HEX_DIGITS[(c >> 8) & 0xF];
+        scratch[position++] = HEX_DIGITS[(c >> 4) & 0xF];
+        scratch[position++] = HEX_DIGITS[c & 0xF];
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(String.valueOf(value));
+            return;
+        }
+        ensureCapacity(20);
+        byte[] scratch = this.scratch;
+        if (value < 0) {
+            scratch[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int index = position + digits;
+        position = index;
+        do {
+            scratch[--index] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+    }
+
+    /**
+     * 输出只包含ASCII字符的字符串
+     */
+    private void writeAscii(String str) throws IOException {
+        int length = str.length();
+        ensureCapacity(length);
+        byte[] scratch = this.scratch;
+        for (int i = 0; i < length; i++) {
+            scratch[position++] = (byte) str.charAt(i);
+        }
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensureCapacity(1);
+        scratch[position++] = (byte) c;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        int length = bytes.length;
+        while (length > 0) {
+            int writable = scratch.length - position;
+            if (writable == 0) {
+                flushChunk();
+                writable = scratch.length;
+            }
+            int count = Math.min(writable, length);
+            System.arraycopy(bytes, offset, scratch, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void ensureCapacity(int length) throws IOException {
+        if (position + length > scratch.length) {
+            flushChunk();
+        }
+    }
+
+    /**
+     * 编码缓存写满，拷贝到新分配的IoBuffer中，分块输出时直接作为一个分块输出到响应
+     */
+    private void flushChunk() throws IOException {
+        if (position == 0) {
+            return;
+        }
+        IoBuffer buffer = IoAllocator.allocate(position);
+        try {
+            buffer.put(scratch, 0, position);
+        } catch (IOException e) {
+            buffer.free();
+            throw e;
+        }
+        position = 0;
+        if (response == null) {
+            buffers.add(buffer);
+            return;
+        }
+        if (!streaming) {
+            streaming = true;
+            response.writeChunkedHeader(false);
+        }
+        response.writeChunk(buffer, flush);
+    }
+
+    private List<IoBuffer> finish() throws IOException {
+        flushChunk();
+        return buffers;
+    }
+
+    /**
+     * 直接输出到响应的结束处理，内容不超过一段时按Content-Length输出，否则输出最后一个分块和结束块
+     */
+    private void finishResponse() throws IOException {
+        if (!streaming) {
+            IoBuffer buffer = IoAllocator.allocate(position);
+            try {
+                buffer.put(scratch, 0, position);
+            } catch (IOException e) {
+                buffer.free();
+                throw e;
+            }
+            position = 0;
+            response.write(buffer, flush);
+            return;
+        }
+        flushChunk();
+        response.writeLastChunk(flush);
+    }
+
+    /**
+     * 直接输出到响应时出错，头部已经输出则无法再响应错误信息，只能关闭连接让客户端感知响应不完整
+     */
+    private void abort() {
+        position = 0;
+        if (streaming) {
+            response.close(true);
+        }
+    }
+
+    private void release() {
+        for (IoBuffer buffer : buffers) {
+            buffer.free();
+        }
+        buffers.clear();
+        position = 0;
+    }
+
+    /**
+     * 获取"key":的UTF-8编码，Key与Param.toJson一样原样输出不做转义
+     */
+    private static byte[] getKeyBytes(String key) {
+        if (key == null) {
+            return toUtf8("\"null\":");
+        }
+        byte[] bytes = keyCache.get(key);
+        if (bytes != null) {
+            return bytes;
+        }
+        bytes = toUtf8("\"" + key + "\":");
+        if (keyCache.size() < MAX_CACHED_KEYS) {
+            keyCache.put(key, bytes);
+        }
+        return bytes;
+    }
+
+    private static boolean isBlank(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] toUtf8(String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -5,6 +5,7 @@ import cloud.apposs.ioc.annotation.Component;
 import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
 import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
 import cloud.apposs.rest.view.AbstractViewResolver;
+import cloud.apposs.rest.view.TypedViewResolver;
 import cloud.apposs.util.MediaType;
 import cloud.apposs.util.StandardResult;
 
@@ -12,7 +13,13 @@ import cloud.apposs.util.StandardResult;
  * Json格式输出视图渲染器
  */
 @Component
-public class StandardResultViewResolver extends AbstractViewResolver<HttpRequest, HttpResponse> {
+public class StandardResultViewResolver extends AbstractViewResolver<HttpRequest, HttpResponse>
+        implements TypedViewResolver<HttpRequest, HttpResponse> {
+    @Override
+    public boolean supportsType(Class<?> resultType) {
+        return (resultType != null && StandardResult.class.isAssignableFrom(resultType));
+    }
+
     @Override
     public boolean supports(HttpRequest request, HttpResponse response, Object result) {
         return (result instanceof StandardResult);
@@ -20,6 +27,13 @@ public class StandardResultViewResolver extends AbstractViewResolver<HttpRequest
 
     @Override
     public void render(HttpRequest request, HttpResponse response, Object result, boolean flush) throws Exception {
-        WebUtil.response(response, MediaType.APPLICATION_JSON, config.getCharset(), ((StandardResult) result).toJson(), flush);
+        String charset = config.getCharset();
+        // UTF-8编码直接序列化到IoBuffer中输出，超过一段时按分块传输边生成边输出，其他字符集仍然按字符串编码输出
+        if (JsonBufferWriter.isSupported(charset)) {
+            response.setContentType(MediaType.APPLICATION_JSON.getType() + "; charset=" + charset);
+            JsonBufferWriter.write(request, response, result, true, flush);
+            return;
+        }
+        WebUtil.response(response, MediaType.APPLICATION_JSON, charset, ((StandardResult) result).toJson(), flush);
     }
 }
@@ -6,14 +6,21 @@ import cloud.apposs.ioc.annotation.Component;
 import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
 import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
 import cloud.apposs.rest.view.AbstractViewResolver;
+import cloud.apposs.rest.view.TypedViewResolver;
 
 /**
  * 页面Url跳转/转发视图渲染器
  */
 @Component
-public class UrlViewResolver extends AbstractViewResolver<HttpRequest, HttpResponse> {
+public class UrlViewResolver extends AbstractViewResolver<HttpRequest, HttpResponse>
+        implements TypedViewResolver<HttpRequest, HttpResponse> {
     public static final String REQUEST_ATTRIBUTE_URL_CONTENT = "_AttrUrlContent";
 
+    @Override
+    public boolean supportsType(Class<?> resultType) {
+        return resultType == String.class;
+    }
+
     @Override
     public boolean supports(HttpRequest request, HttpResponse response, Object result) {
         if (result instanceof String) {
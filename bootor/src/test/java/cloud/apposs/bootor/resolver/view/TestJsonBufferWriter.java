@@ -0,0 +1,137 @@
+package cloud.apposs.bootor.resolver.view;
+
+import cloud.apposs.netkit.IoBuffer;
+import cloud.apposs.util.Errno;
+import cloud.apposs.util.Param;
+import cloud.apposs.util.StandardResult;
+import cloud.apposs.util.Table;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class TestJsonBufferWriter {
+    private static final String SPECIAL = "a\"b\\c</script><!--x-->\n\r\t\b\f\u0001\u007F  中文  3 spaces 😀 \uD800 & ' end";
+
+    @Test
+    public void testWriteParam() throws Exception {
+        Param param = doCreateParam();
+        Assert.assertEquals(doEncode(param.toJson()), doWrite(JsonBufferWriter.write(param, false)));
+        Assert.assertEquals(doEncode(param.toHtmlJson()), doWrite(JsonBufferWriter.write(param, true)));
+    }
+
+    @Test
+    public void testWriteTable() throws Exception {
+        Table<Object> table = doCreateTable(1000);
+        Assert.assertEquals(doEncode(table.toJson()), doWrite(JsonBufferWriter.write(table, false)));
+        Assert.assertEquals(doEncode(table.toHtmlJson()), doWrite(JsonBufferWriter.write(table, true)));
+    }
+
+    @Test
+    public void testWriteStandardResult() throws Exception {
+        StandardResult[] results = {
+            StandardResult.success(doCreateParam()),
+            StandardResult.success(doCreateTable(10)),
+            StandardResult.success(SPECIAL),
+            StandardResult.success(100L),
+            StandardResult.success(),
+            StandardResult.error(new Errno(1001, "错误\"信息\""))
+        };
+        for (StandardResult result : results) {
+            Assert.assertEquals(doEncode(result.toJson()), doWrite(JsonBufferWriter.write(result, true)));
+            Assert.assertEquals(doEncode(result.toJson(false)), doWrite(JsonBufferWriter.write(result, false)));
+        }
+    }
+
+    /**
+     * 输出性能对比，对比原先toJson()后再整体编码成字节的方式
+     */
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testWriteBenchmark() throws Exception {
+        StandardResult result = StandardResult.success(doCreateTable(100));
+        int iterations = 20000;
+        long writerCost = 0;
+        long stringCost = 0;
+        for (int round = 0; round < 5; round++) {
+            // 前几轮预热
+            long start = System.nanoTime();
+            long total = 0;
+            for (int i = 0; i < iterations; i++) {
+                List<IoBuffer> buffers = JsonBufferWriter.write(result, true);
+                for (IoBuffer buffer : buffers) {
+                    total += buffer.readableBytes();
+                    buffer.free();
+                }
+            }
+            writerCost = (System.nanoTime() - start) / iterations;
+            long writerTotal = total;
+
+            start = System.nanoTime();
+            total = 0;
+            for (int i = 0; i < iterations; i++) {
+                total += result.toJson().getBytes(StandardCharsets.UTF_8).length;
+            }
+            stringCost = (System.nanoTime() - start) / iterations;
+            Assert.assertEquals(total, writerTotal);
+        }
+        System.out.println(String.format("writer=%dns/op string=%dns/op", writerCost, stringCost));
+    }
+
+    private static Param doCreateParam() {
+        Param param = new Param();
+        param.setInt("id", 1001);
+        param.setLong("uid", -98765432101L);
+        param.setString("name", SPECIAL);
+        param.setString("blank", "  \t ");
+        param.setBoolean("enable", true);
+        param.put("score", 98.5D);
+        param.put("rate", 0.25F);
+        param.put("short", (short) 7);
+        param.put("byte", (byte) 8);
+        param.put("empty", null);
+        Param child = new Param();
+        child.setString("desc", "<b>bold</b>");
+        Table<Object> list = new Table<Object>();
+        list.add("x");
+        list.add(1);
+        child.put("list", list);
+        param.put("child", child);
+        return param;
+    }
+
+    private static Table<Object> doCreateTable(int size) {
+        Table<Object> table = new Table<Object>();
+        for (int i = 0; i < size; i++) {
+            Param item = new Param();
+            item.setInt("id", i);
+            item.setString("title", "商品-" + i + " <" + i + ">");
+            item.setLong("timestamp", 1590387266300L + i);
+            item.setBoolean("onSale", (i & 1) == 0);
+            table.add(item);
+        }
+        table.add(SPECIAL);
+        table.add(null);
+        return table;
+    }
+
+    /**
+     * 不成对的代理字符编码成UTF-8后为?，期望值同样经过一次编解码
+     */
+    private static String doEncode(String json) {
+        return new String(json.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    private static String doWrite(List<IoBuffer> buffers) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (IoBuffer buffer : buffers) {
+            Assert.assertTrue(buffer.readableBytes() <= JsonBufferWriter.CHUNK_SIZE);
+            output.write(buffer.array());
+            buffer.free();
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
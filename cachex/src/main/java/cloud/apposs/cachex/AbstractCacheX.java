@@ -3,6 +3,7 @@ package cloud.apposs.cachex;
 import cloud.apposs.cachex.memory.CacheManager;
 import cloud.apposs.cachex.storage.Dao;
 import cloud.apposs.cachex.storage.Query;
+import cloud.apposs.protobuf.ProtoBuf;
 import cloud.apposs.protobuf.ProtoSchema;
 import cloud.apposs.threadx.Future;
 import cloud.apposs.threadx.FutureListener;
@@ -11,7 +12,10 @@ import cloud.apposs.threadx.ThreadPoolFactory;
 import cloud.apposs.util.Ref;
 import cloud.apposs.util.StrUtil;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 /**
@@ -130,6 +134,16 @@ public abstract class AbstractCacheX<K extends CacheKey, V> implements CacheX<K,
         return doGetCacheX(key, schema, config.isWriteBehind(), args);
     }
 
+    @Override
+    public Map<K, V> mget(List<K> keys, ProtoSchema schema, Object... args) throws Exception {
+        Map<K, V> values = new HashMap<K, V>();
+        if (keys == null || keys.isEmpty()) {
+            return values;
+        }
+
+        return doMgetCacheX(keys, schema, config.isWriteBehind(), args);
+    }
+
     @Override
     public V select(CacheKey<?> key, ProtoSchema schema, Query query, Object... args) throws Exception {
         return doSelectCacheX(key, schema, query, config.isWriteBehind(), args);
@@ -169,6 +183,15 @@ public abstract class AbstractCacheX<K extends CacheKey, V> implements CacheX<K,
         return doDeleteCacheX(key, args);
     }
 
+    @Override
+    public int mdelete(List<K> keys, Object... args) throws Exception {
+        if (keys == null) {
+            return -1;
+        }
+
+        return doMdeleteCacheX(keys, args);
+    }
+
     @Override
     public int update(K key, V value, ProtoSchema schema, final Object... args) throws Exception {
         if (key == null || value == null) {
@@ -196,6 +219,16 @@ public abstract class AbstractCacheX<K extends CacheKey, V> implements CacheX<K,
         return doHgetCacheX(key, field, schema, config.isWriteBehind(), args);
     }
 
+    @Override
+    public Map<Object, V> hmget(K key, List<Object> fields, ProtoSchema schema, Object... args) throws Exception {
+        Map<Object, V> values = new HashMap<Object, V>();
+        if (key == null || fields == null || fields.isEmpty()) {
+            return values;
+        }
+
+        return doHmgetCacheX(key, fields, schema, config.isWriteBehind(), args);
+    }
+
     @Override
     public boolean hexist(K key, Object field, ProtoSchema schema, Object... args) throws Exception {
         V value = hget(key, field, schema, args);
@@ -592,6 +625,39 @@ public abstract class AbstractCacheX<K extends CacheKey, V> implements CacheX<K,
         return value;
     }
 
+    private Map<K, V> doMgetCacheX(List<K> keys, ProtoSchema schema,
+                                   boolean writeBehind, Object... args) throws Exception {
+        // 先通过一次批量请求从缓存中获取数据
+        List<String> cacheKeys = new ArrayList<String>(keys.size());
+        for (K key : keys) {
+            cacheKeys.add(key.getCacheKey());
+        }
+        Map<String, ProtoBuf> buffers = cache.mget(cacheKeys);
+
+        Map<K, V> values = new HashMap<K, V>();
+        for (K key : keys) {
+            V value;
+            ProtoBuf buffer = buffers.get(key.getCacheKey());
+            if (buffer != null) {
+                value = doDecode(buffer, schema);
+                buffer.rewind();
+                // 数据有缓存，但其实缓存定义的空数据，不返回给业务方
+                if (!checkExist(value)) {
+                    continue;
+                }
+                statistics.addHitCount();
+            } else {
+                // 缓存数据不存在，和get一样加锁回源加载数据并写入缓存
+                value = doGetCacheX(key, schema, writeBehind, args);
+                if (value == null) {
+                    continue;
+                }
+            }
+            values.put(key, value);
+        }
+        return values;
+    }
+
     private V doSelectCacheX(CacheKey<?> key, ProtoSchema schema,
                              Query query, boolean writeBehind, Object... args) throws Exception {
         // 先从缓存中获取数据
@@ -720,6 +786,45 @@ public abstract class AbstractCacheX<K extends CacheKey, V> implements CacheX<K,
         return count;
     }
 
+    private int doMdeleteCacheX(List<K> keys, Object... args) throws Exception {
+        // 先通过一次批量请求从缓存中移除数据
+        List<String> cacheKeys = new ArrayList<String>(keys.size());
+        for (K key : keys) {
+            cacheKeys.add(key.getCacheKey());
+        }
+        if (!cache.mdelete(cacheKeys)) {
+            // 缓存删除失败直接退出，
+            // 不允许缓存删除不成功数据库却删除成功，会有脏数据
+            return -1;
+        }
+
+        // 再从数据库中逐个删除数据
+        int total = 0;
+        for (K key : keys) {
+            int count;
+            int index = key.getLockIndex();
+            if (index > 0) {
+                try {
+                    // 加锁操作，避免同一时间有多个请求涌进
+                    lock.writeLock(index);
+                    count = loader.delete(key, this, args);
+                } finally {
+                    lock.writeUnlock(index);
+                }
+            } else {
+                // 不加锁操作，可以提升性能，但多个请求进来会多次删除数据库
+                count = loader.delete(key, this, args);
+            }
+            if (count > 0) {
+                total += count;
+            }
+        }
+        // 再删除缓存，
+        // 因为有可能要高并发情况下该方法在一开始删除了缓存，但同时又有另外的请求又重新加载了缓存
+        cache.mdelete(cacheKeys);
+        return total;
+    }
+
     private int doUpdateCacheX(K key, V value, ProtoSchema schema, Object... args) throws Exception {
         // 先从缓存中移除数据，
         // 不更新缓存数据，操作比较复杂，下次获取数据如果没有直接回源即可
@@ -784,6 +889,39 @@ public abstract class AbstractCacheX<K extends CacheKey, V> implements CacheX<K,
         return count;
     }
 
+    private Map<Object, V> doHmgetCacheX(K key, List<Object> fields, ProtoSchema schema,
+                                         boolean writeBehind, Object... args) throws Exception {
+        // 先通过一次批量请求从缓存中获取数据
+        List<String> cacheFields = new ArrayList<String>(fields.size());
+        for (Object field : fields) {
+            cacheFields.add(field.toString());
+        }
+        Map<String, ProtoBuf> buffers = cache.hmget(key.getCacheKey(), cacheFields);
+
+        Map<Object, V> values = new HashMap<Object, V>();
+        for (Object field : fields) {
+            V value;
+            ProtoBuf buffer = buffers.get(field.toString());
+            if (buffer != null) {
+                value = doDecode(buffer, schema);
+                buffer.rewind();
+                // 数据有缓存，但其实缓存定义的空数据，不返回给业务方
+                if (!checkExist(value)) {
+                    continue;
+                }
+                statistics.addHitCount();
+            } else {
+                // 缓存数据不存在，回源加载所有二级数据并写入缓存，后续未命中的二级Key直接从缓存获取
+                value = doHgetCacheX(key, field, schema, writeBehind, args);
+                if (value == null) {
+                    continue;
+                }
+            }
+            values.put(field, value);
+        }
+        return values;
+    }
+
     private V doHgetCacheX(K key, Object field, ProtoSchema schema, boolean writeBehind, Object... args) throws Exception {
         // 先从缓存中获取数据
         V value = doHget(key.getCacheKey(), field, schema);
@@ -1132,4 +1270,12 @@ public abstract class AbstractCacheX<K extends CacheKey, V> implements CacheX<K,
      * @param schema 数据元信息，用于序列化/反序列化
      */
     public abstract List<V> doHgetAll(String key, ProtoSchema schema, Object... args);
+
+    /**
+     * 将批量获取的缓存数据反序列化，由具体数据类型类实现
+     *
+     * @param buffer 缓存数据
+     * @param schema 数据元信息，用于序列化/反序列化
+     */
+    public abstract V doDecode(ProtoBuf buffer, ProtoSchema schema);
 }
@@ -1,6 +1,7 @@
 package cloud.apposs.cachex;
 
 import java.util.List;
+import java.util.Map;
 
 import cloud.apposs.cachex.memory.CacheManager;
 import cloud.apposs.cachex.storage.Dao;
@@ -75,6 +76,17 @@ public interface CacheX<K extends CacheKey, V> {
      */
     V get(K key, ProtoSchema schema, Object... args) throws Exception;
 
+    /**
+     * 批量获取数据，先通过一次批量请求从缓存获取，缓存未命中的数据再逐个回源加载，
+     * 对应数据实现接口为{@link CacheLoader#load(CacheKey, ProtoSchema, CacheX, Object...)}
+     *
+     * @param  keys   数据Key列表
+     * @param  schema 数据元信息，用于序列化/反序列化
+     * @param  args   业务方传递的参数
+     * @return 数据Key与数据的映射，数据不存在的Key不会出现在结果中
+     */
+    Map<K, V> mget(List<K> keys, ProtoSchema schema, Object... args) throws Exception;
+
     /**
      * 通过查询条件检索单条数据，并用特别KEY进行缓存存储，
      * 对应数据实现接口为{@link CacheLoader#select(CacheKey, ProtoSchema, Query, CacheX, Object...)}
@@ -133,6 +145,16 @@ public interface CacheX<K extends CacheKey, V> {
      */
     int delete(K key, Object... args) throws Exception;
 
+    /**
+     * 批量删除数据，先通过一次批量请求删除缓存，再逐个删除数据库数据，
+     * 对应数据实现接口为{@link CacheLoader#delete(CacheKey, CacheX, Object...)}
+     *
+     * @param  keys 数据Key列表
+     * @param  args 业务方传递的参数
+     * @return 成功删除的数据条数，缓存删除失败返回-1
+     */
+    int mdelete(List<K> keys, Object... args) throws Exception;
+
     /**
      * 数据更新，
      * 对应数据实现接口为{@link CacheLoader#update(CacheKey, Object, ProtoSchema, CacheX, Object...)}
@@ -171,6 +193,18 @@ public interface CacheX<K extends CacheKey, V> {
      */
     V hget(K key, Object field, ProtoSchema schema, Object... args) throws Exception;
 
+    /**
+     * 批量获取二级数据，先通过一次批量请求从缓存获取，缓存未命中时再回源加载，
+     * 对应数据实现接口为{@link CacheLoader#hload(CacheKey, ProtoSchema, CacheX, Object...)}
+     *
+     * @param  key    数据Key
+     * @param  fields 缓存二级Key列表
+     * @param  schema 数据元信息，用于序列化/反序列化
+     * @param  args   业务方传递的参数
+     * @return 二级Key与数据的映射，数据不存在的二级Key不会出现在结果中
+     */
+    Map<Object, V> hmget(K key, List<Object> fields, ProtoSchema schema, Object... args) throws Exception;
+
     /**
      * 检查指定二级Key的数据是否存在，诡异依然是获取指定数据判断是否为空来判断数据是否存在，
      * 对应数据实现接口为{@link CacheLoader#load(CacheKey, ProtoSchema, CacheX, Object...)}
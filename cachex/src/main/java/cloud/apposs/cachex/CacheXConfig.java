@@ -504,10 +504,18 @@ public class CacheXConfig {
         private int concurrencyLevel = 1024;
 
         /**
-         * 内存回收策略
+         * 内存回收策略，有LRU/LFU/TINYLFU，
+         * TINYLFU按访问频率决定新数据能否挤出旧数据，扫描类访问较多时命中率更高
          */
         private String evictionPolicy = CacheEvictionPolicyStrategy.CACHE_POLICY_LRU;
 
+        /**
+         * 是否直接存储对象，开启后通过put添加的Object/Map/List/Param/Table不再序列化，
+         * 对应的getObject/getMap/getList/getParam/getTable命中时直接返回缓存的对象，
+         * Map/List/Param/Table添加时深拷贝为只读，其他对象为多线程共享的实例，添加到缓存后以及从缓存获取后都不允许再修改
+         */
+        private boolean storeObject = false;
+
         public int getExpirationTime() {
             return expirationTime;
         }
@@ -579,6 +587,14 @@ public class CacheXConfig {
         public void setConcurrencyLevel(int concurrencyLevel) {
             this.concurrencyLevel = concurrencyLevel;
         }
+
+        public boolean isStoreObject() {
+            return storeObject;
+        }
+
+        public void setStoreObject(boolean storeObject) {
+            this.storeObject = storeObject;
+        }
     }
 
     /**
@@ -597,6 +613,10 @@ public class CacheXConfig {
          * Codis代理分布管理
          */
         public static final int REDIS_CACHE_CODIS = 2;
+        /**
+         * 基于netkit的非阻塞流水线客户端，可用于Redis单机或者Codis代理集群，多个节点时按Key哈希选择节点
+         */
+        public static final int REDIS_CACHE_NETKIT = 3;
 
         /**
          * Redis集群节点线程监听服务
@@ -615,7 +635,8 @@ public class CacheXConfig {
          * Redis缓存管理模式，有
          * {@link RedisConfig#REDIS_CACHE_SINGLE}、
          * {@link RedisConfig#REDIS_CACHE_CLUSTER}、
-         * {@link RedisConfig#REDIS_CACHE_CODIS}
+         * {@link RedisConfig#REDIS_CACHE_CODIS}、
+         * {@link RedisConfig#REDIS_CACHE_NETKIT}
          */
         private int cacheType = REDIS_CACHE_SINGLE;
 
@@ -649,6 +670,16 @@ public class CacheXConfig {
          */
         private int recvTimeout = 60 * 1000;
 
+        /**
+         * {@link RedisConfig#REDIS_CACHE_NETKIT}模式下每个节点的多路复用连接数
+         */
+        private int connectionsPerNode = 2;
+
+        /**
+         * {@link RedisConfig#REDIS_CACHE_NETKIT}模式下的RESP协议版本，3需要Redis 6.0以上版本
+         */
+        private int protocolVersion = 2;
+
         /**
          * 在取得连接的同时是否校验连接的有效性，默认为true，
          * 注意，开启此功能对连接池的性能将有一定影响
@@ -775,6 +806,22 @@ public class CacheXConfig {
             this.recvTimeout = recvTimeout;
         }
 
+        public int getConnectionsPerNode() {
+            return connectionsPerNode;
+        }
+
+        public void setConnectionsPerNode(int connectionsPerNode) {
+            this.connectionsPerNode = connectionsPerNode;
+        }
+
+        public int getProtocolVersion() {
+            return protocolVersion;
+        }
+
+        public void setProtocolVersion(int protocolVersion) {
+            this.protocolVersion = protocolVersion;
+        }
+
         public boolean isTestConnectionOnCheckout() {
             return testConnectionOnCheckout;
         }
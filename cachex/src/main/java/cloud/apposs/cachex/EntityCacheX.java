@@ -70,6 +70,11 @@ public class EntityCacheX<K extends CacheKey> extends AbstractCacheX<K, Entity>
         return new Entity(data);
     }
 
+    @Override
+    public Entity doDecode(ProtoBuf buffer, ProtoSchema schema) {
+        return new Entity(buffer.getParam(schema));
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public List<Entity> doGetList(String key, ProtoSchema schema, Object... args) {
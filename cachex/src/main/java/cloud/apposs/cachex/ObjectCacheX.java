@@ -38,10 +38,16 @@ public class ObjectCacheX<K extends CacheKey> extends AbstractCacheX<K, Object>
 
     @Override
     public Object doGet(String key, ProtoSchema schema, Object... args) {
-        Class<?> clazz = schema.getClass();
+        Class<?> clazz = schema.getFiledType();
         return cache.getObject(key, clazz, schema);
     }
 
+    @Override
+    public Object doDecode(ProtoBuf buffer, ProtoSchema schema) {
+        Class<?> clazz = schema.getFiledType();
+        return buffer.getObject(clazz, schema);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public List<Object> doGetList(String key, ProtoSchema schema, Object... args) {
@@ -81,14 +87,14 @@ public class ObjectCacheX<K extends CacheKey> extends AbstractCacheX<K, Object>
 
     @Override
     public Object doHget(String key, Object field, ProtoSchema schema, Object... args) {
-        Class<?> clazz = schema.getClass();
+        Class<?> clazz = schema.getFiledType();
         return cache.hgetObject(key, field.toString(), clazz, schema);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public List<Object> doHgetAll(String key, ProtoSchema schema, Object... args) {
-        Class<?> clazz = schema.getClass();
+        Class<?> clazz = schema.getFiledType();
         return (List<Object>) cache.hgetAllObject(key, clazz, schema);
     }
 }
@@ -61,6 +61,11 @@ public class ParamCacheX<K extends CacheKey> extends AbstractCacheX<K, Param> {
         return cache.getParam(key, schema);
     }
 
+    @Override
+    public Param doDecode(ProtoBuf buffer, ProtoSchema schema) {
+        return buffer.getParam(schema);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public List<Param> doGetList(String key, ProtoSchema schema, Object... args) {
@@ -42,6 +42,11 @@ public class TableCacheX<K extends CacheKey> extends AbstractCacheX<K, Table<?>>
         return cache.getTable(key, schema);
     }
 
+    @Override
+    public Table<?> doDecode(ProtoBuf buffer, ProtoSchema schema) {
+        return buffer.getTable(schema);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public List<Table<?>> doGetList(String key, ProtoSchema schema, Object... args) {
@@ -640,6 +640,58 @@ public interface Cache extends Serializable, Cloneable {
      */
     boolean remove(String key, String... fields);
 
+    /**
+     * 批量获取缓存数据，Redis缓存只需一次网络往返
+     *
+     * @param keys 缓存Key列表
+     * @return 缓存Key->缓存数据，缓存不存在的Key不会出现在结果中
+     */
+    Map<String, ProtoBuf> mget(List<String> keys);
+
+    /**
+     * 批量添加缓存数据，每个Key使用缓存配置的过期时间，开启随机过期时间时每个Key单独随机
+     *
+     * @param values 缓存Key->缓存数据
+     * @return 全部添加成功返回true
+     */
+    boolean mput(Map<String, ProtoBuf> values);
+
+    /**
+     * 批量添加缓存数据，每个Key可单独指定过期时间
+     *
+     * @param values          缓存Key->缓存数据
+     * @param expirationTimes 缓存Key->过期时间，单位毫秒，
+     *                        没有指定或者为{@link CachePipeline#EXPIRATION_DEFAULT}的Key使用缓存配置的过期时间，
+     *                        为{@link CachePipeline#EXPIRATION_NEVER}时永不过期
+     * @return 全部添加成功返回true
+     */
+    boolean mput(Map<String, ProtoBuf> values, Map<String, Integer> expirationTimes);
+
+    /**
+     * 批量移除缓存节点，和{@link #remove(String...)}不同的是集群模式下会按节点分组批量删除
+     *
+     * @param keys 缓存Key列表
+     * @return 移除成功true
+     */
+    boolean mdelete(List<String> keys);
+
+    /**
+     * 批量获取二级缓存数据
+     *
+     * @param key    缓存Key
+     * @param fields 缓存二级Key列表
+     * @return 二级Key->缓存数据，缓存不存在的二级Key不会出现在结果中
+     */
+    Map<String, ProtoBuf> hmget(String key, List<String> fields);
+
+    /**
+     * 批量执行缓存命令，命令在回调中添加，回调结束后一次性执行
+     *
+     * @param handler 批量命令回调
+     * @return 按命令添加顺序排列的执行结果，详见{@link CachePipeline}
+     */
+    List<Object> pipeline(CachePipelineHandler handler);
+
     /**
      * 获取缓存统计信息
      */
@@ -327,6 +327,30 @@ public final class CacheManager {
         return cache.remove(key, fields);
     }
 
+    public Map<String, ProtoBuf> mget(List<String> keys) {
+        return cache.mget(keys);
+    }
+
+    public boolean mput(Map<String, ProtoBuf> values) {
+        return cache.mput(values);
+    }
+
+    public boolean mput(Map<String, ProtoBuf> values, Map<String, Integer> expirationTimes) {
+        return cache.mput(values, expirationTimes);
+    }
+
+    public boolean mdelete(List<String> keys) {
+        return cache.mdelete(keys);
+    }
+
+    public Map<String, ProtoBuf> hmget(String key, List<String> fields) {
+        return cache.hmget(key, fields);
+    }
+
+    public List<Object> pipeline(CachePipelineHandler handler) {
+        return cache.pipeline(handler);
+    }
+
     public synchronized void shutdown() {
         cache.shutdown();
     }
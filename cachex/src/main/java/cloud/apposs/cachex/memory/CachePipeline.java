@@ -0,0 +1,216 @@
+package cloud.apposs.cachex.memory;
+
+import cloud.apposs.protobuf.ProtoBuf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓存批量命令，通过{@link Cache#pipeline(CachePipelineHandler)}提交，
+ * 命令先在本地记录，由各缓存实现一次性批量执行，Redis缓存通过流水线发送，只需一次网络往返，
+ * 执行结果按命令添加顺序返回，
+ * <pre>
+ * 1、get/hget返回{@link ProtoBuf}，数据不存在返回null
+ * 2、put/hput/remove/expire返回Boolean，执行成功返回true
+ * </pre>
+ */
+public final class CachePipeline {
+    public static final int COMMAND_GET = 1;
+    public static final int COMMAND_PUT = 2;
+    public static final int COMMAND_HGET = 3;
+    public static final int COMMAND_HPUT = 4;
+    public static final int COMMAND_REMOVE = 5;
+    public static final int COMMAND_HREMOVE = 6;
+    public static final int COMMAND_EXPIRE = 7;
+
+    /**
+     * 使用缓存配置的过期时间
+     */
+    public static final int EXPIRATION_DEFAULT = -1;
+
+    /**
+     * 永不过期
+     */
+    public static final int EXPIRATION_NEVER = 0;
+
+    private final List<Command> commands = new ArrayList<Command>();
+
+    /**
+     * 将批量添加的缓存数据转换为批量命令，供各缓存实现mput时复用
+     *
+     * @param expirationTimes 各Key的过期时间，可为null，未指定的Key使用缓存配置的过期时间
+     */
+    public static CachePipeline puts(Map<String, ProtoBuf> values, Map<String, Integer> expirationTimes) {
+        CachePipeline pipeline = new CachePipeline();
+        if (values == null) {
+            return pipeline;
+        }
+        for (Map.Entry<String, ProtoBuf> entry : values.entrySet()) {
+            String key = entry.getKey();
+            ProtoBuf value = entry.getValue();
+            if (key == null || value == null) {
+                continue;
+            }
+            Integer expirationTime = expirationTimes == null ? null : expirationTimes.get(key);
+            pipeline.put(key, value, expirationTime == null ? EXPIRATION_DEFAULT : expirationTime);
+        }
+        return pipeline;
+    }
+
+    public CachePipeline get(String key) {
+        return doAdd(new Command(COMMAND_GET, key, null, null, EXPIRATION_DEFAULT));
+    }
+
+    public CachePipeline put(String key, ProtoBuf value) {
+        return put(key, value, EXPIRATION_DEFAULT);
+    }
+
+    /**
+     * 添加缓存数据并单独指定过期时间
+     *
+     * @param expirationTime 过期时间，单位毫秒，为{@link #EXPIRATION_DEFAULT}时使用缓存配置的过期时间
+     */
+    public CachePipeline put(String key, ProtoBuf value, int expirationTime) {
+        if (value == null) {
+            throw new IllegalArgumentException("value");
+        }
+        return doAdd(new Command(COMMAND_PUT, key, null, value, expirationTime));
+    }
+
+    public CachePipeline hget(String key, String field) {
+        return doAdd(new Command(COMMAND_HGET, key, field, null, EXPIRATION_DEFAULT));
+    }
+
+    public CachePipeline hput(String key, String field, ProtoBuf value) {
+        if (field == null || value == null) {
+            throw new IllegalArgumentException("field or value");
+        }
+        return doAdd(new Command(COMMAND_HPUT, key, field, value, EXPIRATION_DEFAULT));
+    }
+
+    public CachePipeline remove(String key) {
+        return doAdd(new Command(COMMAND_REMOVE, key, null, null, EXPIRATION_DEFAULT));
+    }
+
+    public CachePipeline remove(String key, String field) {
+        if (field == null) {
+            throw new IllegalArgumentException("field");
+        }
+        return doAdd(new Command(COMMAND_HREMOVE, key, field, null, EXPIRATION_DEFAULT));
+    }
+
+    /**
+     * 设置缓存过期时间
+     *
+     * @param expirationTime 过期时间，单位毫秒
+     */
+    public CachePipeline expire(String key, int expirationTime) {
+        return doAdd(new Command(COMMAND_EXPIRE, key, null, null, expirationTime));
+    }
+
+    public List<Command> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+
+    public int size() {
+        return commands.size();
+    }
+
+    public boolean isEmpty() {
+        return commands.isEmpty();
+    }
+
+    /**
+     * 在指定缓存中逐条执行批量命令，适用于无网络开销的本地缓存
+     *
+     * @return 按命令添加顺序排列的执行结果
+     */
+    public List<Object> execute(Cache cache) {
+        List<Object> results = new ArrayList<Object>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            Command command = commands.get(i);
+            String key = command.getKey();
+            switch (command.getType()) {
+                case COMMAND_GET:
+                    results.add(cache.get(key));
+                    break;
+                case COMMAND_PUT:
+                    results.add(command.getExpirationTime() == EXPIRATION_DEFAULT ? cache.put(key, command.getValue())
+                            : cache.mput(Collections.singletonMap(key, command.getValue()),
+                            Collections.singletonMap(key, command.getExpirationTime())));
+                    break;
+                case COMMAND_HGET:
+                    results.add(cache.hget(key, command.getField()));
+                    break;
+                case COMMAND_HPUT:
+                    results.add(cache.hput(key, command.getField(), command.getValue(), false));
+                    break;
+                case COMMAND_REMOVE:
+                    results.add(cache.remove(key));
+                    break;
+                case COMMAND_HREMOVE:
+                    results.add(cache.remove(key, command.getField()));
+                    break;
+                case COMMAND_EXPIRE:
+                    results.add(cache.expire(key, command.getExpirationTime()) >= 0);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown pipeline command " + command.getType());
+            }
+        }
+        return results;
+    }
+
+    private CachePipeline doAdd(Command command) {
+        if (command.getKey() == null) {
+            throw new IllegalArgumentException("key");
+        }
+        commands.add(command);
+        return this;
+    }
+
+    /**
+     * 批量命令中的单条命令
+     */
+    public static final class Command {
+        private final int type;
+
+        private final String key;
+
+        private final String field;
+
+        private final ProtoBuf value;
+
+        private final int expirationTime;
+
+        private Command(int type, String key, String field, ProtoBuf value, int expirationTime) {
+            this.type = type;
+            this.key = key;
+            this.field = field;
+            this.value = value;
+            this.expirationTime = expirationTime;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public ProtoBuf getValue() {
+            return value;
+        }
+
+        public int getExpirationTime() {
+            return expirationTime;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package cloud.apposs.cachex.memory;
+
+/**
+ * 缓存批量命令回调接口，在回调中通过{@link CachePipeline}添加要批量执行的命令
+ */
+public interface CachePipelineHandler {
+    /**
+     * 添加批量命令，回调结束后所有命令一次性执行
+     *
+     * @param pipeline 批量命令
+     */
+    void handle(CachePipeline pipeline);
+}
@@ -22,6 +22,13 @@ public final class CacheStatistics {
         this.hitCount++;
     }
 
+    /**
+     * 批量操作时一次性累加命中次数，减少volatile写
+     */
+    public void addHitCount(int count) {
+        this.hitCount += count;
+    }
+
     public long getMissCount() {
         return missCount;
     }
@@ -30,6 +37,10 @@ public final class CacheStatistics {
         this.missCount++;
     }
 
+    public void addMissCount(int count) {
+        this.missCount += count;
+    }
+
     /**
      * 获取缓存命中率
      */
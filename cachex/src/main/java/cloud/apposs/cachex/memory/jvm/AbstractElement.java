@@ -26,6 +26,20 @@ public abstract class AbstractElement implements Element {
 	/** 缓存数据字节大小，为大概值 */
 	protected int byteSize = 0;
 
+	/** 回收策略维护的访问顺序链表，由{@link TinyLfuEvictionPolicy}加锁读写，节点即链表元素，增删都是O(1) */
+	transient AbstractElement accessPrev;
+	transient AbstractElement accessNext;
+
+	/** 节点当前所在的访问顺序队列 */
+	transient int accessQueue = TinyLfuEvictionPolicy.QUEUE_NONE;
+
+	/** 过期时间轮中的时间槽链表，由{@link TimerWheel}加锁读写 */
+	transient AbstractElement timerPrev;
+	transient AbstractElement timerNext;
+
+	/** 节点当前所在的时间槽 */
+	transient int timerBucket = TimerWheel.BUCKET_NONE;
+
 	public AbstractElement(String key, Object value) {
 		if (StrUtil.isEmpty(key)) {
 			throw new IllegalArgumentException("key");
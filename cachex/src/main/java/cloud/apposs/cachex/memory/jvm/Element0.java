@@ -10,7 +10,7 @@ public class Element0 extends AbstractElement {
     /**
      * 内存Element的字节大小，主要服务于字节统计
      */
-    private static final int ELEMENT_SIZE;
+    protected static final int ELEMENT_SIZE;
 
     static {
         Element element = new Element0("Key", new ProtoBuf());
@@ -23,6 +23,13 @@ public class Element0 extends AbstractElement {
         super(key, value.array());
     }
 
+    /**
+     * 供子类直接存储非字节数组的缓存数据
+     */
+    protected Element0(String key, Object value) {
+        super(key, value);
+    }
+
     @Override
     public ProtoBuf getValue() {
         byte[] value = (byte[]) getValue(true);
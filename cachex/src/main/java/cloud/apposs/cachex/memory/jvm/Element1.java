@@ -4,6 +4,7 @@ import cloud.apposs.protobuf.ProtoBuf;
 import cloud.apposs.util.ReflectUtil;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -59,9 +60,29 @@ public class Element1 extends AbstractElement {
         return buffers;
     }
 
+    /**
+     * 批量获取指定二级Key的缓存数据，不存在的二级Key不返回
+     */
+    public Map<String, ProtoBuf> getValue(List<String> fields) {
+        doUpdateStatus();
+        Map<String, ProtoBuf> buffers = new HashMap<String, ProtoBuf>();
+        for (int i = 0; i < fields.size(); i++) {
+            String field = fields.get(i);
+            if (field == null) {
+                continue;
+            }
+            byte[] data = value.get(field);
+            if (data != null) {
+                buffers.put(field, ProtoBuf.wrap(data));
+            }
+        }
+        return buffers;
+    }
+
     protected boolean doPut(String field, ProtoBuf value, int byteSize) {
         this.byteSize += byteSize;
-        return this.value.put(field, value.array()) != null;
+        this.value.put(field, value.array());
+        return true;
     }
 
     @Override
@@ -0,0 +1,131 @@
+package cloud.apposs.cachex.memory.jvm;
+
+/**
+ * 基于Count-Min Sketch的访问频率估算器，服务于{@link TinyLfuEvictionPolicy}，
+ * 每个计数器占4位，最大计数15，每个long存放16个计数器，
+ * 每个Key在4个不同的long中各占一个计数器，取最小值作为访问频率，
+ * 累计增加次数达到容量的10倍时所有计数器减半，让历史访问频率逐渐衰减，
+ * 非线程安全，需要在外部加锁访问
+ */
+public final class FrequencySketch {
+	private static final long[] SEED = {
+		0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+	};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long ONE_MASK = 0x1111111111111111L;
+
+	/** 计数器最大值 */
+	public static final int MAX_FREQUENCY = 15;
+
+	/** 计数器表最大长度 */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private long[] table;
+
+	private int tableMask;
+
+	/** 触发衰减的累计次数 */
+	private int sampleSize;
+
+	/** 自上次衰减后的累计次数 */
+	private int size;
+
+	public FrequencySketch(int capacity) {
+		ensureCapacity(capacity);
+	}
+
+	/**
+	 * 按缓存容量调整计数器表大小，表扩容时会丢弃已有的计数
+	 *
+	 * @param capacity 缓存条数
+	 */
+	public void ensureCapacity(int capacity) {
+		int length = doCeilingPowerOfTwo(Math.max(capacity, 16));
+		if (table != null && table.length >= length) {
+			return;
+		}
+		table = new long[length];
+		tableMask = length - 1;
+		sampleSize = length >= MAXIMUM_CAPACITY / 10 ? Integer.MAX_VALUE : length * 10;
+		size = 0;
+	}
+
+	public int getTableLength() {
+		return table.length;
+	}
+
+	/**
+	 * 获取指定Key的估算访问频率，最大值为{@link #MAX_FREQUENCY}
+	 */
+	public int frequency(int hashCode) {
+		int hash = doSpread(hashCode);
+		int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = doIndexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * 递增指定Key的访问频率，累计次数达到阀值时所有计数器减半
+	 */
+	public void increment(int hashCode) {
+		int hash = doSpread(hashCode);
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			int index = doIndexOf(hash, i);
+			added |= doIncrementAt(index, start + i);
+		}
+		if (added && ++size >= sampleSize) {
+			doReset();
+		}
+	}
+
+	private boolean doIncrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xfL << offset;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 所有计数器减半，奇数计数减半时丢失的部分从累计次数中扣除
+	 */
+	private void doReset() {
+		int count = 0;
+		for (int i = 0; i < table.length; i++) {
+			count += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = (size >>> 1) - (count >>> 2);
+	}
+
+	private int doIndexOf(int hash, int i) {
+		long value = (hash + SEED[i]) * SEED[i];
+		value += value >>> 32;
+		return ((int) value) & tableMask;
+	}
+
+	/**
+	 * 对Key的hashCode再次散列，避免hashCode质量差导致计数器冲突
+	 */
+	private static int doSpread(int hash) {
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		return (hash >>> 16) ^ hash;
+	}
+
+	private static int doCeilingPowerOfTwo(int value) {
+		if (value >= MAXIMUM_CAPACITY) {
+			return MAXIMUM_CAPACITY;
+		}
+		return 1 << (32 - Integer.numberOfLeadingZeros(value - 1));
+	}
+}
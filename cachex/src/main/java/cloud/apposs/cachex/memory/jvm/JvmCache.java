@@ -4,6 +4,8 @@ import cloud.apposs.cachex.CacheLock;
 import cloud.apposs.cachex.CacheXConfig;
 import cloud.apposs.cachex.CacheXConfig.JvmConfig;
 import cloud.apposs.cachex.memory.Cache;
+import cloud.apposs.cachex.memory.CachePipeline;
+import cloud.apposs.cachex.memory.CachePipelineHandler;
 import cloud.apposs.cachex.memory.CacheStatistics;
 import cloud.apposs.protobuf.ProtoBuf;
 import cloud.apposs.protobuf.ProtoSchema;
@@ -12,6 +14,7 @@ import cloud.apposs.util.StrUtil;
 import cloud.apposs.util.Table;
 
 import java.nio.charset.Charset;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -58,6 +61,11 @@ public class JvmCache implements Cache {
      * 缓存过期服务
      */
     private final JvmCacheExpirer expirer;
+
+    /**
+     * 缓存过期时间轮，设置了过期时间的缓存按过期时间挂到时间轮中，由缓存过期服务定期推进
+     */
+    private final TimerWheel timerWheel = new TimerWheel();
     private final Random random = new Random();
 
     /**
@@ -65,6 +73,11 @@ public class JvmCache implements Cache {
      */
     private final CacheEvictionPolicy policy;
 
+    /**
+     * TINYLFU回收策略，需要在缓存增删和访问时记录，回收时直接从访问队列中选取节点，不再随机采样
+     */
+    private final TinyLfuEvictionPolicy tinyLfuPolicy;
+
     /**
      * 缓存占用内存大小，单位字节(Byte)
      */
@@ -98,6 +111,12 @@ public class JvmCache implements Cache {
         // 初始化缓存回收服务
         int maxElements = jvmConfig.getMaxElements();
         long maxMemory = jvmConfig.getMaxMemory();
+        if (policy instanceof TinyLfuEvictionPolicy) {
+            this.tinyLfuPolicy = (TinyLfuEvictionPolicy) policy;
+            tinyLfuPolicy.ensureCapacity(maxElements);
+        } else {
+            this.tinyLfuPolicy = null;
+        }
         if (maxElements > 0 && maxMemory > 0) {
             throw new IllegalArgumentException("Cache 'MaxMemory' is not compatible with 'MaxElements'");
         }
@@ -122,6 +141,10 @@ public class JvmCache implements Cache {
         return cache1;
     }
 
+    public TimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
     public void addListener(JvmCacheListener listener) {
         listeners.add(listener);
     }
@@ -152,17 +175,32 @@ public class JvmCache implements Cache {
 
     @Override
     public boolean exists(String key) {
-        return cache0.containsKey(key) || cache1.containsKey(key);
+        Element element = doGetElement(key);
+        if (element == null) {
+            return false;
+        }
+        // 惰性检查缓存是否已经过期了
+        if (element.isExpired()) {
+            removeExpired(element);
+            return false;
+        }
+        return true;
     }
 
     @Override
     public int expire(String key, int expirationTime) {
-        if (cache0.containsKey(key)) {
-            return cache0.get(key).setExpirationTime(expirationTime);
-        } else if (cache1.containsKey(key)) {
-            return cache1.get(key).setExpirationTime(expirationTime);
+        Element element = doGetElement(key);
+        if (element == null) {
+            return -1;
         }
-        return -1;
+        if (element.isExpired()) {
+            removeExpired(element);
+            return -1;
+        }
+        int expire = element.setExpirationTime(expirationTime);
+        // 按新的过期时间重新调度
+        timerWheel.schedule(element);
+        return expire;
     }
 
     public CacheEvictionPolicy getPolicy() {
@@ -171,22 +209,10 @@ public class JvmCache implements Cache {
 
     @Override
     public ProtoBuf get(String key) {
-        if (key == null) {
-            return null;
-        }
-
-        Element0 element = cache0.get(key);
+        Element0 element = doGetElement0(key);
         if (element == null) {
-            statistics.addMissCount();
-            return null;
-        }
-
-        // 惰性检查缓存是否已经过期了
-        if (element.isExpired()) {
-            removeExpired(element);
             return null;
         }
-        statistics.addHitCount();
         return element.getValue();
     }
 
@@ -274,10 +300,15 @@ public class JvmCache implements Cache {
 
     @Override
     public <T> T getObject(String key, Class<T> clazz, ProtoSchema schema) {
-        ProtoBuf buffer = get(key);
-        if (buffer == null) {
+        Element0 element = doGetElement0(key);
+        if (element == null) {
             return null;
         }
+        Object object = doGetStoredObject(element, ObjectElement0.TYPE_OBJECT);
+        if (clazz.isInstance(object)) {
+            return clazz.cast(object);
+        }
+        ProtoBuf buffer = element.getValue();
         T value = buffer.getObject(clazz, schema);
         buffer.rewind();
         return value;
@@ -285,10 +316,15 @@ public class JvmCache implements Cache {
 
     @Override
     public Map<?, ?> getMap(String key, ProtoSchema schema) {
-        ProtoBuf buffer = get(key);
-        if (buffer == null) {
+        Element0 element = doGetElement0(key);
+        if (element == null) {
             return null;
         }
+        Object object = doGetStoredObject(element, ObjectElement0.TYPE_MAP);
+        if (object != null) {
+            return (Map<?, ?>) object;
+        }
+        ProtoBuf buffer = element.getValue();
         Map<?, ?> value = buffer.getMap(schema);
         buffer.rewind();
         return value;
@@ -296,10 +332,15 @@ public class JvmCache implements Cache {
 
     @Override
     public List<?> getList(String key, ProtoSchema schema) {
-        ProtoBuf buffer = get(key);
-        if (buffer == null) {
+        Element0 element = doGetElement0(key);
+        if (element == null) {
             return null;
         }
+        Object object = doGetStoredObject(element, ObjectElement0.TYPE_LIST);
+        if (object != null) {
+            return (List<?>) object;
+        }
+        ProtoBuf buffer = element.getValue();
         List<?> value = buffer.getList(schema);
         buffer.rewind();
         return value;
@@ -307,10 +348,15 @@ public class JvmCache implements Cache {
 
     @Override
     public Param getParam(String key, ProtoSchema schema) {
-        ProtoBuf buffer = get(key);
-        if (buffer == null) {
+        Element0 element = doGetElement0(key);
+        if (element == null) {
             return null;
         }
+        Object object = doGetStoredObject(element, ObjectElement0.TYPE_PARAM);
+        if (object != null) {
+            return (Param) object;
+        }
+        ProtoBuf buffer = element.getValue();
         Param value = buffer.getParam(schema);
         buffer.rewind();
         return value;
@@ -318,10 +364,15 @@ public class JvmCache implements Cache {
 
     @Override
     public Table<?> getTable(String key, ProtoSchema schema) {
-        ProtoBuf buffer = get(key);
-        if (buffer == null) {
+        Element0 element = doGetElement0(key);
+        if (element == null) {
             return null;
         }
+        Object object = doGetStoredObject(element, ObjectElement0.TYPE_TABLE);
+        if (object != null) {
+            return (Table<?>) object;
+        }
+        ProtoBuf buffer = element.getValue();
         Table<?> value = buffer.getTable(schema);
         buffer.rewind();
         return value;
@@ -341,27 +392,7 @@ public class JvmCache implements Cache {
         if (compact) {
             value.compact();
         }
-        Element0 element = new Element0(key, value);
-        int elementByteSize = element.getByteSize();
-        // 检查是否超过缓存配置上限，超过则触发回收策略
-        if (cacheEvitor != null) {
-            cacheEvitor.checkOverLimit(element, elementByteSize);
-        }
-        // 触发监听服务
-        listeners.fireCachePut(key, element);
-        // 递增统计缓存内存占用
-        doAddByteSize(elementByteSize);
-        // 设置过期时间
-        JvmConfig jvmConfig = config.getJvmConfig();
-        int expirationTime = jvmConfig.getExpirationTime();
-        if (jvmConfig.isExpirationTimeRandom()) {
-            // 设置过期时间随机，避免同一时间有大量缓存过期导致回缓压力大
-            int timeMin = jvmConfig.getExpirationTimeRandomMin();
-            int timeMax = jvmConfig.getExpirationTimeRandomMax();
-            expirationTime = random.nextInt(timeMax - timeMin) + timeMin;
-        }
-        element.setExpirationTime(expirationTime);
-        cache0.put(key, element);
+        doPutElement0(new Element0(key, value), doGetExpirationTime());
         return true;
     }
 
@@ -421,56 +452,90 @@ public class JvmCache implements Cache {
         return put(key, buffer, false);
     }
 
+    /**
+     * 开启{@link cloud.apposs.cachex.CacheXConfig.JvmConfig#isStoreObject()}时直接缓存value对象，不做序列化，
+     * getObject命中时返回的就是此对象，调用方添加后不能再修改value，否则所有读取方都会看到修改，
+     * 缓存的内存占用也只在添加时估算
+     */
     @Override
     public boolean put(String key, Object value, ProtoSchema schema) {
         if (value == null) {
             return false;
         }
 
+        if (config.getJvmConfig().isStoreObject()) {
+            return doPutObject(key, value, ObjectElement0.TYPE_OBJECT, schema);
+        }
         ProtoBuf buffer = new ProtoBuf(config.isDirectBuffer());
         buffer.putObject(value, schema);
         return put(key, buffer, true);
     }
 
+    /**
+     * 开启storeObject时缓存value的只读深拷贝，调用方之后修改value不影响缓存，
+     * getMap命中时返回只读Map，读取方修改时抛出{@link UnsupportedOperationException}
+     */
     @Override
     public boolean put(String key, Map<?, ?> value, ProtoSchema schema) {
         if (value == null) {
             return false;
         }
 
+        if (config.getJvmConfig().isStoreObject()) {
+            return doPutObject(key, value, ObjectElement0.TYPE_MAP, schema);
+        }
         ProtoBuf buffer = new ProtoBuf(config.isDirectBuffer());
         buffer.putMap(value, schema);
         return put(key, buffer, true);
     }
 
+    /**
+     * 与{@link #put(String, Map, ProtoSchema)}一致，开启storeObject时缓存value的只读深拷贝
+     */
     @Override
     public boolean put(String key, List<?> value, ProtoSchema schema) {
         if (value == null) {
             return false;
         }
 
+        if (config.getJvmConfig().isStoreObject()) {
+            return doPutObject(key, value, ObjectElement0.TYPE_LIST, schema);
+        }
         ProtoBuf buffer = new ProtoBuf(config.isDirectBuffer());
         buffer.putList(value, schema);
         return put(key, buffer, true);
     }
 
+    /**
+     * 开启storeObject时缓存{@link Param#unmodifiableParam(Param)}生成的只读深拷贝，
+     * getParam命中时返回只读Param，嵌套的Param/Table同样只读
+     */
     @Override
     public boolean put(String key, Param value, ProtoSchema schema) {
         if (value == null) {
             return false;
         }
 
+        if (config.getJvmConfig().isStoreObject()) {
+            return doPutObject(key, value, ObjectElement0.TYPE_PARAM, schema);
+        }
         ProtoBuf buffer = new ProtoBuf(config.isDirectBuffer());
         buffer.putParam(value, schema);
         return put(key, buffer, true);
     }
 
+    /**
+     * 与{@link #put(String, Param, ProtoSchema)}一致，开启storeObject时缓存只读深拷贝
+     */
     @Override
     public boolean put(String key, Table<?> value, ProtoSchema schema) {
         if (value == null) {
             return false;
         }
 
+        if (config.getJvmConfig().isStoreObject()) {
+            return doPutObject(key, value, ObjectElement0.TYPE_TABLE, schema);
+        }
         ProtoBuf buffer = new ProtoBuf(config.isDirectBuffer());
         buffer.putTable(value, schema);
         return put(key, buffer, true);
@@ -493,6 +558,7 @@ public class JvmCache implements Cache {
             removeExpired(element);
             return null;
         }
+        doRecordAccess(element);
         statistics.addHitCount();
         return element.getValue().get(field);
     }
@@ -644,6 +710,7 @@ public class JvmCache implements Cache {
             removeExpired(element);
             return null;
         }
+        doRecordAccess(element);
         statistics.addHitCount();
         return element.getValue();
     }
@@ -742,6 +809,10 @@ public class JvmCache implements Cache {
                     element.setExpirationTime(expirationTime);
                     doAddByteSize(element.getByteSize());
                     cache1.put(key, element);
+                    doRecordAdd(element);
+                    if (expirationTime >= 0) {
+                        timerWheel.schedule(element);
+                    }
                 }
             } finally {
                 lock.writeUnlock(key.hashCode());
@@ -897,6 +968,10 @@ public class JvmCache implements Cache {
                     element.setExpirationTime(expirationTime);
                     doAddByteSize(element.getByteSize());
                     cache1.put(key, element);
+                    doRecordAdd(element);
+                    if (expirationTime >= 0) {
+                        timerWheel.schedule(element);
+                    }
                 }
             } finally {
                 lock.writeUnlock(key.hashCode());
@@ -984,25 +1059,235 @@ public class JvmCache implements Cache {
         return true;
     }
 
+    @Override
+    public Map<String, ProtoBuf> mget(List<String> keys) {
+        if (keys == null) {
+            return new HashMap<String, ProtoBuf>();
+        }
+
+        // 单次遍历完成查找和过期检查，统计数据在遍历结束后一次性累加
+        Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>(keys.size() * 4 / 3 + 1);
+        int hitCount = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            if (key == null) {
+                continue;
+            }
+            Element0 element = cache0.get(key);
+            if (element == null) {
+                continue;
+            }
+            if (element.isExpired()) {
+                removeExpired(element);
+                continue;
+            }
+            doRecordAccess(element);
+            hitCount++;
+            values.put(key, element.getValue());
+        }
+        statistics.addHitCount(hitCount);
+        statistics.addMissCount(keys.size() - hitCount);
+        return values;
+    }
+
+    @Override
+    public boolean mput(Map<String, ProtoBuf> values) {
+        return mput(values, null);
+    }
+
+    @Override
+    public boolean mput(Map<String, ProtoBuf> values, Map<String, Integer> expirationTimes) {
+        if (values == null) {
+            return false;
+        }
+        for (Entry<String, ProtoBuf> entry : values.entrySet()) {
+            String key = entry.getKey();
+            ProtoBuf value = entry.getValue();
+            if (key == null || value == null) {
+                continue;
+            }
+            Integer expirationTime = expirationTimes == null ? null : expirationTimes.get(key);
+            if (expirationTime == null || expirationTime == CachePipeline.EXPIRATION_DEFAULT) {
+                expirationTime = doGetExpirationTime();
+            } else if (expirationTime == CachePipeline.EXPIRATION_NEVER) {
+                expirationTime = -1;
+            }
+            doPutElement0(new Element0(key, value), expirationTime);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean mdelete(List<String> keys) {
+        if (keys == null) {
+            return false;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            remove(keys.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * 批量获取二级缓存数据，只查找一次一级节点，不会为每个二级Key复制整个二级缓存
+     */
+    @Override
+    public Map<String, ProtoBuf> hmget(String key, List<String> fields) {
+        Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>();
+        if (key == null || fields == null) {
+            return values;
+        }
+
+        Element1 element = cache1.get(key);
+        if (element == null) {
+            statistics.addMissCount();
+            return values;
+        }
+        // 惰性检查缓存是否已经过期了
+        if (element.isExpired()) {
+            removeExpired(element);
+            return values;
+        }
+        doRecordAccess(element);
+        statistics.addHitCount();
+        return element.getValue(fields);
+    }
+
+    @Override
+    public List<Object> pipeline(CachePipelineHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler");
+        }
+
+        CachePipeline pipeline = new CachePipeline();
+        handler.handle(pipeline);
+        return pipeline.execute(this);
+    }
+
     @Override
     public synchronized void shutdown() {
     }
 
+    /**
+     * 获取一级缓存节点并更新命中统计，缓存不存在或已过期返回null
+     */
+    private Element0 doGetElement0(String key) {
+        if (key == null) {
+            return null;
+        }
+
+        Element0 element = cache0.get(key);
+        if (element == null) {
+            statistics.addMissCount();
+            return null;
+        }
+
+        // 惰性检查缓存是否已经过期了
+        if (element.isExpired()) {
+            removeExpired(element);
+            return null;
+        }
+        doRecordAccess(element);
+        statistics.addHitCount();
+        return element;
+    }
+
+    /**
+     * 获取直接存储的对象，缓存节点不是直接存储对象或者对象类型不一致时返回null
+     */
+    private Object doGetStoredObject(Element0 element, int type) {
+        if (!(element instanceof ObjectElement0)) {
+            return null;
+        }
+        return ((ObjectElement0) element).getObject(type);
+    }
+
+    /**
+     * 直接存储对象，不做序列化
+     */
+    private boolean doPutObject(String key, Object value, int type, ProtoSchema schema) {
+        if (key == null) {
+            return false;
+        }
+        doPutElement0(new ObjectElement0(key, value, type, schema), doGetExpirationTime());
+        return true;
+    }
+
+    /**
+     * 添加一级缓存数据
+     *
+     * @param expirationTime 过期时间，单位毫秒，小于0为永不过期
+     */
+    private void doPutElement0(Element0 element, int expirationTime) {
+        String key = element.getKey();
+        int elementByteSize = element.getByteSize();
+        // 检查是否超过缓存配置上限，超过则触发回收策略
+        if (cacheEvitor != null) {
+            cacheEvitor.checkOverLimit(element, elementByteSize);
+        }
+        // 触发监听服务
+        listeners.fireCachePut(key, element);
+        // 递增统计缓存内存占用
+        doAddByteSize(elementByteSize);
+        element.setExpirationTime(expirationTime);
+        Element0 replacedElement = cache0.put(key, element);
+        if (replacedElement != null) {
+            // 覆盖旧数据时扣除旧数据的内存占用
+            doDeductByteSize(replacedElement.getByteSize());
+            doRecordRemove(replacedElement);
+            timerWheel.deschedule(replacedElement);
+        }
+        doRecordAdd(element);
+        if (expirationTime >= 0) {
+            timerWheel.schedule(element);
+        }
+    }
+
+    private Element doGetElement(String key) {
+        if (key == null) {
+            return null;
+        }
+        Element element = cache0.get(key);
+        if (element == null) {
+            element = cache1.get(key);
+        }
+        return element;
+    }
+
+    /**
+     * 获取缓存配置的过期时间
+     */
+    private int doGetExpirationTime() {
+        JvmConfig jvmConfig = config.getJvmConfig();
+        int expirationTime = jvmConfig.getExpirationTime();
+        if (jvmConfig.isExpirationTimeRandom()) {
+            // 设置过期时间随机，避免同一时间有大量缓存过期导致回缓压力大
+            int timeMin = jvmConfig.getExpirationTimeRandomMin();
+            int timeMax = jvmConfig.getExpirationTimeRandomMax();
+            expirationTime = random.nextInt(timeMax - timeMin) + timeMin;
+        }
+        return expirationTime;
+    }
+
     /**
      * 一级/二级缓存数据移除
      */
     private boolean doRemoveInternal(Element removedElement) {
         String key = removedElement.getKey();
+        // 只移除指定的节点，避免并发下把同一个KEY刚添加的新数据移除掉
+        boolean removed = false;
         if (removedElement instanceof Element0) {
-            removedElement = cache0.remove(key);
+            removed = cache0.remove(key, removedElement);
         } else if (removedElement instanceof Element1) {
-            removedElement = cache1.remove(key);
+            removed = cache1.remove(key, removedElement);
         }
-        if (removedElement == null) {
+        if (!removed) {
             return false;
         }
         int byteSize = removedElement.getByteSize();
         doDeductByteSize(byteSize);
+        doRecordRemove(removedElement);
+        timerWheel.deschedule(removedElement);
         return true;
     }
 
@@ -1038,6 +1323,9 @@ public class JvmCache implements Cache {
      * @return 移除成功返回true
      */
     private boolean doRemoveElementChosenByEvictionPolicy(Element excludeElement) {
+        if (tinyLfuPolicy != null) {
+            return doRemoveElementChosenByTinyLfu(excludeElement);
+        }
         Element element = null;
         if (policy != null) {
             List<Element> elements = getRandomElements(excludeElement, DEFAULT_SAMPLE_SIZE);
@@ -1053,6 +1341,23 @@ public class JvmCache implements Cache {
         return removeEvicted(element);
     }
 
+    /**
+     * 由TINYLFU回收策略直接选出回收节点，
+     * 节点可能已经被并发移除或覆盖，此时继续选取下一个节点
+     */
+    private boolean doRemoveElementChosenByTinyLfu(Element excludeElement) {
+        for (int i = 0; i < DEFAULT_SAMPLE_SIZE; i++) {
+            Element element = tinyLfuPolicy.selectVictim(excludeElement);
+            if (element == null) {
+                return false;
+            }
+            if (removeEvicted(element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 随机获取缓存列表中指定数量的缓存数据，
      * 为了提升性能，只获取一二级缓存列表中前30条数据，
@@ -1084,6 +1389,24 @@ public class JvmCache implements Cache {
         return elements;
     }
 
+    private void doRecordAccess(Element element) {
+        if (tinyLfuPolicy != null) {
+            tinyLfuPolicy.recordAccess(element);
+        }
+    }
+
+    private void doRecordAdd(Element element) {
+        if (tinyLfuPolicy != null) {
+            tinyLfuPolicy.recordAdd(element);
+        }
+    }
+
+    private void doRecordRemove(Element element) {
+        if (tinyLfuPolicy != null) {
+            tinyLfuPolicy.recordRemove(element);
+        }
+    }
+
     /**
      * 减少内存容量，
      * 注意JVM缓存中内存不止是ProtoBuf的真正对象字节数据，还包括Key/Element等包装对象的字节大小
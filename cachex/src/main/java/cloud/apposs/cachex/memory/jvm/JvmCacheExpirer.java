@@ -1,15 +1,11 @@
 package cloud.apposs.cachex.memory.jvm;
 
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.List;
 
 /**
- * 缓存过期定时删除器
+ * 缓存过期定时删除器，定期推进{@link TimerWheel}并删除到期的缓存
  */
 public class JvmCacheExpirer extends Thread {
-	/** 过期Key清除的时间，超过该时间则不再清除等待下次重新清除以避免大量缓存清除造成CPU繁忙 */
-	public static final int PURGE_MAX_TIME = 2000;
-	
 	/** 定期检查间隔时间，默认为1分钟 */
 	private int interval;
 	
@@ -40,38 +36,19 @@ public class JvmCacheExpirer extends Thread {
 		}
 	}
 	
+	/**
+	 * 推进过期时间轮，只处理到期时间槽中的缓存，开销和过期的缓存数量成正比，
+	 * 查询时也会惰性检查缓存是否过期，这里主要回收不再被访问的过期缓存
+	 */
 	private int doPurge() {
 		int total = 0;
-		long start = System.currentTimeMillis();
-		// 遍历所有一级缓存并判断缓存是否过期
-		Map<String, Element0> cache0 = cache.getCache0();
-		for (Entry<String, Element0> entry : cache0.entrySet()) {
-			Element0 element = entry.getValue();
-			boolean expired = element.isExpired();
-			if (!expired) continue;
-			// 缓存已经过期，直接删除缓存释放内存
-			cache.removeExpired(element);
-			total++;
-			// 超过最大清除时间，不再清除等待下次重新清除以避免大量缓存清除造成CPU繁忙
-			if (System.currentTimeMillis() - start >= PURGE_MAX_TIME) {
-				return total;
-			}
-		}
-		
-		// 遍历所有二级缓存并判断缓存是否过期
-		Map<String, Element1> caches1 = cache.getCache1();
-		for (Entry<String, Element1> entry : caches1.entrySet()) {
-			Element1 element = entry.getValue();
-			boolean expired = element.isExpired();
-			if (!expired) continue;
+		List<Element> expired = cache.getTimerWheel().advance(System.currentTimeMillis());
+		for (Element element : expired) {
 			// 缓存已经过期，直接删除缓存释放内存
-			cache.removeExpired(element);
-			// 超过最大清除时间，不再清除等待下次重新清除以避免大量缓存清除造成CPU繁忙
-			if (System.currentTimeMillis() - start >= PURGE_MAX_TIME) {
-				return total;
+			if (cache.removeExpired(element)) {
+				total++;
 			}
 		}
-		
 		return total;
 	}
 }
@@ -0,0 +1,107 @@
+package cloud.apposs.cachex.memory.jvm;
+
+import cloud.apposs.protobuf.ProtoBuf;
+import cloud.apposs.protobuf.ProtoSchema;
+import cloud.apposs.util.Param;
+import cloud.apposs.util.Table;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 直接存储对象的一级缓存节点，在开启{@link cloud.apposs.cachex.CacheXConfig.JvmConfig#isStoreObject()}时使用，
+ * 命中时直接返回添加时的对象，不再每次都通过{@link ProtoSchema}反序列化，
+ * 只有需要字节数据时(例如通过{@link JvmCache#get(String)}获取)才序列化，且只序列化一次，
+ * Map/List/Param/Table添加时深拷贝为只读，调用方之后修改原对象不影响缓存，读取方修改时抛出{@link UnsupportedOperationException}，
+ * 其他对象无法通用拷贝，仍为多线程共享的实例，添加到缓存后以及从缓存获取后都不允许再修改
+ */
+public class ObjectElement0 extends Element0 {
+    public static final int TYPE_OBJECT = 1;
+    public static final int TYPE_MAP = 2;
+    public static final int TYPE_LIST = 3;
+    public static final int TYPE_PARAM = 4;
+    public static final int TYPE_TABLE = 5;
+
+    private static final long serialVersionUID = -2712063620471529163L;
+
+    /**
+     * 对象类型，决定序列化方式
+     */
+    private final int type;
+
+    /**
+     * 对象序列化元数据
+     */
+    private final ProtoSchema schema;
+
+    /**
+     * 序列化后的字节数据，第一次需要字节数据时生成，之后直接复用
+     */
+    private volatile byte[] bytes;
+
+    public ObjectElement0(String key, Object value, int type, ProtoSchema schema) {
+        super(key, doCopyValue(value, type));
+        this.type = type;
+        this.schema = schema;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * 获取缓存的对象，对象类型不一致时返回null，由调用方按字节数据反序列化
+     */
+    public Object getObject(int type) {
+        if (this.type != type) {
+            return null;
+        }
+        return getValue(true);
+    }
+
+    /**
+     * 获取缓存对象的字节数据，每次都返回新的{@link ProtoBuf}，多线程读取时互不影响，
+     * 缓存的对象不可修改，并发时最多重复序列化几次，结果一致
+     */
+    @Override
+    public ProtoBuf getValue() {
+        Object value = getValue(true);
+        byte[] data = bytes;
+        if (data == null) {
+            data = doEncode(value).array();
+            bytes = data;
+        }
+        return ProtoBuf.wrap(data);
+    }
+
+    private ProtoBuf doEncode(Object value) {
+        switch (type) {
+            case TYPE_MAP:
+                return ProtoBuf.wrap((Map<?, ?>) value, schema);
+            case TYPE_LIST:
+                return ProtoBuf.wrap((List<?>) value, schema);
+            case TYPE_PARAM:
+                return ProtoBuf.wrap((Param) value, schema);
+            case TYPE_TABLE:
+                return ProtoBuf.wrap((Table<?>) value, schema);
+            default:
+                return ProtoBuf.wrap(value, schema);
+        }
+    }
+
+    /**
+     * Map/List/Param/Table深拷贝为只读，与调用方持有的对象不再共享数据，内存占用估算也不会因调用方修改而失效
+     */
+    private static Object doCopyValue(Object value, int type) {
+        if (type == TYPE_OBJECT) {
+            return value;
+        }
+        return Param.unmodifiableValue(value);
+    }
+
+    @Override
+    public int doCalculateByteSize() {
+        return (int) (ELEMENT_SIZE + key.getBytes(StandardCharsets.UTF_8).length + ObjectSizeEstimator.sizeOf(value));
+    }
+}
@@ -0,0 +1,151 @@
+package cloud.apposs.cachex.memory.jvm;
+
+import cloud.apposs.util.ReflectUtil;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 对象占用内存的估算器，服务于直接存储对象的{@link ObjectElement0}，
+ * 遍历对象引用图累加各对象的浅大小，集合按元素遍历，JDK内部类只计算浅大小，
+ * 各类的浅大小和引用字段会缓存下来，避免每次估算都反射，
+ * 只能是个大概值，主要服务于内存容量上限的回收判断
+ */
+public final class ObjectSizeEstimator {
+	/** 最多遍历的对象数，避免超大对象图估算耗时过长 */
+	private static final int MAX_VISIT = 100000;
+
+	/** 引用大小，按开启指针压缩估算 */
+	private static final int REFERENCE_SIZE = 4;
+
+	/** HashMap每个Entry的大小 */
+	private static final int MAP_ENTRY_SIZE = 32;
+
+	/** 数组对象头大小 */
+	private static final int ARRAY_HEADER_SIZE = 16;
+
+	private static final Map<Class<?>, Long> SHALLOW_SIZES = new ConcurrentHashMap<Class<?>, Long>();
+
+	private static final Map<Class<?>, Field[]> REFERENCE_FIELDS = new ConcurrentHashMap<Class<?>, Field[]>();
+
+	private ObjectSizeEstimator() {
+	}
+
+	/**
+	 * 估算对象及其引用的对象占用的内存大小，单位字节
+	 */
+	public static long sizeOf(Object instance) {
+		if (instance == null) {
+			return 0;
+		}
+
+		long size = 0;
+		int visit = 0;
+		Map<Object, Object> visited = new IdentityHashMap<Object, Object>();
+		LinkedList<Object> pending = new LinkedList<Object>();
+		pending.push(instance);
+		while (!pending.isEmpty() && visit++ < MAX_VISIT) {
+			Object object = pending.pop();
+			if (object == null || object instanceof Class || object instanceof Enum
+					|| visited.put(object, object) != null) {
+				continue;
+			}
+
+			Class<?> clazz = object.getClass();
+			if (clazz.isArray()) {
+				size += ReflectUtil.sizeOf(object);
+				if (!clazz.getComponentType().isPrimitive()) {
+					Object[] elements = (Object[]) object;
+					for (int i = 0; i < elements.length; i++) {
+						pending.push(elements[i]);
+					}
+				}
+				continue;
+			}
+
+			size += doGetShallowSize(object);
+			if (object instanceof String) {
+				size += doAlign(ARRAY_HEADER_SIZE + ((String) object).length());
+			} else if (object instanceof Map) {
+				Map<?, ?> map = (Map<?, ?>) object;
+				size += map.size() * (MAP_ENTRY_SIZE + REFERENCE_SIZE * 2);
+				for (Map.Entry<?, ?> entry : map.entrySet()) {
+					pending.push(entry.getKey());
+					pending.push(entry.getValue());
+				}
+			} else if (object instanceof Collection) {
+				Collection<?> collection = (Collection<?>) object;
+				size += doAlign(ARRAY_HEADER_SIZE + collection.size() * REFERENCE_SIZE);
+				for (Object element : collection) {
+					pending.push(element);
+				}
+			} else {
+				Field[] fields = doGetReferenceFields(clazz);
+				for (int i = 0; i < fields.length; i++) {
+					try {
+						pending.push(fields[i].get(object));
+					} catch (IllegalAccessException e) {
+					}
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * 获取对象的浅大小，非数组对象的浅大小只和类有关，按类缓存
+	 */
+	private static long doGetShallowSize(Object object) {
+		Class<?> clazz = object.getClass();
+		Long size = SHALLOW_SIZES.get(clazz);
+		if (size == null) {
+			size = ReflectUtil.sizeOf(object);
+			SHALLOW_SIZES.put(clazz, size);
+		}
+		return size;
+	}
+
+	/**
+	 * 获取类及其父类的非静态引用字段，JDK内部类无法反射访问，只计算浅大小
+	 */
+	private static Field[] doGetReferenceFields(Class<?> clazz) {
+		Field[] fields = REFERENCE_FIELDS.get(clazz);
+		if (fields != null) {
+			return fields;
+		}
+
+		List<Field> fieldList = new ArrayList<Field>();
+		for (Class<?> klazz = clazz; klazz != null && !doIsJdkClass(klazz); klazz = klazz.getSuperclass()) {
+			for (Field field : klazz.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+					continue;
+				}
+				try {
+					field.setAccessible(true);
+					fieldList.add(field);
+				} catch (RuntimeException e) {
+					// 模块化JDK下无法访问的字段不再计算
+				}
+			}
+		}
+		fields = fieldList.toArray(new Field[fieldList.size()]);
+		REFERENCE_FIELDS.put(clazz, fields);
+		return fields;
+	}
+
+	private static boolean doIsJdkClass(Class<?> clazz) {
+		String name = clazz.getName();
+		return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.");
+	}
+
+	private static long doAlign(long size) {
+		return (size + 7) & ~7L;
+	}
+}
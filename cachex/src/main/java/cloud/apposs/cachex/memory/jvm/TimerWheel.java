@@ -0,0 +1,226 @@
+package cloud.apposs.cachex.memory.jvm;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分层时间轮，按缓存过期时间将缓存节点挂到对应的时间槽中，服务于{@link JvmCacheExpirer}，
+ * <pre>
+ * 层级  槽数  每槽时间跨度
+ * 0     64    1.024秒
+ * 1     64    65.5秒
+ * 2     32    69.9分钟
+ * 3     4     18.6小时
+ * 4     1     超过以上范围的缓存统一放在该槽，到期时重新计算槽位
+ * </pre>
+ * 时间推进时只处理已经到期的时间槽，槽中未真正过期的节点重新挂到更低层级的槽中，
+ * 每次检查的开销只和到期的缓存数量有关，不再需要遍历全部缓存，
+ * 槽为节点内嵌指针的双向链表，添加、重新调度和移除均为O(1)
+ */
+public final class TimerWheel {
+	private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+
+	/** 各层级每槽的时间跨度，单位毫秒，均为2的幂以便位移计算 */
+	private static final long[] SPANS = {
+		1L << 10, 1L << 16, 1L << 22, 1L << 26, 1L << 28, 1L << 28
+	};
+
+	private static final int[] SHIFT = {
+		Long.numberOfTrailingZeros(SPANS[0]),
+		Long.numberOfTrailingZeros(SPANS[1]),
+		Long.numberOfTrailingZeros(SPANS[2]),
+		Long.numberOfTrailingZeros(SPANS[3]),
+		Long.numberOfTrailingZeros(SPANS[4])
+	};
+
+	public static final int BUCKET_NONE = -1;
+
+	/** 各层级在{@link #heads}中的起始下标 */
+	private static final int[] OFFSETS;
+	static {
+		OFFSETS = new int[BUCKETS.length];
+		int offset = 0;
+		for (int i = 0; i < BUCKETS.length; i++) {
+			OFFSETS[i] = offset;
+			offset += BUCKETS[i];
+		}
+	}
+
+	private final AbstractElement[] heads = new AbstractElement[OFFSETS[BUCKETS.length - 1] + 1];
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** 时间轮当前时间，单位毫秒 */
+	private long currentTime;
+
+	/** 时间轮中的节点数 */
+	private int size;
+
+	public TimerWheel() {
+		this(System.currentTimeMillis());
+	}
+
+	public TimerWheel(long currentTime) {
+		this.currentTime = currentTime;
+	}
+
+	/**
+	 * 按缓存节点的过期时间将节点调度到对应的时间槽，
+	 * 节点已经在时间轮中时先从原槽移除，永不过期的节点只做移除
+	 */
+	public void schedule(Element element) {
+		AbstractElement node = (AbstractElement) element;
+		lock.lock();
+		try {
+			doUnlink(node);
+			int expirationTime = node.getExpirationTime();
+			if (expirationTime < 0) {
+				return;
+			}
+			doLink(node, node.getCreationTime() + expirationTime);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 将缓存节点从时间轮中移除
+	 */
+	public void deschedule(Element element) {
+		AbstractElement node = (AbstractElement) element;
+		if (node.timerBucket == BUCKET_NONE) {
+			return;
+		}
+		lock.lock();
+		try {
+			doUnlink(node);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 推进时间轮到指定时间，返回已经过期的缓存节点，
+	 * 返回的节点已从时间轮中移除，由调用方在锁外删除缓存并触发监听，避免长时间持锁
+	 *
+	 * @param  time 当前时间，单位毫秒
+	 * @return 过期的缓存节点
+	 */
+	public List<Element> advance(long time) {
+		List<Element> expired = new LinkedList<Element>();
+		lock.lock();
+		try {
+			long previousTime = currentTime;
+			if (time <= previousTime) {
+				return expired;
+			}
+			currentTime = time;
+			for (int i = 0; i < SHIFT.length; i++) {
+				long previousTicks = previousTime >>> SHIFT[i];
+				long currentTicks = time >>> SHIFT[i];
+				if (currentTicks - previousTicks <= 0L) {
+					break;
+				}
+				doExpire(i, previousTicks, currentTicks, expired);
+			}
+		} finally {
+			lock.unlock();
+		}
+		return expired;
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 处理指定层级中从上次时间到当前时间经过的时间槽，
+	 * 已过期的节点放入结果列表，未过期的节点按剩余时间重新调度
+	 */
+	private void doExpire(int level, long previousTicks, long currentTicks, List<Element> expired) {
+		int buckets = BUCKETS[level];
+		int mask = buckets - 1;
+		long steps = Math.min(currentTicks - previousTicks + 1, buckets);
+		int start = (int) (previousTicks & mask);
+		for (int i = 0; i < steps; i++) {
+			int bucket = OFFSETS[level] + ((start + i) & mask);
+			AbstractElement node = heads[bucket];
+			// 先摘下整条链表，重新调度的节点可能会挂回当前槽
+			heads[bucket] = null;
+			while (node != null) {
+				AbstractElement next = node.timerNext;
+				node.timerPrev = null;
+				node.timerNext = null;
+				node.timerBucket = BUCKET_NONE;
+				size--;
+				if (node.isExpired()) {
+					expired.add(node);
+				} else {
+					int expirationTime = node.getExpirationTime();
+					if (expirationTime >= 0) {
+						doLink(node, node.getCreationTime() + expirationTime);
+					}
+				}
+				node = next;
+			}
+		}
+	}
+
+	private void doLink(AbstractElement node, long deadline) {
+		// 已经过期的节点放到当前时间槽，下次推进时间轮时处理
+		long time = Math.max(deadline, currentTime);
+		int bucket = doFindBucket(time);
+		AbstractElement head = heads[bucket];
+		node.timerPrev = null;
+		node.timerNext = head;
+		if (head != null) {
+			head.timerPrev = node;
+		}
+		heads[bucket] = node;
+		node.timerBucket = bucket;
+		size++;
+	}
+
+	private void doUnlink(AbstractElement node) {
+		int bucket = node.timerBucket;
+		if (bucket == BUCKET_NONE) {
+			return;
+		}
+		AbstractElement prev = node.timerPrev;
+		AbstractElement next = node.timerNext;
+		if (prev == null) {
+			heads[bucket] = next;
+		} else {
+			prev.timerNext = next;
+		}
+		if (next != null) {
+			next.timerPrev = prev;
+		}
+		node.timerPrev = null;
+		node.timerNext = null;
+		node.timerBucket = BUCKET_NONE;
+		size--;
+	}
+
+	/**
+	 * 按距离当前时间的长短选择层级，距离越短层级越低、精度越高
+	 */
+	private int doFindBucket(long time) {
+		long duration = time - currentTime;
+		int length = BUCKETS.length - 1;
+		for (int i = 0; i < length; i++) {
+			if (duration < SPANS[i + 1]) {
+				long ticks = time >>> SHIFT[i];
+				int index = (int) (ticks & (BUCKETS[i] - 1));
+				return OFFSETS[i] + index;
+			}
+		}
+		return OFFSETS[length];
+	}
+}
@@ -0,0 +1,393 @@
+package cloud.apposs.cachex.memory.jvm;
+
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * W-TinyLFU内存回收策略，不再通过随机采样选取回收节点，而是维护以下结构：
+ * <pre>
+ * 1、访问频率估算器{@link FrequencySketch}，定期衰减，记录包括已被回收Key在内的历史访问频率
+ * 2、窗口区，约占1%，新增节点先进入窗口LRU队列，吸收突发流量
+ * 3、主区为分段LRU，分为试用区和保护区(约占主区80%)，试用区节点再次被访问时晋升到保护区
+ * </pre>
+ * 需要回收时窗口区最久未访问的节点作为候选者，和试用区最久未访问的节点比较访问频率，
+ * 频率更高者留下，从而避免扫描类一次性访问把热点数据挤出缓存，
+ * 所有队列均为节点内嵌指针的双向链表，选取回收节点为O(1)，
+ * 访问记录写入按线程分段的有损环形缓冲区，增删记录写入无锁队列，
+ * 由获取到锁的线程批量回放，避免每次读写缓存都争抢同一把锁
+ */
+public class TinyLfuEvictionPolicy extends AbstractCacheEvictionPolicy {
+	public static final int QUEUE_NONE = 0;
+	public static final int QUEUE_WINDOW = 1;
+	public static final int QUEUE_PROBATION = 2;
+	public static final int QUEUE_PROTECTED = 3;
+
+	/** 窗口区占比，单位百分比 */
+	public static final int WINDOW_PERCENT = 1;
+
+	/** 保护区占主区比例，单位百分比 */
+	public static final int PROTECTED_PERCENT = 80;
+
+	/** 候选者访问频率达到该值时即使不高于被回收者也有小概率被接纳，避免被构造的Hash冲突攻击一直拒绝 */
+	private static final int ADMIT_HASHDOS_THRESHOLD = 6;
+
+	/** 每个线程分段访问缓冲区的大小 */
+	private static final int READ_BUFFER_SIZE = 16;
+
+	private static final int READ_BUFFER_STRIPES;
+	static {
+		int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) * 4;
+		READ_BUFFER_STRIPES = Math.min(stripes, 64);
+	}
+
+	private final FrequencySketch sketch;
+
+	private final AccessQueue window = new AccessQueue();
+	private final AccessQueue probation = new AccessQueue();
+	private final AccessQueue protect = new AccessQueue();
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	/** 访问记录缓冲区，缓冲区满时丢弃访问记录，只会影响访问频率的精度 */
+	private final AtomicReferenceArray<Element> readBuffer =
+		new AtomicReferenceArray<Element>(READ_BUFFER_STRIPES * READ_BUFFER_SIZE);
+	private final AtomicInteger[] readBufferCounts = new AtomicInteger[READ_BUFFER_STRIPES];
+
+	/** 增删记录缓冲区，不允许丢失 */
+	private final Queue<WriteTask> writeBuffer = new ConcurrentLinkedQueue<WriteTask>();
+
+	private final Random random = new Random();
+
+	public TinyLfuEvictionPolicy() {
+		this(0);
+	}
+
+	/**
+	 * @param capacity 预计缓存条数，用于初始化访问频率估算器，缓存增长时会自动扩容
+	 */
+	public TinyLfuEvictionPolicy(int capacity) {
+		this.sketch = new FrequencySketch(capacity);
+		for (int i = 0; i < READ_BUFFER_STRIPES; i++) {
+			readBufferCounts[i] = new AtomicInteger();
+		}
+	}
+
+	@Override
+	public String getName() {
+		return CacheEvictionPolicyStrategy.CACHE_POLICY_TINYLFU;
+	}
+
+	/**
+	 * 采样回收时按估算访问频率比较，访问频率低者优先回收
+	 */
+	@Override
+	public boolean compare(Element element1, Element element2) {
+		return frequency(element2) < frequency(element1);
+	}
+
+	/**
+	 * 按缓存条数上限预先分配访问频率估算器，避免缓存增长过程中扩容丢失已有的访问频率
+	 */
+	public void ensureCapacity(int capacity) {
+		evictionLock.lock();
+		try {
+			sketch.ensureCapacity(capacity);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * 获取缓存节点的估算访问频率
+	 */
+	public int frequency(Element element) {
+		evictionLock.lock();
+		try {
+			return sketch.frequency(element.getKey().hashCode());
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * 记录缓存访问，写入当前线程对应的分段缓冲区，分段写满时尝试批量回放
+	 */
+	public void recordAccess(Element element) {
+		int stripe = (int) (Thread.currentThread().getId() & (READ_BUFFER_STRIPES - 1));
+		int index = readBufferCounts[stripe].getAndIncrement();
+		if (index < READ_BUFFER_SIZE) {
+			readBuffer.lazySet(stripe * READ_BUFFER_SIZE + index, element);
+			if (index < READ_BUFFER_SIZE - 1) {
+				return;
+			}
+		}
+		doTryDrain();
+	}
+
+	/**
+	 * 记录缓存添加
+	 */
+	public void recordAdd(Element element) {
+		writeBuffer.offer(new WriteTask(element, true));
+		doTryDrain();
+	}
+
+	/**
+	 * 记录缓存移除，包括缓存删除、过期、回收以及被新数据覆盖
+	 */
+	public void recordRemove(Element element) {
+		writeBuffer.offer(new WriteTask(element, false));
+		doTryDrain();
+	}
+
+	/**
+	 * 选出要回收的缓存节点并从访问队列中移除
+	 *
+	 * @param  excludeElement 要排除的缓存节点，像当前正在添加的缓存
+	 * @return 要回收的缓存节点，没有可回收的节点时返回null
+	 */
+	public Element selectVictim(Element excludeElement) {
+		evictionLock.lock();
+		try {
+			doDrainBuffers();
+			return doSelectVictim(excludeElement);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * 获取策略维护的缓存节点数
+	 */
+	public int size() {
+		evictionLock.lock();
+		try {
+			doDrainBuffers();
+			return window.size + probation.size + protect.size;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private Element doSelectVictim(Element excludeElement) {
+		int total = window.size + probation.size + protect.size;
+		int windowMaximum = Math.max(1, total * WINDOW_PERCENT / 100);
+		AbstractElement candidate = null;
+		if (window.size > windowMaximum) {
+			candidate = window.first(excludeElement);
+		}
+		AbstractElement victim = probation.first(excludeElement);
+		if (victim == null) {
+			victim = protect.first(excludeElement);
+		}
+
+		if (candidate == null) {
+			if (victim == null) {
+				victim = window.first(excludeElement);
+			}
+			if (victim == null) {
+				return null;
+			}
+			doUnlink(victim);
+			return victim;
+		}
+		if (victim == null) {
+			doUnlink(candidate);
+			return candidate;
+		}
+		if (doAdmit(candidate, victim)) {
+			// 候选者访问频率更高，进入主区试用区，回收主区最久未访问的节点
+			window.unlink(candidate);
+			probation.linkLast(candidate);
+			candidate.accessQueue = QUEUE_PROBATION;
+			doUnlink(victim);
+			return victim;
+		}
+		doUnlink(candidate);
+		return candidate;
+	}
+
+	private boolean doAdmit(AbstractElement candidate, AbstractElement victim) {
+		int candidateFrequency = sketch.frequency(candidate.getKey().hashCode());
+		int victimFrequency = sketch.frequency(victim.getKey().hashCode());
+		if (candidateFrequency > victimFrequency) {
+			return true;
+		}
+		if (candidateFrequency < ADMIT_HASHDOS_THRESHOLD) {
+			return false;
+		}
+		return random.nextInt(128) == 0;
+	}
+
+	private void doTryDrain() {
+		if (!evictionLock.tryLock()) {
+			// 其他线程正在回放，记录会在其回放或下次回放时处理
+			return;
+		}
+		try {
+			doDrainBuffers();
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * 先回放增删记录再回放访问记录，保证访问的节点已经在队列中
+	 */
+	private void doDrainBuffers() {
+		WriteTask task;
+		while ((task = writeBuffer.poll()) != null) {
+			AbstractElement element = (AbstractElement) task.element;
+			if (task.added) {
+				doOnAdd(element);
+			} else {
+				doUnlink(element);
+			}
+		}
+		for (int stripe = 0; stripe < READ_BUFFER_STRIPES; stripe++) {
+			AtomicInteger count = readBufferCounts[stripe];
+			int size = Math.min(count.get(), READ_BUFFER_SIZE);
+			if (size == 0) {
+				continue;
+			}
+			int offset = stripe * READ_BUFFER_SIZE;
+			for (int i = 0; i < size; i++) {
+				Element element = readBuffer.get(offset + i);
+				if (element != null) {
+					readBuffer.lazySet(offset + i, null);
+					doOnAccess((AbstractElement) element);
+				}
+			}
+			count.set(0);
+		}
+	}
+
+	private void doOnAdd(AbstractElement element) {
+		if (element.accessQueue != QUEUE_NONE) {
+			return;
+		}
+		sketch.increment(element.getKey().hashCode());
+		window.linkLast(element);
+		element.accessQueue = QUEUE_WINDOW;
+		int total = window.size + probation.size + protect.size;
+		if (total > sketch.getTableLength()) {
+			sketch.ensureCapacity(total);
+		}
+	}
+
+	private void doOnAccess(AbstractElement element) {
+		sketch.increment(element.getKey().hashCode());
+		switch (element.accessQueue) {
+			case QUEUE_WINDOW:
+				window.moveToLast(element);
+				break;
+			case QUEUE_PROBATION:
+				// 试用区节点再次访问晋升到保护区，保护区超出容量时最久未访问的节点降级回试用区
+				probation.unlink(element);
+				protect.linkLast(element);
+				element.accessQueue = QUEUE_PROTECTED;
+				int protectedMaximum = (probation.size + protect.size) * PROTECTED_PERCENT / 100;
+				while (protect.size > protectedMaximum && protect.head != null) {
+					AbstractElement demoted = protect.head;
+					protect.unlink(demoted);
+					probation.linkLast(demoted);
+					demoted.accessQueue = QUEUE_PROBATION;
+				}
+				break;
+			case QUEUE_PROTECTED:
+				protect.moveToLast(element);
+				break;
+			default:
+				// 节点已移除或者添加记录尚未回放
+				break;
+		}
+	}
+
+	private void doUnlink(AbstractElement element) {
+		switch (element.accessQueue) {
+			case QUEUE_WINDOW:
+				window.unlink(element);
+				break;
+			case QUEUE_PROBATION:
+				probation.unlink(element);
+				break;
+			case QUEUE_PROTECTED:
+				protect.unlink(element);
+				break;
+			default:
+				return;
+		}
+		element.accessQueue = QUEUE_NONE;
+	}
+
+	/**
+	 * 节点内嵌指针的双向链表，头部为最久未访问的节点
+	 */
+	private static final class AccessQueue {
+		private AbstractElement head;
+		private AbstractElement tail;
+		private int size;
+
+		void linkLast(AbstractElement element) {
+			element.accessPrev = tail;
+			element.accessNext = null;
+			if (tail == null) {
+				head = element;
+			} else {
+				tail.accessNext = element;
+			}
+			tail = element;
+			size++;
+		}
+
+		void unlink(AbstractElement element) {
+			AbstractElement prev = element.accessPrev;
+			AbstractElement next = element.accessNext;
+			if (prev == null) {
+				head = next;
+			} else {
+				prev.accessNext = next;
+			}
+			if (next == null) {
+				tail = prev;
+			} else {
+				next.accessPrev = prev;
+			}
+			element.accessPrev = null;
+			element.accessNext = null;
+			size--;
+		}
+
+		void moveToLast(AbstractElement element) {
+			if (tail != element) {
+				unlink(element);
+				linkLast(element);
+			}
+		}
+
+		/**
+		 * 获取最久未访问的节点，跳过要排除的节点
+		 */
+		AbstractElement first(Element excludeElement) {
+			AbstractElement element = head;
+			if (element != null && element == excludeElement) {
+				element = element.accessNext;
+			}
+			return element;
+		}
+	}
+
+	private static final class WriteTask {
+		private final Element element;
+		private final boolean added;
+
+		WriteTask(Element element, boolean added) {
+			this.element = element;
+			this.added = added;
+		}
+	}
+}
@@ -6,10 +6,12 @@ import java.util.Map;
 import cloud.apposs.cachex.CacheXConfig;
 import cloud.apposs.cachex.CacheXConfig.RedisConfig;
 import cloud.apposs.cachex.memory.Cache;
+import cloud.apposs.cachex.memory.CachePipelineHandler;
 import cloud.apposs.cachex.memory.CacheStatistics;
 import cloud.apposs.cachex.memory.redis.codis.CodisCache;
 import cloud.apposs.cachex.memory.redis.jedis.RedisCluster;
 import cloud.apposs.cachex.memory.redis.jedis.RedisSingle;
+import cloud.apposs.cachex.memory.redis.netkit.NetkitCache;
 import cloud.apposs.util.Param;
 import cloud.apposs.util.Table;
 import cloud.apposs.protobuf.ProtoBuf;
@@ -34,6 +36,8 @@ public class RedisCache implements Cache {
 			proxy = new RedisCluster(config);
 		} else if (cacheType == RedisConfig.REDIS_CACHE_CODIS) {
 			proxy = new CodisCache(config);
+		} else if (cacheType == RedisConfig.REDIS_CACHE_NETKIT) {
+			proxy = new NetkitCache(config);
 		} else {
 			proxy = new RedisSingle(config);
 		}
@@ -390,6 +394,36 @@ public class RedisCache implements Cache {
 		return proxy.remove(key, fields);
 	}
 
+	@Override
+	public Map<String, ProtoBuf> mget(List<String> keys) {
+		return proxy.mget(keys);
+	}
+
+	@Override
+	public boolean mput(Map<String, ProtoBuf> values) {
+		return proxy.mput(values);
+	}
+
+	@Override
+	public boolean mput(Map<String, ProtoBuf> values, Map<String, Integer> expirationTimes) {
+		return proxy.mput(values, expirationTimes);
+	}
+
+	@Override
+	public boolean mdelete(List<String> keys) {
+		return proxy.mdelete(keys);
+	}
+
+	@Override
+	public Map<String, ProtoBuf> hmget(String key, List<String> fields) {
+		return proxy.hmget(key, fields);
+	}
+
+	@Override
+	public List<Object> pipeline(CachePipelineHandler handler) {
+		return proxy.pipeline(handler);
+	}
+
 	@Override
 	public synchronized void shutdown() {
 		proxy.shutdown();
@@ -3,7 +3,11 @@ package cloud.apposs.cachex.memory.redis.codis;
 import cloud.apposs.cachex.CacheXConfig;
 import cloud.apposs.cachex.CacheXConfig.RedisConfig;
 import cloud.apposs.cachex.memory.Cache;
+import cloud.apposs.cachex.memory.CachePipeline;
+import cloud.apposs.cachex.memory.CachePipeline.Command;
+import cloud.apposs.cachex.memory.CachePipelineHandler;
 import cloud.apposs.cachex.memory.CacheStatistics;
+import cloud.apposs.cachex.memory.redis.jedis.JedisBatch;
 import cloud.apposs.protobuf.ProtoBuf;
 import cloud.apposs.protobuf.ProtoSchema;
 import cloud.apposs.util.Param;
@@ -883,6 +887,78 @@ public class CodisCache implements Cache {
         }
     }
 
+    @Override
+    public Map<String, ProtoBuf> mget(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return new HashMap<String, ProtoBuf>();
+        }
+
+        RedisConnection connection = doGetConnection();
+        try {
+            // Codis代理会将MGET按槽位拆分到各Redis实例并合并结果
+            return JedisBatch.mget(connection.getRawConnection(), keys, config.getChrset(), statistics);
+        } finally {
+            doReleaseConnection(connection);
+        }
+    }
+
+    @Override
+    public boolean mput(Map<String, ProtoBuf> values) {
+        return mput(values, null);
+    }
+
+    @Override
+    public boolean mput(Map<String, ProtoBuf> values, Map<String, Integer> expirationTimes) {
+        if (values == null) {
+            return false;
+        }
+
+        List<Object> results = doExecute(CachePipeline.puts(values, expirationTimes).getCommands());
+        return !results.contains(Boolean.FALSE);
+    }
+
+    @Override
+    public boolean mdelete(List<String> keys) {
+        if (keys == null) {
+            return false;
+        }
+        if (keys.isEmpty()) {
+            return true;
+        }
+
+        RedisConnection connection = doGetConnection();
+        try {
+            return connection.del(keys.toArray(new String[keys.size()])) >= 0;
+        } finally {
+            doReleaseConnection(connection);
+        }
+    }
+
+    @Override
+    public Map<String, ProtoBuf> hmget(String key, List<String> fields) {
+        if (key == null || fields == null || fields.isEmpty()) {
+            return new HashMap<String, ProtoBuf>();
+        }
+
+        RedisConnection connection = doGetConnection();
+        try {
+            return JedisBatch.hmget(connection.getRawConnection(), key, fields, config.getChrset(), statistics);
+        } finally {
+            doReleaseConnection(connection);
+        }
+    }
+
+    @Override
+    public List<Object> pipeline(CachePipelineHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler");
+        }
+
+        CachePipeline pipeline = new CachePipeline();
+        handler.handle(pipeline);
+        return doExecute(pipeline.getCommands());
+    }
+
     @Override
     public void shutdown() {
         pool.shutdown();
@@ -906,6 +982,23 @@ public class CodisCache implements Cache {
         }
     }
 
+    /**
+     * 通过流水线批量执行命令，只需一次网络往返
+     */
+    private List<Object> doExecute(List<Command> commands) {
+        if (commands.isEmpty()) {
+            return new LinkedList<Object>();
+        }
+
+        RedisConnection connection = doGetConnection();
+        try {
+            return JedisBatch.execute(connection.getRawConnection(), commands, config.getChrset(),
+                    config.getRedisConfig(), random, statistics);
+        } finally {
+            doReleaseConnection(connection);
+        }
+    }
+
     private RedisConnection doGetConnection() {
         RedisConnection connection = pool.getConnection();
         return connection;
@@ -0,0 +1,179 @@
+package cloud.apposs.cachex.memory.redis.jedis;
+
+import cloud.apposs.cachex.CacheXConfig.RedisConfig;
+import cloud.apposs.cachex.memory.CachePipeline;
+import cloud.apposs.cachex.memory.CachePipeline.Command;
+import cloud.apposs.cachex.memory.CacheStatistics;
+import cloud.apposs.protobuf.ProtoBuf;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基于Jedis的批量操作，单机Redis、Codis代理和集群各节点共用，
+ * 多Key读取使用原生MGET/HMGET，其他批量命令通过流水线发送，只需一次网络往返
+ */
+public final class JedisBatch {
+    private JedisBatch() {
+    }
+
+    /**
+     * 通过MGET批量获取缓存数据，缓存不存在的Key不会出现在结果中
+     */
+    public static Map<String, ProtoBuf> mget(Jedis jedis, List<String> keys,
+                                             Charset charset, CacheStatistics statistics) {
+        if (keys == null || keys.isEmpty()) {
+            return new HashMap<String, ProtoBuf>();
+        }
+
+        byte[][] keyBytes = new byte[keys.size()][];
+        for (int i = 0; i < keyBytes.length; i++) {
+            keyBytes[i] = keys.get(i).getBytes(charset);
+        }
+        List<byte[]> results = jedis.mget(keyBytes);
+        return doToMap(keys, results, statistics);
+    }
+
+    /**
+     * 通过HMGET批量获取二级缓存数据，缓存不存在的二级Key不会出现在结果中
+     */
+    public static Map<String, ProtoBuf> hmget(Jedis jedis, String key, List<String> fields,
+                                              Charset charset, CacheStatistics statistics) {
+        if (key == null || fields == null || fields.isEmpty()) {
+            return new HashMap<String, ProtoBuf>();
+        }
+
+        byte[][] fieldBytes = new byte[fields.size()][];
+        for (int i = 0; i < fieldBytes.length; i++) {
+            fieldBytes[i] = fields.get(i).getBytes(charset);
+        }
+        List<byte[]> results = jedis.hmget(key.getBytes(charset), fieldBytes);
+        return doToMap(fields, results, statistics);
+    }
+
+    /**
+     * 通过流水线批量执行命令
+     *
+     * @return 按命令顺序排列的执行结果
+     */
+    public static List<Object> execute(Jedis jedis, List<Command> commands, Charset charset,
+                                       RedisConfig config, Random random, CacheStatistics statistics) {
+        List<Object> results = new ArrayList<Object>(commands.size());
+        if (commands.isEmpty()) {
+            return results;
+        }
+
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<?>> responses = new ArrayList<Response<?>>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            Command command = commands.get(i);
+            responses.add(append(pipeline, command, charset, getExpirationTime(config, random, command)));
+        }
+        pipeline.sync();
+        for (int i = 0; i < commands.size(); i++) {
+            results.add(getResult(commands.get(i), responses.get(i), statistics));
+        }
+        return results;
+    }
+
+    /**
+     * 将命令添加到流水线中
+     *
+     * @param expirationTime 添加缓存时的过期时间，单位毫秒，小于等于0为永不过期
+     * @return 命令应答
+     */
+    public static Response<?> append(Pipeline pipeline, Command command, Charset charset, int expirationTime) {
+        byte[] key = command.getKey().getBytes(charset);
+        switch (command.getType()) {
+            case CachePipeline.COMMAND_GET:
+                return pipeline.get(key);
+            case CachePipeline.COMMAND_PUT:
+                if (expirationTime > 0) {
+                    return pipeline.psetex(key, expirationTime, command.getValue().array());
+                }
+                return pipeline.set(key, command.getValue().array());
+            case CachePipeline.COMMAND_HGET:
+                return pipeline.hget(key, command.getField().getBytes(charset));
+            case CachePipeline.COMMAND_HPUT:
+                Response<Long> response = pipeline.hset(key,
+                        command.getField().getBytes(charset), command.getValue().array());
+                if (expirationTime > 0) {
+                    pipeline.pexpire(key, expirationTime);
+                }
+                return response;
+            case CachePipeline.COMMAND_REMOVE:
+                return pipeline.del(key);
+            case CachePipeline.COMMAND_HREMOVE:
+                return pipeline.hdel(key, command.getField().getBytes(charset));
+            case CachePipeline.COMMAND_EXPIRE:
+                return pipeline.pexpire(key, command.getExpirationTime());
+            default:
+                throw new IllegalStateException("Unknown pipeline command " + command.getType());
+        }
+    }
+
+    /**
+     * 将流水线应答转换为{@link CachePipeline}约定的执行结果，应答为错误时抛出异常
+     */
+    public static Object getResult(Command command, Response<?> response, CacheStatistics statistics) {
+        switch (command.getType()) {
+            case CachePipeline.COMMAND_GET:
+            case CachePipeline.COMMAND_HGET:
+                byte[] value = (byte[]) response.get();
+                if (value == null) {
+                    statistics.addMissCount();
+                    return null;
+                }
+                statistics.addHitCount();
+                return ProtoBuf.wrap(value);
+            case CachePipeline.COMMAND_PUT:
+                return RedisSingle.REDIS_RESPONSE_OK.equals(response.get());
+            case CachePipeline.COMMAND_EXPIRE:
+                return (Long) response.get() > 0;
+            default:
+                return (Long) response.get() >= 0;
+        }
+    }
+
+    /**
+     * 获取命令的过期时间，单位毫秒，小于等于0为永不过期
+     */
+    public static int getExpirationTime(RedisConfig config, Random random, Command command) {
+        int type = command.getType();
+        if (type != CachePipeline.COMMAND_PUT && type != CachePipeline.COMMAND_HPUT) {
+            return CachePipeline.EXPIRATION_NEVER;
+        }
+        int expirationTime = command.getExpirationTime();
+        if (expirationTime != CachePipeline.EXPIRATION_DEFAULT) {
+            return expirationTime;
+        }
+        expirationTime = config.getExpirationTime();
+        if (config.isExpirationTimeRandom()) {
+            // 设置过期时间随机，避免同一时间有大量缓存过期导致回缓压力大
+            int timeMin = config.getExpirationTimeRandomMin();
+            int timeMax = config.getExpirationTimeRandomMax();
+            expirationTime = random.nextInt(timeMax - timeMin) + timeMin;
+        }
+        return expirationTime;
+    }
+
+    private static Map<String, ProtoBuf> doToMap(List<String> keys, List<byte[]> results, CacheStatistics statistics) {
+        Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>(keys.size() * 4 / 3 + 1);
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] value = results.get(i);
+            if (value != null) {
+                values.put(keys.get(i), ProtoBuf.wrap(value));
+            }
+        }
+        statistics.addHitCount(values.size());
+        statistics.addMissCount(keys.size() - values.size());
+        return values;
+    }
+}
@@ -4,16 +4,28 @@ import cloud.apposs.cachex.CacheXConfig;
 import cloud.apposs.cachex.CacheXConfig.RedisConfig;
 import cloud.apposs.cachex.CacheXConfig.RedisConfig.RedisServer;
 import cloud.apposs.cachex.memory.Cache;
+import cloud.apposs.cachex.memory.CachePipeline;
+import cloud.apposs.cachex.memory.CachePipeline.Command;
+import cloud.apposs.cachex.memory.CachePipelineHandler;
 import cloud.apposs.cachex.memory.CacheStatistics;
 import cloud.apposs.protobuf.ProtoBuf;
 import cloud.apposs.protobuf.ProtoSchema;
 import cloud.apposs.util.Param;
 import cloud.apposs.util.Table;
 import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -31,6 +43,22 @@ public class RedisCluster implements Cache {
 
     public static final String REDIS_RESPONSE_OK = "OK";
 
+    /**
+     * Redis集群槽位数
+     */
+    public static final int CLUSTER_SLOTS = 16384;
+
+    private static final int[] CRC16_TABLE = new int[256];
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC16_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
     private final CacheXConfig config;
 
     /**
@@ -50,6 +78,11 @@ public class RedisCluster implements Cache {
 
     private final Random random = new Random();
 
+    /**
+     * 槽位对应的主节点地址，用于批量操作时按节点分组，为null时需要重新获取
+     */
+    private volatile String[] slotNodes;
+
     public RedisCluster(CacheXConfig config) {
         if (config == null) {
             throw new IllegalArgumentException("config");
@@ -879,6 +912,93 @@ public class RedisCluster implements Cache {
         return jedis.hdel(key, fields) >= 0;
     }
 
+    @Override
+    public Map<String, ProtoBuf> mget(List<String> keys) {
+        Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>();
+        if (keys == null || keys.isEmpty()) {
+            return values;
+        }
+
+        CachePipeline pipeline = new CachePipeline();
+        for (String key : keys) {
+            pipeline.get(key);
+        }
+        List<Object> results = doExecute(pipeline.getCommands());
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = results.get(i);
+            if (value != null) {
+                values.put(keys.get(i), (ProtoBuf) value);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean mput(Map<String, ProtoBuf> values) {
+        return mput(values, null);
+    }
+
+    @Override
+    public boolean mput(Map<String, ProtoBuf> values, Map<String, Integer> expirationTimes) {
+        if (values == null) {
+            return false;
+        }
+
+        List<Object> results = doExecute(CachePipeline.puts(values, expirationTimes).getCommands());
+        return !results.contains(Boolean.FALSE);
+    }
+
+    @Override
+    public boolean mdelete(List<String> keys) {
+        if (keys == null) {
+            return false;
+        }
+
+        CachePipeline pipeline = new CachePipeline();
+        for (String key : keys) {
+            pipeline.remove(key);
+        }
+        List<Object> results = doExecute(pipeline.getCommands());
+        return !results.contains(Boolean.FALSE);
+    }
+
+    @Override
+    public Map<String, ProtoBuf> hmget(String key, List<String> fields) {
+        Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>();
+        if (key == null || fields == null || fields.isEmpty()) {
+            return values;
+        }
+
+        // 同一个Key的二级缓存都在同一个槽位，直接使用HMGET
+        Charset charset = config.getChrset();
+        byte[][] fieldBytes = new byte[fields.size()][];
+        for (int i = 0; i < fieldBytes.length; i++) {
+            fieldBytes[i] = fields.get(i).getBytes(charset);
+        }
+        List<byte[]> results = jedis.hmget(key.getBytes(charset), fieldBytes);
+        for (int i = 0; i < fieldBytes.length; i++) {
+            byte[] value = results.get(i);
+            if (value == null) {
+                statistics.addMissCount();
+                continue;
+            }
+            statistics.addHitCount();
+            values.put(fields.get(i), ProtoBuf.wrap(value));
+        }
+        return values;
+    }
+
+    @Override
+    public List<Object> pipeline(CachePipelineHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler");
+        }
+
+        CachePipeline pipeline = new CachePipeline();
+        handler.handle(pipeline);
+        return doExecute(pipeline.getCommands());
+    }
+
     @Override
     public synchronized void shutdown() {
         try {
@@ -904,4 +1024,201 @@ public class RedisCluster implements Cache {
             jedis.expire(key, expirationTime);
         }
     }
+
+    /**
+     * 批量执行命令，
+     * 按槽位表将命令分组到各主节点，每个节点一条流水线，只需一次网络往返，
+     * 槽位迁移导致重定向或节点不可用时刷新槽位表，并将受影响的命令通过JedisCluster逐条执行
+     *
+     * @return 按命令顺序排列的执行结果
+     */
+    private List<Object> doExecute(List<Command> commands) {
+        Object[] results = new Object[commands.size()];
+        if (commands.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        Charset charset = config.getChrset();
+        RedisConfig redisConfig = config.getRedisConfig();
+        String[] nodes = doGetSlotNodes();
+        Map<String, List<Integer>> groups = new HashMap<String, List<Integer>>();
+        List<Integer> fallbacks = new LinkedList<Integer>();
+        for (int i = 0; i < commands.size(); i++) {
+            String node = null;
+            if (nodes != null) {
+                node = nodes[getSlot(commands.get(i).getKey().getBytes(charset))];
+            }
+            if (node == null) {
+                fallbacks.add(i);
+                continue;
+            }
+            List<Integer> group = groups.get(node);
+            if (group == null) {
+                group = new LinkedList<Integer>();
+                groups.put(node, group);
+            }
+            group.add(i);
+        }
+
+        boolean refresh = false;
+        Map<String, JedisPool> pools = jedis.getClusterNodes();
+        for (Entry<String, List<Integer>> entry : groups.entrySet()) {
+            List<Integer> group = entry.getValue();
+            JedisPool pool = pools.get(entry.getKey());
+            if (pool == null) {
+                refresh = true;
+                fallbacks.addAll(group);
+                continue;
+            }
+            Jedis connection = null;
+            try {
+                connection = pool.getResource();
+                Pipeline pipeline = connection.pipelined();
+                List<Response<?>> responses = new ArrayList<Response<?>>(group.size());
+                for (Integer index : group) {
+                    Command command = commands.get(index);
+                    int expirationTime = JedisBatch.getExpirationTime(redisConfig, random, command);
+                    responses.add(JedisBatch.append(pipeline, command, charset, expirationTime));
+                }
+                pipeline.sync();
+                int position = 0;
+                for (Integer index : group) {
+                    Response<?> response = responses.get(position++);
+                    try {
+                        results[index] = JedisBatch.getResult(commands.get(index), response, statistics);
+                    } catch (JedisRedirectionException e) {
+                        refresh = true;
+                        fallbacks.add(index);
+                    }
+                }
+            } catch (JedisConnectionException e) {
+                refresh = true;
+                fallbacks.addAll(group);
+            } finally {
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+        }
+        if (refresh) {
+            slotNodes = null;
+        }
+
+        for (Integer index : fallbacks) {
+            results[index] = doExecute(commands.get(index));
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 通过JedisCluster执行单条命令，由JedisCluster负责重定向
+     */
+    private Object doExecute(Command command) {
+        Charset charset = config.getChrset();
+        byte[] key = command.getKey().getBytes(charset);
+        int expirationTime = JedisBatch.getExpirationTime(config.getRedisConfig(), random, command);
+        switch (command.getType()) {
+            case CachePipeline.COMMAND_GET:
+            case CachePipeline.COMMAND_HGET:
+                byte[] value = command.getType() == CachePipeline.COMMAND_GET ? jedis.get(key)
+                        : jedis.hget(key, command.getField().getBytes(charset));
+                if (value == null) {
+                    statistics.addMissCount();
+                    return null;
+                }
+                statistics.addHitCount();
+                return ProtoBuf.wrap(value);
+            case CachePipeline.COMMAND_PUT:
+                if (expirationTime > 0) {
+                    return REDIS_RESPONSE_OK.equals(jedis.psetex(key, expirationTime, command.getValue().array()));
+                }
+                return REDIS_RESPONSE_OK.equals(jedis.set(key, command.getValue().array()));
+            case CachePipeline.COMMAND_HPUT:
+                long result = jedis.hset(key, command.getField().getBytes(charset), command.getValue().array());
+                if (expirationTime > 0) {
+                    jedis.pexpire(key, expirationTime);
+                }
+                return result >= 0;
+            case CachePipeline.COMMAND_REMOVE:
+                return jedis.del(key) >= 0;
+            case CachePipeline.COMMAND_HREMOVE:
+                return jedis.hdel(key, command.getField().getBytes(charset)) >= 0;
+            case CachePipeline.COMMAND_EXPIRE:
+                return jedis.pexpire(key, command.getExpirationTime()) > 0;
+            default:
+                throw new IllegalStateException("Unknown pipeline command " + command.getType());
+        }
+    }
+
+    /**
+     * 获取槽位表，槽位表失效时通过CLUSTER SLOTS重新获取，所有节点都不可用时返回null
+     */
+    private String[] doGetSlotNodes() {
+        String[] nodes = slotNodes;
+        if (nodes != null) {
+            return nodes;
+        }
+
+        synchronized (this) {
+            if (slotNodes != null) {
+                return slotNodes;
+            }
+            for (JedisPool pool : jedis.getClusterNodes().values()) {
+                Jedis connection = null;
+                try {
+                    connection = pool.getResource();
+                    nodes = new String[CLUSTER_SLOTS];
+                    for (Object slot : connection.clusterSlots()) {
+                        // 格式为[起始槽位, 结束槽位, [主节点地址, 主节点端口, ...], [从节点...]]
+                        List<?> slotInfo = (List<?>) slot;
+                        int start = ((Long) slotInfo.get(0)).intValue();
+                        int end = ((Long) slotInfo.get(1)).intValue();
+                        List<?> master = (List<?>) slotInfo.get(2);
+                        String host = new String((byte[]) master.get(0), config.getChrset());
+                        String node = host + ":" + master.get(1);
+                        for (int i = start; i <= end; i++) {
+                            nodes[i] = node;
+                        }
+                    }
+                    slotNodes = nodes;
+                    return nodes;
+                } catch (JedisException e) {
+                    // 节点不可用，尝试下一个节点
+                } finally {
+                    if (connection != null) {
+                        connection.close();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 计算Key所在槽位，算法为CRC16(XMODEM) % 16384，支持{...}哈希标签
+     */
+    static int getSlot(byte[] key) {
+        int start = 0;
+        int end = key.length;
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] == '{') {
+                for (int j = i + 1; j < key.length; j++) {
+                    if (key[j] == '}') {
+                        if (j > i + 1) {
+                            start = i + 1;
+                            end = j;
+                        }
+                        break;
+                    }
+                }
+                break;
+            }
+        }
+
+        int crc = 0;
+        for (int i = start; i < end; i++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ key[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc & (CLUSTER_SLOTS - 1);
+    }
 }
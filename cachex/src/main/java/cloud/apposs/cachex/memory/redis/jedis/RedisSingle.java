@@ -4,6 +4,9 @@ import cloud.apposs.cachex.CacheXConfig;
 import cloud.apposs.cachex.CacheXConfig.RedisConfig;
 import cloud.apposs.cachex.CacheXConfig.RedisConfig.RedisServer;
 import cloud.apposs.cachex.memory.Cache;
+import cloud.apposs.cachex.memory.CachePipeline;
+import cloud.apposs.cachex.memory.CachePipeline.Command;
+import cloud.apposs.cachex.memory.CachePipelineHandler;
 import cloud.apposs.cachex.memory.CacheStatistics;
 import cloud.apposs.protobuf.ProtoBuf;
 import cloud.apposs.protobuf.ProtoSchema;
@@ -904,6 +907,82 @@ public class RedisSingle implements Cache {
         }
     }
 
+    @Override
+    public Map<String, ProtoBuf> mget(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return new HashMap<String, ProtoBuf>();
+        }
+
+        Jedis jedis = doGetJedis();
+        try {
+            return JedisBatch.mget(jedis, keys, config.getChrset(), statistics);
+        } finally {
+            doReleaseJedis(jedis);
+        }
+    }
+
+    @Override
+    public boolean mput(Map<String, ProtoBuf> values) {
+        return mput(values, null);
+    }
+
+    @Override
+    public boolean mput(Map<String, ProtoBuf> values, Map<String, Integer> expirationTimes) {
+        if (values == null) {
+            return false;
+        }
+
+        List<Object> results = doExecute(CachePipeline.puts(values, expirationTimes).getCommands());
+        return !results.contains(Boolean.FALSE);
+    }
+
+    @Override
+    public boolean mdelete(List<String> keys) {
+        if (keys == null) {
+            return false;
+        }
+        if (keys.isEmpty()) {
+            return true;
+        }
+
+        Jedis jedis = doGetJedis();
+        try {
+            Charset charset = config.getChrset();
+            byte[][] keyBytes = new byte[keys.size()][];
+            for (int i = 0; i < keyBytes.length; i++) {
+                keyBytes[i] = keys.get(i).getBytes(charset);
+            }
+            return jedis.del(keyBytes) >= 0;
+        } finally {
+            doReleaseJedis(jedis);
+        }
+    }
+
+    @Override
+    public Map<String, ProtoBuf> hmget(String key, List<String> fields) {
+        if (key == null || fields == null || fields.isEmpty()) {
+            return new HashMap<String, ProtoBuf>();
+        }
+
+        Jedis jedis = doGetJedis();
+        try {
+            return JedisBatch.hmget(jedis, key, fields, config.getChrset(), statistics);
+        } finally {
+            doReleaseJedis(jedis);
+        }
+    }
+
+    @Override
+    public List<Object> pipeline(CachePipelineHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler");
+        }
+
+        CachePipeline pipeline = new CachePipeline();
+        handler.handle(pipeline);
+        return doExecute(pipeline.getCommands());
+    }
+
     @Override
     public synchronized void shutdown() {
         jedisPool.close();
@@ -927,6 +1006,23 @@ public class RedisSingle implements Cache {
         }
     }
 
+    /**
+     * 通过流水线批量执行命令，只需一次网络往返
+     */
+    private List<Object> doExecute(List<Command> commands) {
+        if (commands.isEmpty()) {
+            return new LinkedList<Object>();
+        }
+
+        Jedis jedis = doGetJedis();
+        try {
+            return JedisBatch.execute(jedis, commands, config.getChrset(),
+                    config.getRedisConfig(), random, statistics);
+        } finally {
+            doReleaseJedis(jedis);
+        }
+    }
+
     private Jedis doGetJedis() {
         Jedis jedis = jedisPool.getResource();
         return jedis;
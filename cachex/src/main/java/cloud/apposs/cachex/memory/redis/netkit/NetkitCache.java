@@ -0,0 +1,1108 @@
+package cloud.apposs.cachex.memory.redis.netkit;
+
+import cloud.apposs.cachex.CacheXConfig;
+import cloud.apposs.cachex.CacheXConfig.RedisConfig;
+import cloud.apposs.cachex.CacheXConfig.RedisConfig.RedisServer;
+import cloud.apposs.cachex.memory.Cache;
+import cloud.apposs.cachex.memory.CachePipeline;
+import cloud.apposs.cachex.memory.CachePipeline.Command;
+import cloud.apposs.cachex.memory.CachePipelineHandler;
+import cloud.apposs.cachex.memory.CacheStatistics;
+import cloud.apposs.netkit.EventLoopGroup;
+import cloud.apposs.netkit.filterchain.redis.RedisReply;
+import cloud.apposs.netkit.rxio.IoFunction;
+import cloud.apposs.netkit.rxio.IoSubscriber;
+import cloud.apposs.netkit.rxio.RxIo;
+import cloud.apposs.netkit.rxio.SafeIoSubscriber;
+import cloud.apposs.netkit.rxio.io.redis.IoRedis;
+import cloud.apposs.netkit.rxio.io.redis.RedisException;
+import cloud.apposs.protobuf.ProtoBuf;
+import cloud.apposs.protobuf.ProtoSchema;
+import cloud.apposs.util.Param;
+import cloud.apposs.util.Table;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+/**
+ * 基于netkit {@link IoRedis}的Redis缓存管理，
+ * 所有线程共用每个节点少量的多路复用连接，命令自动流水线发送，不再为每次调用占用一个连接，
+ * 同步接口等待应答后返回，同时提供asyncXXX系列返回{@link RxIo}的异步接口，异步请求不占用业务线程，
+ * 可用于Redis单机或者Codis代理集群，多个节点时按Key哈希选择节点
+ */
+public class NetkitCache implements Cache {
+    private static final long serialVersionUID = -2378457741502683045L;
+
+    public static final String LOOP_NAME = "Redis_Loop-";
+
+    private final CacheXConfig config;
+
+    private final EventLoopGroup group;
+
+    private final IoRedis client;
+
+    private final Charset charset;
+
+    /**
+     * 缓存统计服务
+     */
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    private final Random random = new Random();
+
+    public NetkitCache(CacheXConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config");
+        }
+        RedisConfig redisConfig = config.getRedisConfig();
+        List<RedisServer> serverList = redisConfig.getServerList();
+        if (serverList == null || serverList.isEmpty()) {
+            throw new IllegalArgumentException("Redis Server List Not Configed");
+        }
+
+        this.config = config;
+        this.charset = config.getChrset();
+        List<InetSocketAddress> nodes = new ArrayList<InetSocketAddress>(serverList.size());
+        for (RedisServer server : serverList) {
+            nodes.add(new InetSocketAddress(server.getHost(), server.getPort()));
+        }
+        int connectionsPerNode = Math.max(redisConfig.getConnectionsPerNode(), 1);
+        int loopSize = Math.min(nodes.size() * connectionsPerNode, Runtime.getRuntime().availableProcessors());
+        try {
+            this.group = new EventLoopGroup(Math.max(loopSize, 1), LOOP_NAME).start(true);
+        } catch (IOException e) {
+            throw new IllegalStateException("Redis Event Loop Start Error", e);
+        }
+        this.client = new IoRedis(group, nodes, connectionsPerNode);
+        this.client.setConnectTimeout(redisConfig.getConnectTimeout());
+        this.client.setRecvTimeout(redisConfig.getRecvTimeout());
+        this.client.setProtocolVersion(redisConfig.getProtocolVersion());
+        this.client.setCharset(charset);
+    }
+
+    public IoRedis getClient() {
+        return client;
+    }
+
+    @Override
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * 获取缓存条数，多个节点时只统计第一个节点
+     */
+    @Override
+    public int size() {
+        return (int) doCall(doEncode("DBSIZE")).getLong();
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return doCall(doEncode("EXISTS"), doEncode(key)).getLong() > 0;
+    }
+
+    @Override
+    public int expire(String key, int expirationTime) {
+        byte[] keyBytes = doEncode(key);
+        List<byte[][]> commands = new ArrayList<byte[][]>(2);
+        commands.add(new byte[][] {doEncode("PTTL"), keyBytes});
+        commands.add(new byte[][] {doEncode("PEXPIRE"), keyBytes, doEncode(String.valueOf(expirationTime))});
+        List<RedisReply> replies = doCall(commands);
+        RedisReply expire = replies.get(0);
+        if (expire.isError()) {
+            return -1;
+        }
+        return (int) expire.getLong();
+    }
+
+    @Override
+    public ProtoBuf get(String key) {
+        byte[] value = getBytes(key);
+        if (value == null) {
+            return null;
+        }
+        return ProtoBuf.wrap(value);
+    }
+
+    @Override
+    public ProtoBuf getBuffer(String key) {
+        return get(key);
+    }
+
+    @Override
+    public String getString(String key) {
+        byte[] value = getBytes(key);
+        if (value == null) {
+            return null;
+        }
+        return new String(value, charset);
+    }
+
+    @Override
+    public Integer getInt(String key) {
+        String value = getString(key);
+        if (value == null) {
+            return null;
+        }
+        return Integer.valueOf(value);
+    }
+
+    @Override
+    public Long getLong(String key) {
+        String value = getString(key);
+        if (value == null) {
+            return null;
+        }
+        return Long.valueOf(value);
+    }
+
+    @Override
+    public Short getShort(String key) {
+        String value = getString(key);
+        if (value == null) {
+            return null;
+        }
+        return Short.valueOf(value);
+    }
+
+    @Override
+    public Float getFloat(String key) {
+        String value = getString(key);
+        if (value == null) {
+            return null;
+        }
+        return Float.valueOf(value);
+    }
+
+    @Override
+    public Double getDouble(String key) {
+        String value = getString(key);
+        if (value == null) {
+            return null;
+        }
+        return Double.valueOf(value);
+    }
+
+    @Override
+    public byte[] getBytes(String key) {
+        if (key == null) {
+            return null;
+        }
+
+        byte[] value = doCall(doEncode("GET"), doEncode(key)).getBytes();
+        if (value == null) {
+            statistics.addMissCount();
+            return null;
+        }
+        statistics.addHitCount();
+        return value;
+    }
+
+    @Override
+    public Map<?, ?> getMap(String key, ProtoSchema schema) {
+        ProtoBuf buffer = get(key);
+        if (buffer == null) {
+            return null;
+        }
+        return buffer.getMap(schema);
+    }
+
+    @Override
+    public List<?> getList(String key, ProtoSchema schema) {
+        ProtoBuf buffer = get(key);
+        if (buffer == null) {
+            return null;
+        }
+        return buffer.getList(schema);
+    }
+
+    @Override
+    public <T> T getObject(String key, Class<T> clazz, ProtoSchema schema) {
+        ProtoBuf buffer = get(key);
+        if (buffer == null) {
+            return null;
+        }
+        return buffer.getObject(clazz, schema);
+    }
+
+    @Override
+    public Param getParam(String key, ProtoSchema schema) {
+        ProtoBuf buffer = get(key);
+        if (buffer == null) {
+            return null;
+        }
+        return buffer.getParam(schema);
+    }
+
+    @Override
+    public Table<?> getTable(String key, ProtoSchema schema) {
+        ProtoBuf buffer = get(key);
+        if (buffer == null) {
+            return null;
+        }
+        return buffer.getTable(schema);
+    }
+
+    @Override
+    public boolean put(String key, ProtoBuf value) {
+        return put(key, value, false);
+    }
+
+    @Override
+    public boolean put(String key, ProtoBuf value, boolean compact) {
+        if (key == null || value == null) {
+            return false;
+        }
+        if (compact) {
+            value.compact();
+        }
+        return put(key, value.array());
+    }
+
+    @Override
+    public boolean put(String key, String value) {
+        if (key == null || value == null) {
+            return false;
+        }
+        return put(key, doEncode(value));
+    }
+
+    @Override
+    public boolean put(String key, int value) {
+        return put(key, String.valueOf(value));
+    }
+
+    @Override
+    public boolean put(String key, long value) {
+        return put(key, String.valueOf(value));
+    }
+
+    @Override
+    public boolean put(String key, short value) {
+        return put(key, String.valueOf(value));
+    }
+
+    @Override
+    public boolean put(String key, double value) {
+        return put(key, String.valueOf(value));
+    }
+
+    @Override
+    public boolean put(String key, float value) {
+        return put(key, String.valueOf(value));
+    }
+
+    /**
+     * 添加缓存数据，过期时间通过SET PX参数一并设置，只需一次网络往返
+     */
+    @Override
+    public boolean put(String key, byte[] value) {
+        if (key == null || value == null) {
+            return false;
+        }
+        return !doCall(doSetCommand(key, value)).isNull();
+    }
+
+    @Override
+    public boolean put(String key, Object value, ProtoSchema schema) {
+        if (value == null) {
+            return false;
+        }
+        ProtoBuf buffer = new ProtoBuf();
+        buffer.putObject(value, schema);
+        return put(key, buffer, false);
+    }
+
+    @Override
+    public boolean put(String key, Map<?, ?> value, ProtoSchema schema) {
+        if (value == null) {
+            return false;
+        }
+        ProtoBuf buffer = new ProtoBuf();
+        buffer.putMap(value, schema);
+        return put(key, buffer, false);
+    }
+
+    @Override
+    public boolean put(String key, List<?> value, ProtoSchema schema) {
+        if (value == null) {
+            return false;
+        }
+        ProtoBuf buffer = new ProtoBuf(config.isDirectBuffer());
+        buffer.putList(value, schema);
+        return put(key, buffer, false);
+    }
+
+    @Override
+    public boolean put(String key, Param value, ProtoSchema schema) {
+        if (value == null) {
+            return false;
+        }
+        ProtoBuf buffer = new ProtoBuf(config.isDirectBuffer());
+        buffer.putParam(value, schema);
+        return put(key, buffer, false);
+    }
+
+    @Override
+    public boolean put(String key, Table<?> value, ProtoSchema schema) {
+        if (value == null) {
+            return false;
+        }
+        ProtoBuf buffer = new ProtoBuf(config.isDirectBuffer());
+        buffer.putTable(value, schema);
+        return put(key, buffer, false);
+    }
+
+    @Override
+    public ProtoBuf hget(String key, String field) {
+        byte[] value = hgetBytes(key, field);
+        if (value == null) {
+            return null;
+        }
+        return ProtoBuf.wrap(value);
+    }
+
+    @Override
+    public ProtoBuf hgetBuffer(String key, String field) {
+        return hget(key, field);
+    }
+
+    @Override
+    public byte[] hgetBytes(String key, String field) {
+        if (key == null || field == null) {
+            return null;
+        }
+
+        byte[] value = doCall(doEncode("HGET"), doEncode(key), doEncode(field)).getBytes();
+        if (value == null) {
+            statistics.addMissCount();
+            return null;
+        }
+        statistics.addHitCount();
+        return value;
+    }
+
+    @Override
+    public <T> T hgetObject(String key, String field, Class<T> clazz, ProtoSchema schema) {
+        ProtoBuf value = hget(key, field);
+        if (value == null) {
+            return null;
+        }
+        return value.getObject(clazz, schema);
+    }
+
+    @Override
+    public String hgetString(String key, String field) {
+        byte[] value = hgetBytes(key, field);
+        if (value == null) {
+            return null;
+        }
+        return new String(value, charset);
+    }
+
+    @Override
+    public Integer hgetInt(String key, String field) {
+        String value = hgetString(key, field);
+        if (value == null) {
+            return null;
+        }
+        return Integer.valueOf(value);
+    }
+
+    @Override
+    public Long hgetLong(String key, String field) {
+        String value = hgetString(key, field);
+        if (value == null) {
+            return null;
+        }
+        return Long.valueOf(value);
+    }
+
+    @Override
+    public Short hgetShort(String key, String field) {
+        String value = hgetString(key, field);
+        if (value == null) {
+            return null;
+        }
+        return Short.valueOf(value);
+    }
+
+    @Override
+    public Double hgetDouble(String key, String field) {
+        String value = hgetString(key, field);
+        if (value == null) {
+            return null;
+        }
+        return Double.valueOf(value);
+    }
+
+    @Override
+    public Float hgetFloat(String key, String field) {
+        String value = hgetString(key, field);
+        if (value == null) {
+            return null;
+        }
+        return Float.valueOf(value);
+    }
+
+    @Override
+    public List<?> hgetList(String key, String field, ProtoSchema schema) {
+        ProtoBuf value = hget(key, field);
+        if (value == null) {
+            return null;
+        }
+        return value.getList(schema);
+    }
+
+    @Override
+    public Map<?, ?> hgetMap(String key, String field, ProtoSchema schema) {
+        ProtoBuf value = hget(key, field);
+        if (value == null) {
+            return null;
+        }
+        return value.getMap(schema);
+    }
+
+    @Override
+    public Param hgetParam(String key, String field, ProtoSchema schema) {
+        ProtoBuf value = hget(key, field);
+        if (value == null) {
+            return null;
+        }
+        return value.getParam(schema);
+    }
+
+    @Override
+    public Table<?> hgetTable(String key, String field, ProtoSchema schema) {
+        ProtoBuf value = hget(key, field);
+        if (value == null) {
+            return null;
+        }
+        return value.getTable(schema);
+    }
+
+    @Override
+    public Map<String, ProtoBuf> hgetAll(String key) {
+        Map<String, byte[]> values = doHgetAll(key);
+        if (values == null) {
+            return null;
+        }
+        Map<String, ProtoBuf> value = new HashMap<String, ProtoBuf>();
+        for (Entry<String, byte[]> entry : values.entrySet()) {
+            value.put(entry.getKey(), ProtoBuf.wrap(entry.getValue()));
+        }
+        return value;
+    }
+
+    @Override
+    public Map<String, ProtoBuf> hgetAllBuffer(String key) {
+        return hgetAll(key);
+    }
+
+    @Override
+    public List<String> hgetAllString(String key) {
+        Map<String, byte[]> values = doHgetAll(key);
+        if (values == null) {
+            return null;
+        }
+        List<String> value = new LinkedList<String>();
+        for (byte[] data : values.values()) {
+            value.add(new String(data, charset));
+        }
+        return value;
+    }
+
+    @Override
+    public <T> List<T> hgetAllObject(String key, Class<T> clazz, ProtoSchema schema) {
+        Map<String, byte[]> values = doHgetAll(key);
+        if (values == null) {
+            return null;
+        }
+        List<T> value = new LinkedList<T>();
+        for (byte[] data : values.values()) {
+            value.add(ProtoBuf.wrap(data).getObject(clazz, schema));
+        }
+        return value;
+    }
+
+    @Override
+    public List<Param> hgetAllParam(String key, ProtoSchema schema) {
+        Map<String, byte[]> values = doHgetAll(key);
+        if (values == null) {
+            return null;
+        }
+        List<Param> value = new LinkedList<Param>();
+        for (byte[] data : values.values()) {
+            value.add(ProtoBuf.wrap(data).getParam(schema));
+        }
+        return value;
+    }
+
+    @Override
+    public List<Table<?>> hgetAllTable(String key, ProtoSchema schema) {
+        Map<String, byte[]> values = doHgetAll(key);
+        if (values == null) {
+            return null;
+        }
+        List<Table<?>> value = new LinkedList<Table<?>>();
+        for (byte[] data : values.values()) {
+            value.add(ProtoBuf.wrap(data).getTable(schema));
+        }
+        return value;
+    }
+
+    @Override
+    public boolean hput(String key, String field, ProtoBuf value, boolean compact) {
+        if (key == null || field == null || value == null) {
+            return false;
+        }
+        if (compact) {
+            value.compact();
+        }
+        return hput(key, field, value.array());
+    }
+
+    /**
+     * 添加二级缓存数据，HSET和过期时间设置流水线发送，只需一次网络往返
+     */
+    @Override
+    public boolean hput(String key, String field, byte[] value) {
+        if (key == null || field == null || value == null) {
+            return false;
+        }
+        byte[] keyBytes = doEncode(key);
+        return doCallWithExpire(new byte[][] {doEncode("HSET"), keyBytes, doEncode(field), value}, keyBytes);
+    }
+
+    @Override
+    public boolean hput(String key, String field, String value) {
+        if (value == null) {
+            return false;
+        }
+        return hput(key, field, doEncode(value));
+    }
+
+    @Override
+    public boolean hput(String key, String field, int value) {
+        return hput(key, field, String.valueOf(value));
+    }
+
+    @Override
+    public boolean hput(String key, String field, long value) {
+        return hput(key, field, String.valueOf(value));
+    }
+
+    @Override
+    public boolean hput(String key, String field, short value) {
+        return hput(key, field, String.valueOf(value));
+    }
+
+    @Override
+    public boolean hput(String key, String field, double value) {
+        return hput(key, field, String.valueOf(value));
+    }
+
+    @Override
+    public boolean hput(String key, String field, float value) {
+        return hput(key, field, String.valueOf(value));
+    }
+
+    @Override
+    public boolean hput(String key, String field, Object value, ProtoSchema schema) {
+        if (value == null) {
+            return false;
+        }
+        ProtoBuf buffer = new ProtoBuf();
+        buffer.putObject(value, schema);
+        return hput(key, field, buffer, false);
+    }
+
+    @Override
+    public boolean hput(String key, String field, Map<?, ?> value, ProtoSchema schema) {
+        if (value == null) {
+            return false;
+        }
+        ProtoBuf buffer = new ProtoBuf();
+        buffer.putMap(value, schema);
+        return hput(key, field, buffer, false);
+    }
+
+    @Override
+    public boolean hput(String key, String field, List<?> value, ProtoSchema schema) {
+        if (value == null) {
+            return false;
+        }
+        ProtoBuf buffer = new ProtoBuf(config.isDirectBuffer());
+        buffer.putList(value, schema);
+        return hput(key, field, buffer, true);
+    }
+
+    @Override
+    public boolean hput(String key, String field, Param value, ProtoSchema schema) {
+        if (value == null) {
+            return false;
+        }
+        ProtoBuf buffer = new ProtoBuf();
+        buffer.putParam(value, schema);
+        return hput(key, field, buffer, false);
+    }
+
+    @Override
+    public boolean hput(String key, String field, Table<?> value, ProtoSchema schema) {
+        if (value == null) {
+            return false;
+        }
+        ProtoBuf buffer = new ProtoBuf();
+        buffer.putTable(value, schema);
+        return hput(key, field, buffer, false);
+    }
+
+    @Override
+    public boolean hmput(String key, Map<byte[], byte[]> value) {
+        if (key == null || value == null || value.isEmpty()) {
+            return false;
+        }
+        byte[] keyBytes = doEncode(key);
+        byte[][] args = new byte[value.size() * 2 + 2][];
+        args[0] = doEncode("HMSET");
+        args[1] = keyBytes;
+        int index = 2;
+        for (Entry<byte[], byte[]> entry : value.entrySet()) {
+            args[index++] = entry.getKey();
+            args[index++] = entry.getValue();
+        }
+        return doCallWithExpire(args, keyBytes);
+    }
+
+    @Override
+    public boolean remove(String key) {
+        if (key == null) {
+            return false;
+        }
+        return doCall(doEncode("DEL"), doEncode(key)).getLong() >= 0;
+    }
+
+    /**
+     * 批量移除缓存节点，每个Key单独按节点发送DEL并流水线等待，多个节点时也能正确删除
+     */
+    @Override
+    public boolean remove(String... keys) {
+        if (keys == null) {
+            return false;
+        }
+        List<byte[][]> commands = new ArrayList<byte[][]>(keys.length);
+        byte[] command = doEncode("DEL");
+        for (String key : keys) {
+            commands.add(new byte[][] {command, doEncode(key)});
+        }
+        for (RedisReply reply : doCall(commands)) {
+            if (reply.isError()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(String key, String field) {
+        if (key == null || field == null) {
+            return false;
+        }
+        return doCall(doEncode("HDEL"), doEncode(key), doEncode(field)).getLong() >= 0;
+    }
+
+    @Override
+    public boolean remove(String key, String... fields) {
+        if (key == null || fields == null) {
+            return false;
+        }
+        byte[][] args = new byte[fields.length + 2][];
+        args[0] = doEncode("HDEL");
+        args[1] = doEncode(key);
+        for (int i = 0; i < fields.length; i++) {
+            args[i + 2] = doEncode(fields[i]);
+        }
+        return doCall(args).getLong() >= 0;
+    }
+
+    /**
+     * 批量获取缓存数据，各Key的GET命令按节点流水线发送，多个节点时也能正确获取
+     */
+    @Override
+    public Map<String, ProtoBuf> mget(List<String> keys) {
+        Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>();
+        if (keys == null || keys.isEmpty()) {
+            return values;
+        }
+
+        CachePipeline pipeline = new CachePipeline();
+        for (String key : keys) {
+            pipeline.get(key);
+        }
+        List<Object> results = doPipeline(pipeline.getCommands());
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = results.get(i);
+            if (value != null) {
+                values.put(keys.get(i), (ProtoBuf) value);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean mput(Map<String, ProtoBuf> values) {
+        return mput(values, null);
+    }
+
+    @Override
+    public boolean mput(Map<String, ProtoBuf> values, Map<String, Integer> expirationTimes) {
+        if (values == null) {
+            return false;
+        }
+        List<Object> results = doPipeline(CachePipeline.puts(values, expirationTimes).getCommands());
+        return !results.contains(Boolean.FALSE);
+    }
+
+    @Override
+    public boolean mdelete(List<String> keys) {
+        if (keys == null) {
+            return false;
+        }
+        return remove(keys.toArray(new String[keys.size()]));
+    }
+
+    @Override
+    public Map<String, ProtoBuf> hmget(String key, List<String> fields) {
+        Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>();
+        if (key == null || fields == null || fields.isEmpty()) {
+            return values;
+        }
+
+        byte[][] args = new byte[fields.size() + 2][];
+        args[0] = doEncode("HMGET");
+        args[1] = doEncode(key);
+        for (int i = 0; i < fields.size(); i++) {
+            args[i + 2] = doEncode(fields.get(i));
+        }
+        RedisReply reply = doCall(args);
+        for (int i = 0; i < reply.size(); i++) {
+            byte[] value = reply.getElement(i).getBytes();
+            if (value == null) {
+                statistics.addMissCount();
+                continue;
+            }
+            statistics.addHitCount();
+            values.put(fields.get(i), ProtoBuf.wrap(value));
+        }
+        return values;
+    }
+
+    @Override
+    public List<Object> pipeline(CachePipelineHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler");
+        }
+
+        CachePipeline pipeline = new CachePipeline();
+        handler.handle(pipeline);
+        return doPipeline(pipeline.getCommands());
+    }
+
+    /**
+     * 异步获取缓存数据，缓存不存在时返回null
+     */
+    public RxIo<ProtoBuf> asyncGet(String key) {
+        return doExecute(new byte[][] {doEncode("GET"), doEncode(key)}, null).map(new IoFunction<RedisReply, ProtoBuf>() {
+            @Override
+            public ProtoBuf call(RedisReply reply) {
+                byte[] value = reply.getBytes();
+                if (value == null) {
+                    statistics.addMissCount();
+                    return null;
+                }
+                statistics.addHitCount();
+                return ProtoBuf.wrap(value);
+            }
+        });
+    }
+
+    /**
+     * 异步添加缓存数据
+     */
+    public RxIo<Boolean> asyncPut(String key, ProtoBuf value) {
+        return doExecute(doSetCommand(key, value.array()), null).map(new IoFunction<RedisReply, Boolean>() {
+            @Override
+            public Boolean call(RedisReply reply) {
+                return !reply.isNull();
+            }
+        });
+    }
+
+    public RxIo<ProtoBuf> asyncHget(String key, String field) {
+        return doExecute(new byte[][] {doEncode("HGET"), doEncode(key), doEncode(field)}, null)
+                .map(new IoFunction<RedisReply, ProtoBuf>() {
+            @Override
+            public ProtoBuf call(RedisReply reply) {
+                byte[] value = reply.getBytes();
+                if (value == null) {
+                    statistics.addMissCount();
+                    return null;
+                }
+                statistics.addHitCount();
+                return ProtoBuf.wrap(value);
+            }
+        });
+    }
+
+    public RxIo<Boolean> asyncHput(String key, String field, ProtoBuf value) {
+        byte[] keyBytes = doEncode(key);
+        return doExecute(new byte[][] {doEncode("HSET"), keyBytes, doEncode(field), value.array()}, keyBytes)
+                .map(new IoFunction<RedisReply, Boolean>() {
+            @Override
+            public Boolean call(RedisReply reply) {
+                return reply.getLong() >= 0;
+            }
+        });
+    }
+
+    public RxIo<Boolean> asyncRemove(String key) {
+        return doExecute(new byte[][] {doEncode("DEL"), doEncode(key)}, null).map(new IoFunction<RedisReply, Boolean>() {
+            @Override
+            public Boolean call(RedisReply reply) {
+                return reply.getLong() >= 0;
+            }
+        });
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        client.shutdown();
+        group.shutdown();
+    }
+
+    private Map<String, byte[]> doHgetAll(String key) {
+        if (key == null) {
+            return null;
+        }
+        RedisReply reply = doCall(doEncode("HGETALL"), doEncode(key));
+        if (reply.size() == 0) {
+            statistics.addMissCount();
+        } else {
+            statistics.addHitCount();
+        }
+        return IoRedis.toMap(reply, charset);
+    }
+
+    /**
+     * 执行命令并在同一连接中流水线发送过期时间设置，命令执行成功返回true
+     */
+    private boolean doCallWithExpire(byte[][] command, byte[] key) {
+        long expirationTime = doGetExpirationTime();
+        if (expirationTime <= 0) {
+            return !doCall(command).isError();
+        }
+        List<byte[][]> commands = new ArrayList<byte[][]>(2);
+        commands.add(command);
+        commands.add(new byte[][] {doEncode("PEXPIRE"), key, doEncode(String.valueOf(expirationTime))});
+        return !doCall(commands).get(0).isError();
+    }
+
+    /**
+     * 异步执行命令，需要设置过期时间时在命令之后流水线发送PEXPIRE，
+     * 同一线程提交的命令使用同一连接，保证过期时间在命令执行之后设置
+     */
+    private RxIo<RedisReply> doExecute(final byte[][] command, final byte[] expireKey) {
+        return RxIo.create(new RxIo.OnSubscribe<RedisReply>() {
+            @Override
+            public void call(final SafeIoSubscriber<? super RedisReply> t) throws Exception {
+                client.send(command, new IoSubscriber<RedisReply>() {
+                    @Override
+                    public void onNext(RedisReply reply) throws Exception {
+                        if (reply.isError()) {
+                            throw new RedisException(reply.getString(charset));
+                        }
+                        t.onNext(reply);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        t.onCompleted();
+                    }
+
+                    @Override
+                    public void onError(Throwable cause) {
+                        t.onError(cause);
+                    }
+                });
+                long expirationTime = doGetExpirationTime();
+                if (expireKey != null && expirationTime > 0) {
+                    client.send(new byte[][] {doEncode("PEXPIRE"), expireKey,
+                            doEncode(String.valueOf(expirationTime))}, IGNORE_SUBSCRIBER);
+                }
+            }
+        });
+    }
+
+    /**
+     * 将批量命令转换为Redis命令后流水线发送，只需一次网络往返
+     *
+     * @return 按命令顺序排列的执行结果
+     */
+    private List<Object> doPipeline(List<Command> commands) {
+        List<Object> results = new ArrayList<Object>(commands.size());
+        if (commands.isEmpty()) {
+            return results;
+        }
+
+        // HPUT需要额外发送PEXPIRE，记录每条命令对应的应答位置
+        int[] positions = new int[commands.size()];
+        List<byte[][]> requests = new ArrayList<byte[][]>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            Command command = commands.get(i);
+            byte[] key = doEncode(command.getKey());
+            positions[i] = requests.size();
+            long expirationTime;
+            switch (command.getType()) {
+                case CachePipeline.COMMAND_GET:
+                    requests.add(new byte[][] {doEncode("GET"), key});
+                    break;
+                case CachePipeline.COMMAND_PUT:
+                    expirationTime = doGetExpirationTime(command);
+                    if (expirationTime > 0) {
+                        requests.add(new byte[][] {doEncode("SET"), key, command.getValue().array(),
+                                doEncode("PX"), doEncode(String.valueOf(expirationTime))});
+                    } else {
+                        requests.add(new byte[][] {doEncode("SET"), key, command.getValue().array()});
+                    }
+                    break;
+                case CachePipeline.COMMAND_HGET:
+                    requests.add(new byte[][] {doEncode("HGET"), key, doEncode(command.getField())});
+                    break;
+                case CachePipeline.COMMAND_HPUT:
+                    requests.add(new byte[][] {doEncode("HSET"), key,
+                            doEncode(command.getField()), command.getValue().array()});
+                    expirationTime = doGetExpirationTime(command);
+                    if (expirationTime > 0) {
+                        requests.add(new byte[][] {doEncode("PEXPIRE"), key,
+                                doEncode(String.valueOf(expirationTime))});
+                    }
+                    break;
+                case CachePipeline.COMMAND_REMOVE:
+                    requests.add(new byte[][] {doEncode("DEL"), key});
+                    break;
+                case CachePipeline.COMMAND_HREMOVE:
+                    requests.add(new byte[][] {doEncode("HDEL"), key, doEncode(command.getField())});
+                    break;
+                case CachePipeline.COMMAND_EXPIRE:
+                    requests.add(new byte[][] {doEncode("PEXPIRE"), key,
+                            doEncode(String.valueOf(command.getExpirationTime()))});
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown pipeline command " + command.getType());
+            }
+        }
+
+        List<RedisReply> replies = doCall(requests);
+        for (int i = 0; i < commands.size(); i++) {
+            RedisReply reply = replies.get(positions[i]);
+            switch (commands.get(i).getType()) {
+                case CachePipeline.COMMAND_GET:
+                case CachePipeline.COMMAND_HGET:
+                    byte[] value = reply.isError() ? null : reply.getBytes();
+                    if (value == null) {
+                        statistics.addMissCount();
+                        results.add(null);
+                    } else {
+                        statistics.addHitCount();
+                        results.add(ProtoBuf.wrap(value));
+                    }
+                    break;
+                case CachePipeline.COMMAND_EXPIRE:
+                    results.add(!reply.isError() && reply.getLong() > 0);
+                    break;
+                default:
+                    results.add(!reply.isError());
+                    break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 获取批量命令的过期时间，单位毫秒，小于等于0为永不过期
+     */
+    private long doGetExpirationTime(Command command) {
+        int expirationTime = command.getExpirationTime();
+        if (expirationTime == CachePipeline.EXPIRATION_DEFAULT) {
+            return doGetExpirationTime();
+        }
+        return expirationTime;
+    }
+
+    private byte[][] doSetCommand(String key, byte[] value) {
+        long expirationTime = doGetExpirationTime();
+        if (expirationTime > 0) {
+            return new byte[][] {doEncode("SET"), doEncode(key), value,
+                    doEncode("PX"), doEncode(String.valueOf(expirationTime))};
+        }
+        return new byte[][] {doEncode("SET"), doEncode(key), value};
+    }
+
+    private RedisReply doCall(byte[]... args) {
+        try {
+            return client.call(args);
+        } catch (IOException e) {
+            throw new IllegalStateException("Redis Command Execute Error", e);
+        }
+    }
+
+    private List<RedisReply> doCall(List<byte[][]> commands) {
+        try {
+            return client.call(commands);
+        } catch (IOException e) {
+            throw new IllegalStateException("Redis Command Execute Error", e);
+        }
+    }
+
+    /**
+     * 获取过期时间，单位毫秒，小于等于0为永不过期
+     */
+    private long doGetExpirationTime() {
+        RedisConfig redisConfig = config.getRedisConfig();
+        int expirationTime = redisConfig.getExpirationTime();
+        if (redisConfig.isExpirationTimeRandom()) {
+            // 设置过期时间随机，避免同一时间有大量缓存过期导致回缓压力大
+            int timeMin = redisConfig.getExpirationTimeRandomMin();
+            int timeMax = redisConfig.getExpirationTimeRandomMax();
+            expirationTime = random.nextInt(timeMax - timeMin) + timeMin;
+        }
+        return expirationTime;
+    }
+
+    private byte[] doEncode(String value) {
+        return value.getBytes(charset);
+    }
+
+    private static final IoSubscriber<RedisReply> IGNORE_SUBSCRIBER = new IoSubscriber<RedisReply>() {
+        @Override
+        public void onNext(RedisReply value) {
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+        }
+    };
+}
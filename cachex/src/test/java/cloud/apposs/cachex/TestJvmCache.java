@@ -1,16 +1,26 @@
 package cloud.apposs.cachex;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import cloud.apposs.cachex.CacheXConfig;
 import cloud.apposs.cachex.CacheXConfig.JvmConfig;
 import cloud.apposs.cachex.memory.Cache;
+import cloud.apposs.cachex.memory.CachePipeline;
+import cloud.apposs.cachex.memory.CachePipelineHandler;
 import cloud.apposs.cachex.memory.jvm.Element;
 import cloud.apposs.cachex.memory.jvm.JvmCache;
 import cloud.apposs.cachex.memory.jvm.JvmCacheListenerAdapter;
+import cloud.apposs.protobuf.ProtoBuf;
 import cloud.apposs.protobuf.ProtoSchema;
+import cloud.apposs.util.Param;
 
 /**
  * -Xms100M -Xmx100M -Xmn10M -XX:+PrintGCDateStamps -XX:+PrintGCDetails
@@ -187,6 +197,376 @@ public class TestJvmCache {
 		System.out.println("batch execute:" + (System.currentTimeMillis() - start));
 	}
 	
+	/**
+	 * 测试批量获取、添加、删除缓存以及单独指定过期时间
+	 */
+	@Test
+	public void testMgetMput() throws Exception {
+		CacheXConfig config = new CacheXConfig();
+		Cache cache = new JvmCache(config);
+		Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>();
+		Map<String, Integer> expirationTimes = new HashMap<String, Integer>();
+		List<String> keys = new ArrayList<String>();
+		for (int i = 0; i < 10; i++) {
+			String key = "MyKey" + i;
+			values.put(key, ProtoBuf.wrap(("MyValue" + i).getBytes()));
+			keys.add(key);
+		}
+		expirationTimes.put("MyKey0", 50);
+		Assert.assertTrue(cache.mput(values, expirationTimes));
+		keys.add("MyKeyNotExist");
+		Map<String, ProtoBuf> results = cache.mget(keys);
+		Assert.assertEquals(10, results.size());
+		Assert.assertEquals("MyValue3", new String(results.get("MyKey3").array()));
+		Thread.sleep(100);
+		results = cache.mget(keys);
+		Assert.assertEquals(9, results.size());
+		Assert.assertFalse(results.containsKey("MyKey0"));
+
+		Assert.assertTrue(cache.mdelete(keys.subList(0, 5)));
+		Assert.assertEquals(5, cache.mget(keys).size());
+
+		cache.hput("MyHKey", "f1", "v1");
+		cache.hput("MyHKey", "f2", "v2");
+		Map<String, ProtoBuf> fields = cache.hmget("MyHKey", Arrays.asList("f1", "f2", "f3"));
+		Assert.assertEquals(2, fields.size());
+		Assert.assertEquals("v2", fields.get("f2").getString());
+	}
+
+	/**
+	 * 测试批量命令执行，结果按命令添加顺序返回
+	 */
+	@Test
+	public void testPipeline() throws Exception {
+		CacheXConfig config = new CacheXConfig();
+		Cache cache = new JvmCache(config);
+		List<Object> results = cache.pipeline(new CachePipelineHandler() {
+			@Override
+			public void handle(CachePipeline pipeline) {
+				pipeline.put("MyKey", ProtoBuf.wrap("MyValue".getBytes()))
+					.hput("MyHKey", "f1", ProtoBuf.wrap("v1".getBytes()))
+					.get("MyKey")
+					.hget("MyHKey", "f1")
+					.get("MyKeyNotExist")
+					.remove("MyKey")
+					.get("MyKey");
+			}
+		});
+		Assert.assertEquals(7, results.size());
+		Assert.assertEquals(Boolean.TRUE, results.get(0));
+		Assert.assertEquals(Boolean.TRUE, results.get(1));
+		Assert.assertEquals("MyValue", new String(((ProtoBuf) results.get(2)).array()));
+		Assert.assertEquals("v1", new String(((ProtoBuf) results.get(3)).array()));
+		Assert.assertNull(results.get(4));
+		Assert.assertEquals(Boolean.TRUE, results.get(5));
+		Assert.assertNull(results.get(6));
+	}
+
+	/**
+	 * 对比逐个获取与批量获取的性能，本地缓存没有网络往返，批量接口主要节省了统计计数和结果集扩容开销
+	 */
+	@Test
+	@Ignore("基准测试，耗时较长，需要时手动运行")
+	public void testBatchBenchmark() throws Exception {
+		CacheXConfig config = new CacheXConfig();
+		Cache cache = new JvmCache(config);
+		int[] sizes = {10, 100, 1000};
+		int rounds = 2000;
+		for (int size : sizes) {
+			Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>();
+			List<String> keys = new ArrayList<String>(size);
+			for (int i = 0; i < size; i++) {
+				String key = "MyKey" + size + "-" + i;
+				values.put(key, ProtoBuf.wrap(("MyValue" + i).getBytes()));
+				keys.add(key);
+			}
+			cache.mput(values);
+			for (int warm = 0; warm < rounds; warm++) {
+				cache.mget(keys);
+				for (String key : keys) {
+					cache.get(key);
+				}
+			}
+
+			long start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				Map<String, ProtoBuf> results = new HashMap<String, ProtoBuf>();
+				for (String key : keys) {
+					ProtoBuf value = cache.get(key);
+					if (value != null) {
+						results.put(key, value);
+					}
+				}
+			}
+			long single = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				cache.mget(keys);
+			}
+			long batch = System.nanoTime() - start;
+			System.out.println("keys:" + size + " get:" + single / rounds / 1000 + "us/op mget:"
+				+ batch / rounds / 1000 + "us/op");
+		}
+	}
+
+	/**
+	 * 对比各回收策略在Zipf分布访问和夹杂一次性扫描访问下的命中率，
+	 * 每次访问先get，未命中再put，模拟回源后回填缓存
+	 */
+	@Test
+	public void testEvictionPolicyHitRate() throws Exception {
+		int keyCount = 20000;
+		int maxElements = 1000;
+		int accessCount = 300000;
+		String[] policies = {null, "LRU", "LFU", "TINYLFU"};
+		String[] zipfTrace = doGenerateZipfTrace(keyCount, accessCount, 0, 0);
+		String[] scanTrace = doGenerateZipfTrace(keyCount, accessCount, 5000, 3000);
+		Map<String, Double> scanHitRates = new HashMap<String, Double>();
+		for (String policy : policies) {
+			double zipfHitRate = doReplayTrace(policy, maxElements, zipfTrace);
+			double scanHitRate = doReplayTrace(policy, maxElements, scanTrace);
+			scanHitRates.put(String.valueOf(policy), scanHitRate);
+			System.out.println("policy:" + policy + " zipf:" + String.format("%.2f%%", zipfHitRate * 100)
+				+ " zipf+scan:" + String.format("%.2f%%", scanHitRate * 100));
+		}
+		Assert.assertTrue(scanHitRates.get("TINYLFU") > scanHitRates.get("LRU"));
+	}
+
+	/**
+	 * 测试过期时间轮，未被访问的过期缓存由过期服务删除，重新设置过期时间后按新的时间过期
+	 */
+	@Test
+	public void testExpireTimerWheel() throws Exception {
+		CacheXConfig config = new CacheXConfig();
+		config.getJvmConfig().setExpireCheckInterval(100);
+		JvmCache cache = new JvmCache(config);
+		Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>();
+		Map<String, Integer> expirationTimes = new HashMap<String, Integer>();
+		for (int i = 0; i < 2000; i++) {
+			String key = "MyKey" + i;
+			values.put(key, ProtoBuf.wrap(("MyValue" + i).getBytes()));
+			if (i < 1000) {
+				expirationTimes.put(key, 200);
+			}
+		}
+		cache.mput(values, expirationTimes);
+		cache.hput("MyHKey", "f1", "v1");
+		cache.expire("MyHKey", 200);
+		// MyKey1999原本永不过期，设置过期时间后需要调度到时间轮中
+		cache.expire("MyKey1999", 200);
+		// MyKey1原本会过期，延长过期时间后需要重新调度
+		cache.expire("MyKey1", 60 * 1000);
+		Assert.assertEquals(1002, cache.getTimerWheel().size());
+
+		// 时间轮最小精度为1.024秒
+		Thread.sleep(2500);
+		Assert.assertEquals(1000, cache.getCache0().size());
+		Assert.assertTrue(cache.getCache1().isEmpty());
+		Assert.assertTrue(cache.exists("MyKey1"));
+		Assert.assertFalse(cache.exists("MyKey1999"));
+		Assert.assertEquals(1, cache.getTimerWheel().size());
+
+		// 查询时惰性删除过期缓存
+		cache.expire("MyKey1000", 10);
+		Thread.sleep(20);
+		Assert.assertFalse(cache.exists("MyKey1000"));
+		Assert.assertEquals(1, cache.getTimerWheel().size());
+	}
+
+	/**
+	 * 对比全量扫描与时间轮的过期检查CPU开销，1%的缓存在1~11秒内均匀过期，其余1小时后过期，每秒检查一次，
+	 * 全量扫描只判断不删除，已经是旧过期服务开销的下限，时间轮包括删除过期缓存的开销，
+	 * 测试10M条缓存需要-Xmx4g以上
+	 */
+	@Test
+	@Ignore("基准测试，耗时较长，需要时手动运行")
+	public void testExpireBenchmark() throws Exception {
+		int count = 1000000;
+		CacheXConfig config = new CacheXConfig();
+		config.getJvmConfig().setExpireCheckInterval(Integer.MAX_VALUE);
+		JvmCache cache = new JvmCache(config);
+		java.util.Random random = new java.util.Random(47);
+		ProtoBuf value = ProtoBuf.wrap("MyValue".getBytes());
+		Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>();
+		Map<String, Integer> expirationTimes = new HashMap<String, Integer>();
+		for (int i = 0; i < count; i++) {
+			String key = "MyKey" + i;
+			values.put(key, value);
+			int expirationTime = i % 100 == 0 ? 1000 + random.nextInt(10000) : 3600 * 1000;
+			expirationTimes.put(key, expirationTime);
+			if (values.size() == 10000) {
+				cache.mput(values, expirationTimes);
+				values.clear();
+				expirationTimes.clear();
+			}
+		}
+		cache.mput(values, expirationTimes);
+
+		java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+		long scanTime = 0;
+		long wheelTime = 0;
+		int ticks = 13;
+		for (int tick = 0; tick < ticks; tick++) {
+			Thread.sleep(1000);
+			long start = bean.getCurrentThreadCpuTime();
+			int scanned = 0;
+			for (Element element : cache.getCache0().values()) {
+				if (element.isExpired()) {
+					scanned++;
+				}
+			}
+			scanTime += bean.getCurrentThreadCpuTime() - start;
+
+			start = bean.getCurrentThreadCpuTime();
+			List<Element> expired = cache.getTimerWheel().advance(System.currentTimeMillis());
+			for (Element element : expired) {
+				cache.remove(element.getKey());
+			}
+			wheelTime += bean.getCurrentThreadCpuTime() - start;
+			System.out.println("tick:" + tick + " size:" + cache.size() + " scanExpired:" + scanned
+				+ " wheelExpired:" + expired.size());
+		}
+		System.out.println("entries:" + count + " scan:" + scanTime / ticks / 1000000 + "ms/tick wheel:"
+			+ wheelTime / ticks / 1000000 + "ms/tick");
+		Assert.assertEquals(count - count / 100, cache.size());
+	}
+
+	/**
+	 * 测试直接存储对象，命中时返回缓存的对象，获取字节数据时再序列化
+	 */
+	@Test
+	public void testStoreObject() throws Exception {
+		CacheXConfig config = new CacheXConfig();
+		config.getJvmConfig().setStoreObject(true);
+		JvmCache cache = new JvmCache(config);
+		ProtoSchema schema = ProtoSchema.getSchema(Product.class);
+		Product product = new Product(1, "MyProduct");
+		Assert.assertTrue(cache.put("MyKey", product, schema));
+		Assert.assertSame(product, cache.getObject("MyKey", Product.class, schema));
+		Assert.assertTrue(cache.getByteSize() > 0);
+
+		ProtoBuf buffer = cache.get("MyKey");
+		Product decoded = buffer.getObject(Product.class, schema);
+		Assert.assertEquals(1, decoded.getId());
+		Assert.assertEquals("MyProduct", decoded.getName());
+
+		List<Product> products = new ArrayList<Product>();
+		for (int i = 0; i < 10; i++) {
+			products.add(new Product(i, "MyProduct" + i));
+		}
+		ProtoSchema listSchema = ProtoSchema.listSchema(Product.class, schema);
+		cache.put("MyListKey", products, listSchema);
+		List<?> cached = cache.getList("MyListKey", listSchema);
+		Assert.assertEquals(products, cached);
+		try {
+			// 直接存储的List为只读拷贝，读取方不能修改
+			cached.remove(0);
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		Param param = Param.builder("id", 1).setParam("info", Param.builder("name", "MyProduct"));
+		ProtoSchema paramSchema = ProtoSchema.paramSchema().addKey("id", Integer.class)
+			.addKey("info", Param.class, ProtoSchema.paramSchema().addKey("name", String.class));
+		cache.put("MyParamKey", param, paramSchema);
+		// 调用方修改原对象不影响缓存
+		param.getParam("info").setString("name", "MyModified");
+		Param cachedParam = cache.getParam("MyParamKey", paramSchema);
+		Assert.assertEquals("MyProduct", cachedParam.getParam("info").getString("name"));
+		try {
+			cachedParam.getParam("info").setString("name", "MyModified");
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		// 字节数据只序列化一次，每次返回的ProtoBuf互不影响
+		ProtoBuf paramBuffer = cache.get("MyParamKey");
+		Assert.assertEquals("MyProduct", paramBuffer.getParam(paramSchema).getParam("info").getString("name"));
+		Assert.assertEquals(1, cache.get("MyParamKey").getParam(paramSchema).getInt("id").intValue());
+
+		// 覆盖后内存占用只保留新数据
+		long byteSize = cache.getByteSize();
+		cache.put("MyListKey", products, listSchema);
+		Assert.assertEquals(byteSize, cache.getByteSize());
+	}
+
+	/**
+	 * 对比序列化存储与直接存储对象时getList命中的耗时
+	 */
+	@Test
+	@Ignore("基准测试，耗时较长，需要时手动运行")
+	public void testStoreObjectBenchmark() throws Exception {
+		ProtoSchema schema = ProtoSchema.getSchema(Product.class);
+		ProtoSchema listSchema = ProtoSchema.listSchema(Product.class, schema);
+		List<Product> products = new ArrayList<Product>();
+		for (int i = 0; i < 50; i++) {
+			products.add(new Product(i, "MyProduct" + i));
+		}
+		int rounds = 100000;
+		for (boolean storeObject : new boolean[] {false, true}) {
+			CacheXConfig config = new CacheXConfig();
+			config.getJvmConfig().setStoreObject(storeObject);
+			JvmCache cache = new JvmCache(config);
+			cache.put("MyKey", products, listSchema);
+			for (int i = 0; i < rounds; i++) {
+				cache.getList("MyKey", listSchema);
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < rounds; i++) {
+				cache.getList("MyKey", listSchema);
+			}
+			long cost = System.nanoTime() - start;
+			System.out.println("storeObject:" + storeObject + " getList:" + cost / rounds + "ns/op byteSize:"
+				+ cache.getByteSize());
+		}
+	}
+
+	private static double doReplayTrace(String policy, int maxElements, String[] trace) {
+		CacheXConfig config = new CacheXConfig();
+		JvmConfig jvmConfig = config.getJvmConfig();
+		jvmConfig.setMaxElements(maxElements);
+		jvmConfig.setEvictionPolicy(policy);
+		JvmCache cache = new JvmCache(config);
+		ProtoBuf value = ProtoBuf.wrap("MyValue".getBytes());
+		int hitCount = 0;
+		for (int i = 0; i < trace.length; i++) {
+			if (cache.get(trace[i]) != null) {
+				hitCount++;
+			} else {
+				cache.put(trace[i], value);
+			}
+		}
+		Assert.assertTrue(cache.size() <= maxElements);
+		return (double) hitCount / trace.length;
+	}
+
+	/**
+	 * 生成Zipf分布的访问序列
+	 *
+	 * @param scanInterval 每隔多少次访问插入一次扫描，为0时不插入
+	 * @param scanLength   每次扫描访问的一次性Key数量
+	 */
+	private static String[] doGenerateZipfTrace(int keyCount, int accessCount, int scanInterval, int scanLength) {
+		double[] cdf = new double[keyCount];
+		double sum = 0;
+		for (int i = 0; i < keyCount; i++) {
+			sum += 1.0 / Math.pow(i + 1, 0.9);
+			cdf[i] = sum;
+		}
+		java.util.Random random = new java.util.Random(47);
+		List<String> trace = new ArrayList<String>(accessCount);
+		int scanKey = 0;
+		while (trace.size() < accessCount) {
+			if (scanInterval > 0 && trace.size() > 0 && trace.size() % scanInterval == 0) {
+				for (int i = 0; i < scanLength; i++) {
+					trace.add("ScanKey" + scanKey++);
+				}
+			}
+			int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+			trace.add("MyKey" + (index < 0 ? -index - 1 : index));
+		}
+		return trace.toArray(new String[trace.size()]);
+	}
+
 	public static class Product {
 		private int id;
 		
@@ -1,14 +1,21 @@
 package cloud.apposs.cachex;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import cloud.apposs.cachex.CacheXConfig.RedisConfig;
 import cloud.apposs.cachex.CacheXConfig.RedisConfig.RedisServer;
+import cloud.apposs.cachex.memory.CachePipeline;
+import cloud.apposs.cachex.memory.CachePipelineHandler;
 import cloud.apposs.cachex.memory.redis.RedisCache;
+import cloud.apposs.protobuf.ProtoBuf;
 import cloud.apposs.protobuf.ProtoSchema;
 
 public class TestRedisCache {
@@ -98,6 +105,69 @@ public class TestRedisCache {
 		System.out.println(products.size());
 	}
 	
+	/**
+	 * 对比逐个读写与批量读写的耗时，批量接口只需一次网络往返
+	 */
+	@Test
+	@Ignore("基准测试，耗时较长，需要时手动运行")
+	public void testBatchBenchmark() throws Exception {
+		int[] sizes = {10, 100, 1000};
+		int rounds = 100;
+		for (int size : sizes) {
+			Map<String, ProtoBuf> values = new HashMap<String, ProtoBuf>();
+			List<String> keys = new ArrayList<String>(size);
+			for (int i = 0; i < size; i++) {
+				String key = "MyKey" + size + "-" + i;
+				values.put(key, ProtoBuf.wrap(("MyValue" + i).getBytes()));
+				keys.add(key);
+			}
+
+			long start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				for (Map.Entry<String, ProtoBuf> entry : values.entrySet()) {
+					cache.put(entry.getKey(), entry.getValue());
+				}
+			}
+			long put = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				cache.mput(values);
+			}
+			long mput = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				for (String key : keys) {
+					cache.get(key);
+				}
+			}
+			long get = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				cache.mget(keys);
+			}
+			long mget = System.nanoTime() - start;
+			cache.mdelete(keys);
+			System.out.println("keys:" + size + " put:" + put / rounds / 1000 + "us/op mput:" + mput / rounds / 1000
+				+ "us/op get:" + get / rounds / 1000 + "us/op mget:" + mget / rounds / 1000 + "us/op");
+		}
+	}
+
+	@Test
+	public void testPipeline() throws Exception {
+		List<Object> results = cache.pipeline(new CachePipelineHandler() {
+			@Override
+			public void handle(CachePipeline pipeline) {
+				pipeline.put("MyKey", ProtoBuf.wrap("MyValue".getBytes()), 60000)
+					.hput("MyHKey", "f1", ProtoBuf.wrap("v1".getBytes()))
+					.get("MyKey")
+					.hget("MyHKey", "f1")
+					.remove("MyKey")
+					.remove("MyHKey");
+			}
+		});
+		System.out.println(results);
+	}
+
 	public static class Product {
 		private int id;
 		
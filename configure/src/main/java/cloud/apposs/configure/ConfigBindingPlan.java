@@ -0,0 +1,271 @@
+package cloud.apposs.configure;
+
+import cloud.apposs.util.StrUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 配置类绑定计划，首次解析某个配置类时解析该类声明的setXXX方法、同名属性、{@link Optional}注解和List/Map泛型类型，
+ * 并将setter、属性读取和空构造函数编译为MethodHandle，之后该类的每次配置解析（包括配置重载）直接使用，
+ * 不再重复反射查找，XML和JSON配置解析器共用
+ */
+final class ConfigBindingPlan {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final Map<Class<?>, ConfigBindingPlan> PLANS = new ConcurrentHashMap<Class<?>, ConfigBindingPlan>();
+
+    private final Class<?> clazz;
+
+    /**
+     * 空构造函数句柄，类型为()Object，没有空构造函数时为null
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * 类声明的单参数setXXX方法对应的属性绑定
+     */
+    private final PropertyBinding[] properties;
+
+    private ConfigBindingPlan(Class<?> clazz, MethodHandle constructor, PropertyBinding[] properties) {
+        this.clazz = clazz;
+        this.constructor = constructor;
+        this.properties = properties;
+    }
+
+    /**
+     * 获取类的绑定计划，只解析该类自身声明的方法和属性，父类由调用方按继承层级分别获取
+     */
+    static ConfigBindingPlan of(Class<?> clazz) throws IllegalAccessException {
+        ConfigBindingPlan plan = PLANS.get(clazz);
+        if (plan == null) {
+            plan = doBuildPlan(clazz);
+            ConfigBindingPlan oldPlan = PLANS.putIfAbsent(clazz, plan);
+            if (oldPlan != null) {
+                plan = oldPlan;
+            }
+        }
+        return plan;
+    }
+
+    PropertyBinding[] getProperties() {
+        return properties;
+    }
+
+    /**
+     * 通过空构造函数创建配置对象
+     */
+    Object newInstance() throws Exception {
+        if (constructor == null) {
+            throw new InstantiationException(clazz.getName() + " has no default constructor");
+        }
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Throwable t) {
+            throw doRethrow(t);
+        }
+    }
+
+    private static ConfigBindingPlan doBuildPlan(Class<?> clazz) throws IllegalAccessException {
+        MethodHandle constructor = null;
+        try {
+            Constructor<?> defaultConstructor = clazz.getDeclaredConstructor();
+            defaultConstructor.setAccessible(true);
+            constructor = LOOKUP.unreflectConstructor(defaultConstructor).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException e) {
+            // 没有空构造函数，只能绑定已有对象
+        }
+
+        List<PropertyBinding> propertyList = new ArrayList<PropertyBinding>();
+        for (Method method : clazz.getDeclaredMethods()) {
+            if (!method.getName().startsWith("set") || method.getParameterTypes().length != 1) {
+                continue;
+            }
+            String name = StrUtil.lowerFirst(method.getName().substring(3));
+            method.setAccessible(true);
+            MethodHandle setter = LOOKUP.unreflect(method)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            Field field = null;
+            try {
+                field = clazz.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // setXXX方法没有同名属性，只能直接赋值
+            }
+            propertyList.add(new PropertyBinding(name, method, setter, field));
+        }
+        return new ConfigBindingPlan(clazz, constructor,
+                propertyList.toArray(new PropertyBinding[propertyList.size()]));
+    }
+
+    private static Exception doRethrow(Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t instanceof Exception) {
+            return (Exception) t;
+        }
+        return new RuntimeException(t);
+    }
+
+    /**
+     * 单个属性的绑定信息
+     */
+    static final class PropertyBinding {
+        private final String name;
+
+        /**
+         * setXXX方法参数类型
+         */
+        private final Class<?> type;
+
+        /**
+         * setter句柄，类型为(Object, Object)void
+         */
+        private final MethodHandle setter;
+
+        /**
+         * 同名属性读取句柄，类型为(Object)Object，没有同名属性时为null
+         */
+        private final MethodHandle getter;
+
+        /**
+         * 同名属性的类型，没有同名属性时为null
+         */
+        private final Class<?> fieldType;
+
+        /**
+         * 属性对应的配置节点名，优先属性上的{@link Optional}注解，其次属性类型上的注解
+         */
+        private final String optional;
+
+        /**
+         * List元素类型或者Map值类型
+         */
+        private final Class<?> elementType;
+
+        /**
+         * Map键类型
+         */
+        private final Class<?> keyType;
+
+        private PropertyBinding(String name, Method method, MethodHandle setter, Field field) throws IllegalAccessException {
+            this.name = name;
+            this.type = method.getParameterTypes()[0];
+            this.setter = setter;
+            if (field != null) {
+                field.setAccessible(true);
+                this.getter = LOOKUP.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+                this.fieldType = field.getType();
+                this.optional = doGetOptional(field);
+            } else {
+                this.getter = null;
+                this.fieldType = null;
+                this.optional = null;
+            }
+            // 泛型类型优先从属性上获取，其次从setXXX方法参数上获取
+            Type genericType = field != null ? field.getGenericType() : method.getGenericParameterTypes()[0];
+            Class<?>[] typeArguments = doGetTypeArguments(genericType);
+            if (typeArguments == null && field != null) {
+                typeArguments = doGetTypeArguments(method.getGenericParameterTypes()[0]);
+            }
+            if (List.class.equals(type) && typeArguments != null && typeArguments.length == 1) {
+                this.keyType = null;
+                this.elementType = typeArguments[0];
+            } else if (Map.class.equals(type) && typeArguments != null && typeArguments.length == 2) {
+                this.keyType = typeArguments[0];
+                this.elementType = typeArguments[1];
+            } else {
+                this.keyType = null;
+                this.elementType = null;
+            }
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        boolean hasField() {
+            return getter != null;
+        }
+
+        Class<?> getFieldType() {
+            return fieldType;
+        }
+
+        String getOptional() {
+            return optional;
+        }
+
+        Class<?> getElementType() {
+            return elementType;
+        }
+
+        Class<?> getKeyType() {
+            return keyType;
+        }
+
+        void set(Object target, Object value) throws Exception {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable t) {
+                throw doRethrow(t);
+            }
+        }
+
+        /**
+         * 读取同名属性当前值
+         */
+        Object get(Object target) throws Exception {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable t) {
+                throw doRethrow(t);
+            }
+        }
+
+        private static String doGetOptional(Field field) {
+            Optional fieldOptional = field.getAnnotation(Optional.class);
+            if (fieldOptional != null && !StrUtil.isEmpty(fieldOptional.value())) {
+                return fieldOptional.value();
+            }
+            Optional typeOptional = field.getType().getAnnotation(Optional.class);
+            if (typeOptional != null && !StrUtil.isEmpty(typeOptional.value())) {
+                return typeOptional.value();
+            }
+            return null;
+        }
+
+        private static Class<?>[] doGetTypeArguments(Type genericType) {
+            if (!(genericType instanceof ParameterizedType)) {
+                return null;
+            }
+            Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+            Class<?>[] typeArguments = new Class<?>[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                Type argument = arguments[i];
+                if (argument instanceof Class) {
+                    typeArguments[i] = (Class<?>) argument;
+                } else if (argument instanceof ParameterizedType) {
+                    typeArguments[i] = (Class<?>) ((ParameterizedType) argument).getRawType();
+                } else {
+                    return null;
+                }
+            }
+            return typeArguments;
+        }
+    }
+}
@@ -1,27 +1,21 @@
 package cloud.apposs.configure;
 
+import cloud.apposs.configure.ConfigBindingPlan.PropertyBinding;
 import cloud.apposs.util.ReflectUtil;
 import cloud.apposs.util.ResourceUtil;
 import cloud.apposs.util.StrUtil;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 通过XML配置解析反射到对象中，具体配置规则可以如下：<br>
@@ -82,6 +76,7 @@ import java.util.concurrent.ConcurrentHashMap;
  *     }
  * }
  * </pre>
+ * XML通过StAX流式读取为轻量的元素树，不再构建DOM，属性绑定使用{@link ConfigBindingPlan}缓存的绑定计划
  */
 public final class XmlConfigParser implements ConfigurationParser {
 	public static final String XML_NODE_PROPERTY = "property";
@@ -90,6 +85,12 @@ public final class XmlConfigParser implements ConfigurationParser {
 	public static final String XML_NODE_MAP_KEY = "key";
 	public static final String XML_NODE_MAP_VALUE = "value";
 
+	private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+	static {
+		// 相邻的文本和CDATA合并为一个事件
+		XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+	}
+
 	@Override
 	public final void parse(Object object, String filename) throws Exception {
 		parse(object, ResourceUtil.getResource(filename));
@@ -97,102 +98,68 @@ public final class XmlConfigParser implements ConfigurationParser {
 
 	@Override
 	public final void parse(Object object, InputStream filestream) throws Exception {
-		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-		DocumentBuilder builder = dbf.newDocumentBuilder();
-		Document document = builder.parse(filestream);
-		document.getDocumentElement().normalize();
+		XmlElement document = doReadDocument(filestream);
+		if (document == null) {
+			return;
+		}
 
 		Class<?> clazz = object.getClass();
 		do {
-			Map<String, Method> methods = ReflectUtil.getDeclaredMethodMap(clazz);
 			String section = null;
 			// 获取类上的注解，通过注解读取配置节点下各子节点值并反射到类对象中
 			Optional modelOptional = clazz.getAnnotation(Optional.class);
 			if (modelOptional != null) {
 				section = modelOptional.value();
 			}
-            NodeList nodeList = null;
-            if (StrUtil.isEmpty(section)) {
-                nodeList = document.getChildNodes();
-            } else {
-                nodeList = document.getElementsByTagName(section);
-            }
-            Node node = nodeList.item(0);
-			doParseOptional((Element) node, null, methods, object, clazz);
+			XmlElement element = null;
+			if (StrUtil.isEmpty(section)) {
+				element = document;
+			} else {
+				element = document.findElement(section);
+			}
+			if (element != null) {
+				doParseOptional(element, null, ConfigBindingPlan.of(clazz), object);
+			}
 			clazz = clazz.getSuperclass();
 		} while(clazz != null);
 	}
 
-    private boolean doParseOptional(Element element, String section,
-                Map<String, Method> methods, Object object, Class<?> clazz) throws Exception {
-        List<Element> childElementList = null;
+    private boolean doParseOptional(XmlElement element, String section,
+                ConfigBindingPlan plan, Object object) throws Exception {
 		// 是否有指定要读取的XML节点，默认从根节点开始解析
 		if (!StrUtil.isEmpty(section)) {
-            childElementList = getChildrenByTagName(element, section);
-            if (childElementList == null || childElementList.isEmpty()) {
+            element = element.getChild(section);
+            if (element == null) {
                 return false;
             }
-            element = childElementList.get(0);
 		}
 
-        Map<String, Node> propertyNodeList = getPropertyNodeList(element);
-        Map<String, Node> unPropertyNodeList = getUnPropertyNodeList(element);
-        for (Entry<String, Method> entry : methods.entrySet()) {
-            String methodName = entry.getKey();
-            if (propertyNodeList.containsKey(methodName)) {
-                Node childNode = propertyNodeList.get(methodName);
-                if (childNode.getNodeType() != Node.ELEMENT_NODE) {
-                    continue;
-                }
-                doParsePropertyNode(element, childNode, object, clazz, entry.getValue());
-            } else if (unPropertyNodeList.containsKey(methodName)) {
+        Map<String, XmlElement> propertyNodeList = element.getPropertyNodeList();
+        Map<String, XmlElement> unPropertyNodeList = element.getUnPropertyNodeList();
+        for (PropertyBinding property : plan.getProperties()) {
+            String propertyName = property.getName();
+            if (propertyNodeList.containsKey(propertyName)) {
+                doParsePropertyNode(propertyNodeList.get(propertyName), object, property);
+            } else if (unPropertyNodeList.containsKey(propertyName) && property.hasField()) {
                 // 通过读取方法名在XML中的配置递归解析XML节点
-                Field field = clazz.getDeclaredField(methodName);
-                Class<?> fieldType = field.getType();
                 // 先获取属性上的值，没有则new一个对象，注意属性对象必须提供空构造函数
-                field.setAccessible(true);
-                Object fieldObject = field.get(object);
-                // 属性值为空并且没有setXXX方法则不走反射
-                if (fieldObject == null && !methods.containsKey(field.getName())) {
-                    continue;
-                }
+                Object fieldObject = property.get(object);
                 if (fieldObject == null) {
-                    fieldObject = fieldType.newInstance();
-                    methods.get(field.getName()).invoke(object, fieldObject);
+                    fieldObject = ConfigBindingPlan.of(property.getFieldType()).newInstance();
+                    property.set(object, fieldObject);
                 }
 
-                // 有可能属性类继承新增了方法，需要重新获取
-                Class<?> fieldClazz = fieldObject.getClass();
-                Map<String, Method> fieldMethods = ReflectUtil.getDeclaredMethodMap(fieldClazz);
-                doParseOptional(element, methodName, fieldMethods, fieldObject, fieldClazz);
-            } else if (ReflectUtil.isFieldExist(clazz, methodName)) {
+                // 有可能属性类继承新增了方法，需要按实际类型获取
+                doParseOptional(element, propertyName, ConfigBindingPlan.of(fieldObject.getClass()), fieldObject);
+            } else if (property.getOptional() != null) {
                 // 通过读取注解方式在XML中的配置递归解析XML节点
-                Field field = clazz.getDeclaredField(methodName);
-                Class<?> fieldType = field.getType();
-                Optional fieldOptional = field.getAnnotation(Optional.class);
-                Optional typeOptional = fieldType.getAnnotation(Optional.class);
-                // 优先属性上的注解
-                String annotationName = null;
-                if (fieldOptional != null) {
-                    annotationName = fieldOptional.value();
-                } else if (typeOptional != null) {
-                    annotationName = typeOptional.value();
-                }
-                if (!StrUtil.isEmpty(annotationName)) {
-                    Map<String, Method> fieldObjectMethods = ReflectUtil.getDeclaredMethodMap(fieldType);
-                    // 先获取属性上的值，没有则new一个对象，注意属性对象必须提供空构造函数
-                    field.setAccessible(true);
-                    Object fieldObject = field.get(object);
-                    // 属性值为空并且没有setXXX方法则不走反射
-                    if (fieldObject == null && !methods.containsKey(field.getName())) {
-                        continue;
-                    }
-                    if (fieldObject == null) {
-                        fieldObject = field.getType().newInstance();
-                        methods.get(field.getName()).invoke(object, fieldObject);
-                    }
-                    doParseOptional(element, annotationName, fieldObjectMethods, fieldObject, fieldObject.getClass());
+                // 先获取属性上的值，没有则new一个对象，注意属性对象必须提供空构造函数
+                Object fieldObject = property.get(object);
+                if (fieldObject == null) {
+                    fieldObject = ConfigBindingPlan.of(property.getFieldType()).newInstance();
+                    property.set(object, fieldObject);
                 }
+                doParseOptional(element, property.getOptional(), ConfigBindingPlan.of(fieldObject.getClass()), fieldObject);
             }
         }
 
@@ -200,170 +167,256 @@ public final class XmlConfigParser implements ConfigurationParser {
     }
 
     @SuppressWarnings("unchecked")
-    private boolean doParsePropertyNode(Element element, Node node, Object model, Class<?> modelClazz, Method method) throws Exception {
-        Element piece = (Element) node;
-        NamedNodeMap attributes = piece.getAttributes();
-        if (attributes == null || attributes.getLength() <= 0) {
-            return false;
-        }
-        String propName = attributes.getNamedItem(XML_NODE_ATTR_NAME).getNodeValue();
-        String propVal = piece.getTextContent();
-        if (propVal == null) {
-            return false;
-        }
-
+    private boolean doParsePropertyNode(XmlElement piece, Object model, PropertyBinding property) throws Exception {
         // 解析XML PROPERTY属性值并反射调用到类中
-        Class<?>[] methodTypes = method.getParameterTypes();
-        // setXXX(Object obj)方法必须要有参数
-        if (methodTypes.length != 1) {
-            return false;
-        }
-
-        if (methodTypes[0].equals(List.class)) {
-            Field field = modelClazz.getDeclaredField(propName);
-            field.setAccessible(true);
-            List<Object> fieldList = (List<Object>) field.get(model);
+        Class<?> propertyType = property.getType();
+        if (propertyType.equals(List.class)) {
+            Class<?> genericClazz = property.getElementType();
+            if (genericClazz == null || !property.hasField()) {
+                return false;
+            }
+            List<Object> fieldList = (List<Object>) property.get(model);
             if (fieldList == null) {
                 fieldList = new ArrayList<Object>();
-                method.invoke(model, fieldList);
+                property.set(model, fieldList);
             }
-            // 获取List泛型类型
-            ParameterizedType pt = (ParameterizedType)field.getGenericType();
-            Class<?> genericClazz = (Class<?>)pt.getActualTypeArguments()[0];
-            Optional ptOptional = genericClazz.getAnnotation(Optional.class);
+            List<XmlElement> childElementList = piece.getChildren(XML_NODE_LIST_VALUE);
             if (ReflectUtil.isGenericType(genericClazz)) {
                 // List值为普通数据类型，直接赋值List
-                List<Element> childElementList = getChildrenByTagName(piece, XML_NODE_LIST_VALUE);
                 for (int m = 0; m < childElementList.size(); m++) {
-                    Element childElement = childElementList.get(m);
-                    String elementMText = childElement.getTextContent();
-                    Object elementMVal = ReflectUtil.parseObject(elementMText, genericClazz);
+                    Object elementMVal = ReflectUtil.parseObject(childElementList.get(m).getTextContent(), genericClazz);
                     if (elementMVal != null) {
                         fieldList.add(elementMVal);
                     }
                 }
             } else {
                 // List值为自定义对象类型，递归解析对象并添加到List中
-                List<Element> childElementList = getChildrenByTagName(piece, XML_NODE_LIST_VALUE);
-                Map<String, Method> ptObjectMethods = ReflectUtil.getDeclaredMethodMap(genericClazz);
+                ConfigBindingPlan elementPlan = ConfigBindingPlan.of(genericClazz);
                 for (int m = 0; m < childElementList.size(); m++) {
-                    Element childElement = childElementList.get(m);
-                    // 先获取属性上的值，没有则new一个对象，注意属性对象必须提供空构造函数
-                    Object ptObject = genericClazz.newInstance();
-                    doParseOptional(childElement, null, ptObjectMethods, ptObject, ptObject.getClass());
+                    Object ptObject = elementPlan.newInstance();
+                    doParseOptional(childElementList.get(m), null, elementPlan, ptObject);
                     fieldList.add(ptObject);
                 }
             }
-        } else if (methodTypes[0].equals(Map.class)) {
-            Field field = modelClazz.getDeclaredField(propName);
-            field.setAccessible(true);
-            Map<Object, Object> fieldMap = (Map<Object, Object>) field.get(model);
+        } else if (propertyType.equals(Map.class)) {
+            Class<?> keyGenericClazz = property.getKeyType();
+            Class<?> valGenericClazz = property.getElementType();
+            if (valGenericClazz == null || !property.hasField()) {
+                return false;
+            }
+            Map<Object, Object> fieldMap = (Map<Object, Object>) property.get(model);
             if (fieldMap == null) {
                 fieldMap = new HashMap<Object, Object>();
-                method.invoke(model, fieldMap);
-            }
-            // 获取Map泛型类型
-            Type mapType = field.getGenericType();
-            if (!ParameterizedType.class.isAssignableFrom(mapType.getClass()) &&
-                    ((ParameterizedType) mapType).getActualTypeArguments().length != 2) {
-                return false;
+                property.set(model, fieldMap);
             }
-            Type[] mapTypes = ((ParameterizedType) mapType).getActualTypeArguments();
-            Class<?> keyGenericClazz = (Class<?>)mapTypes[0];
-            Class<?> valGenericClazz = (Class<?>)mapTypes[1];
+            List<XmlElement> childElementList = piece.getChildren(XML_NODE_MAP_VALUE);
             if (ReflectUtil.isGenericType(valGenericClazz)) {
                 // Map值为普通数据类型，继续解析Map其下的键值对
-                List<Element> childElementList = getChildrenByTagName(piece, XML_NODE_LIST_VALUE);
                 for (int m = 0; m < childElementList.size(); m++) {
-                    Element childElement = childElementList.get(m);
-                    NamedNodeMap attributes2 = childElement.getAttributes();
-                    String mapValText = childElement.getTextContent();
-                    if (attributes2 != null && attributes2.getLength() > 0) {
-                        Node keyNode = attributes2.getNamedItem(XML_NODE_MAP_KEY);
-                        if (keyNode == null) {
-                            continue;
-                        }
-                        String mapKey = keyNode.getNodeValue();
-                        Object mapKeyVal = ReflectUtil.parseObject(mapKey, keyGenericClazz);
-                        Object mapValVal = ReflectUtil.parseObject(mapValText, valGenericClazz);
-                        fieldMap.put(mapKeyVal, mapValVal);
+                    XmlElement childElement = childElementList.get(m);
+                    String mapKey = childElement.getAttribute(XML_NODE_MAP_KEY);
+                    if (mapKey == null) {
+                        continue;
                     }
+                    Object mapKeyVal = ReflectUtil.parseObject(mapKey, keyGenericClazz);
+                    Object mapValVal = ReflectUtil.parseObject(childElement.getTextContent(), valGenericClazz);
+                    fieldMap.put(mapKeyVal, mapValVal);
                 }
             } else {
                 // Map值为自定义对象类型，递归解析对象并添加到Map中
-                Map<String, Method> ptObjectMethods = ReflectUtil.getDeclaredMethodMap(valGenericClazz);
-                List<Element> childElementList = getChildrenByTagName(piece, XML_NODE_MAP_VALUE);
+                ConfigBindingPlan valuePlan = ConfigBindingPlan.of(valGenericClazz);
                 for (int m = 0; m < childElementList.size(); m++) {
-                    Element childElement = childElementList.get(m);
-                    NamedNodeMap attributes2 = childElement.getAttributes();
-                    Object mapValObject = valGenericClazz.newInstance();
-                    if (attributes2 != null && attributes2.getLength() > 0) {
-                        Node keyNode = attributes2.getNamedItem(XML_NODE_MAP_KEY);
-                        if (keyNode == null) {
-                            continue;
-                        }
-                        String mapKey = keyNode.getNodeValue();
-                        doParseOptional(childElement, null, ptObjectMethods, mapValObject, mapValObject.getClass());
-                        Object mapKeyVal = ReflectUtil.parseObject(mapKey, keyGenericClazz);
-                        fieldMap.put(mapKeyVal, mapValObject);
+                    XmlElement childElement = childElementList.get(m);
+                    String mapKey = childElement.getAttribute(XML_NODE_MAP_KEY);
+                    if (mapKey == null) {
+                        continue;
                     }
+                    Object mapValObject = valuePlan.newInstance();
+                    doParseOptional(childElement, null, valuePlan, mapValObject);
+                    Object mapKeyVal = ReflectUtil.parseObject(mapKey, keyGenericClazz);
+                    fieldMap.put(mapKeyVal, mapValObject);
                 }
             }
         } else {
-            Object nodeVal = ReflectUtil.parseObject(propVal, methodTypes[0]);
+            Object nodeVal = ReflectUtil.parseObject(piece.getTextContent(), propertyType);
             if (nodeVal != null) {
-                method.invoke(model, nodeVal);
+                property.set(model, nodeVal);
             }
         }
 
         return true;
     }
 
-    /**
-     * 获取顶层Element其下的子元素，不递归查找
-     */
-    private static List<Element> getChildrenByTagName(Element parent, String name) {
-        List<Element> nodeList = new ArrayList<Element>();
-        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
-            if (child.getNodeType() == Node.ELEMENT_NODE &&
-                    name.equals(child.getNodeName())) {
-                nodeList.add((Element) child);
-            }
-        }
-        return nodeList;
-    }
-
 	/**
-	 * 获取节点下同级所有property子节点
+	 * 流式读取XML为元素树，只保留元素、属性和文本，忽略注释和处理指令
 	 */
-	private Map<String, Node> getPropertyNodeList(Element element) {
-		Map<String, Node> nodeList = new ConcurrentHashMap<String, Node>();
-		NodeList childNodeList = element.getElementsByTagName(XML_NODE_PROPERTY);
-		for (int i = 0; i < childNodeList.getLength(); i++) {
-			Node node = childNodeList.item(i);
-			if (node.getNodeType() == Node.ELEMENT_NODE && node.getParentNode() == element) {
-				Element piece = (Element) node;
-				NamedNodeMap attributes = piece.getAttributes();
-				String attrName = attributes.getNamedItem(XML_NODE_ATTR_NAME).getNodeValue();
-				nodeList.put(attrName, node);
+	private static XmlElement doReadDocument(InputStream filestream) throws XMLStreamException {
+		XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(filestream);
+		try {
+			XmlElement document = null;
+			LinkedList<XmlElement> elementStack = new LinkedList<XmlElement>();
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					XmlElement element = new XmlElement(doGetQualifiedName(reader.getPrefix(), reader.getLocalName()));
+					for (int i = 0; i < reader.getAttributeCount(); i++) {
+						element.attributes.put(doGetQualifiedName(reader.getAttributePrefix(i),
+							reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+					}
+					if (elementStack.isEmpty()) {
+						document = element;
+					} else {
+						elementStack.getFirst().children.add(element);
+					}
+					elementStack.addFirst(element);
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					elementStack.removeFirst();
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					if (!elementStack.isEmpty()) {
+						elementStack.getFirst().text.append(reader.getText());
+					}
+					break;
+				default:
+					break;
+				}
 			}
+			return document;
+		} finally {
+			reader.close();
 		}
-		return nodeList;
+	}
+
+	private static String doGetQualifiedName(String prefix, String localName) {
+		if (StrUtil.isEmpty(prefix)) {
+			return localName;
+		}
+		return prefix + ":" + localName;
 	}
 
 	/**
-	 * 获取节点下同级所有非property子节点，用于递归解析
+	 * XML元素，按文档顺序保存子元素
 	 */
-	private Map<String, Node> getUnPropertyNodeList(Element element) {
-		Map<String, Node> nodeList = new ConcurrentHashMap<String, Node>();
-		NodeList childNodeList = element.getChildNodes();
-		for (int i = 0; i < childNodeList.getLength(); i++) {
-			Node node = childNodeList.item(i);
-			if (node.getNodeType() == Node.ELEMENT_NODE
-					&& node.getNodeName() != XML_NODE_PROPERTY) {
-				nodeList.put(node.getNodeName(), node);
+	private static final class XmlElement {
+		private final String name;
+
+		private final Map<String, String> attributes = new HashMap<String, String>(4);
+
+		private final List<XmlElement> children = new ArrayList<XmlElement>(4);
+
+		/** 元素自身的文本内容 */
+		private final StringBuilder text = new StringBuilder();
+
+		/** 同级property子元素和非property子元素，首次访问时构建 */
+		private Map<String, XmlElement> propertyNodeList;
+		private Map<String, XmlElement> unPropertyNodeList;
+
+		private XmlElement(String name) {
+			this.name = name;
+		}
+
+		private String getAttribute(String name) {
+			return attributes.get(name);
+		}
+
+		/**
+		 * 获取元素及其所有子元素的文本内容
+		 */
+		private String getTextContent() {
+			if (children.isEmpty()) {
+				return text.toString();
+			}
+			StringBuilder content = new StringBuilder(text);
+			for (XmlElement child : children) {
+				content.append(child.getTextContent());
+			}
+			return content.toString();
+		}
+
+		/**
+		 * 按文档顺序查找第一个匹配的元素，包括自身
+		 */
+		private XmlElement findElement(String name) {
+			if (this.name.equals(name)) {
+				return this;
+			}
+			for (XmlElement child : children) {
+				XmlElement element = child.findElement(name);
+				if (element != null) {
+					return element;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * 获取第一个匹配的子元素，不递归查找
+		 */
+		private XmlElement getChild(String name) {
+			for (XmlElement child : children) {
+				if (child.name.equals(name)) {
+					return child;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * 获取所有匹配的子元素，不递归查找
+		 */
+		private List<XmlElement> getChildren(String name) {
+			List<XmlElement> elementList = new ArrayList<XmlElement>();
+			for (XmlElement child : children) {
+				if (child.name.equals(name)) {
+					elementList.add(child);
+				}
+			}
+			return elementList;
+		}
+
+		/**
+		 * 获取节点下同级所有property子节点
+		 */
+		private Map<String, XmlElement> getPropertyNodeList() {
+			if (propertyNodeList == null) {
+				doBuildNodeList();
+			}
+			return propertyNodeList;
+		}
+
+		/**
+		 * 获取节点下同级所有非property子节点，用于递归解析
+		 */
+		private Map<String, XmlElement> getUnPropertyNodeList() {
+			if (unPropertyNodeList == null) {
+				doBuildNodeList();
+			}
+			return unPropertyNodeList;
+		}
+
+		private void doBuildNodeList() {
+			if (children.isEmpty()) {
+				propertyNodeList = Collections.emptyMap();
+				unPropertyNodeList = Collections.emptyMap();
+				return;
+			}
+			Map<String, XmlElement> properties = new HashMap<String, XmlElement>();
+			Map<String, XmlElement> unProperties = new HashMap<String, XmlElement>();
+			for (XmlElement child : children) {
+				if (XML_NODE_PROPERTY.equals(child.name)) {
+					String attrName = child.getAttribute(XML_NODE_ATTR_NAME);
+					if (attrName != null) {
+						properties.put(attrName, child);
+					}
+				} else {
+					unProperties.put(child.name, child);
+				}
 			}
+			propertyNodeList = properties;
+			unPropertyNodeList = unProperties;
 		}
-		return nodeList;
 	}
 }
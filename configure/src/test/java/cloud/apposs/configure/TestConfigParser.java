@@ -0,0 +1,111 @@
+package cloud.apposs.configure;
+
+import cloud.apposs.configure.MyConfigBean.GuardRule;
+import cloud.apposs.configure.MyConfigBean.MyLogConfigBean;
+import cloud.apposs.configure.TestConfiguration.MySvrOption;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+public class TestConfigParser {
+    @Test
+    public void testXmlParse() throws Exception {
+        MyConfigBean bean = new ConfigBeanExtend();
+        bean.setSvr(new MySvrOption());
+        ConfigurationFactory.getConfigurationParser(ConfigurationFactory.XML).parse(bean, TestConfiguration.BEAN_CFG_XML);
+        Assert.assertEquals("MyXmlBean", bean.getName());
+        Assert.assertEquals(10080, bean.getId());
+        Assert.assertEquals(3, bean.getCourses().size());
+        Assert.assertEquals(Integer.valueOf(95), bean.getScores().get("match"));
+        MyLogConfigBean log = bean.getLog();
+        Assert.assertEquals("/Log", log.getPath());
+        Assert.assertEquals(Integer.valueOf(2), log.getLevels().get(2));
+        Assert.assertEquals(110, log.getLimit().getId());
+        Assert.assertEquals("WXUsrWay", ((MySvrOption) bean.getSvr()).getUser());
+        Assert.assertEquals(2, bean.getRuleList().size());
+        Assert.assertEquals(3, bean.getRuleList().get(0).getCourses().size());
+        GuardRule rule = bean.getRuleInfo().get("fuse_avg_resptime");
+        Assert.assertEquals("FUSE", rule.getType());
+        Assert.assertEquals(20, rule.getThreshold());
+    }
+
+    @Test
+    public void testXmlParseCData() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<bean-config><!-- comment --><property name=\"name\"><![CDATA[a<b]]></property>"
+                + "<property name=\"id\">7</property></bean-config>";
+        MyConfigBean bean = new MyConfigBean();
+        new XmlConfigParser().parse(bean, new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        Assert.assertEquals("a<b", bean.getName());
+        Assert.assertEquals(7, bean.getId());
+        Assert.assertNull(bean.getLog());
+    }
+
+    @Test
+    public void testJsonParse() throws Exception {
+        MyConfigBean bean = new MyConfigBean();
+        bean.setSvr(new MySvrOption());
+        ConfigurationFactory.getConfigurationParser(ConfigurationFactory.JSON).parse(bean, TestConfiguration.BEAN_CFG_JSON);
+        Assert.assertEquals("MyJsonBean", bean.getName());
+        Assert.assertEquals(10080, bean.getId());
+        Assert.assertEquals(3, bean.getCourses().size());
+        Assert.assertEquals(3, bean.getScores().size());
+        MyLogConfigBean log = bean.getLog();
+        Assert.assertEquals("MyJsonLog", log.getName());
+        Assert.assertEquals(112, log.getLimit().getId());
+        Assert.assertEquals("AE*$#BFeA", ((MySvrOption) bean.getSvr()).getPwd());
+        Assert.assertEquals("flow_qps", bean.getRuleList().get(0).getResource());
+        Assert.assertEquals(3, bean.getRuleInfo().get("flow_qps").getCourses().size());
+    }
+
+    /**
+     * 配置重复解析性能，模拟配置重载
+     */
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testParseBenchmark() throws Exception {
+        byte[] xml = doReadResource(TestConfiguration.BEAN_CFG_XML);
+        byte[] json = doReadResource(TestConfiguration.BEAN_CFG_JSON);
+        ConfigurationParser xmlParser = new XmlConfigParser();
+        ConfigurationParser jsonParser = new JsonConfigParser();
+        int iterations = 20000;
+        long xmlCost = 0;
+        long jsonCost = 0;
+        for (int round = 0; round < 3; round++) {
+            // 前几轮预热
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                MyConfigBean bean = new MyConfigBean();
+                bean.setSvr(new MySvrOption());
+                xmlParser.parse(bean, new ByteArrayInputStream(xml));
+            }
+            xmlCost = (System.nanoTime() - start) / iterations;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                MyConfigBean bean = new MyConfigBean();
+                bean.setSvr(new MySvrOption());
+                jsonParser.parse(bean, new ByteArrayInputStream(json));
+            }
+            jsonCost = (System.nanoTime() - start) / iterations;
+        }
+        System.out.println(String.format("xml parse=%dns/op, json parse=%dns/op", xmlCost, jsonCost));
+    }
+
+    private static byte[] doReadResource(String filename) throws Exception {
+        InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream(filename);
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int n; (n = input.read(buffer)) != -1; ) {
+                output.write(buffer, 0, n);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -6,10 +6,32 @@ import cloud.apposs.netkit.server.http.HttpServer;
 import cloud.apposs.netkit.server.http.HttpServerConfig;
 import cloud.apposs.util.SystemInfo;
 
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.List;
 import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
 
 public final class ApplicationContext {
+    /**
+     * 配置热加载信号，即kill -HUP
+     */
+    private static final String RELOAD_SIGNAL = "HUP";
+
+    /**
+     * JDK内部信号类，非标准API，运行时通过反射获取，不存在时只能通过reload指令热加载
+     */
+    private static final String SIGNAL_CLASS = "sun.misc.Signal";
+    private static final String SIGNAL_HANDLER_CLASS = "sun.misc.SignalHandler";
+
+    /**
+     * 旧配置快照排空检查间隔
+     */
+    private static final long DRAIN_CHECK_INTERVAL = 100L;
+
     /**
      * 全局配置
      */
@@ -19,6 +41,11 @@ public final class ApplicationContext {
 
     private ApplicationHandler application;
 
+    /**
+     * 旧配置快照排空检查定时器，首次热加载时创建
+     */
+    private Timer drainTimer;
+
     public ApplicationContext() {
         this(new GatewayConfig());
     }
@@ -41,30 +68,157 @@ public final class ApplicationContext {
         doPrintSysInfomation();
 
         // 开始启动HTTP服务
-        HttpServerConfig httpConfig = new HttpServerConfig();
-        httpConfig.setHost(config.getHost());
-        httpConfig.setPort(config.getPort());
-        httpConfig.setNumOfGroup(config.getNumOfGroup());
-        httpConfig.setBacklog(config.getBacklog());
-        httpConfig.setTcpNoDelay(config.isTcpNoDelay());
-        httpConfig.setLowerHeaderKey(true);
-        bootstrap = new HttpServer(httpConfig);
-        application = new ApplicationHandler();
+        bootstrap = doCreateServer(config);
+        application = new ApplicationHandler(this);
         application.initialize(config);
         bootstrap.setHandler(application).start();
+        doRegisterReloadSignal();
 
         Logger.info("Gateway Application Start Success!");
         return this;
     }
 
     /**
-     * 配置加载新的底层网关处理内核，便于支持服务不重启热加载
+     * 重新加载配置文件，配置文件解析失败或者新配置初始化失败时继续使用当前配置
+     *
+     * @return 新配置快照版本
+     */
+    public synchronized long reload() throws Exception {
+        String configFile = config.getConfigFile();
+        if (configFile == null) {
+            throw new IllegalStateException("gateway config file not specified");
+        }
+        return reload(GatewayApplication.parseConfiguration(new File(configFile)));
+    }
+
+    /**
+     * 配置热加载，不重启服务，已建立的客户端连接不会断开：
+     * 1、新建请求路由、拦截器和反向代理集群并原子替换，正在处理的请求继续使用旧配置直到结束
+     * 2、旧配置在所有请求结束或者超过reload_drain_timeout后关闭处理器释放资源
+     * 3、监听地址未变化时继续使用原监听，变化时监听新地址，旧监听在旧配置排空后关闭
+     * 4、日志和network块中除reload_drain_timeout外的配置只在监听变化时生效
+     *
+     * @return 新配置快照版本
+     */
+    public synchronized long reload(GatewayConfig newConfig) throws Exception {
+        if (newConfig.getConfigFile() == null) {
+            newConfig.setConfigFile(config.getConfigFile());
+        }
+        HttpServer newBootstrap = null;
+        if (!config.getHost().equals(newConfig.getHost()) || config.getPort() != newConfig.getPort()) {
+            newBootstrap = doCreateServer(newConfig);
+            newBootstrap.setHandler(application).start();
+        }
+        ApplicationSnapshot oldSnapshot;
+        try {
+            oldSnapshot = application.reload(newConfig);
+        } catch (Exception e) {
+            if (newBootstrap != null) {
+                newBootstrap.shutdown();
+            }
+            throw e;
+        }
+        HttpServer oldBootstrap = null;
+        if (newBootstrap != null) {
+            oldBootstrap = bootstrap;
+            bootstrap = newBootstrap;
+        }
+        config = newConfig;
+        long version = application.getSnapshot().getVersion();
+        Logger.info("Gateway Config Reload Success, Version %d", version);
+        if (oldSnapshot != null) {
+            doScheduleDrain(oldSnapshot, oldBootstrap, newConfig.getReloadDrainTimeout());
+        }
+        return version;
+    }
+
+    public GatewayConfig getConfig() {
+        return config;
+    }
+
+    public ApplicationHandler getApplication() {
+        return application;
+    }
+
+    /**
+     * 配置加载新的底层网关处理内核，
+     * 注意已建立的客户端连接仍然使用旧的处理内核，配置热加载优先使用{@link #reload()}
      */
     public void setApplication(ApplicationHandler application) {
         this.application = application;
         bootstrap.setHandler(application);
     }
 
+    private static HttpServer doCreateServer(GatewayConfig config) {
+        HttpServerConfig httpConfig = new HttpServerConfig();
+        httpConfig.setHost(config.getHost());
+        httpConfig.setPort(config.getPort());
+        httpConfig.setNumOfGroup(config.getNumOfGroup());
+        httpConfig.setBacklog(config.getBacklog());
+        httpConfig.setTcpNoDelay(config.isTcpNoDelay());
+        httpConfig.setLowerHeaderKey(true);
+        // 底层不统一解析表单，由ApplicationHandler按匹配的处理器决定，反向代理原样流式转发BODY，其他处理器解析完整表单后再处理
+        httpConfig.setDecryptForm(false);
+        return new HttpServer(httpConfig);
+    }
+
+    /**
+     * 定时检查旧配置快照是否排空，排空或者超时后释放旧配置资源并关闭旧监听
+     */
+    private void doScheduleDrain(final ApplicationSnapshot oldSnapshot,
+            final HttpServer oldBootstrap, final long drainTimeout) {
+        if (drainTimer == null) {
+            drainTimer = new Timer("Gateway_Reload_Drain", true);
+        }
+        final long deadline = System.currentTimeMillis() + drainTimeout;
+        drainTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                if (!oldSnapshot.isReleased() && System.currentTimeMillis() < deadline) {
+                    return;
+                }
+                cancel();
+                oldSnapshot.forceRelease();
+                if (oldBootstrap != null) {
+                    oldBootstrap.shutdown();
+                }
+            }
+        }, DRAIN_CHECK_INTERVAL, DRAIN_CHECK_INTERVAL);
+    }
+
+    /**
+     * 注册配置热加载信号，收到kill -HUP时重新加载配置文件，
+     * 信号类属于JDK内部API，通过反射及动态代理注册，JDK或平台不支持时只能通过reload指令触发
+     */
+    private void doRegisterReloadSignal() {
+        if (config.getConfigFile() == null) {
+            return;
+        }
+        try {
+            ClassLoader classLoader = ApplicationContext.class.getClassLoader();
+            Class<?> signalClass = Class.forName(SIGNAL_CLASS, true, classLoader);
+            Class<?> handlerClass = Class.forName(SIGNAL_HANDLER_CLASS, true, classLoader);
+            Object signal = signalClass.getConstructor(String.class).newInstance(RELOAD_SIGNAL);
+            Object handler = Proxy.newProxyInstance(classLoader, new Class<?>[] {handlerClass}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this, args);
+                    }
+                    try {
+                        reload();
+                    } catch (Throwable t) {
+                        Logger.error(t, "Gateway Config Reload Fail");
+                    }
+                    return null;
+                }
+            });
+            signalClass.getMethod("handle", signalClass, handlerClass).invoke(null, signal, handler);
+        } catch (Throwable t) {
+            Logger.warn("Gateway Config Reload Signal %s Not Supported, Use Reload Location Instead", RELOAD_SIGNAL);
+        }
+    }
+
     /**
      * 初始化日志
      */
@@ -96,8 +250,11 @@ public final class ApplicationContext {
     /**
      * 关闭HTTP服务
      */
-    public void shutdown() {
+    public synchronized void shutdown() {
         bootstrap.shutdown();
         application.release();
+        if (drainTimer != null) {
+            drainTimer.cancel();
+        }
     }
 }
@@ -1,17 +1,23 @@
 package cloud.apposs.gateway;
 
 import cloud.apposs.gateway.handler.IHandler;
-import cloud.apposs.gateway.interceptor.HandlerInterceptor;
+import cloud.apposs.gateway.handler.IResponseStream;
+import cloud.apposs.netkit.WriteRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpConstants;
+import cloud.apposs.netkit.filterchain.http.server.HttpDecryptFilter;
 import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
 import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+import cloud.apposs.netkit.filterchain.http.server.HttpServerFilter;
+import cloud.apposs.netkit.filterchain.http.server.decrypt.FormDecrypt;
 import cloud.apposs.netkit.rxio.IoSubscriber;
 import cloud.apposs.netkit.rxio.RxIo;
+import cloud.apposs.netkit.server.ServerHandlerContext;
 import cloud.apposs.netkit.server.http.HttpHandler;
 import cloud.apposs.netkit.server.http.HttpSession;
-import cloud.apposs.util.AntPathMatcher;
 import cloud.apposs.util.HttpStatus;
 
-import java.util.List;
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * netkit底层会话处理器，每个http请求均在此类处理，全局单例，
@@ -19,66 +25,90 @@ import java.util.List;
  */
 public class ApplicationHandler extends HttpHandler {
     /**
-     * 处理器映射路由
+     * 连接属性，当前请求使用的配置快照
      */
-    private final HandlerRouter handlerRouter = new HandlerRouter();
+    private static final String CONTEXT_SNAPSHOT = "GatewaySnapshot";
 
     /**
-     * 参数Url匹配器
+     * 请求属性，当前请求BODY的接收状态
      */
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private static final String REQUEST_BODY = "GatewayRequestBody";
 
     /**
      * 网关统一异常处理服务
      */
     private final GatewayExceptionResolver exceptionResolver = new GatewayExceptionResolver();
 
+    /**
+     * 网关上下文，用于reload指令对应的处理器触发热加载，可为空
+     */
+    private final ApplicationContext context;
+
+    /**
+     * 当前配置快照，配置热加载时整体替换
+     */
+    private volatile ApplicationSnapshot snapshot;
+
+    private final AtomicLong versions = new AtomicLong();
+
+    public ApplicationHandler() {
+        this(null);
+    }
+
+    public ApplicationHandler(ApplicationContext context) {
+        this.context = context;
+    }
+
     /**
      * 根据配置初始化此网络请求处理器，
-     * 一般在服务启动时初始化，也可用于配置更新时的热加载初始化
+     * 一般在服务启动时初始化，也可用于配置更新时的热加载初始化，已经初始化过时等同于{@link #reload(GatewayConfig)}
      */
-    @SuppressWarnings("unchecked")
     public void initialize(GatewayConfig config) throws Exception {
-        // 添加请求路径处理器
-        List<GatewayConfig.Location> locations = config.getLocations();
-        for (GatewayConfig.Location location : locations) {
-            Class<IHandler> handlerClass = (Class<IHandler>) Class.forName(location.getClazz());
-            IHandler handler = handlerClass.newInstance();
-            // 初始化IHandler拦截器实例
-            List<GatewayConfig.Interceptor> interceptorList = location.getInterceptorList();
-            if (interceptorList != null) {
-                for (GatewayConfig.Interceptor interceptor : interceptorList) {
-                    String interceptorClassName = interceptor.getName();
-                    Class<HandlerInterceptor> handlerInterceptorClass = (Class<HandlerInterceptor>) Class.forName(interceptorClassName);
-                    HandlerInterceptor handlerInterceptor = handlerInterceptorClass.newInstance();
-                    handlerInterceptor.init(interceptor.getArguments());
-                    handler.addInterceptor(handlerInterceptor);
-                }
-            }
-            // 初始化IHandler实例参数，便于数据处理时根据conf配置参数进行对应的逻辑处理
-            String path = location.getPath();
-            handler.initialize(location.getOptions());
-            handler.setHost(location.getHost());
-            handler.setContentType(location.getContentType());
-            handler.addHeaders(location.addHeaders());
-            handler.proxyHeaders(location.proxyHeaders());
-            handler.setPath(path);
-            handler.setPattern(pathMatcher.isPattern(path));
-            // 一个location path对应一个IHandler实例
-            handlerRouter.addHandler(path, handler);
+        reload(config);
+    }
+
+    /**
+     * 根据新配置创建新的配置快照并原子替换当前快照，新快照创建失败时继续使用当前快照，
+     * 正在处理的请求继续使用旧快照直到请求结束，旧快照在没有请求使用后再释放
+     *
+     * @return 被替换的旧快照，首次初始化时为空
+     */
+    public synchronized ApplicationSnapshot reload(GatewayConfig config) throws Exception {
+        ApplicationSnapshot newSnapshot = ApplicationSnapshot.build(versions.incrementAndGet(), config, context);
+        ApplicationSnapshot oldSnapshot = snapshot;
+        snapshot = newSnapshot;
+        if (oldSnapshot != null) {
+            oldSnapshot.retire();
         }
+        return oldSnapshot;
+    }
+
+    public ApplicationSnapshot getSnapshot() {
+        return snapshot;
     }
 
     /**
-     * 所有请求网关入口
+     * 所有请求网关入口，请求BODY分多次到达时每次都会调用
      */
     @Override
     public void service(HttpSession session) throws Exception {
         HttpRequest request = session.getRequest();
         HttpResponse response = session.getResponse();
         try {
+            // 请求BODY后续数据到达，交给当前请求的处理器继续处理
+            RequestBody body = (RequestBody) request.getAttribute(REQUEST_BODY);
+            if (body != null) {
+                doHandleBody(body, request, response);
+                return;
+            }
+
+            // 新请求开始，先记录请求状态，请求被拒绝时后续BODY数据直接丢弃，不会被当作新请求重新处理
+            body = new RequestBody();
+            request.setAttribute(REQUEST_BODY, body);
+            // 新请求开始，使用当前配置快照直到请求结束
+            ApplicationSnapshot snapshot = doAcquireSnapshot(response.getContext());
             // 根据请求路径获取对应匹配的IHandler处理器
-            IHandler handler = handlerRouter.getHandler(request, response);
+            IHandler handler = snapshot.getHandlerRouter().getHandler(request, response);
             if (handler == null) {
                 throw new GatewayException(HttpStatus.HTTP_STATUS_404,
                         "No Mapping Handler Found For HTTP Request With URI [" + WebUtil.getRequestPath(request) + "]");
@@ -89,14 +119,139 @@ public class ApplicationHandler extends HttpHandler {
             if (!handler.getInterceptorSupport().preAction(request, response, handler)) {
                 return;
             }
-            // 异步处理响应结果
-            RxIo<?> rxIo = handler.handle(request, response);
-            rxIo.subscribe(new RxIoSubcriber(handler, request, response)).start();
+            request.setAttribute(GatewayConstants.REQUEST_ATTRIBUTE_HANDLER, handler);
+            body.handler = handler;
+            if (!handler.isStreamBody()) {
+                int bufferSize = (response.getContext().getProcessor().getBufferSize() * 3) / 2;
+                body.decryptor = HttpDecryptFilter.createFormDecrypt(request, handler.getCharset(), bufferSize,
+                        HttpConstants.DEFAULT_FILE_LIMIT, new File(HttpConstants.DEFAULT_TMP_DIRECTORY),
+                        HttpConstants.DEFAULT_MAX_FILE_SIZE);
+            }
+            doHandleBody(body, request, response);
         } catch (Throwable ex) {
             exceptionResolver.resolveException(request, response, ex);
         }
     }
 
+    /**
+     * 流式处理BODY的处理器每次数据到达都直接处理，
+     * 其他处理器等表单数据解析完整后只处理一次，避免重复输出响应
+     */
+    private void doHandleBody(RequestBody body, HttpRequest request, HttpResponse response) throws Exception {
+        IHandler handler = body.handler;
+        if (handler == null || body.complete) {
+            // 请求已经被拒绝或者已经交给处理器，丢掉多余的数据包
+            return;
+        }
+        if (handler.isStreamBody()) {
+            doHandle(handler, request, response);
+            return;
+        }
+
+        FormDecrypt decryptor = body.decryptor;
+        if (decryptor != null) {
+            // 数据解析完整才交给处理器，否则继续读取数据
+            if (request.getContent() == null || !decryptor.parseForm(request)) {
+                return;
+            }
+        }
+        body.complete = true;
+        doHandle(handler, request, response);
+    }
+
+    private void doHandle(IHandler handler, HttpRequest request, HttpResponse response) throws Exception {
+        // 异步处理响应结果，返回空代表处理器已经自己输出响应并触发拦截器，例如静态文件零拷贝输出、反向代理流式输出
+        RxIo<?> rxIo = handler.handle(request, response);
+        if (rxIo == null) {
+            return;
+        }
+        rxIo.subscribe(new RxIoSubcriber(handler, request, response)).start();
+    }
+
+    /**
+     * 客户端连接数据发送完毕，通知流式响应继续输出
+     */
+    @Override
+    public void channelSend(ServerHandlerContext context, WriteRequest request) {
+        IResponseStream stream = doGetResponseStream(context);
+        if (stream != null) {
+            stream.onSendComplete();
+        }
+        // 非流式输出中的发送完毕即代表响应结束
+        if (!Boolean.TRUE.equals(context.getAttribute(HttpServerFilter.RESPONSE_STREAMING))) {
+            doReleaseBody(context);
+            doReleaseSnapshot(context);
+        }
+    }
+
+    /**
+     * 客户端连接关闭，通知流式响应释放资源
+     */
+    @Override
+    public void channelClose(ServerHandlerContext context) {
+        IResponseStream stream = doGetResponseStream(context);
+        if (stream != null) {
+            stream.onClose();
+        }
+        doReleaseBody(context);
+        doReleaseSnapshot(context);
+    }
+
+    /**
+     * 获取当前配置快照，同一个连接上一个请求的快照还未释放时先释放，
+     * 获取后再次检查快照是否已被替换，避免使用已经开始释放的旧快照
+     */
+    private ApplicationSnapshot doAcquireSnapshot(ServerHandlerContext context) {
+        SnapshotHolder holder = (SnapshotHolder) context.getAttribute(CONTEXT_SNAPSHOT);
+        if (holder == null) {
+            holder = new SnapshotHolder();
+            context.setAttribute(CONTEXT_SNAPSHOT, holder);
+        } else if (holder.snapshot != null) {
+            holder.snapshot.release();
+            holder.snapshot = null;
+        }
+        for (;;) {
+            ApplicationSnapshot current = snapshot;
+            current.acquire();
+            if (current == snapshot) {
+                holder.snapshot = current;
+                return current;
+            }
+            current.release();
+        }
+    }
+
+    private void doReleaseSnapshot(ServerHandlerContext context) {
+        SnapshotHolder holder = (SnapshotHolder) context.getAttribute(CONTEXT_SNAPSHOT);
+        if (holder != null && holder.snapshot != null) {
+            holder.snapshot.release();
+            holder.snapshot = null;
+        }
+    }
+
+    /**
+     * 释放表单解析资源，例如文件上传的临时文件
+     */
+    private void doReleaseBody(ServerHandlerContext context) {
+        HttpSession session = (HttpSession) context.getAttribute(CONTEXT_SESSION);
+        if (session == null) {
+            return;
+        }
+        RequestBody body = (RequestBody) session.getRequest().getAttribute(REQUEST_BODY);
+        if (body != null && body.decryptor != null) {
+            body.decryptor.release();
+            body.decryptor = null;
+        }
+    }
+
+    private IResponseStream doGetResponseStream(ServerHandlerContext context) {
+        HttpSession session = (HttpSession) context.getAttribute(CONTEXT_SESSION);
+        if (session == null) {
+            return null;
+        }
+        return (IResponseStream) session.getRequest().getAttribute(GatewayConstants.REQUEST_ATTRIBUTE_STREAM);
+    }
+
     private class RxIoSubcriber implements IoSubscriber<Object> {
         private final IHandler handler;
 
@@ -137,7 +292,38 @@ public class ApplicationHandler extends HttpHandler {
      * 关闭此会话处理器，释放资源，
      * 一般用于网关服务关闭时或者配置文件热加载时，旧的服务替换并释放资源
      */
-    public void release() {
-        handlerRouter.close();
+    public synchronized void release() {
+        ApplicationSnapshot current = snapshot;
+        if (current != null) {
+            current.retire();
+            current.forceRelease();
+        }
+    }
+
+    /**
+     * 请求BODY的接收状态，只在连接所在的EventLoop线程中访问
+     */
+    private static class RequestBody {
+        /**
+         * 请求匹配的处理器，请求被拒绝时为空
+         */
+        private IHandler handler;
+
+        /**
+         * 表单解码器，流式处理BODY或者请求没有表单数据时为空
+         */
+        private FormDecrypt decryptor;
+
+        /**
+         * 非流式处理BODY的请求是否已经交给处理器
+         */
+        private boolean complete;
+    }
+
+    /**
+     * 连接当前请求使用的配置快照，只在连接所在的EventLoop线程中访问
+     */
+    private static class SnapshotHolder {
+        private ApplicationSnapshot snapshot;
     }
 }
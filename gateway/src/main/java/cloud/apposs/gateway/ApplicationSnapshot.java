@@ -0,0 +1,173 @@
+package cloud.apposs.gateway;
+
+import cloud.apposs.gateway.handler.IHandler;
+import cloud.apposs.gateway.interceptor.HandlerInterceptor;
+import cloud.apposs.gateway.upstream.UpstreamManager;
+import cloud.apposs.logger.Logger;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 网关配置快照，包括请求路由、处理器及其拦截器和反向代理集群，配置热加载时整体替换，
+ * 每个请求在开始时获取当前快照并在整个请求生命周期中使用同一个快照，
+ * 旧快照被替换后不再接收新请求，所有使用中的请求结束后再关闭处理器释放资源
+ */
+public final class ApplicationSnapshot {
+    private final long version;
+
+    private final GatewayConfig config;
+
+    /**
+     * 处理器映射路由
+     */
+    private final HandlerRouter handlerRouter = new HandlerRouter();
+
+    /**
+     * 反向代理集群，包括节点健康检查
+     */
+    private final UpstreamManager upstreamManager;
+
+    /**
+     * 正在使用该快照的请求数
+     */
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile boolean retired = false;
+
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    private ApplicationSnapshot(long version, GatewayConfig config) throws Exception {
+        this.version = version;
+        this.config = config;
+        this.upstreamManager = new UpstreamManager(config);
+    }
+
+    /**
+     * 根据配置创建快照，创建失败时释放已创建的资源
+     *
+     * @param context 网关上下文，用于reload指令对应的处理器触发热加载，可为空
+     */
+    @SuppressWarnings("unchecked")
+    public static ApplicationSnapshot build(long version, GatewayConfig config, ApplicationContext context) throws Exception {
+        ApplicationSnapshot snapshot = new ApplicationSnapshot(version, config);
+        try {
+            // 初始化反向代理集群，引用同一个upstream的location共享同一个集群实例及节点健康状态
+            snapshot.upstreamManager.start();
+            // 添加请求路径处理器
+            List<GatewayConfig.Location> locations = config.getLocations();
+            for (GatewayConfig.Location location : locations) {
+                Class<IHandler> handlerClass = (Class<IHandler>) Class.forName(location.getClazz());
+                IHandler handler = handlerClass.newInstance();
+                // 初始化IHandler拦截器实例
+                List<GatewayConfig.Interceptor> interceptorList = location.getInterceptorList();
+                if (interceptorList != null) {
+                    for (GatewayConfig.Interceptor interceptor : interceptorList) {
+                        String interceptorClassName = interceptor.getName();
+                        Class<HandlerInterceptor> handlerInterceptorClass = (Class<HandlerInterceptor>) Class.forName(interceptorClassName);
+                        HandlerInterceptor handlerInterceptor = handlerInterceptorClass.newInstance();
+                        handlerInterceptor.init(interceptor.getArguments());
+                        handler.addInterceptor(handlerInterceptor);
+                    }
+                }
+                // 初始化IHandler实例参数，便于数据处理时根据conf配置参数进行对应的逻辑处理
+                String path = location.getPath();
+                String upstreamName = location.getOptions().getString("key");
+                if (upstreamName != null) {
+                    location.getOptions().put("upstreamGroup", snapshot.upstreamManager.getUpstream(upstreamName));
+                }
+                if (context != null && location.getOptions().containsKey("reload")) {
+                    location.getOptions().put("applicationContext", context);
+                }
+                handler.initialize(location.getOptions());
+                handler.setHost(location.getHost());
+                handler.setContentType(location.getContentType());
+                handler.addHeaders(location.addHeaders());
+                handler.proxyHeaders(location.proxyHeaders());
+                handler.setPath(path);
+                handler.setPattern(HandlerRouter.isPattern(path));
+                // 一个location path对应一个IHandler实例
+                snapshot.handlerRouter.addHandler(path, handler);
+            }
+        } catch (Exception e) {
+            snapshot.doRelease();
+            throw e;
+        }
+        return snapshot;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public GatewayConfig getConfig() {
+        return config;
+    }
+
+    public HandlerRouter getHandlerRouter() {
+        return handlerRouter;
+    }
+
+    public UpstreamManager getUpstreamManager() {
+        return upstreamManager;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    /**
+     * 请求开始使用该快照
+     */
+    void acquire() {
+        inflight.incrementAndGet();
+    }
+
+    /**
+     * 请求结束，快照已被替换并且没有请求在使用时释放资源
+     */
+    void release() {
+        if (inflight.decrementAndGet() == 0 && retired) {
+            doRelease();
+        }
+    }
+
+    /**
+     * 快照已被替换，不再接收新请求，没有请求在使用时立即释放资源，否则等待最后一个请求结束后释放
+     */
+    void retire() {
+        retired = true;
+        if (inflight.get() == 0) {
+            doRelease();
+        }
+    }
+
+    /**
+     * 排空超时，不再等待未结束的请求，直接释放资源
+     */
+    void forceRelease() {
+        int count = inflight.get();
+        if (count > 0 && !released.get()) {
+            Logger.warn("gateway config snapshot %d drain timeout with %d inflight requests", version, count);
+        }
+        doRelease();
+    }
+
+    private void doRelease() {
+        if (!released.compareAndSet(false, true)) {
+            return;
+        }
+        handlerRouter.close();
+        upstreamManager.close();
+        Logger.info("gateway config snapshot %d released", version);
+    }
+}
@@ -50,12 +50,23 @@ public class GatewayApplication {
         }
         // 加载配置文件配置
         File configFile = new File(configFilePath);
+        if (!configFile.exists()) {
+            throw new FileNotFoundException(configFile.getAbsolutePath());
+        }
+        return parseConfiguration(configFile);
+    }
+
+    /**
+     * 解析配置文件，服务启动和配置热加载时调用
+     */
+    public static GatewayConfig parseConfiguration(File configFile) throws Exception {
         if (!configFile.exists()) {
             throw new FileNotFoundException(configFile.getAbsolutePath());
         }
         String content = FileUtil.readString(configFile);
         List<Block> blockList = ConfigParser.parseConfig(content);
         GatewayConfig gatewayConfig = new GatewayConfig();
+        gatewayConfig.setConfigFile(configFile.getAbsolutePath());
         // 根据配置文件初始化网关配置
         BlockDirective.initialize(blockList, gatewayConfig);
         return gatewayConfig;
@@ -38,6 +38,15 @@ public class GatewayConfig {
 
     private String charset = HttpConstants.DEFAULT_CHARSET;
 
+    /** 配置文件路径，用于配置热加载，为空则不支持热加载 */
+    private String configFile;
+
+    /**
+     * 配置热加载时旧配置的最长排空时间，单位毫秒，
+     * 超过该时间仍有未结束的请求时强制释放旧配置的资源
+     */
+    private long reloadDrainTimeout = 60 * 1000L;
+
     /** 日志输出终端 */
     private String logAppender = Appender.CONSOLE;
 
@@ -74,6 +83,11 @@ public class GatewayConfig {
      */
     private final Map<String, List<UpstreamServer>> upstreamServers = new HashMap<String, List<UpstreamServer>>();
 
+    /**
+     * 反向代理集群主动健康检查配置，没有配置health_check的集群只做被动健康检查
+     */
+    private final Map<String, UpstreamCheck> upstreamChecks = new HashMap<String, UpstreamCheck>();
+
     public String getHost() {
         return host;
     }
@@ -106,6 +120,22 @@ public class GatewayConfig {
         this.tcpNoDelay = tcpNoDelay;
     }
 
+    public String getConfigFile() {
+        return configFile;
+    }
+
+    public void setConfigFile(String configFile) {
+        this.configFile = configFile;
+    }
+
+    public long getReloadDrainTimeout() {
+        return reloadDrainTimeout;
+    }
+
+    public void setReloadDrainTimeout(long reloadDrainTimeout) {
+        this.reloadDrainTimeout = reloadDrainTimeout;
+    }
+
     public int getNumOfGroup() {
         return numOfGroup;
     }
@@ -175,6 +205,14 @@ public class GatewayConfig {
         return upstreamServers;
     }
 
+    public void addUpstreamCheck(String name, UpstreamCheck upstreamCheck) {
+        upstreamChecks.put(name, upstreamCheck);
+    }
+
+    public UpstreamCheck getUpstreamCheck(String name) {
+        return upstreamChecks.get(name);
+    }
+
     public void addInterceptor(String interceptorGroupName, Interceptor interceptor) {
         List<Interceptor> interceptorList = interceptors.get(interceptorGroupName);
         if (interceptorList == null) {
@@ -319,6 +357,18 @@ public class GatewayConfig {
 
         private final int port;
 
+        /**
+         * 被动健康检查，在fail_timeout时间内代理失败max_fails次后摘除该节点fail_timeout时间，0为不摘除
+         */
+        private int maxFails = 1;
+
+        private long failTimeout = 10000;
+
+        /**
+         * 节点恢复后的慢启动时间，单位毫秒，0为不开启
+         */
+        private long slowStart = 0;
+
         public UpstreamServer(String host, int port) {
             this.host = host;
             this.port = port;
@@ -331,5 +381,107 @@ public class GatewayConfig {
         public int getPort() {
             return port;
         }
+
+        public int getMaxFails() {
+            return maxFails;
+        }
+
+        public void setMaxFails(int maxFails) {
+            this.maxFails = maxFails;
+        }
+
+        public long getFailTimeout() {
+            return failTimeout;
+        }
+
+        public void setFailTimeout(long failTimeout) {
+            this.failTimeout = failTimeout;
+        }
+
+        public long getSlowStart() {
+            return slowStart;
+        }
+
+        public void setSlowStart(long slowStart) {
+            this.slowStart = slowStart;
+        }
+    }
+
+    /**
+     * Upstream块主动健康检查配置，对应health_check指令
+     */
+    public static class UpstreamCheck {
+        public static final String TYPE_TCP = "tcp";
+        public static final String TYPE_HTTP = "http";
+
+        /** 检查类型，tcp只检查连接是否可建立，http检查响应状态码是否为2xx/3xx */
+        private String type = TYPE_HTTP;
+
+        /** 检查间隔，单位毫秒 */
+        private long interval = 5000;
+
+        /** 检查超时时间，单位毫秒 */
+        private long timeout = 1000;
+
+        /** 连续成功多少次后节点恢复可用 */
+        private int rise = 2;
+
+        /** 连续失败多少次后节点标记为不可用 */
+        private int fall = 3;
+
+        /** http检查请求路径 */
+        private String uri = "/";
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public boolean isHttp() {
+            return TYPE_HTTP.equals(type);
+        }
+
+        public long getInterval() {
+            return interval;
+        }
+
+        public void setInterval(long interval) {
+            this.interval = interval;
+        }
+
+        public long getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(long timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getRise() {
+            return rise;
+        }
+
+        public void setRise(int rise) {
+            this.rise = rise;
+        }
+
+        public int getFall() {
+            return fall;
+        }
+
+        public void setFall(int fall) {
+            this.fall = fall;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public void setUri(String uri) {
+            this.uri = uri;
+        }
     }
 }
@@ -13,4 +13,9 @@ public class GatewayConstants {
 
     public static final String GATEWAY_CONF_UNIVERSAL_MATCH = "*";
     public static final String GATEWAY_CONF_UNIVERSAL_MATCH2 = "_";
+
+    /** 请求属性，当前请求匹配的处理器 */
+    public static final String REQUEST_ATTRIBUTE_HANDLER = "GatewayRequestHandler";
+    /** 请求属性，当前请求的流式响应，参考{@link cloud.apposs.gateway.handler.IResponseStream} */
+    public static final String REQUEST_ATTRIBUTE_STREAM = "GatewayRequestStream";
 }
@@ -4,93 +4,206 @@ import cloud.apposs.gateway.handler.IHandler;
 import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
 import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
 import cloud.apposs.util.AntPathMatcher;
+import cloud.apposs.util.PathTrie;
 import cloud.apposs.util.SysUtil;
 
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * location路由，配置加载时将所有location编译成以下三类结构，请求路由时不再遍历所有location，
+ * 匹配优先级与nginx类似：
+ * <pre>
+ * 1、精确匹配，location = /path或者不带通配符的location /path，直接哈希查找
+ * 2、通配匹配，带*、?、{var}、**的Ant风格location，按路径段编译成{@link PathTrie}路由树，
+ *    每一层优先匹配字面量路径段，其次段内通配，最后**，即最长前缀优先，例如/api/v1/**优先于/api/**
+ * 3、正则匹配，location ~ regex或者location ~* regex(忽略大小写)，按配置顺序匹配
+ * </pre>
+ * 同一个路径有多个location时按HOST评分选取，评分为0时继续匹配下一优先级，
+ * 整个路由过程只做字符比较，不创建任何对象
+ */
 public final class HandlerRouter {
+    /** location = /path，精确匹配 */
+    public static final String LOCATION_EXACT = "=";
+
+    /** location ~ regex，正则匹配 */
+    public static final String LOCATION_REGEX = "~";
+
+    /** location ~* regex，忽略大小写正则匹配 */
+    public static final String LOCATION_REGEX_CASELESS = "~*";
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    /**
+     * 精确匹配路径，数据结构为：path->IHandler[]，同一个路径可以根据不同的HOST作不同的Handler匹配
+     */
+    private final Map<String, IHandler[]> exactHandlers = new HashMap<String, IHandler[]>();
+
+    /**
+     * 通配匹配路由树
+     */
+    private final PathTrie<IHandler[]> patternRoute = new PathTrie<IHandler[]>();
+
+    private boolean hasPattern = false;
+
     /**
-     * Handler Map(HTTP请求与 Action方法的映射，
-     * 数据结构为：
-     * path->List<Handler>，利用此数据结构可以实现一个请求路径的多种匹配，实现根据不同的Methos和Host作不同的Handler匹配
+     * 按线程复用的通配匹配上下文
      */
-    private final Map<String, List<IHandler>> handlers = new ConcurrentHashMap<String, List<IHandler>>();
+    private final ThreadLocal<RouteContext> routeContext = new ThreadLocal<RouteContext>() {
+        @Override
+        protected RouteContext initialValue() {
+            return new RouteContext();
+        }
+    };
 
     /**
-     * 参数Url匹配器
+     * 正则匹配列表，按配置顺序
      */
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private RegexRoute[] regexRoutes = new RegexRoute[0];
 
     /**
-     * 添加Url -> Handler映射匹配，即网关配置中的location /->Handler映射
+     * 所有Handler，用于关闭释放资源
+     */
+    private final List<IHandler> handlerList = new LinkedList<IHandler>();
+
+    /**
+     * 判断location路径是否需要通配或者正则匹配
+     */
+    public static boolean isPattern(String path) {
+        String modifier = getModifier(path);
+        if (modifier == null) {
+            return PATH_MATCHER.isPattern(path);
+        }
+        return !modifier.equals(LOCATION_EXACT);
+    }
+
+    /**
+     * 添加Url -> Handler映射匹配，即网关配置中的location /->Handler映射，
+     * 只在配置加载时调用，加载完成后路由结构不再变化
      */
     public boolean addHandler(String path, IHandler handler) {
+        SysUtil.checkNotNull(path, "path");
         SysUtil.checkNotNull(handler, "handler");
-        List<IHandler> handlerList = handlers.get(path);
-        if (handlerList == null) {
-            handlerList = new LinkedList<IHandler>();
-            handlers.put(path, handlerList);
-        }
         handlerList.add(handler);
+        String modifier = getModifier(path);
+        if (modifier == null) {
+            if (PATH_MATCHER.isPattern(path)) {
+                doAddPatternHandler(path, handler);
+            } else {
+                exactHandlers.put(path, append(exactHandlers.get(path), handler));
+            }
+            return true;
+        }
+        String location = path.substring(modifier.length()).trim();
+        if (modifier.equals(LOCATION_EXACT)) {
+            exactHandlers.put(location, append(exactHandlers.get(location), handler));
+        } else {
+            doAddRegexHandler(path, location, modifier.equals(LOCATION_REGEX_CASELESS), handler);
+        }
         return true;
     }
 
     /**
-     * 获取请求对应的{@link IHandler}处理器
+     * 获取请求对应的{@link IHandler}处理器，没有匹配的location返回null
      */
     public IHandler getHandler(HttpRequest request, HttpResponse response) {
-        String requestMethod = request.getMethod();
         String requestPath = WebUtil.getRequestPath(request);
         String requestHost = request.getRemoteHost();
 
-        // 根据请求域名、方法、路径先进行路径的精确匹配获取对应的Handler
-        List<IHandler> handlerList = handlers.get(requestPath);
-        if (handlerList != null) {
-            // 请求路径有多个匹配，则代表可能是METHOD或者HOST不同，获取METHOD+HOST匹配最精确的那个
-            return doGetMatchedHandler(handlerList, requestMethod, requestHost);
-        }
-
-        // 没有精确匹配路径，则需要遍历进行路径正则匹配
-        List<IHandler> matchedHandlerList = new LinkedList<IHandler>();
-        for (String path : handlers.keySet()) {
-            handlerList = handlers.get(path);
-            Iterator<IHandler> handlerIterator = handlerList.iterator();
-            while (handlerIterator.hasNext()) {
-                IHandler handler = handlerIterator.next();
-                boolean isPattern = handler.isPattern();
-                if (!isPattern) {
-                    // 非正则路径在前面就已经匹配，不可能在这里命中
-                    continue;
+        // 精确匹配
+        IHandler[] handlers = exactHandlers.get(requestPath);
+        if (handlers != null) {
+            IHandler handler = doGetMatchedHandler(handlers, requestHost);
+            if (handler != null) {
+                return handler;
+            }
+        }
+
+        // 通配匹配，最长前缀优先
+        if (hasPattern) {
+            RouteContext context = routeContext.get();
+            context.reset(requestHost, patternRoute.getMaxVariables());
+            try {
+                if (patternRoute.match(requestPath, context.variables, context)) {
+                    return context.matchedHandler;
                 }
-                String handlerPath = handler.getPath();
-                // 路径必须正则参数匹配
-                if (!pathMatcher.match(handlerPath, requestPath)) {
-                    continue;
+            } finally {
+                context.matchedHandler = null;
+            }
+        }
+
+        // 正则匹配，按配置顺序
+        RegexRoute[] routes = regexRoutes;
+        for (int i = 0; i < routes.length; i++) {
+            RegexRoute route = routes[i];
+            if (route.match(requestPath)) {
+                IHandler handler = doGetMatchedHandler(route.handlers, requestHost);
+                if (handler != null) {
+                    return handler;
                 }
-                matchedHandlerList.add(handler);
             }
         }
-        // 请求路径正则也没匹配到，直接返回空
-        if (matchedHandlerList.isEmpty()) {
+        return null;
+    }
+
+    public void close() {
+        for (IHandler handler : handlerList) {
+            handler.close();
+        }
+    }
+
+    /**
+     * 获取location路径修饰符，没有修饰符返回null
+     */
+    private static String getModifier(String path) {
+        int index = path.indexOf(' ');
+        if (index == -1) {
             return null;
         }
-        // 请求路径有正则匹配，获取METHOD+HOST匹配最精确的那个
-        IHandler handler = doGetMatchedHandler(matchedHandlerList, requestMethod, requestHost);
-        return handler;
+        String modifier = path.substring(0, index);
+        if (modifier.equals(LOCATION_EXACT) || modifier.equals(LOCATION_REGEX)
+                || modifier.equals(LOCATION_REGEX_CASELESS)) {
+            return modifier;
+        }
+        return null;
+    }
+
+    private void doAddPatternHandler(String path, IHandler handler) {
+        PathTrie.Node<IHandler[]> node = patternRoute.add(path);
+        node.setValue(path, append(node.getValue(path), handler));
+        hasPattern = true;
+    }
+
+    private void doAddRegexHandler(String path, String regex, boolean caseless, IHandler handler) {
+        for (RegexRoute route : regexRoutes) {
+            if (route.path.equals(path)) {
+                route.handlers = append(route.handlers, handler);
+                return;
+            }
+        }
+        Pattern pattern = Pattern.compile(regex, caseless ? Pattern.CASE_INSENSITIVE : 0);
+        RegexRoute[] routes = new RegexRoute[regexRoutes.length + 1];
+        System.arraycopy(regexRoutes, 0, routes, 0, regexRoutes.length);
+        routes[regexRoutes.length] = new RegexRoute(path, pattern, new IHandler[] {handler});
+        regexRoutes = routes;
     }
 
     /**
      * 对路径匹配的Handler进行匹配排序，包括HOST匹配排序，排序算法如下：
      * HOST精确匹配+2分，HOST泛匹配+1分
      */
-    private IHandler doGetMatchedHandler(List<IHandler> matchedHandlerList, String requestMethod, String requestHost) {
+    private IHandler doGetMatchedHandler(IHandler[] handlers, String requestHost) {
+        if (handlers == null) {
+            return null;
+        }
         IHandler matchedHandler = null;
         int matchedScore = 0;
-        for (IHandler handler : matchedHandlerList) {
+        for (int i = 0; i < handlers.length; i++) {
+            IHandler handler = handlers[i];
             String handlerHost = handler.getHost();
             // 进行HOST匹配评分
             int handlerScore = 0;
@@ -110,11 +223,68 @@ public final class HandlerRouter {
         return matchedHandler;
     }
 
-    public void close() {
-        for (List<IHandler> handlerList : handlers.values()) {
-            for (IHandler handler : handlerList) {
-                handler.close();
+    private static IHandler[] append(IHandler[] handlers, IHandler handler) {
+        if (handlers == null) {
+            return new IHandler[] {handler};
+        }
+        IHandler[] newHandlers = new IHandler[handlers.length + 1];
+        System.arraycopy(handlers, 0, newHandlers, 0, handlers.length);
+        newHandlers[handlers.length] = handler;
+        return newHandlers;
+    }
+
+    /**
+     * 通配匹配上下文，按线程复用，取第一个HOST评分不为0的location，即最长前缀优先
+     */
+    private final class RouteContext implements PathTrie.Visitor<IHandler[]> {
+        private String host;
+
+        /** location中的{var}变量位置，网关不使用，只用于路由树匹配 */
+        private int[] variables = new int[0];
+
+        private IHandler matchedHandler;
+
+        private void reset(String host, int maxVariables) {
+            this.host = host;
+            this.matchedHandler = null;
+            int length = maxVariables << 1;
+            if (variables.length < length) {
+                variables = new int[length];
             }
         }
+
+        @Override
+        public boolean visit(PathTrie.Node<IHandler[]> node, IHandler[] handlers) {
+            matchedHandler = doGetMatchedHandler(handlers, host);
+            return matchedHandler != null;
+        }
+    }
+
+    /**
+     * 正则location，Matcher按线程缓存，匹配时只重置不创建对象
+     */
+    private static final class RegexRoute {
+        private final String path;
+
+        private final ThreadLocal<Matcher> matcher;
+
+        private IHandler[] handlers;
+
+        private RegexRoute(String path, final Pattern pattern, IHandler[] handlers) {
+            this.path = path;
+            this.handlers = handlers;
+            this.matcher = new ThreadLocal<Matcher>() {
+                @Override
+                protected Matcher initialValue() {
+                    return pattern.matcher("");
+                }
+            };
+        }
+
+        private boolean match(String requestPath) {
+            Matcher requestMatcher = matcher.get();
+            requestMatcher.reset(requestPath);
+            return requestMatcher.find();
+        }
     }
 }
@@ -0,0 +1,65 @@
+package cloud.apposs.gateway.configure;
+
+/**
+ * 配置值解析，配置指令和拦截器参数共用，保证同一种值在不同位置的写法一致
+ */
+public final class ConfigUtil {
+    private ConfigUtil() {
+    }
+
+    /**
+     * 解析时间参数，支持ms、s、m、h、d单位，不带单位时默认为秒，返回毫秒数
+     *
+     * @throws NumberFormatException 参数不是非负数或者超出范围
+     */
+    public static long parseTimeMillis(String value) throws NumberFormatException {
+        long unit = 1000L;
+        String number = value;
+        if (value.endsWith("ms")) {
+            unit = 1L;
+            number = value.substring(0, value.length() - 2);
+        } else if (value.endsWith("s")) {
+            number = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("m")) {
+            unit = 60 * 1000L;
+            number = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("h")) {
+            unit = 60 * 60 * 1000L;
+            number = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("d")) {
+            unit = 24 * 60 * 60 * 1000L;
+            number = value.substring(0, value.length() - 1);
+        }
+        return doMultiply(value, number, unit);
+    }
+
+    /**
+     * 解析容量参数，支持k、m、g单位，不区分大小写，不带单位时为字节数
+     *
+     * @throws NumberFormatException 参数不是非负数或者超出范围
+     */
+    public static long parseSize(String value) throws NumberFormatException {
+        long unit = 1L;
+        String number = value;
+        char last = value.isEmpty() ? ' ' : Character.toLowerCase(value.charAt(value.length() - 1));
+        if (last == 'k') {
+            unit = 1024L;
+        } else if (last == 'm') {
+            unit = 1024 * 1024L;
+        } else if (last == 'g') {
+            unit = 1024 * 1024 * 1024L;
+        }
+        if (unit > 1) {
+            number = value.substring(0, value.length() - 1);
+        }
+        return doMultiply(value, number, unit);
+    }
+
+    private static long doMultiply(String value, String number, long unit) throws NumberFormatException {
+        long amount = Long.parseLong(number);
+        if (amount < 0 || amount > Long.MAX_VALUE / unit) {
+            throw new NumberFormatException("invalid value " + value);
+        }
+        return amount * unit;
+    }
+}
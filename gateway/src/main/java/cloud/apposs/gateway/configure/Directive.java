@@ -16,11 +16,13 @@ public final class Directive {
     public static final String NETWORK_NUM_OF_GROUP = "num_of_group";
     public static final String NETWORK_BACKLOG = "backlog";
     public static final String NETWORK_TCP_NODELAY = "tcp_nodelay";
+    public static final String NETWORK_RELOAD_DRAIN_TIMEOUT = "reload_drain_timeout";
     /**
      * 反向代理配置相关指令
      */
     public static final String UPSTREAM = "upstream";
     public static final String UPSTREAM_SERVER = "server";
+    public static final String UPSTREAM_HEALTH_CHECK = "health_check";
     /**
      * 拦截器配置相关指令
      */
@@ -43,6 +45,8 @@ public final class Directive {
     public static final String HTTP_DEFAULT_TYPE = "default_type";
     public static final String HTTP_ROOT = "root";
     public static final String HTTP_INDEX = "index";
+    public static final String HTTP_OPEN_FILE_CACHE = "open_file_cache";
+    public static final String HTTP_OPEN_FILE_CACHE_VALID = "open_file_cache_valid";
     public static final String HTTP_PROXY_PASS = "proxy_pass";
     public static final String HTTP_SERVICE_PASS = "service_pass";
     public static final String HTTP_SERVICE_REGISTRY = "registry";
@@ -53,4 +57,14 @@ public final class Directive {
     public static final String HTTP_ADD_HEADER = "add_header";
     public static final String HTTP_PROXY_SET_HEADER = "proxy_set_header";
     public static final String HTTP_RETURN = "return";
+    public static final String HTTP_RELOAD = "reload";
+    public static final String HTTP_PROXY_CACHE = "proxy_cache";
+    public static final String HTTP_PROXY_CACHE_KEY = "proxy_cache_key";
+    public static final String HTTP_PROXY_CACHE_MEMORY = "proxy_cache_memory";
+    public static final String HTTP_PROXY_CACHE_PATH = "proxy_cache_path";
+    public static final String HTTP_PROXY_CACHE_VALID = "proxy_cache_valid";
+    public static final String HTTP_PROXY_CACHE_USE_STALE = "proxy_cache_use_stale";
+    public static final String HTTP_PROXY_CACHE_LOCK = "proxy_cache_lock";
+    public static final String HTTP_PROXY_CACHE_LOCK_TIMEOUT = "proxy_cache_lock_timeout";
+    public static final String HTTP_PROXY_IGNORE_HEADERS = "proxy_ignore_headers";
 }
@@ -3,6 +3,7 @@ package cloud.apposs.gateway.configure.directive;
 import cloud.apposs.gateway.configure.Block;
 import cloud.apposs.gateway.configure.BlockDirective;
 import cloud.apposs.gateway.configure.ConfigParseException;
+import cloud.apposs.gateway.configure.ConfigUtil;
 import cloud.apposs.util.StrUtil;
 
 import java.util.LinkedList;
@@ -120,4 +121,28 @@ public abstract class AbstractDirective implements BlockDirective.IBlockDirectiv
         }
         return argumentStr.toString();
     }
+
+    /**
+     * 解析时间参数，支持ms、s、m、h、d单位，不带单位时默认为秒，返回毫秒数
+     */
+    protected long parseTimeMillis(Block block, String value) throws ConfigParseException {
+        try {
+            return ConfigUtil.parseTimeMillis(value);
+        } catch (NumberFormatException e) {
+            throw new ConfigParseException(block.getLineNo(),
+                    "invalid time value \"" + value + "\" in \"" + block.getKey() + "\" directive");
+        }
+    }
+
+    /**
+     * 解析容量参数，支持k、m、g单位，不区分大小写，不带单位时为字节数
+     */
+    protected long parseSize(Block block, String value) throws ConfigParseException {
+        try {
+            return ConfigUtil.parseSize(value);
+        } catch (NumberFormatException e) {
+            throw new ConfigParseException(block.getLineNo(),
+                    "invalid size value \"" + value + "\" in \"" + block.getKey() + "\" directive");
+        }
+    }
 }
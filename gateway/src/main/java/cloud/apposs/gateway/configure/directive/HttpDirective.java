@@ -2,20 +2,26 @@ package cloud.apposs.gateway.configure.directive;
 
 import cloud.apposs.gateway.GatewayConfig;
 import cloud.apposs.gateway.GatewayConstants;
+import cloud.apposs.gateway.HandlerRouter;
 import cloud.apposs.gateway.configure.Block;
 import cloud.apposs.gateway.configure.ConfigParseException;
 import cloud.apposs.gateway.configure.Directive;
 import cloud.apposs.gateway.handler.index.IndexHandler;
+import cloud.apposs.gateway.handler.index.ReloadHandler;
 import cloud.apposs.gateway.handler.index.ReturnHandler;
 import cloud.apposs.gateway.handler.proxy.ProxyHandler;
 import cloud.apposs.gateway.handler.proxy.ServiceHandler;
 import cloud.apposs.gateway.handler.proxy.SiteHandler;
+import cloud.apposs.gateway.handler.proxy.cache.CacheKeyTemplate;
+import cloud.apposs.gateway.handler.proxy.cache.ProxyCacheConfig;
 import cloud.apposs.util.Parser;
 
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 public class HttpDirective extends AbstractDirective {
     @Override
@@ -61,7 +67,7 @@ public class HttpDirective extends AbstractDirective {
                 case Directive.HTTP_SERVER_NAME:
                     break;
                 case Directive.HTTP_LOATION:
-                    String locationPath = getBlockArgumentOne(block);
+                    String locationPath = doGetLocationPath(block);
                     List<Block> locationValues = block.getValues();
                     doParserLocationBlock(serverName, locationPath, locationValues, config);
                     break;
@@ -71,6 +77,36 @@ public class HttpDirective extends AbstractDirective {
         }
     }
 
+    /**
+     * 获取location路径，支持nginx风格的修饰符，修饰符与路径以空格分隔保存，由HandlerRouter解析：
+     * <pre>
+     * location /product/** {}          Ant风格通配匹配，最长前缀优先
+     * location = /index.html {}        精确匹配
+     * location ~ '^/api/v[0-9]+/' {}   正则匹配，按配置顺序
+     * location ~* '\.(png|jpg)$' {}    忽略大小写正则匹配
+     * </pre>
+     */
+    private String doGetLocationPath(Block block) throws ConfigParseException {
+        List<String> arguments = block.getArguments();
+        if (!block.isBlock() || arguments.size() != 2) {
+            return getBlockArgumentOne(block);
+        }
+        String modifier = arguments.get(0);
+        String path = arguments.get(1);
+        if (modifier.equals(HandlerRouter.LOCATION_REGEX) || modifier.equals(HandlerRouter.LOCATION_REGEX_CASELESS)) {
+            try {
+                Pattern.compile(path);
+            } catch (PatternSyntaxException e) {
+                throw new ConfigParseException(block.getLineNo(),
+                        "invalid regex \"" + path + "\" in \"" + Directive.HTTP_LOATION + "\" directive");
+            }
+        } else if (!modifier.equals(HandlerRouter.LOCATION_EXACT)) {
+            throw new ConfigParseException(block.getLineNo(),
+                    "invalid location modifier \"" + modifier + "\" in \"" + Directive.HTTP_LOATION + "\" directive");
+        }
+        return modifier + " " + path;
+    }
+
     private String doGetServerName(List<Block> blockList) throws ConfigParseException {
         String serverName = GatewayConstants.GATEWAY_CONF_UNIVERSAL_MATCH;
         for (Block block : blockList) {
@@ -96,6 +132,8 @@ public class HttpDirective extends AbstractDirective {
         validLocationDirectiveList.add(Directive.HTTP_DEFAULT_TYPE);
         validLocationDirectiveList.add(Directive.HTTP_ROOT);
         validLocationDirectiveList.add(Directive.HTTP_INDEX);
+        validLocationDirectiveList.add(Directive.HTTP_OPEN_FILE_CACHE);
+        validLocationDirectiveList.add(Directive.HTTP_OPEN_FILE_CACHE_VALID);
         validLocationDirectiveList.add(Directive.HTTP_PROXY_PASS);
         validLocationDirectiveList.add(Directive.HTTP_SERVICE_PASS);
         validLocationDirectiveList.add(Directive.HTTP_SERVICE_REGISTRY);
@@ -106,6 +144,16 @@ public class HttpDirective extends AbstractDirective {
         validLocationDirectiveList.add(Directive.HTTP_ADD_HEADER);
         validLocationDirectiveList.add(Directive.HTTP_PROXY_SET_HEADER);
         validLocationDirectiveList.add(Directive.HTTP_RETURN);
+        validLocationDirectiveList.add(Directive.HTTP_RELOAD);
+        validLocationDirectiveList.add(Directive.HTTP_PROXY_CACHE);
+        validLocationDirectiveList.add(Directive.HTTP_PROXY_CACHE_KEY);
+        validLocationDirectiveList.add(Directive.HTTP_PROXY_CACHE_MEMORY);
+        validLocationDirectiveList.add(Directive.HTTP_PROXY_CACHE_PATH);
+        validLocationDirectiveList.add(Directive.HTTP_PROXY_CACHE_VALID);
+        validLocationDirectiveList.add(Directive.HTTP_PROXY_CACHE_USE_STALE);
+        validLocationDirectiveList.add(Directive.HTTP_PROXY_CACHE_LOCK);
+        validLocationDirectiveList.add(Directive.HTTP_PROXY_CACHE_LOCK_TIMEOUT);
+        validLocationDirectiveList.add(Directive.HTTP_PROXY_IGNORE_HEADERS);
         for (String locationDirective : locationValueMap.keySet()) {
             Block locationValue = locationValueMap.get(locationDirective);
             if (!validLocationDirectiveList.contains(locationDirective)) {
@@ -168,7 +216,7 @@ public class HttpDirective extends AbstractDirective {
                 if (headerValue.endsWith("'") || headerValue.endsWith("\"")) {
                     headerValue = headerValue.substring(0, headerValue.length() - 1);
                 }
-                addHeaders.put(locationArguments.get(0), headerValue);
+                proxyHeaders.put(locationArguments.get(0), headerValue);
             }
         }
         // 进行对应的指令解析
@@ -183,6 +231,7 @@ public class HttpDirective extends AbstractDirective {
                         locationPath, contentType, IndexHandler.class.getName(), interceptorList);
                 locationCfg.getOptions().put("directory", directory);
                 locationCfg.getOptions().put("index", index);
+                doParserOpenFileCache(locationValueMap, locationCfg);
                 locationCfg.addHeaders(addHeaders);
                 locationCfg.proxyHeaders(proxyHeaders);
                 config.addLocation(locationPath, locationCfg);
@@ -204,11 +253,10 @@ public class HttpDirective extends AbstractDirective {
                 if (!upstreamServers.containsKey(upstreamKey)) {
                     throw new ConfigParseException(locationValue.getLineNo(), "host not found in upstream \"" + upstreamKey + "\"");
                 }
-                List<GatewayConfig.UpstreamServer> upstreamServerList = upstreamServers.get(upstreamKey);
                 GatewayConfig.Location locationCfg = new GatewayConfig.Location(serverName,
                         locationPath, contentType, ProxyHandler.class.getName(), interceptorList);
                 locationCfg.getOptions().put("key", upstreamKey);
-                locationCfg.getOptions().put("upstream", upstreamServerList);
+                doParserProxyCache(locationValueMap, blockList, locationCfg);
                 locationCfg.addHeaders(addHeaders);
                 locationCfg.proxyHeaders(proxyHeaders);
                 config.addLocation(locationPath, locationCfg);
@@ -222,6 +270,7 @@ public class HttpDirective extends AbstractDirective {
                 GatewayConfig.Location locationCfg = new GatewayConfig.Location(serverName,
                         locationPath, contentType, SiteHandler.class.getName(), interceptorList);
                 locationCfg.getOptions().put("proxyUrl", proxyUrl);
+                doParserProxyCache(locationValueMap, blockList, locationCfg);
                 locationCfg.addHeaders(addHeaders);
                 locationCfg.proxyHeaders(proxyHeaders);
                 config.addLocation(locationPath, locationCfg);
@@ -245,6 +294,7 @@ public class HttpDirective extends AbstractDirective {
                 locationCfg.getOptions().put("registry", registry);
                 locationCfg.getOptions().put("environment", environment);
                 locationCfg.getOptions().put("path", path);
+                doParserProxyCache(locationValueMap, blockList, locationCfg);
                 locationCfg.addHeaders(addHeaders);
                 locationCfg.proxyHeaders(proxyHeaders);
                 config.addLocation(locationPath, locationCfg);
@@ -260,7 +310,217 @@ public class HttpDirective extends AbstractDirective {
                 locationCfg.proxyHeaders(proxyHeaders);
                 config.addLocation(locationPath, locationCfg);
             }
+            // 解析reload指令，即ReloadHandler，管理端通过该location触发配置热加载
+            if (locationDirective.equals(Directive.HTTP_RELOAD)) {
+                if (!Parser.parseBoolean(getNonBlockArgumentOne(locationValue))) {
+                    continue;
+                }
+                GatewayConfig.Location locationCfg = new GatewayConfig.Location(serverName,
+                        locationPath, contentType, ReloadHandler.class.getName(), interceptorList);
+                locationCfg.getOptions().put("reload", true);
+                locationCfg.addHeaders(addHeaders);
+                locationCfg.proxyHeaders(proxyHeaders);
+                config.addLocation(locationPath, locationCfg);
+            }
         }
 
     }
+
+    /**
+     * 解析open_file_cache指令，格式如下：
+     * <pre>
+     * open_file_cache max=1000 inactive=20s;
+     * open_file_cache off;
+     * open_file_cache_valid 30s;
+     * </pre>
+     */
+    private void doParserOpenFileCache(Map<String, Block> locationValueMap,
+            GatewayConfig.Location locationCfg) throws ConfigParseException {
+        if (locationValueMap.containsKey(Directive.HTTP_OPEN_FILE_CACHE)) {
+            Block openFileCache = locationValueMap.get(Directive.HTTP_OPEN_FILE_CACHE);
+            List<String> arguments = openFileCache.getArguments();
+            if (openFileCache.isBlock() || arguments.isEmpty()) {
+                throw new ConfigParseException(openFileCache.getLineNo(),
+                        "invalid number of arguments in \"" + Directive.HTTP_OPEN_FILE_CACHE + "\" directive");
+            }
+            if (arguments.size() == 1 && arguments.get(0).equals("off")) {
+                locationCfg.getOptions().put("openFileCache", false);
+            } else {
+                for (String argument : arguments) {
+                    if (argument.startsWith("max=")) {
+                        Integer max = Parser.parseInt(argument.substring(4), -1);
+                        if (max <= 0) {
+                            throw new ConfigParseException(openFileCache.getLineNo(),
+                                    "invalid \"max\" value \"" + argument + "\" in \"" + Directive.HTTP_OPEN_FILE_CACHE + "\" directive");
+                        }
+                        locationCfg.getOptions().put("openFileCacheMax", max);
+                    } else if (argument.startsWith("inactive=")) {
+                        long inactive = parseTimeMillis(openFileCache, argument.substring(9));
+                        locationCfg.getOptions().put("openFileCacheInactive", inactive);
+                    } else {
+                        throw new ConfigParseException(openFileCache.getLineNo(),
+                                "invalid parameter \"" + argument + "\" in \"" + Directive.HTTP_OPEN_FILE_CACHE + "\" directive");
+                    }
+                }
+            }
+        }
+        if (locationValueMap.containsKey(Directive.HTTP_OPEN_FILE_CACHE_VALID)) {
+            Block openFileCacheValid = locationValueMap.get(Directive.HTTP_OPEN_FILE_CACHE_VALID);
+            long valid = parseTimeMillis(openFileCacheValid, getNonBlockArgumentOne(openFileCacheValid));
+            locationCfg.getOptions().put("openFileCacheValid", valid);
+        }
+    }
+
+    /**
+     * 解析proxy_cache指令，格式如下：
+     * <pre>
+     * proxy_cache on;
+     * proxy_cache_key $host$request_uri;
+     * proxy_cache_memory max_size=64m max_entry_size=256k;
+     * proxy_cache_path /data/gateway/cache max_size=1g;
+     * proxy_cache_valid 200 302 10m;
+     * proxy_cache_valid 404 1m;
+     * proxy_cache_valid any 1m;
+     * proxy_cache_use_stale 30s;
+     * proxy_cache_lock on;
+     * proxy_cache_lock_timeout 5s;
+     * proxy_ignore_headers Cache-Control Expires Set-Cookie Vary;
+     * </pre>
+     */
+    private void doParserProxyCache(Map<String, Block> locationValueMap, List<Block> blockList,
+            GatewayConfig.Location locationCfg) throws ConfigParseException {
+        if (!locationValueMap.containsKey(Directive.HTTP_PROXY_CACHE)) {
+            return;
+        }
+        String proxyCache = getNonBlockArgumentOne(locationValueMap.get(Directive.HTTP_PROXY_CACHE));
+        if (proxyCache.equals("off")) {
+            return;
+        }
+        if (!proxyCache.equals("on")) {
+            throw new ConfigParseException(locationValueMap.get(Directive.HTTP_PROXY_CACHE).getLineNo(),
+                    "invalid value \"" + proxyCache + "\" in \"" + Directive.HTTP_PROXY_CACHE + "\" directive, it must be \"on\" or \"off\"");
+        }
+        ProxyCacheConfig cacheConfig = new ProxyCacheConfig();
+        if (locationValueMap.containsKey(Directive.HTTP_PROXY_CACHE_KEY)) {
+            Block cacheKey = locationValueMap.get(Directive.HTTP_PROXY_CACHE_KEY);
+            String key = getNonBlockArgumentOne(cacheKey);
+            try {
+                new CacheKeyTemplate(key);
+            } catch (IllegalArgumentException e) {
+                throw new ConfigParseException(cacheKey.getLineNo(), e.getMessage());
+            }
+            cacheConfig.setKey(key);
+        }
+        if (locationValueMap.containsKey(Directive.HTTP_PROXY_CACHE_MEMORY)) {
+            Block cacheMemory = locationValueMap.get(Directive.HTTP_PROXY_CACHE_MEMORY);
+            List<String> arguments = cacheMemory.getArguments();
+            if (cacheMemory.isBlock() || arguments.isEmpty()) {
+                throw new ConfigParseException(cacheMemory.getLineNo(),
+                        "invalid number of arguments in \"" + Directive.HTTP_PROXY_CACHE_MEMORY + "\" directive");
+            }
+            for (String argument : arguments) {
+                if (argument.startsWith("max_size=")) {
+                    cacheConfig.setMemoryMaxSize(parseSize(cacheMemory, argument.substring(9)));
+                } else if (argument.startsWith("max_entry_size=")) {
+                    long maxEntrySize = parseSize(cacheMemory, argument.substring(15));
+                    if (maxEntrySize > Integer.MAX_VALUE) {
+                        throw new ConfigParseException(cacheMemory.getLineNo(),
+                                "invalid \"max_entry_size\" value \"" + argument + "\" in \"" + Directive.HTTP_PROXY_CACHE_MEMORY + "\" directive");
+                    }
+                    cacheConfig.setMemoryMaxEntrySize((int) maxEntrySize);
+                } else {
+                    throw new ConfigParseException(cacheMemory.getLineNo(),
+                            "invalid parameter \"" + argument + "\" in \"" + Directive.HTTP_PROXY_CACHE_MEMORY + "\" directive");
+                }
+            }
+        }
+        if (locationValueMap.containsKey(Directive.HTTP_PROXY_CACHE_PATH)) {
+            Block cachePath = locationValueMap.get(Directive.HTTP_PROXY_CACHE_PATH);
+            List<String> arguments = cachePath.getArguments();
+            if (cachePath.isBlock() || arguments.isEmpty()) {
+                throw new ConfigParseException(cachePath.getLineNo(),
+                        "invalid number of arguments in \"" + Directive.HTTP_PROXY_CACHE_PATH + "\" directive");
+            }
+            cacheConfig.setDiskPath(arguments.get(0));
+            for (int i = 1; i < arguments.size(); i++) {
+                String argument = arguments.get(i);
+                if (!argument.startsWith("max_size=")) {
+                    throw new ConfigParseException(cachePath.getLineNo(),
+                            "invalid parameter \"" + argument + "\" in \"" + Directive.HTTP_PROXY_CACHE_PATH + "\" directive");
+                }
+                cacheConfig.setDiskMaxSize(parseSize(cachePath, argument.substring(9)));
+            }
+        }
+        // proxy_cache_valid可以配置多条，不指定状态码时默认为200 301 302
+        for (Block location : blockList) {
+            if (!location.getKey().equals(Directive.HTTP_PROXY_CACHE_VALID)) {
+                continue;
+            }
+            List<String> arguments = location.getArguments();
+            if (location.isBlock() || arguments.isEmpty()) {
+                throw new ConfigParseException(location.getLineNo(),
+                        "invalid number of arguments in \"" + Directive.HTTP_PROXY_CACHE_VALID + "\" directive");
+            }
+            long validTime = parseTimeMillis(location, arguments.get(arguments.size() - 1));
+            if (arguments.size() == 1) {
+                for (int status : ProxyCacheConfig.DEFAULT_VALID_STATUS) {
+                    cacheConfig.addValidTime(status, validTime);
+                }
+                continue;
+            }
+            for (int i = 0; i < arguments.size() - 1; i++) {
+                String argument = arguments.get(i);
+                if (argument.equals("any")) {
+                    cacheConfig.addValidTime(0, validTime);
+                    continue;
+                }
+                int status = Parser.parseInt(argument, -1);
+                if (status < 100 || status > 599) {
+                    throw new ConfigParseException(location.getLineNo(),
+                            "invalid status \"" + argument + "\" in \"" + Directive.HTTP_PROXY_CACHE_VALID + "\" directive");
+                }
+                cacheConfig.addValidTime(status, validTime);
+            }
+        }
+        if (locationValueMap.containsKey(Directive.HTTP_PROXY_CACHE_USE_STALE)) {
+            Block useStale = locationValueMap.get(Directive.HTTP_PROXY_CACHE_USE_STALE);
+            cacheConfig.setStaleTime(parseTimeMillis(useStale, getNonBlockArgumentOne(useStale)));
+        }
+        if (locationValueMap.containsKey(Directive.HTTP_PROXY_CACHE_LOCK)) {
+            Block cacheLock = locationValueMap.get(Directive.HTTP_PROXY_CACHE_LOCK);
+            String lock = getNonBlockArgumentOne(cacheLock);
+            if (!lock.equals("on") && !lock.equals("off")) {
+                throw new ConfigParseException(cacheLock.getLineNo(),
+                        "invalid value \"" + lock + "\" in \"" + Directive.HTTP_PROXY_CACHE_LOCK + "\" directive, it must be \"on\" or \"off\"");
+            }
+            cacheConfig.setLock(lock.equals("on"));
+        }
+        if (locationValueMap.containsKey(Directive.HTTP_PROXY_CACHE_LOCK_TIMEOUT)) {
+            Block lockTimeout = locationValueMap.get(Directive.HTTP_PROXY_CACHE_LOCK_TIMEOUT);
+            cacheConfig.setLockTimeout(parseTimeMillis(lockTimeout, getNonBlockArgumentOne(lockTimeout)));
+        }
+        if (locationValueMap.containsKey(Directive.HTTP_PROXY_IGNORE_HEADERS)) {
+            Block ignoreHeaders = locationValueMap.get(Directive.HTTP_PROXY_IGNORE_HEADERS);
+            List<String> arguments = ignoreHeaders.getArguments();
+            if (ignoreHeaders.isBlock() || arguments.isEmpty()) {
+                throw new ConfigParseException(ignoreHeaders.getLineNo(),
+                        "invalid number of arguments in \"" + Directive.HTTP_PROXY_IGNORE_HEADERS + "\" directive");
+            }
+            for (String argument : arguments) {
+                if (argument.equalsIgnoreCase("Cache-Control")) {
+                    cacheConfig.setIgnoreCacheControl(true);
+                } else if (argument.equalsIgnoreCase("Expires")) {
+                    cacheConfig.setIgnoreExpires(true);
+                } else if (argument.equalsIgnoreCase("Set-Cookie")) {
+                    cacheConfig.setIgnoreSetCookie(true);
+                } else if (argument.equalsIgnoreCase("Vary")) {
+                    cacheConfig.setIgnoreVary(true);
+                } else {
+                    throw new ConfigParseException(ignoreHeaders.getLineNo(),
+                            "invalid header \"" + argument + "\" in \"" + Directive.HTTP_PROXY_IGNORE_HEADERS + "\" directive");
+                }
+            }
+        }
+        locationCfg.getOptions().put("proxyCache", cacheConfig);
+    }
 }
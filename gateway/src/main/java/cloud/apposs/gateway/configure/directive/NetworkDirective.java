@@ -9,7 +9,7 @@ import cloud.apposs.util.Parser;
 import java.util.List;
 
 /**
- * network参数解析，包括：num_of_group、backlog、tcp_nodelay
+ * network参数解析，包括：num_of_group、backlog、tcp_nodelay、reload_drain_timeout
  */
 public class NetworkDirective extends AbstractDirective {
     @Override
@@ -28,6 +28,9 @@ public class NetworkDirective extends AbstractDirective {
                 case Directive.NETWORK_TCP_NODELAY:
                     config.setTcpNoDelay(Parser.parseBoolean(getNonBlockArgumentOne(value)));
                     break;
+                case Directive.NETWORK_RELOAD_DRAIN_TIMEOUT:
+                    config.setReloadDrainTimeout(parseTimeMillis(value, getNonBlockArgumentOne(value)));
+                    break;
                 default:
                     throw new ConfigParseException(value.getLineNo(), "unknown directive \"" + directive + "\"");
             }
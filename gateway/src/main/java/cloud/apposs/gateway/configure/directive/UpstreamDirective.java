@@ -6,9 +6,20 @@ import cloud.apposs.gateway.configure.Block;
 import cloud.apposs.gateway.configure.ConfigParseException;
 import cloud.apposs.gateway.configure.Directive;
 import cloud.apposs.util.Parser;
+import cloud.apposs.util.StrUtil;
 
 import java.util.List;
 
+/**
+ * upstream块解析，示例：
+ * <pre>
+ * upstream backend {
+ *     server 127.0.0.1:8080 max_fails=3 fail_timeout=10s slow_start=30s;
+ *     server 127.0.0.1:8081;
+ *     health_check type=http uri=/health interval=5s timeout=1s rise=2 fall=3;
+ * }
+ * </pre>
+ */
 public class UpstreamDirective extends AbstractDirective {
     @Override
     public void parse(Block block, GatewayConfig config) throws ConfigParseException {
@@ -16,10 +27,18 @@ public class UpstreamDirective extends AbstractDirective {
         List<Block> blockServerList = block.getValues();
         for (Block blockServer : blockServerList) {
             String blockServerKey = blockServer.getKey();
+            if (blockServerKey.equals(Directive.UPSTREAM_HEALTH_CHECK)) {
+                config.addUpstreamCheck(upstreamName, doParseHealthCheck(blockServer));
+                continue;
+            }
             if (!blockServerKey.equals(Directive.UPSTREAM_SERVER)) {
                 throw new ConfigParseException(blockServer.getLineNo(), "unknown directive \"" + blockServerKey + "\"");
             }
-            String blockServerValue = getNonBlockArgumentOne(blockServer);
+            List<String> arguments = blockServer.getArguments();
+            if (blockServer.isBlock() || arguments.isEmpty() || StrUtil.isEmpty(arguments.get(0))) {
+                throw new ConfigParseException(blockServer.getLineNo(), "invalid number of arguments in \""+ blockServerKey + "\" directive");
+            }
+            String blockServerValue = arguments.get(0);
             String[] blockServerSplit = blockServerValue.split(":");
             String serverHost = null;
             int serverPort = GatewayConstants.DEFAULT_PROXY_PORT;
@@ -31,7 +50,85 @@ public class UpstreamDirective extends AbstractDirective {
             } else {
                 throw new ConfigParseException(blockServer.getLineNo(), "invalid number of arguments in \""+ blockServerKey + "\" directive");
             }
-            config.addUpstreamServer(upstreamName, new GatewayConfig.UpstreamServer(serverHost, serverPort));
+            GatewayConfig.UpstreamServer upstreamServer = new GatewayConfig.UpstreamServer(serverHost, serverPort);
+            for (int i = 1; i < arguments.size(); i++) {
+                String[] parameter = doGetParameter(blockServer, arguments.get(i));
+                if (parameter[0].equals("max_fails")) {
+                    upstreamServer.setMaxFails(doParseCount(blockServer, parameter[1]));
+                } else if (parameter[0].equals("fail_timeout")) {
+                    upstreamServer.setFailTimeout(parseTimeMillis(blockServer, parameter[1]));
+                } else if (parameter[0].equals("slow_start")) {
+                    upstreamServer.setSlowStart(parseTimeMillis(blockServer, parameter[1]));
+                } else {
+                    throw new ConfigParseException(blockServer.getLineNo(),
+                            "invalid parameter \"" + arguments.get(i) + "\" in \"" + blockServerKey + "\" directive");
+                }
+            }
+            config.addUpstreamServer(upstreamName, upstreamServer);
+        }
+        if (!config.getUpstreamServers().containsKey(upstreamName)) {
+            throw new ConfigParseException(block.getLineNo(), "no servers are inside upstream \"" + upstreamName + "\"");
+        }
+    }
+
+    /**
+     * 解析health_check指令，参数均为可选的key=value格式
+     */
+    private GatewayConfig.UpstreamCheck doParseHealthCheck(Block block) throws ConfigParseException {
+        if (block.isBlock()) {
+            throw new ConfigParseException(block.getLineNo(), "\"" + block.getKey() + "\" directive invalid");
+        }
+        GatewayConfig.UpstreamCheck upstreamCheck = new GatewayConfig.UpstreamCheck();
+        for (String argument : block.getArguments()) {
+            String[] parameter = doGetParameter(block, argument);
+            if (parameter[0].equals("type")) {
+                if (!parameter[1].equals(GatewayConfig.UpstreamCheck.TYPE_HTTP)
+                        && !parameter[1].equals(GatewayConfig.UpstreamCheck.TYPE_TCP)) {
+                    throw new ConfigParseException(block.getLineNo(),
+                            "invalid parameter \"" + argument + "\" in \"" + block.getKey() + "\" directive");
+                }
+                upstreamCheck.setType(parameter[1]);
+            } else if (parameter[0].equals("uri")) {
+                if (!parameter[1].startsWith("/")) {
+                    throw new ConfigParseException(block.getLineNo(),
+                            "invalid parameter \"" + argument + "\" in \"" + block.getKey() + "\" directive");
+                }
+                upstreamCheck.setUri(parameter[1]);
+            } else if (parameter[0].equals("interval")) {
+                upstreamCheck.setInterval(Math.max(parseTimeMillis(block, parameter[1]), 1));
+            } else if (parameter[0].equals("timeout")) {
+                upstreamCheck.setTimeout(Math.max(parseTimeMillis(block, parameter[1]), 1));
+            } else if (parameter[0].equals("rise")) {
+                upstreamCheck.setRise(Math.max(doParseCount(block, parameter[1]), 1));
+            } else if (parameter[0].equals("fall")) {
+                upstreamCheck.setFall(Math.max(doParseCount(block, parameter[1]), 1));
+            } else {
+                throw new ConfigParseException(block.getLineNo(),
+                        "invalid parameter \"" + argument + "\" in \"" + block.getKey() + "\" directive");
+            }
+        }
+        return upstreamCheck;
+    }
+
+    private String[] doGetParameter(Block block, String argument) throws ConfigParseException {
+        int index = argument.indexOf('=');
+        if (index <= 0 || index == argument.length() - 1) {
+            throw new ConfigParseException(block.getLineNo(),
+                    "invalid parameter \"" + argument + "\" in \"" + block.getKey() + "\" directive");
+        }
+        return new String[] {argument.substring(0, index), argument.substring(index + 1)};
+    }
+
+    private int doParseCount(Block block, String value) throws ConfigParseException {
+        try {
+            int count = Integer.parseInt(value);
+            if (count < 0) {
+                throw new NumberFormatException();
+            }
+            return count;
+        } catch (NumberFormatException e) {
+            throw new ConfigParseException(block.getLineNo(),
+                    "invalid value \"" + value + "\" in \"" + block.getKey() + "\" directive");
         }
     }
 }
@@ -53,6 +53,11 @@ public abstract class AbstractHandler implements IHandler {
         interceptorSupport.addInterceptor(interceptor);
     }
 
+    @Override
+    public boolean isStreamBody() {
+        return false;
+    }
+
     @Override
     public String getHost() {
         return host;
@@ -130,5 +135,6 @@ public abstract class AbstractHandler implements IHandler {
 
     @Override
     public void close() {
+        interceptorSupport.destroy();
     }
 }
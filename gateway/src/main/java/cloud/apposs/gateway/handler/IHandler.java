@@ -21,12 +21,20 @@ public interface IHandler {
 
     /**
      * 处理HTTP请求，根据处理返回标志，上层ApplicationHandler会根据结果决定是否进行最后拦截器触发，
-     * 注意如果返回是异步即为true，则底层handler需要自己触发拦截器，便于保证拦截器生命周期完整
+     * 注意如果返回是异步即为true，则底层handler需要自己触发拦截器，便于保证拦截器生命周期完整，
+     * 如果handler已经自己输出响应（例如静态文件零拷贝输出、反向代理流式输出）则返回null，
+     * 此时上层不再输出响应，拦截器afterCompletion也由handler自己触发
      *
-     * @return 异步处理结果
+     * @return 异步处理结果，为null时表示响应已输出
      */
     RxIo<?> handle(HttpRequest request, HttpResponse response) throws Exception;
 
+    /**
+     * 是否流式处理请求BODY，为true时请求BODY每次分段到达都会再次调用{@link #handle(HttpRequest, HttpResponse)}，
+     * 例如反向代理将BODY原样转发到上游，否则由网关解析完整的表单数据后只调用一次
+     */
+    boolean isStreamBody();
+
     /**
      * 添加IHandler请求处理拦截器
      */
@@ -0,0 +1,18 @@
+package cloud.apposs.gateway.handler;
+
+/**
+ * 流式响应，响应数据由处理器分多次输出时使用，例如反向代理流式转发，
+ * 处理器将其存储在请求属性{@link cloud.apposs.gateway.GatewayConstants#REQUEST_ATTRIBUTE_STREAM}中，
+ * 由ApplicationHandler在客户端连接数据发送完毕或者连接关闭时通知，便于处理器做背压控制和资源释放
+ */
+public interface IResponseStream {
+    /**
+     * 客户端连接发送队列中的数据已经全部发送完毕
+     */
+    void onSendComplete();
+
+    /**
+     * 客户端连接已经关闭
+     */
+    void onClose();
+}
@@ -0,0 +1,117 @@
+package cloud.apposs.gateway.handler.index;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * HTTP Range请求区间，只支持bytes单位，格式如下：
+ * <pre>
+ * Range: bytes=0-499
+ * Range: bytes=500-
+ * Range: bytes=-500
+ * Range: bytes=0-0,-1
+ * </pre>
+ */
+public final class HttpRange {
+    public static final String BYTES_UNIT = "bytes=";
+
+    /** 区间起始位置，包含 */
+    private final long start;
+
+    /** 区间结束位置，包含 */
+    private final long end;
+
+    public HttpRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * 获取Content-Range响应头内容
+     */
+    public String getContentRange(long fileLength) {
+        return "bytes " + start + "-" + end + "/" + fileLength;
+    }
+
+    /**
+     * 解析Range请求头
+     *
+     * @param  range      Range请求头内容
+     * @param  fileLength 文件长度
+     * @param  maxRanges  最多允许的区间数，超过则忽略Range请求
+     * @return 解析无效或者需要忽略Range时返回null，由上层响应完整文件；
+     *         所有区间均不满足时返回空列表，由上层响应416
+     */
+    public static List<HttpRange> parse(String range, long fileLength, int maxRanges) {
+        if (range == null || !range.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return null;
+        }
+        List<HttpRange> rangeList = new LinkedList<HttpRange>();
+        String[] specs = range.substring(BYTES_UNIT.length()).split(",");
+        if (specs.length > maxRanges) {
+            return null;
+        }
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dashIdx = spec.indexOf('-');
+            if (dashIdx < 0) {
+                return null;
+            }
+            String startStr = spec.substring(0, dashIdx).trim();
+            String endStr = spec.substring(dashIdx + 1).trim();
+            long start;
+            long end;
+            try {
+                if (startStr.isEmpty()) {
+                    // 后缀区间，即请求文件最后N个字节
+                    if (endStr.isEmpty()) {
+                        return null;
+                    }
+                    long suffix = Long.parseLong(endStr);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix == 0) {
+                        continue;
+                    }
+                    start = Math.max(fileLength - suffix, 0);
+                    end = fileLength - 1;
+                } else {
+                    start = Long.parseLong(startStr);
+                    end = endStr.isEmpty() ? Long.MAX_VALUE : Long.parseLong(endStr);
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    if (end >= fileLength) {
+                        end = fileLength - 1;
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (start >= fileLength) {
+                // 不满足的区间直接忽略，所有区间均不满足时才响应416
+                continue;
+            }
+            rangeList.add(new HttpRange(start, end));
+        }
+        return rangeList;
+    }
+
+    @Override
+    public String toString() {
+        return start + "-" + end;
+    }
+}
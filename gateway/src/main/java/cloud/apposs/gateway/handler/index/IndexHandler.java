@@ -3,46 +3,251 @@ package cloud.apposs.gateway.handler.index;
 import cloud.apposs.gateway.GatewayException;
 import cloud.apposs.gateway.WebUtil;
 import cloud.apposs.gateway.handler.AbstractHandler;
+import cloud.apposs.netkit.IoBuffer;
+import cloud.apposs.netkit.buffer.ByteBuf;
 import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
 import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
 import cloud.apposs.netkit.rxio.RxIo;
-import cloud.apposs.util.FileUtil;
 import cloud.apposs.util.HttpStatus;
 import cloud.apposs.util.Param;
 
-import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
 
 /**
- * 目录文件读取服务，对应root指令
+ * 目录文件读取服务，对应root指令，
+ * 文件数据通过{@link OpenFileBuf}零拷贝发送，不再将文件读取到内存，同时支持：
+ * 1、文件句柄及元数据缓存，对应open_file_cache/open_file_cache_valid指令
+ * 2、ETag/Last-Modified条件请求，文件未变更时响应304
+ * 3、单区间及多区间Range请求，响应206，多区间时响应multipart/byteranges
+ * 4、根据文件扩展名输出对应的Content-Type，找不到时采用default_type
  */
 public class IndexHandler extends AbstractHandler {
+    /** 多区间Range请求最多允许的区间数，超过则直接响应完整文件 */
+    public static final int MAX_RANGES = 16;
+
+    public static final String MULTIPART_BOUNDARY = "00000000000000000001";
+
     /** 文件读取目录 */
     private String directory;
 
     /** 当为根据目录时直接读取哪个文件 */
     private String index = "index.html";
 
+    /** 文件句柄及元数据缓存 */
+    private OpenFileCache openFileCache;
+
     @Override
     public void initialize(Param options) {
         this.directory = options.getString("directory");
+        if (directory.endsWith("/") || directory.endsWith("\\")) {
+            directory = directory.substring(0, directory.length() - 1);
+        }
         if (options.containsKey("index")) {
             this.index = options.getString("index");
         }
+        boolean openFileCacheEnable = options.getBoolean("openFileCache", true);
+        int openFileCacheMax = options.getInt("openFileCacheMax", OpenFileCache.DEFAULT_MAX_ENTRIES);
+        long openFileCacheInactive = options.getLong("openFileCacheInactive", OpenFileCache.DEFAULT_INACTIVE);
+        long openFileCacheValid = options.getLong("openFileCacheValid", OpenFileCache.DEFAULT_VALID);
+        this.openFileCache = new OpenFileCache(openFileCacheEnable,
+                openFileCacheMax, openFileCacheInactive, openFileCacheValid);
     }
 
+    /**
+     * 文件数据直接由当前Handler响应输出并触发拦截器，返回null告诉上层ApplicationHandler无需再输出
+     */
     @Override
     public RxIo<String> handle(HttpRequest request, HttpResponse response) throws Exception {
+        String method = request.getMethod();
+        boolean isHead = "HEAD".equalsIgnoreCase(method);
+        if (!isHead && !"GET".equalsIgnoreCase(method)) {
+            response.putHeader("Allow", "GET, HEAD");
+            throw new GatewayException(HttpStatus.HTTP_STATUS_405, "Method " + method + " Not Allowed");
+        }
+
         String path = WebUtil.getRequestPath(request);
-        if (path.equals("/")) {
+        int queryIdx = path.indexOf('?');
+        if (queryIdx != -1) {
+            path = path.substring(0, queryIdx);
+        }
+        if (isPathTraversal(path)) {
+            throw new GatewayException(HttpStatus.HTTP_STATUS_403, "Access \"" + path + "\" Forbidden");
+        }
+        if (path.endsWith("/")) {
             path = path + index;
         }
-        String filePath = directory + path;
-        File readFile = new File(filePath);
-        if (!readFile.exists()) {
-            throw new GatewayException(HttpStatus.HTTP_STATUS_404,
-                    "Read \"" + readFile.getAbsolutePath() + "\" Failed (No Such File Or Directory)");
+
+        OpenFileCache.OpenFile openFile = openFileCache.open(directory + path);
+        try {
+            if (!openFile.exists()) {
+                throw new GatewayException(HttpStatus.HTTP_STATUS_404,
+                        "Read \"" + openFile.getFile().getAbsolutePath() + "\" Failed (No Such File Or Directory)");
+            }
+            response.getHeaders().putAll(addHeaders);
+            if (openFile.isDirectory()) {
+                // 目录请求重定向到以/结尾的路径，由index指令决定读取哪个文件
+                response.setStatus(HttpStatus.HTTP_STATUS_301);
+                response.putHeader("Location", path + "/");
+                response.writeHeader(0, true);
+            } else {
+                doSendFile(request, response, openFile, path, isHead);
+            }
+        } finally {
+            openFile.release();
+        }
+        interceptorSupport.afterCompletion(request, response, this);
+        return null;
+    }
+
+    private void doSendFile(HttpRequest request, HttpResponse response,
+            OpenFileCache.OpenFile openFile, String path, boolean isHead) throws Exception {
+        long fileLength = openFile.getLength();
+        String contentType = MimeTypes.getMimeType(path);
+        if (contentType == null) {
+            contentType = this.contentType;
+        }
+        if (MimeTypes.isText(contentType)) {
+            contentType = contentType + "; charset=" + charset;
+        }
+        response.putHeader("ETag", openFile.getEtag());
+        response.putHeader("Last-Modified", openFile.getLastModifiedDate());
+        response.putHeader("Accept-Ranges", "bytes");
+
+        // 条件请求，文件未变更时响应304
+        if (isNotModified(request, openFile)) {
+            response.setStatus(HttpStatus.HTTP_STATUS_304);
+            response.writeHeader(0, true);
+            return;
+        }
+
+        List<HttpRange> ranges = null;
+        String range = request.getHeader("range", true);
+        if (range != null && isIfRangeMatch(request, openFile)) {
+            ranges = HttpRange.parse(range, fileLength, MAX_RANGES);
+        }
+        if (ranges != null && ranges.isEmpty()) {
+            response.putHeader("Content-Range", "bytes */" + fileLength);
+            throw new GatewayException(HttpStatus.HTTP_STATUS_416, "Range \"" + range + "\" Not Satisfiable");
+        }
+
+        // 完整文件响应
+        if (ranges == null) {
+            response.setContentType(contentType);
+            if (isHead || fileLength == 0) {
+                response.writeHeader(fileLength, true);
+            } else {
+                response.write(new OpenFileBuf(openFile, 0, fileLength), true);
+            }
+            return;
+        }
+
+        // 单区间响应
+        response.setStatus(HttpStatus.HTTP_STATUS_206);
+        if (ranges.size() == 1) {
+            HttpRange httpRange = ranges.get(0);
+            response.setContentType(contentType);
+            response.putHeader("Content-Range", httpRange.getContentRange(fileLength));
+            if (isHead) {
+                response.writeHeader(httpRange.getLength(), true);
+            } else {
+                response.write(new OpenFileBuf(openFile, httpRange.getStart(), httpRange.getLength()), true);
+            }
+            return;
+        }
+
+        // 多区间响应，每个区间的分隔头用内存Buffer，区间数据仍然零拷贝发送
+        response.setContentType("multipart/byteranges; boundary=" + MULTIPART_BOUNDARY);
+        List<IoBuffer> buffers = new LinkedList<IoBuffer>();
+        try {
+            for (HttpRange httpRange : ranges) {
+                StringBuilder partHeader = new StringBuilder(128);
+                partHeader.append(HttpResponse.CRLF).append("--").append(MULTIPART_BOUNDARY).append(HttpResponse.CRLF);
+                partHeader.append("Content-Type: ").append(contentType).append(HttpResponse.CRLF);
+                partHeader.append("Content-Range: ").append(httpRange.getContentRange(fileLength)).append(HttpResponse.CRLF);
+                partHeader.append(HttpResponse.CRLF);
+                buffers.add(ByteBuf.wrap(partHeader.toString()));
+                buffers.add(new OpenFileBuf(openFile, httpRange.getStart(), httpRange.getLength()));
+            }
+            buffers.add(ByteBuf.wrap(HttpResponse.CRLF + "--" + MULTIPART_BOUNDARY + "--" + HttpResponse.CRLF));
+        } catch (Exception e) {
+            for (IoBuffer buffer : buffers) {
+                buffer.free();
+            }
+            throw e;
+        }
+        if (isHead) {
+            long contentLength = 0;
+            for (IoBuffer buffer : buffers) {
+                contentLength += buffer.readableBytes();
+                buffer.free();
+            }
+            response.writeHeader(contentLength, true);
+        } else {
+            response.write(buffers, true);
+        }
+    }
+
+    /**
+     * 判断文件是否未变更，If-None-Match优先于If-Modified-Since
+     */
+    private boolean isNotModified(HttpRequest request, OpenFileCache.OpenFile openFile) {
+        String ifNoneMatch = request.getHeader("if-none-match", true);
+        if (ifNoneMatch != null) {
+            if (ifNoneMatch.trim().equals("*")) {
+                return true;
+            }
+            for (String etag : ifNoneMatch.split(",")) {
+                etag = etag.trim();
+                if (etag.startsWith("W/")) {
+                    etag = etag.substring(2);
+                }
+                if (etag.equals(openFile.getEtag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getHeader("if-modified-since", true);
+        if (ifModifiedSince != null) {
+            if (ifModifiedSince.equals(openFile.getLastModifiedDate())) {
+                return true;
+            }
+            long since = OpenFileCache.parseHttpDate(ifModifiedSince);
+            return since != -1 && openFile.getLastModified() / 1000 <= since / 1000;
+        }
+        return false;
+    }
+
+    /**
+     * If-Range与当前文件ETag或者Last-Modified一致时Range才生效，否则响应完整文件
+     */
+    private boolean isIfRangeMatch(HttpRequest request, OpenFileCache.OpenFile openFile) {
+        String ifRange = request.getHeader("if-range", true);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        return ifRange.equals(openFile.getEtag()) || ifRange.equals(openFile.getLastModifiedDate());
+    }
+
+    /**
+     * 判断请求路径是否包含..，避免读取到root目录之外的文件
+     */
+    private static boolean isPathTraversal(String path) {
+        if (path.indexOf('\0') != -1) {
+            return true;
+        }
+        String normalizePath = path.replace('\\', '/');
+        return normalizePath.equals("..") || normalizePath.startsWith("../")
+                || normalizePath.contains("/../") || normalizePath.endsWith("/..");
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (openFileCache != null) {
+            openFileCache.close();
         }
-        response.getHeaders().putAll(addHeaders);
-        return RxIo.from(FileUtil.readString(new File(filePath)));
     }
 }
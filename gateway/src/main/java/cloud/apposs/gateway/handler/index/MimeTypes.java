@@ -0,0 +1,102 @@
+package cloud.apposs.gateway.handler.index;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 静态文件扩展名与MIME类型映射，参考nginx mime.types配置
+ */
+public final class MimeTypes {
+    private static final Map<String, String> types = new HashMap<String, String>();
+
+    static {
+        types.put("html", "text/html");
+        types.put("htm", "text/html");
+        types.put("shtml", "text/html");
+        types.put("css", "text/css");
+        types.put("xml", "text/xml");
+        types.put("txt", "text/plain");
+        types.put("csv", "text/csv");
+        types.put("md", "text/markdown");
+        types.put("js", "application/javascript");
+        types.put("mjs", "application/javascript");
+        types.put("json", "application/json");
+        types.put("map", "application/json");
+        types.put("gif", "image/gif");
+        types.put("jpeg", "image/jpeg");
+        types.put("jpg", "image/jpeg");
+        types.put("png", "image/png");
+        types.put("bmp", "image/bmp");
+        types.put("webp", "image/webp");
+        types.put("svg", "image/svg+xml");
+        types.put("svgz", "image/svg+xml");
+        types.put("ico", "image/x-icon");
+        types.put("tif", "image/tiff");
+        types.put("tiff", "image/tiff");
+        types.put("woff", "font/woff");
+        types.put("woff2", "font/woff2");
+        types.put("ttf", "font/ttf");
+        types.put("otf", "font/otf");
+        types.put("eot", "application/vnd.ms-fontobject");
+        types.put("pdf", "application/pdf");
+        types.put("zip", "application/zip");
+        types.put("gz", "application/gzip");
+        types.put("tar", "application/x-tar");
+        types.put("7z", "application/x-7z-compressed");
+        types.put("rar", "application/x-rar-compressed");
+        types.put("jar", "application/java-archive");
+        types.put("war", "application/java-archive");
+        types.put("wasm", "application/wasm");
+        types.put("doc", "application/msword");
+        types.put("xls", "application/vnd.ms-excel");
+        types.put("ppt", "application/vnd.ms-powerpoint");
+        types.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        types.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        types.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+        types.put("bin", "application/octet-stream");
+        types.put("exe", "application/octet-stream");
+        types.put("dll", "application/octet-stream");
+        types.put("iso", "application/octet-stream");
+        types.put("apk", "application/vnd.android.package-archive");
+        types.put("mp3", "audio/mpeg");
+        types.put("ogg", "audio/ogg");
+        types.put("m4a", "audio/x-m4a");
+        types.put("wav", "audio/wav");
+        types.put("mp4", "video/mp4");
+        types.put("m3u8", "application/vnd.apple.mpegurl");
+        types.put("ts", "video/mp2t");
+        types.put("webm", "video/webm");
+        types.put("flv", "video/x-flv");
+        types.put("mov", "video/quicktime");
+        types.put("avi", "video/x-msvideo");
+        types.put("mkv", "video/x-matroska");
+    }
+
+    private MimeTypes() {
+    }
+
+    /**
+     * 根据文件名获取MIME类型，找不到对应的扩展名时返回null
+     */
+    public static String getMimeType(String fileName) {
+        int dotIdx = fileName.lastIndexOf('.');
+        if (dotIdx < 0 || dotIdx == fileName.length() - 1) {
+            return null;
+        }
+        int slashIdx = fileName.lastIndexOf('/');
+        if (slashIdx > dotIdx) {
+            return null;
+        }
+        return types.get(fileName.substring(dotIdx + 1).toLowerCase());
+    }
+
+    /**
+     * 判断MIME类型是否为文本，文本类型输出时需要附带编码
+     */
+    public static boolean isText(String mimeType) {
+        return mimeType.startsWith("text/")
+                || mimeType.equals("application/javascript")
+                || mimeType.equals("application/json")
+                || mimeType.equals("image/svg+xml");
+    }
+}
@@ -0,0 +1,32 @@
+package cloud.apposs.gateway.handler.index;
+
+import cloud.apposs.netkit.buffer.ReadOnlyBuf;
+
+import java.io.IOException;
+
+/**
+ * 基于文件缓存的只读Buffer，共享缓存中已打开的文件通道，底层通过零拷贝发送文件区间数据，
+ * 创建时增加文件引用计数，数据发送完毕或者会话关闭时由netkit释放Buffer并减少文件引用计数
+ */
+public class OpenFileBuf extends ReadOnlyBuf {
+    private final OpenFileCache.OpenFile openFile;
+
+    private boolean released = false;
+
+    public OpenFileBuf(OpenFileCache.OpenFile openFile, long offset, long length) throws IOException {
+        super(openFile.getChannel(), offset, length, DEFAULT_RAM_SIZE);
+        if (!openFile.retain()) {
+            throw new IOException("file " + openFile.getFile().getPath() + " already closed");
+        }
+        this.openFile = openFile;
+    }
+
+    @Override
+    public synchronized void free() {
+        if (released) {
+            return;
+        }
+        released = true;
+        openFile.release();
+    }
+}
@@ -0,0 +1,307 @@
+package cloud.apposs.gateway.handler.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * 文件句柄及元数据缓存，对应open_file_cache指令，参考nginx open_file_cache实现，
+ * 缓存文件是否存在、文件大小、修改时间以及已打开的文件通道，避免每次请求都进行stat/open系统调用，
+ * 注意：
+ * 1、每个缓存文件采用引用计数管理，缓存本身持有一个引用，每个发送中的文件Buffer也各持有一个引用，
+ *    文件被淘汰或者被修改时只释放缓存的引用，直到最后一个Buffer发送完毕才真正关闭文件通道
+ * 2、超过valid时间的缓存在访问时会重新检查文件元数据，文件有变更则重建缓存
+ * 3、超过inactive时间未被访问的缓存会被淘汰，缓存数超过max时优先淘汰最久未访问的缓存，
+ *    缓存按访问顺序排列，淘汰时只需从链表头部开始移除，不需要遍历全部缓存
+ */
+public class OpenFileCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final long DEFAULT_INACTIVE = 60 * 1000L;
+    public static final long DEFAULT_VALID = 60 * 1000L;
+
+    /**
+     * HTTP日期格式，SimpleDateFormat非线程安全，每个线程缓存一个实例，
+     * 避免每次格式化和解析日期（包括每个可缓存的代理响应）都重新创建
+     */
+    private static final ThreadLocal<SimpleDateFormat> HTTP_DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return format;
+        }
+    };
+
+    /** 是否开启缓存，关闭时每次请求都重新打开文件 */
+    private final boolean enable;
+
+    /** 最多缓存文件数 */
+    private final int maxEntries;
+
+    /** 缓存多久未被访问则淘汰，单位毫秒 */
+    private final long inactive;
+
+    /** 缓存多久之后需要重新检查文件元数据，单位毫秒 */
+    private final long valid;
+
+    /** 按访问顺序排列的缓存，最久未访问的在头部，访问会调整顺序因此读写都需要加锁 */
+    private final Map<String, OpenFile> files = new LinkedHashMap<String, OpenFile>(16, 0.75f, true);
+
+    /** 上次淘汰检查时间 */
+    private volatile long lastSweepTime = System.currentTimeMillis();
+
+    public OpenFileCache() {
+        this(true, DEFAULT_MAX_ENTRIES, DEFAULT_INACTIVE, DEFAULT_VALID);
+    }
+
+    public OpenFileCache(boolean enable, int maxEntries, long inactive, long valid) {
+        if (enable && (maxEntries <= 0 || inactive <= 0 || valid < 0)) {
+            throw new IllegalArgumentException();
+        }
+        this.enable = enable;
+        this.maxEntries = maxEntries;
+        this.inactive = inactive;
+        this.valid = valid;
+    }
+
+    /**
+     * 获取文件缓存，返回的文件已增加引用计数，调用方使用完毕后必须调用{@link OpenFile#release()}释放
+     */
+    public OpenFile open(String path) {
+        if (!enable) {
+            return new OpenFile(path);
+        }
+
+        long now = System.currentTimeMillis();
+        OpenFile openFile;
+        synchronized (files) {
+            openFile = files.get(path);
+        }
+        if (openFile != null && now - openFile.validTime > valid) {
+            if (openFile.isModified()) {
+                openFile = null;
+            } else {
+                openFile.validTime = now;
+            }
+        }
+        if (openFile == null) {
+            // 文件元数据在锁外获取，锁内只做缓存的增删
+            openFile = new OpenFile(path);
+            List<OpenFile> evicted = new ArrayList<OpenFile>(2);
+            synchronized (files) {
+                OpenFile oldFile = files.put(path, openFile);
+                if (oldFile != null) {
+                    evicted.add(oldFile);
+                }
+                Iterator<OpenFile> iterator = files.values().iterator();
+                while (files.size() > maxEntries && iterator.hasNext()) {
+                    evicted.add(iterator.next());
+                    iterator.remove();
+                }
+            }
+            doRelease(evicted);
+        }
+        if (now - lastSweepTime > inactive) {
+            doSweep(now);
+        }
+        openFile.accessTime = now;
+        if (!openFile.retain()) {
+            // 缓存刚好被其他线程淘汰，直接打开一个不被缓存的文件
+            return new OpenFile(path);
+        }
+        return openFile;
+    }
+
+    public int size() {
+        synchronized (files) {
+            return files.size();
+        }
+    }
+
+    /**
+     * 清除所有缓存，一般用于网关关闭或者配置重载时
+     */
+    public void close() {
+        List<OpenFile> evicted;
+        synchronized (files) {
+            evicted = new ArrayList<OpenFile>(files.values());
+            files.clear();
+        }
+        doRelease(evicted);
+    }
+
+    /**
+     * 淘汰超过inactive未访问的缓存，缓存按访问顺序排列，从头部开始淘汰直到遇到未过期的缓存即可停止
+     */
+    private void doSweep(long now) {
+        lastSweepTime = now;
+        List<OpenFile> evicted = new ArrayList<OpenFile>();
+        synchronized (files) {
+            Iterator<OpenFile> iterator = files.values().iterator();
+            while (iterator.hasNext()) {
+                OpenFile openFile = iterator.next();
+                if (now - openFile.accessTime <= inactive) {
+                    break;
+                }
+                evicted.add(openFile);
+                iterator.remove();
+            }
+        }
+        doRelease(evicted);
+    }
+
+    /**
+     * 在锁外释放被淘汰缓存的引用，避免关闭文件时阻塞其他线程访问缓存
+     */
+    private static void doRelease(List<OpenFile> evicted) {
+        for (int i = 0; i < evicted.size(); i++) {
+            evicted.get(i).release();
+        }
+    }
+
+    /**
+     * 被缓存的文件，包括文件元数据和已打开的文件通道
+     */
+    public static final class OpenFile {
+        private final File file;
+
+        private final boolean exists;
+
+        private final boolean directory;
+
+        private final long length;
+
+        private final long lastModified;
+
+        /** ETag，由文件修改时间和文件大小组成 */
+        private final String etag;
+
+        /** Last-Modified响应头，缓存时生成避免每次请求都格式化日期 */
+        private final String lastModifiedDate;
+
+        private RandomAccessFile raf;
+        private FileChannel channel;
+
+        /** 引用计数，为0时关闭文件通道 */
+        private int refCount = 1;
+
+        private volatile long validTime;
+
+        private volatile long accessTime;
+
+        private OpenFile(String path) {
+            this.file = new File(path);
+            this.exists = file.exists();
+            this.directory = exists && file.isDirectory();
+            this.length = exists ? file.length() : 0;
+            this.lastModified = exists ? file.lastModified() : 0;
+            this.etag = "\"" + Long.toHexString(lastModified / 1000) + "-" + Long.toHexString(length) + "\"";
+            this.lastModifiedDate = formatHttpDate(lastModified);
+            this.validTime = System.currentTimeMillis();
+            this.accessTime = validTime;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public boolean exists() {
+            return exists;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModifiedDate() {
+            return lastModifiedDate;
+        }
+
+        /**
+         * 获取文件通道，首次获取时才打开文件
+         */
+        public synchronized FileChannel getChannel() throws IOException {
+            if (refCount <= 0) {
+                throw new IOException("file " + file.getPath() + " already closed");
+            }
+            if (channel == null) {
+                raf = new RandomAccessFile(file, "r");
+                channel = raf.getChannel();
+            }
+            return channel;
+        }
+
+        /**
+         * 增加引用计数，文件已关闭时返回false
+         */
+        public synchronized boolean retain() {
+            if (refCount <= 0) {
+                return false;
+            }
+            refCount++;
+            return true;
+        }
+
+        /**
+         * 释放引用计数，引用计数为0时关闭文件通道
+         */
+        public synchronized void release() {
+            if (refCount <= 0) {
+                return;
+            }
+            if (--refCount == 0 && raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                }
+                raf = null;
+                channel = null;
+            }
+        }
+
+        private boolean isModified() {
+            boolean nowExists = file.exists();
+            if (nowExists != exists) {
+                return true;
+            }
+            return nowExists && (file.lastModified() != lastModified || file.length() != length);
+        }
+    }
+
+    public static String formatHttpDate(long time) {
+        return HTTP_DATE_FORMAT.get().format(new Date(time));
+    }
+
+    /**
+     * 解析HTTP日期，解析失败返回-1
+     */
+    public static long parseHttpDate(String date) {
+        try {
+            return HTTP_DATE_FORMAT.get().parse(date.trim()).getTime();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
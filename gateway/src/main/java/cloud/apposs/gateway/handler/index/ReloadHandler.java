@@ -0,0 +1,72 @@
+package cloud.apposs.gateway.handler.index;
+
+import cloud.apposs.gateway.ApplicationContext;
+import cloud.apposs.gateway.handler.AbstractHandler;
+import cloud.apposs.logger.Logger;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+import cloud.apposs.netkit.rxio.IoEmitter;
+import cloud.apposs.netkit.rxio.RxIo;
+import cloud.apposs.util.HttpStatus;
+import cloud.apposs.util.Param;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 配置热加载服务，对应reload指令，
+ * 请求时在单独的线程中重新加载配置文件，加载结束后返回新配置版本，该location应只对管理端开放
+ */
+public class ReloadHandler extends AbstractHandler {
+    private ApplicationContext context;
+
+    /**
+     * 热加载线程，热加载需要解析配置文件并初始化新配置的处理器，不能在EventLoop线程中同步执行
+     */
+    private ExecutorService executor;
+
+    @Override
+    public void initialize(Param options) throws Exception {
+        this.context = (ApplicationContext) options.getObject("applicationContext");
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Gateway_Reload");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public RxIo<String> handle(HttpRequest request, final HttpResponse response) throws Exception {
+        response.getHeaders().putAll(addHeaders);
+        if (context == null) {
+            response.setStatus(HttpStatus.HTTP_STATUS_500);
+            return RxIo.from("reload fail: gateway context not available");
+        }
+        return RxIo.emitter(new IoEmitter<String>() {
+            @Override
+            public String call() throws Exception {
+                try {
+                    long version = context.reload();
+                    response.setStatus(HttpStatus.HTTP_STATUS_200);
+                    return "reload success, version " + version;
+                } catch (Exception e) {
+                    Logger.error(e, "Gateway Config Reload Fail");
+                    response.setStatus(HttpStatus.HTTP_STATUS_500);
+                    return "reload fail: " + e.getMessage();
+                }
+            }
+        }).subscribeOn(executor);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package cloud.apposs.gateway.handler.proxy;
+
+import cloud.apposs.gateway.GatewayConstants;
+import cloud.apposs.gateway.GatewayException;
+import cloud.apposs.gateway.GatewayExceptionResolver;
+import cloud.apposs.gateway.handler.AbstractHandler;
+import cloud.apposs.gateway.handler.proxy.cache.CacheEntry;
+import cloud.apposs.gateway.handler.proxy.cache.CacheLoading;
+import cloud.apposs.gateway.handler.proxy.cache.CacheWriter;
+import cloud.apposs.gateway.handler.proxy.cache.ProxyCache;
+import cloud.apposs.gateway.handler.proxy.cache.ProxyCacheConfig;
+import cloud.apposs.gateway.handler.proxy.cache.ProxyCacheStatistics;
+import cloud.apposs.logger.Logger;
+import cloud.apposs.netkit.EventLoop;
+import cloud.apposs.netkit.EventTask;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+import cloud.apposs.netkit.filterchain.http.server.HttpServerFilter;
+import cloud.apposs.netkit.rxio.RxIo;
+import cloud.apposs.netkit.server.ServerHandlerContext;
+import cloud.apposs.util.HttpStatus;
+import cloud.apposs.util.Param;
+
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+
+/**
+ * 流式反向代理抽象，请求和响应均以原始字节流的方式在上下游之间转发，
+ * 上游连接{@link ProxyProcessor}直接注册到客户端连接所在的EventLoop中，
+ * 所以代理的整个生命周期都在同一个EventLoop线程中完成，不需要额外的客户端轮询器，
+ * 配置了proxy_cache时先查找{@link ProxyCache}，未命中再回源
+ */
+public abstract class AbstractProxyHandler extends AbstractHandler {
+    /**
+     * 代理失败时的错误输出
+     */
+    protected final GatewayExceptionResolver exceptionResolver = new GatewayExceptionResolver();
+
+    /**
+     * 上下游发送队列背压水位
+     */
+    protected int highWaterMark = ProxyProcessor.DEFAULT_HIGH_WATER_MARK;
+
+    /**
+     * 响应缓存，没有配置proxy_cache时为空
+     */
+    protected ProxyCache proxyCache;
+
+    /**
+     * 初始化响应缓存，子类初始化时需要先调用
+     */
+    @Override
+    public void initialize(Param options) throws Exception {
+        ProxyCacheConfig cacheConfig = (ProxyCacheConfig) options.getObject("proxyCache");
+        if (cacheConfig != null) {
+            proxyCache = new ProxyCache(cacheConfig);
+        }
+    }
+
+    /**
+     * 请求BODY不在网关解析，每次到达都原样转发到上游
+     */
+    @Override
+    public boolean isStreamBody() {
+        return true;
+    }
+
+    @Override
+    public RxIo<?> handle(HttpRequest request, HttpResponse response) throws Exception {
+        ProxyProcessor proxy = (ProxyProcessor) request.getAttribute(GatewayConstants.REQUEST_ATTRIBUTE_STREAM);
+        if (proxy != null) {
+            // 请求BODY后续数据到达，直接转发到上游
+            proxy.sendRequestContent(request.getContent());
+            return null;
+        }
+
+        EventLoop loop = null;
+        Thread current = Thread.currentThread();
+        if (current instanceof EventLoop) {
+            loop = (EventLoop) current;
+        }
+        if (proxyCache == null) {
+            doProxy(request, response, loop, null, null);
+        } else {
+            doHandleCache(request, response, loop, true);
+        }
+        return null;
+    }
+
+    /**
+     * 查找响应缓存，命中时直接响应，过期时响应旧数据并后台更新，未命中时回源并写入缓存
+     *
+     * @param loop     客户端连接所在的EventLoop
+     * @param lockWait 其他请求正在回源时是否等待回源结果，被唤醒后不再等待，避免反复挂起
+     */
+    private void doHandleCache(HttpRequest request, HttpResponse response,
+            EventLoop loop, boolean lockWait) throws Exception {
+        ProxyCacheStatistics statistics = proxyCache.getStatistics();
+        if (!proxyCache.isCacheable(request)) {
+            statistics.addBypassCount();
+            doProxy(request, response, loop, null, ProxyCache.CACHE_STATUS_BYPASS);
+            return;
+        }
+
+        String key = proxyCache.getKey(request);
+        long now = System.currentTimeMillis();
+        CacheEntry entry = proxyCache.lookup(key, request, now);
+        if (entry != null && entry.isFresh(now)) {
+            if (proxyCache.serve(entry, request, response, ProxyCache.CACHE_STATUS_HIT, addHeaders)) {
+                statistics.addHitCount();
+                onProxyComplete(request, response);
+                return;
+            }
+            entry = null;
+        }
+        if (entry != null && entry.isStaleUsable(now)) {
+            // 响应旧数据，没有其他请求在更新时由当前请求触发后台更新
+            CacheLoading loading = proxyCache.tryLock(key);
+            String cacheStatus = loading == null ? ProxyCache.CACHE_STATUS_STALE : ProxyCache.CACHE_STATUS_UPDATING;
+            boolean served = proxyCache.serve(entry, request, response, cacheStatus, addHeaders);
+            if (loading != null) {
+                doBackgroundUpdate(request, loop, proxyCache.newWriter(key, request, loading));
+            }
+            if (served) {
+                if (loading == null) {
+                    statistics.addStaleCount();
+                } else {
+                    statistics.addUpdatingCount();
+                }
+                onProxyComplete(request, response);
+                return;
+            }
+        }
+
+        String cacheStatus = entry == null ? ProxyCache.CACHE_STATUS_MISS : ProxyCache.CACHE_STATUS_EXPIRED;
+        if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+            // HEAD请求没有响应BODY，不能用于填充缓存
+            statistics.addBypassCount();
+            doProxy(request, response, loop, null, ProxyCache.CACHE_STATUS_BYPASS);
+            return;
+        }
+        CacheLoading loading = proxyCache.tryLock(key);
+        if (loading == null && proxyCache.getConfig().isLock() && lockWait) {
+            CacheWaiter waiter = new CacheWaiter(key, request, response, loop, cacheStatus);
+            int result = proxyCache.waitLock(key, waiter);
+            if (result == ProxyCache.LOCK_WAIT) {
+                waiter.scheduleTimeout(proxyCache.getConfig().getLockTimeout());
+                return;
+            }
+            if (result == ProxyCache.LOCK_RETRY) {
+                doHandleCache(request, response, loop, false);
+                return;
+            }
+            // 等待超时，直接回源且不缓存响应
+            statistics.addMissCount();
+            doProxy(request, response, loop, null, cacheStatus);
+            return;
+        }
+        if (entry == null) {
+            statistics.addMissCount();
+        } else {
+            statistics.addExpiredCount();
+        }
+        // 未开启缓存锁或者被唤醒后仍未命中时同样回源并写入缓存，后写入的覆盖先写入的
+        doProxy(request, response, loop, proxyCache.newWriter(key, request, loading), cacheStatus);
+    }
+
+    /**
+     * 回源代理请求
+     *
+     * @param loop        上游连接注册的EventLoop，即客户端连接所在的EventLoop，为空则由EventLoopGroup分配
+     * @param cacheWriter 响应缓存写入，为空则不缓存
+     * @param cacheStatus X-Cache-Status响应头，为空则不输出
+     */
+    private void doProxy(HttpRequest request, HttpResponse response, EventLoop loop,
+            CacheWriter cacheWriter, String cacheStatus) throws Exception {
+        InetSocketAddress address = doGetUpstream(request);
+        if (address == null) {
+            if (cacheWriter != null) {
+                cacheWriter.abort();
+            }
+            throw new GatewayException(HttpStatus.HTTP_STATUS_502,
+                    "No Available Upstream For HTTP Request With URI [" + request.getRequestUri() + "]");
+        }
+        ProxyProcessor proxy = new ProxyProcessor(this, request, response, address,
+                doGetRequestTarget(request), doGetRequestHost(request), isSsl(),
+                request.getMethod(), cacheWriter, cacheStatus);
+        request.setAttribute(GatewayConstants.REQUEST_ATTRIBUTE_STREAM, proxy);
+        ServerHandlerContext context = response.getContext();
+        context.getProcessor().setAttribute(HttpServerFilter.RESPONSE_STREAMING, Boolean.TRUE);
+        doRegister(proxy, loop, context);
+    }
+
+    /**
+     * 后台回源更新缓存，不回写客户端，回源失败时只记录日志，旧缓存继续生效直到过期
+     */
+    private void doBackgroundUpdate(HttpRequest request, EventLoop loop, CacheWriter cacheWriter) {
+        try {
+            InetSocketAddress address = doGetUpstream(request);
+            if (address == null) {
+                cacheWriter.abort();
+                return;
+            }
+            ProxyProcessor proxy = new ProxyProcessor(this, request, null, address,
+                    doGetRequestTarget(request), doGetRequestHost(request), isSsl(), "GET", cacheWriter, null);
+            if (loop == null) {
+                Logger.warn("proxy cache %s background update outside event loop", cacheWriter.getKey());
+                cacheWriter.abort();
+                return;
+            }
+            doRegister(proxy, loop, null);
+        } catch (Exception e) {
+            Logger.warn(e, "proxy cache %s background update fail", cacheWriter.getKey());
+            cacheWriter.abort();
+        }
+    }
+
+    /**
+     * 上游连接注册到客户端连接所在的EventLoop，避免跨线程切换
+     */
+    private void doRegister(ProxyProcessor proxy, EventLoop loop, ServerHandlerContext context) {
+        if (loop != null) {
+            loop.addProcessor(proxy);
+            loop.wakeup();
+        } else {
+            context.getLoopGroup().addToLoop(proxy);
+        }
+    }
+
+    /**
+     * 获取本次请求要转发的上游服务地址
+     */
+    protected abstract InetSocketAddress doGetUpstream(HttpRequest request) throws Exception;
+
+    /**
+     * 获取转发到上游的请求路径，默认为客户端原始请求路径，包括查询参数
+     */
+    protected String doGetRequestTarget(HttpRequest request) {
+        String target = request.getRawRequestUri();
+        return target == null ? request.getRequestUri() : target;
+    }
+
+    /**
+     * 获取转发到上游的Host请求头，为空则透传客户端的Host
+     */
+    protected String doGetRequestHost(HttpRequest request) {
+        return null;
+    }
+
+    /**
+     * 上游服务是否为HTTPS
+     */
+    protected boolean isSsl() {
+        return false;
+    }
+
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * 代理结束，触发拦截器后置处理
+     */
+    protected void onProxyComplete(HttpRequest request, HttpResponse response) {
+        interceptorSupport.afterCompletion(request, response, this);
+    }
+
+    /**
+     * 成功接收到上游响应头，用于上游节点被动健康检查，在EventLoop线程中回调，不能有阻塞操作
+     */
+    protected void onUpstreamSuccess(InetSocketAddress address) {
+    }
+
+    /**
+     * 连接上游或者接收上游响应头失败，包括超时，用于上游节点被动健康检查，在EventLoop线程中回调，不能有阻塞操作
+     */
+    protected void onUpstreamFailure(InetSocketAddress address, Throwable cause) {
+    }
+
+    /**
+     * 代理失败并且响应头还未回写客户端，输出网关错误信息
+     */
+    protected void onProxyError(HttpRequest request, HttpResponse response, InetSocketAddress address, Throwable cause) {
+        Logger.warn(cause, "proxy %s %s to upstream %s fail", request.getMethod(), request.getRequestUri(), address);
+        if (response == null) {
+            // 后台更新缓存失败，客户端已经响应了旧缓存
+            return;
+        }
+        HttpStatus status = HttpStatus.HTTP_STATUS_502;
+        if (cause instanceof SocketTimeoutException) {
+            status = HttpStatus.HTTP_STATUS_504;
+        }
+        try {
+            exceptionResolver.resolveException(request, response,
+                    new GatewayException(status, "Proxy To Upstream " + address + " Fail"));
+            response.getContext().flush();
+        } catch (Exception e) {
+            response.close(true);
+        }
+        interceptorSupport.afterCompletion(request, response, this, cause);
+    }
+
+    /**
+     * 响应缓存统计，没有配置proxy_cache时为空
+     */
+    public ProxyCacheStatistics getCacheStatistics() {
+        return proxyCache == null ? null : proxyCache.getStatistics();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (proxyCache != null) {
+            Logger.info("proxy cache %s%s statistics %s", host, path, proxyCache.getStatistics());
+            proxyCache.close();
+        }
+    }
+
+    /**
+     * 等待其他请求回源结果的请求，被唤醒后重新查找缓存，
+     * 唤醒和等待超时都在请求所在的EventLoop中处理，两者只会有一个生效
+     */
+    private class CacheWaiter implements CacheLoading.Waiter {
+        private final String key;
+
+        private final HttpRequest request;
+
+        private final HttpResponse response;
+
+        private final EventLoop loop;
+
+        private final String cacheStatus;
+
+        /**
+         * 等待超时任务，只在请求所在的EventLoop中访问
+         */
+        private EventTask timeoutTask;
+
+        private CacheWaiter(String key, HttpRequest request, HttpResponse response,
+                EventLoop loop, String cacheStatus) {
+            this.key = key;
+            this.request = request;
+            this.response = response;
+            this.loop = loop;
+            this.cacheStatus = cacheStatus;
+        }
+
+        /**
+         * 回源请求超过proxy_cache_lock_timeout仍未结束时直接回源且不缓存响应，避免回源请求卡住时一直挂起
+         */
+        private void scheduleTimeout(long timeout) {
+            if (loop == null) {
+                return;
+            }
+            timeoutTask = loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    timeoutTask = null;
+                    // 取消失败说明回源已经结束，唤醒任务已经提交到当前EventLoop
+                    if (!proxyCache.cancelWait(key, CacheWaiter.this)) {
+                        return;
+                    }
+                    proxyCache.getStatistics().addMissCount();
+                    doResume(false);
+                }
+            }, timeout);
+        }
+
+        @Override
+        public void wakeup() {
+            if (loop == null) {
+                doResume(true);
+                return;
+            }
+            // 回源请求可能在其他EventLoop中，切换回当前请求所在的EventLoop继续处理
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (timeoutTask != null) {
+                        timeoutTask.cancel();
+                        timeoutTask = null;
+                    }
+                    doResume(true);
+                }
+            });
+        }
+
+        /**
+         * @param woken 被唤醒时重新查找缓存，等待超时时直接回源
+         */
+        private void doResume(boolean woken) {
+            try {
+                if (woken) {
+                    doHandleCache(request, response, loop, false);
+                } else {
+                    doProxy(request, response, loop, null, cacheStatus);
+                }
+            } catch (Throwable t) {
+                try {
+                    exceptionResolver.resolveException(request, response, t);
+                    response.getContext().flush();
+                } catch (Exception e) {
+                    response.close(true);
+                }
+                interceptorSupport.afterCompletion(request, response, AbstractProxyHandler.this, t);
+            }
+        }
+    }
+}
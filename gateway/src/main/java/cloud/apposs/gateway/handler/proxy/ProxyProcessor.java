@@ -0,0 +1,574 @@
+package cloud.apposs.gateway.handler.proxy;
+
+import cloud.apposs.gateway.handler.IResponseStream;
+import cloud.apposs.gateway.handler.proxy.cache.CacheWriter;
+import cloud.apposs.gateway.handler.proxy.cache.ProxyCache;
+import cloud.apposs.netkit.AbstractIoProcessor;
+import cloud.apposs.netkit.EventChannel;
+import cloud.apposs.netkit.EventSocketChannel;
+import cloud.apposs.netkit.IoBuffer;
+import cloud.apposs.netkit.IoEvent;
+import cloud.apposs.netkit.IoProcessor;
+import cloud.apposs.netkit.WriteRequest;
+import cloud.apposs.netkit.buffer.ByteBuf;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+import cloud.apposs.netkit.filterchain.http.server.HttpServerFilter;
+import cloud.apposs.netkit.filterchain.ssl.SslFilter;
+import cloud.apposs.util.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 反向代理上游连接，每个代理请求对应一个实例，负责将客户端原始请求转发到上游服务并将上游响应以流的方式回写客户端，
+ * 注意：
+ * 1、请求行、请求头和请求BODY原样转发，不再解析成表单，避免JSON/二进制等BODY丢失
+ * 2、上游响应的状态码和响应头原样透传（只去除逐跳头），响应BODY按接收到的数据块直接回写客户端，不在内存中完整缓存
+ * 3、上下游之间有背压控制，一端发送队列积压超过水位时暂停读取另一端数据，发送完毕后再恢复读取
+ * 4、上游连接注册在客户端连接所在的EventLoop中，所有回调都在同一线程触发，无需线程切换
+ * 5、上游请求采用短连接，响应没有Content-Length时以上游连接关闭作为响应结束
+ * 6、开启proxy_cache时响应在回写客户端的同时写入{@link CacheWriter}，
+ *    客户端响应为空时为后台更新缓存，只回源写缓存不回写客户端
+ */
+public class ProxyProcessor extends AbstractIoProcessor implements IResponseStream {
+    public static final String CRLF = "\r\n";
+    public static final Charset HEADER_CHARSET = Charset.forName("ISO-8859-1");
+
+    /** 上下游发送队列背压水位 */
+    public static final int DEFAULT_HIGH_WATER_MARK = 256 * 1024;
+
+    /** 上游响应头最大长度 */
+    public static final int MAX_HEADER_SIZE = 64 * 1024;
+
+    /** 响应头结束标识，即\r\n\r\n */
+    private static final int HEADER_END = 0x0d0a0d0a;
+
+    private final AbstractProxyHandler handler;
+
+    private final HttpRequest request;
+
+    /** 客户端响应，后台更新缓存时为空 */
+    private final HttpResponse response;
+
+    /** 客户端连接，后台更新缓存时为空 */
+    private final IoProcessor downstream;
+
+    /** 转发到上游的请求方法 */
+    private final String method;
+
+    /** 转发到上游的请求头，在创建时生成，后台更新缓存时客户端请求对象可能已被下一个请求复用 */
+    private final IoBuffer requestHeader;
+
+    /** 响应缓存写入，为空则不缓存 */
+    private CacheWriter cacheWriter;
+
+    /** X-Cache-Status响应头，为空则不输出 */
+    private final String cacheStatus;
+
+    /** 上游服务地址 */
+    private final InetSocketAddress address;
+
+    /** 转发到上游的请求路径 */
+    private final String requestTarget;
+
+    /** 转发到上游的Host请求头，为空则透传客户端的Host */
+    private final String requestHost;
+
+    private final int highWaterMark;
+
+    private EventSocketChannel channel;
+
+    /** 上游连接建立前到达的请求BODY数据，连接建立后在请求头之后发送 */
+    private List<IoBuffer> pendingContents = new LinkedList<IoBuffer>();
+
+    private boolean connected = false;
+
+    /**
+     * 响应头解析状态
+     */
+    private ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(512);
+    private int headerTail = 0;
+    private boolean headerComplete = false;
+    private boolean headerSent = false;
+
+    /** 响应BODY剩余长度，-1为没有Content-Length，以上游连接关闭作为结束 */
+    private long contentRemaining = -1;
+
+    /** 响应结束后是否需要关闭客户端连接，即响应没有Content-Length也不是chunked时 */
+    private boolean closeDownstream = false;
+
+    private boolean upstreamPaused = false;
+    private boolean downstreamPaused = false;
+
+    private boolean finished = false;
+
+    public ProxyProcessor(AbstractProxyHandler handler, HttpRequest request, HttpResponse response,
+            InetSocketAddress address, String requestTarget, String requestHost, boolean ssl) throws Exception {
+        this(handler, request, response, address, requestTarget, requestHost, ssl, request.getMethod(), null, null);
+    }
+
+    /**
+     * @param method      转发到上游的请求方法，后台更新缓存时统一为GET
+     * @param cacheWriter 响应缓存写入，为空则不缓存
+     * @param cacheStatus X-Cache-Status响应头，为空则不输出
+     */
+    public ProxyProcessor(AbstractProxyHandler handler, HttpRequest request, HttpResponse response,
+            InetSocketAddress address, String requestTarget, String requestHost, boolean ssl,
+            String method, CacheWriter cacheWriter, String cacheStatus) throws Exception {
+        this.handler = handler;
+        this.request = request;
+        this.response = response;
+        this.downstream = response == null ? null : response.getContext().getProcessor();
+        this.address = address;
+        this.requestTarget = requestTarget;
+        this.requestHost = requestHost;
+        this.highWaterMark = handler.getHighWaterMark();
+        this.method = method;
+        this.cacheWriter = cacheWriter;
+        this.cacheStatus = cacheStatus;
+        this.requestHeader = doWrapRequestHeader();
+        if (ssl) {
+            chain.add(new SslFilter(true, true));
+        }
+    }
+
+    @Override
+    public SelectionKey doRegister(Selector selector) throws IOException {
+        SocketChannel socketChannel = SocketChannel.open();
+        socketChannel.configureBlocking(false);
+        socketChannel.socket().setTcpNoDelay(true);
+
+        channel = new EventSocketChannel(socketChannel);
+        channel.connect(address);
+        return channel.register(selector, SelectionKey.OP_CONNECT);
+    }
+
+    @Override
+    public EventChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void channelConnect() throws Exception {
+        connected = true;
+        List<IoBuffer> buffers = new LinkedList<IoBuffer>();
+        buffers.add(requestHeader);
+        IoBuffer content = downstream == null ? null : request.getContent();
+        if (content != null && content.hasReadableBytes()) {
+            buffers.add(content);
+        }
+        buffers.addAll(pendingContents);
+        pendingContents = null;
+        write(buffers);
+    }
+
+    /**
+     * 转发客户端后续到达的请求BODY数据
+     */
+    public void sendRequestContent(IoBuffer content) throws IOException {
+        if (finished || content == null || !content.hasReadableBytes()) {
+            return;
+        }
+        if (!connected) {
+            pendingContents.add(content);
+            return;
+        }
+        write(content);
+        flush();
+        // 上游发送队列积压过多，暂停读取客户端数据
+        if (writeRequest.getTotalSendBytes() > highWaterMark && !downstreamPaused) {
+            downstreamPaused = true;
+            IoEvent.unRegistSelectionKeyEvent(downstream.getEvent(), downstream.selectionKey(), IoEvent.OP_READ);
+        }
+    }
+
+    /**
+     * 上游发送队列数据发送完毕，恢复读取客户端数据
+     */
+    @Override
+    public void channelSend(WriteRequest writeRequest) throws Exception {
+        if (downstreamPaused && downstream != null) {
+            downstreamPaused = false;
+            IoEvent.registSelectionKeyEvent(downstream.getEvent(), downstream.selectionKey(), IoEvent.OP_READ);
+        }
+    }
+
+    @Override
+    public void channelRead(Object message) throws Exception {
+        if (finished || !(message instanceof IoBuffer)) {
+            return;
+        }
+        IoBuffer buffer = (IoBuffer) message;
+        while (!headerComplete) {
+            if (!doReadHeader(buffer)) {
+                return;
+            }
+            doSendHeader();
+            if (finished) {
+                return;
+            }
+        }
+        doSendContent(buffer);
+    }
+
+    @Override
+    public void channelReadEof(Object message) throws Exception {
+        if (finished) {
+            return;
+        }
+        if (!headerComplete) {
+            doFail(new IOException("upstream " + address + " closed before response header"));
+            return;
+        }
+        // 有Content-Length但数据未接收完整，客户端无法判断响应结束，直接关闭客户端连接
+        doFinish(closeDownstream || contentRemaining > 0);
+    }
+
+    @Override
+    public void channelError(Throwable cause) {
+        if (!finished) {
+            doFail(cause);
+        }
+    }
+
+    @Override
+    public void channelClose() {
+        super.channelClose();
+        if (channel != null) {
+            channel.close();
+        }
+        if (!finished) {
+            doFail(new IOException("upstream " + address + " closed"));
+        }
+    }
+
+    /**
+     * 客户端发送队列数据发送完毕，恢复读取上游数据
+     */
+    @Override
+    public void onSendComplete() {
+        if (upstreamPaused && !finished) {
+            upstreamPaused = false;
+            IoEvent.registSelectionKeyEvent(event, key, IoEvent.OP_READ);
+        }
+    }
+
+    /**
+     * 客户端连接已关闭，不再需要上游数据
+     */
+    @Override
+    public void onClose() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (cacheWriter != null) {
+            cacheWriter.abort();
+        }
+        close(true);
+        handler.onProxyComplete(request, response);
+    }
+
+    /**
+     * 读取上游响应头，响应头读取完毕返回true，buffer的读取位置停留在响应BODY开始处
+     */
+    private boolean doReadHeader(IoBuffer buffer) throws IOException {
+        while (buffer.hasReadableBytes()) {
+            byte letter = buffer.get();
+            headerBytes.write(letter);
+            headerTail = (headerTail << 8) | (letter & 0xff);
+            if (headerTail == HEADER_END) {
+                return true;
+            }
+            if (headerBytes.size() > MAX_HEADER_SIZE) {
+                throw new IOException("upstream " + address + " response header too large");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析上游响应头并回写客户端，去除逐跳头，添加add_header配置的响应头
+     */
+    private void doSendHeader() throws IOException {
+        String header = new String(headerBytes.toByteArray(), HEADER_CHARSET);
+        headerBytes.reset();
+        headerTail = 0;
+        String[] lines = header.split(CRLF);
+        String[] statusLine = lines[0].split(" ", 3);
+        if (statusLine.length < 2 || !statusLine[0].startsWith("HTTP/")) {
+            throw new IOException("upstream " + address + " invalid response status line '" + lines[0] + "'");
+        }
+        int status;
+        try {
+            status = Integer.parseInt(statusLine[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("upstream " + address + " invalid response status line '" + lines[0] + "'");
+        }
+        HttpStatus httpStatus = HttpStatus.getStatus(status);
+        if (httpStatus != null && response != null) {
+            response.setStatus(httpStatus);
+        }
+
+        // 101协议升级响应原样透传，之后按双向透传处理直到连接关闭
+        if (status == 101) {
+            headerComplete = true;
+            headerSent = true;
+            closeDownstream = true;
+            doWriteDownstream(ByteBuf.wrap(header.getBytes(HEADER_CHARSET)));
+            return;
+        }
+        // 其他1xx临时响应原样透传，继续读取最终响应头
+        if (status >= 100 && status < 200) {
+            doWriteDownstream(ByteBuf.wrap(header.getBytes(HEADER_CHARSET)));
+            return;
+        }
+
+        boolean chunked = false;
+        List<String[]> cacheHeaders = cacheWriter == null ? null : new LinkedList<String[]>();
+        StringBuilder newHeader = new StringBuilder(header.length() + 64);
+        newHeader.append(lines[0]).append(CRLF);
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            int colonIdx = line.indexOf(':');
+            if (colonIdx <= 0) {
+                continue;
+            }
+            String key = line.substring(0, colonIdx).trim();
+            String value = line.substring(colonIdx + 1).trim();
+            if (key.equalsIgnoreCase("content-length")) {
+                try {
+                    contentRemaining = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new IOException("upstream " + address + " invalid content-length '" + value + "'");
+                }
+            } else if (key.equalsIgnoreCase("transfer-encoding")) {
+                chunked = value.toLowerCase().contains("chunked");
+            }
+            if (isHopByHopHeader(key) || handler.addHeaders().containsKey(key)) {
+                continue;
+            }
+            newHeader.append(line).append(CRLF);
+            if (cacheHeaders != null) {
+                cacheHeaders.add(new String[] {key, value});
+            }
+        }
+        for (Map.Entry<String, String> entry : handler.addHeaders().entrySet()) {
+            newHeader.append(entry.getKey()).append(": ").append(entry.getValue()).append(CRLF);
+        }
+        if (cacheStatus != null) {
+            newHeader.append(ProxyCache.HEADER_CACHE_STATUS).append(": ").append(cacheStatus).append(CRLF);
+        }
+
+        boolean noContent = "HEAD".equalsIgnoreCase(method) || status == 204 || status == 304;
+        if (cacheWriter != null && (noContent || !cacheWriter.begin(lines[0], status, cacheHeaders, chunked))) {
+            if (noContent) {
+                cacheWriter.abort();
+            }
+            cacheWriter = null;
+        }
+        if (noContent) {
+            contentRemaining = 0;
+        } else if (chunked) {
+            // chunked数据块原样透传给客户端，由客户端自行解码，上游连接关闭时结束
+            contentRemaining = -1;
+        } else if (contentRemaining < 0) {
+            // 没有Content-Length也不是chunked，只能通过关闭客户端连接告诉客户端响应结束
+            closeDownstream = true;
+            newHeader.append("Connection: close").append(CRLF);
+        }
+        newHeader.append(CRLF);
+        headerComplete = true;
+        headerSent = true;
+        handler.onUpstreamSuccess(address);
+        doWriteDownstream(ByteBuf.wrap(newHeader.toString().getBytes(HEADER_CHARSET)));
+        if (contentRemaining == 0) {
+            doFinish(false);
+        }
+    }
+
+    /**
+     * 回写上游响应BODY数据块，直接复用接收的Buffer，不做数据拷贝
+     */
+    private void doSendContent(IoBuffer buffer) throws IOException {
+        long readable = buffer.readableBytes();
+        if (readable <= 0) {
+            return;
+        }
+        if (contentRemaining >= 0) {
+            if (readable > contentRemaining) {
+                buffer.writeIdx(buffer.readIdx() + contentRemaining);
+            }
+            contentRemaining -= buffer.readableBytes();
+        }
+        if (cacheWriter != null) {
+            cacheWriter.write(buffer);
+        }
+        doWriteDownstream(buffer);
+        if (contentRemaining == 0) {
+            doFinish(false);
+            return;
+        }
+        // 客户端发送队列积压过多，暂停读取上游数据，等客户端数据发送完毕再恢复
+        if (!upstreamPaused && downstream != null && downstream.getWriteRequest().getTotalSendBytes() > highWaterMark) {
+            upstreamPaused = true;
+            IoEvent.unRegistSelectionKeyEvent(event, key, IoEvent.OP_READ);
+        }
+    }
+
+    private void doWriteDownstream(IoBuffer buffer) throws IOException {
+        if (downstream == null) {
+            return;
+        }
+        downstream.write(buffer);
+        downstream.flush();
+    }
+
+    /**
+     * 代理结束，释放上游连接，通知客户端连接进行长连接的下一次请求
+     */
+    private void doFinish(boolean closeDownstream) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (cacheWriter != null) {
+            // 有Content-Length但数据未接收完整时不缓存
+            if (contentRemaining > 0) {
+                cacheWriter.abort();
+            } else {
+                cacheWriter.commit();
+            }
+        }
+        close(true);
+        if (downstream == null) {
+            return;
+        }
+        downstream.setAttribute(HttpServerFilter.RESPONSE_STREAMING, Boolean.FALSE);
+        if (closeDownstream) {
+            downstream.close(false);
+        } else {
+            WriteRequest downstreamRequest = downstream.getWriteRequest();
+            if (downstreamRequest.isEmpty() && downstreamRequest.getCurrentWriteMessage() == null) {
+                // 所有响应数据都已经发送完毕，不会再触发发送完毕事件，需要主动触发以便重置HTTP会话
+                try {
+                    downstream.getFilterChain().fireChannelSend(downstreamRequest);
+                } catch (Exception e) {
+                    downstream.close(true);
+                }
+            } else {
+                downstream.flush();
+            }
+        }
+        handler.onProxyComplete(request, response);
+    }
+
+    /**
+     * 代理失败，响应头未回写时输出网关错误信息，否则直接关闭客户端连接
+     */
+    private void doFail(Throwable cause) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (cacheWriter != null) {
+            cacheWriter.abort();
+        }
+        close(true);
+        if (!headerComplete) {
+            handler.onUpstreamFailure(address, cause);
+        }
+        if (downstream == null) {
+            handler.onProxyError(request, null, address, cause);
+            return;
+        }
+        downstream.setAttribute(HttpServerFilter.RESPONSE_STREAMING, Boolean.FALSE);
+        if (headerSent) {
+            downstream.close(true);
+            handler.onProxyComplete(request, response);
+        } else {
+            handler.onProxyError(request, response, address, cause);
+        }
+    }
+
+    /**
+     * 构建转发到上游的请求头，去除逐跳头，添加proxy_set_header配置的请求头，上游请求采用短连接
+     */
+    private IoBuffer doWrapRequestHeader() {
+        Map<String, String> proxyHeaders = handler.proxyHeaders();
+        boolean upgrade = request.getHeader("upgrade", true) != null;
+        StringBuilder header = new StringBuilder(256);
+        header.append(method).append(" ").append(requestTarget).append(" ")
+                .append(request.getProtocol()).append(CRLF);
+        for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+            String key = entry.getKey();
+            if (isHopByHopHeader(key) && !(upgrade && key.equalsIgnoreCase("upgrade"))) {
+                continue;
+            }
+            if (requestHost != null && key.equalsIgnoreCase("host")) {
+                continue;
+            }
+            if (isHeaderContains(proxyHeaders, key)) {
+                continue;
+            }
+            // 后台更新缓存时不带客户端的条件请求头，确保上游返回完整响应
+            if (downstream == null && isConditionalHeader(key)) {
+                continue;
+            }
+            header.append(key).append(": ").append(entry.getValue().trim()).append(CRLF);
+        }
+        if (requestHost != null) {
+            header.append("Host: ").append(requestHost).append(CRLF);
+        }
+        for (Map.Entry<String, String> entry : proxyHeaders.entrySet()) {
+            header.append(entry.getKey()).append(": ").append(entry.getValue()).append(CRLF);
+        }
+        header.append("Connection: ").append(upgrade ? "upgrade" : "close").append(CRLF);
+        header.append(CRLF);
+        return ByteBuf.wrap(header.toString(), "utf-8");
+    }
+
+    /**
+     * 判断是否为逐跳头，逐跳头只对单个连接有效，代理时不能转发
+     */
+    private static boolean isHopByHopHeader(String key) {
+        return key.equalsIgnoreCase("connection")
+                || key.equalsIgnoreCase("keep-alive")
+                || key.equalsIgnoreCase("proxy-connection")
+                || key.equalsIgnoreCase("te")
+                || key.equalsIgnoreCase("trailer")
+                || key.equalsIgnoreCase("upgrade");
+    }
+
+    private static boolean isConditionalHeader(String key) {
+        return key.equalsIgnoreCase("if-none-match")
+                || key.equalsIgnoreCase("if-modified-since")
+                || key.equalsIgnoreCase("if-match")
+                || key.equalsIgnoreCase("if-unmodified-since")
+                || key.equalsIgnoreCase("if-range")
+                || key.equalsIgnoreCase("range");
+    }
+
+    private static boolean isHeaderContains(Map<String, String> headers, String key) {
+        for (String k : headers.keySet()) {
+            if (k.equalsIgnoreCase(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + requestTarget + " -> " + address;
+    }
+}
@@ -1,44 +1,64 @@
 package cloud.apposs.gateway.handler.proxy;
 
-import cloud.apposs.gateway.handler.AbstractHandler;
-import cloud.apposs.netkit.filterchain.http.client.HttpAnswer;
 import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
-import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
-import cloud.apposs.netkit.rxio.IoFunction;
-import cloud.apposs.netkit.rxio.RxIo;
-import cloud.apposs.okhttp.HttpBuilder;
-import cloud.apposs.okhttp.IORequest;
-import cloud.apposs.okhttp.OkHttp;
 import cloud.apposs.util.Param;
+import cloud.apposs.util.StrUtil;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
 
 /**
  * 直接反向代理到指定网站，对应site_pass指令
  */
-public class SiteHandler extends AbstractHandler {
-    private String proxyUrl;
+public class SiteHandler extends AbstractProxyHandler {
+    /** 与nginx一致，站点地址只在初始化时解析一次，避免在EventLoop中同步解析域名 */
+    private InetSocketAddress address;
+
+    private String requestTarget;
+
+    private String requestHost;
 
-    private OkHttp okHttp;
+    private boolean ssl;
 
     @Override
     public void initialize(Param options) throws Exception {
-        proxyUrl = options.getString("proxyUrl");
-        okHttp = HttpBuilder.builder().build();
+        super.initialize(options);
+        URI proxyUri = URI.create(options.getString("proxyUrl"));
+        ssl = "https".equalsIgnoreCase(proxyUri.getScheme());
+        requestTarget = proxyUri.getRawPath();
+        if (StrUtil.isEmpty(requestTarget)) {
+            requestTarget = "/";
+        }
+        if (!StrUtil.isEmpty(proxyUri.getRawQuery())) {
+            requestTarget += "?" + proxyUri.getRawQuery();
+        }
+        requestHost = proxyUri.getHost();
+        int port = proxyUri.getPort();
+        if (port > 0) {
+            requestHost += ":" + port;
+        } else {
+            port = ssl ? 443 : 80;
+        }
+        address = new InetSocketAddress(proxyUri.getHost(), port);
+    }
+
+    @Override
+    protected InetSocketAddress doGetUpstream(HttpRequest request) throws Exception {
+        return address;
+    }
+
+    @Override
+    protected String doGetRequestTarget(HttpRequest request) {
+        return requestTarget;
     }
 
     @Override
-    public RxIo<?> handle(HttpRequest request, HttpResponse response) throws Exception {
-        IORequest clientRequest = IORequest.builder().url(proxyUrl).addHeaders(proxyHeaders);
-        return okHttp.execute(clientRequest).map(new IoFunction<HttpAnswer, String>() {
-            @Override
-            public String call(HttpAnswer httpAnswer) throws Exception {
-                response.getHeaders().putAll(addHeaders);
-                return httpAnswer.getContent();
-            }
-        });
+    protected String doGetRequestHost(HttpRequest request) {
+        return requestHost;
     }
 
     @Override
-    public void close() {
-        okHttp.close();
+    protected boolean isSsl() {
+        return ssl;
     }
 }
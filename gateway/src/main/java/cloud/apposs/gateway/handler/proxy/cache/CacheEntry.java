@@ -0,0 +1,164 @@
+package cloud.apposs.gateway.handler.proxy.cache;
+
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+
+/**
+ * 缓存的上游响应，只保存响应元数据，
+ * 响应BODY存放在内存缓存（{@link cloud.apposs.cachex.memory.jvm.JvmCache}）或者磁盘文件中
+ */
+public final class CacheEntry {
+    private final String key;
+
+    /** 缓存版本号，同一个KEY更新缓存时版本号不同，避免读取到新旧混合的数据 */
+    private final long version;
+
+    /** 响应状态行，例如HTTP/1.1 200 OK */
+    private final String statusLine;
+
+    private final int status;
+
+    /** 响应头，已去除逐跳头及Content-Length/Transfer-Encoding，每行以\r\n结尾 */
+    private final String headers;
+
+    private final String etag;
+
+    private final String lastModified;
+
+    private final long bodyLength;
+
+    /** 磁盘缓存文件路径，为空代表BODY存放在内存中 */
+    private final String filePath;
+
+    private final long storedAt;
+
+    /** 新鲜截止时间，在此之前直接命中缓存 */
+    private final long freshUntil;
+
+    /** 过期后仍可响应旧数据的截止时间，期间后台更新缓存 */
+    private final long staleUntil;
+
+    /** 响应Vary头对应的请求头名称及存储时的请求头值，只缓存一个变体 */
+    private final String[] varyNames;
+    private final String[] varyValues;
+
+    private volatile long lastAccessTime;
+
+    public CacheEntry(String key, long version, String statusLine, int status, String headers,
+            String etag, String lastModified, long bodyLength, String filePath,
+            long storedAt, long freshUntil, long staleUntil, String[] varyNames, String[] varyValues) {
+        this.key = key;
+        this.version = version;
+        this.statusLine = statusLine;
+        this.status = status;
+        this.headers = headers;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.bodyLength = bodyLength;
+        this.filePath = filePath;
+        this.storedAt = storedAt;
+        this.freshUntil = freshUntil;
+        this.staleUntil = staleUntil;
+        this.varyNames = varyNames;
+        this.varyValues = varyValues;
+        this.lastAccessTime = storedAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 获取内存缓存中BODY对应的KEY
+     */
+    public String getMemoryKey() {
+        return key + "#" + version;
+    }
+
+    public String getStatusLine() {
+        return statusLine;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getHeaders() {
+        return headers;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public long getBodyLength() {
+        return bodyLength;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public boolean isMemory() {
+        return filePath == null;
+    }
+
+    public long getStoredAt() {
+        return storedAt;
+    }
+
+    public boolean isFresh(long now) {
+        return now < freshUntil;
+    }
+
+    public boolean isStaleUsable(long now) {
+        return now < staleUntil;
+    }
+
+    public long getStaleUntil() {
+        return staleUntil;
+    }
+
+    /**
+     * 获取Age响应头，单位秒
+     */
+    public long getAge(long now) {
+        return Math.max(0, (now - storedAt) / 1000);
+    }
+
+    /**
+     * 判断请求是否与缓存的Vary变体一致
+     */
+    public boolean isVaryMatch(HttpRequest request) {
+        if (varyNames == null) {
+            return true;
+        }
+        for (int i = 0; i < varyNames.length; i++) {
+            String value = request.getHeader(varyNames[i], true);
+            if (value == null ? varyValues[i] != null : !value.equals(varyValues[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    public void access(long now) {
+        this.lastAccessTime = now;
+    }
+
+    @Override
+    public String toString() {
+        return key + "[" + statusLine + ", " + bodyLength + " bytes, " + (isMemory() ? "memory" : filePath) + "]";
+    }
+}
@@ -0,0 +1,188 @@
+package cloud.apposs.gateway.handler.proxy.cache;
+
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓存KEY模板，对应proxy_cache_key指令，模板在初始化时解析成常量和变量片段，请求时只做拼接，支持的变量如下：
+ * <pre>
+ * $host           请求Host头，不包括端口
+ * $request_uri    原始请求路径，包括查询参数
+ * $uri            请求路径，不包括查询参数
+ * $args           查询参数
+ * $request_method 请求方法
+ * $scheme         请求协议
+ * $remote_addr    客户端地址
+ * $http_name      请求头，name为小写并且用_代替-，例如$http_accept_encoding
+ * </pre>
+ */
+public final class CacheKeyTemplate {
+    private static final int VAR_LITERAL = 0;
+    private static final int VAR_HOST = 1;
+    private static final int VAR_REQUEST_URI = 2;
+    private static final int VAR_URI = 3;
+    private static final int VAR_ARGS = 4;
+    private static final int VAR_REQUEST_METHOD = 5;
+    private static final int VAR_SCHEME = 6;
+    private static final int VAR_REMOTE_ADDR = 7;
+    private static final int VAR_HTTP_HEADER = 8;
+
+    private static final String HTTP_HEADER_PREFIX = "http_";
+
+    private final String template;
+
+    private final int[] types;
+
+    /** 常量片段内容或者请求头名称 */
+    private final String[] values;
+
+    public CacheKeyTemplate(String template) {
+        if (template == null || template.isEmpty()) {
+            throw new IllegalArgumentException("template");
+        }
+        this.template = template;
+        List<Integer> typeList = new ArrayList<Integer>();
+        List<String> valueList = new ArrayList<String>();
+        int length = template.length();
+        int literalStart = 0;
+        int index = 0;
+        while (index < length) {
+            if (template.charAt(index) != '$') {
+                index++;
+                continue;
+            }
+            if (index > literalStart) {
+                typeList.add(VAR_LITERAL);
+                valueList.add(template.substring(literalStart, index));
+            }
+            int nameStart = index + 1;
+            int nameEnd = nameStart;
+            while (nameEnd < length && isVariableChar(template.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            String name = template.substring(nameStart, nameEnd);
+            int type = getVariableType(name);
+            typeList.add(type);
+            valueList.add(type == VAR_HTTP_HEADER ?
+                    name.substring(HTTP_HEADER_PREFIX.length()).replace('_', '-') : name);
+            index = nameEnd;
+            literalStart = nameEnd;
+        }
+        if (literalStart < length) {
+            typeList.add(VAR_LITERAL);
+            valueList.add(template.substring(literalStart));
+        }
+        this.types = new int[typeList.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = typeList.get(i);
+        }
+        this.values = valueList.toArray(new String[valueList.size()]);
+    }
+
+    /**
+     * 根据请求生成缓存KEY
+     */
+    public String build(HttpRequest request) {
+        StringBuilder key = new StringBuilder(64);
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case VAR_LITERAL:
+                    key.append(values[i]);
+                    break;
+                case VAR_HOST:
+                    key.append(getHost(request));
+                    break;
+                case VAR_REQUEST_URI:
+                    key.append(getRequestUri(request));
+                    break;
+                case VAR_URI:
+                    String uri = request.getRequestUri();
+                    int queryIdx = uri.indexOf('?');
+                    key.append(queryIdx == -1 ? uri : uri.substring(0, queryIdx));
+                    break;
+                case VAR_ARGS:
+                    String requestUri = getRequestUri(request);
+                    int argsIdx = requestUri.indexOf('?');
+                    if (argsIdx != -1) {
+                        key.append(requestUri, argsIdx + 1, requestUri.length());
+                    }
+                    break;
+                case VAR_REQUEST_METHOD:
+                    key.append(request.getMethod());
+                    break;
+                case VAR_SCHEME:
+                    key.append(request.getSchema());
+                    break;
+                case VAR_REMOTE_ADDR:
+                    SocketAddress remoteAddr = request.getRemoteAddr();
+                    if (remoteAddr instanceof InetSocketAddress) {
+                        key.append(((InetSocketAddress) remoteAddr).getAddress().getHostAddress());
+                    } else if (remoteAddr != null) {
+                        key.append(remoteAddr);
+                    }
+                    break;
+                case VAR_HTTP_HEADER:
+                    String header = request.getHeader(values[i], true);
+                    if (header != null) {
+                        key.append(header);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return key.toString();
+    }
+
+    private static String getHost(HttpRequest request) {
+        String host = request.getHeader("host", true);
+        if (host == null) {
+            return "";
+        }
+        int portIdx = host.lastIndexOf(':');
+        if (portIdx != -1 && host.indexOf(']') < portIdx) {
+            host = host.substring(0, portIdx);
+        }
+        return host.toLowerCase();
+    }
+
+    private static String getRequestUri(HttpRequest request) {
+        String requestUri = request.getRawRequestUri();
+        return requestUri == null ? request.getRequestUri() : requestUri;
+    }
+
+    private static int getVariableType(String name) {
+        if (name.equals("host")) {
+            return VAR_HOST;
+        } else if (name.equals("request_uri")) {
+            return VAR_REQUEST_URI;
+        } else if (name.equals("uri")) {
+            return VAR_URI;
+        } else if (name.equals("args")) {
+            return VAR_ARGS;
+        } else if (name.equals("request_method")) {
+            return VAR_REQUEST_METHOD;
+        } else if (name.equals("scheme")) {
+            return VAR_SCHEME;
+        } else if (name.equals("remote_addr")) {
+            return VAR_REMOTE_ADDR;
+        } else if (name.startsWith(HTTP_HEADER_PREFIX) && name.length() > HTTP_HEADER_PREFIX.length()) {
+            return VAR_HTTP_HEADER;
+        }
+        throw new IllegalArgumentException("unknown cache key variable \"$" + name + "\"");
+    }
+
+    private static boolean isVariableChar(char letter) {
+        return (letter >= 'a' && letter <= 'z') || (letter >= 'A' && letter <= 'Z')
+                || (letter >= '0' && letter <= '9') || letter == '_';
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,80 @@
+package cloud.apposs.gateway.handler.proxy.cache;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * 缓存回源锁，对应proxy_cache_lock指令，
+ * 同一个KEY同时只有一个请求回源填充缓存，其他未命中的请求挂起等待，回源结束后统一唤醒重新查找缓存
+ */
+public final class CacheLoading {
+    private final String key;
+
+    private final long startTime;
+
+    private List<Waiter> waiters;
+
+    private boolean done = false;
+
+    public CacheLoading(String key, long startTime) {
+        this.key = key;
+        this.startTime = startTime;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * 添加等待回源结果的请求，回源已经结束时返回false
+     */
+    public synchronized boolean addWaiter(Waiter waiter) {
+        if (done) {
+            return false;
+        }
+        if (waiters == null) {
+            waiters = new LinkedList<Waiter>();
+        }
+        waiters.add(waiter);
+        return true;
+    }
+
+    /**
+     * 移除等待回源结果的请求，回源已经结束即等待的请求已经被唤醒时返回false
+     */
+    public synchronized boolean removeWaiter(Waiter waiter) {
+        if (done || waiters == null) {
+            return false;
+        }
+        return waiters.remove(waiter);
+    }
+
+    /**
+     * 回源结束，返回所有等待的请求
+     */
+    public synchronized List<Waiter> complete() {
+        done = true;
+        List<Waiter> completeWaiters = waiters;
+        waiters = null;
+        if (completeWaiters == null) {
+            return Collections.emptyList();
+        }
+        return completeWaiters;
+    }
+
+    /**
+     * 等待回源结果的请求
+     */
+    public interface Waiter {
+        /**
+         * 回源结束，在回源请求所在的线程中回调，
+         * 等待的请求可能在其他线程中，需要切换回自己所在的线程继续处理
+         */
+        void wakeup();
+    }
+}
@@ -0,0 +1,164 @@
+package cloud.apposs.gateway.handler.proxy.cache;
+
+import cloud.apposs.gateway.handler.index.OpenFileCache;
+
+import java.util.List;
+
+/**
+ * 根据上游响应计算缓存时间，优先级如下：
+ * 1、Cache-Control的no-store/no-cache/private、Set-Cookie、Vary: *均不缓存
+ * 2、Cache-Control的s-maxage，其次max-age
+ * 3、Expires减去Date
+ * 4、proxy_cache_valid配置的状态码缓存时间
+ * 其中Cache-Control/Expires/Set-Cookie/Vary可以通过proxy_ignore_headers忽略，由proxy_cache_valid覆盖
+ */
+public final class CachePolicy {
+    /** 未配置proxy_cache_valid时可以根据响应头缓存的状态码 */
+    private static final int[] CACHEABLE_STATUS = {200, 203, 300, 301, 302, 404, 410};
+
+    private CachePolicy() {
+    }
+
+    /**
+     * 获取响应的新鲜时间，单位毫秒，返回-1为不可缓存
+     *
+     * @param status  响应状态码
+     * @param headers 响应头列表，每项为{key, value}
+     * @param now     当前时间
+     * @param config  缓存配置
+     */
+    public static long getFreshTime(int status, List<String[]> headers, long now, ProxyCacheConfig config) {
+        long validTime = config.getValidTime(status);
+        if (validTime < 0 && !isCacheableStatus(status)) {
+            return -1;
+        }
+        String cacheControl = null;
+        String expires = null;
+        String date = null;
+        for (String[] header : headers) {
+            String key = header[0];
+            if (key.equalsIgnoreCase("cache-control")) {
+                cacheControl = cacheControl == null ? header[1] : cacheControl + "," + header[1];
+            } else if (key.equalsIgnoreCase("expires")) {
+                expires = header[1];
+            } else if (key.equalsIgnoreCase("date")) {
+                date = header[1];
+            } else if (key.equalsIgnoreCase("set-cookie") && !config.isIgnoreSetCookie()) {
+                return -1;
+            } else if (key.equalsIgnoreCase("vary") && !config.isIgnoreVary() && header[1].trim().equals("*")) {
+                return -1;
+            }
+        }
+
+        if (cacheControl != null && !config.isIgnoreCacheControl()) {
+            String lowerCacheControl = cacheControl.toLowerCase();
+            if (hasDirective(lowerCacheControl, "no-store") || hasDirective(lowerCacheControl, "no-cache")
+                    || hasDirective(lowerCacheControl, "private")) {
+                return -1;
+            }
+            long maxAge = getDirectiveSeconds(lowerCacheControl, "s-maxage");
+            if (maxAge < 0) {
+                maxAge = getDirectiveSeconds(lowerCacheControl, "max-age");
+            }
+            if (maxAge >= 0) {
+                return maxAge == 0 ? -1 : maxAge * 1000;
+            }
+        }
+        if (expires != null && !config.isIgnoreExpires()) {
+            long expiresTime = OpenFileCache.parseHttpDate(expires);
+            if (expiresTime < 0) {
+                // 非法的Expires视为已过期
+                return -1;
+            }
+            long dateTime = date == null ? -1 : OpenFileCache.parseHttpDate(date);
+            long freshTime = expiresTime - (dateTime < 0 ? now : dateTime);
+            return freshTime <= 0 ? -1 : freshTime;
+        }
+        return validTime > 0 ? validTime : -1;
+    }
+
+    /**
+     * 获取过期后仍可响应旧数据的时间，单位毫秒，
+     * 优先使用Cache-Control的stale-while-revalidate，其次proxy_cache_use_stale配置
+     */
+    public static long getStaleTime(List<String[]> headers, ProxyCacheConfig config) {
+        if (!config.isIgnoreCacheControl()) {
+            for (String[] header : headers) {
+                if (header[0].equalsIgnoreCase("cache-control")) {
+                    long stale = getDirectiveSeconds(header[1].toLowerCase(), "stale-while-revalidate");
+                    if (stale >= 0) {
+                        return stale * 1000;
+                    }
+                }
+            }
+        }
+        return config.getStaleTime();
+    }
+
+    private static boolean isCacheableStatus(int status) {
+        for (int cacheable : CACHEABLE_STATUS) {
+            if (cacheable == status) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        return getDirectiveIndex(cacheControl, directive) != -1;
+    }
+
+    /**
+     * 获取Cache-Control中指定指令的秒数，不存在或者非法返回-1
+     */
+    private static long getDirectiveSeconds(String cacheControl, String directive) {
+        int index = getDirectiveIndex(cacheControl, directive);
+        if (index == -1) {
+            return -1;
+        }
+        index += directive.length();
+        while (index < cacheControl.length() && cacheControl.charAt(index) == ' ') {
+            index++;
+        }
+        if (index >= cacheControl.length() || cacheControl.charAt(index) != '=') {
+            return -1;
+        }
+        index++;
+        while (index < cacheControl.length()
+                && (cacheControl.charAt(index) == ' ' || cacheControl.charAt(index) == '"')) {
+            index++;
+        }
+        long seconds = 0;
+        int start = index;
+        while (index < cacheControl.length() && Character.isDigit(cacheControl.charAt(index))) {
+            seconds = seconds * 10 + (cacheControl.charAt(index) - '0');
+            if (seconds > Integer.MAX_VALUE) {
+                seconds = Integer.MAX_VALUE;
+            }
+            index++;
+        }
+        return index == start ? -1 : seconds;
+    }
+
+    /**
+     * 查找Cache-Control中的指令位置，指令必须是完整的单词，例如不能把s-maxage匹配成max-age
+     */
+    private static int getDirectiveIndex(String cacheControl, String directive) {
+        int from = 0;
+        while (true) {
+            int index = cacheControl.indexOf(directive, from);
+            if (index == -1) {
+                return -1;
+            }
+            int end = index + directive.length();
+            boolean startValid = index == 0 || cacheControl.charAt(index - 1) == ','
+                    || cacheControl.charAt(index - 1) == ' ';
+            boolean endValid = end == cacheControl.length() || cacheControl.charAt(end) == ','
+                    || cacheControl.charAt(end) == '=' || cacheControl.charAt(end) == ' ';
+            if (startValid && endValid) {
+                return index;
+            }
+            from = end;
+        }
+    }
+}
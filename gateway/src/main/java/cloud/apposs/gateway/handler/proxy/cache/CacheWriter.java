@@ -0,0 +1,371 @@
+package cloud.apposs.gateway.handler.proxy.cache;
+
+import cloud.apposs.logger.Logger;
+import cloud.apposs.netkit.IoBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 上游响应缓存写入，响应BODY在回写客户端的同时拷贝一份到缓存，
+ * BODY不超过内存单条上限时暂存在内存中，超过后转存到磁盘临时文件，响应完整接收后再提交到{@link ProxyCache}，
+ * chunked响应在写入时解码，缓存中只保存原始数据，命中时以Content-Length响应
+ */
+public final class CacheWriter {
+    private static final int CHUNK_SIZE = 0;
+    private static final int CHUNK_EXTENSION = 1;
+    private static final int CHUNK_SIZE_LF = 2;
+    private static final int CHUNK_DATA = 3;
+    private static final int CHUNK_DATA_CR = 4;
+    private static final int CHUNK_DATA_LF = 5;
+    private static final int CHUNK_TRAILER = 6;
+    private static final int CHUNK_TRAILER_LF = 7;
+    private static final int CHUNK_DONE = 8;
+
+    private final ProxyCache cache;
+
+    private final String key;
+
+    private final long version;
+
+    /** 缓存回源锁，可能为空 */
+    private final CacheLoading loading;
+
+    /** 客户端请求头快照，用于生成Vary变体，后台更新时客户端请求对象可能已被下一个请求复用 */
+    private final Map<String, String> requestHeaders;
+
+    /** 响应Vary头对应的请求头名称及取值 */
+    private String[] varyNames;
+    private String[] varyValues;
+
+    private String statusLine;
+    private int status;
+    private List<String[]> headers;
+    private long freshTime;
+    private long staleTime;
+
+    private boolean chunked = false;
+    private int chunkState = CHUNK_SIZE;
+    private long chunkRemaining = 0;
+    private int trailerLineLength = 0;
+
+    private ByteArrayOutputStream memory;
+    private File file;
+    private FileOutputStream fileOutput;
+    private long length = 0;
+
+    private boolean begin = false;
+    private boolean finished = false;
+
+    CacheWriter(ProxyCache cache, String key, long version,
+            CacheLoading loading, Map<String, String> requestHeaders) {
+        this.cache = cache;
+        this.key = key;
+        this.version = version;
+        this.loading = loading;
+        this.requestHeaders = requestHeaders;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 上游响应头接收完毕，判断响应是否可以缓存，不可缓存时释放缓存锁并返回false
+     *
+     * @param statusLine 响应状态行
+     * @param status     响应状态码
+     * @param headers    响应头列表，每项为{key, value}
+     * @param chunked    响应是否为chunked编码
+     */
+    public boolean begin(String statusLine, int status, List<String[]> headers, boolean chunked) {
+        long now = System.currentTimeMillis();
+        long freshTime = CachePolicy.getFreshTime(status, headers, now, cache.getConfig());
+        if (freshTime <= 0) {
+            abort();
+            return false;
+        }
+        if (!cache.getConfig().isIgnoreVary()) {
+            doParseVary(headers);
+        }
+        this.statusLine = statusLine;
+        this.status = status;
+        this.headers = headers;
+        this.freshTime = freshTime;
+        this.staleTime = CachePolicy.getStaleTime(headers, cache.getConfig());
+        this.chunked = chunked;
+        this.memory = new ByteArrayOutputStream(1024);
+        this.begin = true;
+        return true;
+    }
+
+    /**
+     * 拷贝一份响应BODY数据到缓存，不改变Buffer的读取位置
+     */
+    public void write(IoBuffer buffer) {
+        if (!begin || finished) {
+            return;
+        }
+        long readable = buffer.readableBytes();
+        if (readable <= 0) {
+            return;
+        }
+        try {
+            byte[] data = buffer.array(buffer.readIdx(), (int) readable);
+            if (chunked) {
+                doDecodeChunked(data);
+            } else {
+                doWrite(data, 0, data.length);
+            }
+        } catch (IOException e) {
+            Logger.warn(e, "write proxy cache %s fail", key);
+            abort();
+        }
+    }
+
+    /**
+     * 上游响应完整接收，提交缓存
+     */
+    public void commit() {
+        if (finished) {
+            return;
+        }
+        if (!begin || (chunked && chunkState != CHUNK_DONE)) {
+            abort();
+            return;
+        }
+        finished = true;
+        try {
+            if (fileOutput != null) {
+                fileOutput.close();
+                fileOutput = null;
+            }
+            cache.store(this);
+        } catch (IOException e) {
+            Logger.warn(e, "store proxy cache %s fail", key);
+            doDeleteFile();
+        } finally {
+            cache.unlock(loading);
+        }
+    }
+
+    /**
+     * 上游响应不可缓存或者接收失败，丢弃已写入的数据并释放缓存锁
+     */
+    public void abort() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        memory = null;
+        if (fileOutput != null) {
+            try {
+                fileOutput.close();
+            } catch (IOException e) {
+            }
+            fileOutput = null;
+        }
+        doDeleteFile();
+        cache.unlock(loading);
+    }
+
+    String getStatusLine() {
+        return statusLine;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    List<String[]> getHeaders() {
+        return headers;
+    }
+
+    long getFreshTime() {
+        return freshTime;
+    }
+
+    long getStaleTime() {
+        return staleTime;
+    }
+
+    String[] getVaryNames() {
+        return varyNames;
+    }
+
+    String[] getVaryValues() {
+        return varyValues;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * 获取内存中的BODY数据，BODY已转存到磁盘时返回null
+     */
+    byte[] getMemoryData() {
+        return memory == null ? null : memory.toByteArray();
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * 解析Vary响应头，记录对应的请求头取值，命中时请求头不一致视为未命中
+     */
+    private void doParseVary(List<String[]> headers) {
+        List<String> names = new LinkedList<String>();
+        for (String[] header : headers) {
+            if (!header[0].equalsIgnoreCase("vary")) {
+                continue;
+            }
+            for (String name : header[1].split(",")) {
+                name = name.trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+        varyNames = names.toArray(new String[names.size()]);
+        varyValues = new String[varyNames.length];
+        for (int i = 0; i < varyNames.length; i++) {
+            for (Map.Entry<String, String> entry : requestHeaders.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(varyNames[i])) {
+                    varyValues[i] = entry.getValue();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void doWrite(byte[] data, int offset, int count) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        length += count;
+        if (memory != null) {
+            if (length <= cache.getConfig().getMemoryMaxEntrySize()) {
+                memory.write(data, offset, count);
+                return;
+            }
+            // 超过内存单条上限，转存到磁盘，没有磁盘缓存时放弃缓存
+            file = cache.createTempFile(this);
+            if (file == null) {
+                abort();
+                return;
+            }
+            fileOutput = new FileOutputStream(file);
+            memory.writeTo(fileOutput);
+            memory = null;
+        }
+        fileOutput.write(data, offset, count);
+    }
+
+    /**
+     * chunked解码状态机，数据块可能在任意位置被拆分，所以逐字节维护解析状态
+     */
+    private void doDecodeChunked(byte[] data) throws IOException {
+        int index = 0;
+        while (index < data.length && !finished) {
+            byte letter = data[index];
+            switch (chunkState) {
+                case CHUNK_SIZE:
+                    int digit = Character.digit(letter, 16);
+                    if (digit >= 0) {
+                        chunkRemaining = (chunkRemaining << 4) | digit;
+                        if (chunkRemaining > Integer.MAX_VALUE) {
+                            throw new IOException("invalid chunk size");
+                        }
+                    } else if (letter == '\r') {
+                        chunkState = CHUNK_SIZE_LF;
+                    } else if (letter == ';' || letter == ' ' || letter == '\t') {
+                        chunkState = CHUNK_EXTENSION;
+                    } else {
+                        throw new IOException("invalid chunk size");
+                    }
+                    index++;
+                    break;
+                case CHUNK_EXTENSION:
+                    if (letter == '\r') {
+                        chunkState = CHUNK_SIZE_LF;
+                    }
+                    index++;
+                    break;
+                case CHUNK_SIZE_LF:
+                    if (letter != '\n') {
+                        throw new IOException("invalid chunk size line");
+                    }
+                    chunkState = chunkRemaining == 0 ? CHUNK_TRAILER : CHUNK_DATA;
+                    trailerLineLength = 0;
+                    index++;
+                    break;
+                case CHUNK_DATA:
+                    int count = (int) Math.min(chunkRemaining, data.length - index);
+                    doWrite(data, index, count);
+                    chunkRemaining -= count;
+                    index += count;
+                    if (chunkRemaining == 0) {
+                        chunkState = CHUNK_DATA_CR;
+                    }
+                    break;
+                case CHUNK_DATA_CR:
+                    if (letter != '\r') {
+                        throw new IOException("invalid chunk data end");
+                    }
+                    chunkState = CHUNK_DATA_LF;
+                    index++;
+                    break;
+                case CHUNK_DATA_LF:
+                    if (letter != '\n') {
+                        throw new IOException("invalid chunk data end");
+                    }
+                    chunkState = CHUNK_SIZE;
+                    index++;
+                    break;
+                case CHUNK_TRAILER:
+                    if (letter == '\r') {
+                        chunkState = CHUNK_TRAILER_LF;
+                    } else {
+                        trailerLineLength++;
+                    }
+                    index++;
+                    break;
+                case CHUNK_TRAILER_LF:
+                    if (letter != '\n') {
+                        throw new IOException("invalid chunk trailer");
+                    }
+                    // 空行代表chunked数据结束，否则为trailer头，直接忽略
+                    chunkState = trailerLineLength == 0 ? CHUNK_DONE : CHUNK_TRAILER;
+                    trailerLineLength = 0;
+                    index++;
+                    break;
+                default:
+                    index = data.length;
+                    break;
+            }
+        }
+    }
+
+    private void doDeleteFile() {
+        if (file != null) {
+            if (!file.delete() && file.exists()) {
+                Logger.warn("delete proxy cache temp file %s fail", file);
+            }
+            file = null;
+        }
+    }
+}
@@ -0,0 +1,560 @@
+package cloud.apposs.gateway.handler.proxy.cache;
+
+import cloud.apposs.cachex.CacheXConfig;
+import cloud.apposs.cachex.memory.jvm.Element;
+import cloud.apposs.cachex.memory.jvm.JvmCache;
+import cloud.apposs.cachex.memory.jvm.JvmCacheListenerAdapter;
+import cloud.apposs.gateway.handler.index.OpenFileBuf;
+import cloud.apposs.gateway.handler.index.OpenFileCache;
+import cloud.apposs.logger.Logger;
+import cloud.apposs.netkit.IoBuffer;
+import cloud.apposs.netkit.buffer.ByteBuf;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+import cloud.apposs.netkit.server.ServerHandlerContext;
+import cloud.apposs.protobuf.ProtoBuf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 反向代理响应缓存，对应proxy_cache指令，参考nginx proxy_cache实现，每个location一个缓存实例，
+ * 1、缓存元数据保存在内存索引中，小响应BODY保存在{@link JvmCache}中，由JvmCache负责容量淘汰和过期，
+ *    大响应BODY保存在磁盘文件中，命中时通过{@link OpenFileBuf}零拷贝发送
+ * 2、缓存过期后在proxy_cache_use_stale/stale-while-revalidate时间内仍响应旧数据，同时由一个请求在后台回源更新
+ * 3、同一个KEY同时未命中时只有一个请求回源，其他请求等待回源结果，即proxy_cache_lock
+ * 4、每个响应都会输出X-Cache-Status头，取值为HIT/MISS/EXPIRED/STALE/UPDATING/BYPASS，并在统计中计数
+ * 注意：磁盘缓存索引不做持久化，服务启动时会清理缓存目录中遗留的缓存文件
+ */
+public class ProxyCache {
+    public static final String HEADER_CACHE_STATUS = "X-Cache-Status";
+
+    public static final String CACHE_STATUS_HIT = "HIT";
+    public static final String CACHE_STATUS_MISS = "MISS";
+    public static final String CACHE_STATUS_EXPIRED = "EXPIRED";
+    public static final String CACHE_STATUS_STALE = "STALE";
+    public static final String CACHE_STATUS_UPDATING = "UPDATING";
+    public static final String CACHE_STATUS_BYPASS = "BYPASS";
+
+    /** waitLock返回值，分别为已挂起等待、锁等待超时直接回源、锁已释放需重新查找缓存 */
+    public static final int LOCK_WAIT = 0;
+    public static final int LOCK_TIMEOUT = 1;
+    public static final int LOCK_RETRY = 2;
+
+    private static final Charset HEADER_CHARSET = Charset.forName("ISO-8859-1");
+
+    private static final String CRLF = "\r\n";
+
+    /** 缓存文件命名格式，即KEY的MD5加版本号 */
+    private static final Pattern CACHE_FILE_PATTERN = Pattern.compile("[0-9a-f]{32}-[0-9]+(\\.tmp)?");
+
+    private final ProxyCacheConfig config;
+
+    private final CacheKeyTemplate keyTemplate;
+
+    /** 缓存元数据索引 */
+    private final Map<String, CacheEntry> index = new ConcurrentHashMap<String, CacheEntry>();
+
+    /** 正在回源的缓存KEY */
+    private final ConcurrentHashMap<String, CacheLoading> loadings = new ConcurrentHashMap<String, CacheLoading>();
+
+    /** 内存缓存 */
+    private final JvmCache memory;
+
+    /** 磁盘缓存目录，为空则没有磁盘缓存 */
+    private final File diskDirectory;
+
+    private final AtomicLong diskSize = new AtomicLong(0);
+
+    /** 磁盘缓存文件句柄缓存，命中时直接复用已打开的文件 */
+    private final OpenFileCache openFileCache;
+
+    private final AtomicLong versionGenerator = new AtomicLong(System.currentTimeMillis());
+
+    private final ProxyCacheStatistics statistics = new ProxyCacheStatistics();
+
+    public ProxyCache(ProxyCacheConfig config) throws IOException {
+        if (config == null) {
+            throw new IllegalArgumentException("config");
+        }
+        this.config = config;
+        this.keyTemplate = new CacheKeyTemplate(config.getKey());
+        CacheXConfig cacheConfig = new CacheXConfig();
+        cacheConfig.getJvmConfig().setMaxMemory(config.getMemoryMaxSize());
+        this.memory = new JvmCache(cacheConfig);
+        this.memory.addListener(new MemoryListener());
+        if (config.getDiskPath() != null) {
+            diskDirectory = new File(config.getDiskPath());
+            if (!diskDirectory.isDirectory() && !diskDirectory.mkdirs()) {
+                throw new IOException("create proxy cache directory " + diskDirectory + " fail");
+            }
+            doCleanDirectory(diskDirectory);
+            openFileCache = new OpenFileCache();
+        } else {
+            diskDirectory = null;
+            openFileCache = null;
+        }
+    }
+
+    public ProxyCacheConfig getConfig() {
+        return config;
+    }
+
+    public ProxyCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * 缓存条数
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 内存缓存占用大小，单位字节
+     */
+    public long getMemorySize() {
+        return memory.getByteSize();
+    }
+
+    /**
+     * 磁盘缓存占用大小，单位字节
+     */
+    public long getDiskSize() {
+        return diskSize.get();
+    }
+
+    /**
+     * 判断请求是否可以走缓存，只有不带BODY的GET/HEAD请求可以，带认证信息的请求也不缓存
+     */
+    public boolean isCacheable(HttpRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method)) {
+            return false;
+        }
+        if (request.getHeader("authorization", true) != null || request.getHeader("upgrade", true) != null) {
+            return false;
+        }
+        String contentLength = request.getHeader("content-length", true);
+        if (contentLength != null && !contentLength.trim().equals("0")) {
+            return false;
+        }
+        return request.getHeader("transfer-encoding", true) == null;
+    }
+
+    public String getKey(HttpRequest request) {
+        return keyTemplate.build(request);
+    }
+
+    /**
+     * 查找缓存，超过可响应旧数据时间的缓存会从索引中移除，但仍然返回由上层判断为EXPIRED
+     */
+    public CacheEntry lookup(String key, HttpRequest request, long now) {
+        CacheEntry entry = index.get(key);
+        if (entry == null || !entry.isVaryMatch(request)) {
+            return null;
+        }
+        if (!entry.isStaleUsable(now)) {
+            remove(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * 将缓存响应回写客户端，缓存数据已被淘汰时返回false，由上层按未命中处理
+     *
+     * @param entry       缓存
+     * @param request     客户端请求
+     * @param response    客户端响应
+     * @param cacheStatus X-Cache-Status响应头
+     * @param addHeaders  add_header配置的响应头
+     */
+    public boolean serve(CacheEntry entry, HttpRequest request, HttpResponse response,
+            String cacheStatus, Map<String, String> addHeaders) throws IOException {
+        long now = System.currentTimeMillis();
+        boolean notModified = isNotModified(entry, request);
+        boolean isHead = "HEAD".equalsIgnoreCase(request.getMethod());
+        IoBuffer body = null;
+        if (!notModified && !isHead && entry.getBodyLength() > 0) {
+            body = doGetBody(entry);
+            if (body == null) {
+                remove(entry);
+                return false;
+            }
+        }
+        entry.access(now);
+
+        StringBuilder header = new StringBuilder(256);
+        if (notModified) {
+            header.append("HTTP/1.1 304 Not Modified").append(CRLF);
+        } else {
+            header.append(entry.getStatusLine()).append(CRLF);
+        }
+        header.append(entry.getHeaders());
+        for (Map.Entry<String, String> addHeader : addHeaders.entrySet()) {
+            header.append(addHeader.getKey()).append(": ").append(addHeader.getValue()).append(CRLF);
+        }
+        if (!notModified) {
+            header.append("Content-Length: ").append(entry.getBodyLength()).append(CRLF);
+        }
+        header.append("Age: ").append(entry.getAge(now)).append(CRLF);
+        header.append(HEADER_CACHE_STATUS).append(": ").append(cacheStatus).append(CRLF);
+        header.append(CRLF);
+
+        ServerHandlerContext context = response.getContext();
+        context.write(ByteBuf.wrap(header.toString().getBytes(HEADER_CHARSET)));
+        if (body != null) {
+            context.write(body);
+        }
+        context.flush();
+        return true;
+    }
+
+    /**
+     * 尝试获取回源锁，获取成功返回锁，已有其他请求在回源返回null
+     */
+    public CacheLoading tryLock(String key) {
+        CacheLoading loading = new CacheLoading(key, System.currentTimeMillis());
+        CacheLoading exist = loadings.putIfAbsent(key, loading);
+        return exist == null ? loading : null;
+    }
+
+    /**
+     * 等待其他请求回源结果
+     *
+     * @return {@link #LOCK_WAIT}已挂起等待，回源结束后回调waiter，等待超时由调用方通过{@link #cancelWait}取消；
+     *         {@link #LOCK_TIMEOUT}回源超过proxy_cache_lock_timeout，直接回源并且不缓存；
+     *         {@link #LOCK_RETRY}回源已经结束，重新查找缓存
+     */
+    public int waitLock(String key, CacheLoading.Waiter waiter) {
+        CacheLoading loading = loadings.get(key);
+        if (loading == null) {
+            return LOCK_RETRY;
+        }
+        if (System.currentTimeMillis() - loading.getStartTime() > config.getLockTimeout()) {
+            return LOCK_TIMEOUT;
+        }
+        if (!loading.addWaiter(waiter)) {
+            return LOCK_RETRY;
+        }
+        statistics.addLockWaitCount();
+        return LOCK_WAIT;
+    }
+
+    /**
+     * 取消等待回源结果，用于等待超过proxy_cache_lock_timeout的请求
+     *
+     * @return 取消成功返回true，回源已经结束即请求已经被唤醒时返回false
+     */
+    public boolean cancelWait(String key, CacheLoading.Waiter waiter) {
+        CacheLoading loading = loadings.get(key);
+        return loading != null && loading.removeWaiter(waiter);
+    }
+
+    /**
+     * 释放回源锁，唤醒所有等待的请求
+     */
+    public void unlock(CacheLoading loading) {
+        if (loading == null) {
+            return;
+        }
+        loadings.remove(loading.getKey());
+        for (CacheLoading.Waiter waiter : loading.complete()) {
+            try {
+                waiter.wakeup();
+            } catch (Throwable t) {
+                Logger.warn(t, "wakeup proxy cache %s waiter fail", loading.getKey());
+            }
+        }
+    }
+
+    /**
+     * 创建缓存写入，回源响应在回写客户端的同时写入缓存
+     *
+     * @param key     缓存KEY
+     * @param request 客户端请求，请求头用于生成Vary变体
+     * @param loading 回源锁，可以为空
+     */
+    public CacheWriter newWriter(String key, HttpRequest request, CacheLoading loading) {
+        return new CacheWriter(this, key, versionGenerator.incrementAndGet(),
+                loading, new HashMap<String, String>(request.getHeaders()));
+    }
+
+    /**
+     * 创建磁盘缓存临时文件，没有配置磁盘缓存时返回null
+     */
+    File createTempFile(CacheWriter writer) throws IOException {
+        if (diskDirectory == null) {
+            return null;
+        }
+        File file = doGetCacheFile(writer.getKey(), writer.getVersion());
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("create proxy cache directory " + parent + " fail");
+        }
+        return new File(file.getPath() + ".tmp");
+    }
+
+    /**
+     * 提交缓存，替换同一个KEY的旧缓存
+     */
+    void store(CacheWriter writer) throws IOException {
+        long now = System.currentTimeMillis();
+        String key = writer.getKey();
+        long bodyLength = writer.getLength();
+        String filePath = null;
+        byte[] memoryData = writer.getMemoryData();
+        if (memoryData == null) {
+            File tempFile = writer.getFile();
+            File file = doGetCacheFile(key, writer.getVersion());
+            if (config.getDiskMaxSize() > 0 && !doEnsureDiskSpace(bodyLength, now)) {
+                throw new IOException("proxy cache disk is full");
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("rename proxy cache file " + tempFile + " fail");
+            }
+            filePath = file.getPath();
+        }
+
+        String etag = null;
+        String lastModified = null;
+        StringBuilder headers = new StringBuilder(256);
+        for (String[] header : writer.getHeaders()) {
+            String name = header[0];
+            if (name.equalsIgnoreCase("content-length") || name.equalsIgnoreCase("transfer-encoding")
+                    || name.equalsIgnoreCase("age") || name.equalsIgnoreCase(HEADER_CACHE_STATUS)) {
+                continue;
+            }
+            if (name.equalsIgnoreCase("etag")) {
+                etag = header[1];
+            } else if (name.equalsIgnoreCase("last-modified")) {
+                lastModified = header[1];
+            }
+            headers.append(name).append(": ").append(header[1]).append(CRLF);
+        }
+        long freshUntil = now + writer.getFreshTime();
+        long staleUntil = freshUntil + writer.getStaleTime();
+        CacheEntry entry = new CacheEntry(key, writer.getVersion(), writer.getStatusLine(),
+                writer.getStatus(), headers.toString(), etag, lastModified, bodyLength, filePath,
+                now, freshUntil, staleUntil, writer.getVaryNames(), writer.getVaryValues());
+
+        if (memoryData != null) {
+            String memoryKey = entry.getMemoryKey();
+            if (!memory.put(memoryKey, memoryData)) {
+                return;
+            }
+            memory.expire(memoryKey, (int) Math.min(staleUntil - now, Integer.MAX_VALUE));
+            statistics.addMemoryStoreCount();
+        } else {
+            diskSize.addAndGet(bodyLength);
+            statistics.addDiskStoreCount();
+        }
+        CacheEntry old = index.put(key, entry);
+        if (old != null) {
+            doRelease(old);
+        }
+    }
+
+    /**
+     * 移除缓存并释放缓存数据
+     */
+    public void remove(CacheEntry entry) {
+        if (index.remove(entry.getKey(), entry)) {
+            doRelease(entry);
+        }
+    }
+
+    public synchronized void close() {
+        memory.shutdown();
+        if (openFileCache != null) {
+            openFileCache.close();
+        }
+        index.clear();
+        if (diskDirectory != null) {
+            doCleanDirectory(diskDirectory);
+        }
+    }
+
+    private IoBuffer doGetBody(CacheEntry entry) throws IOException {
+        if (entry.isMemory()) {
+            ProtoBuf value = memory.get(entry.getMemoryKey());
+            if (value == null) {
+                return null;
+            }
+            // 共享内存缓存中的字节数组，不做拷贝
+            ByteBuffer data = value.buffer().duplicate();
+            data.position(0);
+            data.limit((int) entry.getBodyLength());
+            return new ByteBuf(data);
+        }
+        OpenFileCache.OpenFile openFile = openFileCache.open(entry.getFilePath());
+        try {
+            if (!openFile.exists() || openFile.getLength() != entry.getBodyLength()) {
+                return null;
+            }
+            return new OpenFileBuf(openFile, 0, entry.getBodyLength());
+        } finally {
+            openFile.release();
+        }
+    }
+
+    private void doRelease(CacheEntry entry) {
+        if (entry.isMemory()) {
+            memory.remove(entry.getMemoryKey());
+            return;
+        }
+        File file = new File(entry.getFilePath());
+        if (file.delete() || !file.exists()) {
+            diskSize.addAndGet(-entry.getBodyLength());
+        }
+    }
+
+    /**
+     * 磁盘缓存超过容量上限时先淘汰已过期的缓存，不够再按最近访问时间淘汰
+     */
+    private synchronized boolean doEnsureDiskSpace(long required, long now) {
+        long maxSize = config.getDiskMaxSize();
+        if (required > maxSize) {
+            return false;
+        }
+        if (diskSize.get() + required <= maxSize) {
+            return true;
+        }
+        List<CacheEntry> diskEntries = new ArrayList<CacheEntry>();
+        for (CacheEntry entry : index.values()) {
+            if (entry.isMemory()) {
+                continue;
+            }
+            if (!entry.isStaleUsable(now)) {
+                remove(entry);
+            } else {
+                diskEntries.add(entry);
+            }
+        }
+        Collections.sort(diskEntries, new Comparator<CacheEntry>() {
+            @Override
+            public int compare(CacheEntry entry1, CacheEntry entry2) {
+                long time1 = entry1.getLastAccessTime();
+                long time2 = entry2.getLastAccessTime();
+                return time1 < time2 ? -1 : (time1 == time2 ? 0 : 1);
+            }
+        });
+        for (CacheEntry entry : diskEntries) {
+            if (diskSize.get() + required <= maxSize) {
+                break;
+            }
+            remove(entry);
+            statistics.addEvictCount();
+        }
+        return diskSize.get() + required <= maxSize;
+    }
+
+    /**
+     * 客户端条件请求与缓存的ETag/Last-Modified一致时响应304
+     */
+    private static boolean isNotModified(CacheEntry entry, HttpRequest request) {
+        if (entry.getStatus() != 200) {
+            return false;
+        }
+        String ifNoneMatch = request.getHeader("if-none-match", true);
+        if (ifNoneMatch != null) {
+            if (entry.getEtag() == null) {
+                return false;
+            }
+            for (String etag : ifNoneMatch.split(",")) {
+                etag = etag.trim();
+                if (etag.equals("*") || etag.equals(entry.getEtag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getHeader("if-modified-since", true);
+        return ifModifiedSince != null && ifModifiedSince.equals(entry.getLastModified());
+    }
+
+    /**
+     * 缓存文件路径，按nginx levels=1:2的方式分两级目录存放，避免单个目录文件过多
+     */
+    private File doGetCacheFile(String key, long version) {
+        String hash = doHash(key);
+        File level1 = new File(diskDirectory, hash.substring(31));
+        File level2 = new File(level1, hash.substring(29, 31));
+        return new File(level2, hash + "-" + version);
+    }
+
+    private void doCleanDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                doCleanDirectory(file);
+                continue;
+            }
+            if (CACHE_FILE_PATTERN.matcher(file.getName()).matches() && !file.delete()) {
+                Logger.warn("delete proxy cache file %s fail", file);
+            }
+        }
+    }
+
+    private static String doHash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] hashBytes = digest.digest(key.getBytes(Charset.forName("UTF-8")));
+            StringBuilder hash = new StringBuilder(32);
+            for (byte hashByte : hashBytes) {
+                int value = hashByte & 0xff;
+                if (value < 16) {
+                    hash.append('0');
+                }
+                hash.append(Integer.toHexString(value));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 内存缓存过期或者被淘汰时同步移除缓存索引
+     */
+    private class MemoryListener extends JvmCacheListenerAdapter {
+        @Override
+        public void cacheExpired(String memoryKey, Element value) {
+            doRemoveIndex(memoryKey);
+        }
+
+        @Override
+        public void cacheEvicted(String memoryKey, Element value) {
+            if (doRemoveIndex(memoryKey)) {
+                statistics.addEvictCount();
+            }
+        }
+
+        private boolean doRemoveIndex(String memoryKey) {
+            int versionIdx = memoryKey.lastIndexOf('#');
+            if (versionIdx == -1) {
+                return false;
+            }
+            CacheEntry entry = index.get(memoryKey.substring(0, versionIdx));
+            return entry != null && entry.isMemory()
+                    && entry.getMemoryKey().equals(memoryKey) && index.remove(entry.getKey(), entry);
+        }
+    }
+}
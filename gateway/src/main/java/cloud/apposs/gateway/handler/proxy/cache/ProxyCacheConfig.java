@@ -0,0 +1,184 @@
+package cloud.apposs.gateway.handler.proxy.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 反向代理响应缓存配置，对应location块中的proxy_cache相关指令，配置示例如下：
+ * <pre>
+ * location /product {
+ *     proxy_pass http://service-product;
+ *     proxy_cache on;
+ *     proxy_cache_key $host$request_uri;
+ *     proxy_cache_memory max_size=64m max_entry_size=256k;
+ *     proxy_cache_path /data/gateway/cache max_size=1g;
+ *     proxy_cache_valid 200 301 302 10m;
+ *     proxy_cache_valid 404 1m;
+ *     proxy_cache_use_stale 30s;
+ *     proxy_cache_lock on;
+ *     proxy_cache_lock_timeout 5s;
+ *     proxy_ignore_headers Set-Cookie;
+ * }
+ * </pre>
+ */
+public class ProxyCacheConfig {
+    public static final String DEFAULT_CACHE_KEY = "$host$request_uri";
+
+    public static final long DEFAULT_MEMORY_MAX_SIZE = 64 * 1024 * 1024L;
+    public static final int DEFAULT_MEMORY_MAX_ENTRY_SIZE = 256 * 1024;
+    public static final long DEFAULT_LOCK_TIMEOUT = 5 * 1000L;
+
+    /** proxy_cache_valid不指定状态码时默认的缓存状态码 */
+    public static final int[] DEFAULT_VALID_STATUS = {200, 301, 302};
+
+    /** 缓存KEY模板，支持$变量 */
+    private String key = DEFAULT_CACHE_KEY;
+
+    /** 内存缓存总容量，单位字节 */
+    private long memoryMaxSize = DEFAULT_MEMORY_MAX_SIZE;
+
+    /** 单条响应BODY不超过该值时存放在内存中，否则存放在磁盘中 */
+    private int memoryMaxEntrySize = DEFAULT_MEMORY_MAX_ENTRY_SIZE;
+
+    /** 磁盘缓存目录，为空则只有内存缓存，超过内存单条上限的响应不缓存 */
+    private String diskPath;
+
+    /** 磁盘缓存总容量，单位字节，小于等于0为不限制 */
+    private long diskMaxSize = -1;
+
+    /**
+     * 上游响应没有Cache-Control/Expires时各个状态码的缓存时间，单位毫秒，
+     * KEY为状态码，0代表any即所有状态码
+     */
+    private final Map<Integer, Long> validTimes = new HashMap<Integer, Long>();
+
+    /** 缓存过期后仍可以响应旧数据的时间，期间后台更新缓存，单位毫秒 */
+    private long staleTime = 0;
+
+    /** 是否开启缓存锁，同一个KEY同时未命中时只有一个请求回源，其他请求等待结果 */
+    private boolean lock = true;
+
+    /** 缓存锁等待超时时间，超时的请求直接回源且不缓存响应 */
+    private long lockTimeout = DEFAULT_LOCK_TIMEOUT;
+
+    /** 忽略上游响应的头部，支持Cache-Control、Expires、Set-Cookie、Vary */
+    private boolean ignoreCacheControl = false;
+    private boolean ignoreExpires = false;
+    private boolean ignoreSetCookie = false;
+    private boolean ignoreVary = false;
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getMemoryMaxSize() {
+        return memoryMaxSize;
+    }
+
+    public void setMemoryMaxSize(long memoryMaxSize) {
+        this.memoryMaxSize = memoryMaxSize;
+    }
+
+    public int getMemoryMaxEntrySize() {
+        return memoryMaxEntrySize;
+    }
+
+    public void setMemoryMaxEntrySize(int memoryMaxEntrySize) {
+        this.memoryMaxEntrySize = memoryMaxEntrySize;
+    }
+
+    public String getDiskPath() {
+        return diskPath;
+    }
+
+    public void setDiskPath(String diskPath) {
+        this.diskPath = diskPath;
+    }
+
+    public long getDiskMaxSize() {
+        return diskMaxSize;
+    }
+
+    public void setDiskMaxSize(long diskMaxSize) {
+        this.diskMaxSize = diskMaxSize;
+    }
+
+    public Map<Integer, Long> getValidTimes() {
+        return validTimes;
+    }
+
+    public void addValidTime(int status, long validTime) {
+        validTimes.put(status, validTime);
+    }
+
+    /**
+     * 获取状态码对应的缓存时间，没有配置返回-1
+     */
+    public long getValidTime(int status) {
+        Long validTime = validTimes.get(status);
+        if (validTime == null) {
+            validTime = validTimes.get(0);
+        }
+        return validTime == null ? -1 : validTime;
+    }
+
+    public long getStaleTime() {
+        return staleTime;
+    }
+
+    public void setStaleTime(long staleTime) {
+        this.staleTime = staleTime;
+    }
+
+    public boolean isLock() {
+        return lock;
+    }
+
+    public void setLock(boolean lock) {
+        this.lock = lock;
+    }
+
+    public long getLockTimeout() {
+        return lockTimeout;
+    }
+
+    public void setLockTimeout(long lockTimeout) {
+        this.lockTimeout = lockTimeout;
+    }
+
+    public boolean isIgnoreCacheControl() {
+        return ignoreCacheControl;
+    }
+
+    public void setIgnoreCacheControl(boolean ignoreCacheControl) {
+        this.ignoreCacheControl = ignoreCacheControl;
+    }
+
+    public boolean isIgnoreExpires() {
+        return ignoreExpires;
+    }
+
+    public void setIgnoreExpires(boolean ignoreExpires) {
+        this.ignoreExpires = ignoreExpires;
+    }
+
+    public boolean isIgnoreSetCookie() {
+        return ignoreSetCookie;
+    }
+
+    public void setIgnoreSetCookie(boolean ignoreSetCookie) {
+        this.ignoreSetCookie = ignoreSetCookie;
+    }
+
+    public boolean isIgnoreVary() {
+        return ignoreVary;
+    }
+
+    public void setIgnoreVary(boolean ignoreVary) {
+        this.ignoreVary = ignoreVary;
+    }
+}
@@ -0,0 +1,143 @@
+package cloud.apposs.gateway.handler.proxy.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 反向代理缓存统计，各项计数与X-Cache-Status响应头一一对应
+ */
+public final class ProxyCacheStatistics {
+    /** 命中新鲜缓存 */
+    private final AtomicLong hitCount = new AtomicLong(0);
+
+    /** 没有缓存，回源 */
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    /** 缓存已过期并且超过可响应旧数据的时间，回源 */
+    private final AtomicLong expiredCount = new AtomicLong(0);
+
+    /** 缓存已过期，响应旧数据并由当前请求触发后台更新 */
+    private final AtomicLong updatingCount = new AtomicLong(0);
+
+    /** 缓存已过期，响应旧数据，已有其他请求在后台更新 */
+    private final AtomicLong staleCount = new AtomicLong(0);
+
+    /** 请求不可缓存，直接回源 */
+    private final AtomicLong bypassCount = new AtomicLong(0);
+
+    /** 因缓存锁等待其他请求回源结果的请求数 */
+    private final AtomicLong lockWaitCount = new AtomicLong(0);
+
+    /** 写入缓存的响应数，分别为内存和磁盘 */
+    private final AtomicLong memoryStoreCount = new AtomicLong(0);
+    private final AtomicLong diskStoreCount = new AtomicLong(0);
+
+    /** 因容量不足被淘汰的缓存数 */
+    private final AtomicLong evictCount = new AtomicLong(0);
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public void addHitCount() {
+        hitCount.incrementAndGet();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public void addMissCount() {
+        missCount.incrementAndGet();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public void addExpiredCount() {
+        expiredCount.incrementAndGet();
+    }
+
+    public long getUpdatingCount() {
+        return updatingCount.get();
+    }
+
+    public void addUpdatingCount() {
+        updatingCount.incrementAndGet();
+    }
+
+    public long getStaleCount() {
+        return staleCount.get();
+    }
+
+    public void addStaleCount() {
+        staleCount.incrementAndGet();
+    }
+
+    public long getBypassCount() {
+        return bypassCount.get();
+    }
+
+    public void addBypassCount() {
+        bypassCount.incrementAndGet();
+    }
+
+    public long getLockWaitCount() {
+        return lockWaitCount.get();
+    }
+
+    public void addLockWaitCount() {
+        lockWaitCount.incrementAndGet();
+    }
+
+    public long getMemoryStoreCount() {
+        return memoryStoreCount.get();
+    }
+
+    public void addMemoryStoreCount() {
+        memoryStoreCount.incrementAndGet();
+    }
+
+    public long getDiskStoreCount() {
+        return diskStoreCount.get();
+    }
+
+    public void addDiskStoreCount() {
+        diskStoreCount.incrementAndGet();
+    }
+
+    public long getEvictCount() {
+        return evictCount.get();
+    }
+
+    public void addEvictCount() {
+        evictCount.incrementAndGet();
+    }
+
+    /**
+     * 缓存命中率，响应旧数据也视为命中
+     */
+    public double getHitRatio() {
+        long hit = hitCount.get() + staleCount.get() + updatingCount.get();
+        long total = hit + missCount.get() + expiredCount.get();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder info = new StringBuilder(128);
+        info.append("{Hit=").append(hitCount.get());
+        info.append(", Miss=").append(missCount.get());
+        info.append(", Expired=").append(expiredCount.get());
+        info.append(", Updating=").append(updatingCount.get());
+        info.append(", Stale=").append(staleCount.get());
+        info.append(", Bypass=").append(bypassCount.get());
+        info.append(", LockWait=").append(lockWaitCount.get());
+        info.append(", MemoryStore=").append(memoryStoreCount.get());
+        info.append(", DiskStore=").append(diskStoreCount.get());
+        info.append(", Evict=").append(evictCount.get());
+        info.append(", HitRatio=").append(String.format("%.4f", getHitRatio()));
+        info.append("}");
+        return info.toString();
+    }
+}
@@ -0,0 +1,139 @@
+package cloud.apposs.gateway.interceptor.logger;
+
+import cloud.apposs.gateway.variable.VariableParser;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+
+/**
+ * 访问日志线程缓冲，每个请求处理线程(即每个EventLoop)一个，
+ * 日志行直接编码到复用的字节缓冲中，缓冲满或者超过flush时间后整批交给写线程，
+ * 缓冲只在所属线程和写线程的超时刷新中访问，锁基本无竞争
+ */
+final class AccessLogBuffer {
+    private static final char LINE_SEPARATOR = '\n';
+
+    private final AccessLogWriter writer;
+
+    /**
+     * 日志行字符缓冲，复用以避免每次请求都创建字符串
+     */
+    private final StringBuilder line = new StringBuilder(256);
+
+    private byte[] bytes;
+
+    private int position = 0;
+
+    private int lines = 0;
+
+    /**
+     * 缓冲中第一条日志的写入时间
+     */
+    private long firstTime = 0;
+
+    AccessLogBuffer(AccessLogWriter writer) {
+        this.writer = writer;
+        this.bytes = writer.allocate();
+    }
+
+    synchronized void append(VariableParser parser, HttpRequest request, HttpResponse response, long now) {
+        line.setLength(0);
+        parser.parse(request, response, line);
+        line.append(LINE_SEPARATOR);
+        int length = getEncodedLength(line);
+        if (position + length > bytes.length) {
+            doFlush();
+        }
+        if (length > bytes.length) {
+            // 单条日志超过缓冲大小，直接交给写线程
+            byte[] large = new byte[length];
+            doEncode(line, large, 0);
+            writer.offer(new AccessLogWriter.Batch(large, length, 1));
+            return;
+        }
+        if (position == 0) {
+            firstTime = now;
+        }
+        position = doEncode(line, bytes, position);
+        lines++;
+        if (writer.getFlushInterval() <= 0) {
+            doFlush();
+        }
+    }
+
+    /**
+     * 缓冲中的日志超过flush时间时交给写线程，由写线程定时调用
+     */
+    synchronized void flushIfExpired(long now, long flushInterval) {
+        if (position > 0 && now - firstTime >= flushInterval) {
+            doFlush();
+        }
+    }
+
+    synchronized void flush() {
+        doFlush();
+    }
+
+    private void doFlush() {
+        if (position == 0) {
+            return;
+        }
+        writer.offer(new AccessLogWriter.Batch(bytes, position, lines));
+        // 交给写线程的缓冲在写入后回收，这里优先复用回收的缓冲
+        bytes = writer.allocate();
+        position = 0;
+        lines = 0;
+    }
+
+    /**
+     * 计算UTF-8编码后的字节数
+     */
+    private static int getEncodedLength(CharSequence chars) {
+        int length = 0;
+        int count = chars.length();
+        for (int i = 0; i < count; i++) {
+            char letter = chars.charAt(i);
+            if (letter < 0x80) {
+                length += 1;
+            } else if (letter < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(letter) && i + 1 < count
+                    && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 按UTF-8编码写入字节缓冲，不成对的代理字符按3字节编码输出
+     *
+     * @return 写入后的缓冲位置
+     */
+    private static int doEncode(CharSequence chars, byte[] output, int offset) {
+        int count = chars.length();
+        for (int i = 0; i < count; i++) {
+            char letter = chars.charAt(i);
+            if (letter < 0x80) {
+                output[offset++] = (byte) letter;
+            } else if (letter < 0x800) {
+                output[offset++] = (byte) (0xc0 | (letter >> 6));
+                output[offset++] = (byte) (0x80 | (letter & 0x3f));
+            } else if (Character.isHighSurrogate(letter) && i + 1 < count
+                    && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(letter, chars.charAt(++i));
+                output[offset++] = (byte) (0xf0 | (codePoint >> 18));
+                output[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                output[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                output[offset++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                output[offset++] = (byte) (0xe0 | (letter >> 12));
+                output[offset++] = (byte) (0x80 | ((letter >> 6) & 0x3f));
+                output[offset++] = (byte) (0x80 | (letter & 0x3f));
+            }
+        }
+        return offset;
+    }
+}
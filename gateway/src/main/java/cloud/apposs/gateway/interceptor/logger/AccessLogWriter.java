@@ -0,0 +1,368 @@
+package cloud.apposs.gateway.interceptor.logger;
+
+import cloud.apposs.gateway.variable.VariableParser;
+import cloud.apposs.logger.Logger;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 访问日志异步写入器，同一个日志文件的所有拦截器共享一个写入器，
+ * 1、请求线程只负责把日志行编码到线程缓冲，缓冲满或者超过flush时间后整批放入有界队列
+ * 2、单个写线程从队列中批量取出日志通过FileChannel写入文件，并负责按大小和时间切割日志文件
+ * 3、写线程处理不过来导致队列满时直接丢弃日志并计数，不阻塞请求线程
+ */
+public final class AccessLogWriter {
+    public static final String ROTATE_OFF = "off";
+    public static final String ROTATE_HOURLY = "hourly";
+    public static final String ROTATE_DAILY = "daily";
+
+    private static final String THREAD_NAME = "Gateway_Access_Log";
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int FREE_BUFFER_CAPACITY = 64;
+    private static final long MAX_POLL_INTERVAL = 1000L;
+    private static final long CLOSE_TIMEOUT = 5000L;
+
+    /**
+     * 关闭时唤醒写线程的空日志，不能通过中断唤醒，中断会导致FileChannel被关闭
+     */
+    private static final Batch CLOSE_BATCH = new Batch(new byte[0], 0, 0);
+
+    /**
+     * 日志文件对应的写入器，配置热加载后新旧配置的拦截器共享同一个写入器
+     */
+    private static final Map<String, AccessLogWriter> writers = new HashMap<String, AccessLogWriter>();
+
+    private final File file;
+
+    private final int bufferSize;
+
+    private final long flushInterval;
+
+    private final long maxSize;
+
+    private final String rotate;
+
+    private final ArrayBlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(QUEUE_CAPACITY);
+
+    /**
+     * 写入后回收的日志缓冲，供各线程缓冲刷新后复用，避免每次刷新都分配新缓冲
+     */
+    private final ArrayBlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<byte[]>(FREE_BUFFER_CAPACITY);
+
+    private final ThreadLocal<AccessLogBuffer> localBuffer = new ThreadLocal<AccessLogBuffer>();
+
+    private final List<AccessLogBuffer> buffers = new CopyOnWriteArrayList<AccessLogBuffer>();
+
+    /**
+     * 丢弃的日志行数
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Thread thread;
+
+    private FileChannel channel;
+
+    private long fileSize;
+
+    private long nextRotateTime;
+
+    private int references = 0;
+
+    private volatile boolean closed = false;
+
+    private AccessLogWriter(File file, int bufferSize, long flushInterval, long maxSize, String rotate) throws IOException {
+        this.file = file;
+        this.bufferSize = bufferSize;
+        this.flushInterval = flushInterval;
+        this.maxSize = maxSize;
+        this.rotate = rotate;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("create access log directory " + parent + " fail");
+        }
+        doOpen(System.currentTimeMillis());
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                doWriteLoop();
+            }
+        }, THREAD_NAME);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 获取日志文件对应的写入器，同一个文件已有写入器时直接复用，此时以先创建的写入器配置为准
+     *
+     * @param path          日志文件路径
+     * @param bufferSize    线程缓冲大小，即nginx access_log的buffer参数
+     * @param flushInterval 日志在缓冲中的最长停留时间，即nginx access_log的flush参数，0为每条日志立即写入
+     * @param maxSize       日志文件超过该大小时切割，0为不按大小切割
+     * @param rotate        按时间切割，可为off/hourly/daily
+     */
+    public static AccessLogWriter acquire(String path, int bufferSize, long flushInterval,
+            long maxSize, String rotate) throws IOException {
+        File file = new File(path).getAbsoluteFile();
+        synchronized (writers) {
+            AccessLogWriter writer = writers.get(file.getPath());
+            if (writer == null) {
+                writer = new AccessLogWriter(file, bufferSize, flushInterval, maxSize, rotate);
+                writers.put(file.getPath(), writer);
+            }
+            writer.references++;
+            return writer;
+        }
+    }
+
+    /**
+     * 释放写入器，所有拦截器都释放后刷新剩余日志并关闭文件
+     */
+    public static void release(AccessLogWriter writer) {
+        synchronized (writers) {
+            if (--writer.references > 0) {
+                return;
+            }
+            writers.remove(writer.file.getPath());
+        }
+        writer.close();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * 在请求线程中输出一条访问日志
+     */
+    public void write(VariableParser parser, HttpRequest request, HttpResponse response) {
+        AccessLogBuffer buffer = localBuffer.get();
+        if (buffer == null) {
+            buffer = new AccessLogBuffer(this);
+            localBuffer.set(buffer);
+            buffers.add(buffer);
+        }
+        buffer.append(parser, request, response, System.currentTimeMillis());
+    }
+
+    /**
+     * 刷新所有线程缓冲中的日志到写线程
+     */
+    public void flush() {
+        for (AccessLogBuffer buffer : buffers) {
+            buffer.flush();
+        }
+    }
+
+    /**
+     * 分配日志缓冲，优先复用写线程写入后回收的缓冲
+     */
+    byte[] allocate() {
+        byte[] bytes = freeBuffers.poll();
+        if (bytes == null) {
+            bytes = new byte[bufferSize];
+        }
+        return bytes;
+    }
+
+    /**
+     * 回收已写入的日志缓冲，单条超长日志的缓冲和超出回收上限的缓冲直接丢弃
+     */
+    private void doRecycle(Batch batch) {
+        if (batch.bytes.length == bufferSize) {
+            freeBuffers.offer(batch.bytes);
+        }
+    }
+
+    void offer(Batch batch) {
+        if (closed || !queue.offer(batch)) {
+            dropped.addAndGet(batch.lines);
+        }
+    }
+
+    private void close() {
+        flush();
+        closed = true;
+        try {
+            queue.put(CLOSE_BATCH);
+            thread.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void doWriteLoop() {
+        long pollInterval = Math.max(1L, Math.min(flushInterval <= 0 ? MAX_POLL_INTERVAL : flushInterval, MAX_POLL_INTERVAL));
+        List<Batch> batches = new ArrayList<Batch>();
+        long lastDropped = 0;
+        while (!closed) {
+            try {
+                Batch batch = queue.poll(pollInterval, TimeUnit.MILLISECONDS);
+                if (batch != null) {
+                    batches.add(batch);
+                    queue.drainTo(batches);
+                    doWrite(batches);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            long now = System.currentTimeMillis();
+            for (AccessLogBuffer buffer : buffers) {
+                buffer.flushIfExpired(now, flushInterval);
+            }
+            long droppedCount = dropped.get();
+            if (droppedCount != lastDropped) {
+                Logger.warn("access log %s dropped %d lines", file, droppedCount - lastDropped);
+                lastDropped = droppedCount;
+            }
+        }
+        // 关闭前写入剩余日志
+        queue.drainTo(batches);
+        doWrite(batches);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Logger.error(e, "close access log %s fail", file);
+        }
+    }
+
+    /**
+     * 批量写入日志，连续的多批日志合并为一次写入，切割日志文件时先写入已合并的日志
+     */
+    private void doWrite(List<Batch> batches) {
+        if (batches.isEmpty()) {
+            return;
+        }
+        int from = 0;
+        try {
+            long now = System.currentTimeMillis();
+            if (now >= nextRotateTime) {
+                doRotate(now);
+            }
+            long length = 0;
+            for (int i = 0; i < batches.size(); i++) {
+                Batch batch = batches.get(i);
+                if (maxSize > 0 && fileSize + length > 0 && fileSize + length + batch.length > maxSize) {
+                    doWrite(batches, from, i, length);
+                    doRotate(now);
+                    from = i;
+                    length = 0;
+                }
+                length += batch.length;
+            }
+            doWrite(batches, from, batches.size(), length);
+        } catch (IOException e) {
+            long lines = 0;
+            for (int i = from; i < batches.size(); i++) {
+                lines += batches.get(i).lines;
+            }
+            dropped.addAndGet(lines);
+            Logger.error(e, "write access log %s fail", file);
+        } finally {
+            for (int i = 0; i < batches.size(); i++) {
+                doRecycle(batches.get(i));
+            }
+            batches.clear();
+        }
+    }
+
+    private void doWrite(List<Batch> batches, int from, int to, long length) throws IOException {
+        if (from >= to) {
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[to - from];
+        for (int i = from; i < to; i++) {
+            Batch batch = batches.get(i);
+            buffers[i - from] = ByteBuffer.wrap(batch.bytes, 0, batch.length);
+        }
+        long written = 0;
+        while (written < length) {
+            written += channel.write(buffers);
+        }
+        fileSize += length;
+    }
+
+    /**
+     * 切割日志文件，原文件重命名为带时间后缀的文件后重新创建
+     */
+    private void doRotate(long now) throws IOException {
+        channel.close();
+        if (file.length() > 0) {
+            String suffix = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(now));
+            File rotated = new File(file.getPath() + "." + suffix);
+            for (int i = 1; rotated.exists(); i++) {
+                rotated = new File(file.getPath() + "." + suffix + "." + i);
+            }
+            if (!file.renameTo(rotated)) {
+                Logger.warn("rotate access log %s to %s fail", file, rotated);
+            }
+        }
+        doOpen(now);
+    }
+
+    private void doOpen(long now) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+        nextRotateTime = getNextRotateTime(now, rotate);
+    }
+
+    static long getNextRotateTime(long now, String rotate) {
+        if (ROTATE_HOURLY.equalsIgnoreCase(rotate) || ROTATE_DAILY.equalsIgnoreCase(rotate)) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(now);
+            calendar.set(Calendar.MILLISECOND, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            if (ROTATE_HOURLY.equalsIgnoreCase(rotate)) {
+                calendar.add(Calendar.HOUR_OF_DAY, 1);
+            } else {
+                calendar.set(Calendar.HOUR_OF_DAY, 0);
+                calendar.add(Calendar.DAY_OF_MONTH, 1);
+            }
+            return calendar.getTimeInMillis();
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * 一批待写入的日志
+     */
+    static final class Batch {
+        private final byte[] bytes;
+
+        private final int length;
+
+        private final int lines;
+
+        Batch(byte[] bytes, int length, int lines) {
+            this.bytes = bytes;
+            this.length = length;
+            this.lines = lines;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package cloud.apposs.gateway.interceptor.logger;
 
+import cloud.apposs.gateway.configure.ConfigUtil;
 import cloud.apposs.gateway.handler.IHandler;
 import cloud.apposs.gateway.interceptor.HandlerInterceptorAdapter;
 import cloud.apposs.gateway.variable.VariableParser;
@@ -9,7 +10,24 @@ import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
 import cloud.apposs.util.Param;
 import cloud.apposs.util.Parser;
 
+import java.io.IOException;
+
+/**
+ * 请求日志拦截器，参数如下：
+ * enable: 是否开启请求日志
+ * format: 日志模板，支持的变量见{@link VariableParser}
+ * path: 访问日志文件路径，配置后日志异步批量写入该文件，不配置则输出到网关日志
+ * buffer: 每个请求线程的日志缓冲大小，默认64k，最大64m
+ * flush: 日志在缓冲中的最长停留时间，默认1s，0为每条日志立即交给写线程
+ * max_size: 日志文件超过该大小时切割，默认不按大小切割
+ * rotate: 按时间切割日志文件，可为off/hourly/daily，默认off
+ */
 public class LoggerInterceptor extends HandlerInterceptorAdapter {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /** 每个请求线程一个日志缓冲，限制单个缓冲大小避免配置错误时占用过多内存 */
+    private static final int MAX_BUFFER_SIZE = 64 * 1024 * 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL = 1000L;
+
     /**
      * 是否开启请求日志拦截
      */
@@ -20,6 +38,11 @@ public class LoggerInterceptor extends HandlerInterceptorAdapter {
      */
     private VariableParser parser;
 
+    /**
+     * 访问日志写入器，没有配置日志文件时为空
+     */
+    private AccessLogWriter writer;
+
     @Override
     public void init(Param arguments) {
         if (arguments.containsKey("enable")) {
@@ -30,16 +53,73 @@ public class LoggerInterceptor extends HandlerInterceptorAdapter {
             format = arguments.getString("format");
         }
         parser = new VariableParser(format);
+        String path = arguments.getString("path");
+        if (!enable || path == null) {
+            return;
+        }
+        long bufferSize = parseSize("buffer", arguments.getString("buffer"), DEFAULT_BUFFER_SIZE);
+        if (bufferSize <= 0 || bufferSize > MAX_BUFFER_SIZE) {
+            throw new IllegalArgumentException("buffer");
+        }
+        long flushInterval = parseTimeMillis("flush", arguments.getString("flush"), DEFAULT_FLUSH_INTERVAL);
+        long maxSize = parseSize("max_size", arguments.getString("max_size"), 0);
+        String rotate = arguments.getString("rotate", AccessLogWriter.ROTATE_OFF);
+        try {
+            writer = AccessLogWriter.acquire(path, (int) bufferSize, flushInterval, maxSize, rotate);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("path", e);
+        }
     }
 
     @Override
     public void afterCompletion(HttpRequest request, HttpResponse response, IHandler handler, Throwable throwable) {
         if (enable) {
-            if (throwable != null) {
+            if (writer != null) {
+                writer.write(parser, request, response);
+                if (throwable != null) {
+                    Logger.error(throwable, parser.parse(request, response));
+                }
+            } else if (throwable != null) {
                 Logger.error(throwable, parser.parse(request, response));
             } else {
                 Logger.info(parser.parse(request, response));
             }
         }
     }
+
+    @Override
+    public void destory() {
+        if (writer != null) {
+            AccessLogWriter.release(writer);
+            writer = null;
+        }
+    }
+
+    /**
+     * 解析大小参数，写法和配置指令一致，参考{@link ConfigUtil#parseSize(String)}
+     */
+    private static long parseSize(String key, String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return ConfigUtil.parseSize(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key, e);
+        }
+    }
+
+    /**
+     * 解析时间参数，写法和配置指令一致，参考{@link ConfigUtil#parseTimeMillis(String)}
+     */
+    private static long parseTimeMillis(String key, String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return ConfigUtil.parseTimeMillis(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key, e);
+        }
+    }
 }
@@ -0,0 +1,270 @@
+package cloud.apposs.gateway.upstream;
+
+import cloud.apposs.gateway.GatewayConfig;
+import cloud.apposs.netkit.AbstractIoProcessor;
+import cloud.apposs.netkit.EventChannel;
+import cloud.apposs.netkit.EventSocketChannel;
+import cloud.apposs.netkit.EventTask;
+import cloud.apposs.netkit.IoBuffer;
+import cloud.apposs.netkit.buffer.ByteBuf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+
+/**
+ * 上游节点主动健康检查连接，注册在健康检查轮询线程中，所有回调和超时任务都在该线程中执行，
+ * 1、tcp检查只检查连接是否可建立，建立后立即关闭
+ * 2、http检查发送GET请求，响应状态码为2xx/3xx时认为可用，
+ *    响应有Content-Length并且上游没有要求关闭连接时保持长连接，下一次检查直接复用，避免每次检查都重新建立连接
+ * 检查超时由轮询线程定时任务控制，连接本身不设置读取超时，以便空闲时保持长连接
+ */
+final class HealthCheckProcessor extends AbstractIoProcessor {
+    private static final String CRLF = "\r\n";
+    private static final Charset HEADER_CHARSET = Charset.forName("ISO-8859-1");
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+    private static final int HEADER_END = 0x0d0a0d0a;
+
+    private final UpstreamPeer peer;
+
+    private final GatewayConfig.UpstreamCheck check;
+
+    private final byte[] request;
+
+    private EventSocketChannel channel;
+
+    private boolean connected = false;
+
+    private boolean closed = false;
+
+    /**
+     * 当前是否有检查在进行中
+     */
+    private boolean checking = false;
+
+    private EventTask timeoutTask;
+
+    /**
+     * 响应解析状态
+     */
+    private ByteArrayOutputStream headerBytes;
+    private int headerTail = 0;
+    private int status = 0;
+    private long contentRemaining = -1;
+    private boolean keepAlive = true;
+
+    HealthCheckProcessor(UpstreamPeer peer, GatewayConfig.UpstreamCheck check) {
+        this.peer = peer;
+        this.check = check;
+        StringBuilder header = new StringBuilder(128);
+        header.append("GET ").append(check.getUri()).append(" HTTP/1.1").append(CRLF);
+        header.append("Host: ").append(peer.getPeer().getHost()).append(":").append(peer.getPeer().getPort()).append(CRLF);
+        header.append("User-Agent: gateway-health-check").append(CRLF);
+        header.append("Connection: keep-alive").append(CRLF).append(CRLF);
+        this.request = header.toString().getBytes(HEADER_CHARSET);
+        // 超时由检查定时任务控制
+        setConnectTimeout(0);
+        setRecvTimeout(0);
+        setSendTimeout(0);
+    }
+
+    boolean isChecking() {
+        return checking;
+    }
+
+    /**
+     * 连接是否可以复用做下一次检查
+     */
+    boolean isReusable() {
+        return connected && !closed && check.isHttp();
+    }
+
+    /**
+     * 开始一次检查，连接未建立时在连接建立后发送检查请求
+     */
+    void check() {
+        checking = true;
+        headerBytes = new ByteArrayOutputStream(256);
+        headerTail = 0;
+        status = 0;
+        contentRemaining = -1;
+        keepAlive = true;
+        timeoutTask = peer.getUpstream().getLoop().schedule(new Runnable() {
+            @Override
+            public void run() {
+                doComplete(false, "timeout in " + check.getTimeout() + "ms", true);
+            }
+        }, check.getTimeout());
+        if (connected) {
+            try {
+                doSendRequest();
+            } catch (IOException e) {
+                doComplete(false, e.getMessage(), true);
+            }
+        }
+    }
+
+    @Override
+    public SelectionKey doRegister(Selector selector) throws IOException {
+        SocketChannel socketChannel = SocketChannel.open();
+        socketChannel.configureBlocking(false);
+        socketChannel.socket().setTcpNoDelay(true);
+
+        channel = new EventSocketChannel(socketChannel);
+        channel.connect(peer.getAddress());
+        return channel.register(selector, SelectionKey.OP_CONNECT);
+    }
+
+    @Override
+    public EventChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void channelConnect() throws Exception {
+        connected = true;
+        if (!check.isHttp()) {
+            doComplete(true, null, true);
+            return;
+        }
+        if (checking) {
+            doSendRequest();
+        }
+    }
+
+    @Override
+    public void channelRead(Object message) throws Exception {
+        if (!checking || !(message instanceof IoBuffer)) {
+            return;
+        }
+        IoBuffer buffer = (IoBuffer) message;
+        if (status == 0) {
+            if (!doReadHeader(buffer)) {
+                return;
+            }
+            doParseHeader();
+        }
+        if (contentRemaining > 0) {
+            contentRemaining -= Math.min(buffer.readableBytes(), contentRemaining);
+        }
+        // 响应BODY不需要解析，没有Content-Length时无法判断响应结束，不再复用连接
+        if (contentRemaining == 0) {
+            doComplete(isStatusHealthy(), "status " + status, !keepAlive);
+        } else if (contentRemaining < 0) {
+            doComplete(isStatusHealthy(), "status " + status, true);
+        }
+    }
+
+    @Override
+    public void channelReadEof(Object message) throws Exception {
+        doComplete(false, "connection closed", true);
+    }
+
+    @Override
+    public void channelError(Throwable cause) {
+        doComplete(false, cause.getMessage(), true);
+    }
+
+    @Override
+    public void channelClose() {
+        super.channelClose();
+        closed = true;
+        if (channel != null) {
+            channel.close();
+        }
+        doComplete(false, "connection closed", false);
+    }
+
+    /**
+     * 网关关闭时直接关闭检查连接，可在任意线程中调用
+     */
+    void closeChannel() {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void doSendRequest() throws IOException {
+        write(ByteBuf.wrap(request));
+        flush();
+    }
+
+    private boolean doReadHeader(IoBuffer buffer) throws IOException {
+        while (buffer.hasReadableBytes()) {
+            byte letter = buffer.get();
+            headerBytes.write(letter);
+            headerTail = (headerTail << 8) | (letter & 0xff);
+            if (headerTail == HEADER_END) {
+                return true;
+            }
+            if (headerBytes.size() > MAX_HEADER_SIZE) {
+                throw new IOException("response header too large");
+            }
+        }
+        return false;
+    }
+
+    private void doParseHeader() throws IOException {
+        String[] lines = new String(headerBytes.toByteArray(), HEADER_CHARSET).split(CRLF);
+        String[] statusLine = lines[0].split(" ");
+        if (statusLine.length < 2 || !statusLine[0].startsWith("HTTP/")) {
+            throw new IOException("invalid response status line '" + lines[0] + "'");
+        }
+        try {
+            status = Integer.parseInt(statusLine[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("invalid response status line '" + lines[0] + "'");
+        }
+        keepAlive = !statusLine[0].equals("HTTP/1.0");
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            int colonIdx = line.indexOf(':');
+            if (colonIdx <= 0) {
+                continue;
+            }
+            String key = line.substring(0, colonIdx).trim();
+            String value = line.substring(colonIdx + 1).trim();
+            if (key.equalsIgnoreCase("content-length")) {
+                try {
+                    contentRemaining = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new IOException("invalid content-length '" + value + "'");
+                }
+            } else if (key.equalsIgnoreCase("connection")) {
+                keepAlive = value.equalsIgnoreCase("keep-alive");
+            }
+        }
+        if (status == 204 || status == 304) {
+            contentRemaining = 0;
+        }
+    }
+
+    private boolean isStatusHealthy() {
+        return status >= 200 && status < 400;
+    }
+
+    /**
+     * 本次检查结束，通知检查结果
+     *
+     * @param close 是否关闭连接，不再复用
+     */
+    private void doComplete(boolean success, String reason, boolean close) {
+        if (close && !closed) {
+            closed = true;
+            close(true);
+        }
+        if (!checking) {
+            return;
+        }
+        checking = false;
+        if (timeoutTask != null) {
+            timeoutTask.cancel();
+            timeoutTask = null;
+        }
+        headerBytes = null;
+        peer.onCheckResult(success, reason);
+    }
+}
@@ -0,0 +1,178 @@
+package cloud.apposs.gateway.upstream;
+
+import cloud.apposs.balance.BaseLoadBalancer;
+import cloud.apposs.balance.Peer;
+import cloud.apposs.gateway.GatewayConfig;
+import cloud.apposs.logger.Logger;
+import cloud.apposs.netkit.EventLoop;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 反向代理集群，对应upstream块，引用同一个upstream的所有location共享同一个实例，节点可用状态由以下两种方式维护：
+ * 1、被动健康检查：代理请求在fail_timeout时间内失败max_fails次后摘除该节点fail_timeout时间，
+ *    摘除和恢复均提交到健康检查轮询线程中执行，请求处理线程只做原子计数，不会被阻塞
+ * 2、主动健康检查：配置了health_check时在健康检查轮询线程中定时探测各节点，连续失败fall次摘除，连续成功rise次恢复
+ * 节点恢复时按slow_start配置慢启动，由{@link Peer}的预热权重控制接入的流量，
+ * 所有节点均不可用时与nginx一致轮询尝试所有节点，避免误摘除导致整个集群不可用
+ */
+public final class Upstream {
+    private final String name;
+
+    /**
+     * 健康检查轮询线程，负责节点摘除、恢复和主动健康检查
+     */
+    private final EventLoop loop;
+
+    /**
+     * 主动健康检查配置，为空则不做主动健康检查
+     */
+    private final GatewayConfig.UpstreamCheck check;
+
+    private final BaseLoadBalancer balancer;
+
+    private final UpstreamPeer[] peers;
+
+    /**
+     * 节点索引，初始化后只读，无需加锁
+     */
+    private final Map<String, UpstreamPeer> peerIds = new HashMap<String, UpstreamPeer>();
+    private final Map<InetSocketAddress, UpstreamPeer> peerAddresses = new HashMap<InetSocketAddress, UpstreamPeer>();
+
+    /**
+     * 所有节点均不可用时的轮询计数
+     */
+    private final AtomicInteger fallbackCounter = new AtomicInteger();
+
+    public Upstream(String name, List<GatewayConfig.UpstreamServer> servers,
+            GatewayConfig.UpstreamCheck check, EventLoop loop) {
+        this.name = name;
+        this.loop = loop;
+        this.check = check;
+        this.balancer = new BaseLoadBalancer();
+        this.peers = new UpstreamPeer[servers.size()];
+        int index = 0;
+        for (GatewayConfig.UpstreamServer server : servers) {
+            Peer peer = new Peer(server.getHost(), server.getPort());
+            peer.setAlive(true);
+            peer.setSlowStart(server.getSlowStart());
+            UpstreamPeer upstreamPeer = new UpstreamPeer(this, peer, server);
+            peers[index++] = upstreamPeer;
+            peerIds.put(peer.getId(), upstreamPeer);
+            peerAddresses.put(upstreamPeer.getAddress(), upstreamPeer);
+            balancer.addPeers(peer);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public UpstreamPeer[] getPeers() {
+        return peers;
+    }
+
+    public GatewayConfig.UpstreamCheck getCheck() {
+        return check;
+    }
+
+    EventLoop getLoop() {
+        return loop;
+    }
+
+    /**
+     * 集群只有一个节点时不做被动摘除，与nginx保持一致
+     */
+    boolean isSingle() {
+        return peers.length == 1;
+    }
+
+    /**
+     * 启动主动健康检查，各节点的首次检查在检查间隔内错开，避免同时发起探测
+     */
+    public void start() {
+        if (check == null) {
+            return;
+        }
+        for (int i = 0; i < peers.length; i++) {
+            final UpstreamPeer peer = peers[i];
+            loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    peer.doCheck();
+                }
+            }, check.getInterval() * i / peers.length);
+        }
+    }
+
+    /**
+     * 选择代理节点
+     *
+     * @param key 负载均衡参数
+     */
+    public UpstreamPeer choose(Object key) {
+        if (!balancer.getReachablePeer().isEmpty()) {
+            Peer peer = balancer.choosePeer(key);
+            if (peer != null) {
+                return peerIds.get(peer.getId());
+            }
+        }
+        if (peers.length == 0) {
+            return null;
+        }
+        int index = (fallbackCounter.getAndIncrement() & Integer.MAX_VALUE) % peers.length;
+        return peers[index];
+    }
+
+    /**
+     * 代理请求成功接收到上游响应头
+     */
+    public void onSuccess(InetSocketAddress address) {
+        UpstreamPeer peer = peerAddresses.get(address);
+        if (peer != null) {
+            peer.onSuccess();
+        }
+    }
+
+    /**
+     * 代理请求连接上游或者读取上游响应头失败，包括超时
+     */
+    public void onFailure(InetSocketAddress address) {
+        UpstreamPeer peer = peerAddresses.get(address);
+        if (peer != null) {
+            peer.onFailure(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 节点不可用，在健康检查轮询线程中调用
+     */
+    void markDown(UpstreamPeer peer, String reason) {
+        if (peer.getPeer().isAlive()) {
+            Logger.warn("upstream %s peer %s is down, %s", name, peer.getPeer(), reason);
+        }
+        balancer.markPeerDown(peer.getPeer());
+    }
+
+    /**
+     * 节点恢复可用，在健康检查轮询线程中调用，被动摘除和主动检查均认为可用时才恢复
+     */
+    void markUp(UpstreamPeer peer) {
+        if (!peer.isAvailable() || peer.getPeer().isAlive()) {
+            return;
+        }
+        Logger.info("upstream %s peer %s is up", name, peer.getPeer());
+        balancer.markPeerUp(peer.getPeer());
+    }
+
+    public void close() {
+        for (UpstreamPeer peer : peers) {
+            peer.close();
+        }
+        balancer.shutdown();
+    }
+}
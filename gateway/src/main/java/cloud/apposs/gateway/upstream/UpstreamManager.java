@@ -0,0 +1,62 @@
+package cloud.apposs.gateway.upstream;
+
+import cloud.apposs.gateway.GatewayConfig;
+import cloud.apposs.netkit.EventLoop;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 反向代理集群管理，根据配置创建所有upstream集群，
+ * 所有集群共用一个健康检查轮询线程，负责节点摘除、恢复定时任务和主动健康检查连接
+ */
+public final class UpstreamManager {
+    private static final String LOOP_NAME = "Gateway_Upstream_Check";
+
+    private final Map<String, Upstream> upstreams = new HashMap<String, Upstream>();
+
+    private final EventLoop loop;
+
+    public UpstreamManager(GatewayConfig config) throws IOException {
+        Map<String, List<GatewayConfig.UpstreamServer>> upstreamServers = config.getUpstreamServers();
+        if (upstreamServers.isEmpty()) {
+            loop = null;
+            return;
+        }
+        loop = new EventLoop(LOOP_NAME, false, true);
+        for (Map.Entry<String, List<GatewayConfig.UpstreamServer>> entry : upstreamServers.entrySet()) {
+            String name = entry.getKey();
+            upstreams.put(name, new Upstream(name, entry.getValue(), config.getUpstreamCheck(name), loop));
+        }
+    }
+
+    public Upstream getUpstream(String name) {
+        return upstreams.get(name);
+    }
+
+    public Map<String, Upstream> getUpstreams() {
+        return upstreams;
+    }
+
+    public void start() {
+        if (loop == null) {
+            return;
+        }
+        loop.start();
+        for (Upstream upstream : upstreams.values()) {
+            upstream.start();
+        }
+    }
+
+    public void close() {
+        if (loop == null) {
+            return;
+        }
+        loop.shutdown();
+        for (Upstream upstream : upstreams.values()) {
+            upstream.close();
+        }
+    }
+}
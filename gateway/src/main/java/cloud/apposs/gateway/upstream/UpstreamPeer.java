@@ -0,0 +1,190 @@
+package cloud.apposs.gateway.upstream;
+
+import cloud.apposs.balance.Peer;
+import cloud.apposs.gateway.GatewayConfig;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 反向代理集群节点及其健康状态，
+ * 被动检查计数在请求处理线程中原子更新，主动检查状态只在健康检查轮询线程中访问
+ */
+public final class UpstreamPeer {
+    private final Upstream upstream;
+
+    private final Peer peer;
+
+    /**
+     * 节点地址，启动时解析一次，避免每次代理请求都创建地址对象和解析域名
+     */
+    private final InetSocketAddress address;
+
+    private final int maxFails;
+
+    private final long failTimeout;
+
+    /**
+     * 被动检查失败计数及计数窗口开始时间
+     */
+    private final AtomicInteger fails = new AtomicInteger();
+    private volatile long failStartTime = 0;
+
+    /**
+     * 是否被被动检查摘除
+     */
+    private final AtomicBoolean ejected = new AtomicBoolean(false);
+
+    /**
+     * 是否被主动检查标记为不可用
+     */
+    private volatile boolean unhealthy = false;
+
+    /**
+     * 主动检查连续成功、失败次数
+     */
+    private int checkRises = 0;
+    private int checkFalls = 0;
+
+    /**
+     * 主动检查连接，检查之间保持长连接复用
+     */
+    private HealthCheckProcessor processor;
+
+    private volatile boolean closed = false;
+
+    UpstreamPeer(Upstream upstream, Peer peer, GatewayConfig.UpstreamServer server) {
+        this.upstream = upstream;
+        this.peer = peer;
+        this.address = new InetSocketAddress(peer.getHost(), peer.getPort());
+        this.maxFails = server.getMaxFails();
+        this.failTimeout = server.getFailTimeout();
+    }
+
+    public Upstream getUpstream() {
+        return upstream;
+    }
+
+    public Peer getPeer() {
+        return peer;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public int getFails() {
+        return fails.get();
+    }
+
+    public boolean isEjected() {
+        return ejected.get();
+    }
+
+    public boolean isUnhealthy() {
+        return unhealthy;
+    }
+
+    /**
+     * 被动检查和主动检查均认为节点可用
+     */
+    public boolean isAvailable() {
+        return !ejected.get() && !unhealthy;
+    }
+
+    void onSuccess() {
+        if (fails.get() != 0) {
+            fails.set(0);
+        }
+    }
+
+    /**
+     * 代理失败计数，达到max_fails时提交到健康检查轮询线程摘除节点，fail_timeout后自动恢复，
+     * 恢复后只保留一次失败机会，再次失败立即重新摘除
+     */
+    void onFailure(long now) {
+        if (maxFails <= 0 || upstream.isSingle() || closed) {
+            return;
+        }
+        if (now - failStartTime > failTimeout) {
+            failStartTime = now;
+            fails.set(0);
+        }
+        if (fails.incrementAndGet() < maxFails || !ejected.compareAndSet(false, true)) {
+            return;
+        }
+        upstream.getLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+                upstream.markDown(UpstreamPeer.this, maxFails + " fails in " + failTimeout + "ms");
+            }
+        });
+        upstream.getLoop().schedule(new Runnable() {
+            @Override
+            public void run() {
+                failStartTime = System.currentTimeMillis();
+                fails.set(maxFails - 1);
+                ejected.set(false);
+                upstream.markUp(UpstreamPeer.this);
+            }
+        }, failTimeout);
+    }
+
+    /**
+     * 发起一次主动检查，在健康检查轮询线程中执行，上一次检查还未结束时跳过本次检查
+     */
+    void doCheck() {
+        if (closed) {
+            return;
+        }
+        final GatewayConfig.UpstreamCheck check = upstream.getCheck();
+        upstream.getLoop().schedule(new Runnable() {
+            @Override
+            public void run() {
+                doCheck();
+            }
+        }, check.getInterval());
+        if (processor != null && processor.isChecking()) {
+            return;
+        }
+        if (processor == null || !processor.isReusable()) {
+            processor = new HealthCheckProcessor(this, check);
+            processor.check();
+            upstream.getLoop().addProcessor(processor);
+            upstream.getLoop().wakeup();
+        } else {
+            processor.check();
+        }
+    }
+
+    /**
+     * 主动检查结果，在健康检查轮询线程中回调
+     */
+    void onCheckResult(boolean success, String reason) {
+        GatewayConfig.UpstreamCheck check = upstream.getCheck();
+        if (success) {
+            checkFalls = 0;
+            if (unhealthy && ++checkRises >= check.getRise()) {
+                unhealthy = false;
+                checkRises = 0;
+                upstream.markUp(this);
+            }
+        } else {
+            checkRises = 0;
+            if (!unhealthy && ++checkFalls >= check.getFall()) {
+                unhealthy = true;
+                checkFalls = 0;
+                upstream.markDown(this, "health check " + reason);
+            }
+        }
+    }
+
+    void close() {
+        closed = true;
+        HealthCheckProcessor processor = this.processor;
+        if (processor != null) {
+            processor.closeChannel();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package cloud.apposs.gateway.variable;
+
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 请求完成时的本地时间，格式同nginx，示例：19/Oct/2026:10:00:00 +0800，对应参数：$time_local
+ * 同一秒内的请求复用已格式化的时间，避免每次请求都格式化日期
+ */
+public class TimeLocalVariable implements IVariable {
+    private static final String TIME_FORMAT = "dd/MMM/yyyy:HH:mm:ss Z";
+
+    private static volatile CachedTime cachedTime = new CachedTime(0, null);
+
+    @Override
+    public String parse(HttpRequest request, HttpResponse response) {
+        return getTimeLocal(System.currentTimeMillis());
+    }
+
+    public static String getTimeLocal(long now) {
+        long second = now / 1000;
+        CachedTime cached = cachedTime;
+        if (cached.second == second) {
+            return cached.value;
+        }
+        String value = new SimpleDateFormat(TIME_FORMAT, Locale.US).format(new Date(second * 1000));
+        cachedTime = new CachedTime(second, value);
+        return value;
+    }
+
+    private static final class CachedTime {
+        private final long second;
+
+        private final String value;
+
+        private CachedTime(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+}
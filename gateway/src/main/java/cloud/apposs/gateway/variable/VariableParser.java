@@ -14,6 +14,8 @@ import java.util.List;
  * $host: 请求域名
  * $request: 请求url
  * $status: 响应状态码
+ * $time_local: 请求完成时的本地时间
+ * 日志模板在创建时预编译为变量数组，每次请求只需按顺序输出各变量
  */
 public final class VariableParser {
     private static final char ESCAPE_CHAR = '$';
@@ -23,21 +25,35 @@ public final class VariableParser {
 
     private final List<IVariable> variableList = new LinkedList<IVariable>();
 
+    /**
+     * 预编译的变量数组，避免每次解析时遍历链表
+     */
+    private final IVariable[] variables;
+
     public VariableParser(String format) {
         this.format = format;
         if (format != null) {
             this.doParseFormat();
         }
+        this.variables = variableList.toArray(new IVariable[variableList.size()]);
     }
 
     public String parse(HttpRequest request, HttpResponse response) {
         StringBuilder output = new StringBuilder(BUF_SIZE);
-        for (IVariable format : variableList) {
-            output.append(format.parse(request, response));
-        }
+        parse(request, response, output);
         return output.toString();
     }
 
+    /**
+     * 解析结果输出到调用方复用的缓冲中，避免每次解析都创建新的字符串
+     */
+    public void parse(HttpRequest request, HttpResponse response, StringBuilder output) {
+        IVariable[] variables = this.variables;
+        for (int i = 0; i < variables.length; i++) {
+            output.append(variables[i].parse(request, response));
+        }
+    }
+
     private void doParseFormat() {
         StringBuilder currentLiteral = new StringBuilder(32);
         int state = State.LITERAL_STATE;
@@ -93,6 +109,8 @@ public final class VariableParser {
             variableList.add(new RequestVariable());
         } else if (option.equals("status")) {
             variableList.add(new HttpStatusVariable());
+        } else if (option.equals("time_local")) {
+            variableList.add(new TimeLocalVariable());
         } else {
             // 所有日志项都没匹配到，那就直接文本输出
             variableList.add(new LiteralVariable("$" + option));
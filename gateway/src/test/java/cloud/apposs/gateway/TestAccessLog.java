@@ -0,0 +1,152 @@
+package cloud.apposs.gateway;
+
+import cloud.apposs.gateway.interceptor.logger.AccessLogWriter;
+import cloud.apposs.gateway.variable.VariableParser;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+import cloud.apposs.util.HttpStatus;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.util.LinkedList;
+import java.util.List;
+
+public class TestAccessLog {
+    private static final String FORMAT = "$remote_addr:$remote_port $request $status \"$http_user_agent\"";
+
+    @Test
+    public void testWriteMultiThread() throws Exception {
+        File dir = doCreateDir("write");
+        final String path = new File(dir, "access.log").getPath();
+        final AccessLogWriter writer = AccessLogWriter.acquire(path, 1024, 100, 0, AccessLogWriter.ROTATE_OFF);
+        final VariableParser parser = new VariableParser(FORMAT);
+        List<Thread> threads = new LinkedList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final int index = i;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        writer.write(parser, doRequest("/thread/" + index + "/" + j, "中文UA"), doResponse());
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        AccessLogWriter.release(writer);
+        List<String> lines = doReadLines(new File(path));
+        Assert.assertEquals(4000, lines.size());
+        Assert.assertEquals(0, writer.getDropped());
+        for (String line : lines) {
+            Assert.assertTrue(line, line.matches("127\\.0\\.0\\.1:8080 GET /thread/\\d/\\d+ 200 \"中文UA\""));
+        }
+    }
+
+    @Test
+    public void testFlushInterval() throws Exception {
+        File dir = doCreateDir("flush");
+        String path = new File(dir, "access.log").getPath();
+        AccessLogWriter writer = AccessLogWriter.acquire(path, 64 * 1024, 100, 0, AccessLogWriter.ROTATE_OFF);
+        // 同一个文件共享同一个写入器
+        AccessLogWriter shared = AccessLogWriter.acquire(path, 1024, 0, 0, AccessLogWriter.ROTATE_OFF);
+        Assert.assertSame(writer, shared);
+        try {
+            writer.write(new VariableParser(FORMAT), doRequest("/flush", "UA"), doResponse());
+            Assert.assertEquals(0, new File(path).length());
+            // 缓冲未满时超过flush时间也会写入文件
+            Thread.sleep(500);
+            Assert.assertEquals(1, doReadLines(new File(path)).size());
+        } finally {
+            AccessLogWriter.release(shared);
+            AccessLogWriter.release(writer);
+        }
+    }
+
+    @Test
+    public void testRotateBySize() throws Exception {
+        File dir = doCreateDir("rotate");
+        String path = new File(dir, "access.log").getPath();
+        AccessLogWriter writer = AccessLogWriter.acquire(path, 1024, 0, 4096, AccessLogWriter.ROTATE_OFF);
+        VariableParser parser = new VariableParser(FORMAT);
+        for (int i = 0; i < 500; i++) {
+            writer.write(parser, doRequest("/rotate/" + i, "UA"), doResponse());
+        }
+        AccessLogWriter.release(writer);
+        File[] files = dir.listFiles();
+        Assert.assertTrue(files.length > 1);
+        int total = 0;
+        for (File file : files) {
+            Assert.assertTrue(file.length() <= 4096);
+            total += doReadLines(file).size();
+        }
+        Assert.assertEquals(500, total);
+    }
+
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testWriteBenchmark() throws Exception {
+        File dir = doCreateDir("benchmark");
+        String path = new File(dir, "access.log").getPath();
+        AccessLogWriter writer = AccessLogWriter.acquire(path, 64 * 1024, 1000, 0, AccessLogWriter.ROTATE_OFF);
+        VariableParser parser = new VariableParser(FORMAT);
+        HttpRequest request = doRequest("/api/v1/user/100", "Mozilla/5.0");
+        HttpResponse response = doResponse();
+        int count = 200000;
+        for (int i = 0; i < count; i++) {
+            writer.write(parser, request, response);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            writer.write(parser, request, response);
+        }
+        long cost = (System.nanoTime() - start) / count;
+        AccessLogWriter.release(writer);
+        System.out.println("access log write " + cost + "ns/op, dropped " + writer.getDropped());
+        Assert.assertEquals(count * 2, doReadLines(new File(path)).size() + writer.getDropped());
+    }
+
+    private static File doCreateDir(String name) {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "gateway-access-log-" + name + "-" + System.nanoTime());
+        Assert.assertTrue(dir.mkdirs());
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private static HttpRequest doRequest(String path, String userAgent) {
+        HttpRequest request = new HttpRequest(new InetSocketAddress("127.0.0.1", 8080));
+        request.setMethod("GET");
+        request.setRequestUri(path);
+        request.getHeaders().put("user-agent", userAgent);
+        return request;
+    }
+
+    private static HttpResponse doResponse() {
+        HttpResponse response = new HttpResponse(null);
+        response.setStatus(HttpStatus.HTTP_STATUS_200);
+        return response;
+    }
+
+    private static List<String> doReadLines(File file) throws Exception {
+        List<String> lines = new LinkedList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,110 @@
+package cloud.apposs.gateway;
+
+import cloud.apposs.gateway.handler.IHandler;
+import cloud.apposs.gateway.handler.index.ReturnHandler;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestApplicationSnapshot {
+    private static final AtomicInteger CLOSED = new AtomicInteger();
+
+    @Test
+    public void testReloadDrain() throws Exception {
+        CLOSED.set(0);
+        ApplicationHandler application = new ApplicationHandler();
+        application.initialize(doCreateConfig("/old"));
+        ApplicationSnapshot oldSnapshot = application.getSnapshot();
+        // 模拟请求正在使用旧配置
+        oldSnapshot.acquire();
+        oldSnapshot.acquire();
+
+        ApplicationSnapshot retired = application.reload(doCreateConfig("/new"));
+        ApplicationSnapshot newSnapshot = application.getSnapshot();
+        Assert.assertSame(oldSnapshot, retired);
+        Assert.assertTrue(newSnapshot.getVersion() > oldSnapshot.getVersion());
+        Assert.assertTrue(oldSnapshot.isRetired());
+        Assert.assertFalse(oldSnapshot.isReleased());
+        Assert.assertNotNull(doGetHandler(newSnapshot, "/new"));
+        Assert.assertNull(doGetHandler(newSnapshot, "/old"));
+
+        // 最后一个请求结束后释放旧配置
+        oldSnapshot.release();
+        Assert.assertFalse(oldSnapshot.isReleased());
+        Assert.assertEquals(0, CLOSED.get());
+        oldSnapshot.release();
+        Assert.assertTrue(oldSnapshot.isReleased());
+        Assert.assertEquals(1, CLOSED.get());
+        Assert.assertFalse(newSnapshot.isReleased());
+
+        application.release();
+        Assert.assertTrue(newSnapshot.isReleased());
+        Assert.assertEquals(2, CLOSED.get());
+    }
+
+    @Test
+    public void testForceRelease() throws Exception {
+        CLOSED.set(0);
+        ApplicationHandler application = new ApplicationHandler();
+        application.initialize(doCreateConfig("/old"));
+        ApplicationSnapshot oldSnapshot = application.getSnapshot();
+        oldSnapshot.acquire();
+        application.reload(doCreateConfig("/new"));
+        Assert.assertFalse(oldSnapshot.isReleased());
+
+        // 排空超时后强制释放，请求之后再结束不会重复释放
+        oldSnapshot.forceRelease();
+        Assert.assertTrue(oldSnapshot.isReleased());
+        Assert.assertEquals(1, CLOSED.get());
+        oldSnapshot.release();
+        Assert.assertEquals(1, CLOSED.get());
+        application.release();
+    }
+
+    @Test
+    public void testReloadFail() throws Exception {
+        ApplicationHandler application = new ApplicationHandler();
+        application.initialize(doCreateConfig("/old"));
+        ApplicationSnapshot oldSnapshot = application.getSnapshot();
+        GatewayConfig config = doCreateConfig("/new");
+        config.addLocation("/bad", new GatewayConfig.Location("*", "/bad", "text/html",
+                "cloud.apposs.gateway.handler.NotExistHandler", null));
+        try {
+            application.reload(config);
+            Assert.fail();
+        } catch (ClassNotFoundException e) {
+        }
+        // 新配置初始化失败时继续使用旧配置
+        Assert.assertSame(oldSnapshot, application.getSnapshot());
+        Assert.assertFalse(oldSnapshot.isRetired());
+        application.release();
+    }
+
+    private static GatewayConfig doCreateConfig(String path) {
+        GatewayConfig config = new GatewayConfig();
+        GatewayConfig.Location location = new GatewayConfig.Location("*", path,
+                "text/html", CloseCountHandler.class.getName(), null);
+        location.getOptions().put("status", 200);
+        location.getOptions().put("content", path);
+        config.addLocation(path, location);
+        return config;
+    }
+
+    private static IHandler doGetHandler(ApplicationSnapshot snapshot, String path) {
+        HttpRequest request = new HttpRequest(new InetSocketAddress("127.0.0.1", 8080));
+        request.setMethod("GET");
+        request.setRequestUri(path);
+        request.getHeaders().put("host", "www.example.com");
+        return snapshot.getHandlerRouter().getHandler(request, null);
+    }
+
+    public static class CloseCountHandler extends ReturnHandler {
+        @Override
+        public void close() {
+            CLOSED.incrementAndGet();
+        }
+    }
+}
@@ -4,7 +4,9 @@ import cloud.apposs.gateway.configure.Block;
 import cloud.apposs.gateway.configure.BlockDirective;
 import cloud.apposs.gateway.configure.ConfigParseException;
 import cloud.apposs.gateway.configure.ConfigParser;
+import cloud.apposs.gateway.configure.ConfigUtil;
 import cloud.apposs.util.FileUtil;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
@@ -21,4 +23,22 @@ public class TestConfigParser {
         BlockDirective.initialize(blockList, config);
         System.out.println(config);
     }
+
+    @Test
+    public void testParseValue() {
+        Assert.assertEquals(500, ConfigUtil.parseTimeMillis("500ms"));
+        Assert.assertEquals(5000, ConfigUtil.parseTimeMillis("5"));
+        Assert.assertEquals(2 * 60 * 60 * 1000L, ConfigUtil.parseTimeMillis("2h"));
+        Assert.assertEquals(24 * 60 * 60 * 1000L, ConfigUtil.parseTimeMillis("1d"));
+        Assert.assertEquals(64 * 1024, ConfigUtil.parseSize("64K"));
+        Assert.assertEquals(2L * 1024 * 1024 * 1024, ConfigUtil.parseSize("2g"));
+        String[] invalids = {"", "-1", "1x", "9223372036854775807k"};
+        for (String invalid : invalids) {
+            try {
+                ConfigUtil.parseSize(invalid);
+                Assert.fail(invalid);
+            } catch (NumberFormatException e) {
+            }
+        }
+    }
 }
@@ -0,0 +1,208 @@
+package cloud.apposs.gateway;
+
+import cloud.apposs.gateway.handler.IHandler;
+import cloud.apposs.gateway.handler.index.ReturnHandler;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.util.AntPathMatcher;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.LinkedList;
+import java.util.List;
+
+public class TestHandlerRouter {
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @Test
+    public void testMatchPrecedence() {
+        HandlerRouter router = new HandlerRouter();
+        doAddHandler(router, "/**");
+        doAddHandler(router, "/api/**");
+        doAddHandler(router, "/api/v1/**");
+        doAddHandler(router, "/api/v1/user");
+        doAddHandler(router, "/api/v1/user/*/info");
+        doAddHandler(router, "/api/v1/order/{id}");
+        doAddHandler(router, "/static/**/*.js");
+        doAddHandler(router, "/page/*");
+
+        // 精确匹配优先
+        Assert.assertEquals("/api/v1/user", doGetPath(router, "/api/v1/user"));
+        // 最长前缀优先
+        Assert.assertEquals("/api/v1/**", doGetPath(router, "/api/v1/user/1"));
+        Assert.assertEquals("/api/v1/**", doGetPath(router, "/api/v1"));
+        Assert.assertEquals("/api/**", doGetPath(router, "/api/v2/user"));
+        Assert.assertEquals("/**", doGetPath(router, "/other"));
+        Assert.assertEquals("/**", doGetPath(router, "/"));
+        // 段内通配
+        Assert.assertEquals("/api/v1/user/*/info", doGetPath(router, "/api/v1/user/100/info"));
+        Assert.assertEquals("/api/v1/order/{id}", doGetPath(router, "/api/v1/order/100"));
+        Assert.assertEquals("/api/v1/**", doGetPath(router, "/api/v1/order/100/detail"));
+        // **在中间
+        Assert.assertEquals("/static/**/*.js", doGetPath(router, "/static/js/lib/app.js"));
+        Assert.assertEquals("/static/**/*.js", doGetPath(router, "/static/app.js"));
+        Assert.assertEquals("/**", doGetPath(router, "/static/app.css"));
+        // 结尾的/与AntPathMatcher保持一致
+        Assert.assertEquals("/page/*", doGetPath(router, "/page/"));
+        Assert.assertEquals("/**", doGetPath(router, "/page/a/"));
+    }
+
+    @Test
+    public void testMatchRegex() {
+        HandlerRouter router = new HandlerRouter();
+        doAddHandler(router, "/api/**");
+        doAddHandler(router, "~ ^/v[0-9]+/");
+        doAddHandler(router, "~* \\.(png|jpg)$");
+        doAddHandler(router, "~ ^/v1/");
+        doAddHandler(router, "= /v1/health");
+
+        Assert.assertEquals("= /v1/health", doGetPath(router, "/v1/health"));
+        // 前缀匹配优先于正则
+        Assert.assertEquals("/api/**", doGetPath(router, "/api/logo.png"));
+        // 正则按配置顺序
+        Assert.assertEquals("~ ^/v[0-9]+/", doGetPath(router, "/v1/user"));
+        Assert.assertEquals("~* \\.(png|jpg)$", doGetPath(router, "/images/LOGO.PNG"));
+        Assert.assertNull(doGetPath(router, "/images/logo.gif"));
+        Assert.assertTrue(HandlerRouter.isPattern("~ ^/v1/"));
+        Assert.assertFalse(HandlerRouter.isPattern("= /v1/health"));
+    }
+
+    @Test
+    public void testMatchHost() {
+        HandlerRouter router = new HandlerRouter();
+        doAddHandler(router, "www.example.com", "/api/**");
+        doAddHandler(router, "*", "/api/**");
+        doAddHandler(router, "admin.example.com", "/admin/**");
+        doAddHandler(router, "*", "/**");
+
+        IHandler handler = router.getHandler(doRequest("www.example.com", "/api/user"), null);
+        Assert.assertEquals("www.example.com", handler.getHost());
+        handler = router.getHandler(doRequest("m.example.com", "/api/user"), null);
+        Assert.assertEquals("*", handler.getHost());
+        // HOST不匹配时继续匹配更短的前缀
+        handler = router.getHandler(doRequest("m.example.com", "/admin/user"), null);
+        Assert.assertEquals("/**", handler.getPath());
+    }
+
+    /**
+     * 路由性能对比，分别为10/100/1000个location，对比原先遍历AntPathMatcher的路由方式
+     */
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testRouteBenchmark() {
+        int[] locationCounts = {10, 100, 1000};
+        for (int locationCount : locationCounts) {
+            HandlerRouter router = new HandlerRouter();
+            List<IHandler> handlers = new LinkedList<IHandler>();
+            for (int i = 0; i < locationCount; i++) {
+                String path;
+                switch (i % 4) {
+                    case 0:
+                        path = "/service" + i + "/**";
+                        break;
+                    case 1:
+                        path = "/service" + i + "/user/*/info";
+                        break;
+                    case 2:
+                        path = "/service" + i + "/order/{id}";
+                        break;
+                    default:
+                        path = "/service" + i + "/health";
+                        break;
+                }
+                handlers.add(doAddHandler(router, path));
+            }
+            HttpRequest[] requests = new HttpRequest[locationCount];
+            for (int i = 0; i < locationCount; i++) {
+                String path;
+                switch (i % 4) {
+                    case 0:
+                        path = "/service" + i + "/product/list";
+                        break;
+                    case 1:
+                        path = "/service" + i + "/user/100/info";
+                        break;
+                    case 2:
+                        path = "/service" + i + "/order/100";
+                        break;
+                    default:
+                        path = "/service" + i + "/health";
+                        break;
+                }
+                requests[i] = doRequest("www.example.com", path);
+                Assert.assertEquals(doLinearMatch(handlers, requests[i]), router.getHandler(requests[i], null));
+            }
+
+            int iterations = 2000000 / locationCount * 10;
+            long routerCost = doBenchmark(router, null, requests, iterations);
+            long linearCost = doBenchmark(null, handlers, requests, Math.max(iterations / locationCount, 1000));
+            System.out.println(String.format("locations=%d router=%dns/op linear=%dns/op",
+                    locationCount, routerCost, linearCost));
+        }
+    }
+
+    private static long doBenchmark(HandlerRouter router, List<IHandler> handlers, HttpRequest[] requests, int iterations) {
+        int total = 0;
+        for (int round = 0; round < 2; round++) {
+            // 第一轮预热
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                HttpRequest request = requests[i % requests.length];
+                IHandler handler = router != null ? router.getHandler(request, null) : doLinearMatch(handlers, request);
+                if (handler != null) {
+                    total++;
+                }
+            }
+            if (round == 1) {
+                Assert.assertEquals(iterations, total / 2);
+                return (System.nanoTime() - start) / iterations;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 原先的路由方式，精确匹配不到时遍历所有location进行AntPathMatcher匹配
+     */
+    private static IHandler doLinearMatch(List<IHandler> handlers, HttpRequest request) {
+        String path = request.getRequestUri();
+        for (IHandler handler : handlers) {
+            if (!handler.isPattern() && handler.getPath().equals(path)) {
+                return handler;
+            }
+        }
+        for (IHandler handler : handlers) {
+            if (handler.isPattern() && PATH_MATCHER.match(handler.getPath(), path)) {
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    private static IHandler doAddHandler(HandlerRouter router, String path) {
+        return doAddHandler(router, GatewayConstants.GATEWAY_CONF_UNIVERSAL_MATCH, path);
+    }
+
+    private static IHandler doAddHandler(HandlerRouter router, String host, String path) {
+        IHandler handler = new ReturnHandler();
+        handler.setHost(host);
+        handler.setPath(path);
+        handler.setPattern(HandlerRouter.isPattern(path));
+        router.addHandler(path, handler);
+        return handler;
+    }
+
+    private static String doGetPath(HandlerRouter router, String path) {
+        IHandler handler = router.getHandler(doRequest("www.example.com", path), null);
+        return handler == null ? null : handler.getPath();
+    }
+
+    private static HttpRequest doRequest(String host, String path) {
+        HttpRequest request = new HttpRequest(new InetSocketAddress("127.0.0.1", 8080));
+        request.setMethod("GET");
+        request.setRequestUri(path);
+        request.getHeaders().put("host", host);
+        return request;
+    }
+}
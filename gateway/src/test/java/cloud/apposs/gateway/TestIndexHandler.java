@@ -0,0 +1,105 @@
+package cloud.apposs.gateway;
+
+import cloud.apposs.gateway.handler.index.HttpRange;
+import cloud.apposs.gateway.handler.index.MimeTypes;
+import cloud.apposs.gateway.handler.index.OpenFileBuf;
+import cloud.apposs.gateway.handler.index.OpenFileCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+public class TestIndexHandler {
+    @Test
+    public void testRangeParse() {
+        List<HttpRange> ranges = HttpRange.parse("bytes=0-499", 1000, 16);
+        Assert.assertEquals(1, ranges.size());
+        Assert.assertEquals(500, ranges.get(0).getLength());
+        Assert.assertEquals("bytes 0-499/1000", ranges.get(0).getContentRange(1000));
+
+        ranges = HttpRange.parse("bytes=-100", 1000, 16);
+        Assert.assertEquals(900, ranges.get(0).getStart());
+        Assert.assertEquals(999, ranges.get(0).getEnd());
+
+        ranges = HttpRange.parse("bytes=900-", 1000, 16);
+        Assert.assertEquals(100, ranges.get(0).getLength());
+
+        ranges = HttpRange.parse("bytes=0-0, 10-2000", 1000, 16);
+        Assert.assertEquals(2, ranges.size());
+        Assert.assertEquals(999, ranges.get(1).getEnd());
+
+        // 所有区间都不满足
+        Assert.assertTrue(HttpRange.parse("bytes=1000-", 1000, 16).isEmpty());
+        // 非法区间及区间数过多直接忽略
+        Assert.assertNull(HttpRange.parse("bytes=5-1", 1000, 16));
+        Assert.assertNull(HttpRange.parse("items=0-1", 1000, 16));
+        Assert.assertNull(HttpRange.parse("bytes=0-1,2-3,4-5", 1000, 2));
+    }
+
+    @Test
+    public void testMimeType() {
+        Assert.assertEquals("text/html", MimeTypes.getMimeType("/index.html"));
+        Assert.assertEquals("image/png", MimeTypes.getMimeType("/img/Logo.PNG"));
+        Assert.assertNull(MimeTypes.getMimeType("/v1.0/readme"));
+    }
+
+    @Test
+    public void testOpenFileCache() throws Exception {
+        File file = File.createTempFile("gateway", ".txt");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write("Hello Gateway".getBytes());
+        fos.close();
+
+        OpenFileCache cache = new OpenFileCache(true, 2, 60000, 60000);
+        OpenFileCache.OpenFile openFile = cache.open(file.getPath());
+        Assert.assertTrue(openFile.exists());
+        Assert.assertEquals(13, openFile.getLength());
+        OpenFileBuf buffer = new OpenFileBuf(openFile, 6, 7);
+        Assert.assertEquals("Gateway", new String(buffer.array(0, 7)));
+        openFile.release();
+        Assert.assertSame(openFile, cache.open(file.getPath()));
+        openFile.release();
+
+        // 缓存淘汰后发送中的Buffer仍然可以读取文件
+        cache.close();
+        Assert.assertEquals(0, cache.size());
+        OpenFileBuf buffer2 = new OpenFileBuf(openFile, 0, 5);
+        Assert.assertEquals("Hello", new String(buffer2.array(0, 5)));
+        buffer.free();
+        buffer2.free();
+
+        OpenFileCache.OpenFile notFound = cache.open(file.getPath() + ".none");
+        Assert.assertFalse(notFound.exists());
+        notFound.release();
+    }
+
+    @Test
+    public void testOpenFileCacheEvict() throws Exception {
+        OpenFileCache cache = new OpenFileCache(true, 2, 60000, 60000);
+        String dir = System.getProperty("java.io.tmpdir") + File.separator;
+        OpenFileCache.OpenFile file1 = cache.open(dir + "gateway-1.none");
+        OpenFileCache.OpenFile file2 = cache.open(dir + "gateway-2.none");
+        file1.release();
+        file2.release();
+
+        // 访问file1后file2成为最久未访问的缓存，超出max时被淘汰
+        cache.open(dir + "gateway-1.none").release();
+        cache.open(dir + "gateway-3.none").release();
+        Assert.assertEquals(2, cache.size());
+        OpenFileCache.OpenFile cached = cache.open(dir + "gateway-1.none");
+        Assert.assertSame(file1, cached);
+        cached.release();
+        OpenFileCache.OpenFile reopened = cache.open(dir + "gateway-2.none");
+        Assert.assertNotSame(file2, reopened);
+        reopened.release();
+        cache.close();
+
+        long time = 784111777000L;
+        Assert.assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", OpenFileCache.formatHttpDate(time));
+        Assert.assertEquals(time, OpenFileCache.parseHttpDate(" Sun, 06 Nov 1994 08:49:37 GMT"));
+        Assert.assertEquals(-1, OpenFileCache.parseHttpDate("invalid"));
+    }
+}
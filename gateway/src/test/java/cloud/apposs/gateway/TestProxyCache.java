@@ -0,0 +1,170 @@
+package cloud.apposs.gateway;
+
+import cloud.apposs.gateway.handler.proxy.cache.CacheEntry;
+import cloud.apposs.gateway.handler.proxy.cache.CacheKeyTemplate;
+import cloud.apposs.gateway.handler.proxy.cache.CacheLoading;
+import cloud.apposs.gateway.handler.proxy.cache.CachePolicy;
+import cloud.apposs.gateway.handler.proxy.cache.CacheWriter;
+import cloud.apposs.gateway.handler.proxy.cache.ProxyCache;
+import cloud.apposs.gateway.handler.proxy.cache.ProxyCacheConfig;
+import cloud.apposs.netkit.buffer.ByteBuf;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestProxyCache {
+    @Test
+    public void testCachePolicy() {
+        ProxyCacheConfig config = new ProxyCacheConfig();
+        long now = System.currentTimeMillis();
+        // 没有缓存头也没有配置proxy_cache_valid时不缓存
+        Assert.assertEquals(-1, CachePolicy.getFreshTime(200, doHeaders(), now, config));
+        Assert.assertEquals(60000, CachePolicy.getFreshTime(200, doHeaders("Cache-Control", "max-age=60"), now, config));
+        Assert.assertEquals(10000, CachePolicy.getFreshTime(200,
+                doHeaders("Cache-Control", "max-age=60, s-maxage=10"), now, config));
+        Assert.assertEquals(-1, CachePolicy.getFreshTime(200,
+                doHeaders("Cache-Control", "private, max-age=60"), now, config));
+        Assert.assertEquals(-1, CachePolicy.getFreshTime(200,
+                doHeaders("Cache-Control", "max-age=60", "Set-Cookie", "a=1"), now, config));
+        Assert.assertEquals(-1, CachePolicy.getFreshTime(500, doHeaders("Cache-Control", "max-age=60"), now, config));
+
+        config.addValidTime(200, 30000);
+        Assert.assertEquals(30000, CachePolicy.getFreshTime(200, doHeaders(), now, config));
+        Assert.assertEquals(-1, CachePolicy.getFreshTime(200, doHeaders("Cache-Control", "no-store"), now, config));
+        config.setIgnoreCacheControl(true);
+        Assert.assertEquals(30000, CachePolicy.getFreshTime(200, doHeaders("Cache-Control", "no-store"), now, config));
+        Assert.assertEquals(-1, CachePolicy.getFreshTime(404, doHeaders(), now, config));
+
+        config.setStaleTime(5000);
+        Assert.assertEquals(5000, CachePolicy.getStaleTime(doHeaders(), config));
+    }
+
+    @Test
+    public void testCacheKeyTemplate() {
+        HttpRequest request = doRequest("GET", "/product/list?id=1");
+        request.getHeaders().put("host", "WWW.Example.com:8080");
+        request.getHeaders().put("accept-language", "zh-CN");
+        Assert.assertEquals("www.example.com/product/list?id=1", new CacheKeyTemplate("$host$request_uri").build(request));
+        Assert.assertEquals("GET:/product/list:id=1:zh-CN",
+                new CacheKeyTemplate("$request_method:$uri:$args:$http_accept_language").build(request));
+        try {
+            new CacheKeyTemplate("$host$unknown");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testChunkedMemoryStore() throws Exception {
+        ProxyCacheConfig config = new ProxyCacheConfig();
+        config.addValidTime(200, 60000);
+        ProxyCache cache = new ProxyCache(config);
+        try {
+            HttpRequest request = doRequest("GET", "/chunk");
+            CacheWriter writer = cache.newWriter("/chunk", request, cache.tryLock("/chunk"));
+            Assert.assertTrue(writer.begin("HTTP/1.1 200 OK", 200, doHeaders("Transfer-Encoding", "chunked"), true));
+            // chunked数据在任意位置被拆分都需要能正确解码
+            writer.write(ByteBuf.wrap("5\r\nhel"));
+            writer.write(ByteBuf.wrap("lo\r"));
+            writer.write(ByteBuf.wrap("\n6;ext=1\r\n world\r\n0\r\n"));
+            writer.write(ByteBuf.wrap("\r\n"));
+            writer.commit();
+
+            CacheEntry entry = cache.lookup("/chunk", request, System.currentTimeMillis());
+            Assert.assertNotNull(entry);
+            Assert.assertTrue(entry.isMemory());
+            Assert.assertEquals(11, entry.getBodyLength());
+            Assert.assertNotNull(cache.tryLock("/chunk"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testCacheLockWait() throws Exception {
+        ProxyCacheConfig config = new ProxyCacheConfig();
+        config.addValidTime(200, 60000);
+        ProxyCache cache = new ProxyCache(config);
+        try {
+            final AtomicInteger wakeups = new AtomicInteger();
+            CacheLoading.Waiter waiter = new CacheLoading.Waiter() {
+                @Override
+                public void wakeup() {
+                    wakeups.incrementAndGet();
+                }
+            };
+            // 等待超时取消后回源结束不再唤醒
+            CacheLoading loading = cache.tryLock("/lock");
+            Assert.assertNull(cache.tryLock("/lock"));
+            Assert.assertEquals(ProxyCache.LOCK_WAIT, cache.waitLock("/lock", waiter));
+            Assert.assertTrue(cache.cancelWait("/lock", waiter));
+            Assert.assertFalse(cache.cancelWait("/lock", waiter));
+            cache.unlock(loading);
+            Assert.assertEquals(0, wakeups.get());
+
+            // 回源结束唤醒后不能再取消，避免唤醒和超时同时生效
+            loading = cache.tryLock("/lock");
+            Assert.assertEquals(ProxyCache.LOCK_WAIT, cache.waitLock("/lock", waiter));
+            cache.unlock(loading);
+            Assert.assertEquals(1, wakeups.get());
+            Assert.assertFalse(cache.cancelWait("/lock", waiter));
+            Assert.assertEquals(ProxyCache.LOCK_RETRY, cache.waitLock("/lock", waiter));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testDiskStore() throws Exception {
+        File directory = new File(System.getProperty("java.io.tmpdir"), "gateway-proxy-cache-test");
+        ProxyCacheConfig config = new ProxyCacheConfig();
+        config.addValidTime(200, 60000);
+        config.setMemoryMaxEntrySize(16);
+        config.setDiskPath(directory.getPath());
+        ProxyCache cache = new ProxyCache(config);
+        try {
+            HttpRequest request = doRequest("GET", "/big");
+            CacheWriter writer = cache.newWriter("/big", request, null);
+            Assert.assertTrue(writer.begin("HTTP/1.1 200 OK", 200, doHeaders("Content-Length", "32"), false));
+            writer.write(ByteBuf.wrap("0123456789abcdef"));
+            writer.write(ByteBuf.wrap("0123456789abcdef"));
+            writer.commit();
+
+            CacheEntry entry = cache.lookup("/big", request, System.currentTimeMillis());
+            Assert.assertNotNull(entry);
+            Assert.assertFalse(entry.isMemory());
+            Assert.assertEquals(32, new File(entry.getFilePath()).length());
+
+            // 响应不完整时丢弃
+            writer = cache.newWriter("/broken", request, null);
+            Assert.assertTrue(writer.begin("HTTP/1.1 200 OK", 200, doHeaders("Transfer-Encoding", "chunked"), true));
+            writer.write(ByteBuf.wrap("20\r\n0123456789abcdef0123456789abcdef"));
+            writer.commit();
+            Assert.assertNull(cache.lookup("/broken", request, System.currentTimeMillis()));
+        } finally {
+            cache.close();
+        }
+    }
+
+    private static List<String[]> doHeaders(String... keyValues) {
+        List<String[]> headers = new LinkedList<String[]>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            headers.add(new String[] {keyValues[i], keyValues[i + 1]});
+        }
+        return headers;
+    }
+
+    private static HttpRequest doRequest(String method, String uri) {
+        HttpRequest request = new HttpRequest(new InetSocketAddress("127.0.0.1", 8080));
+        request.setMethod(method);
+        request.setRequestUri(uri.indexOf('?') == -1 ? uri : uri.substring(0, uri.indexOf('?')));
+        request.setRawRequestUri(uri);
+        return request;
+    }
+}
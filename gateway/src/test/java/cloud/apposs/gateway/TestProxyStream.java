@@ -0,0 +1,233 @@
+package cloud.apposs.gateway;
+
+import cloud.apposs.gateway.handler.index.ReturnHandler;
+import cloud.apposs.gateway.handler.proxy.SiteHandler;
+import cloud.apposs.netkit.filterchain.http.server.HttpRequest;
+import cloud.apposs.netkit.filterchain.http.server.HttpResponse;
+import cloud.apposs.netkit.rxio.RxIo;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 请求BODY分多次到达时的网关处理，
+ * 反向代理每段数据都原样转发到上游，其他处理器解析完整表单后只处理一次
+ */
+public class TestProxyStream {
+    private static final AtomicInteger UPSTREAM_REQUESTS = new AtomicInteger();
+
+    private static final AtomicInteger FORM_HANDLES = new AtomicInteger();
+
+    private ServerSocket upstream;
+
+    private ApplicationContext context;
+
+    private int port;
+
+    @Before
+    public void start() throws Exception {
+        upstream = new ServerSocket(0);
+        Thread thread = new Thread(new EchoUpstream(upstream), "Test_Upstream");
+        thread.setDaemon(true);
+        thread.start();
+
+        ServerSocket socket = new ServerSocket(0);
+        port = socket.getLocalPort();
+        socket.close();
+        GatewayConfig config = new GatewayConfig();
+        config.setHost("127.0.0.1");
+        config.setPort(port);
+        GatewayConfig.Location proxy = new GatewayConfig.Location("*", "/proxy",
+                "text/html", SiteHandler.class.getName(), null);
+        proxy.getOptions().put("proxyUrl", "http://127.0.0.1:" + upstream.getLocalPort() + "/echo");
+        config.addLocation("/proxy", proxy);
+        GatewayConfig.Location form = new GatewayConfig.Location("*", "/form",
+                "text/html", FormHandler.class.getName(), null);
+        form.getOptions().put("status", 200);
+        form.getOptions().put("content", "");
+        config.addLocation("/form", form);
+        context = new ApplicationContext(config).run();
+    }
+
+    @After
+    public void stop() throws Exception {
+        if (context != null) {
+            context.shutdown();
+        }
+        if (upstream != null) {
+            upstream.close();
+        }
+    }
+
+    @Test
+    public void testProxyMultiChunk() throws Exception {
+        UPSTREAM_REQUESTS.set(0);
+        String[] chunks = {"hello-", "gateway-", "stream"};
+        Socket client = doSend("/proxy", "text/plain", chunks);
+        try {
+            Assert.assertEquals("hello-gateway-stream", doReadResponse(client.getInputStream()));
+            Assert.assertEquals(1, UPSTREAM_REQUESTS.get());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testFormMultiChunk() throws Exception {
+        FORM_HANDLES.set(0);
+        String[] chunks = {"name=gat", "eway&i", "d=1"};
+        Socket client = doSend("/form", "application/x-www-form-urlencoded", chunks);
+        try {
+            InputStream input = client.getInputStream();
+            Assert.assertEquals("gateway:1", doReadResponse(input));
+            // 表单解析完整后只处理一次，不会多次输出响应
+            client.setSoTimeout(300);
+            try {
+                Assert.assertEquals(-1, input.read());
+            } catch (SocketTimeoutException e) {
+            }
+            Assert.assertEquals(1, FORM_HANDLES.get());
+        } finally {
+            client.close();
+        }
+    }
+
+    private Socket doSend(String path, String contentType, String[] chunks) throws Exception {
+        int length = 0;
+        for (String chunk : chunks) {
+            length += chunk.length();
+        }
+        Socket client = doConnect();
+        client.setTcpNoDelay(true);
+        client.setSoTimeout(5000);
+        OutputStream output = client.getOutputStream();
+        output.write(("POST " + path + " HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Type: " + contentType
+                + "\r\nContent-Length: " + length + "\r\n\r\n").getBytes("ISO-8859-1"));
+        output.flush();
+        for (String chunk : chunks) {
+            // 间隔发送保证BODY分多次到达网关
+            Thread.sleep(100);
+            output.write(chunk.getBytes("ISO-8859-1"));
+            output.flush();
+        }
+        return client;
+    }
+
+    /**
+     * 网关监听在后台线程中启动，连接失败时稍后重试
+     */
+    private Socket doConnect() throws Exception {
+        for (int i = 0; ; i++) {
+            try {
+                return new Socket("127.0.0.1", port);
+            } catch (ConnectException e) {
+                if (i >= 50) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static String doReadResponse(InputStream input) throws IOException {
+        int contentLength = -1;
+        String line;
+        while ((line = doReadLine(input)).length() > 0) {
+            int index = line.indexOf(':');
+            if (index > 0 && "content-length".equalsIgnoreCase(line.substring(0, index).trim())) {
+                contentLength = Integer.parseInt(line.substring(index + 1).trim());
+            }
+        }
+        Assert.assertTrue(contentLength >= 0);
+        byte[] body = new byte[contentLength];
+        int read = 0;
+        while (read < contentLength) {
+            int count = input.read(body, read, contentLength - read);
+            if (count < 0) {
+                throw new IOException("unexpected end of response");
+            }
+            read += count;
+        }
+        return new String(body, "utf-8");
+    }
+
+    private static String doReadLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int letter;
+        while ((letter = input.read()) != '\n') {
+            if (letter < 0) {
+                throw new IOException("unexpected end of response");
+            }
+            if (letter != '\r') {
+                line.write(letter);
+            }
+        }
+        return line.toString("ISO-8859-1");
+    }
+
+    public static class FormHandler extends ReturnHandler {
+        @Override
+        public RxIo<String> handle(HttpRequest request, HttpResponse response) throws Exception {
+            FORM_HANDLES.incrementAndGet();
+            return RxIo.from(request.getParameter("name") + ":" + request.getParameter("id"));
+        }
+    }
+
+    /**
+     * 上游服务，读取完整请求BODY后原样返回
+     */
+    private static class EchoUpstream implements Runnable {
+        private final ServerSocket server;
+
+        private EchoUpstream(ServerSocket server) {
+            this.server = server;
+        }
+
+        @Override
+        public void run() {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    try {
+                        doEcho(socket);
+                    } finally {
+                        socket.close();
+                    }
+                } catch (IOException e) {
+                }
+            }
+        }
+
+        private void doEcho(Socket socket) throws IOException {
+            InputStream input = socket.getInputStream();
+            int contentLength = 0;
+            String line;
+            while ((line = doReadLine(input)).length() > 0) {
+                int index = line.indexOf(':');
+                if (index > 0 && "content-length".equalsIgnoreCase(line.substring(0, index).trim())) {
+                    contentLength = Integer.parseInt(line.substring(index + 1).trim());
+                }
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            for (int i = 0; i < contentLength; i++) {
+                body.write(input.read());
+            }
+            UPSTREAM_REQUESTS.incrementAndGet();
+            OutputStream output = socket.getOutputStream();
+            output.write(("HTTP/1.1 200 OK\r\nContent-Length: " + body.size() + "\r\n\r\n").getBytes("ISO-8859-1"));
+            output.write(body.toByteArray());
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package cloud.apposs.gateway;
+
+import cloud.apposs.gateway.upstream.Upstream;
+import cloud.apposs.gateway.upstream.UpstreamPeer;
+import cloud.apposs.netkit.EventLoop;
+import cloud.apposs.netkit.EventTask;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestUpstream {
+    @Test
+    public void testEventLoopSchedule() throws Exception {
+        EventLoop loop = new EventLoop("Test_Loop", true, true);
+        loop.start();
+        try {
+            final List<Integer> orders = new LinkedList<Integer>();
+            final CountDownLatch latch = new CountDownLatch(1);
+            long start = System.currentTimeMillis();
+            loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    orders.add(2);
+                    latch.countDown();
+                }
+            }, 200);
+            loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    orders.add(1);
+                }
+            }, 100);
+            EventTask cancelled = loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    orders.add(3);
+                }
+            }, 50);
+            cancelled.cancel();
+            Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+            // 定时任务不应等待轮询超时时间才执行
+            Assert.assertTrue(System.currentTimeMillis() - start < EventLoop.SELECT_TIMEOUT);
+            Assert.assertEquals(2, orders.size());
+            Assert.assertEquals(1, orders.get(0).intValue());
+            Assert.assertEquals(2, orders.get(1).intValue());
+        } finally {
+            loop.shutdown();
+        }
+    }
+
+    @Test
+    public void testPassiveEjection() throws Exception {
+        EventLoop loop = new EventLoop("Test_Loop", false, true);
+        loop.start();
+        GatewayConfig.UpstreamServer server1 = new GatewayConfig.UpstreamServer("127.0.0.1", 18901);
+        server1.setMaxFails(2);
+        server1.setFailTimeout(300);
+        server1.setSlowStart(60000);
+        GatewayConfig.UpstreamServer server2 = new GatewayConfig.UpstreamServer("127.0.0.1", 18902);
+        List<GatewayConfig.UpstreamServer> servers = new LinkedList<GatewayConfig.UpstreamServer>();
+        servers.add(server1);
+        servers.add(server2);
+        Upstream upstream = new Upstream("test", servers, null, loop);
+        try {
+            UpstreamPeer peer1 = upstream.getPeers()[0];
+            upstream.onFailure(peer1.getAddress());
+            Assert.assertFalse(peer1.isEjected());
+            upstream.onFailure(peer1.getAddress());
+            Assert.assertTrue(peer1.isEjected());
+            Thread.sleep(100);
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals(18902, upstream.choose(null).getAddress().getPort());
+            }
+
+            // fail_timeout后恢复并进入慢启动，只接入很少的流量
+            Thread.sleep(400);
+            Assert.assertFalse(peer1.isEjected());
+            Assert.assertTrue(peer1.getPeer().isAlive());
+            int peer1Count = 0;
+            for (int i = 0; i < 100; i++) {
+                if (upstream.choose(null) == peer1) {
+                    peer1Count++;
+                }
+            }
+            Assert.assertTrue(peer1Count < 10);
+            // 恢复后再次失败立即摘除
+            upstream.onFailure(peer1.getAddress());
+            Assert.assertTrue(peer1.isEjected());
+        } finally {
+            upstream.close();
+            loop.shutdown();
+        }
+    }
+
+    @Test
+    public void testActiveHealthCheck() throws Exception {
+        final ServerSocket serverSocket = new ServerSocket(18903);
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger requests = new AtomicInteger();
+        Thread httpServer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        final Socket socket = serverSocket.accept();
+                        connections.incrementAndGet();
+                        new Thread() {
+                            @Override
+                            public void run() {
+                                doServeKeepAlive(socket, requests);
+                            }
+                        }.start();
+                    }
+                } catch (Exception e) {
+                }
+            }
+        };
+        httpServer.setDaemon(true);
+        httpServer.start();
+
+        EventLoop loop = new EventLoop("Test_Loop", false, true);
+        loop.start();
+        GatewayConfig.UpstreamCheck check = new GatewayConfig.UpstreamCheck();
+        check.setInterval(100);
+        check.setTimeout(500);
+        check.setRise(1);
+        check.setFall(2);
+        check.setUri("/health");
+        List<GatewayConfig.UpstreamServer> servers = new LinkedList<GatewayConfig.UpstreamServer>();
+        servers.add(new GatewayConfig.UpstreamServer("127.0.0.1", 18903));
+        servers.add(new GatewayConfig.UpstreamServer("127.0.0.1", 18904));
+        Upstream upstream = new Upstream("test", servers, check, loop);
+        try {
+            upstream.start();
+            Thread.sleep(1000);
+            UpstreamPeer alivePeer = upstream.getPeers()[0];
+            UpstreamPeer deadPeer = upstream.getPeers()[1];
+            Assert.assertFalse(alivePeer.isUnhealthy());
+            Assert.assertTrue(deadPeer.isUnhealthy());
+            Assert.assertFalse(deadPeer.getPeer().isAlive());
+            for (int i = 0; i < 10; i++) {
+                Assert.assertSame(alivePeer, upstream.choose(null));
+            }
+            // 多次检查复用同一个长连接
+            Assert.assertTrue(requests.get() >= 5);
+            Assert.assertEquals(1, connections.get());
+        } finally {
+            upstream.close();
+            loop.shutdown();
+            serverSocket.close();
+        }
+    }
+
+    private static void doServeKeepAlive(Socket socket, AtomicInteger requests) {
+        try {
+            InputStream input = socket.getInputStream();
+            OutputStream output = socket.getOutputStream();
+            int tail = 0;
+            int letter;
+            while ((letter = input.read()) != -1) {
+                tail = (tail << 8) | letter;
+                if (tail == 0x0d0a0d0a) {
+                    requests.incrementAndGet();
+                    output.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nOK".getBytes("ISO-8859-1"));
+                    output.flush();
+                    tail = 0;
+                }
+            }
+            socket.close();
+        } catch (Exception e) {
+        }
+    }
+}
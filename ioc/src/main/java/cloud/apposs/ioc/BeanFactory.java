@@ -11,22 +11,34 @@ import cloud.apposs.util.ResourceUtil;
 import cloud.apposs.util.StrUtil;
 import cloud.apposs.util.SysUtil;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.JarURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -35,8 +47,24 @@ import java.util.jar.JarFile;
  * 凡是使用{@link Component}注解的对象均会创建并添加到IOC容器中
  */
 public final class BeanFactory {
+    /**
+     * 编译时由{@link cloud.apposs.ioc.processor.BeanIndexProcessor}生成的Bean索引文件，
+     * 每行一个{@link Component}注解的类名，类路径目录或者Jar包存在该索引时直接读取索引，不再扫描
+     */
+    public static final String BEAN_INDEX_LOCATION = "META-INF/cloud.apposs.ioc.components";
+
+    /**
+     * 忽略Bean索引强制扫描类路径的系统属性
+     */
+    public static final String BEAN_INDEX_IGNORE_PROPERTY = "cloud.apposs.ioc.index.ignore";
+
     private static final String DEFAULT_RESOURCE_PATTERN = "**/*.class";
 
+    /**
+     * 并行扫描的最大线程数
+     */
+    private static final int MAX_SCAN_THREADS = 8;
+
     private final AntPathMatcher pathMatcher = new AntPathMatcher();
 
     /**
@@ -49,6 +77,30 @@ public final class BeanFactory {
      */
     private final Map<Class<?>, Object> beans = new ConcurrentHashMap<Class<?>, Object>();
 
+    /**
+     * 父类类型 -> 实现类定义索引，注解类型 -> 注解类定义索引，
+     * 首次查询时按当前类定义集构建，类定义集变化时清空，
+     * 容器加载完成后的查询均直接命中索引，不再遍历全部类定义
+     */
+    private final Map<Class<?>, BeanDefinition[]> hierarchyIndex = new ConcurrentHashMap<Class<?>, BeanDefinition[]>();
+    private final Map<Class<?>, BeanDefinition[]> annotationIndex = new ConcurrentHashMap<Class<?>, BeanDefinition[]>();
+    private final Object indexLock = new Object();
+
+    /**
+     * Bean类 -> 注入计划，类定义集变化时清空，避免注入的依赖实现类过期
+     */
+    private final Map<Class<?>, BeanInjectionPlan> injectionPlans = new ConcurrentHashMap<Class<?>, BeanInjectionPlan>();
+
+    /**
+     * 当前线程正在创建的Bean类，用于检测循环依赖
+     */
+    private final ThreadLocal<List<Class<?>>> creatingBeans = new ThreadLocal<List<Class<?>>>() {
+        @Override
+        protected List<Class<?>> initialValue() {
+            return new ArrayList<Class<?>>();
+        }
+    };
+
     /**
      * 编码
      */
@@ -60,6 +112,12 @@ public final class BeanFactory {
     private final List<TypeFilter> includeFilters = new LinkedList<TypeFilter>();
     private final List<TypeFilter> excludeFilters = new LinkedList<TypeFilter>();
 
+    /**
+     * 最近一次{@link #load(String...)}各阶段耗时，单位毫秒
+     */
+    private long scanSpendTime;
+    private long initialSpendTime;
+
     public BeanFactory() {
         this.includeFilters.add(new AnnotationTypeFilter(Component.class));
     }
@@ -71,38 +129,60 @@ public final class BeanFactory {
         if (basePackages == null || basePackages.length <= 0) {
             throw new IllegalArgumentException("basePackages");
         }
+        long startTime = System.currentTimeMillis();
         loadBeanDefinition(basePackages);
+        scanSpendTime = System.currentTimeMillis() - startTime;
+        startTime = System.currentTimeMillis();
         finishBeanInitialization();
+        initialSpendTime = System.currentTimeMillis() - startTime;
     }
 
     /**
      * 获取Bean实例，不存在该实例则自动创建对象
      */
+    @SuppressWarnings("unchecked")
     public <T> T getBean(Class<T> beanClass) throws BeansException {
         SysUtil.checkNotNull(beanClass, "beanClass");
-        if (!beanDefinitions.containsKey(beanClass.getName())) {
+        BeanDefinition beanDefinition = beanDefinitions.get(beanClass.getName());
+        if (beanDefinition == null) {
             throw new BeanDefinitionNotFoundException("No bean named '" + beanClass + "'");
         }
 
         // 非单例对象直接创建返回出去，不用查找
-        BeanDefinition beanDefinition = beanDefinitions.get(beanClass.getName());
         if (beanDefinition.isPrototype()) {
             return doCreateBean(beanClass);
         }
 
-        // 单例对象看是否有在IOC容器中，没有则创建一个
-        return doGetSingletonBean(beanClass);
+        // 单例对象看是否有在IOC容器中，没有则创建一个，已创建的单例查找不加锁
+        T bean = (T) beans.get(beanClass);
+        if (bean != null) {
+            return bean;
+        }
+        return doGetSingletonBean(beanClass, beanDefinition);
+    }
+
+    /**
+     * 判断Bean是否为非单例对象，非单例对象每次{@link #getBean(Class)}都会创建新实例，调用方不能缓存
+     */
+    public boolean isPrototype(Class<?> beanClass) throws BeansException {
+        SysUtil.checkNotNull(beanClass, "beanClass");
+        BeanDefinition beanDefinition = beanDefinitions.get(beanClass.getName());
+        if (beanDefinition == null) {
+            throw new BeanDefinitionNotFoundException("No bean named '" + beanClass + "'");
+        }
+        return beanDefinition.isPrototype();
     }
 
     /**
      * 根据父类类型获取最近一个实现的子类对象
      */
+    @SuppressWarnings("unchecked")
     public <T> T getBeanHierarchy(Class<T> beanType) throws BeansException {
-        List<T> beanList = getBeanHierarchyList(beanType);
-        if (beanList == null || beanList.isEmpty()) {
+        BeanDefinition[] definitions = doGetHierarchyDefinitions(beanType);
+        if (definitions.length == 0) {
             return null;
         }
-        return beanList.get(beanList.size() - 1);
+        return (T) getBean(definitions[definitions.length - 1].getBeanClass());
     }
 
     /**
@@ -110,12 +190,10 @@ public final class BeanFactory {
      */
     @SuppressWarnings("unchecked")
     public <T> List<T> getBeanHierarchyList(Class<T> beanType) throws BeansException {
-        List<T> beanList = new LinkedList<T>();
-        for (BeanDefinition beanDefinition : beanDefinitions.values()) {
-            Class<?> beanClass = beanDefinition.getBeanClass();
-            if (beanType.isAssignableFrom(beanClass) && !beanType.equals(beanClass)) {
-                beanList.add((T) getBean(beanClass));
-            }
+        BeanDefinition[] definitions = doGetHierarchyDefinitions(beanType);
+        List<T> beanList = new ArrayList<T>(definitions.length);
+        for (int i = 0; i < definitions.length; i++) {
+            beanList.add((T) getBean(definitions[i].getBeanClass()));
         }
         return beanList;
     }
@@ -123,12 +201,13 @@ public final class BeanFactory {
     /**
      * 根据类注解获取第一个配置类注解的对象
      */
+    @SuppressWarnings("unchecked")
     public <T> T getBeanAnnotation(Class<? extends Annotation> annotationType) throws BeansException {
-        List<T> beanList = getBeanAnnotationList(annotationType);
-        if (beanList == null || beanList.isEmpty()) {
+        BeanDefinition[] definitions = doGetAnnotationDefinitions(annotationType);
+        if (definitions.length == 0) {
             return null;
         }
-        return beanList.get(0);
+        return (T) getBean(definitions[0].getBeanClass());
     }
 
     /**
@@ -136,12 +215,10 @@ public final class BeanFactory {
      */
     @SuppressWarnings("unchecked")
     public <T> List<T> getBeanAnnotationList(Class<? extends Annotation> annotationType) throws BeansException {
-        List<T> beanList = new LinkedList<T>();
-        for (BeanDefinition beanDefinition : beanDefinitions.values()) {
-            Class<?> beanClass = beanDefinition.getBeanClass();
-            if (beanClass.isAnnotationPresent(annotationType)) {
-                beanList.add((T) getBean(beanClass));
-            }
+        BeanDefinition[] definitions = doGetAnnotationDefinitions(annotationType);
+        List<T> beanList = new ArrayList<T>(definitions.length);
+        for (int i = 0; i < definitions.length; i++) {
+            beanList.add((T) getBean(definitions[i].getBeanClass()));
         }
         return beanList;
     }
@@ -150,12 +227,10 @@ public final class BeanFactory {
      * 根据父类类型获取所有实现的子类Class
      */
     public List<Class<?>> getClassHierarchyList(Class<?> beanType) throws BeansException {
-        List<Class<?>> beanList = new LinkedList<Class<?>>();
-        for (BeanDefinition beanDefinition : beanDefinitions.values()) {
-            Class<?> beanClass = beanDefinition.getBeanClass();
-            if (beanType.isAssignableFrom(beanClass) && !beanType.equals(beanClass)) {
-                beanList.add(beanClass);
-            }
+        BeanDefinition[] definitions = doGetHierarchyDefinitions(beanType);
+        List<Class<?>> beanList = new ArrayList<Class<?>>(definitions.length);
+        for (int i = 0; i < definitions.length; i++) {
+            beanList.add(definitions[i].getBeanClass());
         }
         return beanList;
     }
@@ -164,12 +239,10 @@ public final class BeanFactory {
      * 根据类注解获取所有配置类注解的Class
      */
     public List<Class<?>> getClassAnnotationList(Class<? extends Annotation> annotationType) throws BeansException {
-        List<Class<?>> beanList = new LinkedList<Class<?>>();
-        for (BeanDefinition beanDefinition : beanDefinitions.values()) {
-            Class<?> beanClass = beanDefinition.getBeanClass();
-            if (beanClass.isAnnotationPresent(annotationType)) {
-                beanList.add(beanClass);
-            }
+        BeanDefinition[] definitions = doGetAnnotationDefinitions(annotationType);
+        List<Class<?>> beanList = new ArrayList<Class<?>>(definitions.length);
+        for (int i = 0; i < definitions.length; i++) {
+            beanList.add(definitions[i].getBeanClass());
         }
         return beanList;
     }
@@ -208,6 +281,24 @@ public final class BeanFactory {
         return true;
     }
 
+    /**
+     * 获取最近一次加载时扫描类路径的耗时，单位毫秒
+     */
+    public long getScanSpendTime() {
+        return scanSpendTime;
+    }
+
+    /**
+     * 获取最近一次加载时创建单例Bean的耗时，单位毫秒
+     */
+    public long getInitialSpendTime() {
+        return initialSpendTime;
+    }
+
+    public int getBeanDefinitionSize() {
+        return beanDefinitions.size();
+    }
+
     public String getCharset() {
         return charset;
     }
@@ -217,9 +308,11 @@ public final class BeanFactory {
     }
 
     /**
-     * 加载扫描包下的所有Class类，路径Ant正则规则匹配
+     * 加载扫描包下的所有Class类，路径Ant正则规则匹配，
+     * 每个目录或者Jar包作为一个扫描任务，多个任务时并行扫描
      */
     private void loadBeanDefinition(String... basePackages) throws BeansException {
+        List<ScanTask> scanTaskList = new ArrayList<ScanTask>();
         try {
             for (String basePackage : basePackages) {
                 if (StrUtil.isEmpty(basePackage)) {
@@ -230,17 +323,60 @@ public final class BeanFactory {
                 String subPattern = packageSearchPath.substring(rootDirPath.length());
                 Enumeration<URL> resources = ResourceUtil.getResources(rootDirPath);
                 while (resources.hasMoreElements()) {
-                    URL resource = resources.nextElement();
-                    if (ResourceUtil.isJarURL(resource)) {
-                        addJarResourceBeanDefinition(resource, basePackage, subPattern);
-                    } else {
-                        addFileResourceBeanDefinition(resource, basePackage, subPattern);
-                    }
+                    scanTaskList.add(new ScanTask(resources.nextElement(), basePackage, packageSearchPath, rootDirPath, subPattern));
                 }
             }
         } catch (Exception e) {
             throw new BeanDefinitionStoreException("bean definition failure during classpath scanning", e);
         }
+
+        int threads = Math.min(scanTaskList.size(), Math.min(MAX_SCAN_THREADS, Runtime.getRuntime().availableProcessors()));
+        if (threads <= 1) {
+            for (ScanTask scanTask : scanTaskList) {
+                doScan(scanTask);
+            }
+            return;
+        }
+        final ClassLoader classLoader = ClassUtil.getClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "BeanFactory-Scan-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                // 扫描线程和调用线程使用同一个类加载器加载类
+                thread.setContextClassLoader(classLoader);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Void>> futureList = executor.invokeAll(scanTaskList);
+            for (Future<Void> future : futureList) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BeansException) {
+                throw (BeansException) cause;
+            }
+            throw new BeanDefinitionStoreException("bean definition failure during classpath scanning", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeanDefinitionStoreException("bean definition interrupted during classpath scanning", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void doScan(ScanTask scanTask) throws BeansException {
+        try {
+            scanTask.call();
+        } catch (BeansException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BeanDefinitionStoreException("bean definition failure during classpath scanning", e);
+        }
     }
 
     /**
@@ -252,9 +388,12 @@ public final class BeanFactory {
         }
     }
 
+    /**
+     * 创建单例对象，每个Bean类单独加锁，不同Bean的创建互不阻塞
+     */
     @SuppressWarnings("unchecked")
-    private <T> T doGetSingletonBean(Class<T> beanClass) throws BeansException {
-        synchronized (beans) {
+    private <T> T doGetSingletonBean(Class<T> beanClass, BeanDefinition beanDefinition) throws BeansException {
+        synchronized (beanDefinition) {
             T bean = (T) beans.get(beanClass);
             if (bean != null) {
                 return bean;
@@ -265,6 +404,105 @@ public final class BeanFactory {
         }
     }
 
+    /**
+     * 获取父类类型对应的实现类定义，顺序和遍历类定义集的顺序一致
+     */
+    private BeanDefinition[] doGetHierarchyDefinitions(Class<?> beanType) {
+        BeanDefinition[] definitions = hierarchyIndex.get(beanType);
+        if (definitions != null) {
+            return definitions;
+        }
+        synchronized (indexLock) {
+            definitions = hierarchyIndex.get(beanType);
+            if (definitions == null) {
+                List<BeanDefinition> definitionList = new ArrayList<BeanDefinition>();
+                for (BeanDefinition beanDefinition : beanDefinitions.values()) {
+                    Class<?> beanClass = beanDefinition.getBeanClass();
+                    if (beanType.isAssignableFrom(beanClass) && !beanType.equals(beanClass)) {
+                        definitionList.add(beanDefinition);
+                    }
+                }
+                definitions = definitionList.toArray(new BeanDefinition[definitionList.size()]);
+                hierarchyIndex.put(beanType, definitions);
+            }
+            return definitions;
+        }
+    }
+
+    /**
+     * 获取类注解对应的类定义，顺序和遍历类定义集的顺序一致
+     */
+    private BeanDefinition[] doGetAnnotationDefinitions(Class<? extends Annotation> annotationType) {
+        BeanDefinition[] definitions = annotationIndex.get(annotationType);
+        if (definitions != null) {
+            return definitions;
+        }
+        synchronized (indexLock) {
+            definitions = annotationIndex.get(annotationType);
+            if (definitions == null) {
+                List<BeanDefinition> definitionList = new ArrayList<BeanDefinition>();
+                for (BeanDefinition beanDefinition : beanDefinitions.values()) {
+                    if (beanDefinition.getBeanClass().isAnnotationPresent(annotationType)) {
+                        definitionList.add(beanDefinition);
+                    }
+                }
+                definitions = definitionList.toArray(new BeanDefinition[definitionList.size()]);
+                annotationIndex.put(annotationType, definitions);
+            }
+            return definitions;
+        }
+    }
+
+    /**
+     * 类路径扫描任务，扫描一个目录或者Jar包下匹配的类
+     */
+    private final class ScanTask implements Callable<Void> {
+        private final URL resource;
+
+        private final String basePackage;
+
+        private final String packageSearchPath;
+
+        private final String rootDirPath;
+
+        private final String subPattern;
+
+        private ScanTask(URL resource, String basePackage,
+                String packageSearchPath, String rootDirPath, String subPattern) {
+            this.resource = resource;
+            this.basePackage = basePackage;
+            this.packageSearchPath = packageSearchPath;
+            this.rootDirPath = rootDirPath;
+            this.subPattern = subPattern;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            if (isBeanIndexEnabled()) {
+                List<String> beanIndex = doReadBeanIndex(resource, rootDirPath);
+                if (beanIndex != null) {
+                    addIndexBeanDefinition(beanIndex, packageSearchPath);
+                    return null;
+                }
+            }
+            if (ResourceUtil.isJarURL(resource)) {
+                addJarResourceBeanDefinition(resource, basePackage, subPattern);
+            } else {
+                addFileResourceBeanDefinition(resource, basePackage, subPattern);
+            }
+            return null;
+        }
+    }
+
+    private void doAddBeanDefinition(String className, BeanDefinition beanDefinition) {
+        beanDefinitions.put(className, beanDefinition);
+        synchronized (indexLock) {
+            hierarchyIndex.clear();
+            annotationIndex.clear();
+        }
+        injectionPlans.clear();
+    }
+
     /**
      * 根据Bean名称创建Bean对象
      *
@@ -272,14 +510,22 @@ public final class BeanFactory {
      * @return 成功创建Bean对象
      * @throws BeansException 创建对象失败则抛出此异常
      */
+    @SuppressWarnings("unchecked")
     private <T> T doCreateBean(Class<T> beanClass) throws BeansException {
+        // 循环依赖检测，IOC容器无法解决循环依赖，直接抛出异常
+        List<Class<?>> creatingList = creatingBeans.get();
+        if (creatingList.contains(beanClass)) {
+            StringBuilder path = new StringBuilder(128);
+            for (int i = creatingList.indexOf(beanClass); i < creatingList.size(); i++) {
+                path.append(creatingList.get(i).getName()).append(" -> ");
+            }
+            path.append(beanClass.getName());
+            throw new BeanCreationException("Circular dependency found: " + path);
+        }
+        creatingList.add(beanClass);
         try {
-            // 构造方法注入
-            T beanObject = doCreateContructor(beanClass);
-            // 字段注入
-            doInjectField(beanObject, beanClass);
-            // 方法注入
-            doInjectMethod(beanObject, beanClass);
+            // 按注入计划依次进行构造方法注入、字段注入和方法注入
+            T beanObject = (T) doGetInjectionPlan(beanClass).create(this);
             // 如果Bean类实现了{@link Initializable}接口则进行接口初始化操作
             if (beanObject instanceof Initializable) {
                 ((Initializable) beanObject).initialize();
@@ -287,26 +533,90 @@ public final class BeanFactory {
             return beanObject;
         } catch (InstantiationException e) {
             throw new BeanCreationException("Bean[" + beanClass + "] initialize fail", e);
+        } finally {
+            creatingList.remove(creatingList.size() - 1);
         }
     }
 
+    /**
+     * 获取Bean类的注入计划，首次创建时解析，之后直接复用
+     */
+    private BeanInjectionPlan doGetInjectionPlan(Class<?> beanClass) throws BeansException {
+        BeanInjectionPlan plan = injectionPlans.get(beanClass);
+        if (plan == null) {
+            plan = doBuildInjectionPlan(beanClass);
+            injectionPlans.put(beanClass, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * 解析Bean类的构造方法、{@link Autowired}字段和方法，生成注入计划
+     */
+    private BeanInjectionPlan doBuildInjectionPlan(Class<?> beanClass) throws BeansException {
+        Constructor<?> constructor = doMatchConstructor(beanClass);
+        Class<?>[] constructorDependencies = doResolveDependencies(constructor.getParameterTypes());
+        MethodHandle constructorHandle;
+        try {
+            constructorHandle = BeanInjectionPlan.constructor(constructor);
+        } catch (IllegalAccessException e) {
+            throw new BeanCreationException("Bean[" + beanClass + "] constructor access fail", e);
+        }
+
+        List<BeanInjectionPlan.Injector> injectorList = new ArrayList<BeanInjectionPlan.Injector>();
+        // 获取 Bean 类中所有的字段（不包括父类中的字段）
+        Field[] beanFields = beanClass.getDeclaredFields();
+        for (int i = 0; i < beanFields.length; i++) {
+            Field beanField = beanFields[i];
+            if (!beanField.isAnnotationPresent(Autowired.class)) {
+                continue;
+            }
+            Class<?> dependency = doResolveDependency(beanField.getType());
+            if (dependency == null) {
+                throw new BeanCreationException("Autowired field[" + beanField + "] dependency not found");
+            }
+            ReflectUtil.makeAccessible(beanField);
+            try {
+                injectorList.add(BeanInjectionPlan.fieldInjector(beanField, dependency));
+            } catch (IllegalAccessException e) {
+                throw new BeanCreationException("Autowired field[" + beanField + "] dependency access error", e);
+            }
+        }
+        // 获取 Bean 类中所有的方法（不包括父类中的方法）
+        Method[] beanMethods = beanClass.getDeclaredMethods();
+        for (int i = 0; i < beanMethods.length; i++) {
+            Method beanMethod = beanMethods[i];
+            if (!beanMethod.isAnnotationPresent(Autowired.class)) {
+                continue;
+            }
+            Class<?>[] dependencies = doResolveDependencies(beanMethod.getParameterTypes());
+            ReflectUtil.makeAccessible(beanMethod);
+            try {
+                injectorList.add(BeanInjectionPlan.methodInjector(beanMethod, dependencies));
+            } catch (IllegalAccessException e) {
+                throw new BeanCreationException("Autowired method[" + beanMethod + "] dependency access error", e);
+            }
+        }
+        BeanInjectionPlan.Injector[] injectors = injectorList.toArray(new BeanInjectionPlan.Injector[injectorList.size()]);
+        return new BeanInjectionPlan(beanClass, constructorHandle, constructorDependencies, injectors);
+    }
+
     /**
      * IOC容器中类初始化，
      * 默认用缺省构造方法，没有是判断构造方法是否是{@link Autowired}注解进行构造方法反向注入
      * 参考：https://blog.csdn.net/qq_41737716/article/details/85596817
      * 注意：
      * 1. {@link Autowired}的构造方法参数所在的实现类必须要添加{@link Component}注解，已经由IOC容器管理了，
-     * 2. IOC容器是无法解决类循环依赖问题的，底层通过之前扫描的{@link BeanDefinition}来初始化实例只会触发两个循环依赖的类彼此都找不到
+     * 2. IOC容器是无法解决类循环依赖问题的，创建时检测到循环依赖直接抛出{@link BeanCreationException}
      */
-    @SuppressWarnings("unchecked")
-    private <T> T doCreateContructor(Class<T> beanClass) throws BeansException {
-        Constructor<T>[] constructors = (Constructor<T>[]) beanClass.getDeclaredConstructors();
-        Constructor<T> matchedConstructor = null;
+    private Constructor<?> doMatchConstructor(Class<?> beanClass) throws BeansException {
+        Constructor<?>[] constructors = beanClass.getDeclaredConstructors();
+        Constructor<?> matchedConstructor = null;
         if (constructors.length == 1) {
             matchedConstructor = constructors[0];
         } else {
             for (int i = 0; i < constructors.length; i++) {
-                Constructor<T> constructor = constructors[i];
+                Constructor<?> constructor = constructors[i];
                 if (constructor.getParameterCount() == 0) {
                     // 缺省无参构造方法
                     matchedConstructor = constructor;
@@ -320,115 +630,101 @@ public final class BeanFactory {
         if (matchedConstructor == null) {
             throw new BeanCreationException("No matched bean[" + beanClass + "] constructor");
         }
-        try {
-            Class<?>[] parameterTypes = matchedConstructor.getParameterTypes();
-            if (parameterTypes == null) {
-                return beanClass.newInstance();
-            }
-            Object[] parameterArgs = new Object[parameterTypes.length];
-            for (int j = 0; j < parameterTypes.length; j++) {
-                Class<?> parameterType = parameterTypes[j];
-                Object implementInstance = null;
-                // 获取 Bean 构造方法参数对应的注入实现类
-                if (Modifier.isInterface(parameterType.getModifiers())) {
-                    implementInstance = getBeanHierarchy(parameterType);
-                } else {
-                    implementInstance = getBean(parameterType);
-                }
-                if (implementInstance == null) {
-                    throw new BeanCreationException("Autowired method[" + parameterType + "] dependency not found");
-                }
-                if (implementInstance == null) {
-                    throw new BeanCreationException("Autowired method[" + parameterType + "] dependency not found");
-                }
-                parameterArgs[j] = implementInstance;
+        return matchedConstructor;
+    }
+
+    private Class<?>[] doResolveDependencies(Class<?>[] parameterTypes) throws BeansException {
+        Class<?>[] dependencies = new Class<?>[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> parameterType = parameterTypes[i];
+            dependencies[i] = doResolveDependency(parameterType);
+            if (dependencies[i] == null) {
+                throw new BeanCreationException("Autowired method[" + parameterType + "] dependency not found");
             }
-            return matchedConstructor.newInstance(parameterArgs);
-        } catch (InstantiationException e) {
-            throw new BeanCreationException("Bean[" + beanClass + "] constructor initialize fail", e);
-        } catch (IllegalAccessException e) {
-            throw new BeanCreationException("Bean[" + beanClass + "] constructor access fail", e);
-        } catch (InvocationTargetException e) {
-            throw new BeanCreationException("Bean[" + beanClass + "] constructor invocation fail", e);
         }
+        return dependencies;
     }
 
     /**
-     * 获取Bean对象中有{@link Autowired}注解的字段并注入依赖的实现对象
+     * 获取注入类型对应的实现类，接口取最近一个实现类，
+     * 非接口类型必须已经由IOC容器管理，否则抛出{@link BeanDefinitionNotFoundException}
      */
-    private void doInjectField(Object beanObject, Class<?> beanClass) throws BeansException {
-        // 获取 Bean 类中所有的字段（不包括父类中的方法）
-        Field[] beanFields = beanClass.getDeclaredFields();
-        for (int i = 0; i < beanFields.length; i++) {
-            Field beanField = beanFields[i];
-            if (!beanField.isAnnotationPresent(Autowired.class)) {
-                continue;
-            }
-            // 获取 Bean 字段对应的接口
-            Class<?> fieldType = beanField.getType();
-            Object implementInstance = null;
-            // 获取 Bean 字段对应的实现类
-            if (Modifier.isInterface(fieldType.getModifiers())) {
-                implementInstance = getBeanHierarchy(fieldType);
-            } else {
-                implementInstance = getBean(fieldType);
-            }
-            if (implementInstance == null) {
-                throw new BeanCreationException("Autowired field[" + beanField + "] dependency not found");
-            }
-            ReflectUtil.makeAccessible(beanField);
-            try {
-                beanField.set(beanObject, implementInstance);
-            } catch (IllegalArgumentException e) {
-                throw new BeanCreationException("Autowired field[" + beanField + "] dependency invalid argument", e);
-            } catch (IllegalAccessException e) {
-                throw new BeanCreationException("Autowired field[" + beanField + "] dependency access error", e);
+    private Class<?> doResolveDependency(Class<?> dependencyType) throws BeansException {
+        if (Modifier.isInterface(dependencyType.getModifiers())) {
+            BeanDefinition[] definitions = doGetHierarchyDefinitions(dependencyType);
+            if (definitions.length == 0) {
+                return null;
             }
+            return definitions[definitions.length - 1].getBeanClass();
+        }
+        if (!beanDefinitions.containsKey(dependencyType.getName())) {
+            throw new BeanDefinitionNotFoundException("No bean named '" + dependencyType + "'");
         }
+        return dependencyType;
     }
 
     /**
-     * 获取Bean对象中有{@link Autowired}注解的方法并注入依赖的实现对象
+     * 只有默认的{@link Component}注解过滤器时才能使用Bean索引，
+     * 添加了其他包含过滤器时索引中的类不完整，需要扫描类路径
      */
-    private void doInjectMethod(Object beanObject, Class<?> beanClass) throws BeansException {
-        // 获取 Bean 类中所有的字段（不包括父类中的方法）
-        Method[] beanMethods = beanClass.getDeclaredMethods();
-        for (int i = 0; i < beanMethods.length; i++) {
-            Method beanMethod = beanMethods[i];
-            if (!beanMethod.isAnnotationPresent(Autowired.class)) {
-                continue;
+    private boolean isBeanIndexEnabled() {
+        return includeFilters.size() == 1 && !Boolean.getBoolean(BEAN_INDEX_IGNORE_PROPERTY);
+    }
+
+    /**
+     * 读取扫描资源所在类路径目录或者Jar包的Bean索引
+     *
+     * @return 不存在索引时返回null，由调用方扫描类路径
+     */
+    private List<String> doReadBeanIndex(URL resource, String rootDirPath) throws IOException {
+        InputStream input;
+        if (ResourceUtil.isJarURL(resource)) {
+            JarURLConnection jarURLConnection = (JarURLConnection) resource.openConnection();
+            JarFile jarFile = jarURLConnection.getJarFile();
+            JarEntry indexEntry = jarFile.getJarEntry(BEAN_INDEX_LOCATION);
+            if (indexEntry == null) {
+                return null;
             }
-            // 获取 Bean 字段对应的接口
-            Class<?>[] parameterTypes = beanMethod.getParameterTypes();
-            if (parameterTypes == null) {
-                continue;
+            input = jarFile.getInputStream(indexEntry);
+        } else {
+            String packagePath = java.net.URLDecoder.decode(resource.getPath().replaceAll("%20", " "), charset);
+            packagePath = StrUtil.replace(packagePath, File.separator, "/");
+            if (!packagePath.endsWith("/")) {
+                packagePath += "/";
             }
-            Object[] parameterArgs = new Object[parameterTypes.length];
-            for (int j = 0; j < parameterTypes.length; j++) {
-                Class<?> parameterType = parameterTypes[j];
-                Object implementInstance = null;
-                // 获取 Bean 方法参数对应的实现类
-                if (Modifier.isInterface(parameterType.getModifiers())) {
-                    implementInstance = getBeanHierarchy(parameterType);
-                } else {
-                    implementInstance = getBean(parameterType);
-                }
-                if (implementInstance == null) {
-                    throw new BeanCreationException("Autowired method[" + parameterType + "] dependency not found");
-                }
-                if (implementInstance == null) {
-                    throw new BeanCreationException("Autowired method[" + parameterType + "] dependency not found");
+            if (!packagePath.endsWith(rootDirPath)) {
+                return null;
+            }
+            File indexFile = new File(packagePath.substring(0, packagePath.length() - rootDirPath.length()), BEAN_INDEX_LOCATION);
+            if (!indexFile.isFile()) {
+                return null;
+            }
+            input = new FileInputStream(indexFile);
+        }
+        List<String> beanIndex = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, CharsetUtil.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    beanIndex.add(line);
                 }
-                parameterArgs[j] = implementInstance;
             }
+        } finally {
+            reader.close();
+        }
+        return beanIndex;
+    }
 
-            ReflectUtil.makeAccessible(beanMethod);
-            try {
-                beanMethod.invoke(beanObject, parameterArgs);
-            } catch (IllegalAccessException e) {
-                throw new BeanCreationException("Autowired method[" + beanMethod + "] dependency access error", e);
-            } catch (InvocationTargetException e) {
-                throw new BeanCreationException("Autowired method[" + beanMethod + "] dependency access error", e);
+    /**
+     * 按Bean索引添加扫描包下的类，和扫描目录时一样按类文件路径匹配包名
+     */
+    private void addIndexBeanDefinition(List<String> beanIndex, String packageSearchPath) throws BeansException {
+        for (String className : beanIndex) {
+            String classPath = ResourceUtil.convertResourcePath(className) + ".class/";
+            if (pathMatcher.matchStart(packageSearchPath, classPath)) {
+                doInitialBeanDefinition(className);
             }
         }
     }
@@ -515,7 +811,9 @@ public final class BeanFactory {
      */
     private boolean doInitialBeanDefinition(String className, boolean ignoreFilter) throws BeansException {
         try {
-            Class<?> clazz = ClassUtil.loadClass(className);
+            // 扫描时只加载不初始化类，类的静态初始化延迟到实际使用时，
+            // 避免并行扫描时多个类静态初始化互相依赖导致死锁
+            Class<?> clazz = ClassUtil.loadClass(className, false);
 
             if (ignoreFilter) {
                 boolean prototype = false;
@@ -523,7 +821,7 @@ public final class BeanFactory {
                     prototype = true;
                 }
                 BeanDefinition beanDefinition = new BeanDefinition(clazz, prototype);
-                beanDefinitions.put(className, beanDefinition);
+                doAddBeanDefinition(className, beanDefinition);
                 return true;
             }
 
@@ -539,7 +837,7 @@ public final class BeanFactory {
                         prototype = true;
                     }
                     BeanDefinition beanDefinition = new BeanDefinition(clazz, prototype);
-                    beanDefinitions.put(className, beanDefinition);
+                    doAddBeanDefinition(className, beanDefinition);
                     return true;
                 }
             }
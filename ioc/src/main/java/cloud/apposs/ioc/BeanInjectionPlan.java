@@ -0,0 +1,151 @@
+package cloud.apposs.ioc;
+
+import cloud.apposs.ioc.annotation.Autowired;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Bean注入计划，Bean类首次创建时解析构造方法、{@link Autowired}字段和方法并编译为MethodHandle，
+ * 注入的依赖实现类也在解析时确定，之后每次创建Bean（特别是{@link cloud.apposs.ioc.annotation.Prototype}非单例Bean）
+ * 只需按顺序调用构造方法和注入方法，不再重复反射查找和依赖扫描，
+ * 类定义集变化时由{@link BeanFactory}丢弃重新解析
+ */
+final class BeanInjectionPlan {
+    /**
+     * Field.set调用句柄，final字段无法生成setter句柄时使用
+     */
+    private static final MethodHandle FIELD_SET;
+    static {
+        try {
+            FIELD_SET = MethodHandles.lookup().findVirtual(Field.class, "set",
+                    MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<?> beanClass;
+
+    /**
+     * 构造方法句柄，类型为(Object[])Object
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * 构造方法参数对应的依赖实现类
+     */
+    private final Class<?>[] constructorDependencies;
+
+    /**
+     * 字段和方法注入器，按字段、方法的声明顺序排列
+     */
+    private final Injector[] injectors;
+
+    BeanInjectionPlan(Class<?> beanClass, MethodHandle constructor,
+                      Class<?>[] constructorDependencies, Injector[] injectors) {
+        this.beanClass = beanClass;
+        this.constructor = constructor;
+        this.constructorDependencies = constructorDependencies;
+        this.injectors = injectors;
+    }
+
+    /**
+     * 按注入计划创建Bean对象
+     */
+    Object create(BeanFactory factory) throws BeansException {
+        Object[] constructorArgs = doResolveDependencies(factory, constructorDependencies);
+        Object beanObject;
+        try {
+            beanObject = (Object) constructor.invokeExact(constructorArgs);
+        } catch (BeansException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new BeanCreationException("Bean[" + beanClass + "] constructor invocation fail", t);
+        }
+        for (int i = 0; i < injectors.length; i++) {
+            injectors[i].inject(factory, beanObject);
+        }
+        return beanObject;
+    }
+
+    private static Object[] doResolveDependencies(BeanFactory factory, Class<?>[] dependencies) {
+        Object[] args = new Object[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            args[i] = factory.getBean(dependencies[i]);
+        }
+        return args;
+    }
+
+    /**
+     * 生成字段注入器
+     */
+    static Injector fieldInjector(Field field, Class<?> dependency) throws IllegalAccessException {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflectSetter(field);
+        } catch (IllegalAccessException e) {
+            // final字段无法生成setter句柄，通过Field.set设置
+            handle = FIELD_SET.bindTo(field);
+        }
+        handle = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return new Injector("field[" + field + "]", handle, new Class<?>[] {dependency}, true);
+    }
+
+    /**
+     * 生成方法注入器
+     */
+    static Injector methodInjector(Method method, Class<?>[] dependencies) throws IllegalAccessException {
+        MethodHandle handle = MethodHandles.lookup().unreflect(method);
+        // 返回值丢弃，句柄类型为(Object,Object[])void，与调用处的invokeExact签名一致
+        handle = handle.asType(MethodType.genericMethodType(dependencies.length + 1).changeReturnType(void.class))
+                .asSpreader(Object[].class, dependencies.length);
+        return new Injector("method[" + method + "]", handle, dependencies, false);
+    }
+
+    /**
+     * 生成构造方法句柄，类型为(Object[])Object
+     */
+    static MethodHandle constructor(Constructor<?> constructor) throws IllegalAccessException {
+        int parameterCount = constructor.getParameterTypes().length;
+        return MethodHandles.lookup().unreflectConstructor(constructor)
+                .asType(MethodType.genericMethodType(parameterCount))
+                .asSpreader(Object[].class, parameterCount);
+    }
+
+    static final class Injector {
+        private final String description;
+
+        private final MethodHandle handle;
+
+        private final Class<?>[] dependencies;
+
+        private final boolean field;
+
+        private Injector(String description, MethodHandle handle, Class<?>[] dependencies, boolean field) {
+            this.description = description;
+            this.handle = handle;
+            this.dependencies = dependencies;
+            this.field = field;
+        }
+
+        void inject(BeanFactory factory, Object beanObject) throws BeansException {
+            Object[] args = doResolveDependencies(factory, dependencies);
+            try {
+                if (field) {
+                    handle.invokeExact(beanObject, args[0]);
+                } else {
+                    handle.invokeExact(beanObject, args);
+                }
+            } catch (BeansException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new BeanCreationException("Autowired " + description + " dependency access error", t);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package cloud.apposs.ioc.processor;
+
+import cloud.apposs.ioc.BeanFactory;
+import cloud.apposs.ioc.annotation.Component;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Bean索引注解处理器，编译时收集{@link Component}注解（包括被{@link Component}注解的注解，
+ * 如@Action、@ServerEndpoint）的类，写入{@link BeanFactory#BEAN_INDEX_LOCATION}索引文件，
+ * 匹配规则和{@link cloud.apposs.ioc.AnnotationTypeFilter}一致，
+ * 运行时{@link BeanFactory}直接读取索引中的类名，不再遍历目录和Jar包并加载每个类进行过滤，
+ * 增量编译只编译部分类时会合并输出目录中已有的索引，本次编译的类以本次结果为准，已经不存在的类从索引中移除
+ */
+@SupportedAnnotationTypes("*")
+public class BeanIndexProcessor extends AbstractProcessor {
+    private static final String COMPONENT_ANNOTATION = Component.class.getName();
+
+    private final Set<String> components = new TreeSet<String>();
+
+    /**
+     * 本次编译的所有类，合并旧索引时这些类以本次处理结果为准
+     */
+    private final Set<String> compiled = new HashSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            doWriteIndex();
+            return false;
+        }
+        for (Element element : roundEnv.getRootElements()) {
+            doCollectCompiled(element);
+        }
+        for (TypeElement annotation : annotations) {
+            boolean direct = isComponent(annotation);
+            if (!direct && !isComponentAnnotated(annotation)) {
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (!(element instanceof TypeElement)) {
+                    continue;
+                }
+                ElementKind kind = element.getKind();
+                // 直接注解时和AnnotationTypeFilter一样排除接口和注解
+                if (direct && (kind == ElementKind.INTERFACE || kind == ElementKind.ANNOTATION_TYPE)) {
+                    continue;
+                }
+                components.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+            }
+        }
+        // 只处理索引，不占用注解，其他注解处理器仍可处理
+        return false;
+    }
+
+    private void doCollectCompiled(Element element) {
+        if (!(element instanceof TypeElement)) {
+            return;
+        }
+        compiled.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+        for (Element enclosed : element.getEnclosedElements()) {
+            doCollectCompiled(enclosed);
+        }
+    }
+
+    private void doWriteIndex() {
+        Set<String> index = new TreeSet<String>(components);
+        boolean exists = doMergeIndex(index);
+        if (index.isEmpty() && !exists) {
+            return;
+        }
+        Writer writer = null;
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(
+                    StandardLocation.CLASS_OUTPUT, "", BeanFactory.BEAN_INDEX_LOCATION);
+            writer = new OutputStreamWriter(resource.openOutputStream(), "UTF-8");
+            for (String component : index) {
+                writer.write(component);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Write bean index " + BeanFactory.BEAN_INDEX_LOCATION + " fail: " + e.getMessage());
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 合并输出目录中已有的索引，保留本次没有编译并且仍然存在的类
+     *
+     * @return 输出目录中是否已有索引
+     */
+    private boolean doMergeIndex(Set<String> index) {
+        Elements elementUtils = processingEnv.getElementUtils();
+        BufferedReader reader = null;
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(
+                    StandardLocation.CLASS_OUTPUT, "", BeanFactory.BEAN_INDEX_LOCATION);
+            reader = new BufferedReader(new InputStreamReader(resource.openInputStream(), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || compiled.contains(line)) {
+                    continue;
+                }
+                if (elementUtils.getTypeElement(line.replace('$', '.')) != null) {
+                    index.add(line);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            // 首次编译时还没有索引
+            return false;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    private static boolean isComponent(TypeElement annotation) {
+        return COMPONENT_ANNOTATION.contentEquals(annotation.getQualifiedName());
+    }
+
+    /**
+     * 注解本身是否被{@link Component}注解，对应AnnotationTypeFilter的二级注解匹配
+     */
+    private static boolean isComponentAnnotated(TypeElement annotation) {
+        for (AnnotationMirror mirror : annotation.getAnnotationMirrors()) {
+            if (isComponent((TypeElement) mirror.getAnnotationType().asElement())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,14 +1,20 @@
 package cloud.apposs.ioc;
 
 import cloud.apposs.ioc.sample.bean.IProductBean;
+import cloud.apposs.ioc.sample.bean.OrderBean;
 import cloud.apposs.ioc.sample.bean.UserBean;
 import cloud.apposs.ioc.sample.action.UserAction;
 import cloud.apposs.ioc.sample.service.inf.IUserService;
 import cloud.apposs.util.AntPathMatcher;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class TestBeanFactory {
     private static final String BASE_PACKAGE = "cloud.apposs.ioc.sample.*";
     private BeanFactory factory = new BeanFactory();
@@ -70,4 +76,114 @@ public class TestBeanFactory {
         Assert.assertTrue(product.getProductId() == 100);
         Assert.assertNotNull(user.getUserProduct());
     }
+
+    @Test
+    public void testBeanFactoryHierarchyList() {
+        List<IUserService> serviceList = factory.getBeanHierarchyList(IUserService.class);
+        Assert.assertEquals(1, serviceList.size());
+        Assert.assertSame(factory.getBeanHierarchy(IUserService.class), serviceList.get(0));
+        // 返回的列表可由业务自行排序修改
+        serviceList.clear();
+        Assert.assertEquals(1, factory.getBeanHierarchyList(IUserService.class).size());
+        Assert.assertEquals(1, factory.getClassHierarchyList(IUserService.class).size());
+    }
+
+    /**
+     * 循环依赖直接抛出异常，而不是递归栈溢出
+     */
+    @Test
+    public void testBeanFactoryCircular() {
+        BeanFactory circularFactory = new BeanFactory();
+        try {
+            circularFactory.load("cloud.apposs.ioc.circular.*");
+            Assert.fail();
+        } catch (BeanCreationException e) {
+            System.out.println(e.getMessage());
+            Assert.assertTrue(e.getMessage().startsWith("Circular dependency found"));
+        }
+    }
+
+    @Test
+    public void testBeanFactoryConcurrent() throws Exception {
+        final int threads = 8;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final AtomicInteger errors = new AtomicInteger();
+        final UserAction expected = factory.getBean(UserAction.class);
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100000; j++) {
+                        if (factory.getBean(UserAction.class) != expected
+                                || factory.getBeanHierarchy(IUserService.class) == null) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    latch.countDown();
+                }
+            }.start();
+        }
+        latch.await();
+        Assert.assertEquals(0, errors.get());
+    }
+
+    /**
+     * 单例和父类类型查找性能
+     */
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testBeanFactoryBenchmark() {
+        int iterations = 1000000;
+        long singletonCost = 0;
+        long hierarchyCost = 0;
+        for (int round = 0; round < 3; round++) {
+            // 前几轮预热
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                factory.getBean(UserAction.class);
+            }
+            singletonCost = (System.nanoTime() - start) / iterations;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                factory.getBeanHierarchy(IUserService.class);
+            }
+            hierarchyCost = (System.nanoTime() - start) / iterations;
+        }
+        System.out.println(String.format("getBean=%dns/op, getBeanHierarchy=%dns/op", singletonCost, hierarchyCost));
+    }
+
+    /**
+     * 非单例对象的字段和方法注入，多个构造方法时优先使用无参构造方法
+     */
+    @Test
+    public void testBeanFactoryPrototypeInject() {
+        OrderBean order1 = factory.getBean(OrderBean.class);
+        OrderBean order2 = factory.getBean(OrderBean.class);
+        Assert.assertTrue(order1 != order2);
+        Assert.assertNull(order1.getProduct());
+        Assert.assertNotNull(order1.getUser());
+        Assert.assertNotNull(order1.getBuyer());
+        Assert.assertTrue(order1.getUser() != order2.getUser());
+    }
+
+    /**
+     * 非单例对象创建性能
+     */
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testBeanFactoryPrototypeBenchmark() {
+        int iterations = 1000000;
+        long cost = 0;
+        for (int round = 0; round < 3; round++) {
+            // 前几轮预热
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                factory.getBean(OrderBean.class);
+            }
+            cost = (System.nanoTime() - start) / iterations;
+        }
+        System.out.println(String.format("prototype getBean=%dns/op", cost));
+        System.out.println(String.format("scan=%dms, initial=%dms",
+                factory.getScanSpendTime(), factory.getInitialSpendTime()));
+    }
 }
@@ -0,0 +1,203 @@
+package cloud.apposs.ioc;
+
+import cloud.apposs.ioc.processor.BeanIndexProcessor;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 编译生成合成类路径，验证{@link BeanIndexProcessor}生成的Bean索引和启动扫描性能
+ */
+public class TestBeanIndex {
+    private static final String BASE_PACKAGE = "cloud.apposs.ioc.synthetic";
+
+    /**
+     * 合成类数量，每隔COMPONENT_INTERVAL个类一个Bean
+     */
+    private static final int CLASS_COUNT = 5000;
+    private static final int COMPONENT_INTERVAL = 100;
+    private static final int PACKAGE_SIZE = 500;
+
+    private static File classpath;
+
+    @Before
+    public void before() throws Exception {
+        if (classpath != null) {
+            return;
+        }
+        File outputDir = File.createTempFile("beanindex", "");
+        outputDir.delete();
+        outputDir.mkdirs();
+        List<JavaFileObject> sources = new ArrayList<JavaFileObject>(CLASS_COUNT);
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            String packageName = BASE_PACKAGE + ".p" + (i / PACKAGE_SIZE);
+            String className = "Synthetic" + i;
+            StringBuilder source = new StringBuilder();
+            source.append("package ").append(packageName).append(";\n");
+            if (i % COMPONENT_INTERVAL == 0) {
+                source.append("@cloud.apposs.ioc.annotation.Component\n");
+            }
+            source.append("public class ").append(className).append(" implements java.io.Serializable {\n");
+            source.append("    public static class Inner {}\n");
+            source.append("}\n");
+            sources.add(new SourceFile(packageName + "." + className, source.toString()));
+        }
+        doCompile(outputDir, sources);
+        classpath = outputDir;
+    }
+
+    @AfterClass
+    public static void after() {
+        if (classpath != null) {
+            doDelete(classpath);
+            classpath = null;
+        }
+    }
+
+    @Test
+    public void testBeanIndex() throws Exception {
+        File index = new File(classpath, BeanFactory.BEAN_INDEX_LOCATION);
+        Assert.assertTrue(index.isFile());
+        BeanFactory indexFactory = doLoad(BASE_PACKAGE + ".*", false);
+        BeanFactory scanFactory = doLoad(BASE_PACKAGE + ".*", true);
+        Assert.assertEquals(CLASS_COUNT / COMPONENT_INTERVAL, indexFactory.getBeanDefinitionSize());
+        Assert.assertEquals(scanFactory.getBeanDefinitionSize(), indexFactory.getBeanDefinitionSize());
+        // 索引中的类同样按扫描包名过滤
+        Assert.assertEquals(PACKAGE_SIZE / COMPONENT_INTERVAL,
+                doLoad(BASE_PACKAGE + ".p1", false).getBeanDefinitionSize());
+    }
+
+    /**
+     * 增量编译只编译部分类时合并已有索引，重新编译后不再是Bean的类和已删除的类从索引中移除
+     */
+    @Test
+    public void testIncrementalIndex() throws Exception {
+        File outputDir = File.createTempFile("beanindex", "");
+        outputDir.delete();
+        outputDir.mkdirs();
+        try {
+            String packageName = BASE_PACKAGE + ".incremental";
+            doCompile(outputDir, Arrays.<JavaFileObject>asList(
+                    doCreateSource(packageName, "Kept", true),
+                    doCreateSource(packageName, "Changed", true),
+                    doCreateSource(packageName, "Removed", true)));
+            Assert.assertEquals(Arrays.asList(packageName + ".Changed", packageName + ".Kept", packageName + ".Removed"),
+                    doReadIndex(outputDir));
+
+            Assert.assertTrue(new File(outputDir, packageName.replace('.', '/') + "/Removed.class").delete());
+            doCompile(outputDir, Arrays.<JavaFileObject>asList(
+                    doCreateSource(packageName, "Changed", false),
+                    doCreateSource(packageName, "Added", true)));
+            Assert.assertEquals(Arrays.asList(packageName + ".Added", packageName + ".Kept"), doReadIndex(outputDir));
+        } finally {
+            doDelete(outputDir);
+        }
+    }
+
+    /**
+     * 合成类路径启动性能，对比扫描类路径和读取Bean索引
+     */
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testBeanIndexBenchmark() throws Exception {
+        long scanCost = 0;
+        long indexCost = 0;
+        for (int round = 0; round < 3; round++) {
+            // 前几轮预热，每轮使用新的类加载器，类加载耗时计入启动耗时
+            scanCost = doLoad(BASE_PACKAGE + ".*", true).getScanSpendTime();
+            indexCost = doLoad(BASE_PACKAGE + ".*", false).getScanSpendTime();
+        }
+        System.out.println(String.format("%d classes, scan=%dms, index=%dms", CLASS_COUNT, scanCost, indexCost));
+    }
+
+    private static JavaFileObject doCreateSource(String packageName, String className, boolean component) {
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(packageName).append(";\n");
+        if (component) {
+            source.append("@cloud.apposs.ioc.annotation.Component\n");
+        }
+        source.append("public class ").append(className).append(" {}\n");
+        return new SourceFile(packageName + "." + className, source.toString());
+    }
+
+    /**
+     * 编译到指定输出目录，输出目录同时加入类路径，和增量编译时一样可以引用已编译的类
+     */
+    private static void doCompile(File outputDir, List<JavaFileObject> sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(outputDir));
+            String compileClasspath = outputDir.getPath() + File.pathSeparator + System.getProperty("java.class.path");
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                    Arrays.asList("-classpath", compileClasspath), null, sources);
+            task.setProcessors(Collections.singletonList(new BeanIndexProcessor()));
+            Assert.assertTrue(task.call());
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    private static List<String> doReadIndex(File outputDir) throws Exception {
+        return Files.readAllLines(new File(outputDir, BeanFactory.BEAN_INDEX_LOCATION).toPath(), StandardCharsets.UTF_8);
+    }
+
+    private static void doDelete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                doDelete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static BeanFactory doLoad(String basePackage, boolean ignoreIndex) throws Exception {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {classpath.toURI().toURL()}, contextClassLoader);
+        thread.setContextClassLoader(classLoader);
+        System.setProperty(BeanFactory.BEAN_INDEX_IGNORE_PROPERTY, String.valueOf(ignoreIndex));
+        try {
+            BeanFactory factory = new BeanFactory();
+            factory.load(basePackage);
+            return factory;
+        } finally {
+            System.clearProperty(BeanFactory.BEAN_INDEX_IGNORE_PROPERTY);
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        private SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package cloud.apposs.ioc.circular;
+
+import cloud.apposs.ioc.annotation.Autowired;
+import cloud.apposs.ioc.annotation.Component;
+
+@Component
+public class OrderService {
+    @Autowired
+    private PayService payService;
+
+    public PayService getPayService() {
+        return payService;
+    }
+}
@@ -0,0 +1,42 @@
+package cloud.apposs.ioc.sample.bean;
+
+import cloud.apposs.ioc.annotation.Autowired;
+import cloud.apposs.ioc.annotation.Component;
+import cloud.apposs.ioc.annotation.Prototype;
+
+@Component
+@Prototype
+public class OrderBean {
+	private final IProductBean product;
+
+	@Autowired
+	private UserBean user;
+
+	private UserBean buyer;
+
+	@Autowired
+	public OrderBean(IProductBean product) {
+		this.product = product;
+	}
+
+	public OrderBean() {
+		this.product = null;
+	}
+
+	@Autowired
+	public void setBuyer(UserBean buyer) {
+		this.buyer = buyer;
+	}
+
+	public IProductBean getProduct() {
+		return product;
+	}
+
+	public UserBean getUser() {
+		return user;
+	}
+
+	public UserBean getBuyer() {
+		return buyer;
+	}
+}
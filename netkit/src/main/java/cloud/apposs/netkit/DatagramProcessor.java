@@ -0,0 +1,27 @@
+package cloud.apposs.netkit;
+
+import java.nio.ByteBuffer;
+
+/**
+ * UDP批量收发处理器，
+ * 每次可读事件时由{@link EventLoop}持续接收数据报直到无数据可读或者达到批量上限，
+ * 业务同步产生的应答数据报也在同一轮询中直接发送，避免每个数据报都要经过一次Selector轮询
+ */
+public interface DatagramProcessor extends IoProcessor {
+    /**
+     * UDP协议数据报最大字节数
+     */
+    int MAX_DATAGRAM_SIZE = 65507;
+
+    /**
+     * 单次可读事件最多接收的数据报数量
+     */
+    int getBatchSize();
+
+    /**
+     * 数据报接收缓存块，数据报从当前position开始依次接收到块中，每个数据报以切片的形式交给责任链，
+     * 剩余空间不足{@link #MAX_DATAGRAM_SIZE}时必须返回新分配的缓存块，已交出的切片不会被覆盖，
+     * 业务可放心在异步线程中持有，旧缓存块在所有切片都不再被引用后回收
+     */
+    ByteBuffer getRecvBuffer();
+}
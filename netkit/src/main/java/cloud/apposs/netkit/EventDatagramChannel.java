@@ -8,12 +8,19 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.util.LinkedList;
+import java.util.Queue;
 
 public class EventDatagramChannel implements EventChannel {
 	private final DatagramChannel channel;
 	
 	private SocketAddress remote;
 	
+	/** 批量接收时暂存的应答数据报，与应答地址按顺序一一对应，在批量接收结束后统一发送 */
+	private final Queue<IoBuffer> replies = new LinkedList<IoBuffer>();
+	
+	private final Queue<SocketAddress> replyRemotes = new LinkedList<SocketAddress>();
+	
 	public EventDatagramChannel(DatagramChannel channel) {
 		this.channel = channel;
 	}
@@ -64,6 +71,60 @@ public class EventDatagramChannel implements EventChannel {
 		return dst.position() - oldPos;
 	}
 
+	/**
+	 * 接收单个数据报，没有数据报可读时返回null，
+	 * 接收成功后会把对端地址记录为当前应答地址，后续{@link #send(ByteBuffer)}会发往该地址
+	 */
+	public SocketAddress receive(ByteBuffer dst) throws IOException {
+		SocketAddress remote = channel.receive(dst);
+		if (remote != null) {
+			this.remote = remote;
+		}
+		return remote;
+	}
+
+	public SocketAddress getRemote() {
+		return remote;
+	}
+	
+	/**
+	 * 暂存应答数据报，记录其应答地址，避免被后续接收的数据报覆盖
+	 */
+	public void addReply(IoBuffer buffer, SocketAddress target) {
+		replies.offer(buffer);
+		replyRemotes.offer(target);
+	}
+	
+	public boolean hasReply() {
+		return !replies.isEmpty();
+	}
+	
+	public IoBuffer peekReply() {
+		return replies.peek();
+	}
+	
+	public IoBuffer pollReply() {
+		replyRemotes.poll();
+		return replies.poll();
+	}
+	
+	/**
+	 * 发送队首的暂存应答数据报到其对应的应答地址，数据报发送缓冲区已满时返回0
+	 */
+	public long sendReply() throws IOException {
+		IoBuffer buffer = replies.peek();
+		if (buffer == null) {
+			return 0;
+		}
+		SocketAddress current = remote;
+		remote = replyRemotes.peek();
+		try {
+			return buffer.channelSend(this);
+		} finally {
+			remote = current;
+		}
+	}
+
 	@Override
 	public int send(ByteBuffer src) throws IOException {
 	    if (remote == null && channel.isConnected()) {
@@ -5,17 +5,22 @@ import cloud.apposs.netkit.buffer.ByteBuf;
 import cloud.apposs.netkit.listener.IoListenerSupport;
 
 import java.io.IOException;
+import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Iterator;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * IO数据轮询处理，主要负责处理nio底层的数据接收和发送，
- * 数据接收完毕之后交由{@link IoProcessor}做业务逻辑处理
+ * 数据接收完毕之后交由{@link IoProcessor}做业务逻辑处理，
+ * 同时支持在轮询线程中执行定时任务{@link EventTask}，用于连接健康检查等不能阻塞轮询线程的定时逻辑
  */
 public class EventLoop extends Thread {
     public static final int SELECT_TIMEOUT = 1000;
@@ -29,6 +34,20 @@ public class EventLoop extends Thread {
 
     private final Queue<IoProcessor> newProcessores = new ConcurrentLinkedQueue<IoProcessor>();
 
+    /** 新提交的定时任务，可在任意线程中提交，在轮询线程中移入定时任务队列 */
+    private final Queue<EventTask> newTasks = new ConcurrentLinkedQueue<EventTask>();
+
+    /** 定时任务队列，按执行时间排序，只在轮询线程中访问 */
+    private final PriorityQueue<EventTask> tasks = new PriorityQueue<EventTask>();
+
+    private final AtomicLong taskSequence = new AtomicLong();
+
+    /** 轮询线程处理IO事件和定时任务的累计耗时，不包括select等待时间，单位纳秒，只在轮询线程中更新 */
+    private volatile long busyTime = 0;
+
+    /** 定时任务队列中的任务数，每次轮询结束时由轮询线程更新，方便其他线程获取 */
+    private volatile int scheduledTaskCount = 0;
+
     public EventLoop() throws IOException {
         this(NAME + 0, false);
     }
@@ -64,16 +83,50 @@ public class EventLoop extends Thread {
         newProcessores.add(processor);
     }
 
+    /**
+     * 提交任务在轮询线程中尽快执行，可在任意线程中调用
+     */
+    public EventTask execute(Runnable task) {
+        return schedule(task, 0);
+    }
+
+    /**
+     * 提交定时任务，在指定延迟后于轮询线程中执行，可在任意线程中调用，
+     * 定时精度受轮询事件处理耗时影响，不适用于高精度定时场景
+     *
+     * @param task  任务
+     * @param delay 延迟时间，单位毫秒
+     */
+    public EventTask schedule(Runnable task, long delay) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        EventTask eventTask = new EventTask(task,
+                System.currentTimeMillis() + Math.max(delay, 0), taskSequence.getAndIncrement());
+        newTasks.add(eventTask);
+        // 非轮询线程提交时唤醒轮询器，以便重新计算轮询等待时间
+        if (Thread.currentThread() != this) {
+            selector.wakeup();
+        }
+        return eventTask;
+    }
+
     @Override
     public void run() {
         while (!shutdown) {
             int selected = 0;
             try {
-                selected = selector.select(SELECT_TIMEOUT);
+                long timeout = doGetSelectTimeout();
+                if (timeout > 0) {
+                    selected = selector.select(timeout);
+                } else {
+                    selected = selector.selectNow();
+                }
             } catch (Exception e) {
                 Logger.error(e, "processor select error");
                 break;
             }
+            long busyStart = System.nanoTime();
 
             // 处理新进的连接
             for (IoProcessor processor = newProcessores.poll(); processor != null; processor = newProcessores.poll()) {
@@ -149,13 +202,90 @@ public class EventLoop extends Thread {
             if (!keepAlive) {
                 doCheck(selector.keys());
             }
+
+            // 执行到期的定时任务
+            doRunTasks();
+
+            scheduledTaskCount = tasks.size();
+            busyTime += System.nanoTime() - busyStart;
         }
     }
 
-    protected void wakeup() {
+    /**
+     * 获取轮询线程的累计工作耗时，单位纳秒，与运行时长相比即为轮询线程的繁忙程度
+     */
+    public long getBusyTime() {
+        return busyTime;
+    }
+
+    /**
+     * 获取等待注册到轮询器的事件处理器数
+     */
+    public int getPendingProcessorCount() {
+        return newProcessores.size();
+    }
+
+    /**
+     * 获取等待执行的定时任务数，包括新提交还未移入定时任务队列的任务
+     */
+    public int getPendingTaskCount() {
+        return newTasks.size() + scheduledTaskCount;
+    }
+
+    /**
+     * 唤醒轮询器，在当前轮询线程中添加事件处理器后调用可让处理器在下一次轮询时立即注册
+     */
+    public void wakeup() {
         selector.wakeup();
     }
 
+    /**
+     * 获取本次轮询等待时间，有定时任务时最多等待到最近一个任务的执行时间
+     */
+    private long doGetSelectTimeout() {
+        for (EventTask task = newTasks.poll(); task != null; task = newTasks.poll()) {
+            tasks.add(task);
+        }
+        EventTask next = tasks.peek();
+        while (next != null && next.isCancelled()) {
+            tasks.poll();
+            next = tasks.peek();
+        }
+        if (next == null) {
+            return SELECT_TIMEOUT;
+        }
+        return Math.min(next.getDeadline() - System.currentTimeMillis(), SELECT_TIMEOUT);
+    }
+
+    /**
+     * 执行所有到期的定时任务，任务执行过程中提交的新任务在下一次轮询中执行
+     */
+    private void doRunTasks() {
+        for (EventTask task = newTasks.poll(); task != null; task = newTasks.poll()) {
+            tasks.add(task);
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int count = tasks.size();
+        for (int i = 0; i < count; i++) {
+            EventTask task = tasks.peek();
+            if (task == null || task.getDeadline() > now) {
+                break;
+            }
+            tasks.poll();
+            if (task.isCancelled()) {
+                continue;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Logger.error(t, "event loop task execute error");
+            }
+        }
+    }
+
     /**
      * 处理从客户端过来的连接
      */
@@ -186,6 +316,11 @@ public class EventLoop extends Thread {
      * 处理接收数据，TCP/UDP包数据
      */
     private void doRecv(IoProcessor processor) throws Exception {
+        if (processor instanceof DatagramProcessor) {
+            doRecvDatagram((DatagramProcessor) processor);
+            return;
+        }
+
         int bufferSize = processor.getBufferSize();
         boolean bufferDirect = processor.isBufferDirect();
         ByteBuf buffer = new ByteBuf(bufferSize, bufferDirect);
@@ -230,10 +365,111 @@ public class EventLoop extends Thread {
         }
     }
 
+    /**
+     * 批量接收UDP数据报，持续接收直到没有数据报可读或者达到批量上限，
+     * 数据报依次接收到同一缓存块中并以切片交给责任链，不再为每个数据报单独分配内存，
+     * 业务同步产生的应答连同其应答地址一起暂存，整批接收结束后统一发送一次，
+     * 上一批应答因为发送缓冲区已满未能发完时不再接收，等待写事件发送完毕
+     */
+    private void doRecvDatagram(DatagramProcessor processor) throws Exception {
+        final EventDatagramChannel channel = (EventDatagramChannel) processor.getChannel();
+        final WriteRequest writeRequest = processor.getWriteRequest();
+        final IoListenerSupport listenerSupport = processor.getListenerSupport();
+        if (channel.hasReply() || !writeRequest.isEmpty() || writeRequest.getCurrentWriteMessage() != null) {
+            return;
+        }
+
+        int batchSize = Math.max(processor.getBatchSize(), 1);
+        for (int i = 0; i < batchSize; i++) {
+            ByteBuffer recvBuffer = processor.getRecvBuffer();
+            int start = recvBuffer.position();
+            recvBuffer.limit(start + DatagramProcessor.MAX_DATAGRAM_SIZE);
+            SocketAddress remote;
+            try {
+                remote = channel.receive(recvBuffer);
+            } finally {
+                recvBuffer.limit(recvBuffer.capacity());
+            }
+            if (remote == null) {
+                break;
+            }
+            ByteBuffer datagram = recvBuffer.duplicate();
+            datagram.position(start).limit(recvBuffer.position());
+            int length = datagram.remaining();
+
+            processor.getFilterChain().fireChannelRead(new ByteBuf(datagram.slice()));
+            if (listenerSupport != null) {
+                listenerSupport.fireChannelRead(processor, length);
+            }
+
+            // 应答按顺序记录应答地址，整批接收结束后再发送
+            for (IoBuffer reply = writeRequest.poll(); reply != null; reply = writeRequest.poll()) {
+                channel.addReply(reply, remote);
+            }
+        }
+        doSendDatagram(processor);
+    }
+
+    /**
+     * 合并发送当前所有的UDP应答数据报，先按各自的应答地址发送批量接收时暂存的应答，再发送其他应答，
+     * UDP数据报要么整个发送要么不发送，发送缓冲区已满时返回false，剩余数据报等待写事件再发送
+     */
+    private boolean doSendDatagram(IoProcessor processor) throws Exception {
+        final WriteRequest writeRequest = processor.getWriteRequest();
+        final EventDatagramChannel channel = (EventDatagramChannel) processor.getChannel();
+        boolean sent = false;
+        for (IoBuffer buffer = channel.peekReply(); buffer != null; buffer = channel.peekReply()) {
+            if (buffer == WriteRequest.CLOSE_REQUEST) {
+                processor.getEvent().setEvent(IoEvent.OP_CLOSE);
+                return false;
+            }
+            if (buffer.hasReadableBytes() && channel.sendReply() <= 0) {
+                return false;
+            }
+            channel.pollReply();
+            sent = true;
+        }
+        while (true) {
+            IoBuffer buffer = writeRequest.getCurrentWriteMessage();
+            if (buffer == null) {
+                buffer = writeRequest.poll();
+                if (buffer == null) {
+                    break;
+                }
+                writeRequest.setCurrentWriteRequest(buffer);
+            }
+            if (buffer == WriteRequest.CLOSE_REQUEST) {
+                processor.getEvent().setEvent(IoEvent.OP_CLOSE);
+                return false;
+            }
+            if (buffer.hasReadableBytes() && buffer.channelSend(channel) <= 0) {
+                return false;
+            }
+            writeRequest.setCurrentWriteRequest(null);
+            sent = true;
+        }
+
+        if (sent) {
+            long sendBytes = writeRequest.getTotalSendBytes();
+            processor.getFilterChain().fireChannelSend(writeRequest);
+            IoListenerSupport listenerSupport = processor.getListenerSupport();
+            if (listenerSupport != null) {
+                listenerSupport.fireChannelSend(processor, sendBytes);
+            }
+        }
+        return true;
+    }
+
     /**
      * 处理发送数据
      */
     private void doSend(IoProcessor processor) throws Exception {
+        // UDP批量处理器的应答可能暂存在通道中并且各自有应答地址，统一按数据报发送
+        if (processor instanceof DatagramProcessor) {
+            doSendDatagram(processor);
+            return;
+        }
+
         // 有可能是TCP包也有可能是UDP包，此时的SendBuf已经是经过IoFilter.filterWrite进行数据编码后的数据
         WriteRequest writeRequest = processor.getWriteRequest();
         IoBuffer buffer = writeRequest.getCurrentWriteMessage();
@@ -88,6 +88,20 @@ public final class EventLoopGroup {
         loop.wakeup();
     }
 
+    /**
+     * 获取轮询池大小
+     */
+    public int size() {
+        return eventLoopPool.length;
+    }
+
+    /**
+     * 获取指定下标的轮询器，未启动时返回null，主要服务于运行指标统计
+     */
+    public EventLoop getLoop(int index) {
+        return eventLoopPool[index];
+    }
+
     public final EventLoop getLoop() {
         if (idGenerator >= Long.MAX_VALUE) {
             idGenerator = 0;
@@ -0,0 +1,53 @@
+package cloud.apposs.netkit;
+
+/**
+ * {@link EventLoop}定时任务，任务在轮询线程中执行，
+ * 所以任务中可以直接操作注册在该轮询器中的{@link IoProcessor}，但不能有阻塞操作
+ */
+public final class EventTask implements Comparable<EventTask> {
+    private final Runnable task;
+
+    /** 任务执行时间 */
+    private final long deadline;
+
+    /** 任务提交序号，执行时间相同的任务按提交顺序执行 */
+    private final long sequence;
+
+    private volatile boolean cancelled = false;
+
+    EventTask(Runnable task, long deadline, long sequence) {
+        this.task = task;
+        this.deadline = deadline;
+        this.sequence = sequence;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 取消任务，任务未执行时不再执行，可在任意线程中调用
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    void run() {
+        task.run();
+    }
+
+    @Override
+    public int compareTo(EventTask other) {
+        if (deadline != other.deadline) {
+            return deadline < other.deadline ? -1 : 1;
+        }
+        if (sequence != other.sequence) {
+            return sequence < other.sequence ? -1 : 1;
+        }
+        return 0;
+    }
+}
@@ -46,6 +46,16 @@ public class ReadOnlyBuf implements IoBuffer {
     private final File file;
     private FileChannel fchannel;
 
+    /**
+     * 发送数据在文件中的起始偏移，用于文件分段发送，例如HTTP Range请求
+     */
+    private final long offset;
+
+    /**
+     * 文件通道是否为外部共享，共享的文件通道由外部负责关闭，例如文件句柄缓存
+     */
+    private final boolean shared;
+
     /**
      * 文件读写次数，用于统计
      */
@@ -75,6 +85,30 @@ public class ReadOnlyBuf implements IoBuffer {
         this.ramsize = ramsize;
         this.writeIdx = file.length();
         this.file = file;
+        this.offset = 0;
+        this.shared = false;
+    }
+
+    /**
+     * 基于已打开的文件通道创建只读缓存，文件通道可被多个缓存共享，
+     * 每个缓存只发送文件中[offset, offset + length)区间的数据，发送时使用绝对位置传输，互不影响
+     *
+     * @param fchannel 已打开的文件通道，由外部负责关闭
+     * @param offset   文件起始偏移
+     * @param length   发送数据长度
+     * @param ramsize  每次零拷贝传输的最大数据量
+     */
+    public ReadOnlyBuf(FileChannel fchannel, long offset, long length, int ramsize) {
+        if (fchannel == null || offset < 0 || length < 0 || ramsize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = length;
+        this.ramsize = ramsize;
+        this.writeIdx = length;
+        this.file = null;
+        this.fchannel = fchannel;
+        this.offset = offset;
+        this.shared = true;
     }
 
     @Override
@@ -155,7 +189,7 @@ public class ReadOnlyBuf implements IoBuffer {
 
     @Override
     public byte[] array() throws IOException {
-        long length = file.length();
+        long length = file == null ? capacity : file.length();
         if (length > Integer.MAX_VALUE) {
             throw new IndexOutOfBoundsException();
         }
@@ -168,6 +202,19 @@ public class ReadOnlyBuf implements IoBuffer {
             throw new IndexOutOfBoundsException();
         }
 
+        if (file == null) {
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            long position = this.offset + offset;
+            while (bytes.hasRemaining()) {
+                int read = fchannel.read(bytes, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+            return bytes.array();
+        }
+
         InputStream is = null;
         try {
             is = new FileInputStream(file);
@@ -305,7 +352,7 @@ public class ReadOnlyBuf implements IoBuffer {
         }
         // 零拷贝将文件数据发送到网络，避免一开始传输量过大也会导致OOM
         int trans = (int) (ramsize > (capacity - readIdx) ? (capacity - readIdx) : ramsize);
-        sendLen = (int) channel.transferFrom(fchannel, readIdx, trans);
+        sendLen = (int) channel.transferFrom(fchannel, offset + readIdx, trans);
         if (sendLen > 0) {
             readIdx += sendLen;
             frcnt++;
@@ -336,7 +383,7 @@ public class ReadOnlyBuf implements IoBuffer {
         readIdx = 0;
         writeIdx = 0;
 
-        if (fchannel != null) {
+        if (fchannel != null && !shared) {
             try {
                 fchannel.position(0);
             } catch (IOException e) {
@@ -346,7 +393,7 @@ public class ReadOnlyBuf implements IoBuffer {
 
     @Override
     public void free() {
-        if (fchannel != null) {
+        if (fchannel != null && !shared) {
             try {
                 fchannel.close();
             } catch (IOException e) {
@@ -123,6 +123,40 @@ public class HttpDecryptFilter extends IoFilterAdaptor {
         return context;
     }
 
+    /**
+     * 根据请求的Content-Type创建对应的表单解码器，方便不经过此过滤器的业务（例如网关只对非反向代理请求解码）复用
+     *
+     * @return 表单解码器，请求没有表单数据时返回null
+     */
+    public static FormDecrypt createFormDecrypt(HttpRequest request, String charset,
+            int bufferSize, int threshold, File directory, long maxSize) throws Exception {
+        // 判断Http请求是否有表单数据
+        if (!request.isHeaderContains("content-type", true)) {
+            return null;
+        }
+        String contentType = request.getHeader("content-type", true);
+        if (StrUtil.isEmpty(contentType)) {
+            throw new HttpParseException(HttpStatus.HTTP_STATUS_400, "Invalid Header Content-Type");
+        }
+        long contentLength = Parser.parseLong(request.getHeader("content-length", true), -1);
+        if (contentLength < 0) {
+            throw new HttpParseException(HttpStatus.HTTP_STATUS_400, "Invalid Header Content-Length");
+        }
+
+        // 根据表单Content-Type决定采用哪个FormDecryptor进行解码
+        if (MediaType.APPLICATION_FORM_URLENCODED.matchType(contentType)) {
+            return new FormUrlDectypt(contentLength, charset);
+        }
+        if (MediaType.MULTIPART_FORM_DATA.matchType(contentType)) {
+            return new FormDataDectypt(contentType, charset, bufferSize, threshold, directory, maxSize);
+        }
+        if (MediaType.APPLICATION_JSON.matchType(contentType)) {
+            return new FormJsonDectypt(contentLength, charset);
+        }
+        // 没有匹配的表单Content-Type，直接抛出异常，视为不支持
+        throw new HttpParseException(HttpStatus.HTTP_STATUS_501, "Invalid Header Content-Type");
+    }
+
     /**
      * 一个请求就是一个上下文实例
      */
@@ -139,13 +173,8 @@ public class HttpDecryptFilter extends IoFilterAdaptor {
 
         private Context(HttpRequest request, int bufferSize, String charset) throws Exception {
             this.request = request;
-            // 判断Http请求是否有表单数据
-            if (!request.isHeaderContains("content-type", true)) {
-                // 无表单数据要解析，直接标记为无需解析
-                decryptor = null;
-            } else {
-                decryptor = doCreateFormDecrypt(request, bufferSize, charset);
-            }
+            // 无表单数据要解析时解码器为空，直接标记为无需解析
+            this.decryptor = createFormDecrypt(request, charset, bufferSize, threshold, directory, maxSize);
         }
 
         public HttpRequest getRequest() {
@@ -180,30 +209,5 @@ public class HttpDecryptFilter extends IoFilterAdaptor {
                 decryptor.release();
             }
         }
-
-        private FormDecrypt doCreateFormDecrypt(
-                HttpRequest request, int bufferSize, String charset) throws Exception {
-            String contentType = request.getHeader("content-type", true);
-            if (StrUtil.isEmpty(contentType)) {
-                throw new HttpParseException(HttpStatus.HTTP_STATUS_400, "Invalid Header Content-Type");
-            }
-            long contentLength = Parser.parseLong(request.getHeader("content-length", true), -1);
-            if (contentLength < 0) {
-                throw new HttpParseException(HttpStatus.HTTP_STATUS_400, "Invalid Header Content-Length");
-            }
-
-            // 根据表单Content-Type决定采用哪个FormDecryptor进行解码
-            if (MediaType.APPLICATION_FORM_URLENCODED.matchType(contentType)) {
-                return new FormUrlDectypt(contentLength, charset);
-            }
-            if (MediaType.MULTIPART_FORM_DATA.matchType(contentType)) {
-                return new FormDataDectypt(contentType, charset, bufferSize, threshold, directory, maxSize);
-            }
-            if (MediaType.APPLICATION_JSON.matchType(contentType)) {
-                return new FormJsonDectypt(contentLength, charset);
-            }
-            // 没有匹配的表单Content-Type，直接抛出异常，视为不支持
-            throw new HttpParseException(HttpStatus.HTTP_STATUS_501, "Invalid Header Content-Type");
-        }
     }
 }
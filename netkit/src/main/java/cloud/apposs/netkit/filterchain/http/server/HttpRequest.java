@@ -52,6 +52,10 @@ public class HttpRequest {
     private String protocol;
     private String requestUrl;
     private String requestUri;
+    /**
+     * 原始请求路径，未经过URL解码并且包含查询参数，主要服务于反向代理原样转发
+     */
+    private String rawRequestUri;
     private String remoteHost;
 
     /**
@@ -60,6 +64,12 @@ public class HttpRequest {
      */
     private IoBuffer content;
 
+    /**
+     * 请求开始处理时间，单位纳秒，主要服务于请求耗时统计，
+     * 采用基础类型存储，避免每个请求在attributes中产生装箱对象
+     */
+    private long startTime;
+
     public HttpRequest(SocketAddress remoteAddr) {
         this.remoteAddr = remoteAddr;
     }
@@ -112,6 +122,22 @@ public class HttpRequest {
         this.requestUri = requestUri;
     }
 
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public String getRawRequestUri() {
+        return rawRequestUri;
+    }
+
+    public void setRawRequestUri(String rawRequestUri) {
+        this.rawRequestUri = rawRequestUri;
+    }
+
     public Map<String, String> getHeaders() {
         return headers;
     }
@@ -8,6 +8,7 @@ import cloud.apposs.util.MediaType;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -30,6 +31,10 @@ public class HttpResponse {
         this.context = context;
     }
 
+    public ServerHandlerContext getContext() {
+        return context;
+    }
+
     public Map<String, String> getHeaders() {
         return headers;
     }
@@ -97,6 +102,89 @@ public class HttpResponse {
         }
     }
 
+    /**
+     * 响应多段字节码，Content-Length为所有字节码可读数据之和，
+     * 主要服务于文件多段发送，例如multipart/byteranges响应，底层可用零拷贝来传输数据
+     *
+     * @param buffers 字节码数据列表
+     * @param flush 是否立即触发写事件
+     */
+    public void write(List<IoBuffer> buffers, boolean flush) throws IOException {
+        long contentLength = 0;
+        for (IoBuffer buffer : buffers) {
+            contentLength += buffer.readableBytes();
+        }
+        String header = doGenerateHeader(contentLength);
+        context.write(header);
+        for (IoBuffer buffer : buffers) {
+            context.write(buffer);
+        }
+        if (flush) {
+            context.flush();
+        }
+    }
+
+    /**
+     * 只响应头部，不响应内容，主要服务于HEAD请求或者304响应，
+     * 此时Content-Length为实体内容的长度而非实际发送的长度
+     *
+     * @param contentLength 实体内容长度
+     * @param flush 是否立即触发写事件
+     */
+    public void writeHeader(long contentLength, boolean flush) throws IOException {
+        String header = doGenerateHeader(contentLength);
+        context.write(header);
+        if (flush) {
+            context.flush();
+        }
+    }
+
+    /**
+     * 只响应分块传输的头部，之后通过{@link #writeChunk(IoBuffer, boolean)}逐段输出内容，
+     * 主要服务于生成时无法预知长度的大响应，只有HTTP/1.1及以上才支持
+     *
+     * @param flush 是否立即触发写事件
+     */
+    public void writeChunkedHeader(boolean flush) throws IOException {
+        String header = doGenerateHeader(-1);
+        context.write(header);
+        if (flush) {
+            context.flush();
+        }
+    }
+
+    /**
+     * 响应一段分块内容，空内容不输出，避免被当作结束块
+     *
+     * @param buffer 分块字节码数据
+     * @param flush 是否立即触发写事件
+     */
+    public void writeChunk(IoBuffer buffer, boolean flush) throws IOException {
+        long length = buffer.readableBytes();
+        if (length <= 0) {
+            buffer.free();
+            return;
+        }
+        context.write(Long.toHexString(length) + CRLF);
+        context.write(buffer);
+        context.write(CRLF);
+        if (flush) {
+            context.flush();
+        }
+    }
+
+    /**
+     * 响应结束块，分块传输完成
+     *
+     * @param flush 是否立即触发写事件
+     */
+    public void writeLastChunk(boolean flush) throws IOException {
+        context.write("0" + CRLF + CRLF);
+        if (flush) {
+            context.flush();
+        }
+    }
+
     public void flush() throws IOException {
         String header = doGenerateHeader(0);
         context.write(header);
@@ -144,7 +232,12 @@ public class HttpResponse {
                 .append(status.getDescription())
                 .append(CRLF);
         response.append("Server: ").append(server).append(CRLF);
-        response.append("Content-Length: ").append(contentLength).append(CRLF);
+        if (contentLength < 0) {
+            // 长度小于0为分块传输
+            response.append("Transfer-Encoding: chunked").append(CRLF);
+        } else {
+            response.append("Content-Length: ").append(contentLength).append(CRLF);
+        }
         if (!checkHeader("content-type")) {
             headers.put("Content-Type", "text/plain;charset=" + charset);
         }
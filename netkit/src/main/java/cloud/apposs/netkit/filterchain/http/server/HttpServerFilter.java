@@ -19,6 +19,10 @@ import java.util.Map;
  * HTTP服务端协议过滤器
  */
 public class HttpServerFilter extends IoFilterAdaptor {
+    /**
+     * 响应是否正在以流的方式输出，由业务层设置，流输出结束后需要设置为false
+     */
+    public static final String RESPONSE_STREAMING = "HttpResponseStreaming";
     public static final String FILTER_CONTEXT = "HttpServerFilterContext";
 
     /**
@@ -79,12 +83,13 @@ public class HttpServerFilter extends IoFilterAdaptor {
     }
 
     /**
-     * 数据发送完毕，重置上下文数据，方便在HTTP长连接中下次重新发起请求
+     * 数据发送完毕，重置上下文数据，方便在HTTP长连接中下次重新发起请求，
+     * 响应数据以流的方式分多次输出时（例如反向代理），中途的发送完毕不代表响应结束，不做重置
      */
     @Override
     public void channelSend(NextFilter nextFilter, IoProcessor processor, WriteRequest writeRequest) throws Exception {
         Context context = (Context) processor.getAttribute(FILTER_CONTEXT);
-        if (context != null) {
+        if (context != null && !Boolean.TRUE.equals(processor.getAttribute(RESPONSE_STREAMING))) {
             if (context.getProtocol() == HttpConstants.HTTP_PROTOCOL_1_0) {
                 processor.close(true);
             }
@@ -348,6 +353,7 @@ public class HttpServerFilter extends IoFilterAdaptor {
             }
             request.setMethod(method);
             request.setProtocol(protocol);
+            request.setRawRequestUri(uri);
             request.setRequestUri(path);
         }
 
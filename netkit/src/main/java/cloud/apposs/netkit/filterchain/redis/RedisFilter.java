@@ -0,0 +1,50 @@
+package cloud.apposs.netkit.filterchain.redis;
+
+import cloud.apposs.netkit.IoBuffer;
+import cloud.apposs.netkit.IoProcessor;
+import cloud.apposs.netkit.filterchain.IoFilterAdaptor;
+
+/**
+ * Redis RESP协议解码过滤器，将接收到的网络数据解码为{@link RedisReply}，
+ * 流水线请求时一次网络读取可能包含多个应答，每个完整的应答都单独传递给下一个过滤器，
+ * 请求编码见{@link RedisProtocol#encode(byte[][], byte[], int)}
+ */
+public class RedisFilter extends IoFilterAdaptor {
+	public static final String FILTER_NAME = "RedisFilter";
+	public static final String FILTER_CONTEXT = "RedisFilterContext";
+
+	public RedisFilter() {
+		super(FILTER_NAME);
+	}
+
+	@Override
+	public void channelRead(NextFilter nextFilter, IoProcessor processor, Object message) throws Exception {
+		if (!(message instanceof IoBuffer)) {
+			nextFilter.channelRead(processor, message);
+			return;
+		}
+		RedisProtocol protocol = getRedisProtocol(processor);
+		protocol.append((IoBuffer) message);
+		for (RedisReply reply = protocol.decode(); reply != null; reply = protocol.decode()) {
+			nextFilter.channelRead(processor, reply);
+		}
+	}
+
+	@Override
+	public void channelClose(NextFilter nextFilter, IoProcessor processor) {
+		RedisProtocol protocol = (RedisProtocol) processor.getAttribute(FILTER_CONTEXT);
+		if (protocol != null) {
+			protocol.clear();
+		}
+		nextFilter.channelClose(processor);
+	}
+
+	private RedisProtocol getRedisProtocol(IoProcessor processor) {
+		RedisProtocol protocol = (RedisProtocol) processor.getAttribute(FILTER_CONTEXT);
+		if (protocol == null) {
+			protocol = new RedisProtocol(processor.getBufferSize());
+			processor.setAttribute(FILTER_CONTEXT, protocol);
+		}
+		return protocol;
+	}
+}
@@ -0,0 +1,386 @@
+package cloud.apposs.netkit.filterchain.redis;
+
+import cloud.apposs.netkit.IoBuffer;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Redis RESP协议编解码，兼容RESP2和RESP3，
+ * 解码为增量解析，网络数据可以在任意位置被拆包，也可以一次接收到多个流水线应答，
+ * 聚合类型的解析状态保存在解析栈中，已解析的元素不会在下次接收数据时重复解析，
+ * RESP3的属性类型（|）只是附加在应答前的元数据，解析后直接丢弃
+ */
+public class RedisProtocol {
+	public static final int DEFAULT_BUFFER_SIZE = 2 * 1024;
+
+	private static final Charset CHARSET = Charset.forName("utf-8");
+
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+
+	/**
+	 * RESP3 Verbatim字符串前缀长度，例如txt:
+	 */
+	private static final int VERBATIM_PREFIX_LENGTH = 4;
+
+	/**
+	 * 聚合类型头部已解析，需要继续解析元素
+	 */
+	private static final RedisReply AGGREGATE = RedisReply.bool(false);
+
+	/**
+	 * 已接收未解析的网络数据
+	 */
+	private byte[] buffer;
+	private int readIdx = 0;
+	private int writeIdx = 0;
+
+	/**
+	 * 聚合类型解析栈，栈顶为当前正在解析元素的聚合类型
+	 */
+	private final List<Aggregate> stack = new ArrayList<Aggregate>(4);
+
+	public RedisProtocol() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	public RedisProtocol(int bufferSize) {
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * 追加接收到的网络数据
+	 */
+	public void append(IoBuffer buf) throws IOException {
+		int length = (int) buf.readableBytes();
+		if (length <= 0) {
+			return;
+		}
+		doEnsureWritable(length);
+		buf.get(buffer, writeIdx, length);
+		writeIdx += length;
+	}
+
+	public void append(byte[] src, int offset, int length) {
+		doEnsureWritable(length);
+		System.arraycopy(src, offset, buffer, writeIdx, length);
+		writeIdx += length;
+	}
+
+	/**
+	 * 解析下一个完整的应答
+	 *
+	 * @return 应答数据，数据还不完整时返回null
+	 */
+	public RedisReply decode() throws IOException {
+		while (true) {
+			RedisReply value = doParseValue();
+			if (value == null) {
+				return null;
+			}
+			if (value == AGGREGATE) {
+				continue;
+			}
+			// 元素解析完毕，逐级填充到所属的聚合类型中
+			while (true) {
+				int depth = stack.size();
+				if (depth == 0) {
+					return value;
+				}
+				Aggregate top = stack.get(depth - 1);
+				top.add(value);
+				if (!top.isFull()) {
+					break;
+				}
+				stack.remove(depth - 1);
+				if (top.type == RedisReply.TYPE_ATTRIBUTE) {
+					// 属性解析完毕直接丢弃，之后的数据才是真正的应答
+					break;
+				}
+				value = top.toReply();
+			}
+		}
+	}
+
+	/**
+	 * 是否还有未解析完毕的数据
+	 */
+	public boolean isDecoding() {
+		return readIdx < writeIdx || !stack.isEmpty();
+	}
+
+	/**
+	 * 会话关闭时清除解析状态
+	 */
+	public void clear() {
+		readIdx = 0;
+		writeIdx = 0;
+		stack.clear();
+	}
+
+	/**
+	 * 解析单个值，聚合类型只解析头部
+	 *
+	 * @return 解析完的值，数据不完整时返回null，聚合类型头部解析完毕返回{@link #AGGREGATE}
+	 */
+	private RedisReply doParseValue() throws IOException {
+		if (readIdx >= writeIdx) {
+			return null;
+		}
+		int lineEnd = doFindLineEnd(readIdx + 1);
+		if (lineEnd < 0) {
+			return null;
+		}
+		byte type = buffer[readIdx];
+		int lineStart = readIdx + 1;
+		int next = lineEnd + 2;
+		switch (type) {
+			case RedisReply.TYPE_SIMPLE_STRING:
+			case RedisReply.TYPE_ERROR:
+			case RedisReply.TYPE_BIG_NUMBER: {
+				readIdx = next;
+				return RedisReply.bytes(type, doCopy(lineStart, lineEnd));
+			}
+			case RedisReply.TYPE_INTEGER: {
+				long value = doParseLong(lineStart, lineEnd);
+				readIdx = next;
+				return RedisReply.integer(value);
+			}
+			case RedisReply.TYPE_BULK_STRING:
+			case RedisReply.TYPE_BLOB_ERROR:
+			case RedisReply.TYPE_VERBATIM_STRING: {
+				long length = doParseLong(lineStart, lineEnd);
+				if (length < 0) {
+					readIdx = next;
+					return RedisReply.NULL;
+				}
+				if ((long) writeIdx - next < length + 2) {
+					// 数据还不完整，避免大数据多次拆包时重复扩容
+					doEnsureWritable((int) (length + 2 - (writeIdx - next)));
+					return null;
+				}
+				int dataEnd = next + (int) length;
+				if (buffer[dataEnd] != CR || buffer[dataEnd + 1] != LF) {
+					throw new IOException("Protocol error, bulk string not end with CRLF");
+				}
+				int dataStart = next;
+				if (type == RedisReply.TYPE_VERBATIM_STRING && length >= VERBATIM_PREFIX_LENGTH) {
+					dataStart += VERBATIM_PREFIX_LENGTH;
+					type = RedisReply.TYPE_BULK_STRING;
+				}
+				readIdx = dataEnd + 2;
+				return RedisReply.bytes(type, doCopy(dataStart, dataEnd));
+			}
+			case RedisReply.TYPE_NULL: {
+				readIdx = next;
+				return RedisReply.NULL;
+			}
+			case RedisReply.TYPE_BOOLEAN: {
+				boolean value = buffer[lineStart] == 't';
+				readIdx = next;
+				return RedisReply.bool(value);
+			}
+			case RedisReply.TYPE_DOUBLE: {
+				String value = new String(buffer, lineStart, lineEnd - lineStart, CHARSET);
+				readIdx = next;
+				if ("inf".equals(value)) {
+					return RedisReply.number(Double.POSITIVE_INFINITY);
+				}
+				if ("-inf".equals(value)) {
+					return RedisReply.number(Double.NEGATIVE_INFINITY);
+				}
+				try {
+					return RedisReply.number(Double.parseDouble(value));
+				} catch (NumberFormatException e) {
+					throw new IOException("Protocol error, invalid double " + value);
+				}
+			}
+			case RedisReply.TYPE_ARRAY:
+			case RedisReply.TYPE_SET:
+			case RedisReply.TYPE_PUSH:
+			case RedisReply.TYPE_MAP:
+			case RedisReply.TYPE_ATTRIBUTE: {
+				long count = doParseLong(lineStart, lineEnd);
+				readIdx = next;
+				if (count < 0) {
+					return RedisReply.NULL;
+				}
+				if (type == RedisReply.TYPE_MAP || type == RedisReply.TYPE_ATTRIBUTE) {
+					count *= 2;
+				}
+				if (count > Integer.MAX_VALUE) {
+					throw new IOException("Protocol error, aggregate size " + count + " too large");
+				}
+				Aggregate aggregate = new Aggregate(type, (int) count);
+				if (count == 0) {
+					if (type == RedisReply.TYPE_ATTRIBUTE) {
+						return AGGREGATE;
+					}
+					return aggregate.toReply();
+				}
+				stack.add(aggregate);
+				return AGGREGATE;
+			}
+			default:
+				throw new IOException("Protocol error, unknown reply type '" + (char) type + "'");
+		}
+	}
+
+	/**
+	 * 查找行结束符\r的位置，没有找到返回-1
+	 */
+	private int doFindLineEnd(int from) {
+		int end = writeIdx - 1;
+		for (int i = from; i < end; i++) {
+			if (buffer[i] == CR && buffer[i + 1] == LF) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private long doParseLong(int start, int end) throws IOException {
+		if (start >= end) {
+			throw new IOException("Protocol error, empty number");
+		}
+		boolean negative = false;
+		int i = start;
+		if (buffer[i] == '-') {
+			negative = true;
+			i++;
+		} else if (buffer[i] == '+') {
+			i++;
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw new IOException("Protocol error, invalid number "
+						+ new String(buffer, start, end - start, CHARSET));
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	private byte[] doCopy(int start, int end) {
+		byte[] data = new byte[end - start];
+		System.arraycopy(buffer, start, data, 0, data.length);
+		return data;
+	}
+
+	/**
+	 * 保证缓存有足够的可写空间，优先把未解析的数据移动到缓存头部，空间不足时再扩容
+	 */
+	private void doEnsureWritable(int length) {
+		if (buffer.length - writeIdx >= length) {
+			return;
+		}
+		int remaining = writeIdx - readIdx;
+		if (buffer.length - remaining >= length && readIdx > 0) {
+			System.arraycopy(buffer, readIdx, buffer, 0, remaining);
+		} else {
+			int capacity = buffer.length << 1;
+			while (capacity - remaining < length) {
+				capacity <<= 1;
+			}
+			byte[] newBuffer = new byte[capacity];
+			System.arraycopy(buffer, readIdx, newBuffer, 0, remaining);
+			buffer = newBuffer;
+		}
+		readIdx = 0;
+		writeIdx = remaining;
+	}
+
+	/**
+	 * 计算命令按RESP数组编码后的字节数
+	 */
+	public static int encodedLength(byte[][] args) {
+		int length = 1 + doGetDigits(args.length) + 2;
+		for (int i = 0; i < args.length; i++) {
+			int argLength = args[i].length;
+			length += 1 + doGetDigits(argLength) + 2 + argLength + 2;
+		}
+		return length;
+	}
+
+	/**
+	 * 将命令按RESP数组编码到指定字节数组中，调用方需先通过{@link #encodedLength(byte[][])}保证空间足够
+	 *
+	 * @return 编码后的下一个写入位置
+	 */
+	public static int encode(byte[][] args, byte[] dst, int offset) {
+		dst[offset++] = RedisReply.TYPE_ARRAY;
+		offset = doPutNumber(args.length, dst, offset);
+		for (int i = 0; i < args.length; i++) {
+			byte[] arg = args[i];
+			dst[offset++] = RedisReply.TYPE_BULK_STRING;
+			offset = doPutNumber(arg.length, dst, offset);
+			System.arraycopy(arg, 0, dst, offset, arg.length);
+			offset += arg.length;
+			dst[offset++] = CR;
+			dst[offset++] = LF;
+		}
+		return offset;
+	}
+
+	public static byte[] encode(byte[]... args) {
+		byte[] dst = new byte[encodedLength(args)];
+		encode(args, dst, 0);
+		return dst;
+	}
+
+	private static int doGetDigits(int value) {
+		int digits = 1;
+		while (value >= 10) {
+			value /= 10;
+			digits++;
+		}
+		return digits;
+	}
+
+	/**
+	 * 写入非负整数和行结束符
+	 */
+	private static int doPutNumber(int value, byte[] dst, int offset) {
+		int end = offset + doGetDigits(value);
+		for (int i = end - 1; i >= offset; i--) {
+			dst[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		dst[end] = CR;
+		dst[end + 1] = LF;
+		return end + 2;
+	}
+
+	/**
+	 * 正在解析元素的聚合类型
+	 */
+	private static final class Aggregate {
+		private final byte type;
+
+		private final RedisReply[] elements;
+
+		private int count = 0;
+
+		private Aggregate(byte type, int size) {
+			this.type = type;
+			this.elements = new RedisReply[size];
+		}
+
+		private void add(RedisReply element) {
+			elements[count++] = element;
+		}
+
+		private boolean isFull() {
+			return count >= elements.length;
+		}
+
+		private RedisReply toReply() {
+			return RedisReply.elements(type, elements);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package cloud.apposs.netkit.filterchain.redis;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Redis应答数据，兼容RESP2和RESP3协议，
+ * RESP3的Map/Set/Push聚合类型统一按元素数组存储，其中Map类型按键、值依次平铺，和RESP2的HGETALL等应答结构保持一致
+ */
+public final class RedisReply {
+	/**
+	 * RESP2数据类型
+	 */
+	public static final byte TYPE_SIMPLE_STRING = '+';
+	public static final byte TYPE_ERROR = '-';
+	public static final byte TYPE_INTEGER = ':';
+	public static final byte TYPE_BULK_STRING = '$';
+	public static final byte TYPE_ARRAY = '*';
+	/**
+	 * RESP3数据类型
+	 */
+	public static final byte TYPE_NULL = '_';
+	public static final byte TYPE_DOUBLE = ',';
+	public static final byte TYPE_BOOLEAN = '#';
+	public static final byte TYPE_BLOB_ERROR = '!';
+	public static final byte TYPE_VERBATIM_STRING = '=';
+	public static final byte TYPE_BIG_NUMBER = '(';
+	public static final byte TYPE_MAP = '%';
+	public static final byte TYPE_SET = '~';
+	public static final byte TYPE_ATTRIBUTE = '|';
+	public static final byte TYPE_PUSH = '>';
+
+	public static final RedisReply NULL = new RedisReply(TYPE_NULL, null, 0, 0, null);
+
+	private static final Charset DEFAULT_CHARSET = Charset.forName("utf-8");
+
+	private static final RedisReply[] EMPTY_ELEMENTS = new RedisReply[0];
+
+	private final byte type;
+
+	/**
+	 * 字符串、错误信息、大数类型的原始字节
+	 */
+	private final byte[] bytes;
+
+	/**
+	 * 整数、布尔类型的值，布尔类型1为true
+	 */
+	private final long integer;
+
+	private final double number;
+
+	/**
+	 * 聚合类型的元素
+	 */
+	private final RedisReply[] elements;
+
+	private RedisReply(byte type, byte[] bytes, long integer, double number, RedisReply[] elements) {
+		this.type = type;
+		this.bytes = bytes;
+		this.integer = integer;
+		this.number = number;
+		this.elements = elements;
+	}
+
+	public static RedisReply bytes(byte type, byte[] bytes) {
+		return new RedisReply(type, bytes, 0, 0, null);
+	}
+
+	public static RedisReply integer(long integer) {
+		return new RedisReply(TYPE_INTEGER, null, integer, integer, null);
+	}
+
+	public static RedisReply bool(boolean value) {
+		return new RedisReply(TYPE_BOOLEAN, null, value ? 1 : 0, value ? 1 : 0, null);
+	}
+
+	public static RedisReply number(double number) {
+		return new RedisReply(TYPE_DOUBLE, null, (long) number, number, null);
+	}
+
+	public static RedisReply elements(byte type, RedisReply[] elements) {
+		return new RedisReply(type, null, 0, 0, elements == null ? EMPTY_ELEMENTS : elements);
+	}
+
+	public byte getType() {
+		return type;
+	}
+
+	public boolean isNull() {
+		return type == TYPE_NULL;
+	}
+
+	public boolean isError() {
+		return type == TYPE_ERROR || type == TYPE_BLOB_ERROR;
+	}
+
+	/**
+	 * 是否为RESP3服务端主动推送的消息，例如客户端缓存失效通知，推送消息不对应任何请求
+	 */
+	public boolean isPush() {
+		return type == TYPE_PUSH;
+	}
+
+	public boolean isAggregate() {
+		return elements != null;
+	}
+
+	/**
+	 * 获取字符串类型的原始字节，非字符串类型返回null
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	public String getString() {
+		return getString(DEFAULT_CHARSET);
+	}
+
+	public String getString(Charset charset) {
+		if (bytes != null) {
+			return new String(bytes, charset);
+		}
+		if (type == TYPE_INTEGER) {
+			return String.valueOf(integer);
+		}
+		if (type == TYPE_DOUBLE) {
+			return String.valueOf(number);
+		}
+		if (type == TYPE_BOOLEAN) {
+			return String.valueOf(integer != 0);
+		}
+		return null;
+	}
+
+	/**
+	 * 获取整数值，字符串类型按十进制数字解析，例如DBSIZE在代理中可能以字符串返回
+	 */
+	public long getLong() {
+		if (bytes != null) {
+			return Long.parseLong(new String(bytes, DEFAULT_CHARSET));
+		}
+		return integer;
+	}
+
+	public double getDouble() {
+		if (bytes != null) {
+			return Double.parseDouble(new String(bytes, DEFAULT_CHARSET));
+		}
+		return number;
+	}
+
+	public boolean getBoolean() {
+		return integer != 0;
+	}
+
+	public int size() {
+		return elements == null ? 0 : elements.length;
+	}
+
+	public RedisReply getElement(int index) {
+		return elements[index];
+	}
+
+	public List<RedisReply> getElements() {
+		if (elements == null) {
+			return Collections.emptyList();
+		}
+		return Arrays.asList(elements);
+	}
+
+	@Override
+	public String toString() {
+		if (elements != null) {
+			return (char) type + Arrays.toString(elements);
+		}
+		if (isNull()) {
+			return "(nil)";
+		}
+		return (char) type + getString();
+	}
+}
@@ -0,0 +1,462 @@
+package cloud.apposs.netkit.rxio.io.redis;
+
+import cloud.apposs.netkit.AbstractIoProcessor;
+import cloud.apposs.netkit.EventLoop;
+import cloud.apposs.netkit.EventLoopGroup;
+import cloud.apposs.netkit.filterchain.redis.RedisReply;
+import cloud.apposs.netkit.rxio.IoFunction;
+import cloud.apposs.netkit.rxio.IoSubscriber;
+import cloud.apposs.netkit.rxio.RxIo;
+import cloud.apposs.netkit.rxio.SafeIoSubscriber;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Redis非阻塞异步客户端，基于{@link EventLoop}实现，
+ * <pre>
+ * 1、每个Redis节点维持少量多路复用长连接，所有线程的命令共用连接并自动流水线发送，不需要每个请求占用一个线程或者连接
+ * 2、命令按Key哈希选择节点，可用于Redis单机或者Codis代理集群，同一线程的命令固定使用同一连接，保证同一线程的命令按提交顺序执行
+ * 3、所有操作均返回{@link RxIo}，应答在轮询线程中回调，回调中不能执行阻塞操作
+ * </pre>
+ * 使用示例：
+ * <pre>
+ * IoRedis redis = new IoRedis(group, Arrays.asList(new InetSocketAddress("127.0.0.1", 6379)));
+ * redis.get("key").subscribe(new IoAction&lt;byte[]&gt;() {...}).start();
+ * </pre>
+ */
+public class IoRedis {
+	public static final int PROTOCOL_RESP2 = 2;
+	public static final int PROTOCOL_RESP3 = 3;
+
+	public static final int DEFAULT_CONNECTIONS_PER_NODE = 2;
+
+	private static final Charset DEFAULT_CHARSET = Charset.forName("utf-8");
+
+	private final EventLoopGroup group;
+
+	private final InetSocketAddress[] nodes;
+
+	private final int connectionsPerNode;
+
+	/**
+	 * 所有节点的连接，每个节点占用connectionsPerNode个连续位置，连接在首次使用时建立，关闭后重建
+	 */
+	private final AtomicReferenceArray<RedisConnection> connections;
+
+	private int connectTimeout = AbstractIoProcessor.DEFAULT_CONNECT_TIMEOUT;
+
+	private int recvTimeout = AbstractIoProcessor.DEFAULT_RECV_TIMEOUT;
+
+	private int protocolVersion = PROTOCOL_RESP2;
+
+	private Charset charset = DEFAULT_CHARSET;
+
+	private volatile boolean shutdown = false;
+
+	public IoRedis(EventLoopGroup group, List<InetSocketAddress> nodes) {
+		this(group, nodes, DEFAULT_CONNECTIONS_PER_NODE);
+	}
+
+	public IoRedis(EventLoopGroup group, List<InetSocketAddress> nodes, int connectionsPerNode) {
+		if (group == null) {
+			throw new IllegalArgumentException("group");
+		}
+		if (nodes == null || nodes.isEmpty()) {
+			throw new IllegalArgumentException("nodes");
+		}
+		if (connectionsPerNode <= 0) {
+			throw new IllegalArgumentException("connectionsPerNode");
+		}
+		this.group = group;
+		this.nodes = nodes.toArray(new InetSocketAddress[nodes.size()]);
+		this.connectionsPerNode = connectionsPerNode;
+		this.connections = new AtomicReferenceArray<RedisConnection>(this.nodes.length * connectionsPerNode);
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public int getRecvTimeout() {
+		return recvTimeout;
+	}
+
+	public void setRecvTimeout(int recvTimeout) {
+		this.recvTimeout = recvTimeout;
+	}
+
+	public int getProtocolVersion() {
+		return protocolVersion;
+	}
+
+	/**
+	 * 设置RESP协议版本，{@link #PROTOCOL_RESP3}时连接建立后发送HELLO 3切换协议，需要Redis 6.0以上版本
+	 */
+	public void setProtocolVersion(int protocolVersion) {
+		if (protocolVersion != PROTOCOL_RESP2 && protocolVersion != PROTOCOL_RESP3) {
+			throw new IllegalArgumentException("protocolVersion");
+		}
+		this.protocolVersion = protocolVersion;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public void setCharset(Charset charset) {
+		this.charset = charset;
+	}
+
+	/**
+	 * 异步执行命令，Redis错误应答以{@link RedisException}通知订阅者
+	 */
+	public RxIo<RedisReply> execute(final byte[]... args) {
+		return RxIo.create(new RxIo.OnSubscribe<RedisReply>() {
+			@Override
+			public void call(final SafeIoSubscriber<? super RedisReply> t) throws Exception {
+				send(args, new ReplySubscriber(t));
+			}
+		});
+	}
+
+	public RxIo<RedisReply> execute(String... args) {
+		return execute(doEncode(args));
+	}
+
+	/**
+	 * 同步执行命令，等待应答直到接收超时，不能在轮询线程中调用
+	 *
+	 * @throws RedisException Redis返回错误应答
+	 */
+	public RedisReply call(byte[]... args) throws IOException {
+		BlockingSubscriber subscriber = new BlockingSubscriber(1);
+		send(args, subscriber.at(0));
+		subscriber.await();
+		RedisReply reply = subscriber.replies[0];
+		if (reply.isError()) {
+			throw new RedisException(reply.getString(charset));
+		}
+		return reply;
+	}
+
+	public RedisReply call(String... args) throws IOException {
+		return call(doEncode(args));
+	}
+
+	/**
+	 * 同步批量执行命令，所有命令一次性提交流水线发送后再等待全部应答，
+	 * 应答按命令顺序返回，错误应答不抛出异常，由调用方通过{@link RedisReply#isError()}判断
+	 */
+	public List<RedisReply> call(List<byte[][]> commands) throws IOException {
+		int size = commands.size();
+		BlockingSubscriber subscriber = new BlockingSubscriber(size);
+		for (int i = 0; i < size; i++) {
+			send(commands.get(i), subscriber.at(i));
+		}
+		subscriber.await();
+		return Arrays.asList(subscriber.replies);
+	}
+
+	/**
+	 * 提交原始命令，订阅者在轮询线程中接收应答，包括错误应答
+	 */
+	public void send(byte[][] args, IoSubscriber<? super RedisReply> subscriber) {
+		if (args == null || args.length == 0) {
+			throw new IllegalArgumentException("args");
+		}
+		if (shutdown) {
+			subscriber.onError(new IOException("IoRedis shutdown"));
+			subscriber.onCompleted();
+			return;
+		}
+		doGetConnection(args.length > 1 ? args[1] : null).send(args, subscriber);
+	}
+
+	public RxIo<byte[]> get(String key) {
+		return execute(doEncode("GET"), doEncode(key)).map(new IoFunction<RedisReply, byte[]>() {
+			@Override
+			public byte[] call(RedisReply reply) {
+				return reply.getBytes();
+			}
+		});
+	}
+
+	/**
+	 * 设置缓存
+	 *
+	 * @param expirationTime 过期时间，单位毫秒，小于等于0为永不过期
+	 */
+	public RxIo<Boolean> set(String key, byte[] value, long expirationTime) {
+		byte[][] args;
+		if (expirationTime > 0) {
+			args = new byte[][] {doEncode("SET"), doEncode(key), value,
+					doEncode("PX"), doEncode(String.valueOf(expirationTime))};
+		} else {
+			args = new byte[][] {doEncode("SET"), doEncode(key), value};
+		}
+		return execute(args).map(new IoFunction<RedisReply, Boolean>() {
+			@Override
+			public Boolean call(RedisReply reply) {
+				return !reply.isNull();
+			}
+		});
+	}
+
+	public RxIo<Boolean> exists(String key) {
+		return execute(doEncode("EXISTS"), doEncode(key)).map(new IoFunction<RedisReply, Boolean>() {
+			@Override
+			public Boolean call(RedisReply reply) {
+				return reply.getLong() > 0;
+			}
+		});
+	}
+
+	/**
+	 * 设置过期时间
+	 *
+	 * @param expirationTime 过期时间，单位毫秒
+	 */
+	public RxIo<Boolean> expire(String key, long expirationTime) {
+		return execute(doEncode("PEXPIRE"), doEncode(key), doEncode(String.valueOf(expirationTime)))
+				.map(new IoFunction<RedisReply, Boolean>() {
+			@Override
+			public Boolean call(RedisReply reply) {
+				return reply.getLong() > 0;
+			}
+		});
+	}
+
+	/**
+	 * 删除缓存，多个Key时按第一个Key选择节点，多节点时由调用方保证Key在同一节点
+	 */
+	public RxIo<Long> del(String... keys) {
+		return execute(doEncode("DEL", keys)).map(new IoFunction<RedisReply, Long>() {
+			@Override
+			public Long call(RedisReply reply) {
+				return reply.getLong();
+			}
+		});
+	}
+
+	public RxIo<byte[]> hget(String key, String field) {
+		return execute(doEncode("HGET"), doEncode(key), doEncode(field)).map(new IoFunction<RedisReply, byte[]>() {
+			@Override
+			public byte[] call(RedisReply reply) {
+				return reply.getBytes();
+			}
+		});
+	}
+
+	public RxIo<Boolean> hset(String key, String field, byte[] value) {
+		return execute(doEncode("HSET"), doEncode(key), doEncode(field), value)
+				.map(new IoFunction<RedisReply, Boolean>() {
+			@Override
+			public Boolean call(RedisReply reply) {
+				return reply.getLong() >= 0;
+			}
+		});
+	}
+
+	public RxIo<Long> hdel(String key, String... fields) {
+		byte[][] args = new byte[fields.length + 2][];
+		args[0] = doEncode("HDEL");
+		args[1] = doEncode(key);
+		for (int i = 0; i < fields.length; i++) {
+			args[i + 2] = doEncode(fields[i]);
+		}
+		return execute(args).map(new IoFunction<RedisReply, Long>() {
+			@Override
+			public Long call(RedisReply reply) {
+				return reply.getLong();
+			}
+		});
+	}
+
+	/**
+	 * 获取Key下所有的二级缓存，RESP2数组和RESP3 Map应答均按键、值依次平铺
+	 */
+	public RxIo<Map<String, byte[]>> hgetAll(String key) {
+		return execute(doEncode("HGETALL"), doEncode(key)).map(new IoFunction<RedisReply, Map<String, byte[]>>() {
+			@Override
+			public Map<String, byte[]> call(RedisReply reply) {
+				return toMap(reply, charset);
+			}
+		});
+	}
+
+	/**
+	 * 将HGETALL等键值平铺的应答转换为Map
+	 */
+	public static Map<String, byte[]> toMap(RedisReply reply, Charset charset) {
+		int size = reply.size();
+		Map<String, byte[]> values = new LinkedHashMap<String, byte[]>(size);
+		for (int i = 0; i + 1 < size; i += 2) {
+			values.put(reply.getElement(i).getString(charset), reply.getElement(i + 1).getBytes());
+		}
+		return values;
+	}
+
+	/**
+	 * 关闭所有连接，轮询池由调用方负责关闭
+	 */
+	public void shutdown() {
+		shutdown = true;
+		for (int i = 0; i < connections.length(); i++) {
+			RedisConnection connection = connections.getAndSet(i, null);
+			if (connection != null) {
+				connection.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * 按Key选择节点，按线程选择节点内的连接，连接不存在或者已关闭时新建连接
+	 */
+	private RedisConnection doGetConnection(byte[] key) {
+		int node = 0;
+		if (nodes.length > 1 && key != null) {
+			node = (Arrays.hashCode(key) & Integer.MAX_VALUE) % nodes.length;
+		}
+		int slot = (int) (Thread.currentThread().getId() % connectionsPerNode);
+		int index = node * connectionsPerNode + slot;
+		while (true) {
+			RedisConnection connection = connections.get(index);
+			if (connection != null && !connection.isClosed()) {
+				return connection;
+			}
+			EventLoop loop = group.getLoop();
+			RedisConnection newConnection = new RedisConnection(nodes[node], loop, protocolVersion);
+			newConnection.setConnectTimeout(connectTimeout);
+			newConnection.setRecvTimeout(recvTimeout);
+			newConnection.setSendTimeout(recvTimeout);
+			if (connections.compareAndSet(index, connection, newConnection)) {
+				loop.addProcessor(newConnection);
+				loop.wakeup();
+				return newConnection;
+			}
+		}
+	}
+
+	private byte[] doEncode(String arg) {
+		return arg.getBytes(charset);
+	}
+
+	private byte[][] doEncode(String[] args) {
+		byte[][] bytes = new byte[args.length][];
+		for (int i = 0; i < args.length; i++) {
+			bytes[i] = doEncode(args[i]);
+		}
+		return bytes;
+	}
+
+	private byte[][] doEncode(String command, String[] args) {
+		byte[][] bytes = new byte[args.length + 1][];
+		bytes[0] = doEncode(command);
+		for (int i = 0; i < args.length; i++) {
+			bytes[i + 1] = doEncode(args[i]);
+		}
+		return bytes;
+	}
+
+	/**
+	 * 将Redis错误应答转换为异常通知订阅者
+	 */
+	private final class ReplySubscriber implements IoSubscriber<RedisReply> {
+		private final IoSubscriber<? super RedisReply> actual;
+
+		private ReplySubscriber(IoSubscriber<? super RedisReply> actual) {
+			this.actual = actual;
+		}
+
+		@Override
+		public void onNext(RedisReply reply) throws Exception {
+			if (reply.isError()) {
+				actual.onError(new RedisException(reply.getString(charset)));
+				return;
+			}
+			actual.onNext(reply);
+		}
+
+		@Override
+		public void onCompleted() {
+			actual.onCompleted();
+		}
+
+		@Override
+		public void onError(Throwable cause) {
+			actual.onError(cause);
+		}
+	}
+
+	/**
+	 * 同步等待一个或多个命令的应答
+	 */
+	private final class BlockingSubscriber {
+		private final RedisReply[] replies;
+
+		private final CountDownLatch latch;
+
+		private volatile Throwable cause;
+
+		private BlockingSubscriber(int size) {
+			if (Thread.currentThread() instanceof EventLoop) {
+				throw new IllegalStateException("blocking call in event loop thread");
+			}
+			this.replies = new RedisReply[size];
+			this.latch = new CountDownLatch(size);
+		}
+
+		private IoSubscriber<RedisReply> at(final int index) {
+			return new IoSubscriber<RedisReply>() {
+				@Override
+				public void onNext(RedisReply reply) {
+					replies[index] = reply;
+				}
+
+				@Override
+				public void onCompleted() {
+					latch.countDown();
+				}
+
+				@Override
+				public void onError(Throwable t) {
+					cause = t;
+				}
+			};
+		}
+
+		private void await() throws IOException {
+			boolean completed;
+			try {
+				completed = latch.await((long) connectTimeout + recvTimeout, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			if (!completed) {
+				throw new SocketTimeoutException("Redis Recv Timeout In " + recvTimeout + " Ms");
+			}
+			Throwable t = cause;
+			if (t instanceof IOException) {
+				throw (IOException) t;
+			}
+			if (t != null) {
+				throw new IOException(t);
+			}
+		}
+	}
+}
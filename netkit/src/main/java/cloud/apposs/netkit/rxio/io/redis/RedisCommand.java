@@ -0,0 +1,45 @@
+package cloud.apposs.netkit.rxio.io.redis;
+
+import cloud.apposs.logger.Logger;
+import cloud.apposs.netkit.filterchain.redis.RedisReply;
+import cloud.apposs.netkit.rxio.IoSubscriber;
+
+/**
+ * 等待发送或者等待应答的Redis命令，应答按原样交给订阅者，包括错误应答
+ */
+final class RedisCommand {
+	final byte[][] args;
+
+	private final IoSubscriber<? super RedisReply> subscriber;
+
+	RedisCommand(byte[][] args, IoSubscriber<? super RedisReply> subscriber) {
+		this.args = args;
+		this.subscriber = subscriber;
+	}
+
+	/**
+	 * 应答交给订阅者，只有onNext异常才转为onError，onCompleted只调用一次，
+	 * 订阅者自身的异常不能影响同一连接上其他命令的应答处理
+	 */
+	void complete(RedisReply reply) {
+		try {
+			subscriber.onNext(reply);
+		} catch (Throwable t) {
+			fail(t);
+			return;
+		}
+		try {
+			subscriber.onCompleted();
+		} catch (Throwable t) {
+			Logger.warn(t, "Unexpected exception from redis command subscriber.");
+		}
+	}
+
+	void fail(Throwable cause) {
+		try {
+			subscriber.onError(cause);
+		} finally {
+			subscriber.onCompleted();
+		}
+	}
+}
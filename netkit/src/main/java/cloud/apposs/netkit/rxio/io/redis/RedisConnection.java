@@ -0,0 +1,322 @@
+package cloud.apposs.netkit.rxio.io.redis;
+
+import cloud.apposs.netkit.AbstractIoProcessor;
+import cloud.apposs.netkit.EventChannel;
+import cloud.apposs.netkit.EventLoop;
+import cloud.apposs.netkit.EventSocketChannel;
+import cloud.apposs.netkit.filterchain.redis.RedisFilter;
+import cloud.apposs.netkit.filterchain.redis.RedisProtocol;
+import cloud.apposs.netkit.filterchain.redis.RedisReply;
+import cloud.apposs.netkit.rxio.IoSubscriber;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Redis多路复用长连接，多个线程的命令共用一个连接并自动流水线发送，
+ * <pre>
+ * 1、任意线程提交的命令先进入等待发送队列，由所属{@link EventLoop}轮询线程合并编码为一个数据包批量发送
+ * 2、已发送的命令按发送顺序进入等待应答队列，Redis按请求顺序应答，每收到一个应答即完成队头的命令
+ * 3、连接异常或者应答超时时，所有未完成的命令均以异常结束，连接关闭后由{@link IoRedis}重新建立新连接
+ * </pre>
+ * 等待应答队列只在轮询线程中访问，不需要加锁
+ */
+public class RedisConnection extends AbstractIoProcessor {
+	private static final int STATE_CONNECTING = 0;
+	private static final int STATE_CONNECTED = 1;
+	private static final int STATE_CLOSED = 2;
+
+	/**
+	 * 过滤器在所有会话中单例，解析状态存储在会话属性中
+	 */
+	private static final RedisFilter REDIS_FILTER = new RedisFilter();
+
+	private static final byte[][] HELLO_COMMAND = {"HELLO".getBytes(), "3".getBytes()};
+
+	private final InetSocketAddress addr;
+
+	/**
+	 * 连接所属的轮询线程，命令的编码发送和应答处理均在该线程中执行
+	 */
+	private final EventLoop loop;
+
+	private final int protocolVersion;
+
+	private EventSocketChannel channel;
+
+	private volatile int state = STATE_CONNECTING;
+
+	private volatile Throwable closeCause;
+
+	/**
+	 * 等待发送的命令，可在任意线程中提交
+	 */
+	private final Queue<RedisCommand> pendingCommands = new ConcurrentLinkedQueue<RedisCommand>();
+
+	/**
+	 * 已发送等待应答的命令，只在轮询线程中访问
+	 */
+	private final Queue<RedisCommand> inflightCommands = new ArrayDeque<RedisCommand>();
+
+	/**
+	 * 是否已提交发送任务，多个线程同时提交命令时只触发一次发送任务
+	 */
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+	private final List<RedisCommand> flushBatch = new ArrayList<RedisCommand>();
+
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			doFlush();
+		}
+	};
+
+	private final Runnable closeTask = new Runnable() {
+		@Override
+		public void run() {
+			if (selectionKey() != null) {
+				getFilterChain().fireChannelClose();
+			}
+		}
+	};
+
+	public RedisConnection(InetSocketAddress addr, EventLoop loop, int protocolVersion) {
+		this.addr = addr;
+		this.loop = loop;
+		this.protocolVersion = protocolVersion;
+		this.chain.add(REDIS_FILTER);
+	}
+
+	public InetSocketAddress getAddress() {
+		return addr;
+	}
+
+	public boolean isClosed() {
+		return state == STATE_CLOSED;
+	}
+
+	/**
+	 * 提交命令，连接建立后批量发送，连接已关闭时命令直接以异常结束
+	 */
+	public void send(byte[][] args, IoSubscriber<? super RedisReply> subscriber) {
+		pendingCommands.offer(new RedisCommand(args, subscriber));
+		int current = state;
+		if (current == STATE_CLOSED) {
+			// 先入队再检查状态，保证关闭时已入队的命令一定会被结束
+			doFailPending(doGetCloseCause());
+			return;
+		}
+		if (current == STATE_CONNECTED) {
+			doScheduleFlush();
+		}
+	}
+
+	/**
+	 * 关闭连接，未完成的命令均以异常结束
+	 */
+	public void shutdown() {
+		doFail(new IOException("Redis connection " + addr + " shutdown"));
+		loop.execute(closeTask);
+	}
+
+	@Override
+	public SelectionKey doRegister(Selector selector) throws IOException {
+		SocketChannel socketChannel = SocketChannel.open();
+		socketChannel.configureBlocking(false);
+		socketChannel.socket().setTcpNoDelay(true);
+		socketChannel.socket().setKeepAlive(true);
+		channel = new EventSocketChannel(socketChannel);
+		if (channel.connect(addr)) {
+			// 本地连接可能立即建立，此时不会再触发连接事件，直接在轮询线程中触发连接建立
+			loop.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						getFilterChain().fireChannelConnect();
+					} catch (Throwable t) {
+						getFilterChain().fireExceptionCaught(t);
+					}
+				}
+			});
+			return channel.register(selector, SelectionKey.OP_READ);
+		}
+		return channel.register(selector, SelectionKey.OP_CONNECT);
+	}
+
+	@Override
+	public EventChannel getChannel() {
+		return channel;
+	}
+
+	@Override
+	public void channelConnect() throws Exception {
+		if (state == STATE_CLOSED) {
+			loop.execute(closeTask);
+			return;
+		}
+		if (protocolVersion >= IoRedis.PROTOCOL_RESP3) {
+			// 切换到RESP3协议，低版本Redis不支持时返回错误应答，继续使用RESP2协议
+			inflightCommands.offer(new RedisCommand(HELLO_COMMAND, IgnoreSubscriber.INSTANCE));
+			write(RedisProtocol.encode(HELLO_COMMAND));
+			flush();
+		}
+		state = STATE_CONNECTED;
+		doFlush();
+	}
+
+	@Override
+	public void channelRead(Object message) throws Exception {
+		if (!(message instanceof RedisReply)) {
+			return;
+		}
+		RedisReply reply = (RedisReply) message;
+		if (reply.isPush()) {
+			// RESP3推送消息不对应任何请求
+			return;
+		}
+		RedisCommand command = inflightCommands.poll();
+		if (command == null) {
+			throw new IOException("Unexpected redis reply " + reply + " from " + addr);
+		}
+		command.complete(reply);
+	}
+
+	@Override
+	public void channelError(Throwable cause) {
+		doFail(cause);
+		loop.execute(closeTask);
+	}
+
+	@Override
+	public void channelClose() {
+		super.channelClose();
+		doFail(new IOException("Redis connection " + addr + " closed"));
+	}
+
+	/**
+	 * 没有等待应答的命令时不检查接收超时，空闲的长连接不会被关闭
+	 */
+	@Override
+	public int getRecvTimeout() {
+		return inflightCommands.isEmpty() ? 0 : super.getRecvTimeout();
+	}
+
+	private void doScheduleFlush() {
+		if (flushScheduled.compareAndSet(false, true)) {
+			loop.execute(flushTask);
+		}
+	}
+
+	/**
+	 * 将等待发送的命令合并编码为一个数据包发送，单次发送不超过最大发送字节，剩余的命令在下一次发送任务中发送
+	 */
+	private void doFlush() {
+		flushScheduled.set(false);
+		if (state != STATE_CONNECTED) {
+			return;
+		}
+		List<RedisCommand> batch = flushBatch;
+		int maxLength = getMaxBufferSize();
+		int length = 0;
+		for (RedisCommand command = pendingCommands.poll(); command != null; command = pendingCommands.poll()) {
+			batch.add(command);
+			length += RedisProtocol.encodedLength(command.args);
+			if (length >= maxLength) {
+				break;
+			}
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+		byte[] data = new byte[length];
+		int offset = 0;
+		if (inflightCommands.isEmpty()) {
+			// 空闲之后的首次发送，重置会话活跃时间，避免误判超时
+			setActionTime(System.currentTimeMillis());
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			RedisCommand command = batch.get(i);
+			offset = RedisProtocol.encode(command.args, data, offset);
+			inflightCommands.offer(command);
+		}
+		batch.clear();
+		try {
+			write(data);
+			flush();
+		} catch (Throwable t) {
+			channelError(t);
+			return;
+		}
+		if (!pendingCommands.isEmpty()) {
+			doScheduleFlush();
+		}
+	}
+
+	/**
+	 * 关闭连接状态并结束所有未完成的命令
+	 */
+	private void doFail(Throwable cause) {
+		if (closeCause == null) {
+			closeCause = cause;
+		}
+		state = STATE_CLOSED;
+		if (Thread.currentThread() == loop) {
+			for (RedisCommand command = inflightCommands.poll(); command != null; command = inflightCommands.poll()) {
+				command.fail(cause);
+			}
+		} else {
+			loop.execute(new Runnable() {
+				@Override
+				public void run() {
+					doFail(doGetCloseCause());
+				}
+			});
+		}
+		doFailPending(cause);
+	}
+
+	private void doFailPending(Throwable cause) {
+		for (RedisCommand command = pendingCommands.poll(); command != null; command = pendingCommands.poll()) {
+			command.fail(cause);
+		}
+	}
+
+	private Throwable doGetCloseCause() {
+		Throwable cause = closeCause;
+		return cause != null ? cause : new IOException("Redis connection " + addr + " closed");
+	}
+
+	@Override
+	public String toString() {
+		return "RedisConnection[" + addr + "]";
+	}
+
+	/**
+	 * 内部命令的应答不需要处理
+	 */
+	static final class IgnoreSubscriber implements IoSubscriber<RedisReply> {
+		static final IgnoreSubscriber INSTANCE = new IgnoreSubscriber();
+
+		@Override
+		public void onNext(RedisReply value) {
+		}
+
+		@Override
+		public void onCompleted() {
+		}
+
+		@Override
+		public void onError(Throwable cause) {
+		}
+	}
+}
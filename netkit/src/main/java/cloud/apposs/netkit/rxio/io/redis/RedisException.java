@@ -0,0 +1,14 @@
+package cloud.apposs.netkit.rxio.io.redis;
+
+import java.io.IOException;
+
+/**
+ * Redis服务返回的错误应答，例如WRONGTYPE、MOVED等
+ */
+public class RedisException extends IOException {
+	private static final long serialVersionUID = 3846210577915303417L;
+
+	public RedisException(String message) {
+		super(message);
+	}
+}
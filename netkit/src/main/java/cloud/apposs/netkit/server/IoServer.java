@@ -19,6 +19,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -227,6 +228,18 @@ public abstract class IoServer {
 		/** 与服务器建立连接的客户端总数 */
 		private long acceptedClients = 0;
 		
+		/** 当前保持连接的客户端数 */
+		private final AtomicLong activeClients = new AtomicLong(0);
+		
+		/** 读取字节总数 */
+		private final AtomicLong readBytes = new AtomicLong(0);
+		
+		/** 发送字节总数 */
+		private final AtomicLong sendBytes = new AtomicLong(0);
+		
+		/** 连接异常总数 */
+		private final AtomicLong errorCount = new AtomicLong(0);
+		
 		public ServerListener() {
 		}
 		
@@ -243,6 +256,22 @@ public abstract class IoServer {
 			return acceptedClients;
 		}
 
+		public long getActiveClients() {
+			return activeClients.get();
+		}
+		
+		public long getReadBytes() {
+			return readBytes.get();
+		}
+		
+		public long getSendBytes() {
+			return sendBytes.get();
+		}
+		
+		public long getErrorCount() {
+			return errorCount.get();
+		}
+
 		public void serverStart() {
 			uptime = System.currentTimeMillis();
 			String host = config.getHost();
@@ -259,6 +288,27 @@ public abstract class IoServer {
 		@Override
 		public void channelAccept(IoProcessor processor) {
 			acceptedClients++;
+			activeClients.incrementAndGet();
+		}
+		
+		@Override
+		public void channelRead(IoProcessor processor, long readBytesLen) {
+			readBytes.addAndGet(readBytesLen);
+		}
+		
+		@Override
+		public void channelSend(IoProcessor processor, long sendBytesLen) {
+			sendBytes.addAndGet(sendBytesLen);
+		}
+		
+		@Override
+		public void channelError(IoProcessor processor, Throwable t) {
+			errorCount.incrementAndGet();
+		}
+		
+		@Override
+		public void channelClose(IoProcessor processor) {
+			activeClients.decrementAndGet();
 		}
 	}
 	
@@ -72,7 +72,6 @@ public class ServerAcceptor extends Thread {
 		try {
             processor = server.newProcessor(key.channel());
             server.getFilterChain().buildFilterChain(processor.getFilterChain());
-            server.getServerListener().channelAccept(processor);
             EventChannel channel = processor.getChannel();
 			processor.getFilterChain().fireChannelAccept(channel);
 			IoListenerSupport listenerSupport = processor.getListenerSupport();
@@ -85,6 +85,19 @@ public class ServerConfig {
      */
     private boolean keepAlive = false;
 
+    /**
+     * UDP服务每次可读事件最多连续接收的数据报数量，
+     * 连续接收直到无数据可读或者达到该上限，减少每个数据报都要经过一次Selector轮询的开销，
+     * 配置小于等于0时每次可读事件只接收一个数据报
+     */
+    private int udpBatchSize = 64;
+
+    /**
+     * UDP服务是否开启SO_REUSEPORT，开启后每个EventLoop各自绑定同一端口，由内核分发数据报，
+     * 当前系统/JDK不支持时退化为单个DatagramChannel
+     */
+    private boolean reusePort = true;
+
     /**
      * 网络接收超时时间
      */
@@ -271,6 +284,22 @@ public class ServerConfig {
         this.keepAlive = keepAlive;
     }
 
+    public int getUdpBatchSize() {
+        return udpBatchSize;
+    }
+
+    public void setUdpBatchSize(int udpBatchSize) {
+        this.udpBatchSize = udpBatchSize;
+    }
+
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    public void setReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+    }
+
     public int getRecvTimeout() {
         return recvTimeout;
     }
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.net.BindException;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
+import java.net.SocketOption;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
@@ -16,7 +17,8 @@ import java.nio.channels.Selector;
  * UDP服务器
  * EPOLL模型下UDP同所有的客户端的通信仅使用一个文件描述符(DataGramSocket)，
  * 所以只能单个线程来处理所有的客户端请求，当然也体现不了EPOLL的优势，
- * UDP协议要求包小于65507BYTE即64K
+ * UDP协议要求包小于65507BYTE即64K，
+ * 在支持SO_REUSEPORT的系统下每个EventLoop各自绑定一个DatagramChannel，由内核分发数据报实现多线程处理
  */
 public class UdpServer extends IoServer {
 	public UdpServer(ServerConfig config) {
@@ -33,7 +35,26 @@ public class UdpServer extends IoServer {
 	
 	@Override
 	public void doBind(Selector selector, InetSocketAddress bindAddr) throws IOException {
-		DatagramChannel serverChannel = DatagramChannel.open();
+		int numOfChannel = 1;
+		if (config.isReusePort() && config.getNumOfGroup() > 1) {
+			numOfChannel = config.getNumOfGroup();
+		}
+		for (int i = 0; i < numOfChannel; i++) {
+			DatagramChannel serverChannel = DatagramChannel.open();
+			if (numOfChannel > 1 && !setReusePort(serverChannel)) {
+				// 系统不支持SO_REUSEPORT，只能单个DatagramChannel处理所有数据报
+				serverChannel.close();
+				numOfChannel = 1;
+				serverChannel = DatagramChannel.open();
+			}
+			doBind(selector, serverChannel, bindAddr);
+			if (numOfChannel == 1) {
+				break;
+			}
+		}
+	}
+	
+	private void doBind(Selector selector, DatagramChannel serverChannel, InetSocketAddress bindAddr) throws IOException {
 		serverChannel.configureBlocking(false);
 		DatagramSocket serverSocket = serverChannel.socket();
 		serverSocket.setReuseAddress(true);
@@ -50,6 +71,24 @@ public class UdpServer extends IoServer {
         }
 		serverChannel.register(selector, SelectionKey.OP_READ);
 	}
+	
+	/**
+	 * 开启SO_REUSEPORT，该选项只在JDK9及以上和支持该选项的系统下存在，所以按名称查找
+	 */
+	@SuppressWarnings("unchecked")
+	private static boolean setReusePort(DatagramChannel channel) {
+		try {
+			for (SocketOption<?> option : channel.supportedOptions()) {
+				if ("SO_REUSEPORT".equals(option.name())) {
+					channel.setOption((SocketOption<Boolean>) option, Boolean.TRUE);
+					return true;
+				}
+			}
+		} catch (Exception e) {
+			Logger.warn(e, "udp server set SO_REUSEPORT fail");
+		}
+		return false;
+	}
 
 	@Override
 	public IoProcessor newProcessor(SelectableChannel channel) {
@@ -1,15 +1,20 @@
 package cloud.apposs.netkit.server;
 
 import cloud.apposs.netkit.AbstractIoProcessor;
+import cloud.apposs.netkit.DatagramProcessor;
 import cloud.apposs.netkit.EventChannel;
 import cloud.apposs.netkit.EventDatagramChannel;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 
-public class UdpServerProcessor extends AbstractIoProcessor {
+public class UdpServerProcessor extends AbstractIoProcessor implements DatagramProcessor {
+	/** 数据报接收缓存块大小，小数据报可在同一块中连续接收，减少每个数据报一次的内存分配 */
+	public static final int RECV_BLOCK_SIZE = MAX_DATAGRAM_SIZE * 4;
+	
 	private ServerHandler handler;
 	
 	private EventDatagramChannel channel;
@@ -18,6 +23,9 @@ public class UdpServerProcessor extends AbstractIoProcessor {
 	
 	private ServerHandlerContext context;
 	
+	/** 数据报接收缓存块，每个处理器对应一个DatagramChannel并只在所属EventLoop中使用 */
+	private ByteBuffer recvBuffer;
+	
 	public UdpServerProcessor(IoServer server, ServerHandler handler, DatagramChannel channel) {
 		this.handler = handler;
 		this.channel = new EventDatagramChannel(channel);
@@ -36,6 +44,19 @@ public class UdpServerProcessor extends AbstractIoProcessor {
 		return config.isBufferDirect();
 	}
 	
+	@Override
+	public int getBatchSize() {
+		return config.getUdpBatchSize();
+	}
+
+	@Override
+	public ByteBuffer getRecvBuffer() {
+		if (recvBuffer == null || recvBuffer.capacity() - recvBuffer.position() < MAX_DATAGRAM_SIZE) {
+			recvBuffer = ByteBuffer.allocateDirect(RECV_BLOCK_SIZE);
+		}
+		return recvBuffer;
+	}
+	
 	@Override
 	public int getRecvTimeout() {
 		return config.getRecvTimeout();
@@ -12,6 +12,8 @@ public class HttpServer extends TcpServer {
         String directory = config.getDirectory();
 		filterChain.addFilter(new KeepaliveFilter());
         filterChain.addFilter(new HttpServerFilter(charset, config.isLowerHeaderKey()));
-        filterChain.addFilter(new HttpDecryptFilter(charset, directory, config.getMaxFileSize()));
+        if (config.isDecryptForm()) {
+            filterChain.addFilter(new HttpDecryptFilter(charset, directory, config.getMaxFileSize()));
+        }
     }
 }
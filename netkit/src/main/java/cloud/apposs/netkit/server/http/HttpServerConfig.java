@@ -24,6 +24,12 @@ public class HttpServerConfig extends ServerConfig {
      */
     private boolean lowerHeaderKey = false;
 
+    /**
+     * 是否解析POST表单数据，
+     * 网关等只需要将请求BODY原样转发的服务可以关闭，由业务直接处理原始BODY数据
+     */
+    private boolean decryptForm = true;
+
     public String getCharset() {
         return charset;
     }
@@ -55,4 +61,12 @@ public class HttpServerConfig extends ServerConfig {
     public void setLowerHeaderKey(boolean lowerHeaderKey) {
         this.lowerHeaderKey = lowerHeaderKey;
     }
+
+    public boolean isDecryptForm() {
+        return decryptForm;
+    }
+
+    public void setDecryptForm(boolean decryptForm) {
+        this.decryptForm = decryptForm;
+    }
 }
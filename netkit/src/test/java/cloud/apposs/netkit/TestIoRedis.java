@@ -0,0 +1,311 @@
+package cloud.apposs.netkit;
+
+import cloud.apposs.netkit.filterchain.redis.RedisFilter;
+import cloud.apposs.netkit.filterchain.redis.RedisProtocol;
+import cloud.apposs.netkit.filterchain.redis.RedisReply;
+import cloud.apposs.netkit.rxio.IoAction;
+import cloud.apposs.netkit.rxio.io.redis.IoRedis;
+import cloud.apposs.netkit.rxio.io.redis.RedisException;
+import cloud.apposs.netkit.server.ServerConfig;
+import cloud.apposs.netkit.server.ServerHandlerAdaptor;
+import cloud.apposs.netkit.server.ServerHandlerContext;
+import cloud.apposs.netkit.server.TcpServer;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Redis客户端测试，使用内嵌的简易RESP服务模拟Redis，不依赖外部Redis服务
+ */
+public class TestIoRedis {
+	public static final String HOST = "127.0.0.1";
+
+	/**
+	 * 模拟服务在所有测试中共用，只启动一次，端口随机分配避免与本机服务冲突
+	 */
+	private static TcpServer server;
+
+	private static int port;
+
+	private EventLoopGroup group;
+
+	private IoRedis redis;
+
+	@BeforeClass
+	public static void startServer() throws Exception {
+		ServerSocket socket = new ServerSocket(0);
+		port = socket.getLocalPort();
+		socket.close();
+		ServerConfig config = new ServerConfig();
+		config.setNumOfGroup(2);
+		config.setKeepAlive(true);
+		server = new TcpServer(config, new RedisServerHandler());
+		server.getFilterChain().addFilter(new RedisFilter());
+		server.bind(HOST, port);
+		server.start();
+	}
+
+	@AfterClass
+	public static void stopServer() {
+		if (server != null) {
+			server.shutdown();
+			server = null;
+		}
+	}
+
+	@Before
+	public void before() throws Exception {
+		group = new EventLoopGroup(2, "Redis_Loop-").start(true);
+		List<InetSocketAddress> nodes = new ArrayList<InetSocketAddress>();
+		nodes.add(new InetSocketAddress(HOST, port));
+		redis = new IoRedis(group, nodes);
+	}
+
+	@After
+	public void after() {
+		redis.shutdown();
+		group.shutdown();
+	}
+
+	@Test
+	public void testDecodeSplit() throws Exception {
+		byte[] data = ("*2\r\n$3\r\nfoo\r\n:-12\r\n"
+				+ "%2\r\n+a\r\n#t\r\n$1\r\nb\r\n,-inf\r\n"
+				+ "|1\r\n+ttl\r\n:3\r\n=7\r\ntxt:bar\r\n"
+				+ "_\r\n$-1\r\n-ERR unknown\r\n").getBytes();
+		RedisProtocol protocol = new RedisProtocol(4);
+		List<RedisReply> replies = new ArrayList<RedisReply>();
+		for (int i = 0; i < data.length; i++) {
+			// 按字节拆包，验证增量解析
+			protocol.append(data, i, 1);
+			for (RedisReply reply = protocol.decode(); reply != null; reply = protocol.decode()) {
+				replies.add(reply);
+			}
+		}
+		Assert.assertFalse(protocol.isDecoding());
+		Assert.assertEquals(6, replies.size());
+		Assert.assertEquals("foo", replies.get(0).getElement(0).getString());
+		Assert.assertEquals(-12L, replies.get(0).getElement(1).getLong());
+		Assert.assertEquals(4, replies.get(1).size());
+		Assert.assertTrue(replies.get(1).getElement(1).getBoolean());
+		Assert.assertTrue(Double.isInfinite(replies.get(1).getElement(3).getDouble()));
+		Assert.assertEquals("bar", replies.get(2).getString());
+		Assert.assertTrue(replies.get(3).isNull());
+		Assert.assertTrue(replies.get(4).isNull());
+		Assert.assertTrue(replies.get(5).isError());
+	}
+
+	@Test
+	public void testEncode() throws Exception {
+		byte[] data = RedisProtocol.encode("SET".getBytes(), "key".getBytes(), "value".getBytes());
+		Assert.assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$5\r\nvalue\r\n", new String(data));
+	}
+
+	@Test
+	public void testCommand() throws Exception {
+		Assert.assertEquals("OK", redis.call("SET", "MyKey", "MyValue").getString());
+		Assert.assertEquals("MyValue", redis.call("GET", "MyKey").getString());
+		Assert.assertTrue(redis.call("GET", "NoKey").isNull());
+		Assert.assertEquals(1L, redis.call("HSET", "MyHash", "f1", "v1").getLong());
+		Assert.assertEquals(1L, redis.call("HSET", "MyHash", "f2", "v2").getLong());
+		Map<String, byte[]> values = IoRedis.toMap(redis.call("HGETALL", "MyHash"), redis.getCharset());
+		Assert.assertEquals(2, values.size());
+		Assert.assertEquals("v2", new String(values.get("f2")));
+		Assert.assertEquals(1L, redis.call("DEL", "MyKey").getLong());
+		try {
+			redis.call("NOCMD");
+			Assert.fail();
+		} catch (RedisException e) {
+			Assert.assertTrue(e.getMessage().startsWith("ERR"));
+		}
+	}
+
+	@Test
+	public void testRxIo() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicReference<Object> result = new AtomicReference<Object>();
+		final IoAction<Throwable> onError = new IoAction<Throwable>() {
+			@Override
+			public void call(Throwable cause) {
+				result.set(cause);
+				latch.countDown();
+			}
+		};
+		redis.set("MyRxKey", "MyRxValue".getBytes(), 0).subscribe(new IoAction<Boolean>() {
+			@Override
+			public void call(Boolean success) {
+				redis.get("MyRxKey").subscribe(new IoAction<byte[]>() {
+					@Override
+					public void call(byte[] value) {
+						result.set(new String(value));
+						latch.countDown();
+					}
+				}, onError).start();
+			}
+		}, onError).start();
+		latch.await();
+		Assert.assertEquals("MyRxValue", result.get());
+	}
+
+	@Test
+	public void testPipeline() throws Exception {
+		List<byte[][]> commands = new ArrayList<byte[][]>();
+		for (int i = 0; i < 100; i++) {
+			commands.add(new byte[][] {"SET".getBytes(), ("MyKey" + i).getBytes(), ("MyValue" + i).getBytes()});
+		}
+		commands.add(new byte[][] {"NOCMD".getBytes()});
+		commands.add(new byte[][] {"GET".getBytes(), "MyKey99".getBytes()});
+		List<RedisReply> replies = redis.call(commands);
+		Assert.assertEquals(102, replies.size());
+		Assert.assertTrue(replies.get(100).isError());
+		Assert.assertEquals("MyValue99", replies.get(101).getString());
+	}
+
+	/**
+	 * 多线程并发请求，所有线程共用少量连接，命令自动合并批量发送
+	 */
+	@Test
+	public void testConcurrent() throws Exception {
+		final int threads = 16;
+		final int count = 5000;
+		final AtomicInteger errors = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(threads);
+		long start = System.nanoTime();
+		for (int i = 0; i < threads; i++) {
+			final int index = i;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < count; j++) {
+							String key = "Key" + index + "_" + j;
+							redis.call("SET", key, key);
+							if (!key.equals(redis.call("GET", key).getString())) {
+								errors.incrementAndGet();
+							}
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+						errors.incrementAndGet();
+					} finally {
+						latch.countDown();
+					}
+				}
+			}.start();
+		}
+		latch.await();
+		long cost = System.nanoTime() - start;
+		Assert.assertEquals(0, errors.get());
+		System.out.println("concurrent redis command: " + (cost / (threads * count * 2)) + " ns/op");
+	}
+
+	@Test
+	public void testResp3() throws Exception {
+		redis.setProtocolVersion(IoRedis.PROTOCOL_RESP3);
+		Assert.assertEquals("OK", redis.call("SET", "MyKey", "MyValue").getString());
+		Assert.assertEquals("MyValue", redis.call("GET", "MyKey").getString());
+	}
+
+	/**
+	 * 简易Redis服务，只支持测试用到的命令
+	 */
+	static class RedisServerHandler extends ServerHandlerAdaptor {
+		private final Map<String, byte[]> strings = new ConcurrentHashMap<String, byte[]>();
+
+		private final Map<String, Map<String, byte[]>> hashes = new ConcurrentHashMap<String, Map<String, byte[]>>();
+
+		@Override
+		public void channelRead(ServerHandlerContext context, Object msg) throws Exception {
+			RedisReply request = (RedisReply) msg;
+			String command = request.getElement(0).getString().toUpperCase();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			if ("HELLO".equals(command)) {
+				doWrite(out, "%1\r\n+proto\r\n:3\r\n");
+			} else if ("SET".equals(command)) {
+				strings.put(request.getElement(1).getString(), request.getElement(2).getBytes());
+				doWrite(out, "+OK\r\n");
+			} else if ("GET".equals(command)) {
+				doWriteBulk(out, strings.get(request.getElement(1).getString()));
+			} else if ("DEL".equals(command)) {
+				int count = 0;
+				for (int i = 1; i < request.size(); i++) {
+					String key = request.getElement(i).getString();
+					if (strings.remove(key) != null | hashes.remove(key) != null) {
+						count++;
+					}
+				}
+				doWrite(out, ":" + count + "\r\n");
+			} else if ("EXISTS".equals(command)) {
+				String key = request.getElement(1).getString();
+				doWrite(out, strings.containsKey(key) || hashes.containsKey(key) ? ":1\r\n" : ":0\r\n");
+			} else if ("PEXPIRE".equals(command)) {
+				doWrite(out, ":1\r\n");
+			} else if ("HSET".equals(command)) {
+				String key = request.getElement(1).getString();
+				Map<String, byte[]> hash = hashes.get(key);
+				if (hash == null) {
+					hash = new ConcurrentHashMap<String, byte[]>();
+					hashes.put(key, hash);
+				}
+				byte[] old = hash.put(request.getElement(2).getString(), request.getElement(3).getBytes());
+				doWrite(out, old == null ? ":1\r\n" : ":0\r\n");
+			} else if ("HGET".equals(command)) {
+				Map<String, byte[]> hash = hashes.get(request.getElement(1).getString());
+				doWriteBulk(out, hash == null ? null : hash.get(request.getElement(2).getString()));
+			} else if ("HDEL".equals(command)) {
+				Map<String, byte[]> hash = hashes.get(request.getElement(1).getString());
+				int count = 0;
+				for (int i = 2; hash != null && i < request.size(); i++) {
+					if (hash.remove(request.getElement(i).getString()) != null) {
+						count++;
+					}
+				}
+				doWrite(out, ":" + count + "\r\n");
+			} else if ("HGETALL".equals(command)) {
+				Map<String, byte[]> hash = hashes.get(request.getElement(1).getString());
+				if (hash == null) {
+					doWrite(out, "*0\r\n");
+				} else {
+					doWrite(out, "*" + hash.size() * 2 + "\r\n");
+					for (Map.Entry<String, byte[]> entry : hash.entrySet()) {
+						doWriteBulk(out, entry.getKey().getBytes());
+						doWriteBulk(out, entry.getValue());
+					}
+				}
+			} else if ("DBSIZE".equals(command)) {
+				doWrite(out, ":" + (strings.size() + hashes.size()) + "\r\n");
+			} else {
+				doWrite(out, "-ERR unknown command '" + command + "'\r\n");
+			}
+			context.write(out.toByteArray());
+		}
+
+		private void doWrite(ByteArrayOutputStream out, String value) throws Exception {
+			out.write(value.getBytes());
+		}
+
+		private void doWriteBulk(ByteArrayOutputStream out, byte[] value) throws Exception {
+			if (value == null) {
+				doWrite(out, "$-1\r\n");
+				return;
+			}
+			doWrite(out, "$" + value.length + "\r\n");
+			out.write(value);
+			doWrite(out, "\r\n");
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package cloud.apposs.netkit;
+
+import cloud.apposs.netkit.server.ServerConfig;
+import cloud.apposs.netkit.server.ServerHandlerAdaptor;
+import cloud.apposs.netkit.server.ServerHandlerContext;
+import cloud.apposs.netkit.server.UdpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class TestUdpServer {
+	private static final int PORT = 10130;
+
+	/**
+	 * 批量接收数据报并且同步应答，所有数据报的应答都要回到各自的发送端
+	 */
+	@Test
+	public void testBatchEcho() throws Exception {
+		ServerConfig config = new ServerConfig();
+		config.setHost("127.0.0.1");
+		config.setPort(PORT);
+		config.setNumOfGroup(2);
+		config.setUdpBatchSize(16);
+		UdpServer server = new UdpServer(config, new EchoHandler());
+		server.start();
+		Thread.sleep(500);
+
+		DatagramSocket client1 = new DatagramSocket();
+		DatagramSocket client2 = new DatagramSocket();
+		client1.setSoTimeout(3000);
+		client2.setSoTimeout(3000);
+		try {
+			int count = 100;
+			InetSocketAddress serverAddr = new InetSocketAddress("127.0.0.1", PORT);
+			for (int i = 0; i < count; i++) {
+				byte[] msg1 = ("c1-" + i).getBytes();
+				byte[] msg2 = ("c2-" + i).getBytes();
+				client1.send(new DatagramPacket(msg1, msg1.length, serverAddr));
+				client2.send(new DatagramPacket(msg2, msg2.length, serverAddr));
+			}
+			Assert.assertEquals(count, receiveAll(client1, count, "c1-"));
+			Assert.assertEquals(count, receiveAll(client2, count, "c2-"));
+		} finally {
+			client1.close();
+			client2.close();
+			server.shutdown();
+		}
+	}
+
+	/**
+	 * 大数据报连续接收会用完接收缓存块并切换到新的缓存块，已交给业务的数据报内容不能被覆盖
+	 */
+	@Test
+	public void testLargeDatagramEcho() throws Exception {
+		ServerConfig config = new ServerConfig();
+		config.setHost("127.0.0.1");
+		config.setPort(PORT + 1);
+		config.setUdpBatchSize(16);
+		UdpServer server = new UdpServer(config, new EchoHandler());
+		server.start();
+		Thread.sleep(500);
+
+		DatagramSocket client = new DatagramSocket();
+		client.setSoTimeout(3000);
+		try {
+			InetSocketAddress serverAddr = new InetSocketAddress("127.0.0.1", PORT + 1);
+			byte[] buffer = new byte[65536];
+			for (int i = 0; i < 20; i++) {
+				byte[] msg = new byte[30000];
+				Arrays.fill(msg, (byte) ('a' + i));
+				client.send(new DatagramPacket(msg, msg.length, serverAddr));
+				DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+				client.receive(packet);
+				Assert.assertArrayEquals(msg, Arrays.copyOf(packet.getData(), packet.getLength()));
+			}
+		} finally {
+			client.close();
+			server.shutdown();
+		}
+	}
+
+	private static int receiveAll(DatagramSocket client, int count, String prefix) throws Exception {
+		Set<String> replies = new HashSet<String>();
+		byte[] buffer = new byte[1024];
+		for (int i = 0; i < count; i++) {
+			DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+			client.receive(packet);
+			String reply = new String(packet.getData(), 0, packet.getLength());
+			Assert.assertTrue(reply, reply.startsWith(prefix));
+			replies.add(reply);
+		}
+		return replies.size();
+	}
+
+	static class EchoHandler extends ServerHandlerAdaptor {
+		@Override
+		public void channelRead(ServerHandlerContext context, Object msg) throws Exception {
+			IoBuffer buf = (IoBuffer) msg;
+			context.write(buf.array());
+		}
+
+		@Override
+		public void channelError(ServerHandlerContext context, Throwable cause) {
+			cause.printStackTrace();
+		}
+	}
+}
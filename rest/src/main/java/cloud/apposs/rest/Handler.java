@@ -78,6 +78,16 @@ public class Handler {
      */
     private Object attachment;
 
+    /**
+     * 方法调用器，在添加到路由时生成
+     */
+    private volatile HandlerInvoker invoker;
+
+    /**
+     * Handler所在的单例Bean实例，首次请求时从IOC容器获取后缓存，非单例Bean不缓存
+     */
+    private volatile Object target;
+
     public Handler(Class<?> clazz, Method method, Parameter[] parameters) {
         this.clazz = clazz;
         this.method = method;
@@ -147,6 +157,18 @@ public class Handler {
         return parameters;
     }
 
+    /**
+     * 获取方法调用器，需在参数解析器设置完成之后调用
+     */
+    public HandlerInvoker getInvoker() {
+        HandlerInvoker invoker = this.invoker;
+        if (invoker == null) {
+            invoker = new HandlerInvoker(method, parameters);
+            this.invoker = invoker;
+        }
+        return invoker;
+    }
+
     public String getHost() {
         return host;
     }
@@ -174,6 +196,15 @@ public class Handler {
         return this;
     }
 
+    public Object getTarget() {
+        return target;
+    }
+
+    public Handler setTarget(Object target) {
+        this.target = target;
+        return this;
+    }
+
     public Object getAttachment() {
         return attachment;
     }
@@ -0,0 +1,271 @@
+package cloud.apposs.rest;
+
+import cloud.apposs.rest.parameter.Parameter;
+import cloud.apposs.rest.parameter.ParameterResolver;
+import cloud.apposs.util.ReflectUtil;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * {@link Handler}方法调用器，在启动时为每个Handler生成一次，固定每个参数对应的解析器，
+ * 请求时只做参数解析和直接调用，不再经过Method.invoke的访问检查和参数包装，
+ * 业务方法抛出的异常原样抛出，不再包装成InvocationTargetException，调用方式如下：
+ * <pre>
+ * 1、public类的public实例方法，参数不超过{@link #MAX_LAMBDA_ARITY}个时，
+ *    通过LambdaMetafactory生成对应参数个数的调用接口实现类，调用等同于直接方法调用
+ * 2、其他方法，例如静态方法、非public方法、参数过多或者类加载器不可见时，
+ *    编译成(Object, Object[])Object签名的MethodHandle调用
+ * </pre>
+ */
+public final class HandlerInvoker {
+    /**
+     * LambdaMetafactory生成调用接口的最大参数个数
+     */
+    public static final int MAX_LAMBDA_ARITY = 5;
+
+    private static final Object[] EMPTY_ARGUMENTS = new Object[0];
+
+    private static final MethodType INVOKER_TYPE =
+            MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private static final Class<?>[] LAMBDA_INVOKERS = {
+            Invoker0.class, Invoker1.class, Invoker2.class, Invoker3.class, Invoker4.class, Invoker5.class
+    };
+
+    private static final Class<?>[] LAMBDA_VOID_INVOKERS = {
+            VoidInvoker0.class, VoidInvoker1.class, VoidInvoker2.class,
+            VoidInvoker3.class, VoidInvoker4.class, VoidInvoker5.class
+    };
+
+    private final Parameter[] parameters;
+
+    /**
+     * 参数解析器，与parameters一一对应
+     */
+    private final ParameterResolver[] resolvers;
+
+    /**
+     * LambdaMetafactory生成的调用接口实现，为空则使用methodHandle调用
+     */
+    private final Object lambda;
+
+    private final boolean isVoid;
+
+    private final MethodHandle methodHandle;
+
+    public HandlerInvoker(Method method, Parameter[] parameters) {
+        this.parameters = parameters;
+        this.resolvers = new ParameterResolver[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            ParameterResolver resolver = parameters[i].getResolver();
+            if (resolver == null) {
+                throw new IllegalArgumentException("unset resolver of parameter " + parameters[i]);
+            }
+            resolvers[i] = resolver;
+        }
+        this.isVoid = method.getReturnType() == void.class;
+        this.lambda = doCompileLambda(method);
+        this.methodHandle = lambda == null ? doCompileMethodHandle(method) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R, P> Object invoke(Object target, R request, P response) throws Exception {
+        ParameterResolver[] resolvers = this.resolvers;
+        int length = resolvers.length;
+        Object[] arguments = length == 0 ? EMPTY_ARGUMENTS : new Object[length];
+        // 解析参数
+        for (int i = 0; i < length; i++) {
+            arguments[i] = resolvers[i].resolveArgument(parameters[i], request, response);
+        }
+        // 调用方法
+        if (lambda != null) {
+            return doInvokeLambda(target, arguments);
+        }
+        try {
+            return (Object) methodHandle.invokeExact(target, arguments);
+        } catch (Exception e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    private Object doInvokeLambda(Object target, Object[] arguments) throws Exception {
+        Object lambda = this.lambda;
+        if (isVoid) {
+            switch (arguments.length) {
+                case 0:
+                    ((VoidInvoker0) lambda).invoke(target);
+                    break;
+                case 1:
+                    ((VoidInvoker1) lambda).invoke(target, arguments[0]);
+                    break;
+                case 2:
+                    ((VoidInvoker2) lambda).invoke(target, arguments[0], arguments[1]);
+                    break;
+                case 3:
+                    ((VoidInvoker3) lambda).invoke(target, arguments[0], arguments[1], arguments[2]);
+                    break;
+                case 4:
+                    ((VoidInvoker4) lambda).invoke(target, arguments[0], arguments[1], arguments[2], arguments[3]);
+                    break;
+                default:
+                    ((VoidInvoker5) lambda).invoke(target,
+                            arguments[0], arguments[1], arguments[2], arguments[3], arguments[4]);
+                    break;
+            }
+            return null;
+        }
+        switch (arguments.length) {
+            case 0:
+                return ((Invoker0) lambda).invoke(target);
+            case 1:
+                return ((Invoker1) lambda).invoke(target, arguments[0]);
+            case 2:
+                return ((Invoker2) lambda).invoke(target, arguments[0], arguments[1]);
+            case 3:
+                return ((Invoker3) lambda).invoke(target, arguments[0], arguments[1], arguments[2]);
+            case 4:
+                return ((Invoker4) lambda).invoke(target, arguments[0], arguments[1], arguments[2], arguments[3]);
+            default:
+                return ((Invoker5) lambda).invoke(target,
+                        arguments[0], arguments[1], arguments[2], arguments[3], arguments[4]);
+        }
+    }
+
+    /**
+     * 通过LambdaMetafactory生成调用接口实现类，不满足条件时返回null
+     */
+    private static Object doCompileLambda(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Class<?> returnType = method.getReturnType();
+        int modifiers = method.getModifiers();
+        if (Modifier.isStatic(modifiers) || !Modifier.isPublic(modifiers)
+                || !Modifier.isPublic(declaringClass.getModifiers())
+                || parameterTypes.length > MAX_LAMBDA_ARITY) {
+            return null;
+        }
+        // 生成的实现类由当前类加载器加载，Action类和参数类型必须对其可见
+        if (!isClassVisible(declaringClass) || !isClassVisible(returnType)) {
+            return null;
+        }
+        Class<?>[] instantiatedTypes = new Class<?>[parameterTypes.length + 1];
+        instantiatedTypes[0] = declaringClass;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (!isClassVisible(parameterTypes[i])) {
+                return null;
+            }
+            instantiatedTypes[i + 1] = MethodType.methodType(parameterTypes[i]).wrap().returnType();
+        }
+        boolean isVoid = returnType == void.class;
+        Class<?> invokerType = isVoid ?
+                LAMBDA_VOID_INVOKERS[parameterTypes.length] : LAMBDA_INVOKERS[parameterTypes.length];
+        Class<?> instantiatedReturnType = MethodType.methodType(returnType).wrap().returnType();
+        MethodType samType = MethodType.genericMethodType(parameterTypes.length + 1);
+        if (isVoid) {
+            samType = samType.changeReturnType(void.class);
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "invoke",
+                    MethodType.methodType(invokerType), samType, handle,
+                    MethodType.methodType(isVoid ? void.class : instantiatedReturnType, instantiatedTypes));
+            return callSite.getTarget().invoke();
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * 将Action方法转换成(Object target, Object[] arguments)Object签名，
+     * 参数拆箱、返回值装箱和void返回null均由MethodHandle适配完成
+     */
+    private static MethodHandle doCompileMethodHandle(Method method) {
+        ReflectUtil.makeAccessible(method);
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("method " + method + " is not accessible", e);
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        int parameterCount = method.getParameterTypes().length;
+        handle = handle.asType(MethodType.genericMethodType(parameterCount + 1));
+        return handle.asSpreader(Object[].class, parameterCount).asType(INVOKER_TYPE);
+    }
+
+    private static boolean isClassVisible(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(clazz.getName(), false, HandlerInvoker.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    interface Invoker0 {
+        Object invoke(Object target) throws Exception;
+    }
+
+    interface Invoker1 {
+        Object invoke(Object target, Object a1) throws Exception;
+    }
+
+    interface Invoker2 {
+        Object invoke(Object target, Object a1, Object a2) throws Exception;
+    }
+
+    interface Invoker3 {
+        Object invoke(Object target, Object a1, Object a2, Object a3) throws Exception;
+    }
+
+    interface Invoker4 {
+        Object invoke(Object target, Object a1, Object a2, Object a3, Object a4) throws Exception;
+    }
+
+    interface Invoker5 {
+        Object invoke(Object target, Object a1, Object a2, Object a3, Object a4, Object a5) throws Exception;
+    }
+
+    interface VoidInvoker0 {
+        void invoke(Object target) throws Exception;
+    }
+
+    interface VoidInvoker1 {
+        void invoke(Object target, Object a1) throws Exception;
+    }
+
+    interface VoidInvoker2 {
+        void invoke(Object target, Object a1, Object a2) throws Exception;
+    }
+
+    interface VoidInvoker3 {
+        void invoke(Object target, Object a1, Object a2, Object a3) throws Exception;
+    }
+
+    interface VoidInvoker4 {
+        void invoke(Object target, Object a1, Object a2, Object a3, Object a4) throws Exception;
+    }
+
+    interface VoidInvoker5 {
+        void invoke(Object target, Object a1, Object a2, Object a3, Object a4, Object a5) throws Exception;
+    }
+}
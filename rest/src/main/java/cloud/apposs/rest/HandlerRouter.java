@@ -13,6 +13,7 @@ import cloud.apposs.rest.parameter.ParameterResolver;
 import cloud.apposs.rest.parameter.ParameterResolverSupport;
 import cloud.apposs.rest.parameter.RequestParameterMissingException;
 import cloud.apposs.util.AntPathMatcher;
+import cloud.apposs.util.PathTrie;
 import cloud.apposs.util.ReflectUtil;
 import cloud.apposs.util.StrUtil;
 import cloud.apposs.util.SysUtil;
@@ -21,16 +22,31 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 处理器路由映射，负责管理Action中的各个方法，实现Request请求和方法匹配
+ * 处理器路由映射，负责管理Action中的各个方法，实现Request请求和方法匹配，
+ * 启动时将所有请求路径编译成以下两类结构，请求路由时不再遍历所有Handler：
+ * <pre>
+ * 1、精确匹配，不带通配符的路径，直接哈希查找
+ * 2、通配匹配，带*、?、{var}、**的Ant风格路径，按请求方法各建一棵{@link PathTrie}路由树，
+ *    {var}只记录其在请求路径中的起止位置
+ * </pre>
+ * 匹配优先级与之前保持一致：精确匹配优先，通配匹配时按HOST+METHOD评分取最高分，
+ * 同分时取更精确的路径，即字面量优先于段内通配，段内通配优先于**
  */
 public final class HandlerRouter<R, P> {
+    /**
+     * HOST精确匹配+METHOD精确匹配，路由树匹配到此评分即可结束
+     */
+    private static final int MAX_MATCHED_SCORE = 4;
+
     /**
      * Handler Map(HTTP请求与 Action方法的映射，
      * 数据结构为：
@@ -38,6 +54,39 @@ public final class HandlerRouter<R, P> {
      */
     private final Map<String, List<Handler>> handlers;
 
+    /**
+     * 精确匹配路径，数据结构为：path->Handler[]
+     */
+    private final Map<String, Handler[]> exactHandlers;
+
+    /**
+     * 通配匹配路由树，数据结构为：METHOD->路由树根节点，
+     * 未配置请求方法的Handler会添加到所有路由树中
+     */
+    private final Map<String, PathTrie<Handler[]>> methodRoutes;
+
+    /**
+     * 只包含未配置请求方法的Handler的路由树，用于匹配非{@link Request.Method}中定义的请求方法
+     */
+    private final PathTrie<Handler[]> anyMethodRoute;
+
+    private volatile boolean hasPattern = false;
+
+    /**
+     * 路径变量最大个数，用于分配按线程复用的变量位置数组
+     */
+    private int maxVariables = 0;
+
+    /**
+     * 按线程复用的匹配上下文，匹配过程中路径变量只记录起止位置，匹配完成后才生成变量Map
+     */
+    private final ThreadLocal<RouteContext> routeContext = new ThreadLocal<RouteContext>() {
+        @Override
+        protected RouteContext initialValue() {
+            return new RouteContext();
+        }
+    };
+
     /**
      * 参数解析器
      */
@@ -50,6 +99,12 @@ public final class HandlerRouter<R, P> {
 
     public HandlerRouter() {
         this.handlers = new ConcurrentHashMap<String, List<Handler>>();
+        this.exactHandlers = new ConcurrentHashMap<String, Handler[]>();
+        this.methodRoutes = new HashMap<String, PathTrie<Handler[]>>();
+        for (Request.Method method : Request.Method.values()) {
+            this.methodRoutes.put(method.name(), new PathTrie<Handler[]>());
+        }
+        this.anyMethodRoute = new PathTrie<Handler[]>();
         this.parameterSupport = new ParameterResolverSupport();
         this.pathMatcher = new AntPathMatcher();
     }
@@ -165,7 +220,14 @@ public final class HandlerRouter<R, P> {
         if (doCheckHandlerMatched(handlerList, handler)) {
             throw new RestException("Handler " + handler + " already exists");
         }
+        // 启动时生成方法调用器，请求时直接调用
+        handler.getInvoker();
         handlerList.add(handler);
+        if (pathMatcher.isPattern(path)) {
+            doAddPatternHandler(path, handler);
+        } else {
+            exactHandlers.put(path, append(exactHandlers.get(path), handler));
+        }
         Logger.info("Mapped %s on %s", handler, doOutputMethod(handler.getMethod()));
         return true;
     }
@@ -212,42 +274,34 @@ public final class HandlerRouter<R, P> {
         String requestHost = handlerProcess.getRequestHost(request, response);
 
         // 根据请求域名、方法、路径先进行路径的精确匹配获取对应的Handler
-        List<Handler> handlerList = handlers.get(requestPath);
-        if (handlerList != null) {
+        Handler[] exactHandlerList = exactHandlers.get(requestPath);
+        if (exactHandlerList != null) {
             // 请求路径有多个匹配，则代表可能是METHOD或者HOST不同，获取METHOD+HOST匹配最精确的那个
-            return doGetMatchedHandler(handlerList, requestMethod, requestHost);
+            return doGetMatchedHandler(exactHandlerList, requestMethod, requestHost);
+        }
+        if (!hasPattern) {
+            return null;
         }
 
-        // 没有精确匹配路径，则需要遍历进行路径正则匹配
-        List<Handler> matchedHandlerList = new LinkedList<Handler>();
-        for (String path : handlers.keySet()) {
-            handlerList = handlers.get(path);
-            Iterator<Handler> handlerIterator = handlerList.iterator();
-            while (handlerIterator.hasNext()) {
-                Handler handler = handlerIterator.next();
-                boolean isPattern = handler.isPattern();
-                if (!isPattern) {
-                    // 非正则路径在前面就已经匹配，不可能在这里命中
-                    continue;
-                }
-                String handlerPath = handler.getPath();
-                // 路径必须正则参数匹配
-                if (!pathMatcher.match(handlerPath, requestPath)) {
-                    continue;
-                }
-                matchedHandlerList.add(handler);
+        // 没有精确匹配路径，则从请求方法对应的路由树中匹配
+        PathTrie<Handler[]> root = doGetMethodRoute(requestMethod);
+        RouteContext context = routeContext.get();
+        context.reset(requestMethod, requestHost, maxVariables);
+        try {
+            root.match(requestPath, context.variables, context);
+            Handler handler = context.matchedHandler;
+            // 请求路径正则也没匹配到，直接返回空
+            if (handler == null) {
+                return null;
             }
+            // 正则匹配路径参数并保存对应Url参数，如/product/{id}的正则会将/product/12请求中的12参数保存
+            handlerProcess.processVariable(request, response,
+                    context.getMatchedVariables(requestPath));
+            return handler;
+        } finally {
+            context.matchedHandler = null;
+            context.matchedNode = null;
         }
-        // 请求路径正则也没匹配到，直接返回空
-        if (matchedHandlerList.isEmpty()) {
-            return null;
-        }
-        // 请求路径有正则匹配，获取METHOD+HOST匹配最精确的那个
-        Handler handler = doGetMatchedHandler(matchedHandlerList, requestMethod, requestHost);
-        // 正则匹配路径参数并保存对应Url参数，如/product/{id}的正则会将/product/12请求中的12参数保存
-        handlerProcess.processVariable(request, response,
-                pathMatcher.getTemplateVariables(handler.getPath(), requestPath));
-        return handler;
     }
 
     public void addParameterResolver(ParameterResolver resolver) {
@@ -360,41 +414,12 @@ public final class HandlerRouter<R, P> {
      * HOST精确匹配+2分，METHOD精确匹配+2分
      * HOST泛匹配+1分，METHOD泛匹配+1分
      */
-    private Handler doGetMatchedHandler(List<Handler> matchedHandlerList, String requestMethod, String requestHost) {
+    private Handler doGetMatchedHandler(Handler[] matchedHandlerList, String requestMethod, String requestHost) {
         Handler matchedHandler = null;
         int matchedScore = 0;
-        for (Handler handler : matchedHandlerList) {
-            String handlerHost = handler.getHost();
-            Request.Method[] methods = handler.getMethods();
-            // 进行HOST匹配评分
-            int handlerScore = 0;
-            if (handlerHost.equalsIgnoreCase(requestHost)) {
-                // HOST精确匹配命中，评分+2
-                handlerScore += 2;
-            } else if (handlerHost.equals("*")) {
-                // HOST泛匹配命中，评分+1
-                handlerScore += 1;
-            }
-            // 进行METHOD匹配评分
-            if (methods.length == 0) {
-                // METHOD泛匹配命中，评分+1
-                handlerScore += 1;
-            } else {
-                boolean methodMatched = false;
-                for (int i = 0; i < methods.length; i++) {
-                    Request.Method method = methods[i];
-                    if (method.toString().equalsIgnoreCase(requestMethod)) {
-                        // METHOD精确匹配命中，评分+2
-                        handlerScore += 2;
-                        methodMatched = true;
-                        break;
-                    }
-                }
-                // METHOD没有精确匹配命中，评分-2，视为不命中
-                if (!methodMatched) {
-                    handlerScore -= 2;
-                }
-            }
+        for (int i = 0; i < matchedHandlerList.length; i++) {
+            Handler handler = matchedHandlerList[i];
+            int handlerScore = doGetHandlerScore(handler, requestMethod, requestHost);
             // 取得分最高的匹配Handler
             if (matchedScore < handlerScore) {
                 matchedScore = handlerScore;
@@ -403,4 +428,148 @@ public final class HandlerRouter<R, P> {
         }
         return matchedHandler;
     }
+
+    private static int doGetHandlerScore(Handler handler, String requestMethod, String requestHost) {
+        String handlerHost = handler.getHost();
+        Request.Method[] methods = handler.getMethods();
+        // 进行HOST匹配评分
+        int handlerScore = 0;
+        if (handlerHost.equalsIgnoreCase(requestHost)) {
+            // HOST精确匹配命中，评分+2
+            handlerScore += 2;
+        } else if (handlerHost.equals("*")) {
+            // HOST泛匹配命中，评分+1
+            handlerScore += 1;
+        }
+        // 进行METHOD匹配评分
+        if (methods.length == 0) {
+            // METHOD泛匹配命中，评分+1
+            handlerScore += 1;
+        } else {
+            boolean methodMatched = false;
+            for (int i = 0; i < methods.length; i++) {
+                Request.Method method = methods[i];
+                if (method.toString().equalsIgnoreCase(requestMethod)) {
+                    // METHOD精确匹配命中，评分+2
+                    handlerScore += 2;
+                    methodMatched = true;
+                    break;
+                }
+            }
+            // METHOD没有精确匹配命中，评分-2，视为不命中
+            if (!methodMatched) {
+                handlerScore -= 2;
+            }
+        }
+        return handlerScore;
+    }
+
+    private PathTrie<Handler[]> doGetMethodRoute(String requestMethod) {
+        if (requestMethod == null) {
+            return anyMethodRoute;
+        }
+        PathTrie<Handler[]> root = methodRoutes.get(requestMethod);
+        if (root == null) {
+            root = methodRoutes.get(requestMethod.toUpperCase(Locale.ENGLISH));
+        }
+        return root == null ? anyMethodRoute : root;
+    }
+
+    /**
+     * 将通配路径添加到对应请求方法的路由树中，未配置请求方法的添加到所有路由树
+     */
+    private synchronized void doAddPatternHandler(String path, Handler handler) {
+        Request.Method[] methods = handler.getMethods();
+        if (methods == null || methods.length == 0) {
+            for (PathTrie<Handler[]> root : methodRoutes.values()) {
+                doAddPatternHandler(root, path, handler);
+            }
+            doAddPatternHandler(anyMethodRoute, path, handler);
+        } else {
+            for (Request.Method method : methods) {
+                doAddPatternHandler(methodRoutes.get(method.name()), path, handler);
+            }
+        }
+        hasPattern = true;
+    }
+
+    private void doAddPatternHandler(PathTrie<Handler[]> root, String path, Handler handler) {
+        PathTrie.Node<Handler[]> node = root.add(path);
+        maxVariables = Math.max(maxVariables, root.getMaxVariables());
+        node.setValue(path, append(node.getValue(path), handler));
+    }
+
+    private static Handler[] append(Handler[] handlers, Handler handler) {
+        if (handlers == null) {
+            return new Handler[] {handler};
+        }
+        Handler[] newHandlers = new Handler[handlers.length + 1];
+        System.arraycopy(handlers, 0, newHandlers, 0, handlers.length);
+        newHandlers[handlers.length] = handler;
+        return newHandlers;
+    }
+
+    /**
+     * 路由匹配上下文，按线程复用，
+     * 路径变量以起止位置成对保存在数组中，匹配过程中不创建任何对象
+     */
+    private static final class RouteContext implements PathTrie.Visitor<Handler[]> {
+        private String method;
+
+        private String host;
+
+        /** 当前匹配分支的路径变量位置 */
+        private int[] variables = new int[0];
+
+        /** 评分最高的Handler对应的路径变量位置 */
+        private int[] matchedVariables = new int[0];
+
+        private Handler matchedHandler;
+
+        private PathTrie.Node<Handler[]> matchedNode;
+
+        private int matchedScore;
+
+        private void reset(String method, String host, int maxVariables) {
+            this.method = method;
+            this.host = host;
+            this.matchedHandler = null;
+            this.matchedNode = null;
+            this.matchedScore = 0;
+            int length = maxVariables << 1;
+            if (variables.length < length) {
+                variables = new int[length];
+                matchedVariables = new int[length];
+            }
+        }
+
+        /**
+         * 对路由树节点上的Handler评分，比当前匹配的Handler评分高时记录Handler及其路径变量位置，
+         * 匹配到评分最高的Handler时结束，否则继续匹配其他分支，保证与之前遍历所有路径的评分结果一致
+         */
+        @Override
+        public boolean visit(PathTrie.Node<Handler[]> node, Handler[] handlers) {
+            for (int i = 0; i < handlers.length; i++) {
+                Handler handler = handlers[i];
+                int handlerScore = doGetHandlerScore(handler, method, host);
+                if (matchedScore < handlerScore) {
+                    matchedScore = handlerScore;
+                    matchedHandler = handler;
+                    matchedNode = node;
+                    int variableLength = node.getRouteVariables().length << 1;
+                    System.arraycopy(variables, 0, matchedVariables, 0, variableLength);
+                }
+            }
+            return matchedScore >= MAX_MATCHED_SCORE;
+        }
+
+        private Map<String, String> getMatchedVariables(String path) {
+            String[] names = matchedNode.getRouteVariables();
+            Map<String, String> variableMap = new LinkedHashMap<String, String>(names.length << 1);
+            for (int i = 0; i < names.length; i++) {
+                variableMap.put(names[i], path.substring(matchedVariables[i << 1], matchedVariables[(i << 1) + 1]));
+            }
+            return variableMap;
+        }
+    }
 }
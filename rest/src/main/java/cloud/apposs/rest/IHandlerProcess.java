@@ -36,4 +36,10 @@ public interface IHandlerProcess<R, P> {
      * 请求被标记为{@link cloud.apposs.rest.annotation.Async}时的回调
      */
     void markAsync(R request, P response);
+
+    /**
+     * 异步请求处理异常且没有{@link WebExceptionResolver}解析输出时的回调，
+     * 底层需要在此结束异步请求并释放资源，避免请求一直挂起到超时
+     */
+    void asyncError(R request, P response, Throwable cause);
 }
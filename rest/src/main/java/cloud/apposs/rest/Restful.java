@@ -3,6 +3,7 @@ package cloud.apposs.rest;
 import cloud.apposs.guard.Guard;
 import cloud.apposs.guard.ResourceToken;
 import cloud.apposs.ioc.BeanFactory;
+import cloud.apposs.logger.Logger;
 import cloud.apposs.netkit.rxio.IoSubscriber;
 import cloud.apposs.netkit.rxio.RxIo;
 import cloud.apposs.rest.annotation.Action;
@@ -110,6 +111,8 @@ public final class Restful<R, P> {
         }
         // 扫描包将各个IOC组件添加进容器中
         beanFactory.load(basePackageList);
+        Logger.info("Bean Factory Load %d Beans, Scan In %d MilliSeconds, Initialize In %d MilliSeconds",
+                beanFactory.getBeanDefinitionSize(), beanFactory.getScanSpendTime(), beanFactory.getInitialSpendTime());
 
         // 初始化参数解析器，包括用户自定义的和系统定义的，
         // 只要有配置basePackage和Component注解均扫描进来
@@ -237,6 +240,23 @@ public final class Restful<R, P> {
         viewResolverSupport.removeResolver(viewResolver);
     }
 
+    /**
+     * 添加Handler监听，服务启动后添加的监听使用当前配置初始化
+     */
+    public void addHandlerListener(HandlerListener<R, P> handlerListener) {
+        if (config != null) {
+            handlerListener.initialize(config);
+        }
+        handlerListenerSupport.addListener(handlerListener);
+    }
+
+    /**
+     * 移除Handler监听
+     */
+    public void removeHandlerListener(HandlerListener<R, P> handlerListener) {
+        handlerListenerSupport.removeListener(handlerListener);
+    }
+
     /**
      * 添加拦截器
      */
@@ -285,6 +305,23 @@ public final class Restful<R, P> {
         }
     }
 
+    /**
+     * 获取Handler所在的@Action类实例，单例Bean在首次获取后缓存在Handler中，
+     * 避免每次请求都进入IOC容器的同步查找
+     */
+    private Object doGetHandlerTarget(Handler handler) {
+        Object target = handler.getTarget();
+        if (target != null) {
+            return target;
+        }
+        Class<?> clazz = handler.getClazz();
+        target = beanFactory.getBean(clazz);
+        if (!beanFactory.isPrototype(clazz)) {
+            handler.setTarget(target);
+        }
+        return target;
+    }
+
     public void renderView(Handler handler, Object result, R request, P response) throws Exception {
         renderView(handler, result, request, response, false);
     }
@@ -320,6 +357,8 @@ public final class Restful<R, P> {
             // 如果拦截器中返回false则表示该请求不通过拦截器验证，直接退出
             handlerListenerSupport.handlerStart(request, response, handler);
             if (!handlerInterceptorSupport.preAction(request, response, handler)) {
+                // 被拦截的请求同样结束监听，保证监听的开始和结束成对出现
+                handlerListenerSupport.handlerComplete(request, response, handler, null);
                 return;
             }
 
@@ -331,7 +370,7 @@ public final class Restful<R, P> {
             // 调用对应的Handler方法进行业务逻辑处理
             // 当前Handler获取的为@Action类，
             // 若为了避免每个请求共用一个@Action类，可以在@Action类中再添加@Prototype
-            Object target = beanFactory.getBean(handler.getClazz());
+            Object target = doGetHandlerTarget(handler);
             result = invokeHandler(handler, target, handlerProcess, request, response);
 
             // 请求处理结束后的拦截器处理
@@ -341,7 +380,7 @@ public final class Restful<R, P> {
             if (result instanceof RxIo<?>) {
                 // 如果是RxIo响应式编程输出，则采用响应式输出
                 RxIo<?> rxIo = (RxIo<?>) result;
-                rxIo.subscribe(new RxIoSubcriber(handler, request, response)).start();
+                rxIo.subscribe(new RxIoSubcriber(handler, handlerProcess, request, response)).start();
             } else {
                 // 如果内部业务处理采用异步则直接退出不阻塞主线程，让业务逻辑在处理完成之后再响应输出
                 // 注意此处和RxIo的区别是此Handler方法中返回值为非RxIo异步框架，只是标明为@Async，
@@ -380,6 +419,11 @@ public final class Restful<R, P> {
 
             handlerInterceptorSupport.afterCompletion(request, response, handler, result, ex);
             handlerListenerSupport.handlerComplete(request, response, handler, result, ex);
+            // 异步请求已经交由底层异步输出，异常直接结束异步请求，不再抛出到请求线程
+            if (handler != null && handler.isAsync()) {
+                handlerProcess.asyncError(request, response, ex);
+                return;
+            }
             throw new RestException("Request processing failed by '" + ex + "'", ex);
         }
     }
@@ -407,12 +451,15 @@ public final class Restful<R, P> {
     private class RxIoSubcriber implements IoSubscriber<Object> {
         private final Handler handler;
 
+        private final IHandlerProcess<R, P> handlerProcess;
+
         private final R request;
 
         private final P response;
 
-        private RxIoSubcriber(Handler handler, R request, P response) {
+        private RxIoSubcriber(Handler handler, IHandlerProcess<R, P> handlerProcess, R request, P response) {
             this.handler = handler;
+            this.handlerProcess = handlerProcess;
             this.request = request;
             this.response = response;
         }
@@ -449,8 +496,11 @@ public final class Restful<R, P> {
                     e.printStackTrace();
                 }
             } else {
-                // 没有默认的异常处理器则直接终端输出异常
+                // 没有默认的异常处理器则直接终端输出异常，并由底层结束异步请求
                 cause.printStackTrace();
+                handlerInterceptorSupport.afterCompletion(request, response, handler, null, cause);
+                handlerListenerSupport.handlerComplete(request, response, handler, null, cause);
+                handlerProcess.asyncError(request, response, cause);
             }
         }
     }
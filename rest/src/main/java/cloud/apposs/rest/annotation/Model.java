@@ -11,4 +11,8 @@ import java.lang.annotation.Target;
 @Target(ElementType.PARAMETER)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Model {
+    /**
+     * 是否快速失败，为false时校验完所有字段后汇总抛出所有不合法字段
+     */
+    boolean failFast() default true;
 }
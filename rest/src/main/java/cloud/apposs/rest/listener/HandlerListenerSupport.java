@@ -20,6 +20,10 @@ public final class HandlerListenerSupport<R, P> {
     public void addListener(HandlerListener listener) {
     	listenerList.add(listener);
     }
+
+    public void removeListener(HandlerListener listener) {
+    	listenerList.remove(listener);
+    }
     
     /**
      * 请求开始时的监听
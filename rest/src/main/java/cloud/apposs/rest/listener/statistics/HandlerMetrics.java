@@ -0,0 +1,90 @@
+package cloud.apposs.rest.listener.statistics;
+
+import cloud.apposs.rest.Handler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个{@link Handler}的运行指标，包括请求数、异常数、正在处理的请求数和请求耗时直方图，耗时单位为纳秒
+ */
+public final class HandlerMetrics {
+    private final Handler handler;
+
+    private final AtomicLong requestCount = new AtomicLong(0);
+
+    private final AtomicLong errorCount = new AtomicLong(0);
+
+    private final AtomicInteger inflight = new AtomicInteger(0);
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * 间隔快照的统计周期，单位毫秒
+     */
+    private final long interval;
+
+    private long lastIntervalTime = 0;
+
+    private LatencyHistogram.Snapshot intervalSnapshot;
+
+    public HandlerMetrics(Handler handler, long interval) {
+        this.handler = handler;
+        this.interval = interval;
+    }
+
+    public Handler getHandler() {
+        return handler;
+    }
+
+    public void start() {
+        requestCount.incrementAndGet();
+        inflight.incrementAndGet();
+    }
+
+    /**
+     * 请求结束
+     *
+     * @param spendTime 请求耗时，单位纳秒
+     * @param error     请求是否异常
+     */
+    public void complete(long spendTime, boolean error) {
+        inflight.decrementAndGet();
+        if (error) {
+            errorCount.incrementAndGet();
+        }
+        latency.record(spendTime);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 获取累计耗时快照
+     */
+    public LatencyHistogram.Snapshot getSnapshot() {
+        return latency.snapshot();
+    }
+
+    /**
+     * 获取最近一个统计周期的耗时快照，距上次快照超过统计周期时才生成新的快照，
+     * 避免多个统计方频繁获取时把统计周期切得过短
+     */
+    public synchronized LatencyHistogram.Snapshot getIntervalSnapshot() {
+        long now = System.currentTimeMillis();
+        if (intervalSnapshot == null || now - lastIntervalTime >= interval) {
+            intervalSnapshot = latency.intervalSnapshot();
+            lastIntervalTime = now;
+        }
+        return intervalSnapshot;
+    }
+}
@@ -0,0 +1,85 @@
+package cloud.apposs.rest.listener.statistics;
+
+import cloud.apposs.rest.Handler;
+import cloud.apposs.rest.listener.HandlerListenerAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按{@link Handler}统计请求指标的监听，每个Handler一份{@link HandlerMetrics}，
+ * 请求开始时间由子类存储在请求上下文中，需保证存储不产生额外对象，
+ * 除每个Handler第一次请求创建指标对象外，统计过程不分配内存
+ */
+public abstract class HandlerMetricsListener<R, P> extends HandlerListenerAdapter<R, P> {
+    /**
+     * 默认间隔快照统计周期，单位毫秒
+     */
+    public static final long DEFAULT_INTERVAL = 60 * 1000L;
+
+    private final ConcurrentHashMap<Handler, HandlerMetrics> metrics = new ConcurrentHashMap<Handler, HandlerMetrics>();
+
+    private final long interval;
+
+    public HandlerMetricsListener() {
+        this(DEFAULT_INTERVAL);
+    }
+
+    public HandlerMetricsListener(long interval) {
+        this.interval = interval;
+    }
+
+    @Override
+    public void handlerStart(R request, P response, Handler handler) {
+        if (handler == null) {
+            return;
+        }
+        HandlerMetrics handlerMetrics = metrics.get(handler);
+        if (handlerMetrics == null) {
+            handlerMetrics = new HandlerMetrics(handler, interval);
+            HandlerMetrics previous = metrics.putIfAbsent(handler, handlerMetrics);
+            if (previous != null) {
+                handlerMetrics = previous;
+            }
+        }
+        handlerMetrics.start();
+        setStartTime(request, response, handler, System.nanoTime());
+    }
+
+    @Override
+    public void handlerComplete(R request, P response, Handler handler, Object result, Throwable t) {
+        if (handler == null) {
+            return;
+        }
+        long startTime = getStartTime(request, response, handler);
+        HandlerMetrics handlerMetrics = metrics.get(handler);
+        if (startTime == 0 || handlerMetrics == null) {
+            return;
+        }
+        // 重置开始时间，避免异步视图渲染异常时重复统计
+        setStartTime(request, response, handler, 0);
+        handlerMetrics.complete(System.nanoTime() - startTime, t != null);
+    }
+
+    /**
+     * 获取所有Handler的指标
+     */
+    public List<HandlerMetrics> getMetrics() {
+        return new ArrayList<HandlerMetrics>(metrics.values());
+    }
+
+    public HandlerMetrics getMetrics(Handler handler) {
+        return metrics.get(handler);
+    }
+
+    /**
+     * 存储请求开始时间，单位纳秒，为0表示清除
+     */
+    public abstract void setStartTime(R request, P response, Handler handler, long startTime);
+
+    /**
+     * 获取请求开始时间，单位纳秒，不存在时返回0
+     */
+    public abstract long getStartTime(R request, P response, Handler handler);
+}
@@ -0,0 +1,178 @@
+package cloud.apposs.rest.listener.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁耗时直方图，参考HdrHistogram的对数分桶实现，桶结构如下：
+ * <pre>
+ * 1、[0, 64)的值每个值一个桶，精确记录
+ * 2、之后每个2的幂区间[2^n, 2^(n+1))平均分为32个桶，相对误差不超过1/32
+ * 3、最大记录{@link #MAX_TRACKABLE_VALUE}，超过的值按最大值记录，以纳秒计约为18分钟
+ * </pre>
+ * 记录时只做桶下标计算和原子累加，不加锁也不分配内存，可直接在请求线程中调用；
+ * 统计时通过{@link #snapshot()}获取累计快照，通过{@link #intervalSnapshot()}获取与上次间隔快照之间的增量快照
+ */
+public final class LatencyHistogram {
+    /**
+     * 每个2的幂区间的分桶位数
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 精确记录的值个数
+     */
+    private static final int LINEAR_BUCKET_COUNT = SUB_BUCKET_COUNT << 1;
+
+    /**
+     * 可记录的最大值
+     */
+    public static final long MAX_TRACKABLE_VALUE = (1L << 40) - 1;
+
+    private static final int BUCKET_LENGTH = indexOf(MAX_TRACKABLE_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_LENGTH);
+
+    private final AtomicLong sum = new AtomicLong(0);
+
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * 上次间隔快照时的累计桶数据，只在统计线程中访问
+     */
+    private long[] lastCounts = new long[BUCKET_LENGTH];
+
+    private long lastSum = 0;
+
+    /**
+     * 记录一次耗时
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_TRACKABLE_VALUE) {
+            value = MAX_TRACKABLE_VALUE;
+        }
+        counts.incrementAndGet(indexOf(value));
+        sum.addAndGet(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * 获取从创建到当前的累计快照
+     */
+    public Snapshot snapshot() {
+        long[] current = new long[BUCKET_LENGTH];
+        for (int i = 0; i < BUCKET_LENGTH; i++) {
+            current[i] = counts.get(i);
+        }
+        return new Snapshot(current, sum.get(), max.get());
+    }
+
+    /**
+     * 获取从上次调用到当前的增量快照，第一次调用时为累计快照
+     */
+    public synchronized Snapshot intervalSnapshot() {
+        long[] current = new long[BUCKET_LENGTH];
+        long[] interval = new long[BUCKET_LENGTH];
+        for (int i = 0; i < BUCKET_LENGTH; i++) {
+            current[i] = counts.get(i);
+            interval[i] = current[i] - lastCounts[i];
+        }
+        long currentSum = sum.get();
+        Snapshot snapshot = new Snapshot(interval, currentSum - lastSum, max.get());
+        lastCounts = current;
+        lastSum = currentSum;
+        return snapshot;
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * 获取桶内可记录的最大值
+     */
+    static long highestValueAt(int index) {
+        if (index < LINEAR_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - LINEAR_BUCKET_COUNT;
+        int shift = offset / SUB_BUCKET_COUNT + 1;
+        long top = offset % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * 直方图快照，快照生成后数据不再变化
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long max;
+
+        private Snapshot(long[] counts, long sum, long max) {
+            long count = 0;
+            int highest = -1;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    count += counts[i];
+                    highest = i;
+                }
+            }
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            // 快照的最大值取最高非空桶的上界，且不超过全局记录的最大值
+            this.max = highest < 0 ? 0 : Math.min(highestValueAt(highest), max);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * 获取百分位值，例如99.9表示p999，返回值所在桶的上界
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            double requested = Math.min(Math.max(percentile, 0.0), 100.0);
+            long target = Math.max(1, (long) Math.ceil(requested / 100.0 * count));
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                total += counts[i];
+                if (total >= target) {
+                    return Math.min(highestValueAt(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
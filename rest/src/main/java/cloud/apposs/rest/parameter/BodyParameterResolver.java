@@ -24,7 +24,8 @@ public abstract class BodyParameterResolver<R, P> implements ParameterResolver<R
     public Object resolveArgument(Parameter parameter, R request, P response) throws Exception {
         Param values = getParameterValues(parameter, request, response);
         Class<?> instance = parameter.getType();
-        return Validator.deserialize(instance, values);
+        Model model = (Model) parameter.getAnnotation();
+        return Validator.deserialize(instance, values, model.failFast());
     }
 
     /**
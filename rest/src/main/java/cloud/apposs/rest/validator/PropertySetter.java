@@ -0,0 +1,83 @@
+package cloud.apposs.rest.validator;
+
+import cloud.apposs.util.ReflectUtil;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 对象属性setXXX方法调用器，
+ * public类的public setXXX方法通过LambdaMetafactory生成调用实现，等同于直接方法调用，
+ * 其他方法或者值类型与参数类型不一致需要反射做类型转换时，仍然使用反射调用
+ */
+final class PropertySetter {
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Method method;
+
+    /**
+     * 参数类型，基本类型转换为对应包装类型
+     */
+    private final Class<?> valueType;
+
+    private final boolean primitive;
+
+    private final Setter setter;
+
+    PropertySetter(Method method) {
+        Class<?> parameterType = method.getParameterTypes()[0];
+        this.method = method;
+        this.primitive = parameterType.isPrimitive();
+        this.valueType = MethodType.methodType(parameterType).wrap().returnType();
+        this.setter = doCompileSetter(method, valueType);
+        ReflectUtil.makeAccessible(method);
+    }
+
+    void set(Object model, Object value) throws Exception {
+        if (setter != null && (value == null ? !primitive : valueType.isInstance(value))) {
+            setter.set(model, value);
+            return;
+        }
+        ReflectUtil.invokeMethod(model, method, value);
+    }
+
+    private static Setter doCompileSetter(Method method, Class<?> valueType) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        int modifiers = method.getModifiers();
+        if (Modifier.isStatic(modifiers) || !Modifier.isPublic(modifiers)
+                || !Modifier.isPublic(declaringClass.getModifiers())
+                || !isClassVisible(declaringClass) || !isClassVisible(valueType)) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "set",
+                    MethodType.methodType(Setter.class), SETTER_TYPE, handle,
+                    MethodType.methodType(void.class, declaringClass, valueType));
+            return (Setter) callSite.getTarget().invoke();
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    private static boolean isClassVisible(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        try {
+            return Class.forName(clazz.getName(), false, PropertySetter.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    interface Setter {
+        void set(Object model, Object value);
+    }
+}
@@ -0,0 +1,36 @@
+package cloud.apposs.rest.validator;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 参数校验异常，非快速失败模式下{@link Validator}校验完所有字段后，将所有字段的校验异常汇总抛出
+ */
+public class ValidationException extends IllegalArgumentException {
+    private static final long serialVersionUID = 4392271390154612281L;
+
+    private final List<Exception> errors;
+
+    public ValidationException(List<Exception> errors) {
+        super(doBuildMessage(errors));
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * 获取所有字段的校验异常，按校验顺序
+     */
+    public List<Exception> getErrors() {
+        return errors;
+    }
+
+    private static String doBuildMessage(List<Exception> errors) {
+        StringBuilder message = new StringBuilder(64);
+        for (int i = 0; i < errors.size(); i++) {
+            if (i > 0) {
+                message.append("; ");
+            }
+            message.append(errors.get(i).getMessage());
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package cloud.apposs.rest.validator;
+
+import cloud.apposs.util.Param;
+import cloud.apposs.util.ReflectUtil;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对象校验计划，每个类只在第一次校验时通过反射解析一次，包括：
+ * 1、类中声明的setXXX方法及其调用器
+ * 2、属性对应的字段和字段上的注解及对应的{@link IChecker}
+ * 3、List属性的泛型类型
+ * 之后的校验只按计划取值、校验、赋值，不再反射读取类结构
+ */
+final class ValidationPlan {
+    /** 属性为普通数据类型 */
+    static final int PROPERTY_GENERIC = 0;
+
+    /** 属性为普通数据类型的List */
+    static final int PROPERTY_GENERIC_LIST = 1;
+
+    /** 属性为自定义对象的List */
+    static final int PROPERTY_OBJECT_LIST = 2;
+
+    /** 属性为Param对象 */
+    static final int PROPERTY_PARAM = 3;
+
+    /** 属性为自定义对象或者手动注入实例 */
+    static final int PROPERTY_OBJECT = 4;
+
+    private static final Property[] EMPTY_PROPERTIES = new Property[0];
+
+    private static final Annotation[] EMPTY_ANNOTATIONS = new Annotation[0];
+
+    private static final IChecker[] EMPTY_CHECKERS = new IChecker[0];
+
+    private final Class<?> clazz;
+
+    /**
+     * 类中声明的属性，不包括父类
+     */
+    private final Property[] properties;
+
+    ValidationPlan(Class<?> clazz, Map<Class<? extends Annotation>, IChecker> checkers) throws Exception {
+        this.clazz = clazz;
+        Map<String, Method> methods = ReflectUtil.getDeclaredMethodMap(clazz);
+        List<Property> propertyList = new ArrayList<Property>(methods.size());
+        for (Map.Entry<String, Method> entry : methods.entrySet()) {
+            Property property = doBuildProperty(entry.getKey(), entry.getValue(), checkers);
+            if (property != null) {
+                propertyList.add(property);
+            }
+        }
+        this.properties = propertyList.isEmpty() ? EMPTY_PROPERTIES : propertyList.toArray(new Property[propertyList.size()]);
+    }
+
+    Property[] getProperties() {
+        return properties;
+    }
+
+    private Property doBuildProperty(String name, Method method,
+                Map<Class<? extends Annotation>, IChecker> checkers) throws Exception {
+        Class<?>[] methodTypes = method.getParameterTypes();
+        // setXXX(Object obj)方法必须要有参数
+        if (methodTypes.length != 1) {
+            return null;
+        }
+
+        Class<?> type = methodTypes[0];
+        if (ReflectUtil.isGenericType(type)) {
+            return new Property(PROPERTY_GENERIC, name, method, clazz.getDeclaredField(name), null, checkers);
+        }
+        if (type.equals(List.class)) {
+            Field field = clazz.getDeclaredField(name);
+            field.setAccessible(true);
+            // 获取List泛型类型
+            ParameterizedType pt = (ParameterizedType) field.getGenericType();
+            Class<?> genericClazz = (Class<?>) pt.getActualTypeArguments()[0];
+            int kind = ReflectUtil.isGenericType(genericClazz) ? PROPERTY_GENERIC_LIST : PROPERTY_OBJECT_LIST;
+            return new Property(kind, name, method, field, genericClazz, checkers);
+        }
+        if (type.equals(Param.class)) {
+            Field field = clazz.getDeclaredField(name);
+            field.setAccessible(true);
+            return new Property(PROPERTY_PARAM, name, method, field, null, checkers);
+        }
+        // 自定义对象只有在请求值为Param时才需要字段，字段不存在时在校验时抛出异常
+        Field field = null;
+        if (ReflectUtil.isFieldExist(clazz, name)) {
+            field = clazz.getDeclaredField(name);
+            field.setAccessible(true);
+        }
+        return new Property(PROPERTY_OBJECT, name, method, field, null, checkers);
+    }
+
+    /**
+     * 对象属性，对应一个setXXX方法
+     */
+    static final class Property {
+        final int kind;
+
+        final String name;
+
+        final PropertySetter setter;
+
+        final Field field;
+
+        /**
+         * List属性的泛型类型
+         */
+        final Class<?> elementClazz;
+
+        /**
+         * 字段上有对应检查器的注解，与checkers一一对应
+         */
+        final Annotation[] annotations;
+
+        final IChecker[] checkers;
+
+        private Property(int kind, String name, Method method, Field field, Class<?> elementClazz,
+                    Map<Class<? extends Annotation>, IChecker> checkerMap) {
+            this.kind = kind;
+            this.name = name;
+            this.setter = new PropertySetter(method);
+            this.field = field;
+            this.elementClazz = elementClazz;
+            // 自定义对象属性不做字段校验
+            if (field == null || kind == PROPERTY_OBJECT) {
+                this.annotations = EMPTY_ANNOTATIONS;
+                this.checkers = EMPTY_CHECKERS;
+                return;
+            }
+            List<Annotation> annotationList = new ArrayList<Annotation>(2);
+            List<IChecker> checkerList = new ArrayList<IChecker>(2);
+            Annotation[] fieldAnnotations = field.getAnnotations();
+            for (int i = 0; i < fieldAnnotations.length; i++) {
+                Annotation annotation = fieldAnnotations[i];
+                IChecker checker = checkerMap.get(annotation.annotationType());
+                if (checker != null) {
+                    annotationList.add(annotation);
+                    checkerList.add(checker);
+                }
+            }
+            this.annotations = annotationList.toArray(new Annotation[annotationList.size()]);
+            this.checkers = checkerList.toArray(new IChecker[checkerList.size()]);
+        }
+    }
+}
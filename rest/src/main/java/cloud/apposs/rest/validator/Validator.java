@@ -3,21 +3,19 @@ package cloud.apposs.rest.validator;
 import cloud.apposs.rest.validator.checker.*;
 import cloud.apposs.rest.validator.checker.Number;
 import cloud.apposs.util.Param;
-import cloud.apposs.util.ReflectUtil;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * OOP验证器，将值映射成对象并进行对象内的字段合法性校验，主要用于
  * 1、restful请求中序列化对象并自动校验参数
  * 2、通过对象一眼便可以看出请求的是什么参数，参数要求格式是什么
+ * 每个类的字段、注解和检查器只在第一次校验时解析并缓存为{@link ValidationPlan}，之后的校验不再反射读取类结构，
+ * 校验支持快速失败(遇到第一个不合法字段即抛出异常)和全部校验(校验完所有字段后汇总抛出{@link ValidationException})两种模式
  * 参考：https://blog.csdn.net/justry_deng/article/details/86571671
  */
 public final class Validator {
@@ -25,7 +23,7 @@ public final class Validator {
      * 字段解析器列表，业务方也可以自定义并添加
      */
     private static final Map<Class<? extends Annotation>, IChecker> checkers =
-            new HashMap<Class<? extends Annotation>, IChecker>();
+            new ConcurrentHashMap<Class<? extends Annotation>, IChecker>();
     static {
         checkers.put(NotNull.class, new NotNullChecker());
         checkers.put(NotEmpty.class, new NotEmptyChecker());
@@ -40,21 +38,38 @@ public final class Validator {
     }
 
     /**
-     * 将json数组解析为对象并校验对象参数合法性
+     * 类校验计划缓存，字段解析器变更时清空重建
+     */
+    private static final Map<Class<?>, ValidationPlan> plans = new ConcurrentHashMap<Class<?>, ValidationPlan>();
+
+    /**
+     * 将json数组解析为对象并校验对象参数合法性，遇到第一个不合法字段即抛出异常
      */
     public static <T> T deserialize(Class<T> clazzType, Param document) throws Exception {
+        return deserialize(clazzType, document, true);
+    }
+
+    /**
+     * 将json数组解析为对象并校验对象参数合法性
+     *
+     * @param  failFast 是否快速失败，为false时校验完所有字段后将所有不合法字段汇总抛出{@link ValidationException}
+     */
+    public static <T> T deserialize(Class<T> clazzType, Param document, boolean failFast) throws Exception {
         if (clazzType == null || document == null) {
             throw new IllegalArgumentException();
         }
 
-        // 如果Bean类有继承，递归解析反射所有继承类方法
+        // 如果Bean类有继承，递归解析所有继承类属性
         T instance = clazzType.newInstance();
+        List<Exception> errors = failFast ? null : new LinkedList<Exception>();
         Class<?> clazz = instance.getClass();
         do {
-            Map<String, Method> methods = ReflectUtil.getDeclaredMethodMap(clazz);
-            doParseOptional(document, methods, instance, clazz);
+            doParseOptional(document, getPlan(clazz), instance, errors);
             clazz = clazz.getSuperclass();
         } while (clazz != null);
+        if (errors != null && !errors.isEmpty()) {
+            throw new ValidationException(errors);
+        }
         return instance;
     }
 
@@ -62,148 +77,147 @@ public final class Validator {
      * 添加字段解析器
      */
     public static IChecker addChecker(Class<? extends Annotation> annotation, IChecker checker) {
-        return checkers.put(annotation, checker);
+        IChecker previous = checkers.put(annotation, checker);
+        plans.clear();
+        return previous;
     }
 
     /**
      * 移除字段解析器
      */
     public static IChecker removeChecker(Class<? extends Annotation> annotation) {
-        return checkers.remove(annotation);
+        IChecker previous = checkers.remove(annotation);
+        plans.clear();
+        return previous;
     }
 
-    private static void doParseOptional(Param document, Map<String, Method> methods, Object object, Class<?> clazz) throws Exception {
-        for (Map.Entry<String, Method> entry : methods.entrySet()) {
-            String methodName = entry.getKey();
-            Method method = entry.getValue();
-            doParsePropertyNode(document, methodName, object, clazz, method);
+    private static ValidationPlan getPlan(Class<?> clazz) throws Exception {
+        ValidationPlan plan = plans.get(clazz);
+        if (plan == null) {
+            plan = new ValidationPlan(clazz, checkers);
+            plans.put(clazz, plan);
         }
+        return plan;
     }
 
-    @SuppressWarnings("unchecked")
-    private static boolean doParsePropertyNode(Param document, String methodName,
-                Object model, Class<?> modelClazz, Method method) throws Exception {
-        // 解析XML PROPERTY属性值并反射调用到类中
-        Class<?>[] methodTypes = method.getParameterTypes();
-        // setXXX(Object obj)方法必须要有参数
-        if (methodTypes.length != 1) {
-            return false;
+    private static void doParseOptional(Param document, ValidationPlan plan,
+                Object model, List<Exception> errors) throws Exception {
+        ValidationPlan.Property[] properties = plan.getProperties();
+        for (int i = 0; i < properties.length; i++) {
+            doParsePropertyNode(document, properties[i], model, errors);
         }
+    }
 
-        if (ReflectUtil.isGenericType(methodTypes[0])) {
-            // 对象属性为普通数据类型
-            Object nodeVal = document.getObject(methodName);
-            // 检查对应的字段是否有参数检查器
-            if (method.getName().startsWith("set")) {
-                Field field = modelClazz.getDeclaredField(methodName);
-                Annotation[] annotations = field.getAnnotations();
-                for (int i = 0; i < annotations.length; i++) {
-                    Annotation annotation = annotations[i];
-                    IChecker checker = checkers.get(annotation.annotationType());
-                    if (checker != null) {
-                        nodeVal = checker.check(field, annotation, nodeVal);
-                    }
-                }
-            }
-            if (nodeVal != null) {
-                method.invoke(model, nodeVal);
-            }
-        } else if (methodTypes[0].equals(List.class)) {
-            // 对象属性为List对象
-            Field field = modelClazz.getDeclaredField(methodName);
-            field.setAccessible(true);
-            // 获取List泛型类型
-            ParameterizedType pt = (ParameterizedType)field.getGenericType();
-            Class<?> genericClazz = (Class<?>)pt.getActualTypeArguments()[0];
-            if (ReflectUtil.isGenericType(genericClazz)) {
-                // List值为普通数据类型，直接赋值List
-                Object nodeVal = document.getObject(methodName);
-                Annotation[] annotations = field.getAnnotations();
-                for (int i = 0; i < annotations.length; i++) {
-                    Annotation annotation = annotations[i];
-                    IChecker checker = checkers.get(annotation.annotationType());
-                    if (checker != null) {
-                        nodeVal = checker.check(field, annotation, nodeVal);
-                    }
+    @SuppressWarnings("unchecked")
+    private static boolean doParsePropertyNode(Param document, ValidationPlan.Property property,
+                Object model, List<Exception> errors) throws Exception {
+        String name = property.name;
+        switch (property.kind) {
+            case ValidationPlan.PROPERTY_GENERIC:
+            case ValidationPlan.PROPERTY_GENERIC_LIST: {
+                // 对象属性为普通数据类型或者普通数据类型的List，直接赋值
+                Object nodeVal = document.getObject(name);
+                try {
+                    nodeVal = doCheck(property, nodeVal);
+                } catch (Exception e) {
+                    return doHandleError(e, errors);
                 }
                 if (nodeVal != null) {
-                    method.invoke(model, nodeVal);
+                    property.setter.set(model, nodeVal);
                 }
-            } else {
+                return true;
+            }
+            case ValidationPlan.PROPERTY_OBJECT_LIST: {
                 // List值为自定义对象类型，递归解析对象并添加到List中
-                List<Object> fieldList = (List<Object>) field.get(model);
+                List<Object> fieldList = (List<Object>) property.field.get(model);
                 if (fieldList == null) {
                     fieldList = new LinkedList<Object>();
-                    method.invoke(model, fieldList);
+                    property.setter.set(model, fieldList);
                 }
-                List<Param> childDocList = document.getList(methodName);
-                Annotation[] annotations = field.getAnnotations();
-                for (int i = 0; i < annotations.length; i++) {
-                    Annotation annotation = annotations[i];
-                    IChecker checker = checkers.get(annotation.annotationType());
-                    if (checker != null) {
-                        checker.check(field, annotation, childDocList);
-                    }
+                List<Param> childDocList = document.getList(name);
+                try {
+                    doCheck(property, childDocList);
+                } catch (Exception e) {
+                    return doHandleError(e, errors);
                 }
                 if (childDocList == null) {
                     return false;
                 }
-                Map<String, Method> modelMethods = ReflectUtil.getDeclaredMethodMap(genericClazz);
+                Class<?> elementClazz = property.elementClazz;
+                ValidationPlan elementPlan = getPlan(elementClazz);
                 for (int i = 0; i < childDocList.size(); i++) {
-                    Object fieldObject = genericClazz.newInstance();
+                    Object fieldObject = elementClazz.newInstance();
                     Param childDoc = childDocList.get(i);
-                    doParseOptional(childDoc, modelMethods, fieldObject, fieldObject.getClass());
+                    doParseOptional(childDoc, elementPlan, fieldObject, errors);
                     fieldList.add(fieldObject);
                 }
+                return true;
             }
-        } else if (methodTypes[0].equals(Param.class)) {
-            // 对象属性为Param对象
-            Field field = modelClazz.getDeclaredField(methodName);
-            field.setAccessible(true);
-            Param fieldParam = (Param) field.get(model);
-            if (fieldParam == null) {
-                fieldParam = new Param();
-                method.invoke(model, fieldParam);
-            }
-            Param param = document.getParam(methodName);
-            Annotation[] annotations = field.getAnnotations();
-            for (int i = 0; i < annotations.length; i++) {
-                Annotation annotation = annotations[i];
-                IChecker checker = checkers.get(annotation.annotationType());
-                if (checker != null) {
-                    checker.check(field, annotation, param);
+            case ValidationPlan.PROPERTY_PARAM: {
+                // 对象属性为Param对象
+                Param fieldParam = (Param) property.field.get(model);
+                if (fieldParam == null) {
+                    fieldParam = new Param();
+                    property.setter.set(model, fieldParam);
                 }
+                Param param = document.getParam(name);
+                try {
+                    doCheck(property, param);
+                } catch (Exception e) {
+                    return doHandleError(e, errors);
+                }
+                if (param == null) {
+                    return false;
+                }
+                for (Map.Entry<String, Object> entry : param.entrySet()) {
+                    fieldParam.put(entry.getKey(), entry.getValue());
+                }
+                return true;
             }
-            if (param == null) {
-                return false;
-            }
-            for (Map.Entry<String, Object> entry : param.entrySet()) {
-                fieldParam.put(entry.getKey(), entry.getValue());
-            }
-        } else {
-            Object childObj = document.getObject(methodName);
-            if (childObj instanceof Param) {
+            default: {
+                Object childObj = document.getObject(name);
+                if (!(childObj instanceof Param)) {
+                    // 对象属性为手动注入实例
+                    property.setter.set(model, childObj);
+                    return true;
+                }
                 // 对象属性为自定义对象
                 // 通过读取方法名在JSON中的配置递归解析JSON节点
-                Field field = modelClazz.getDeclaredField(methodName);
+                if (property.field == null) {
+                    throw new NoSuchFieldException(name);
+                }
                 // 先获取属性上的值，没有则new一个对象，注意属性对象必须提供空构造函数
-                field.setAccessible(true);
-                Object fieldObject = field.get(model);
-                // 属性值为空并且没有setXXX方法则不走反射
+                Object fieldObject = property.field.get(model);
                 if (fieldObject == null) {
-                    fieldObject = field.getType().newInstance();
-                    method.invoke(model, fieldObject);
+                    fieldObject = property.field.getType().newInstance();
+                    property.setter.set(model, fieldObject);
                 }
-                // 有可能属性类继承新增了方法，需要重新获取
-                Class<?> fieldClazz = fieldObject.getClass();
-                Map<String, Method> fieldMethods = ReflectUtil.getDeclaredMethodMap(fieldClazz);
-                doParseOptional((Param) childObj, fieldMethods, fieldObject, fieldClazz);
-            } else {
-                // 对象属性为手动注入实例
-                method.invoke(model, childObj);
+                // 有可能属性类继承新增了方法，需要按实际类型获取
+                doParseOptional((Param) childObj, getPlan(fieldObject.getClass()), fieldObject, errors);
+                return true;
             }
         }
+    }
 
-        return true;
+    /**
+     * 按字段上的注解依次校验并转换值
+     */
+    private static Object doCheck(ValidationPlan.Property property, Object value) throws Exception {
+        IChecker[] checkers = property.checkers;
+        for (int i = 0; i < checkers.length; i++) {
+            value = checkers[i].check(property.field, property.annotations[i], value);
+        }
+        return value;
+    }
+
+    /**
+     * 快速失败模式直接抛出异常，否则记录异常并跳过该字段继续校验
+     */
+    private static boolean doHandleError(Exception e, List<Exception> errors) throws Exception {
+        if (errors == null) {
+            throw e;
+        }
+        errors.add(e);
+        return false;
     }
 }
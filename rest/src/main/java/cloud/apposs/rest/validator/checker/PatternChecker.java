@@ -5,9 +5,17 @@ import cloud.apposs.util.StrUtil;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 
 public class PatternChecker implements IChecker {
+    /**
+     * 已编译的正则表达式缓存，避免每次校验都重新编译
+     */
+    private final Map<String, java.util.regex.Pattern> patterns =
+            new ConcurrentHashMap<String, java.util.regex.Pattern>();
+
     @Override
     public Object check(Field field, Annotation annotation, Object value) {
         Pattern anno = (Pattern) annotation;
@@ -24,7 +32,12 @@ public class PatternChecker implements IChecker {
             }
         }
 
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(anno.regex());
+        String regex = anno.regex();
+        java.util.regex.Pattern pattern = patterns.get(regex);
+        if (pattern == null) {
+            pattern = java.util.regex.Pattern.compile(regex);
+            patterns.put(regex, pattern);
+        }
         Matcher matcher = pattern.matcher(value.toString());
         if (!matcher.matches()) {
             throw new IllegalArgumentException("parameter " + field.getName() + " unmatch for pattern " + anno.regex());
@@ -0,0 +1,17 @@
+package cloud.apposs.rest.view;
+
+/**
+ * 按返回值类型预先过滤的视图解析器，
+ * 视图解析管理器会按返回值类型缓存可能匹配的解析器列表，请求时只在该列表内调用{@link #supports(Object, Object, Object)}，
+ * 避免每次请求都遍历全部视图解析器
+ */
+public interface TypedViewResolver<R, P> extends ViewResolver<R, P> {
+    /**
+     * 该类型的返回值是否可能被此视图解析器支持，
+     * 返回false表示该类型的返回值一定不支持，返回true时仍由{@link #supports(Object, Object, Object)}做最终判断，
+     * 注意该方法的结果只能依赖返回值类型，不能依赖请求和返回值内容
+     *
+     * @param resultType 返回值类型，返回值为null时传递null
+     */
+    boolean supportsType(Class<?> resultType);
+}
@@ -2,26 +2,43 @@ package cloud.apposs.rest.view;
 
 import cloud.apposs.util.SysUtil;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 视图解析管理器
  */
 public final class ViewResolverSupport<R, P> {
+    /**
+     * 返回值为null时在匹配缓存中的Key
+     */
+    private static final Class<?> NULL_RESULT_TYPE = Void.class;
+
     /**
      * 视图解析器列表
      */
     private final List<ViewResolver<R, P>> viewResolverList = new LinkedList<ViewResolver<R, P>>();
 
-    public void addResolver(ViewResolver<R, P> viewResolver) {
+    /**
+     * 返回值类型 -> 可能匹配的视图解析器列表，
+     * 列表保持视图解析器的注册顺序，剔除了{@link TypedViewResolver#supportsType(Class)}明确不支持的解析器，
+     * 视图解析器增删时清空
+     */
+    private final Map<Class<?>, ViewResolver<R, P>[]> resolverCache = new ConcurrentHashMap<Class<?>, ViewResolver<R, P>[]>();
+
+    public synchronized void addResolver(ViewResolver<R, P> viewResolver) {
         SysUtil.checkNotNull(viewResolver, "viewResolver");
         viewResolverList.add(viewResolver);
+        resolverCache.clear();
     }
 
-    public void removeResolver(ViewResolver<R, P> viewResolver) {
+    public synchronized void removeResolver(ViewResolver<R, P> viewResolver) {
         SysUtil.checkNotNull(viewResolver, "viewResolver");
         viewResolverList.remove(viewResolver);
+        resolverCache.clear();
     }
 
     /**
@@ -35,15 +52,45 @@ public final class ViewResolverSupport<R, P> {
         }
 
         // 遍历匹配逻辑处理返回的结果哪个视图处理合适
-        for (ViewResolver<R, P> viewResolver : viewResolverList) {
-			if (viewResolver.supports(request, response, result)) {
-			    return viewResolver;
+        ViewResolver<R, P>[] candidates = doGetCandidates(result == null ? NULL_RESULT_TYPE : result.getClass());
+        for (int i = 0; i < candidates.length; i++) {
+            ViewResolver<R, P> viewResolver = candidates[i];
+            if (viewResolver.supports(request, response, result)) {
+                return viewResolver;
             }
         }
         return null;
     }
 
-    public int getViewResolverSize() {
+    public synchronized int getViewResolverSize() {
         return viewResolverList.size();
     }
+
+    private ViewResolver<R, P>[] doGetCandidates(Class<?> resultType) {
+        ViewResolver<R, P>[] candidates = resolverCache.get(resultType);
+        if (candidates != null) {
+            return candidates;
+        }
+        synchronized (this) {
+            candidates = resolverCache.get(resultType);
+            if (candidates == null) {
+                candidates = doBuildCandidates(resultType == NULL_RESULT_TYPE ? null : resultType);
+                resolverCache.put(resultType, candidates);
+            }
+            return candidates;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ViewResolver<R, P>[] doBuildCandidates(Class<?> resultType) {
+        List<ViewResolver<R, P>> candidateList = new ArrayList<ViewResolver<R, P>>(viewResolverList.size());
+        for (ViewResolver<R, P> viewResolver : viewResolverList) {
+            if (viewResolver instanceof TypedViewResolver
+                    && !((TypedViewResolver<R, P>) viewResolver).supportsType(resultType)) {
+                continue;
+            }
+            candidateList.add(viewResolver);
+        }
+        return candidateList.toArray(new ViewResolver[candidateList.size()]);
+    }
 }
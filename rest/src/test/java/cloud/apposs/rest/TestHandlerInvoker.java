@@ -0,0 +1,145 @@
+package cloud.apposs.rest;
+
+import cloud.apposs.rest.parameter.Parameter;
+import cloud.apposs.rest.parameter.ParameterResolver;
+import cloud.apposs.util.ReflectUtil;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestHandlerInvoker {
+    @Test
+    public void testInvoke() throws Exception {
+        SampleAction action = new SampleAction();
+        HandlerInvoker invoker = doCreateInvoker("add", int.class, long.class);
+        Assert.assertEquals(3L, invoker.invoke(action, "1", "2"));
+
+        invoker = doCreateInvoker("touch", String.class);
+        Assert.assertNull(invoker.invoke(action, "x", null));
+        Assert.assertEquals("x", action.touched);
+
+        invoker = doCreateInvoker("version");
+        Assert.assertEquals("1.0", invoker.invoke(null, null, null));
+
+        // 业务异常原样抛出，不再包装成InvocationTargetException
+        invoker = doCreateInvoker("fail", String.class);
+        try {
+            invoker.invoke(action, "error", null);
+            Assert.fail("exception expected");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("error", e.getMessage());
+        }
+    }
+
+    /**
+     * 方法调用性能对比，对比原先参数List+ReflectUtil.invokeMethod的调用方式
+     */
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testInvokeBenchmark() throws Exception {
+        SampleAction action = new SampleAction();
+        HandlerInvoker invoker = doCreateInvoker("add", int.class, long.class);
+        Method method = SampleAction.class.getMethod("add", int.class, long.class);
+        Parameter[] parameters = doCreateParameters(method);
+
+        int iterations = 5000000;
+        long invokerCost = 0;
+        long reflectCost = 0;
+        for (int round = 0; round < 5; round++) {
+            // 前几轮预热
+            long start = System.nanoTime();
+            long total = 0;
+            for (int i = 0; i < iterations; i++) {
+                total += (Long) invoker.invoke(action, "1", "2");
+            }
+            invokerCost = (System.nanoTime() - start) / (iterations / 1000);
+            Assert.assertEquals(3L * iterations, total);
+
+            start = System.nanoTime();
+            total = 0;
+            for (int i = 0; i < iterations; i++) {
+                total += (Long) doReflectInvoke(action, method, parameters, "1", "2");
+            }
+            reflectCost = (System.nanoTime() - start) / (iterations / 1000);
+            Assert.assertEquals(3L * iterations, total);
+        }
+        System.out.println(String.format("invoker=%dps/op reflect=%dps/op", invokerCost, reflectCost));
+    }
+
+    /**
+     * 原先的调用方式，参数解析到List后转数组，再通过反射调用
+     */
+    @SuppressWarnings("unchecked")
+    private static Object doReflectInvoke(Object target, Method method,
+                Parameter[] parameters, String request, String response) throws Exception {
+        List<Object> arguments = new ArrayList<Object>(parameters.length);
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter parameter = parameters[i];
+            ParameterResolver<String, String> resolver = parameter.getResolver();
+            arguments.add(resolver.resolveArgument(parameter, request, response));
+        }
+        return ReflectUtil.invokeMethod(target, method, arguments.toArray());
+    }
+
+    private static HandlerInvoker doCreateInvoker(String name, Class<?>... parameterTypes) throws Exception {
+        Method method = SampleAction.class.getMethod(name, parameterTypes);
+        return new HandlerInvoker(method, doCreateParameters(method));
+    }
+
+    private static Parameter[] doCreateParameters(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Parameter[] parameters = new Parameter[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameters[i] = new Parameter(method, parameterTypes[i], i + 1);
+            parameters[i].setResolver(new IndexParameterResolver());
+        }
+        return parameters;
+    }
+
+    /**
+     * 第1个参数取request，第2个参数取response，数字类型只取第一位，避免解析开销影响调用性能对比
+     */
+    static class IndexParameterResolver implements ParameterResolver<String, String> {
+        @Override
+        public boolean supportsParameter(Parameter parameter) {
+            return true;
+        }
+
+        @Override
+        public Object resolveArgument(Parameter parameter, String request, String response) {
+            String value = parameter.getIndex() == 1 ? request : response;
+            Class<?> type = parameter.getType();
+            if (type == int.class) {
+                return Integer.valueOf(value.charAt(0) - '0');
+            }
+            if (type == long.class) {
+                return Long.valueOf(value.charAt(0) - '0');
+            }
+            return value;
+        }
+    }
+
+    public static class SampleAction {
+        private String touched;
+
+        public long add(int a, long b) {
+            return a + b;
+        }
+
+        public void touch(String value) {
+            this.touched = value;
+        }
+
+        public static String version() {
+            return "1.0";
+        }
+
+        public String fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package cloud.apposs.rest;
+
+import cloud.apposs.rest.annotation.Request;
+import cloud.apposs.rest.parameter.Parameter;
+import cloud.apposs.rest.sample.UserAction;
+import cloud.apposs.util.AntPathMatcher;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+public class TestHandlerRouter {
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @Test
+    public void testMatchPrecedence() throws Exception {
+        HandlerRouter<String, String> router = new HandlerRouter<String, String>();
+        doAddHandler(router, "/**");
+        doAddHandler(router, "/user/list");
+        doAddHandler(router, "/user/{id}");
+        doAddHandler(router, "/user/*/info");
+        doAddHandler(router, "/user/{id}/order/{orderId:[0-9]+}");
+        doAddHandler(router, "/file/{name}.{ext}");
+        doAddHandler(router, "/static/**/*.js");
+
+        RequestProcess process = new RequestProcess();
+        // 精确匹配优先
+        Assert.assertEquals("/user/list", doGetPath(router, process, "GET", "/user/list"));
+        Assert.assertNull(process.variables);
+        // 变量绑定
+        Assert.assertEquals("/user/{id}", doGetPath(router, process, "GET", "/user/100"));
+        Assert.assertEquals("100", process.variables.get("id"));
+        Assert.assertEquals("/user/*/info", doGetPath(router, process, "GET", "/user/100/info"));
+        Assert.assertEquals("/user/{id}/order/{orderId:[0-9]+}", doGetPath(router, process, "GET", "/user/100/order/12"));
+        Assert.assertEquals("100", process.variables.get("id"));
+        Assert.assertEquals("12", process.variables.get("orderId"));
+        Assert.assertEquals("/**", doGetPath(router, process, "GET", "/user/100/order/abc"));
+        Assert.assertEquals("/file/{name}.{ext}", doGetPath(router, process, "GET", "/file/logo.png"));
+        Assert.assertEquals("logo", process.variables.get("name"));
+        Assert.assertEquals("png", process.variables.get("ext"));
+        // **在中间
+        Assert.assertEquals("/static/**/*.js", doGetPath(router, process, "GET", "/static/js/lib/app.js"));
+        Assert.assertEquals("/**", doGetPath(router, process, "GET", "/static/app.css"));
+        Assert.assertEquals("/**", doGetPath(router, process, "GET", "/"));
+    }
+
+    @Test
+    public void testMatchMethodAndHost() throws Exception {
+        HandlerRouter<String, String> router = new HandlerRouter<String, String>();
+        doAddHandler(router, "*", "/product/**");
+        doAddHandler(router, "*", "/product/{id}", Request.Method.POST);
+        doAddHandler(router, "www.example.com", "/order/{id}");
+        doAddHandler(router, "*", "/order/{id}", Request.Method.GET);
+
+        RequestProcess process = new RequestProcess();
+        // METHOD精确匹配评分高于METHOD泛匹配
+        Assert.assertEquals("/product/{id}", doGetPath(router, process, "POST", "/product/1"));
+        Assert.assertEquals("1", process.variables.get("id"));
+        Assert.assertEquals("/product/**", doGetPath(router, process, "GET", "/product/1"));
+        Assert.assertEquals("/product/**", doGetPath(router, process, "PATCH", "/product/1"));
+        // HOST精确匹配+METHOD泛匹配与HOST泛匹配+METHOD精确匹配同分，取先匹配的
+        Handler handler = router.getHandler(process.reset("GET", "/order/1", "www.example.com"), null, null);
+        Assert.assertEquals("www.example.com", handler.getHost());
+        handler = router.getHandler(process.reset("GET", "/order/1", "m.example.com"), null, null);
+        Assert.assertEquals("*", handler.getHost());
+        Assert.assertEquals("1", process.variables.get("id"));
+        Assert.assertNull(doGetPath(router, process, "DELETE", "/other/1"));
+    }
+
+    /**
+     * 路由性能对比，500个路由，对比原先遍历AntPathMatcher的路由方式
+     */
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testRouteBenchmark() throws Exception {
+        int routeCount = 500;
+        HandlerRouter<String, String> router = new HandlerRouter<String, String>();
+        List<Handler> handlers = new LinkedList<Handler>();
+        for (int i = 0; i < routeCount; i++) {
+            String path;
+            switch (i % 4) {
+                case 0:
+                    path = "/service" + i + "/product/**";
+                    break;
+                case 1:
+                    path = "/service" + i + "/user/{id}/info";
+                    break;
+                case 2:
+                    path = "/service" + i + "/order/{id}/item/{itemId}";
+                    break;
+                default:
+                    path = "/service" + i + "/health";
+                    break;
+            }
+            handlers.add(doAddHandler(router, "*", path, Request.Method.GET));
+        }
+        String[] paths = new String[routeCount];
+        RequestProcess process = new RequestProcess();
+        for (int i = 0; i < routeCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    paths[i] = "/service" + i + "/product/list";
+                    break;
+                case 1:
+                    paths[i] = "/service" + i + "/user/100/info";
+                    break;
+                case 2:
+                    paths[i] = "/service" + i + "/order/100/item/2";
+                    break;
+                default:
+                    paths[i] = "/service" + i + "/health";
+                    break;
+            }
+            Handler handler = router.getHandler(process.reset("GET", paths[i], null), null, null);
+            Assert.assertSame(doLinearMatch(handlers, paths[i]), handler);
+        }
+
+        int iterations = 2000000;
+        long routerCost = doBenchmark(router, null, paths, iterations);
+        long linearCost = doBenchmark(null, handlers, paths, iterations / routeCount * 10);
+        System.out.println(String.format("routes=%d router=%dns/op linear=%dns/op",
+                routeCount, routerCost, linearCost));
+    }
+
+    private static long doBenchmark(HandlerRouter<String, String> router,
+                List<Handler> handlers, String[] paths, int iterations) {
+        RequestProcess process = new RequestProcess();
+        int total = 0;
+        for (int round = 0; round < 2; round++) {
+            // 第一轮预热
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                String path = paths[i % paths.length];
+                Handler handler = router != null ?
+                        router.getHandler(process.reset("GET", path, null), null, null) : doLinearMatch(handlers, path);
+                if (handler != null) {
+                    total++;
+                }
+            }
+            if (round == 1) {
+                Assert.assertEquals(iterations, total / 2);
+                return (System.nanoTime() - start) / iterations;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 原先的路由方式，精确匹配不到时遍历所有路径进行AntPathMatcher匹配并解析路径变量
+     */
+    private static Handler doLinearMatch(List<Handler> handlers, String path) {
+        for (Handler handler : handlers) {
+            if (!handler.isPattern() && handler.getPath().equals(path)) {
+                return handler;
+            }
+        }
+        for (Handler handler : handlers) {
+            if (handler.isPattern() && PATH_MATCHER.match(handler.getPath(), path)) {
+                PATH_MATCHER.getTemplateVariables(handler.getPath(), path);
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    private static Handler doAddHandler(HandlerRouter<String, String> router, String path) throws Exception {
+        return doAddHandler(router, "*", path);
+    }
+
+    private static Handler doAddHandler(HandlerRouter<String, String> router,
+                String host, String path, Request.Method... methods) throws Exception {
+        Method method = UserAction.class.getMethod("root");
+        Handler handler = new Handler(UserAction.class, method, new Parameter[0]);
+        handler.setMethods(methods).setHost(host).setPath(path).setPattern(PATH_MATCHER.isPattern(path));
+        router.addHandler(path, handler);
+        return handler;
+    }
+
+    private static String doGetPath(HandlerRouter<String, String> router,
+                RequestProcess process, String method, String path) {
+        Handler handler = router.getHandler(process.reset(method, path, "www.example.com"), null, null);
+        return handler == null ? null : handler.getPath();
+    }
+
+    static class RequestProcess implements IHandlerProcess<String, String> {
+        private String method;
+
+        private String path;
+
+        private String host;
+
+        private Map<String, String> variables;
+
+        RequestProcess reset(String method, String path, String host) {
+            this.method = method;
+            this.path = path;
+            this.host = host;
+            this.variables = null;
+            return this;
+        }
+
+        @Override
+        public String getRequestMethod(String request, String response) {
+            return method;
+        }
+
+        @Override
+        public String getRequestPath(String request, String response) {
+            return path;
+        }
+
+        @Override
+        public String getRequestHost(String request, String response) {
+            return host;
+        }
+
+        @Override
+        public void processVariable(String request, String response, Map<String, String> variables) {
+            this.variables = variables;
+        }
+
+        @Override
+        public IGuardProcess<String, String> getGuardProcess() {
+            return null;
+        }
+
+        @Override
+        public void markAsync(String request, String response) {
+        }
+
+        @Override
+        public void asyncError(String request, String response, Throwable cause) {
+        }
+    }
+}
@@ -57,6 +57,10 @@ public class TestRest {
         @Override
         public void markAsync(String request, String response) {
         }
+
+        @Override
+        public void asyncError(String request, String response, Throwable cause) {
+        }
     }
 
     @Component
@@ -1,5 +1,6 @@
 package cloud.apposs.rest;
 
+import cloud.apposs.rest.validator.ValidationException;
 import cloud.apposs.rest.validator.Validator;
 import cloud.apposs.rest.validator.checker.Digits;
 import cloud.apposs.rest.validator.checker.Email;
@@ -11,6 +12,8 @@ import cloud.apposs.rest.validator.checker.Number;
 import cloud.apposs.rest.validator.checker.Pattern;
 import cloud.apposs.util.JsonUtil;
 import cloud.apposs.util.Param;
+import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.List;
@@ -33,6 +36,70 @@ public class TestValidator {
         System.out.println(value);
         MyObject instance = Validator.deserialize(MyObject.class, value);
         System.out.println(instance);
+        Assert.assertEquals(10, instance.getField3());
+        Assert.assertEquals(2, instance.getField9().size());
+        Assert.assertEquals("MySubName2", instance.getField9().get(1).getName());
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        String jsonValue = "{" +
+                "\"field1\":\"value1\"," +
+                "\"field3\":100," +
+                "\"field4\":\"hello world\"," +
+                "\"field5\":\"wayken@qq.com\"," +
+                "\"field7\":\"1word\"," +
+                "\"field8\":{}," +
+                "\"field9\":[{\"id\":1,\"name\":\"\"}]" +
+                "}";
+        Param value = JsonUtil.parseJsonParam(jsonValue);
+        try {
+            Validator.deserialize(MyObject.class, value);
+            Assert.fail("exception expected");
+        } catch (ValidationException e) {
+            Assert.fail("fail fast expected");
+        } catch (Exception e) {
+            // 快速失败，只抛出第一个不合法字段
+        }
+
+        try {
+            Validator.deserialize(MyObject.class, value, false);
+            Assert.fail("exception expected");
+        } catch (ValidationException e) {
+            // field2、field3、field4、field7、field9[0].name均不合法
+            Assert.assertEquals(5, e.getErrors().size());
+        }
+    }
+
+    /**
+     * 校验性能，类结构只在第一次校验时解析，之后不再反射读取类结构
+     */
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testDeserializeBenchmark() throws Exception {
+        String jsonValue = "{" +
+                "\"field1\":\"value1\"," +
+                "\"field2\":\"value2\"," +
+                "\"field3\":10," +
+                "\"field4\":\"hello\"," +
+                "\"field5\":\"wayken@qq.com\"," +
+                "\"field6\":\"12222222212\"," +
+                "\"field7\":\"word\"," +
+                "\"field8\":{\"sub1\":\"MyTitle1\"}," +
+                "\"field9\":[{\"id\":1,\"name\":\"MySubName1\"},{\"id\":2,\"name\":\"MySubName2\"}]" +
+                "}";
+        Param value = JsonUtil.parseJsonParam(jsonValue);
+        int iterations = 200000;
+        long cost = 0;
+        for (int round = 0; round < 3; round++) {
+            // 前几轮预热
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Validator.deserialize(MyObject.class, value);
+            }
+            cost = (System.nanoTime() - start) / iterations;
+        }
+        System.out.println(String.format("deserialize=%dns/op", cost));
     }
 
     public static class MyObject {
@@ -0,0 +1,106 @@
+package cloud.apposs.rest.listener.statistics;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+public class TestLatencyHistogram {
+    @Test
+    public void testBucketIndex() {
+        for (long value = 0; value < 1000000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            Assert.assertTrue(value <= LatencyHistogram.highestValueAt(index));
+            if (index > 0) {
+                Assert.assertTrue(value > LatencyHistogram.highestValueAt(index - 1));
+            }
+        }
+        Assert.assertEquals(LatencyHistogram.MAX_TRACKABLE_VALUE,
+                LatencyHistogram.highestValueAt(LatencyHistogram.indexOf(LatencyHistogram.MAX_TRACKABLE_VALUE)));
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(100000, snapshot.getCount());
+        Assert.assertEquals(100000000L, snapshot.getMax());
+        doAssertNear(50000000L, snapshot.getValueAtPercentile(50));
+        doAssertNear(99000000L, snapshot.getValueAtPercentile(99));
+        doAssertNear(99900000L, snapshot.getValueAtPercentile(99.9));
+        Assert.assertEquals(50000500.0, snapshot.getMean(), 0.01);
+    }
+
+    @Test
+    public void testIntervalSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(10);
+        }
+        Assert.assertEquals(100, histogram.intervalSnapshot().getCount());
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5000);
+        }
+        LatencyHistogram.Snapshot interval = histogram.intervalSnapshot();
+        Assert.assertEquals(10, interval.getCount());
+        Assert.assertEquals(50000, interval.getSum());
+        doAssertNear(5000, interval.getValueAtPercentile(50));
+        Assert.assertEquals(0, histogram.intervalSnapshot().getCount());
+        Assert.assertEquals(110, histogram.snapshot().getCount());
+    }
+
+    @Test
+    public void testConcurrentRecord() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int threads = 4;
+        final int iterations = 200000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < iterations; j++) {
+                        histogram.record(j);
+                    }
+                    latch.countDown();
+                }
+            }.start();
+        }
+        latch.await();
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(threads * iterations, snapshot.getCount());
+        Assert.assertEquals((long) threads * iterations * (iterations - 1) / 2, snapshot.getSum());
+    }
+
+    /**
+     * 记录性能，对比原先DataDistribution的采样收集方式
+     */
+    @Test
+    @Ignore("基准测试，耗时较长，需要时手动运行")
+    public void testRecordBenchmark() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int iterations = 10000000;
+        long cost = 0;
+        for (int round = 0; round < 3; round++) {
+            // 前几轮预热
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                histogram.record(i & 0xFFFFF);
+            }
+            cost = (System.nanoTime() - start) / (iterations / 1000);
+        }
+        System.out.println(String.format("record=%dps/op", cost));
+    }
+
+    /**
+     * 分位值为所在桶的上界，相对误差不超过1/32
+     */
+    private static void doAssertNear(long expected, long actual) {
+        Assert.assertTrue("expected " + expected + " but " + actual,
+                actual >= expected && actual <= expected + expected / 32 + 1);
+    }
+}
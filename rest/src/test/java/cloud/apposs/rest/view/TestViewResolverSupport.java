@@ -0,0 +1,87 @@
+package cloud.apposs.rest.view;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestViewResolverSupport {
+    @Test
+    public void testTypedResolver() {
+        ViewResolverSupport<String, String> support = new ViewResolverSupport<String, String>();
+        NumberViewResolver numberResolver = new NumberViewResolver();
+        PrefixViewResolver prefixResolver = new PrefixViewResolver();
+        DefaultViewResolver defaultResolver = new DefaultViewResolver();
+        support.addResolver(numberResolver);
+        support.addResolver(prefixResolver);
+        support.addResolver(defaultResolver);
+
+        Assert.assertSame(numberResolver, support.getViewResolver("req", "resp", 1));
+        Assert.assertSame(numberResolver, support.getViewResolver("req", "resp", 1L));
+        Assert.assertSame(prefixResolver, support.getViewResolver("req", "resp", "redirect:/index"));
+        // 同类型不同内容仍由supports做最终判断
+        Assert.assertSame(defaultResolver, support.getViewResolver("req", "resp", "hello"));
+        Assert.assertSame(defaultResolver, support.getViewResolver("req", "resp", null));
+        Assert.assertSame(defaultResolver, support.getViewResolver("req", "resp", new Object()));
+    }
+
+    @Test
+    public void testResolverChanged() {
+        ViewResolverSupport<String, String> support = new ViewResolverSupport<String, String>();
+        NumberViewResolver numberResolver = new NumberViewResolver();
+        DefaultViewResolver defaultResolver = new DefaultViewResolver();
+        support.addResolver(defaultResolver);
+        Assert.assertSame(defaultResolver, support.getViewResolver("req", "resp", 1));
+
+        support.removeResolver(defaultResolver);
+        Assert.assertNull(support.getViewResolver("req", "resp", 1));
+
+        support.addResolver(numberResolver);
+        support.addResolver(defaultResolver);
+        Assert.assertSame(numberResolver, support.getViewResolver("req", "resp", 1));
+        Assert.assertSame(defaultResolver, support.getViewResolver("req", "resp", "hello"));
+    }
+
+    public static class NumberViewResolver extends AbstractViewResolver<String, String>
+            implements TypedViewResolver<String, String> {
+        @Override
+        public boolean supportsType(Class<?> resultType) {
+            return resultType != null && Number.class.isAssignableFrom(resultType);
+        }
+
+        @Override
+        public boolean supports(String request, String response, Object result) {
+            return result instanceof Number;
+        }
+
+        @Override
+        public void render(String request, String response, Object result, boolean flush) throws Exception {
+        }
+    }
+
+    public static class PrefixViewResolver extends AbstractViewResolver<String, String>
+            implements TypedViewResolver<String, String> {
+        @Override
+        public boolean supportsType(Class<?> resultType) {
+            return resultType == String.class;
+        }
+
+        @Override
+        public boolean supports(String request, String response, Object result) {
+            return ((String) result).startsWith("redirect:");
+        }
+
+        @Override
+        public void render(String request, String response, Object result, boolean flush) throws Exception {
+        }
+    }
+
+    public static class DefaultViewResolver extends AbstractViewResolver<String, String> {
+        @Override
+        public boolean supports(String request, String response, Object result) {
+            return true;
+        }
+
+        @Override
+        public void render(String request, String response, Object result, boolean flush) throws Exception {
+        }
+    }
+}
@@ -10,6 +10,7 @@ import java.util.Map;
 public enum HttpStatus {
     HTTP_STATUS_200(200, "OK"),
     HTTP_STATUS_204(204, "No Content"),
+    HTTP_STATUS_206(206, "Partial Content"),
 
     HTTP_STATUS_301(301, "Moved Permanently"),
     HTTP_STATUS_302(302, "Found"),
@@ -18,10 +19,14 @@ public enum HttpStatus {
     HTTP_STATUS_404(404, "Not Found"),
     HTTP_STATUS_400(400, "Bad Request"),
     HTTP_STATUS_403(403, "Forbidden"),
+    HTTP_STATUS_405(405, "Method Not Allowed"),
+    HTTP_STATUS_416(416, "Range Not Satisfiable"),
 
     HTTP_STATUS_500(500, "Internal Server Error"),
     HTTP_STATUS_501(501, "Not Implemented"),
-    HTTP_STATUS_502(502, "Bad Gateway");
+    HTTP_STATUS_502(502, "Bad Gateway"),
+    HTTP_STATUS_503(503, "Service Unavailable"),
+    HTTP_STATUS_504(504, "Gateway Timeout");
 
     private final int code;
 
@@ -31,6 +36,7 @@ public enum HttpStatus {
     static {
         status.put(HTTP_STATUS_200.getCode(), HTTP_STATUS_200);
         status.put(HTTP_STATUS_204.getCode(), HTTP_STATUS_204);
+        status.put(HTTP_STATUS_206.getCode(), HTTP_STATUS_206);
 
         status.put(HTTP_STATUS_301.getCode(), HTTP_STATUS_301);
         status.put(HTTP_STATUS_302.getCode(), HTTP_STATUS_302);
@@ -38,10 +44,15 @@ public enum HttpStatus {
 
         status.put(HTTP_STATUS_404.getCode(), HTTP_STATUS_404);
         status.put(HTTP_STATUS_400.getCode(), HTTP_STATUS_400);
+        status.put(HTTP_STATUS_403.getCode(), HTTP_STATUS_403);
+        status.put(HTTP_STATUS_405.getCode(), HTTP_STATUS_405);
+        status.put(HTTP_STATUS_416.getCode(), HTTP_STATUS_416);
 
         status.put(HTTP_STATUS_500.getCode(), HTTP_STATUS_500);
         status.put(HTTP_STATUS_501.getCode(), HTTP_STATUS_501);
         status.put(HTTP_STATUS_502.getCode(), HTTP_STATUS_502);
+        status.put(HTTP_STATUS_503.getCode(), HTTP_STATUS_503);
+        status.put(HTTP_STATUS_504.getCode(), HTTP_STATUS_504);
     }
 
     private HttpStatus(int code, String description) {
@@ -6,8 +6,10 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -70,6 +72,55 @@ public class Param implements Map<String, Object> {
         }
     }
 
+    /**
+     * 直接使用传入的Map存储数据，不做拷贝，只用于生成只读Param
+     */
+    private Param(Map<String, Object> datas, boolean unmodifiable) {
+        this.datas = unmodifiable ? Collections.unmodifiableMap(datas) : datas;
+    }
+
+    /**
+     * 生成只读的深拷贝，嵌套的Param/Table/Map/List同样拷贝为只读，修改时抛出{@link UnsupportedOperationException}，
+     * 拷贝后与原Param不再共享数据，可以作为多线程共享的快照
+     */
+    public static Param unmodifiableParam(Param param) {
+        Map<String, Object> datas = new HashMap<String, Object>((int) (param.size() / 0.75f) + 1);
+        for (Entry<String, Object> entry : param.entrySet()) {
+            datas.put(entry.getKey(), unmodifiableValue(entry.getValue()));
+        }
+        return new Param(datas, true);
+    }
+
+    /**
+     * 将Param/Table/Map/List拷贝为只读，其他类型原样返回
+     */
+    @SuppressWarnings("unchecked")
+    public static Object unmodifiableValue(Object value) {
+        if (value instanceof Param) {
+            return unmodifiableParam((Param) value);
+        }
+        if (value instanceof Table) {
+            return Table.unmodifiableTable((Table<Object>) value);
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            Map<Object, Object> copy = new LinkedHashMap<Object, Object>((int) (map.size() / 0.75f) + 1);
+            for (Entry<?, ?> entry : map.entrySet()) {
+                copy.put(entry.getKey(), unmodifiableValue(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            List<Object> copy = new ArrayList<Object>(list.size());
+            for (Object element : list) {
+                copy.add(unmodifiableValue(element));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
     public Param(boolean sync, Map<String, Object> datas) {
         if (sync) {
             this.datas = new ConcurrentHashMap<String, Object>();
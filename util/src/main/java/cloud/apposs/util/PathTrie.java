@@ -0,0 +1,471 @@
+package cloud.apposs.util;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ant风格路径路由树，每个节点对应一个路径段，子节点分为以下三类，匹配时依次尝试：
+ * <pre>
+ * 1、字面量路径段，按路径段排序，二分查找
+ * 2、段内通配/变量，带*、?、{var}、{var:regex}的路径段，按添加顺序匹配
+ * 3、**，匹配0个或多个路径段，优先让后续路径段参与更精确的匹配
+ * </pre>
+ * 匹配规则与{@link AntPathMatcher}保持一致，{var}只记录其在请求路径中的起止位置，
+ * 匹配过程中只做字符比较，不创建任何对象，节点上挂载的数据和匹配结果的选取由调用方决定，
+ * 注意路由树非线程安全，添加路径需要在匹配前完成或者由调用方加锁
+ *
+ * @param <T> 节点挂载的数据类型
+ */
+public final class PathTrie<T> {
+    private static final String PATH_SEPARATOR = "/";
+
+    private static final String PATH_WILDCARD = "**";
+
+    /**
+     * 段内通配表达式，与AntPathMatcher一致，匹配?、*、{var}和{var:regex}
+     */
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("\\?|\\*|\\{((?:\\{[^/]+?\\}|[^/{}]|\\\\[{}])+?)\\}");
+
+    private final Node<T> root = new Node<T>(PATH_SEPARATOR, 0);
+
+    /**
+     * 所有路径中最多的变量个数，匹配时变量位置数组长度至少为此值的两倍
+     */
+    private int maxVariables = 0;
+
+    /**
+     * 添加路径，返回路径结束的节点，相同的路径返回同一个节点
+     */
+    public Node<T> add(String path) {
+        SysUtil.checkNotNull(path, "path");
+        Node<T> node = root;
+        List<String> variableNames = new LinkedList<String>();
+        int length = path.length();
+        int start = 0;
+        while (start < length) {
+            if (path.charAt(start) == '/') {
+                start++;
+                continue;
+            }
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = length;
+            }
+            node = node.addChild(path.substring(start, end), variableNames.size());
+            if (node.variableNames != null) {
+                variableNames.addAll(Arrays.asList(node.variableNames));
+            }
+            start = end;
+        }
+        // 节点的路径段唯一确定了从根节点到此节点的变量名称
+        node.routeVariables = variableNames.toArray(new String[variableNames.size()]);
+        maxVariables = Math.max(maxVariables, node.routeVariables.length);
+        return node;
+    }
+
+    public int getMaxVariables() {
+        return maxVariables;
+    }
+
+    /**
+     * 匹配请求路径，深度优先，每一层依次尝试字面量、段内通配、**子节点，
+     * 每匹配到一个挂载了数据的节点都交由visitor处理，visitor返回true时结束匹配
+     *
+     * @param  path      请求路径
+     * @param  variables 当前匹配分支的路径变量起止位置，长度至少为{@link #getMaxVariables()}的两倍
+     * @param  visitor   匹配节点处理
+     * @return visitor是否结束了匹配
+     */
+    public boolean match(String path, int[] variables, Visitor<T> visitor) {
+        return doMatch(root, path, 0, variables, visitor);
+    }
+
+    private boolean doMatch(Node<T> node, String path, int start, int[] variables, Visitor<T> visitor) {
+        int length = path.length();
+        while (start < length && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start >= length) {
+            return doMatchEnd(node, path, visitor);
+        }
+        int end = path.indexOf('/', start);
+        if (end == -1) {
+            end = length;
+        }
+
+        Node<T> child = node.getLiteralChild(path, start, end);
+        if (child != null && doMatch(child, path, end, variables, visitor)) {
+            return true;
+        }
+        Node<T>[] patternChildren = node.patternChildren;
+        if (patternChildren != null) {
+            for (int i = 0; i < patternChildren.length; i++) {
+                child = patternChildren[i];
+                if (child.matchSegment(path, start, end, variables)
+                        && doMatch(child, path, end, variables, visitor)) {
+                    return true;
+                }
+            }
+        }
+        if (node.wildcardChild != null) {
+            return doMatchWildcard(node.wildcardChild, path, start, variables, visitor);
+        }
+        return false;
+    }
+
+    /**
+     * **匹配0个或多个路径段，优先让后续路径段参与更精确的匹配，最后由**本身吃掉剩余路径
+     */
+    private boolean doMatchWildcard(Node<T> node, String path, int start, int[] variables, Visitor<T> visitor) {
+        if (node.hasChildren()) {
+            int length = path.length();
+            int position = start;
+            while (position < length) {
+                if (doMatch(node, path, position, variables, visitor)) {
+                    return true;
+                }
+                position = path.indexOf('/', position + 1);
+                if (position == -1) {
+                    break;
+                }
+            }
+        }
+        return doVisit(node, node.value, visitor);
+    }
+
+    /**
+     * 请求路径已经匹配完，与AntPathMatcher保持一致，结尾的/必须与路径一致，
+     * 剩余的路径为**时同样匹配，例如/api/**匹配/api
+     */
+    private boolean doMatchEnd(Node<T> node, String path, Visitor<T> visitor) {
+        boolean slash = path.endsWith(PATH_SEPARATOR);
+        if (doVisit(node, node.wildcard || !slash ? node.value : node.slashValue, visitor)) {
+            return true;
+        }
+        if (node.wildcardChild != null && doMatchEnd(node.wildcardChild, path, visitor)) {
+            return true;
+        }
+        // /api/*匹配/api/
+        if (slash && node.patternChildren != null) {
+            for (Node<T> child : node.patternChildren) {
+                if (child.segment.equals("*")) {
+                    return doVisit(child, child.value, visitor);
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean doVisit(Node<T> node, T value, Visitor<T> visitor) {
+        return value != null && visitor.visit(node, value);
+    }
+
+    /**
+     * 比较路径段与请求路径中的片段，按字符排序
+     */
+    private static int compareSegment(String segment, String path, int start, int end) {
+        int length1 = segment.length();
+        int length2 = end - start;
+        int limit = Math.min(length1, length2);
+        for (int i = 0; i < limit; i++) {
+            char c1 = segment.charAt(i);
+            char c2 = path.charAt(start + i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length1 - length2;
+    }
+
+    /**
+     * 段内通配匹配，*匹配0个或多个字符，?匹配1个字符
+     */
+    private static boolean matchGlob(String glob, String path, int start, int end) {
+        int globIndex = 0;
+        int pathIndex = start;
+        int starIndex = -1;
+        int starMatch = -1;
+        int globLength = glob.length();
+        while (pathIndex < end) {
+            if (globIndex < globLength) {
+                char letter = glob.charAt(globIndex);
+                if (letter == '*') {
+                    starIndex = globIndex++;
+                    starMatch = pathIndex;
+                    continue;
+                }
+                if (letter == '?' || letter == path.charAt(pathIndex)) {
+                    globIndex++;
+                    pathIndex++;
+                    continue;
+                }
+            }
+            if (starIndex == -1) {
+                return false;
+            }
+            globIndex = starIndex + 1;
+            pathIndex = ++starMatch;
+        }
+        while (globIndex < globLength && glob.charAt(globIndex) == '*') {
+            globIndex++;
+        }
+        return globIndex == globLength;
+    }
+
+    /**
+     * 匹配节点处理
+     */
+    public interface Visitor<T> {
+        /**
+         * 请求路径匹配到挂载了数据的节点
+         *
+         * @param  node  匹配的节点，变量位置此时保存在匹配时传入的variables中
+         * @param  value 节点上与请求路径结尾/对应的数据
+         * @return 是否结束匹配，返回false则继续匹配其他分支
+         */
+        boolean visit(Node<T> node, T value);
+    }
+
+    /**
+     * 路由树节点，对应路径中的一个路径段
+     */
+    public static final class Node<T> {
+        private final String segment;
+
+        /** 是否为**节点 */
+        private final boolean wildcard;
+
+        /** 此节点第一个变量在路径变量中的序号，即从根节点到此节点之前的变量个数 */
+        private final int variableIndex;
+
+        /** 段内变量名称，按出现顺序，为空则此节点没有变量 */
+        private String[] variableNames;
+
+        /** 是否为整段变量，即{var}，直接记录整个路径段位置，不需要正则匹配 */
+        private boolean variable;
+
+        /** 段内通配表达式，不带变量的*和?通配 */
+        private String glob;
+
+        /** 带正则或者混合字面量的段内变量，例如{id:[0-9]+}、{name}.json，按线程缓存Matcher避免每次匹配创建对象 */
+        private ThreadLocal<Matcher> regex;
+
+        /** 字面量子节点，按路径段排序，二分查找 */
+        private Node<T>[] literalChildren;
+
+        /** 段内通配子节点，按添加顺序 */
+        private Node<T>[] patternChildren;
+
+        /** **子节点 */
+        private Node<T> wildcardChild;
+
+        /** 在此节点结束的路径中所有变量名称 */
+        private String[] routeVariables;
+
+        /** 路径在此节点结束挂载的数据，分别为结尾不带/和带/ */
+        private T value;
+        private T slashValue;
+
+        private Node(String segment, int variableIndex) {
+            this.segment = segment;
+            this.wildcard = PATH_WILDCARD.equals(segment);
+            this.variableIndex = variableIndex;
+        }
+
+        /**
+         * 获取路径对应的挂载数据，**节点不区分结尾的/
+         */
+        public T getValue(String path) {
+            return wildcard || !path.endsWith(PATH_SEPARATOR) ? value : slashValue;
+        }
+
+        /**
+         * 设置路径对应的挂载数据，path为添加此节点时的路径
+         */
+        public void setValue(String path, T value) {
+            if (wildcard || !path.endsWith(PATH_SEPARATOR)) {
+                this.value = value;
+            } else {
+                this.slashValue = value;
+            }
+        }
+
+        /**
+         * 获取在此节点结束的路径中所有变量名称，
+         * 第i个变量在请求路径中的起止位置为variables[2 * i]和variables[2 * i + 1]
+         */
+        public String[] getRouteVariables() {
+            return routeVariables;
+        }
+
+        private boolean hasChildren() {
+            return literalChildren != null || patternChildren != null || wildcardChild != null;
+        }
+
+        private Node<T> addChild(String segment, int variableIndex) {
+            if (PATH_WILDCARD.equals(segment)) {
+                if (wildcardChild == null) {
+                    wildcardChild = new Node<T>(segment, variableIndex);
+                }
+                return wildcardChild;
+            }
+            if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1 || segment.indexOf('{') != -1) {
+                if (patternChildren != null) {
+                    for (Node<T> child : patternChildren) {
+                        if (child.segment.equals(segment)) {
+                            return child;
+                        }
+                    }
+                }
+                Node<T> child = new Node<T>(segment, variableIndex);
+                child.compileSegment();
+                patternChildren = appendNode(patternChildren, child, patternChildren == null ? 0 : patternChildren.length);
+                return child;
+            }
+            int low = 0;
+            int high = literalChildren == null ? -1 : literalChildren.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int compare = literalChildren[middle].segment.compareTo(segment);
+                if (compare == 0) {
+                    return literalChildren[middle];
+                }
+                if (compare < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            Node<T> child = new Node<T>(segment, variableIndex);
+            literalChildren = appendNode(literalChildren, child, low);
+            return child;
+        }
+
+        private Node<T> getLiteralChild(String path, int start, int end) {
+            Node<T>[] children = literalChildren;
+            if (children == null) {
+                return null;
+            }
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int compare = compareSegment(children[middle].segment, path, start, end);
+                if (compare == 0) {
+                    return children[middle];
+                }
+                if (compare < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 匹配路径段，匹配成功时将段内变量在请求路径中的起止位置写入variables
+         */
+        private boolean matchSegment(String path, int start, int end, int[] variables) {
+            if (variable) {
+                variables[variableIndex << 1] = start;
+                variables[(variableIndex << 1) + 1] = end;
+                return true;
+            }
+            if (glob != null) {
+                return matchGlob(glob, path, start, end);
+            }
+            Matcher matcher = regex.get();
+            matcher.reset(path);
+            matcher.region(start, end);
+            if (!matcher.matches()) {
+                return false;
+            }
+            for (int i = 0; i < variableNames.length; i++) {
+                int index = (variableIndex + i) << 1;
+                variables[index] = matcher.start(i + 1);
+                variables[index + 1] = matcher.end(i + 1);
+            }
+            return true;
+        }
+
+        /**
+         * 编译段内通配表达式，与AntPathMatcher一致，{var}匹配任意字符，{var:regex}按正则匹配
+         */
+        private void compileSegment() {
+            if (segment.indexOf('{') == -1) {
+                glob = segment;
+                return;
+            }
+            StringBuilder regexBuilder = new StringBuilder(segment.length() + 16);
+            List<String> names = new LinkedList<String>();
+            Matcher matcher = SEGMENT_PATTERN.matcher(segment);
+            int end = 0;
+            while (matcher.find()) {
+                if (end < matcher.start()) {
+                    regexBuilder.append(Pattern.quote(segment.substring(end, matcher.start())));
+                }
+                String match = matcher.group();
+                if ("?".equals(match)) {
+                    regexBuilder.append('.');
+                } else if ("*".equals(match)) {
+                    regexBuilder.append(".*");
+                } else {
+                    int colon = match.indexOf(':');
+                    if (colon == -1) {
+                        regexBuilder.append("(.*)");
+                        names.add(matcher.group(1));
+                    } else {
+                        regexBuilder.append('(').append(match, colon + 1, match.length() - 1).append(')');
+                        names.add(match.substring(1, colon));
+                    }
+                }
+                end = matcher.end();
+            }
+            if (end < segment.length()) {
+                regexBuilder.append(Pattern.quote(segment.substring(end)));
+            }
+            variableNames = names.toArray(new String[names.size()]);
+            if (variableNames.length == 1 && regexBuilder.toString().equals("(.*)")) {
+                variable = true;
+                return;
+            }
+            final Pattern pattern = Pattern.compile(regexBuilder.toString());
+            if (pattern.matcher("").groupCount() != variableNames.length) {
+                throw new IllegalArgumentException("The number of capturing groups in the pattern segment "
+                        + segment + " does not match the number of URI template variables it defines, "
+                        + "use non-capturing groups instead");
+            }
+            regex = new ThreadLocal<Matcher>() {
+                @Override
+                protected Matcher initialValue() {
+                    return pattern.matcher("");
+                }
+            };
+        }
+
+        private static <T> Node<T>[] appendNode(Node<T>[] nodes, Node<T> node, int index) {
+            if (nodes == null) {
+                Node<T>[] newNodes = newNodes(1);
+                newNodes[0] = node;
+                return newNodes;
+            }
+            Node<T>[] newNodes = newNodes(nodes.length + 1);
+            System.arraycopy(nodes, 0, newNodes, 0, index);
+            newNodes[index] = node;
+            System.arraycopy(nodes, index, newNodes, index + 1, nodes.length - index);
+            return newNodes;
+        }
+
+        /**
+         * 泛型数组无法直接创建，通过通配符数组转换，数组只在节点内部使用不会对外暴露
+         */
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newNodes(int length) {
+            return (Node<T>[]) new Node<?>[length];
+        }
+    }
+}
@@ -76,6 +76,13 @@ public class StandardResult implements Serializable {
         return new StandardResult(false, errno, data);
     }
 
+    /**
+     * 获取输出的success字段值，注意{@link #isSuccess()}是依据错误码判断
+     */
+    public boolean getSuccess() {
+        return success;
+    }
+
     public Errno getErrno() {
         return errno;
     }
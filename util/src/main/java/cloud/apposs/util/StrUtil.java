@@ -8,6 +8,11 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public final class StrUtil {
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(
+            "^[a-zA-Z0-9][a-zA-Z0-9_=\\&\\-\\.\\+]*[a-zA-Z0-9]*@[a-zA-Z0-9][a-zA-Z0-9_=\\-\\.]+[a-zA-Z0-9]$");
+
+    private static final Pattern MOBILE_PATTERN = Pattern.compile("^1\\d{10}$");
+
     public static boolean isEmpty(Object str) {
         return str == null || StrUtil.isEmpty(str.toString());
     }
@@ -20,9 +25,7 @@ public final class StrUtil {
         if (email == null || email.isEmpty()) {
             return false;
         }
-        Pattern pattern = Pattern.compile(
-                "^[a-zA-Z0-9][a-zA-Z0-9_=\\&\\-\\.\\+]*[a-zA-Z0-9]*@[a-zA-Z0-9][a-zA-Z0-9_=\\-\\.]+[a-zA-Z0-9]$");
-        Matcher matcher = pattern.matcher(email);
+        Matcher matcher = EMAIL_PATTERN.matcher(email);
         if (!matcher.matches()) {
             return false;
         }
@@ -33,8 +36,7 @@ public final class StrUtil {
         if (mobile == null || mobile.isEmpty()) {
             return false;
         }
-        Pattern pattern = Pattern.compile("^1\\d{10}$");
-        Matcher matcher = pattern.matcher(mobile);
+        Matcher matcher = MOBILE_PATTERN.matcher(mobile);
         if (!matcher.matches()) {
             return false;
         }
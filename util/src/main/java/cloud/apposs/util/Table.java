@@ -1,6 +1,8 @@
 package cloud.apposs.util;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -35,6 +37,25 @@ public class Table<T> implements List<T> {
         }
     }
 
+    /**
+     * 直接使用传入的List存储数据，不做拷贝，只用于生成只读Table
+     */
+    private Table(List<T> data, boolean unmodifiable) {
+        this.data = unmodifiable ? Collections.unmodifiableList(data) : data;
+    }
+
+    /**
+     * 生成只读的深拷贝，元素按{@link Param#unmodifiableValue(Object)}拷贝为只读
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Table<T> unmodifiableTable(Table<T> table) {
+        List<T> data = new ArrayList<T>(table.size());
+        for (T element : table) {
+            data.add((T) Param.unmodifiableValue(element));
+        }
+        return new Table<T>(data, true);
+    }
+
     public Param getParam(int index) {
         return (Param) data.get(index);
     }
@@ -0,0 +1,55 @@
+package cloud.apposs.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestPathTrie {
+    @Test
+    public void testMatchPrecedence() {
+        PathTrie<String> trie = new PathTrie<String>();
+        String[] paths = {"/api/**", "/api/v1/**", "/api/v1/user/*", "/api/v1/user/list", "/api/v1/user/", "/static/*.js"};
+        for (String path : paths) {
+            trie.add(path).setValue(path, path);
+        }
+        Assert.assertEquals("/api/v1/user/list", doMatch(trie, "/api/v1/user/list"));
+        Assert.assertEquals("/api/v1/user/*", doMatch(trie, "/api/v1/user/info"));
+        Assert.assertEquals("/api/v1/user/", doMatch(trie, "/api/v1/user/"));
+        Assert.assertEquals("/api/v1/**", doMatch(trie, "/api/v1/order/1"));
+        Assert.assertEquals("/api/**", doMatch(trie, "/api"));
+        Assert.assertEquals("/static/*.js", doMatch(trie, "/static/app.js"));
+        Assert.assertNull(doMatch(trie, "/static/app.css"));
+    }
+
+    @Test
+    public void testMatchVariable() {
+        PathTrie<String> trie = new PathTrie<String>();
+        PathTrie.Node<String> node = trie.add("/product/{id:[0-9]+}/{name}.json");
+        node.setValue("/product/{id:[0-9]+}/{name}.json", "product");
+        Assert.assertArrayEquals(new String[] {"id", "name"}, node.getRouteVariables());
+        Assert.assertEquals(2, trie.getMaxVariables());
+
+        String path = "/product/12/phone.json";
+        int[] variables = new int[trie.getMaxVariables() << 1];
+        Assert.assertTrue(trie.match(path, variables, new PathTrie.Visitor<String>() {
+            @Override
+            public boolean visit(PathTrie.Node<String> node, String value) {
+                return true;
+            }
+        }));
+        Assert.assertEquals("12", path.substring(variables[0], variables[1]));
+        Assert.assertEquals("phone", path.substring(variables[2], variables[3]));
+        Assert.assertNull(doMatch(trie, "/product/abc/phone.json"));
+    }
+
+    private static String doMatch(PathTrie<String> trie, String path) {
+        final Ref<String> matched = new Ref<String>();
+        trie.match(path, new int[trie.getMaxVariables() << 1], new PathTrie.Visitor<String>() {
+            @Override
+            public boolean visit(PathTrie.Node<String> node, String value) {
+                matched.value(value);
+                return true;
+            }
+        });
+        return matched.value();
+    }
+}
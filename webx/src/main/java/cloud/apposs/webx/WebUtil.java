@@ -198,7 +198,7 @@ public final class WebUtil {
         if (flush) {
             AsyncContext context = null;
             try {
-                context = (AsyncContext) request.getAttribute(WebXConstants.REQUEST_ATTRIBUTE_ASYNC);
+                context = WebXAsyncListener.acquireContext(request);
                 // 有可能底层出现异常（超时），request资源已经释放，不再响应输出
                 if (context == null) {
                     return;
@@ -235,7 +235,7 @@ public final class WebUtil {
         if (flush) {
             AsyncContext context = null;
             try {
-                context = (AsyncContext) request.getAttribute(WebXConstants.REQUEST_ATTRIBUTE_ASYNC);
+                context = WebXAsyncListener.acquireContext(request);
                 // 有可能底层出现异常（超时），request资源已经释放，不再响应输出
                 if (context == null) {
                     return;
@@ -262,7 +262,7 @@ public final class WebUtil {
         if (flush) {
             AsyncContext context = null;
             try {
-                context = (AsyncContext) request.getAttribute(WebXConstants.REQUEST_ATTRIBUTE_ASYNC);
+                context = WebXAsyncListener.acquireContext(request);
                 // 有可能底层出现异常（超时），request资源已经释放，不再响应输出
                 if (context == null) {
                     return;
@@ -291,7 +291,7 @@ public final class WebUtil {
             AsyncContext context = null;
             InputStream in = null;
             try {
-                context = (AsyncContext) request.getAttribute(WebXConstants.REQUEST_ATTRIBUTE_ASYNC);
+                context = WebXAsyncListener.acquireContext(request);
                 // 有可能底层出现异常request资源已经释放，不再响应输出
                 if (context == null) {
                     return;
@@ -0,0 +1,131 @@
+package cloud.apposs.webx;
+
+import cloud.apposs.logger.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Servlet3.0异步请求监听，@Async注解和RxIo返回值的Handler在请求时开启异步请求，容器线程直接返回，
+ * 由业务异步回调（EventLoop线程或者业务线程池）输出响应并结束异步请求，
+ * 业务响应输出、请求超时、处理异常三者只有第一个生效，之后的输出直接丢弃，
+ * 避免对已结束的{@link AsyncContext}操作导致IllegalStateException
+ */
+public final class WebXAsyncListener implements AsyncListener {
+    private final AsyncContext context;
+
+    /**
+     * 异步请求是否已经被结束
+     */
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+
+    private WebXAsyncListener(AsyncContext context) {
+        this.context = context;
+    }
+
+    /**
+     * 开启异步请求，请求超时后直接响应503并结束请求
+     *
+     * @param timeout 异步请求超时时间，单位毫秒
+     */
+    public static AsyncContext startAsync(HttpServletRequest request, long timeout) {
+        AsyncContext context = request.startAsync();
+        context.setTimeout(timeout);
+        WebXAsyncListener listener = new WebXAsyncListener(context);
+        context.addListener(listener);
+        request.setAttribute(WebXConstants.REQUEST_ATTRIBUTE_ASYNC, context);
+        request.setAttribute(WebXConstants.REQUEST_ATTRIBUTE_ASYNC_LISTENER, listener);
+        return context;
+    }
+
+    /**
+     * 获取异步请求上下文进行响应输出，获取成功后由调用方负责调用{@link AsyncContext#complete()}结束请求，
+     * 请求已经超时或者已经结束时返回null
+     */
+    public static AsyncContext acquireContext(HttpServletRequest request) {
+        try {
+            WebXAsyncListener listener = (WebXAsyncListener) request.getAttribute(WebXConstants.REQUEST_ATTRIBUTE_ASYNC_LISTENER);
+            if (listener == null) {
+                // 业务自己开启的异步请求，由业务自己保证只结束一次
+                return (AsyncContext) request.getAttribute(WebXConstants.REQUEST_ATTRIBUTE_ASYNC);
+            }
+            return listener.finished.compareAndSet(false, true) ? listener.context : null;
+        } catch (IllegalStateException e) {
+            // 请求已经结束并被容器回收
+            return null;
+        }
+    }
+
+    /**
+     * 异步请求处理异常，响应500并结束请求
+     *
+     * @return 未开启异步请求时返回false，由调用方按同步请求处理异常
+     */
+    public static boolean fail(HttpServletRequest request) {
+        WebXAsyncListener listener;
+        try {
+            listener = (WebXAsyncListener) request.getAttribute(WebXConstants.REQUEST_ATTRIBUTE_ASYNC_LISTENER);
+        } catch (IllegalStateException e) {
+            return true;
+        }
+        if (listener == null) {
+            return false;
+        }
+        listener.doFinish(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        return true;
+    }
+
+    public boolean isFinished() {
+        return finished.get();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) throws IOException {
+        if (!finished.get()) {
+            Logger.warn("Async request [%s] timeout after %d milliseconds",
+                    ((HttpServletRequest) context.getRequest()).getRequestURI(), context.getTimeout());
+        }
+        doFinish(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    @Override
+    public void onError(AsyncEvent event) throws IOException {
+        // 一般为客户端连接断开等网络异常，已无法响应，直接结束请求
+        Logger.error(event.getThrowable(), "Async request error");
+        doFinish(0);
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) throws IOException {
+        finished.set(true);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) throws IOException {
+    }
+
+    private void doFinish(int status) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            HttpServletResponse response = (HttpServletResponse) context.getResponse();
+            if (status > 0 && !response.isCommitted()) {
+                response.setStatus(status);
+            }
+        } catch (IllegalStateException e) {
+            // 请求已经被容器回收
+        } finally {
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                // 请求已经被容器结束
+            }
+        }
+    }
+}
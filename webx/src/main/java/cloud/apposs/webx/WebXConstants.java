@@ -25,6 +25,7 @@ public final class WebXConstants extends RestConstants {
     public static final String REQUEST_ATTRIBUTE_VARIABLES = "AttrVariable";
     public static final String REQUEST_ATTRIBUTE_START_TIME = "AttrStartTime";
     public static final String REQUEST_ATTRIBUTE_ASYNC = "AttrAsync";
+    public static final String REQUEST_ATTRIBUTE_ASYNC_LISTENER = "AttrAsyncListener";
     public static final String REDIRECT_URL_PREFIX = "redirect:";
     public static final String FORWARD_URL_PREFIX = "forward:";
     public static final String WEBX_VERSION = "v1.1.0.RELEASE";
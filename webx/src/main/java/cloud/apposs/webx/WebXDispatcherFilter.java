@@ -18,6 +18,7 @@ import cloud.apposs.registry.ServiceInstance;
 import cloud.apposs.rest.IGuardProcess;
 import cloud.apposs.rest.IHandlerProcess;
 import cloud.apposs.rest.RestConfig;
+import cloud.apposs.rest.RestException;
 import cloud.apposs.rest.Restful;
 import cloud.apposs.util.AntPathMatcher;
 import cloud.apposs.util.ClassUtil;
@@ -36,7 +37,6 @@ import cloud.apposs.webx.resource.ResourceManager;
 import cloud.apposs.webx.schedule.CronTask;
 import cloud.apposs.webx.schedule.QuartzManager;
 
-import javax.servlet.AsyncContext;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -542,9 +542,17 @@ public class WebXDispatcherFilter implements Filter {
 
         @Override
         public void markAsync(HttpServletRequest request, HttpServletResponse response) {
-            AsyncContext asyncContext = request.startAsync();
-            asyncContext.setTimeout(config.getAsyncTimeout());
-            request.setAttribute(WebXConstants.REQUEST_ATTRIBUTE_ASYNC, asyncContext);
+            // 开启异步请求，容器线程直接返回，由RxIo回调或者业务异步输出响应
+            WebXAsyncListener.startAsync(request, config.getAsyncTimeout());
+        }
+
+        @Override
+        public void asyncError(HttpServletRequest request, HttpServletResponse response, Throwable cause) {
+            Logger.error(cause, "Async request [%s] process error", WebUtil.getRequestPath(request));
+            // 异步请求未开启成功（例如Filter未配置async-supported）则按同步请求抛出异常
+            if (!WebXAsyncListener.fail(request)) {
+                throw new RestException("Request processing failed by '" + cause + "'", cause);
+            }
         }
     }
 
@@ -3,16 +3,24 @@ package cloud.apposs.webx.etc;
 import cloud.apposs.util.Param;
 import cloud.apposs.util.SysUtil;
 
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Json配置管理器，负责管理Web业务中所有的配置文件，
  * 实现根据配置更改之后的实时读取或者定时更新读取
  * 通过文件配置或者QConf配置中心配置实现，
- * 为了避免加载配置异常影响业务，如果加载配置出错则返回null并调用业务方成自定义监听器处理错误信息
+ * 为了避免加载配置异常影响业务，如果加载配置出错则返回null并调用业务方成自定义监听器处理错误信息，
+ * 配置重载统一由后台刷新线程执行，定时检测配置是否修改，{@link WatchableEtcLoader}变更通知时立即重载，
+ * 同一配置的多次刷新触发合并为一次加载，业务请求线程获取配置只读取最近一次加载成功的配置快照，
+ * 配置快照为所有线程共享，业务方不能修改
  */
 public final class EtcManager {
 	public static final int ETC_TYPE_FILE = 0;
@@ -25,6 +33,11 @@ public final class EtcManager {
 	 */
 	private static final int DEFAULT_CACHE_TIME = 60 * 1000;
 	
+	/**
+	 * 后台检测配置是否修改的间隔，实际是否检测由加载器的缓存时间决定，默认为1秒
+	 */
+	private static final int DEFAULT_REFRESH_INTERVAL = 1000;
+	
 	/**
 	 * {@link EtcLoader}工厂，业务方可实现自己的工厂模式并注入到配置管理器中
 	 */
@@ -35,16 +48,45 @@ public final class EtcManager {
      * 加载器监听列表
      */
     private final List<EtcLoaderListener> loaderListeners = 
-    	new LinkedList<EtcLoaderListener>();
+    	new CopyOnWriteArrayList<EtcLoaderListener>();
 	
 	/**
 	 * 一个配置Key对应一个加载器
 	 */
-	private final Map<String, EtcLoader> loaderPool =
-		new ConcurrentHashMap<String, EtcLoader>();
+	private final Map<String, EtcHolder> loaderPool =
+		new ConcurrentHashMap<String, EtcHolder>();
+	
+	/**
+	 * 后台刷新线程，定时检测和配置重载都在该线程中执行
+	 */
+	private final ScheduledExecutorService refresher;
 	
 	public EtcManager() {
+		this(DEFAULT_REFRESH_INTERVAL);
+	}
+	
+	/**
+	 * @param refreshInterval 后台检测配置是否修改的间隔，单位毫秒
+	 */
+	public EtcManager(int refreshInterval) {
+		if (refreshInterval <= 0) {
+			throw new IllegalArgumentException("refreshInterval");
+		}
 		loaderFactorys.put(ETC_TYPE_FILE, new FileEtcLoader.FileEtcLoaderFactory());
+		refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "EtcManager-Refresher");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		refresher.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				doCheckModified();
+			}
+		}, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
 	}
 	
 	public void addLoaderFactory(EtcLoaderFactory loaderFactory) {
@@ -81,11 +123,11 @@ public final class EtcManager {
 				throw new EtcLoadException("Conf Loader[" + type + "] Not Found Error;");
 			}
 			loader = loaderFactory.getLoader(cacheTime, args);
-			loader.loadEtc();
-			loaderPool.put(key, loader);
 			if (loader == null) {
 				return false;
 			}
+			loader.loadEtc();
+			doAddLoader(key, loader);
 			fireEtcLoaderInit(loader);
 			return true;
 		} catch(Throwable t) {
@@ -98,7 +140,7 @@ public final class EtcManager {
 		SysUtil.checkNotNull(loader, "loader");
 		try {
 			loader.loadEtc();
-			loaderPool.put(key, loader);
+			doAddLoader(key, loader);
 			fireEtcLoaderInit(loader);
 			return true;
 		} catch(Throwable t) {
@@ -107,34 +149,115 @@ public final class EtcManager {
 		}
 	}
 	
+	private void doAddLoader(String key, EtcLoader loader) {
+		final EtcHolder holder = new EtcHolder(loader);
+		EtcHolder oldHolder = loaderPool.put(key, holder);
+		if (oldHolder != null) {
+			oldHolder.unwatch();
+		}
+		if (loader instanceof WatchableEtcLoader) {
+			try {
+				((WatchableEtcLoader) loader).watch(new Runnable() {
+					@Override
+					public void run() {
+						doScheduleRefresh(holder);
+					}
+				});
+			} catch (EtcLoadException e) {
+				// 监听失败时仍由后台定时检测配置修改
+				fireEtcLoaderError(loader, e);
+			}
+		}
+	}
+	
 	/**
-	 * 从配置器中获取配置信息，
-	 * 如果配置内容修改之后格式异常则返回旧的配置内容，避免当配置内容格式出错时影响业务
+	 * 从配置器中获取配置信息，直接返回最近一次加载成功的配置快照，不在业务线程中加载配置，
+	 * 如果配置内容修改之后格式异常则返回旧的配置内容，避免当配置内容格式出错时影响业务，
+	 * 返回的快照为只读拷贝，所有业务线程共享，修改时抛出UnsupportedOperationException
 	 */
 	public final Param getConfig(String key) {
-		Param oldConfig = null;
-		EtcLoader loader = null;
-		try {
-			loader = loaderPool.get(key);
-			if (loader == null) {
-				throw new EtcLoadException("Conf Key[" + key + "] Not Found Error;");
-			}
-		
-			oldConfig = loader.getEtc();
-			// 从配置器中获取配置内容
-			if (!loader.isEtcModified()) {
-				return oldConfig;
+		EtcHolder holder = loaderPool.get(key);
+		if (holder == null) {
+			fireEtcLoaderError(null, new EtcLoadException("Conf Key[" + key + "] Not Found Error;"));
+			return null;
+		}
+		return holder.snapshot;
+	}
+	
+	/**
+	 * 触发配置重新加载，由后台刷新线程异步执行
+	 */
+	public final boolean refreshConfig(String key) {
+		EtcHolder holder = loaderPool.get(key);
+		if (holder == null) {
+			return false;
+		}
+		doScheduleRefresh(holder);
+		return true;
+	}
+	
+	/**
+	 * 停止后台刷新线程和所有配置变更监听
+	 */
+	public void shutdown() {
+		refresher.shutdownNow();
+		for (EtcHolder holder : loaderPool.values()) {
+			holder.unwatch();
+		}
+	}
+	
+	private void doCheckModified() {
+		for (EtcHolder holder : loaderPool.values()) {
+			try {
+				if (holder.loader.isEtcModified()) {
+					doScheduleRefresh(holder);
+				}
+			} catch (Throwable t) {
+				fireEtcLoaderError(holder.loader, t);
 			}
-			loader.loadEtc();
-			fireEtcLoaderRefresh(loader);
-			Param newConfig = loader.getEtc();
-			return newConfig;
-		} catch(EtcLoadException e) {
-			fireEtcLoaderError(loader, e);
-			return oldConfig;
 		}
 	}
 	
+	/**
+	 * 提交配置重载任务，已有重载任务等待执行时直接合并，
+	 * 重载执行过程中再次触发时在本次重载结束后再重载一次，保证不丢失最后一次修改
+	 */
+	private void doScheduleRefresh(final EtcHolder holder) {
+		holder.pending = true;
+		if (!holder.refreshing.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			refresher.execute(new Runnable() {
+				@Override
+				public void run() {
+					doRefresh(holder);
+				}
+			});
+		} catch (RuntimeException e) {
+			// 配置管理器已停止
+			holder.refreshing.set(false);
+		}
+	}
+	
+	private void doRefresh(EtcHolder holder) {
+		do {
+			holder.pending = false;
+			try {
+				if (holder.loader.loadEtc()) {
+					Param newConfig = holder.loader.getEtc();
+					if (newConfig != null) {
+						holder.snapshot = Param.unmodifiableParam(newConfig);
+					}
+					fireEtcLoaderRefresh(holder.loader);
+				}
+			} catch (Throwable t) {
+				fireEtcLoaderError(holder.loader, t);
+			}
+			holder.refreshing.set(false);
+		} while (holder.pending && holder.refreshing.compareAndSet(false, true));
+	}
+	
 	private void fireEtcLoaderInit(EtcLoader loader) {
 		for (EtcLoaderListener loaderListenrer : loaderListeners) {
 			loaderListenrer.loadInit(loader);
@@ -152,4 +275,32 @@ public final class EtcManager {
 			loaderListenrer.loadError(loader, t);
 		}
 	}
+	
+	/**
+	 * 配置加载器和最近一次加载成功的配置快照
+	 */
+	private static final class EtcHolder {
+		private final EtcLoader loader;
+		
+		private volatile Param snapshot;
+		
+		/** 是否已有重载任务等待或者正在执行 */
+		private final AtomicBoolean refreshing = new AtomicBoolean(false);
+		
+		/** 是否有未处理的刷新触发 */
+		private volatile boolean pending;
+		
+		private EtcHolder(EtcLoader loader) {
+			this.loader = loader;
+			Param etc = loader.getEtc();
+			// 发布只读拷贝，避免业务线程与加载器共享同一个可变Param
+			this.snapshot = etc == null ? null : Param.unmodifiableParam(etc);
+		}
+		
+		private void unwatch() {
+			if (loader instanceof WatchableEtcLoader) {
+				((WatchableEtcLoader) loader).unwatch();
+			}
+		}
+	}
 }
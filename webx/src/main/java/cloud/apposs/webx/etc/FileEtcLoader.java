@@ -6,16 +6,28 @@ import cloud.apposs.util.Param;
 import cloud.apposs.util.StrUtil;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 
 /**
- * 文件配置加载器，线程安全
+ * 文件配置加载器，线程安全，
+ * 通过WatchService监听配置文件所在目录，文件修改时通知重新加载
  */
-public class FileEtcLoader extends AbstractEtcLoader {
+public class FileEtcLoader extends AbstractEtcLoader implements WatchableEtcLoader {
 	private String filePath;
 	
 	/** 文件修改时间 ，主要用于判断文件配置是否更新 */
 	private long lastModified = 0;
 	
+	/** 文件变更监听服务，未监听时为null */
+	private WatchService watchService;
+	
 	public FileEtcLoader(String filePath, int cacheTime) throws EtcLoadException {
 		super(cacheTime);
 		this.filePath = filePath;
@@ -58,6 +70,69 @@ public class FileEtcLoader extends AbstractEtcLoader {
 		}
 	}
 	
+	@Override
+	public synchronized void watch(final Runnable changedCallback) throws EtcLoadException {
+		if (watchService != null) {
+			return;
+		}
+		File file = new File(filePath).getAbsoluteFile();
+		final String fileName = file.getName();
+		final WatchService service;
+		try {
+			service = FileSystems.getDefault().newWatchService();
+			file.getParentFile().toPath().register(service,
+				StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			throw new EtcLoadException("Conf File[" + filePath + "] Watch Error;", e);
+		}
+		Thread watchThread = new Thread("FileEtcLoader-Watcher") {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						WatchKey key = service.take();
+						boolean changed = false;
+						for (WatchEvent<?> event : key.pollEvents()) {
+							// 事件溢出时无法确定文件是否修改，按修改处理
+							if (event.kind() == StandardWatchEventKinds.OVERFLOW
+									|| fileName.equals(((Path) event.context()).toString())) {
+								changed = true;
+							}
+						}
+						key.reset();
+						if (changed) {
+							changedCallback.run();
+						}
+					}
+				} catch (ClosedWatchServiceException e) {
+					// 停止监听
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		watchThread.setDaemon(true);
+		watchThread.start();
+		watchService = service;
+	}
+	
+	@Override
+	public synchronized void unwatch() {
+		if (watchService == null) {
+			return;
+		}
+		try {
+			watchService.close();
+		} catch (IOException e) {
+		}
+		watchService = null;
+	}
+	
+	@Override
+	public String toString() {
+		return "FileEtcLoader[" + filePath + "]";
+	}
+	
 	public static final class FileEtcLoaderFactory implements EtcLoaderFactory {
 		@Override
 		public EtcLoader getLoader(int cacheTime, Object... args)
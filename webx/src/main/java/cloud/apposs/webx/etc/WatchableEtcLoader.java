@@ -0,0 +1,18 @@
+package cloud.apposs.webx.etc;
+
+/**
+ * 支持变更通知的配置加载器，
+ * 如文件配置通过WatchService监听文件修改，ZooKeeper/QConf配置通过节点Watch监听，
+ * 配置变更时由{@link EtcManager}后台线程立即重新加载，不需要等待定时检测
+ */
+public interface WatchableEtcLoader extends EtcLoader {
+	/**
+	 * 开始监听配置变更，变更时回调通知，回调可能在监听线程中执行，不能阻塞
+	 */
+	void watch(Runnable changedCallback) throws EtcLoadException;
+
+	/**
+	 * 停止监听配置变更
+	 */
+	void unwatch();
+}
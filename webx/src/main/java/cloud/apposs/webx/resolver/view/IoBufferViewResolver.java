@@ -3,6 +3,7 @@ package cloud.apposs.webx.resolver.view;
 import cloud.apposs.ioc.annotation.Component;
 import cloud.apposs.netkit.IoBuffer;
 import cloud.apposs.rest.view.AbstractViewResolver;
+import cloud.apposs.rest.view.TypedViewResolver;
 import cloud.apposs.util.MediaType;
 import cloud.apposs.webx.WebUtil;
 
@@ -14,7 +15,13 @@ import javax.servlet.http.HttpServletResponse;
  * 让业务层直接以IoBuffer的方式返回，底层则将读取IoBuffer字节码并响应输出
  */
 @Component
-public class IoBufferViewResolver extends AbstractViewResolver<HttpServletRequest, HttpServletResponse> {
+public class IoBufferViewResolver extends AbstractViewResolver<HttpServletRequest, HttpServletResponse>
+        implements TypedViewResolver<HttpServletRequest, HttpServletResponse> {
+    @Override
+    public boolean supportsType(Class<?> resultType) {
+        return (resultType != null && IoBuffer.class.isAssignableFrom(resultType));
+    }
+
     @Override
     public boolean supports(HttpServletRequest request, HttpServletResponse response, Object result) {
         return (result instanceof IoBuffer);
@@ -2,6 +2,7 @@ package cloud.apposs.webx.resolver.view;
 
 import cloud.apposs.ioc.annotation.Component;
 import cloud.apposs.rest.view.AbstractViewResolver;
+import cloud.apposs.rest.view.TypedViewResolver;
 import cloud.apposs.util.MediaType;
 import cloud.apposs.util.Param;
 import cloud.apposs.util.StandardResult;
@@ -14,7 +15,13 @@ import javax.servlet.http.HttpServletResponse;
  * Json格式输出视图渲染器
  */
 @Component
-public class StandardResultViewResolver extends AbstractViewResolver<HttpServletRequest, HttpServletResponse> {
+public class StandardResultViewResolver extends AbstractViewResolver<HttpServletRequest, HttpServletResponse>
+        implements TypedViewResolver<HttpServletRequest, HttpServletResponse> {
+    @Override
+    public boolean supportsType(Class<?> resultType) {
+        return (resultType != null && StandardResult.class.isAssignableFrom(resultType));
+    }
+
     @Override
     public boolean supports(HttpServletRequest request, HttpServletResponse response, Object result) {
         return (result instanceof StandardResult);
@@ -4,6 +4,7 @@ import cloud.apposs.ioc.annotation.Component;
 import cloud.apposs.rest.RestConfig;
 import cloud.apposs.rest.annotation.Order;
 import cloud.apposs.rest.view.AbstractViewResolver;
+import cloud.apposs.rest.view.TypedViewResolver;
 import cloud.apposs.rest.view.ViewResolver;
 import cloud.apposs.webx.WebUtil;
 import cloud.apposs.webx.WebXConfig;
@@ -16,7 +17,8 @@ import javax.servlet.http.HttpServletResponse;
  * 页面Url跳转/转发视图渲染器
  */
 @Component
-public class UrlViewResolver extends AbstractViewResolver<HttpServletRequest, HttpServletResponse> {
+public class UrlViewResolver extends AbstractViewResolver<HttpServletRequest, HttpServletResponse>
+        implements TypedViewResolver<HttpServletRequest, HttpServletResponse> {
     public static final String REQUEST_ATTRIBUTE_URL_CONTENT = "_AttrUrlContent";
     public static final String REQUEST_ATTRIBUTE_URL_DIRECT = "_AttrUrlDirect";
 
@@ -35,6 +37,11 @@ public class UrlViewResolver extends AbstractViewResolver<HttpServletRequest, Ht
         return this;
     }
 
+    @Override
+    public boolean supportsType(Class<?> resultType) {
+        return resultType == String.class;
+    }
+
     @Override
     public boolean supports(HttpServletRequest request, HttpServletResponse response, Object result) {
         if (result instanceof String) {
@@ -0,0 +1,196 @@
+package cloud.apposs.webx;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于动态代理模拟的Servlet容器验证异步请求的结束逻辑
+ */
+public class TestWebXAsyncListener {
+    @Test
+    public void testRenderBeforeTimeout() throws Exception {
+        MockContainer container = new MockContainer();
+        HttpServletRequest request = container.request;
+        WebXAsyncListener.startAsync(request, 1000);
+        Assert.assertEquals(1000, container.timeout);
+
+        AsyncContext context = WebXAsyncListener.acquireContext(request);
+        Assert.assertNotNull(context);
+        context.complete();
+        // 业务输出后容器超时不再重复结束请求
+        container.fireTimeout();
+        Assert.assertEquals(1, container.completeCount.get());
+        Assert.assertEquals(200, container.status);
+        Assert.assertNull(WebXAsyncListener.acquireContext(request));
+    }
+
+    @Test
+    public void testTimeoutBeforeRender() throws Exception {
+        MockContainer container = new MockContainer();
+        HttpServletRequest request = container.request;
+        WebXAsyncListener.startAsync(request, 1000);
+
+        container.fireTimeout();
+        Assert.assertEquals(1, container.completeCount.get());
+        Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, container.status);
+        // 超时后的业务输出直接丢弃
+        Assert.assertNull(WebXAsyncListener.acquireContext(request));
+    }
+
+    @Test
+    public void testFail() throws Exception {
+        MockContainer container = new MockContainer();
+        HttpServletRequest request = container.request;
+        Assert.assertFalse(WebXAsyncListener.fail(request));
+
+        WebXAsyncListener.startAsync(request, 1000);
+        Assert.assertTrue(WebXAsyncListener.fail(request));
+        Assert.assertEquals(1, container.completeCount.get());
+        Assert.assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, container.status);
+        Assert.assertNull(WebXAsyncListener.acquireContext(request));
+    }
+
+    @Test
+    public void testConcurrentFinish() throws Exception {
+        for (int round = 0; round < 1000; round++) {
+            final MockContainer container = new MockContainer();
+            final HttpServletRequest request = container.request;
+            WebXAsyncListener.startAsync(request, 1000);
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch latch = new CountDownLatch(2);
+            new Thread() {
+                @Override
+                public void run() {
+                    doAwait(start);
+                    AsyncContext context = WebXAsyncListener.acquireContext(request);
+                    if (context != null) {
+                        context.complete();
+                    }
+                    latch.countDown();
+                }
+            }.start();
+            new Thread() {
+                @Override
+                public void run() {
+                    doAwait(start);
+                    container.fireTimeout();
+                    latch.countDown();
+                }
+            }.start();
+            start.countDown();
+            latch.await();
+            Assert.assertEquals(1, container.completeCount.get());
+        }
+    }
+
+    private static void doAwait(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+        }
+    }
+
+    /**
+     * 模拟Servlet容器，只实现异步请求相关的方法
+     */
+    static class MockContainer {
+        private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+        private final List<AsyncListener> listeners = new CopyOnWriteArrayList<AsyncListener>();
+
+        private final AtomicInteger completeCount = new AtomicInteger();
+
+        private volatile int status = 200;
+
+        private volatile long timeout;
+
+        private final HttpServletResponse response = doCreateProxy(HttpServletResponse.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("setStatus")) {
+                    status = (Integer) args[0];
+                } else if (name.equals("getStatus")) {
+                    return status;
+                } else if (name.equals("isCommitted")) {
+                    return completeCount.get() > 0;
+                }
+                return null;
+            }
+        });
+
+        private final AsyncContext context = doCreateProxy(AsyncContext.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("getRequest")) {
+                    return request;
+                } else if (name.equals("getResponse")) {
+                    return response;
+                } else if (name.equals("setTimeout")) {
+                    timeout = (Long) args[0];
+                } else if (name.equals("getTimeout")) {
+                    return timeout;
+                } else if (name.equals("addListener")) {
+                    listeners.add((AsyncListener) args[0]);
+                } else if (name.equals("complete")) {
+                    // 和容器一样，重复结束请求抛出异常
+                    if (completeCount.incrementAndGet() > 1) {
+                        throw new IllegalStateException("request already completed");
+                    }
+                    for (AsyncListener listener : listeners) {
+                        listener.onComplete(new AsyncEvent(context));
+                    }
+                }
+                return null;
+            }
+        });
+
+        private final HttpServletRequest request = doCreateProxy(HttpServletRequest.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("getAttribute")) {
+                    return attributes.get(args[0]);
+                } else if (name.equals("setAttribute")) {
+                    attributes.put((String) args[0], args[1]);
+                } else if (name.equals("startAsync")) {
+                    return context;
+                } else if (name.equals("getRequestURI")) {
+                    return "/async";
+                }
+                return null;
+            }
+        });
+
+        void fireTimeout() {
+            try {
+                for (AsyncListener listener : listeners) {
+                    listener.onTimeout(new AsyncEvent(context));
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T doCreateProxy(Class<T> clazz, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] {clazz}, handler);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package cloud.apposs.webx.etc;
+
+import cloud.apposs.util.Param;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestEtcManager {
+    @Test
+    public void testFileRefresh() throws Exception {
+        File file = File.createTempFile("etc", ".json");
+        file.deleteOnExit();
+        doWriteFile(file, "{\"name\":\"v1\"}", System.currentTimeMillis() - 10000);
+        EtcManager manager = new EtcManager(100);
+        try {
+            Assert.assertTrue(manager.addConfig("etc", EtcManager.ETC_TYPE_FILE, 0, file.getAbsolutePath()));
+            Param config = manager.getConfig("etc");
+            Assert.assertEquals("v1", config.getString("name"));
+            // 获取配置不触发加载，直接返回同一个快照
+            Assert.assertSame(config, manager.getConfig("etc"));
+            // 快照为只读拷贝，业务线程不能修改共享的配置
+            try {
+                config.setString("name", "changed");
+                Assert.fail();
+            } catch (UnsupportedOperationException e) {
+            }
+            Assert.assertEquals("v1", config.getString("name"));
+
+            doWriteFile(file, "{\"name\":\"v2\"}", System.currentTimeMillis());
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!"v2".equals(manager.getConfig("etc").getString("name"))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals("v2", manager.getConfig("etc").getString("name"));
+
+            // 格式错误时保留旧的配置
+            doWriteFile(file, "{\"name\":", System.currentTimeMillis() + 10000);
+            manager.refreshConfig("etc");
+            Thread.sleep(300);
+            Assert.assertEquals("v2", manager.getConfig("etc").getString("name"));
+            Assert.assertNull(manager.getConfig("unknown"));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    /**
+     * 并发触发刷新时合并为少量加载
+     */
+    @Test
+    public void testRefreshCoalesce() throws Exception {
+        final CountingEtcLoader loader = new CountingEtcLoader();
+        final EtcManager manager = new EtcManager(60000);
+        try {
+            Assert.assertTrue(manager.addConfig("etc", loader));
+            Assert.assertEquals(1, loader.loadCount.get());
+
+            final int threads = 8;
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch latch = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                        }
+                        for (int j = 0; j < 1000; j++) {
+                            loader.changedCallback.run();
+                            Assert.assertNotNull(manager.getConfig("etc"));
+                        }
+                        latch.countDown();
+                    }
+                }.start();
+            }
+            start.countDown();
+            latch.await();
+            Thread.sleep(200);
+            int loadCount = loader.loadCount.get();
+            Assert.assertTrue("load count " + loadCount, loadCount >= 2 && loadCount < 100);
+            // 最后一次触发之后一定有一次加载
+            Assert.assertEquals(loadCount - 1, manager.getConfig("etc").getInt("version").intValue());
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    private static void doWriteFile(File file, String content, long lastModified) throws Exception {
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+        file.setLastModified(lastModified);
+    }
+
+    static class CountingEtcLoader implements WatchableEtcLoader {
+        private final AtomicInteger loadCount = new AtomicInteger();
+
+        private volatile Param config;
+
+        private volatile Runnable changedCallback;
+
+        @Override
+        public Param getEtc() {
+            return config;
+        }
+
+        @Override
+        public boolean isEtcModified() {
+            return false;
+        }
+
+        @Override
+        public boolean loadEtc() throws EtcLoadException {
+            int version = loadCount.getAndIncrement();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+            }
+            config = Param.builder("version", version);
+            return true;
+        }
+
+        @Override
+        public void watch(Runnable changedCallback) {
+            this.changedCallback = changedCallback;
+        }
+
+        @Override
+        public void unwatch() {
+        }
+    }
+}